@@ -27,8 +27,11 @@ import com.datastax.oss.driver.api.core.metadata.Node;
 import com.datastax.oss.driver.api.core.metadata.TokenMap;
 import com.datastax.oss.driver.api.core.metadata.token.Token;
 import com.datastax.oss.driver.api.core.type.codec.registry.CodecRegistry;
+import com.datastax.oss.driver.internal.core.metadata.token.Murmur3Token;
 import com.datastax.oss.driver.shaded.guava.common.base.Preconditions;
 import com.datastax.oss.driver.shaded.guava.common.collect.ImmutableList;
+import com.datastax.oss.dsbulk.partitioner.murmur3.Murmur3BulkTokenFactory;
+import com.datastax.oss.dsbulk.partitioner.murmur3.Murmur3TokenRing;
 import com.datastax.oss.dsbulk.sampler.DataSizes;
 import edu.umd.cs.findbugs.annotations.NonNull;
 import edu.umd.cs.findbugs.annotations.Nullable;
@@ -54,6 +57,8 @@ public class DefaultStatementBatcher implements StatementBatcher {
   protected final int maxBatchStatements;
   protected final long maxSizeInBytes;
 
+  private volatile CachedRing cachedRing;
+
   /**
    * Creates a new {@link DefaultStatementBatcher} that produces {@linkplain
    * DefaultBatchType#UNLOGGED unlogged} batches, operates in {@linkplain BatchMode#PARTITION_KEY
@@ -302,6 +307,17 @@ public class DefaultStatementBatcher implements StatementBatcher {
         if (keyspace != null) {
           TokenMap tokenMap = session.getMetadata().getTokenMap().orElse(null);
           if (tokenMap != null) {
+            Murmur3TokenRing ring = murmur3Ring(tokenMap, keyspace);
+            if (ring != null && (routingKey != null || routingToken instanceof Murmur3Token)) {
+              long token =
+                  routingKey != null
+                      ? Murmur3BulkTokenFactory.murmur3(routingKey)
+                      : ((Murmur3Token) routingToken).getValue();
+              int rangeIndex = ring.rangeIndex(token);
+              if (!ring.getReplicas(rangeIndex).isEmpty()) {
+                return ring.replicaSetId(rangeIndex);
+              }
+            }
             Set<Node> replicas = null;
             if (routingKey != null) {
               replicas = tokenMap.getReplicas(keyspace, routingKey);
@@ -327,6 +343,24 @@ public class DefaultStatementBatcher implements StatementBatcher {
     return statement;
   }
 
+  /**
+   * Returns a snapshot of the given token map optimized for token routing, if it uses the Murmur3
+   * partitioner. The snapshot is cached until the session's token map is replaced, which happens
+   * after topology and schema changes.
+   */
+  @Nullable
+  private Murmur3TokenRing murmur3Ring(
+      @NonNull TokenMap tokenMap, @NonNull CqlIdentifier keyspace) {
+    CachedRing cached = this.cachedRing;
+    if (cached != null && cached.tokenMap == tokenMap && cached.keyspace.equals(keyspace)) {
+      return cached.ring;
+    }
+    Murmur3TokenRing ring =
+        Murmur3TokenRing.isMurmur3(tokenMap) ? new Murmur3TokenRing(tokenMap, keyspace) : null;
+    this.cachedRing = new CachedRing(tokenMap, keyspace, ring);
+    return ring;
+  }
+
   @Nullable
   private CqlIdentifier getKeyspace(Statement<?> statement) {
     if (statement.getKeyspace() != null) {
@@ -374,4 +408,17 @@ public class DefaultStatementBatcher implements StatementBatcher {
       return maxSizeInBytes;
     }
   }
+
+  private static class CachedRing {
+
+    private final TokenMap tokenMap;
+    private final CqlIdentifier keyspace;
+    private final Murmur3TokenRing ring;
+
+    private CachedRing(TokenMap tokenMap, CqlIdentifier keyspace, Murmur3TokenRing ring) {
+      this.tokenMap = tokenMap;
+      this.keyspace = keyspace;
+      this.ring = ring;
+    }
+  }
 }
@@ -0,0 +1,133 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.dsbulk.benchmarks;
+
+import com.datastax.oss.driver.api.core.DefaultProtocolVersion;
+import com.datastax.oss.driver.api.core.cql.BatchableStatement;
+import com.datastax.oss.dsbulk.batcher.api.DefaultStatementBatcher;
+import com.datastax.oss.dsbulk.batcher.api.StatementBatcher;
+import com.datastax.oss.dsbulk.benchmarks.data.BenchmarkSchema;
+import com.datastax.oss.dsbulk.benchmarks.data.SyntheticDataGenerator;
+import com.datastax.oss.dsbulk.config.ConfigUtils;
+import com.datastax.oss.dsbulk.connectors.csv.CSVConnector;
+import com.datastax.oss.dsbulk.workflow.commons.schema.DefaultRecordMapper;
+import com.datastax.oss.dsbulk.workflow.commons.schema.RecordMapper;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import reactor.core.publisher.Flux;
+
+/**
+ * Measures the client-side LOAD hot path end to end, in records per second: a local CSV file is
+ * parsed, each record is mapped to a bound statement, and statements are then grouped into batches,
+ * exactly as the load workflow does, except that the resulting statements are discarded instead of
+ * being executed.
+ *
+ * <p>The pipeline runs on the calling thread only; this benchmark measures per-core efficiency, not
+ * the parallelism of the workflow.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoadPipelineBenchmark {
+
+  private static final int ROWS = 100_000;
+
+  /** The number of distinct partition keys in the generated file. */
+  @Param({"1000", "100000"})
+  public int partitions;
+
+  @Param({"true", "false"})
+  public boolean batching;
+
+  private Path dir;
+  private CSVConnector connector;
+  private RecordMapper mapper;
+  private StatementBatcher batcher;
+
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    dir = Files.createTempDirectory("dsbulk-bench");
+    Path file = new SyntheticDataGenerator(42, partitions, 64).writeCsv(dir, ROWS);
+    Config settings =
+        ConfigFactory.parseString("url = \"" + file.toUri() + "\"")
+            .withFallback(
+                ConfigUtils.createReferenceConfig().resolve().getConfig("dsbulk.connector.csv"));
+    connector = new CSVConnector();
+    connector.configure(settings, true, false);
+    connector.init();
+    mapper =
+        new DefaultRecordMapper(
+            BenchmarkSchema.insertStatement(),
+            BenchmarkSchema.partitionKeyVariables(),
+            BenchmarkSchema.clusteringColumnVariables(),
+            DefaultProtocolVersion.V4,
+            BenchmarkSchema.mapping(BenchmarkSchema.codecFactory()),
+            connector.getRecordMetadata(),
+            false,
+            false,
+            false);
+    batcher = new DefaultStatementBatcher(32);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    connector.close();
+    try (Stream<Path> files = Files.walk(dir)) {
+      files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(ROWS)
+  public void load(Blackhole bh) {
+    Flux<BatchableStatement<?>> statements =
+        Flux.concat(connector.read()).<BatchableStatement<?>>map(mapper::map);
+    if (batching) {
+      // the default batch.bufferSize is 4 times the default batch.maxBatchStatements
+      statements
+          .buffer(128)
+          .flatMapIterable(batcher::batchByGroupingKey)
+          .doOnNext(bh::consume)
+          .blockLast();
+    } else {
+      statements.doOnNext(bh::consume).blockLast();
+    }
+  }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.dsbulk.benchmarks.batcher;
+
+import com.datastax.oss.driver.api.core.cql.BatchableStatement;
+import com.datastax.oss.dsbulk.batcher.api.DefaultStatementBatcher;
+import com.datastax.oss.dsbulk.batcher.api.StatementBatcher;
+import com.datastax.oss.dsbulk.benchmarks.data.BenchmarkStatements;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the throughput of {@link DefaultStatementBatcher#batchByGroupingKey(Iterable)} in
+ * statements per second, for one batch buffer worth of statements spread over a varying number of
+ * partitions.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StatementBatcherBenchmark {
+
+  /** The default value of batch.bufferSize: 4 times batch.maxBatchStatements. */
+  private static final int BUFFER_SIZE = 128;
+
+  @Param({"1", "32", "128"})
+  public int partitions;
+
+  @Param({"-1", "5120"})
+  public long maxSizeInBytes;
+
+  private List<BatchableStatement<?>> statements;
+  private StatementBatcher batcher;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    statements = BenchmarkStatements.generate(BUFFER_SIZE, partitions, 42);
+    batcher = new DefaultStatementBatcher(32, maxSizeInBytes);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BUFFER_SIZE)
+  public Object batchByGroupingKey() {
+    return batcher.batchByGroupingKey(statements);
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.dsbulk.benchmarks.codecs;
+
+import com.datastax.oss.driver.api.core.DefaultProtocolVersion;
+import com.datastax.oss.driver.api.core.ProtocolVersion;
+import com.datastax.oss.driver.api.core.type.reflect.GenericType;
+import com.datastax.oss.dsbulk.benchmarks.data.BenchmarkSchema;
+import com.datastax.oss.dsbulk.benchmarks.data.SyntheticDataGenerator;
+import com.datastax.oss.dsbulk.codecs.api.ConvertingCodec;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the throughput, in values per second, of the string converting codecs returned by the
+ * {@code StringConvertingCodecProvider} for each column of the benchmark table, in both directions:
+ * parsing and serializing (LOAD), and deserializing and formatting (UNLOAD).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StringCodecsBenchmark {
+
+  private static final int VALUES = 1024;
+
+  private static final ProtocolVersion V4 = DefaultProtocolVersion.V4;
+
+  @Param({"pk", "cc", "c_text", "c_double", "c_timestamp", "c_uuid", "c_boolean"})
+  public String column;
+
+  private final String[] strings = new String[VALUES];
+  private final ByteBuffer[] bytes = new ByteBuffer[VALUES];
+
+  private ConvertingCodec<String, Object> codec;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    int index = Arrays.asList(BenchmarkSchema.COLUMN_NAMES).indexOf(column);
+    codec =
+        BenchmarkSchema.codecFactory()
+            .createConvertingCodec(BenchmarkSchema.COLUMN_TYPES[index], GenericType.STRING, true);
+    SyntheticDataGenerator generator = new SyntheticDataGenerator(42, 10_000, 64);
+    for (int i = 0; i < VALUES; i++) {
+      strings[i] = generator.nextRow()[index];
+      bytes[i] = codec.encode(strings[i], V4);
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(VALUES)
+  public void encode(Blackhole bh) {
+    for (String s : strings) {
+      bh.consume(codec.encode(s, V4));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(VALUES)
+  public void decode(Blackhole bh) {
+    for (ByteBuffer bb : bytes) {
+      bh.consume(codec.decode(bb.duplicate(), V4));
+    }
+  }
+}
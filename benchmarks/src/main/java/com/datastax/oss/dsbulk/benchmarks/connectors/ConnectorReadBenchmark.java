@@ -0,0 +1,106 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.dsbulk.benchmarks.connectors;
+
+import com.datastax.oss.dsbulk.benchmarks.data.SyntheticDataGenerator;
+import com.datastax.oss.dsbulk.config.ConfigUtils;
+import com.datastax.oss.dsbulk.connectors.api.Connector;
+import com.datastax.oss.dsbulk.connectors.csv.CSVConnector;
+import com.datastax.oss.dsbulk.connectors.json.JsonConnector;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import reactor.core.publisher.Flux;
+
+/**
+ * Measures the raw parsing throughput of the CSV and JSON connectors, in records per second, when
+ * reading a single local file.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConnectorReadBenchmark {
+
+  private static final int ROWS = 100_000;
+
+  @Param({"csv", "json"})
+  public String format;
+
+  @Param({"64"})
+  public int textLength;
+
+  private Path dir;
+  private Connector connector;
+
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    dir = Files.createTempDirectory("dsbulk-bench");
+    SyntheticDataGenerator generator = new SyntheticDataGenerator(42, 10_000, textLength);
+    Path file;
+    if (format.equals("csv")) {
+      file = generator.writeCsv(dir, ROWS);
+      connector = new CSVConnector();
+    } else {
+      file = generator.writeJson(dir, ROWS);
+      connector = new JsonConnector();
+    }
+    Config settings =
+        ConfigFactory.parseString("url = \"" + file.toUri() + "\"")
+            .withFallback(
+                ConfigUtils.createReferenceConfig()
+                    .resolve()
+                    .getConfig("dsbulk.connector." + format));
+    connector.configure(settings, true, false);
+    connector.init();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    connector.close();
+    try (Stream<Path> files = Files.walk(dir)) {
+      files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(ROWS)
+  public void read(Blackhole bh) {
+    Flux.concat(connector.read()).doOnNext(bh::consume).blockLast();
+  }
+}
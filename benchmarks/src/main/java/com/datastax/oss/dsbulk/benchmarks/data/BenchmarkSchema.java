@@ -0,0 +1,196 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.dsbulk.benchmarks.data;
+
+import com.datastax.oss.driver.api.core.CqlIdentifier;
+import com.datastax.oss.driver.api.core.DefaultConsistencyLevel;
+import com.datastax.oss.driver.api.core.DefaultProtocolVersion;
+import com.datastax.oss.driver.api.core.cql.ColumnDefinition;
+import com.datastax.oss.driver.api.core.cql.ColumnDefinitions;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import com.datastax.oss.driver.api.core.detach.AttachmentPoint;
+import com.datastax.oss.driver.api.core.type.DataType;
+import com.datastax.oss.driver.api.core.type.DataTypes;
+import com.datastax.oss.driver.api.core.type.codec.registry.CodecRegistry;
+import com.datastax.oss.driver.api.core.type.reflect.GenericType;
+import com.datastax.oss.driver.internal.core.cql.DefaultColumnDefinition;
+import com.datastax.oss.driver.internal.core.cql.DefaultColumnDefinitions;
+import com.datastax.oss.driver.internal.core.cql.DefaultPreparedStatement;
+import com.datastax.oss.driver.shaded.guava.common.collect.ImmutableSet;
+import com.datastax.oss.driver.shaded.guava.common.collect.ImmutableSetMultimap;
+import com.datastax.oss.dsbulk.codecs.api.ConvertingCodecFactory;
+import com.datastax.oss.dsbulk.codecs.text.TextConversionContext;
+import com.datastax.oss.dsbulk.connectors.api.DefaultMappedField;
+import com.datastax.oss.dsbulk.connectors.api.Field;
+import com.datastax.oss.dsbulk.connectors.api.MappedField;
+import com.datastax.oss.dsbulk.connectors.api.RecordMetadata;
+import com.datastax.oss.dsbulk.mapping.CQLWord;
+import com.datastax.oss.dsbulk.mapping.DefaultMapping;
+import com.datastax.oss.dsbulk.mapping.Mapping;
+import com.datastax.oss.protocol.internal.ProtocolConstants;
+import com.datastax.oss.protocol.internal.response.result.ColumnSpec;
+import com.datastax.oss.protocol.internal.response.result.RawType;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The table used by all benchmarks:
+ *
+ * <pre>{@code
+ * CREATE TABLE ks.t1 (
+ *   pk bigint, cc int, c_text text, c_double double, c_timestamp timestamp, c_uuid uuid, c_boolean boolean,
+ *   PRIMARY KEY (pk, cc))
+ * }</pre>
+ *
+ * <p>This class builds driver objects (prepared statements, column definitions) without a live
+ * cluster, so that the mapping and batching stages can be exercised in isolation.
+ */
+public class BenchmarkSchema {
+
+  public static final String KEYSPACE = "ks";
+  public static final String TABLE = "t1";
+
+  public static final String[] COLUMN_NAMES = {
+    "pk", "cc", "c_text", "c_double", "c_timestamp", "c_uuid", "c_boolean"
+  };
+
+  public static final DataType[] COLUMN_TYPES = {
+    DataTypes.BIGINT,
+    DataTypes.INT,
+    DataTypes.TEXT,
+    DataTypes.DOUBLE,
+    DataTypes.TIMESTAMP,
+    DataTypes.UUID,
+    DataTypes.BOOLEAN
+  };
+
+  private static final int[] PROTOCOL_CODES = {
+    ProtocolConstants.DataType.BIGINT,
+    ProtocolConstants.DataType.INT,
+    ProtocolConstants.DataType.VARCHAR,
+    ProtocolConstants.DataType.DOUBLE,
+    ProtocolConstants.DataType.TIMESTAMP,
+    ProtocolConstants.DataType.UUID,
+    ProtocolConstants.DataType.BOOLEAN
+  };
+
+  public static final String INSERT_QUERY =
+      String.format(
+          "INSERT INTO %s.%s (%s) VALUES (:%s)",
+          KEYSPACE, TABLE, String.join(",", COLUMN_NAMES), String.join(",:", COLUMN_NAMES));
+
+  /** Whether the value at the given column index must be quoted in JSON documents. */
+  public static boolean isQuotedInJson(int index) {
+    DataType type = COLUMN_TYPES[index];
+    return type != DataTypes.BIGINT
+        && type != DataTypes.INT
+        && type != DataTypes.DOUBLE
+        && type != DataTypes.BOOLEAN;
+  }
+
+  /** @return the column definitions for the insert statement bound variables. */
+  @NonNull
+  public static ColumnDefinitions variableDefinitions() {
+    List<ColumnDefinition> definitions = new ArrayList<>(COLUMN_NAMES.length);
+    for (int i = 0; i < COLUMN_NAMES.length; i++) {
+      ColumnSpec spec =
+          new ColumnSpec(
+              KEYSPACE, TABLE, COLUMN_NAMES[i], i, RawType.PRIMITIVES.get(PROTOCOL_CODES[i]));
+      definitions.add(new DefaultColumnDefinition(spec, AttachmentPoint.NONE));
+    }
+    return DefaultColumnDefinitions.valueOf(definitions);
+  }
+
+  /**
+   * Creates a detached prepared statement for {@link #INSERT_QUERY}, with {@code pk} as its single
+   * partition key column; bound statements created from it are fully routable.
+   */
+  @NonNull
+  public static PreparedStatement insertStatement() {
+    return new DefaultPreparedStatement(
+        ByteBuffer.wrap(new byte[] {1, 2, 3, 4}),
+        INSERT_QUERY,
+        variableDefinitions(),
+        Collections.singletonList(0),
+        null,
+        DefaultColumnDefinitions.valueOf(Collections.emptyList()),
+        CqlIdentifier.fromInternal(KEYSPACE),
+        Collections.emptyMap(),
+        null,
+        null,
+        CqlIdentifier.fromInternal(KEYSPACE),
+        null,
+        null,
+        Collections.emptyMap(),
+        null,
+        null,
+        null,
+        5000,
+        DefaultConsistencyLevel.LOCAL_ONE,
+        DefaultConsistencyLevel.LOCAL_SERIAL,
+        false,
+        CodecRegistry.DEFAULT,
+        DefaultProtocolVersion.V4);
+  }
+
+  /** @return the fields of a mapped record read from the generated CSV or JSON files. */
+  @NonNull
+  public static MappedField[] fields() {
+    MappedField[] fields = new MappedField[COLUMN_NAMES.length];
+    for (int i = 0; i < COLUMN_NAMES.length; i++) {
+      fields[i] = new DefaultMappedField(COLUMN_NAMES[i]);
+    }
+    return fields;
+  }
+
+  /** @return the identity mapping between generated fields and table columns. */
+  @NonNull
+  public static Mapping mapping(@NonNull ConvertingCodecFactory codecFactory) {
+    ImmutableSetMultimap.Builder<Field, CQLWord> fieldsToVariables = ImmutableSetMultimap.builder();
+    Field[] fields = fields();
+    for (int i = 0; i < COLUMN_NAMES.length; i++) {
+      fieldsToVariables.put(fields[i], CQLWord.fromInternal(COLUMN_NAMES[i]));
+    }
+    return new DefaultMapping(fieldsToVariables.build(), codecFactory, ImmutableSet.of());
+  }
+
+  /** @return a codec factory configured with the default text conversion settings. */
+  @NonNull
+  public static ConvertingCodecFactory codecFactory() {
+    return new ConvertingCodecFactory(new TextConversionContext());
+  }
+
+  /** @return record metadata declaring all fields as strings, as the CSV connector does. */
+  @NonNull
+  public static RecordMetadata stringMetadata() {
+    return (field, cqlType) -> GenericType.STRING;
+  }
+
+  /** @return the set of partition key variables. */
+  @NonNull
+  public static ImmutableSet<CQLWord> partitionKeyVariables() {
+    return ImmutableSet.of(CQLWord.fromInternal("pk"));
+  }
+
+  /** @return the set of clustering column variables. */
+  @NonNull
+  public static ImmutableSet<CQLWord> clusteringColumnVariables() {
+    return ImmutableSet.of(CQLWord.fromInternal("cc"));
+  }
+}
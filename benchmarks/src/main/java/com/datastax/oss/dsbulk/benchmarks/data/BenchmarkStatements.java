@@ -0,0 +1,66 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.dsbulk.benchmarks.data;
+
+import com.datastax.oss.driver.api.core.DefaultProtocolVersion;
+import com.datastax.oss.driver.api.core.cql.BatchableStatement;
+import com.datastax.oss.dsbulk.connectors.api.DefaultRecord;
+import com.datastax.oss.dsbulk.connectors.api.Field;
+import com.datastax.oss.dsbulk.workflow.commons.schema.DefaultRecordMapper;
+import com.datastax.oss.dsbulk.workflow.commons.schema.RecordMapper;
+import com.datastax.oss.dsbulk.workflow.commons.statement.MappedBoundStatement;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+/** Creates bound statements for the benchmark table, as the LOAD workflow would. */
+public class BenchmarkStatements {
+
+  private static final URI RESOURCE = URI.create("file://bench.csv");
+
+  /**
+   * Generates {@code count} routable statements spread over {@code partitions} distinct partition
+   * keys.
+   */
+  @NonNull
+  public static List<BatchableStatement<?>> generate(int count, int partitions, long seed) {
+    SyntheticDataGenerator generator = new SyntheticDataGenerator(seed, partitions, 64);
+    RecordMapper mapper =
+        new DefaultRecordMapper(
+            BenchmarkSchema.insertStatement(),
+            BenchmarkSchema.partitionKeyVariables(),
+            BenchmarkSchema.clusteringColumnVariables(),
+            DefaultProtocolVersion.V4,
+            BenchmarkSchema.mapping(BenchmarkSchema.codecFactory()),
+            BenchmarkSchema.stringMetadata(),
+            false,
+            false,
+            false);
+    Field[] fields = BenchmarkSchema.fields();
+    List<BatchableStatement<?>> statements = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      BatchableStatement<?> statement =
+          mapper.map(
+              DefaultRecord.mapped(null, RESOURCE, i + 1, fields, (Object[]) generator.nextRow()));
+      if (!(statement instanceof MappedBoundStatement)) {
+        throw new IllegalStateException("Benchmark record cannot be mapped: " + statement);
+      }
+      statements.add(statement);
+    }
+    return statements;
+  }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.dsbulk.benchmarks.data;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+/**
+ * Generates reproducible synthetic rows matching the {@link BenchmarkSchema benchmark table}, and
+ * writes them to CSV or JSON files.
+ *
+ * <p>Generated rows are deterministic for a given seed, so that two benchmark runs always operate
+ * on the exact same data set. Rows are spread over a configurable number of distinct partitions, in
+ * random order, to emulate realistic (unsorted) inputs.
+ */
+public class SyntheticDataGenerator {
+
+  private static final long BASE_INSTANT = Instant.parse("2020-01-01T00:00:00Z").toEpochMilli();
+
+  private static final String ALPHABET =
+      "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789 ";
+
+  private final SplittableRandom random;
+  private final int partitions;
+  private final int textLength;
+
+  /**
+   * Creates a new generator.
+   *
+   * @param seed the random seed.
+   * @param partitions the number of distinct partition keys to generate.
+   * @param textLength the length of generated text values.
+   */
+  public SyntheticDataGenerator(long seed, int partitions, int textLength) {
+    this.random = new SplittableRandom(seed);
+    this.partitions = partitions;
+    this.textLength = textLength;
+  }
+
+  /**
+   * Generates the next row, in textual form; values are in the same order as {@link
+   * BenchmarkSchema#COLUMN_NAMES}.
+   */
+  @NonNull
+  public String[] nextRow() {
+    String[] row = new String[BenchmarkSchema.COLUMN_NAMES.length];
+    row[0] = Long.toString(random.nextInt(partitions));
+    row[1] = Integer.toString(random.nextInt(Integer.MAX_VALUE));
+    row[2] = nextText();
+    row[3] = Double.toString(random.nextDouble() * 1_000_000d);
+    row[4] = Instant.ofEpochMilli(BASE_INSTANT + random.nextLong(1_000_000_000_000L)).toString();
+    row[5] = new UUID(random.nextLong(), random.nextLong()).toString();
+    row[6] = Boolean.toString(random.nextBoolean());
+    return row;
+  }
+
+  /**
+   * Writes {@code rows} rows to a new CSV file inside the given directory, with a header line.
+   *
+   * @return the created file.
+   */
+  @NonNull
+  public Path writeCsv(@NonNull Path dir, int rows) throws IOException {
+    Path file = dir.resolve("data.csv");
+    try (BufferedWriter writer = Files.newBufferedWriter(file, UTF_8)) {
+      writer.write(String.join(",", BenchmarkSchema.COLUMN_NAMES));
+      writer.newLine();
+      for (int i = 0; i < rows; i++) {
+        writer.write(String.join(",", nextRow()));
+        writer.newLine();
+      }
+    }
+    return file;
+  }
+
+  /**
+   * Writes {@code rows} rows to a new JSON file inside the given directory; the file contains one
+   * JSON document per line.
+   *
+   * @return the created file.
+   */
+  @NonNull
+  public Path writeJson(@NonNull Path dir, int rows) throws IOException {
+    Path file = dir.resolve("data.json");
+    try (BufferedWriter writer = Files.newBufferedWriter(file, UTF_8)) {
+      for (int i = 0; i < rows; i++) {
+        String[] row = nextRow();
+        writer.write('{');
+        for (int j = 0; j < row.length; j++) {
+          if (j > 0) {
+            writer.write(',');
+          }
+          writer.write('"');
+          writer.write(BenchmarkSchema.COLUMN_NAMES[j]);
+          writer.write("\":");
+          if (BenchmarkSchema.isQuotedInJson(j)) {
+            writer.write('"');
+            writer.write(row[j]);
+            writer.write('"');
+          } else {
+            writer.write(row[j]);
+          }
+        }
+        writer.write('}');
+        writer.newLine();
+      }
+    }
+    return file;
+  }
+
+  private String nextText() {
+    char[] chars = new char[textLength];
+    for (int i = 0; i < textLength; i++) {
+      chars[i] = ALPHABET.charAt(random.nextInt(ALPHABET.length()));
+    }
+    return new String(chars);
+  }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.dsbulk.benchmarks.mapping;
+
+import com.datastax.oss.driver.api.core.DefaultProtocolVersion;
+import com.datastax.oss.dsbulk.benchmarks.data.BenchmarkSchema;
+import com.datastax.oss.dsbulk.benchmarks.data.SyntheticDataGenerator;
+import com.datastax.oss.dsbulk.connectors.api.ArrayBackedRecord;
+import com.datastax.oss.dsbulk.connectors.api.DefaultIndexedField;
+import com.datastax.oss.dsbulk.connectors.api.DefaultRecord;
+import com.datastax.oss.dsbulk.connectors.api.MappedField;
+import com.datastax.oss.dsbulk.connectors.api.Record;
+import com.datastax.oss.dsbulk.connectors.api.RecordShape;
+import com.datastax.oss.dsbulk.workflow.commons.schema.DefaultRecordMapper;
+import com.datastax.oss.dsbulk.workflow.commons.schema.RecordMapper;
+import com.datastax.oss.dsbulk.workflow.commons.statement.UnmappableStatement;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the throughput of {@link DefaultRecordMapper#map(Record)}, in records per second, for
+ * records shaped like those emitted by the CSV connector when the file has a header: each value is
+ * available both as a mapped field and as an indexed field.
+ *
+ * <p>Records are either map-based {@link DefaultRecord}s, which the mapper binds field by field, or
+ * {@link ArrayBackedRecord}s, which the mapper binds with a plan compiled once per shape.
+ *
+ * <p>The mapper clears each record after mapping it, so a fresh batch of records is created before
+ * each invocation; record creation is therefore not included in the measurements.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RecordMapperBenchmark {
+
+  private static final int RECORDS = 10_000;
+
+  private static final URI RESOURCE = URI.create("file://bench.csv");
+
+  @Param({"map", "array"})
+  public String recordType;
+
+  private final String[][] rows = new String[RECORDS][];
+  private final Record[] records = new Record[RECORDS];
+
+  private MappedField[] fields;
+  private RecordShape shape;
+  private RecordMapper mapper;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    SyntheticDataGenerator generator = new SyntheticDataGenerator(42, 10_000, 64);
+    for (int i = 0; i < RECORDS; i++) {
+      rows[i] = generator.nextRow();
+    }
+    fields = BenchmarkSchema.fields();
+    shape = RecordShape.mappedAndIndexed(fields);
+    mapper =
+        new DefaultRecordMapper(
+            BenchmarkSchema.insertStatement(),
+            BenchmarkSchema.partitionKeyVariables(),
+            BenchmarkSchema.clusteringColumnVariables(),
+            DefaultProtocolVersion.V4,
+            BenchmarkSchema.mapping(BenchmarkSchema.codecFactory()),
+            BenchmarkSchema.stringMetadata(),
+            false,
+            true,
+            false);
+    if (mapper.map(newRecord(0)) instanceof UnmappableStatement) {
+      throw new IllegalStateException("Benchmark records cannot be mapped");
+    }
+  }
+
+  @Setup(Level.Invocation)
+  public void createRecords() {
+    for (int i = 0; i < RECORDS; i++) {
+      records[i] = newRecord(i);
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(RECORDS)
+  public void map(Blackhole bh) {
+    for (Record record : records) {
+      bh.consume(mapper.map(record));
+    }
+  }
+
+  private Record newRecord(int i) {
+    Object[] values = rows[i];
+    if (recordType.equals("array")) {
+      return new ArrayBackedRecord(null, RESOURCE, i + 1, shape, values);
+    }
+    DefaultRecord record = DefaultRecord.mapped(null, RESOURCE, i + 1, fields, values);
+    for (int j = 0; j < values.length; j++) {
+      record.setFieldValue(new DefaultIndexedField(j), values[j]);
+    }
+    return record;
+  }
+}
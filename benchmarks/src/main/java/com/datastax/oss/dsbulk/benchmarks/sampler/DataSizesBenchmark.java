@@ -0,0 +1,98 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.dsbulk.benchmarks.sampler;
+
+import com.datastax.oss.driver.api.core.DefaultProtocolVersion;
+import com.datastax.oss.driver.api.core.ProtocolVersion;
+import com.datastax.oss.driver.api.core.cql.BatchStatement;
+import com.datastax.oss.driver.api.core.cql.BatchableStatement;
+import com.datastax.oss.driver.api.core.cql.BoundStatement;
+import com.datastax.oss.driver.api.core.cql.DefaultBatchType;
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.datastax.oss.driver.api.core.type.codec.registry.CodecRegistry;
+import com.datastax.oss.driver.internal.core.cql.DefaultRow;
+import com.datastax.oss.dsbulk.benchmarks.data.BenchmarkSchema;
+import com.datastax.oss.dsbulk.benchmarks.data.BenchmarkStatements;
+import com.datastax.oss.dsbulk.sampler.DataSizes;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the throughput of the {@link DataSizes} methods, which are invoked for every statement
+ * when batching by size and for every row when sampling data sizes.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DataSizesBenchmark {
+
+  private static final int STATEMENTS = 1024;
+
+  private static final ProtocolVersion V4 = DefaultProtocolVersion.V4;
+
+  private List<BatchableStatement<?>> statements;
+  private BatchStatement batch;
+  private Row[] rows;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    statements = BenchmarkStatements.generate(STATEMENTS, 10_000, 42);
+    batch = BatchStatement.newInstance(DefaultBatchType.UNLOGGED, statements);
+    rows = new Row[STATEMENTS];
+    for (int i = 0; i < STATEMENTS; i++) {
+      BoundStatement bs = (BoundStatement) statements.get(i);
+      rows[i] = new DefaultRow(BenchmarkSchema.variableDefinitions(), bs.getValues());
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(STATEMENTS)
+  public void boundStatement(Blackhole bh) {
+    for (BatchableStatement<?> statement : statements) {
+      bh.consume(DataSizes.getDataSize(statement, V4, CodecRegistry.DEFAULT));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(STATEMENTS)
+  public long batchStatement() {
+    return DataSizes.getDataSize(batch, V4, CodecRegistry.DEFAULT);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(STATEMENTS)
+  public void row(Blackhole bh) {
+    for (Row row : rows) {
+      bh.consume(DataSizes.getDataSize(row));
+    }
+  }
+}
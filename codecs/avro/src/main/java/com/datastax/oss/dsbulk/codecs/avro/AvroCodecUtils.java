@@ -0,0 +1,428 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.dsbulk.codecs.avro;
+
+import com.datastax.oss.driver.api.core.data.GettableByIndex;
+import com.datastax.oss.driver.api.core.data.TupleValue;
+import com.datastax.oss.driver.api.core.data.UdtValue;
+import com.datastax.oss.driver.api.core.type.DataType;
+import com.datastax.oss.driver.api.core.type.DataTypes;
+import com.datastax.oss.driver.api.core.type.ListType;
+import com.datastax.oss.driver.api.core.type.MapType;
+import com.datastax.oss.driver.api.core.type.SetType;
+import com.datastax.oss.driver.api.core.type.TupleType;
+import com.datastax.oss.driver.api.core.type.UserDefinedType;
+import com.datastax.oss.driver.api.core.type.reflect.GenericType;
+import com.datastax.oss.protocol.internal.util.Bytes;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import java.math.BigDecimal;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import org.apache.avro.Conversion;
+import org.apache.avro.Conversions;
+import org.apache.avro.LogicalType;
+import org.apache.avro.LogicalTypes;
+import org.apache.avro.Schema;
+import org.apache.avro.Schema.Type;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.data.TimeConversions;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericData.StringType;
+import org.apache.avro.generic.GenericEnumSymbol;
+import org.apache.avro.generic.GenericFixed;
+import org.apache.avro.generic.GenericRecord;
+
+/**
+ * Utilities to map Avro types to Java and CQL types.
+ *
+ * <p>Avro values are read and written with the {@linkplain #DATA_MODEL data model} declared here:
+ * values of Avro logical types are converted to JDK types, e.g. timestamp-millis values to {@link
+ * Instant}s, and strings are read as {@link String}s when the schema was prepared with {@link
+ * #withJavaStrings(Schema)}.
+ */
+public class AvroCodecUtils {
+
+  private static final GenericType<Object> OBJECT_GENERIC_TYPE = GenericType.of(Object.class);
+
+  /**
+   * The Avro data model to read and write values with. Values of the decimal, uuid, date,
+   * time-millis, time-micros, timestamp-millis, timestamp-micros, local-timestamp-millis and
+   * local-timestamp-micros logical types are converted to and from {@link BigDecimal}, {@link
+   * UUID}, {@link LocalDate}, {@link LocalTime}, {@link Instant} and {@link LocalDateTime}
+   * respectively.
+   */
+  public static final GenericData DATA_MODEL = new GenericData();
+
+  static {
+    DATA_MODEL.addLogicalTypeConversion(new Conversions.DecimalConversion());
+    DATA_MODEL.addLogicalTypeConversion(new Conversions.UUIDConversion());
+    DATA_MODEL.addLogicalTypeConversion(new TimeConversions.DateConversion());
+    DATA_MODEL.addLogicalTypeConversion(new TimeConversions.TimeMillisConversion());
+    DATA_MODEL.addLogicalTypeConversion(new TimeConversions.TimeMicrosConversion());
+    DATA_MODEL.addLogicalTypeConversion(new TimeConversions.TimestampMillisConversion());
+    DATA_MODEL.addLogicalTypeConversion(new TimeConversions.TimestampMicrosConversion());
+    DATA_MODEL.addLogicalTypeConversion(new TimeConversions.LocalTimestampMillisConversion());
+    DATA_MODEL.addLogicalTypeConversion(new TimeConversions.LocalTimestampMicrosConversion());
+  }
+
+  /**
+   * Returns a copy of the given schema, where all strings and map keys are read as {@link String}s
+   * rather than as Avro's {@link org.apache.avro.util.Utf8} instances.
+   */
+  @NonNull
+  public static Schema withJavaStrings(@NonNull Schema schema) {
+    Schema copy = new Schema.Parser().setValidateDefaults(false).parse(schema.toString());
+    setJavaStrings(copy, Collections.newSetFromMap(new IdentityHashMap<>()));
+    return copy;
+  }
+
+  private static void setJavaStrings(@NonNull Schema schema, @NonNull Set<Schema> visited) {
+    if (!visited.add(schema)) {
+      return;
+    }
+    switch (schema.getType()) {
+      case STRING:
+      case MAP:
+        if (schema.getProp(GenericData.STRING_PROP) == null) {
+          GenericData.setStringType(schema, StringType.String);
+        }
+        if (schema.getType() == Type.MAP) {
+          setJavaStrings(schema.getValueType(), visited);
+        }
+        break;
+      case ARRAY:
+        setJavaStrings(schema.getElementType(), visited);
+        break;
+      case UNION:
+        for (Schema branch : schema.getTypes()) {
+          setJavaStrings(branch, visited);
+        }
+        break;
+      case RECORD:
+        for (Schema.Field field : schema.getFields()) {
+          setJavaStrings(field.schema(), visited);
+        }
+        break;
+      default:
+    }
+  }
+
+  /**
+   * Returns the Java type of the values of the given schema, once read with the {@linkplain
+   * #DATA_MODEL data model} and a schema prepared with {@link #withJavaStrings(Schema)}.
+   *
+   * <p>Nullable unions, i.e. unions of null and one other type, have the Java type of their
+   * non-null branch; other unions have the {@link Object} type, and cannot be converted to CQL
+   * types.
+   */
+  @NonNull
+  public static GenericType<?> javaType(@NonNull Schema schema) {
+    LogicalType logicalType = schema.getLogicalType();
+    if (logicalType != null) {
+      Conversion<?> conversion = DATA_MODEL.getConversionFor(logicalType);
+      if (conversion != null) {
+        return GenericType.of(conversion.getConvertedType());
+      }
+    }
+    switch (schema.getType()) {
+      case BOOLEAN:
+        return GenericType.BOOLEAN;
+      case INT:
+        return GenericType.INTEGER;
+      case LONG:
+        return GenericType.LONG;
+      case FLOAT:
+        return GenericType.FLOAT;
+      case DOUBLE:
+        return GenericType.DOUBLE;
+      case STRING:
+        return GenericType.STRING;
+      case BYTES:
+        return GenericType.BYTE_BUFFER;
+      case FIXED:
+        return GenericType.of(GenericFixed.class);
+      case ENUM:
+        return GenericType.of(GenericEnumSymbol.class);
+      case RECORD:
+        return GenericType.of(GenericRecord.class);
+      case ARRAY:
+        return GenericType.listOf(javaType(schema.getElementType()));
+      case MAP:
+        return GenericType.mapOf(GenericType.STRING, javaType(schema.getValueType()));
+      case UNION:
+        Schema nonNull = nonNullBranch(schema);
+        return nonNull == null ? OBJECT_GENERIC_TYPE : javaType(nonNull);
+      default:
+        return OBJECT_GENERIC_TYPE;
+    }
+  }
+
+  /**
+   * Returns the non-null branch of the given union if it is a nullable union, i.e. a union of null
+   * and exactly one other type, or null otherwise.
+   */
+  @Nullable
+  public static Schema nonNullBranch(@NonNull Schema union) {
+    List<Schema> branches = union.getTypes();
+    if (branches.size() == 2) {
+      if (branches.get(0).getType() == Type.NULL) {
+        return branches.get(1);
+      }
+      if (branches.get(1).getType() == Type.NULL) {
+        return branches.get(0);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns the Avro schema of the values of the given CQL type, as written with the {@linkplain
+   * #DATA_MODEL data model} after being converted by {@link #toAvro(Object, DataType, Schema)}.
+   *
+   * <p>CQL types that have no exact Avro equivalent, i.e. decimal, varint, inet and duration, are
+   * mapped to strings that the text codecs can parse back; times are mapped to time-micros values,
+   * and are therefore truncated to the microsecond. User-defined types and tuples are mapped to
+   * records, which fields are nullable; tuple fields are named {@code _1}, {@code _2}, etc. Maps
+   * are mapped to Avro maps, their keys being converted to strings if they are not strings already.
+   * Collection elements and map values are nullable as well.
+   */
+  @NonNull
+  public static Schema schemaOf(@NonNull DataType cqlType) {
+    if (cqlType == DataTypes.BOOLEAN) {
+      return Schema.create(Type.BOOLEAN);
+    }
+    if (cqlType == DataTypes.TINYINT || cqlType == DataTypes.SMALLINT || cqlType == DataTypes.INT) {
+      return Schema.create(Type.INT);
+    }
+    if (cqlType == DataTypes.BIGINT || cqlType == DataTypes.COUNTER) {
+      return Schema.create(Type.LONG);
+    }
+    if (cqlType == DataTypes.FLOAT) {
+      return Schema.create(Type.FLOAT);
+    }
+    if (cqlType == DataTypes.DOUBLE) {
+      return Schema.create(Type.DOUBLE);
+    }
+    if (cqlType == DataTypes.BLOB) {
+      return Schema.create(Type.BYTES);
+    }
+    if (cqlType == DataTypes.UUID || cqlType == DataTypes.TIMEUUID) {
+      return LogicalTypes.uuid().addToSchema(Schema.create(Type.STRING));
+    }
+    if (cqlType == DataTypes.TIMESTAMP) {
+      return LogicalTypes.timestampMillis().addToSchema(Schema.create(Type.LONG));
+    }
+    if (cqlType == DataTypes.DATE) {
+      return LogicalTypes.date().addToSchema(Schema.create(Type.INT));
+    }
+    if (cqlType == DataTypes.TIME) {
+      return LogicalTypes.timeMicros().addToSchema(Schema.create(Type.LONG));
+    }
+    if (cqlType instanceof ListType) {
+      return Schema.createArray(nullable(schemaOf(((ListType) cqlType).getElementType())));
+    }
+    if (cqlType instanceof SetType) {
+      return Schema.createArray(nullable(schemaOf(((SetType) cqlType).getElementType())));
+    }
+    if (cqlType instanceof MapType) {
+      return Schema.createMap(nullable(schemaOf(((MapType) cqlType).getValueType())));
+    }
+    if (cqlType instanceof UserDefinedType) {
+      UserDefinedType udt = (UserDefinedType) cqlType;
+      SchemaBuilder.FieldAssembler<Schema> fields =
+          SchemaBuilder.record(toAvroName(udt.getName().asInternal()))
+              .namespace(toAvroName(udt.getKeyspace().asInternal()))
+              .fields();
+      for (int i = 0; i < udt.getFieldNames().size(); i++) {
+        fields =
+            fields
+                .name(toAvroName(udt.getFieldNames().get(i).asInternal()))
+                .type(nullable(schemaOf(udt.getFieldTypes().get(i))))
+                .withDefault(null);
+      }
+      return fields.endRecord();
+    }
+    if (cqlType instanceof TupleType) {
+      TupleType tupleType = (TupleType) cqlType;
+      // tuples are anonymous, but Avro records are named, and named types must have the same
+      // definition wherever they appear in a schema: derive the name from the tuple definition
+      String name =
+          "tuple_" + Integer.toHexString(tupleType.asCql(false, true).hashCode() & 0x7fffffff);
+      SchemaBuilder.FieldAssembler<Schema> fields = SchemaBuilder.record(name).fields();
+      for (int i = 0; i < tupleType.getComponentTypes().size(); i++) {
+        fields =
+            fields
+                .name("_" + (i + 1))
+                .type(nullable(schemaOf(tupleType.getComponentTypes().get(i))))
+                .withDefault(null);
+      }
+      return fields.endRecord();
+    }
+    // decimal, varint, inet, duration, and custom types
+    return Schema.create(Type.STRING);
+  }
+
+  /** Returns a nullable union of null and the given schema. */
+  @NonNull
+  public static Schema nullable(@NonNull Schema schema) {
+    return Schema.createUnion(Schema.create(Type.NULL), schema);
+  }
+
+  /**
+   * Returns a valid Avro name for the given CQL identifier: characters that are not allowed in Avro
+   * names are replaced with underscores.
+   */
+  @NonNull
+  public static String toAvroName(@NonNull String identifier) {
+    StringBuilder sb = new StringBuilder(identifier.length() + 1);
+    for (int i = 0; i < identifier.length(); i++) {
+      char c = identifier.charAt(i);
+      boolean valid =
+          (c >= 'a' && c <= 'z')
+              || (c >= 'A' && c <= 'Z')
+              || c == '_'
+              || (i > 0 && c >= '0' && c <= '9');
+      if (!valid && i == 0 && c >= '0' && c <= '9') {
+        sb.append('_').append(c);
+      } else {
+        sb.append(valid ? c : '_');
+      }
+    }
+    return sb.length() == 0 ? "_" : sb.toString();
+  }
+
+  /**
+   * Converts a value of the given CQL type, as returned by the driver, to a value of the given
+   * schema, as derived by {@link #schemaOf(DataType)}, that can be written with the {@linkplain
+   * #DATA_MODEL data model}.
+   *
+   * @param value the value to convert; may be null.
+   * @param cqlType the CQL type of the value.
+   * @param schema the schema of the converted value; may be a nullable union.
+   */
+  @Nullable
+  public static Object toAvro(
+      @Nullable Object value, @NonNull DataType cqlType, @NonNull Schema schema) {
+    if (value == null) {
+      return null;
+    }
+    if (schema.getType() == Type.UNION) {
+      Schema nonNull = nonNullBranch(schema);
+      if (nonNull == null) {
+        throw new IllegalArgumentException("Unsupported union: " + schema);
+      }
+      schema = nonNull;
+    }
+    if (value instanceof String
+        || value instanceof Boolean
+        || value instanceof Integer
+        || value instanceof Long
+        || value instanceof Float
+        || value instanceof Double
+        || value instanceof UUID
+        || value instanceof Instant
+        || value instanceof LocalDate
+        || value instanceof LocalTime) {
+      return value;
+    }
+    if (value instanceof Byte || value instanceof Short) {
+      return ((Number) value).intValue();
+    }
+    if (value instanceof ByteBuffer) {
+      // byte buffers are mutable, do not let the writer consume the original one
+      return ((ByteBuffer) value).duplicate();
+    }
+    if (schema.getType() == Type.STRING) {
+      return toAvroString(value);
+    }
+    if (value instanceof Collection) {
+      DataType elementType =
+          cqlType instanceof ListType
+              ? ((ListType) cqlType).getElementType()
+              : ((SetType) cqlType).getElementType();
+      Schema elementSchema = schema.getElementType();
+      Collection<?> elements = (Collection<?>) value;
+      List<Object> converted = new ArrayList<>(elements.size());
+      for (Object element : elements) {
+        converted.add(toAvro(element, elementType, elementSchema));
+      }
+      return converted;
+    }
+    if (value instanceof Map) {
+      MapType mapType = (MapType) cqlType;
+      Schema valueSchema = schema.getValueType();
+      Map<?, ?> entries = (Map<?, ?>) value;
+      Map<String, Object> converted = new LinkedHashMap<>(entries.size() * 4 / 3 + 1);
+      for (Map.Entry<?, ?> entry : entries.entrySet()) {
+        converted.put(
+            toAvroString(entry.getKey()),
+            toAvro(entry.getValue(), mapType.getValueType(), valueSchema));
+      }
+      return converted;
+    }
+    if (value instanceof UdtValue) {
+      return toAvroRecord((UdtValue) value, ((UserDefinedType) cqlType).getFieldTypes(), schema);
+    }
+    if (value instanceof TupleValue) {
+      return toAvroRecord((TupleValue) value, ((TupleType) cqlType).getComponentTypes(), schema);
+    }
+    throw new IllegalArgumentException(
+        String.format("Cannot convert %s of type %s to Avro", value, cqlType.asCql(true, true)));
+  }
+
+  @NonNull
+  private static GenericRecord toAvroRecord(
+      @NonNull GettableByIndex value, @NonNull List<DataType> types, @NonNull Schema schema) {
+    GenericData.Record record = new GenericData.Record(schema);
+    for (int i = 0; i < types.size(); i++) {
+      DataType type = types.get(i);
+      record.put(i, toAvro(value.getObject(i), type, schema.getFields().get(i).schema()));
+    }
+    return record;
+  }
+
+  /**
+   * Returns the string representation of a value that has no exact Avro equivalent; these
+   * representations can be parsed back by the text codecs.
+   */
+  @NonNull
+  private static String toAvroString(@NonNull Object value) {
+    if (value instanceof BigDecimal) {
+      return ((BigDecimal) value).toPlainString();
+    }
+    if (value instanceof InetAddress) {
+      return ((InetAddress) value).getHostAddress();
+    }
+    if (value instanceof ByteBuffer) {
+      return Bytes.toHexString((ByteBuffer) value);
+    }
+    return value.toString();
+  }
+}
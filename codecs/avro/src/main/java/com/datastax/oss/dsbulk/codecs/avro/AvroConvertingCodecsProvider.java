@@ -0,0 +1,87 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.dsbulk.codecs.avro;
+
+import com.datastax.oss.driver.api.core.data.TupleValue;
+import com.datastax.oss.driver.api.core.data.UdtValue;
+import com.datastax.oss.driver.api.core.type.DataType;
+import com.datastax.oss.driver.api.core.type.DataTypes;
+import com.datastax.oss.driver.api.core.type.TupleType;
+import com.datastax.oss.driver.api.core.type.UserDefinedType;
+import com.datastax.oss.driver.api.core.type.codec.TypeCodec;
+import com.datastax.oss.driver.api.core.type.reflect.GenericType;
+import com.datastax.oss.dsbulk.codecs.api.ConvertingCodec;
+import com.datastax.oss.dsbulk.codecs.api.ConvertingCodecFactory;
+import com.datastax.oss.dsbulk.codecs.api.ConvertingCodecProvider;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.util.Optional;
+import org.apache.avro.generic.GenericEnumSymbol;
+import org.apache.avro.generic.GenericFixed;
+import org.apache.avro.generic.GenericRecord;
+
+/**
+ * Provides codecs for the Avro types that have no JDK equivalent: records, fixed values and enum
+ * symbols. Values of Avro logical types are expected to be converted to JDK types beforehand, see
+ * {@link AvroCodecUtils#DATA_MODEL}.
+ */
+public class AvroConvertingCodecsProvider implements ConvertingCodecProvider {
+
+  private static final GenericType<GenericRecord> RECORD_GENERIC_TYPE =
+      GenericType.of(GenericRecord.class);
+  private static final GenericType<GenericFixed> FIXED_GENERIC_TYPE =
+      GenericType.of(GenericFixed.class);
+
+  @SuppressWarnings("rawtypes")
+  private static final GenericType<GenericEnumSymbol> ENUM_GENERIC_TYPE =
+      GenericType.of(GenericEnumSymbol.class);
+
+  @NonNull
+  @Override
+  public Optional<ConvertingCodec<?, ?>> maybeProvide(
+      @NonNull DataType cqlType,
+      @NonNull GenericType<?> externalJavaType,
+      @NonNull ConvertingCodecFactory codecFactory,
+      boolean rootCodec) {
+
+    if (externalJavaType.isSubtypeOf(RECORD_GENERIC_TYPE)) {
+      if (cqlType instanceof UserDefinedType) {
+        TypeCodec<UdtValue> udtCodec = codecFactory.getCodecRegistry().codecFor(cqlType);
+        return Optional.of(new GenericRecordToUDTCodec(udtCodec, codecFactory));
+      }
+      if (cqlType instanceof TupleType) {
+        TypeCodec<TupleValue> tupleCodec = codecFactory.getCodecRegistry().codecFor(cqlType);
+        return Optional.of(new GenericRecordToTupleCodec(tupleCodec, codecFactory));
+      }
+    }
+
+    if (externalJavaType.isSubtypeOf(FIXED_GENERIC_TYPE)) {
+      if (cqlType == DataTypes.BLOB) {
+        return Optional.of(new GenericFixedToBlobCodec());
+      }
+      if (cqlType == DataTypes.DURATION) {
+        return Optional.of(new GenericFixedToDurationCodec());
+      }
+    }
+
+    if (externalJavaType.isSubtypeOf(ENUM_GENERIC_TYPE)) {
+      ConvertingCodec<String, Object> stringCodec =
+          codecFactory.createConvertingCodec(cqlType, GenericType.STRING, rootCodec);
+      return Optional.of(new GenericEnumSymbolCodec<>(stringCodec));
+    }
+
+    return Optional.empty();
+  }
+}
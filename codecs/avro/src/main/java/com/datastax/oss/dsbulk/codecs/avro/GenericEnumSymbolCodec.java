@@ -0,0 +1,51 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.dsbulk.codecs.avro;
+
+import com.datastax.oss.dsbulk.codecs.api.ConvertingCodec;
+import org.apache.avro.generic.GenericEnumSymbol;
+
+/**
+ * Converts Avro enum symbols to any CQL type that their names can be converted to, using a codec
+ * for strings.
+ */
+@SuppressWarnings("rawtypes")
+public class GenericEnumSymbolCodec<INTERNAL> extends ConvertingCodec<GenericEnumSymbol, INTERNAL> {
+
+  private final ConvertingCodec<String, INTERNAL> stringCodec;
+
+  public GenericEnumSymbolCodec(ConvertingCodec<String, INTERNAL> stringCodec) {
+    super(stringCodec.getInternalCodec(), GenericEnumSymbol.class);
+    this.stringCodec = stringCodec;
+  }
+
+  @Override
+  public INTERNAL externalToInternal(GenericEnumSymbol external) {
+    if (external == null) {
+      return null;
+    }
+    return stringCodec.externalToInternal(external.toString());
+  }
+
+  @Override
+  public GenericEnumSymbol internalToExternal(INTERNAL internal) {
+    if (internal == null) {
+      return null;
+    }
+    throw new UnsupportedOperationException(
+        "This codec does not support converting to Avro enum symbols");
+  }
+}
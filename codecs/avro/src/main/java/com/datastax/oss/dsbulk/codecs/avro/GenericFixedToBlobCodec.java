@@ -0,0 +1,45 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.dsbulk.codecs.avro;
+
+import com.datastax.oss.driver.api.core.type.codec.TypeCodecs;
+import com.datastax.oss.dsbulk.codecs.api.ConvertingCodec;
+import java.nio.ByteBuffer;
+import org.apache.avro.generic.GenericFixed;
+
+public class GenericFixedToBlobCodec extends ConvertingCodec<GenericFixed, ByteBuffer> {
+
+  public GenericFixedToBlobCodec() {
+    super(TypeCodecs.BLOB, GenericFixed.class);
+  }
+
+  @Override
+  public ByteBuffer externalToInternal(GenericFixed external) {
+    if (external == null) {
+      return null;
+    }
+    return ByteBuffer.wrap(external.bytes());
+  }
+
+  @Override
+  public GenericFixed internalToExternal(ByteBuffer internal) {
+    if (internal == null) {
+      return null;
+    }
+    throw new UnsupportedOperationException(
+        "This codec does not support converting from blob to Avro fixed");
+  }
+}
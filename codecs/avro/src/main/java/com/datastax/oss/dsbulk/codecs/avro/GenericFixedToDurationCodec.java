@@ -0,0 +1,68 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.dsbulk.codecs.avro;
+
+import com.datastax.oss.driver.api.core.data.CqlDuration;
+import com.datastax.oss.driver.api.core.type.codec.TypeCodecs;
+import com.datastax.oss.dsbulk.codecs.api.ConvertingCodec;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import org.apache.avro.generic.GenericFixed;
+
+/**
+ * Converts values of the Avro duration logical type to CQL durations.
+ *
+ * <p>Avro durations are fixed values of 12 bytes, holding three little-endian unsigned integers: a
+ * number of months, a number of days, and a number of milliseconds.
+ */
+public class GenericFixedToDurationCodec extends ConvertingCodec<GenericFixed, CqlDuration> {
+
+  private static final int DURATION_SIZE = 12;
+
+  public GenericFixedToDurationCodec() {
+    super(TypeCodecs.DURATION, GenericFixed.class);
+  }
+
+  @Override
+  public CqlDuration externalToInternal(GenericFixed external) {
+    if (external == null) {
+      return null;
+    }
+    byte[] bytes = external.bytes();
+    if (bytes.length != DURATION_SIZE) {
+      throw new IllegalArgumentException(
+          String.format("Expecting %d bytes for a duration, got %d", DURATION_SIZE, bytes.length));
+    }
+    ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+    long months = Integer.toUnsignedLong(buffer.getInt());
+    long days = Integer.toUnsignedLong(buffer.getInt());
+    long millis = Integer.toUnsignedLong(buffer.getInt());
+    if (months > Integer.MAX_VALUE || days > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException(
+          String.format("Duration out of range: %d months, %d days", months, days));
+    }
+    return CqlDuration.newInstance((int) months, (int) days, millis * 1_000_000L);
+  }
+
+  @Override
+  public GenericFixed internalToExternal(CqlDuration internal) {
+    if (internal == null) {
+      return null;
+    }
+    throw new UnsupportedOperationException(
+        "This codec does not support converting from duration to Avro fixed");
+  }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.dsbulk.codecs.avro;
+
+import com.datastax.oss.driver.api.core.data.TupleValue;
+import com.datastax.oss.driver.api.core.type.DataType;
+import com.datastax.oss.driver.api.core.type.TupleType;
+import com.datastax.oss.driver.api.core.type.codec.TypeCodec;
+import com.datastax.oss.dsbulk.codecs.api.ConvertingCodec;
+import com.datastax.oss.dsbulk.codecs.api.ConvertingCodecFactory;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericRecord;
+
+/**
+ * Converts Avro records to tuple values, matching record fields and tuple components by position;
+ * tuple values are converted to records of the schema derived by {@link AvroCodecUtils#schemaOf}.
+ *
+ * <p>The codecs of the components are created the first time a record schema is encountered, since
+ * the Java types of the field values depend on the schema of each record.
+ */
+public class GenericRecordToTupleCodec extends ConvertingCodec<GenericRecord, TupleValue> {
+
+  private final ConvertingCodecFactory codecFactory;
+  private final TupleType definition;
+  private final ConcurrentMap<Schema, ConvertingCodec<Object, Object>[]> componentCodecs =
+      new ConcurrentHashMap<>();
+
+  private volatile Schema schema;
+
+  public GenericRecordToTupleCodec(
+      TypeCodec<TupleValue> targetCodec, ConvertingCodecFactory codecFactory) {
+    super(targetCodec, GenericRecord.class);
+    this.codecFactory = codecFactory;
+    definition = (TupleType) targetCodec.getCqlType();
+  }
+
+  @Override
+  public TupleValue externalToInternal(GenericRecord external) {
+    if (external == null) {
+      return null;
+    }
+    ConvertingCodec<Object, Object>[] codecs =
+        componentCodecs.computeIfAbsent(external.getSchema(), this::createCodecs);
+    TupleValue value = definition.newValue();
+    for (int i = 0; i < codecs.length; i++) {
+      ConvertingCodec<Object, Object> componentCodec = codecs[i];
+      Object o = componentCodec.externalToInternal(external.get(i));
+      value = value.set(i, o, componentCodec.getInternalJavaType());
+    }
+    return value;
+  }
+
+  @Override
+  public GenericRecord internalToExternal(TupleValue internal) {
+    if (internal == null) {
+      return null;
+    }
+    if (schema == null) {
+      schema = AvroCodecUtils.schemaOf(definition);
+    }
+    return (GenericRecord) AvroCodecUtils.toAvro(internal, definition, schema);
+  }
+
+  @SuppressWarnings("unchecked")
+  private ConvertingCodec<Object, Object>[] createCodecs(Schema schema) {
+    List<DataType> componentTypes = definition.getComponentTypes();
+    int size = componentTypes.size();
+    List<Schema.Field> fields = schema.getFields();
+    if (fields.size() != size) {
+      throw new IllegalArgumentException(
+          String.format("Expecting %d fields, got %d", size, fields.size()));
+    }
+    ConvertingCodec<Object, Object>[] codecs = new ConvertingCodec[size];
+    for (int i = 0; i < size; i++) {
+      codecs[i] =
+          (ConvertingCodec<Object, Object>)
+              codecFactory.createConvertingCodec(
+                  componentTypes.get(i), AvroCodecUtils.javaType(fields.get(i).schema()), false);
+    }
+    return codecs;
+  }
+}
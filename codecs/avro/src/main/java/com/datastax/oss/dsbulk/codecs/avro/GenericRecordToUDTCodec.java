@@ -0,0 +1,122 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.dsbulk.codecs.avro;
+
+import com.datastax.oss.driver.api.core.CqlIdentifier;
+import com.datastax.oss.driver.api.core.data.UdtValue;
+import com.datastax.oss.driver.api.core.type.DataType;
+import com.datastax.oss.driver.api.core.type.UserDefinedType;
+import com.datastax.oss.driver.api.core.type.codec.TypeCodec;
+import com.datastax.oss.dsbulk.codecs.api.ConvertingCodec;
+import com.datastax.oss.dsbulk.codecs.api.ConvertingCodecFactory;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericRecord;
+
+/**
+ * Converts Avro records to UDT values, matching record fields and UDT fields by name; UDT values
+ * are converted to records of the schema derived by {@link AvroCodecUtils#schemaOf}.
+ *
+ * <p>The codecs of the fields are created the first time a record schema is encountered, since the
+ * Java types of the field values depend on the schema of each record.
+ */
+public class GenericRecordToUDTCodec extends ConvertingCodec<GenericRecord, UdtValue> {
+
+  private final ConvertingCodecFactory codecFactory;
+  private final UserDefinedType definition;
+  private final ConcurrentMap<Schema, FieldCodecs> fieldCodecs = new ConcurrentHashMap<>();
+
+  private volatile Schema schema;
+
+  public GenericRecordToUDTCodec(
+      TypeCodec<UdtValue> targetCodec, ConvertingCodecFactory codecFactory) {
+    super(targetCodec, GenericRecord.class);
+    this.codecFactory = codecFactory;
+    definition = (UserDefinedType) targetCodec.getCqlType();
+  }
+
+  @Override
+  public UdtValue externalToInternal(GenericRecord external) {
+    if (external == null) {
+      return null;
+    }
+    FieldCodecs codecs = fieldCodecs.computeIfAbsent(external.getSchema(), this::createCodecs);
+    UdtValue value = definition.newValue();
+    for (int i = 0; i < codecs.codecs.length; i++) {
+      ConvertingCodec<Object, Object> fieldCodec = codecs.codecs[i];
+      Object o = fieldCodec.externalToInternal(external.get(codecs.positions[i]));
+      value = value.set(i, o, fieldCodec.getInternalJavaType());
+    }
+    return value;
+  }
+
+  @Override
+  public GenericRecord internalToExternal(UdtValue internal) {
+    if (internal == null) {
+      return null;
+    }
+    if (schema == null) {
+      schema = AvroCodecUtils.schemaOf(definition);
+    }
+    return (GenericRecord) AvroCodecUtils.toAvro(internal, definition, schema);
+  }
+
+  @SuppressWarnings("unchecked")
+  private FieldCodecs createCodecs(Schema schema) {
+    List<CqlIdentifier> fieldNames = definition.getFieldNames();
+    int size = fieldNames.size();
+    if (schema.getFields().size() != size) {
+      throw new IllegalArgumentException(
+          String.format("Expecting %d fields, got %d", size, schema.getFields().size()));
+    }
+    FieldCodecs codecs = new FieldCodecs(size);
+    for (int i = 0; i < size; i++) {
+      CqlIdentifier udtFieldName = fieldNames.get(i);
+      Schema.Field field = schema.getField(udtFieldName.asInternal());
+      if (field == null) {
+        // the field name may have been altered to comply with Avro naming rules when unloading
+        field = schema.getField(AvroCodecUtils.toAvroName(udtFieldName.asInternal()));
+      }
+      if (field == null) {
+        throw new IllegalArgumentException(
+            String.format(
+                "Field %s in UDT %s not found in input record",
+                udtFieldName, definition.getName()));
+      }
+      DataType fieldType = definition.getFieldTypes().get(i);
+      codecs.positions[i] = field.pos();
+      codecs.codecs[i] =
+          (ConvertingCodec<Object, Object>)
+              codecFactory.createConvertingCodec(
+                  fieldType, AvroCodecUtils.javaType(field.schema()), false);
+    }
+    return codecs;
+  }
+
+  private static class FieldCodecs {
+
+    private final int[] positions;
+    private final ConvertingCodec<Object, Object>[] codecs;
+
+    @SuppressWarnings("unchecked")
+    private FieldCodecs(int size) {
+      positions = new int[size];
+      codecs = new ConvertingCodec[size];
+    }
+  }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.dsbulk.codecs.avro;
+
+import static com.datastax.oss.dsbulk.tests.assertions.TestAssertions.assertThat;
+
+import com.datastax.oss.driver.api.core.type.DataTypes;
+import com.datastax.oss.driver.api.core.type.reflect.GenericType;
+import com.datastax.oss.dsbulk.codecs.api.CommonConversionContext;
+import com.datastax.oss.dsbulk.codecs.api.ConvertingCodecFactory;
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericEnumSymbol;
+import org.junit.jupiter.api.Test;
+
+@SuppressWarnings("rawtypes")
+class GenericEnumSymbolCodecTest {
+
+  private final ConvertingCodecFactory codecFactory =
+      new ConvertingCodecFactory(new CommonConversionContext());
+
+  private final Schema schema = SchemaBuilder.enumeration("answer").symbols("YES", "NO", "MAYBE");
+
+  @Test
+  void should_convert_to_text() {
+    GenericEnumSymbolCodec<String> codec =
+        (GenericEnumSymbolCodec<String>)
+            codecFactory.<GenericEnumSymbol, String>createConvertingCodec(
+                DataTypes.TEXT, GenericType.of(GenericEnumSymbol.class), true);
+    assertThat(codec)
+        .convertsFromExternal(new GenericData.EnumSymbol(schema, "MAYBE"))
+        .toInternal("MAYBE")
+        .convertsFromExternal(null)
+        .toInternal(null)
+        .cannotConvertFromInternal("NO");
+  }
+
+  @Test
+  void should_convert_to_other_types() {
+    GenericEnumSymbolCodec<Boolean> codec =
+        (GenericEnumSymbolCodec<Boolean>)
+            codecFactory.<GenericEnumSymbol, Boolean>createConvertingCodec(
+                DataTypes.BOOLEAN, GenericType.of(GenericEnumSymbol.class), true);
+    assertThat(codec)
+        .convertsFromExternal(new GenericData.EnumSymbol(schema, "YES"))
+        .toInternal(true)
+        .convertsFromExternal(new GenericData.EnumSymbol(schema, "NO"))
+        .toInternal(false)
+        .cannotConvertFromExternal(new GenericData.EnumSymbol(schema, "MAYBE"));
+  }
+}
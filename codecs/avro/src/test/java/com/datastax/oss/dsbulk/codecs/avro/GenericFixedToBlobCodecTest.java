@@ -0,0 +1,56 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.dsbulk.codecs.avro;
+
+import static com.datastax.oss.dsbulk.tests.assertions.TestAssertions.assertThat;
+
+import com.datastax.oss.driver.api.core.type.DataTypes;
+import com.datastax.oss.driver.api.core.type.reflect.GenericType;
+import com.datastax.oss.dsbulk.codecs.api.CommonConversionContext;
+import com.datastax.oss.dsbulk.codecs.api.ConvertingCodecFactory;
+import java.nio.ByteBuffer;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericFixed;
+import org.junit.jupiter.api.Test;
+
+class GenericFixedToBlobCodecTest {
+
+  private final GenericFixedToBlobCodec codec =
+      (GenericFixedToBlobCodec)
+          new ConvertingCodecFactory(new CommonConversionContext())
+              .<GenericFixed, ByteBuffer>createConvertingCodec(
+                  DataTypes.BLOB, GenericType.of(GenericFixed.class), true);
+
+  @Test
+  void should_convert_from_valid_external() {
+    byte[] bytes = {1, 2, 3, 4};
+    assertThat(codec)
+        .convertsFromExternal(
+            new GenericData.Fixed(Schema.createFixed("md5", null, null, 4), bytes))
+        .toInternal(ByteBuffer.wrap(bytes))
+        .convertsFromExternal(null)
+        .toInternal(null);
+  }
+
+  @Test
+  void should_not_convert_from_valid_internal() {
+    assertThat(codec)
+        .cannotConvertFromInternal(ByteBuffer.wrap(new byte[] {1}))
+        .convertsFromInternal(null)
+        .toExternal(null);
+  }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.dsbulk.codecs.avro;
+
+import static com.datastax.oss.dsbulk.tests.assertions.TestAssertions.assertThat;
+
+import com.datastax.oss.driver.api.core.data.CqlDuration;
+import com.datastax.oss.driver.api.core.type.DataTypes;
+import com.datastax.oss.driver.api.core.type.reflect.GenericType;
+import com.datastax.oss.dsbulk.codecs.api.CommonConversionContext;
+import com.datastax.oss.dsbulk.codecs.api.ConvertingCodecFactory;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericFixed;
+import org.junit.jupiter.api.Test;
+
+class GenericFixedToDurationCodecTest {
+
+  private final GenericFixedToDurationCodec codec =
+      (GenericFixedToDurationCodec)
+          new ConvertingCodecFactory(new CommonConversionContext())
+              .<GenericFixed, CqlDuration>createConvertingCodec(
+                  DataTypes.DURATION, GenericType.of(GenericFixed.class), true);
+
+  private final Schema durationSchema = Schema.createFixed("duration", null, null, 12);
+
+  @Test
+  void should_convert_from_valid_external() {
+    assertThat(codec)
+        .convertsFromExternal(duration(14, 3, 3_600_001))
+        .toInternal(CqlDuration.newInstance(14, 3, 3_600_001_000_000L))
+        .convertsFromExternal(duration(0, 0, 0))
+        .toInternal(CqlDuration.newInstance(0, 0, 0))
+        // unsigned milliseconds
+        .convertsFromExternal(duration(0, 0, -1))
+        .toInternal(CqlDuration.newInstance(0, 0, 0xffffffffL * 1_000_000L))
+        .convertsFromExternal(null)
+        .toInternal(null);
+  }
+
+  @Test
+  void should_not_convert_from_invalid_external() {
+    assertThat(codec)
+        .cannotConvertFromExternal(
+            new GenericData.Fixed(Schema.createFixed("short", null, null, 8), new byte[8]))
+        .cannotConvertFromExternal(duration(-1, 0, 0));
+  }
+
+  private GenericFixed duration(int months, int days, int millis) {
+    ByteBuffer bytes = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+    bytes.putInt(months).putInt(days).putInt(millis);
+    return new GenericData.Fixed(durationSchema, bytes.array());
+  }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.dsbulk.codecs.avro;
+
+import static com.datastax.oss.dsbulk.tests.assertions.TestAssertions.assertThat;
+
+import com.datastax.oss.driver.api.core.data.TupleValue;
+import com.datastax.oss.driver.api.core.type.DataTypes;
+import com.datastax.oss.driver.api.core.type.TupleType;
+import com.datastax.oss.driver.api.core.type.reflect.GenericType;
+import com.datastax.oss.dsbulk.codecs.api.CommonConversionContext;
+import com.datastax.oss.dsbulk.codecs.api.ConvertingCodecFactory;
+import java.util.Arrays;
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.junit.jupiter.api.Test;
+
+class GenericRecordToTupleCodecTest {
+
+  private final TupleType tupleType =
+      DataTypes.tupleOf(DataTypes.INT, DataTypes.listOf(DataTypes.TEXT));
+
+  private final TupleValue tuple = tupleType.newValue(42, Arrays.asList("a", "b"));
+
+  private final GenericRecordToTupleCodec codec =
+      (GenericRecordToTupleCodec)
+          new ConvertingCodecFactory(new CommonConversionContext())
+              .<GenericRecord, TupleValue>createConvertingCodec(
+                  tupleType, GenericType.of(GenericRecord.class), true);
+
+  private final Schema schema =
+      SchemaBuilder.record("pair")
+          .fields()
+          .optionalString("left")
+          .name("right")
+          .type()
+          .array()
+          .items()
+          .stringType()
+          .noDefault()
+          .endRecord();
+
+  @Test
+  void should_convert_from_valid_external() {
+    GenericRecord record = new GenericData.Record(schema);
+    record.put("left", "42");
+    record.put("right", Arrays.asList("a", "b"));
+    assertThat(codec)
+        .convertsFromExternal(record)
+        .toInternal(tuple)
+        .convertsFromExternal(null)
+        .toInternal(null);
+  }
+
+  @Test
+  void should_convert_from_valid_internal() {
+    GenericRecord record = new GenericData.Record(AvroCodecUtils.schemaOf(tupleType));
+    record.put("_1", 42);
+    record.put("_2", Arrays.asList("a", "b"));
+    assertThat(codec)
+        .convertsFromInternal(tuple)
+        .toExternal(record)
+        .convertsFromInternal(null)
+        .toExternal(null);
+  }
+
+  @Test
+  void should_not_convert_from_invalid_external() {
+    Schema tooShort = SchemaBuilder.record("single").fields().optionalInt("left").endRecord();
+    assertThat(codec).cannotConvertFromExternal(new GenericData.Record(tooShort));
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.dsbulk.codecs.avro;
+
+import static com.datastax.oss.dsbulk.tests.assertions.TestAssertions.assertThat;
+
+import com.datastax.oss.driver.api.core.data.UdtValue;
+import com.datastax.oss.driver.api.core.type.DataTypes;
+import com.datastax.oss.driver.api.core.type.UserDefinedType;
+import com.datastax.oss.driver.api.core.type.reflect.GenericType;
+import com.datastax.oss.driver.internal.core.type.UserDefinedTypeBuilder;
+import com.datastax.oss.dsbulk.codecs.api.CommonConversionContext;
+import com.datastax.oss.dsbulk.codecs.api.ConvertingCodecFactory;
+import java.time.Instant;
+import org.apache.avro.LogicalTypes;
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.junit.jupiter.api.Test;
+
+class GenericRecordToUDTCodecTest {
+
+  private final UserDefinedType udt1 =
+      new UserDefinedTypeBuilder("ks", "udt")
+          .withField("f1a", DataTypes.INT)
+          .withField("f1b", DataTypes.DOUBLE)
+          .withField("f1c", DataTypes.TIMESTAMP)
+          .build();
+
+  private final Instant instant = Instant.parse("2020-01-02T03:04:05.006Z");
+
+  private final UdtValue udt1Value =
+      udt1.newValue().setInt("f1a", 42).setDouble("f1b", 0.12d).setInstant("f1c", instant);
+
+  private final UdtValue udt1Empty = udt1.newValue();
+
+  private final GenericRecordToUDTCodec udtCodec1 =
+      (GenericRecordToUDTCodec)
+          new ConvertingCodecFactory(new CommonConversionContext())
+              .<GenericRecord, UdtValue>createConvertingCodec(
+                  udt1, GenericType.of(GenericRecord.class), true);
+
+  // fields in a different order, with types that need conversion
+  private final Schema schema1 =
+      SchemaBuilder.record("udt")
+          .fields()
+          .optionalString("f1b")
+          .optionalLong("f1a")
+          .name("f1c")
+          .type(
+              AvroCodecUtils.nullable(
+                  LogicalTypes.timestampMillis().addToSchema(Schema.create(Schema.Type.LONG))))
+          .withDefault(null)
+          .endRecord();
+
+  @Test
+  void should_convert_from_valid_external() {
+    GenericRecord record = new GenericData.Record(schema1);
+    record.put("f1a", 42L);
+    record.put("f1b", "0.12");
+    record.put("f1c", instant);
+    assertThat(udtCodec1)
+        .convertsFromExternal(record)
+        .toInternal(udt1Value)
+        .convertsFromExternal(new GenericData.Record(schema1))
+        .toInternal(udt1Empty)
+        .convertsFromExternal(null)
+        .toInternal(null);
+  }
+
+  @Test
+  void should_convert_from_valid_internal() {
+    GenericRecord record = udtCodec1.internalToExternal(udt1Value);
+    assertThat(record.getSchema()).isEqualTo(AvroCodecUtils.schemaOf(udt1));
+    assertThat(record.get("f1a")).isEqualTo(42);
+    assertThat(record.get("f1b")).isEqualTo(0.12d);
+    assertThat(record.get("f1c")).isEqualTo(instant);
+    assertThat(udtCodec1).convertsFromInternal(null).toExternal(null);
+  }
+
+  @Test
+  void should_not_convert_from_invalid_external() {
+    Schema missingField = SchemaBuilder.record("udt").fields().optionalInt("f1a").endRecord();
+    Schema unknownField =
+        SchemaBuilder.record("udt")
+            .fields()
+            .optionalInt("f1a")
+            .optionalDouble("f1b")
+            .optionalLong("f1d")
+            .endRecord();
+    GenericRecord invalidValue = new GenericData.Record(schema1);
+    invalidValue.put("f1b", "not a double");
+    assertThat(udtCodec1)
+        .cannotConvertFromExternal(new GenericData.Record(missingField))
+        .cannotConvertFromExternal(new GenericData.Record(unknownField))
+        .cannotConvertFromExternal(invalidValue);
+  }
+}
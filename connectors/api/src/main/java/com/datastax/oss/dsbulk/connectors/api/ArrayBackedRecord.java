@@ -0,0 +1,186 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.dsbulk.connectors.api;
+
+import com.datastax.oss.driver.shaded.guava.common.base.MoreObjects;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import java.net.URI;
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A compact {@link Record} implementation that stores its values in an array, and delegates the
+ * description of its fields to a shared {@link RecordShape}.
+ *
+ * <p>Unlike {@link DefaultRecord}, creating an instance of this class does not allocate any field
+ * nor any map entry: the only per-record allocations are the record itself and its values array.
+ * Values can be accessed by position with {@link #getFieldValue(int)}.
+ */
+public final class ArrayBackedRecord implements Record {
+
+  private static final Object[] EMPTY_VALUES = new Object[0];
+
+  private final Object source;
+  private final URI resource;
+  private final long position;
+
+  private RecordShape shape;
+  private Object[] values;
+
+  /**
+   * Creates a new record.
+   *
+   * @param source the record source (its original form); may be null if the source cannot be
+   *     determined or should not be retained.
+   * @param resource the record resource (where it comes from: file, database, etc).
+   * @param position the record position inside the resource (line number, etc.).
+   * @param shape the record shape.
+   * @param values the record values; this array is not copied, and its length must be equal to the
+   *     shape's {@linkplain RecordShape#size() size}.
+   */
+  public ArrayBackedRecord(
+      @Nullable Object source,
+      @NonNull URI resource,
+      long position,
+      @NonNull RecordShape shape,
+      @NonNull Object[] values) {
+    if (shape.size() != values.length) {
+      throw new IllegalArgumentException(
+          String.format(
+              "Expecting record to contain %d fields but found %d.", shape.size(), values.length));
+    }
+    this.source = source;
+    this.resource = resource;
+    this.position = position;
+    this.shape = shape;
+    this.values = values;
+  }
+
+  @Nullable
+  @Override
+  public Object getSource() {
+    return source;
+  }
+
+  @NonNull
+  @Override
+  public URI getResource() {
+    return resource;
+  }
+
+  @Override
+  public long getPosition() {
+    return position;
+  }
+
+  /** @return the record shape. */
+  @NonNull
+  public RecordShape getShape() {
+    return shape;
+  }
+
+  @NonNull
+  @Override
+  public Set<Field> fields() {
+    return shape.fields();
+  }
+
+  @NonNull
+  @Override
+  public Collection<Object> values() {
+    RecordShape shape = this.shape;
+    Object[] values = this.values;
+    return new AbstractList<Object>() {
+      @Override
+      public Object get(int index) {
+        return values[shape.getValueIndex(index)];
+      }
+
+      @Override
+      public int size() {
+        return shape.getFieldCount();
+      }
+    };
+  }
+
+  @Override
+  public Object getFieldValue(@NonNull Field field) {
+    int index = shape.getValueIndex(field);
+    return index == -1 ? null : values[index];
+  }
+
+  /**
+   * Returns the value stored at the given position.
+   *
+   * @param index the value position, between 0 and the shape's {@linkplain RecordShape#size() size}
+   *     (exclusive); see {@link RecordShape#getValueIndex(int)}.
+   * @return the value stored at the given position.
+   */
+  @Nullable
+  public Object getFieldValue(int index) {
+    return values[index];
+  }
+
+  @Override
+  public void clear() {
+    shape = RecordShape.EMPTY;
+    values = EMPTY_VALUES;
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("source", source)
+        .add("resource", resource)
+        .add("position", position)
+        .add("entries", entries().entrySet())
+        .toString();
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    ArrayBackedRecord that = (ArrayBackedRecord) o;
+    return position == that.position
+        && Objects.equals(source, that.source)
+        && resource.equals(that.resource)
+        && entries().equals(that.entries());
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(entries(), source, resource, position);
+  }
+
+  @NonNull
+  private Map<Field, Object> entries() {
+    Map<Field, Object> entries = new LinkedHashMap<>();
+    for (int i = 0; i < shape.getFieldCount(); i++) {
+      entries.put(shape.getField(i), values[shape.getValueIndex(i)]);
+    }
+    return entries;
+  }
+}
@@ -36,5 +36,18 @@ public enum CommonConnectorFeature implements ConnectorFeature {
    * more than once, then data size sampling should be disallowed. This is notably the case when
    * reading live data streams such as {@linkplain System#in standard input}.
    */
-  DATA_SIZE_SAMPLING
+  DATA_SIZE_SAMPLING,
+
+  /**
+   * Indicates that the connector can {@linkplain Connector#resume(java.util.Map) resume} a previous
+   * read operation, skipping the records that were already processed.
+   */
+  RESUMABLE_READS,
+
+  /**
+   * Indicates that the connector can {@linkplain Connector#write(String) write} records to
+   * destinations dedicated to a given partition of the data, and {@linkplain
+   * Connector#resume(java.util.Map) resume} a previous write operation.
+   */
+  PARTITIONED_WRITES
 }
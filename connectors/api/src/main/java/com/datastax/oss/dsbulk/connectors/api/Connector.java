@@ -17,6 +17,8 @@ package com.datastax.oss.dsbulk.connectors.api;
 
 import com.typesafe.config.Config;
 import edu.umd.cs.findbugs.annotations.NonNull;
+import java.net.URI;
+import java.util.Map;
 import java.util.function.Function;
 import org.reactivestreams.Publisher;
 
@@ -138,6 +140,32 @@ public interface Connector extends AutoCloseable {
   @NonNull
   Function<Publisher<Record>, Publisher<Record>> write();
 
+  /**
+   * Returns a function that handles writing records of the given partition to the datasource.
+   *
+   * <p>Records written by the returned function are written to destinations dedicated to the given
+   * partition, e.g. to files named after it; any contents previously written for the same partition
+   * are replaced. The destinations are complete when the transformed publisher completes. The
+   * returned function is expected to be invoked once per partition, each invocation being possibly
+   * concurrent with others.
+   *
+   * <p>This method should only be called on connectors that {@linkplain #supports(ConnectorFeature)
+   * support} {@link CommonConnectorFeature#PARTITIONED_WRITES partitioned writes}, after the
+   * connector is properly {@link #configure(Config, boolean, boolean) configured} and {@link
+   * #init() initialized}.
+   *
+   * @param partition the partition name; it should only contain characters that are valid in file
+   *     names.
+   * @return A transforming {@link Function} that writes records from the upstream flow to the
+   *     partition's destinations, then emits the records written to downstream subscribers.
+   * @throws UnsupportedOperationException if the connector does not support partitioned writes.
+   */
+  @NonNull
+  default Function<Publisher<Record>, Publisher<Record>> write(@NonNull String partition) {
+    throw new UnsupportedOperationException(
+        getClass().getSimpleName() + " does not support partitioned writes");
+  }
+
   /**
    * Configures the connector.
    *
@@ -179,6 +207,31 @@ public interface Connector extends AutoCloseable {
     return false;
   }
 
+  /**
+   * Instructs the connector to resume a previous operation.
+   *
+   * <p>When reading, for each resource in the given map, the connector must not emit records whose
+   * {@linkplain Record#getPosition() position} is lesser than or equal to the mapped position;
+   * resources that are not in the map are read entirely.
+   *
+   * <p>When writing, the map is empty, and the connector must accept destinations that already
+   * contain the data written by the resumed operation; resumed writes are {@linkplain
+   * #write(String) partitioned}.
+   *
+   * <p>This method should only be called on connectors that {@linkplain #supports(ConnectorFeature)
+   * support} {@link CommonConnectorFeature#RESUMABLE_READS resumable reads} or {@link
+   * CommonConnectorFeature#PARTITIONED_WRITES partitioned writes}, after the connector is properly
+   * {@link #configure(Config, boolean, boolean) configured}, and before it is {@link #init()
+   * initialized}.
+   *
+   * @param positions the last processed position of each resource.
+   * @throws UnsupportedOperationException if the connector does not support resuming operations.
+   */
+  default void resume(@NonNull Map<URI, Long> positions) {
+    throw new UnsupportedOperationException(
+        getClass().getSimpleName() + " cannot resume operations");
+  }
+
   /**
    * Returns metadata about the records that this connector can read or write.
    *
@@ -18,6 +18,8 @@ package com.datastax.oss.dsbulk.connectors.api;
 import com.datastax.oss.driver.api.core.type.DataType;
 import com.datastax.oss.driver.api.core.type.reflect.GenericType;
 import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import java.nio.ByteBuffer;
 
 /**
  * Defines metadata applicable to a {@link Record record}, in particular which field types it
@@ -25,6 +27,58 @@ import edu.umd.cs.findbugs.annotations.NonNull;
  */
 public interface RecordMetadata {
 
+  /**
+   * A field type indicating that field values are the raw serialized form of CQL values, as found
+   * in native protocol frames.
+   *
+   * <p>Values of fields of this type are {@link ByteBuffer}s that are read and bound as is, without
+   * any codec: when loading, they must be serialized according to the type of the column they are
+   * bound to; when unloading, they contain the bytes sent by the server. A null buffer denotes a
+   * null value.
+   *
+   * <p>This instance must be compared by reference, see {@link #isRawBytes(GenericType)}: it is
+   * equal to {@link GenericType#BYTE_BUFFER}, which is the type of fields containing blobs or any
+   * other binary contents that are converted with codecs as usual.
+   */
+  GenericType<ByteBuffer> RAW_BYTES = GenericType.of(ByteBuffer.class);
+
+  /**
+   * Returns whether the given field type is {@link #RAW_BYTES}, i.e. whether field values are raw
+   * serialized CQL values.
+   *
+   * @param fieldType the field type to check.
+   * @return {@code true} if the field type is {@link #RAW_BYTES}, {@code false} otherwise.
+   */
+  @SuppressWarnings("ReferenceEquality")
+  static boolean isRawBytes(@Nullable GenericType<?> fieldType) {
+    return fieldType == RAW_BYTES;
+  }
+
+  /**
+   * A field type indicating that field values are CQL values as decoded by the driver's default
+   * codecs, e.g. {@link Integer} for {@code int} columns, and that the connector converts them
+   * itself.
+   *
+   * <p>Values of fields of this type are read without any codec; a null value denotes a null CQL
+   * value. This type only applies when unloading: connectors declare it for the CQL types they
+   * write directly, so that no intermediary value is created for them.
+   *
+   * <p>This instance must be compared by reference, see {@link #isPlainValues(GenericType)}.
+   */
+  GenericType<Object> PLAIN_VALUES = GenericType.of(Object.class);
+
+  /**
+   * Returns whether the given field type is {@link #PLAIN_VALUES}, i.e. whether field values are
+   * CQL values as decoded by the driver.
+   *
+   * @param fieldType the field type to check.
+   * @return {@code true} if the field type is {@link #PLAIN_VALUES}, {@code false} otherwise.
+   */
+  @SuppressWarnings("ReferenceEquality")
+  static boolean isPlainValues(@Nullable GenericType<?> fieldType) {
+    return fieldType == PLAIN_VALUES;
+  }
+
   /**
    * Returns the type of the given field.
    *
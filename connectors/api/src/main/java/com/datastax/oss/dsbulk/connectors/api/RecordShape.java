@@ -0,0 +1,179 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.dsbulk.connectors.api;
+
+import com.datastax.oss.driver.shaded.guava.common.base.MoreObjects;
+import com.datastax.oss.driver.shaded.guava.common.base.Preconditions;
+import com.datastax.oss.driver.shaded.guava.common.collect.ImmutableMap;
+import com.datastax.oss.driver.shaded.guava.common.collect.ImmutableSet;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * The shape of an {@link ArrayBackedRecord}: its fields, in iteration order, and the position of
+ * each field's value in the record's values array.
+ *
+ * <p>Shapes are immutable. They are meant to be created once per resource, typically from a file
+ * header, and then shared by all the records read from that resource, so that field descriptors are
+ * not re-created for every record.
+ *
+ * <p>Shapes use identity semantics: two shapes are equal only if they are the same instance. This
+ * allows consumers to cache per-shape information cheaply.
+ */
+public class RecordShape {
+
+  /**
+   * The number of fields below which {@linkplain #indexed(int) indexed shapes} are cached; callers
+   * that create wider indexed shapes should cache them themselves.
+   */
+  public static final int CACHED_INDEXED_SHAPES = 256;
+
+  private static final RecordShape[] INDEXED_SHAPES = new RecordShape[CACHED_INDEXED_SHAPES];
+
+  /** A shape with no fields. */
+  public static final RecordShape EMPTY = indexed(0);
+
+  /**
+   * Returns a shape containing {@code size} {@linkplain IndexedField indexed fields}, the value of
+   * field {@code i} being stored at position {@code i}.
+   *
+   * <p>Shapes with fewer than {@value #CACHED_INDEXED_SHAPES} fields are cached, and the same
+   * instance is returned for a given size; wider shapes are created anew on each invocation.
+   *
+   * @param size the number of values in records of this shape.
+   * @return a shape containing only indexed fields.
+   */
+  @NonNull
+  public static RecordShape indexed(int size) {
+    Preconditions.checkArgument(size >= 0);
+    if (size < CACHED_INDEXED_SHAPES) {
+      RecordShape shape = INDEXED_SHAPES[size];
+      if (shape == null) {
+        // benign race: shapes are immutable and safely published through their final fields
+        shape = INDEXED_SHAPES[size] = new RecordShape(indexedFields(size), size);
+      }
+      return shape;
+    }
+    return new RecordShape(indexedFields(size), size);
+  }
+
+  /**
+   * Returns a shape containing the given {@linkplain MappedField mapped fields}, followed by one
+   * {@linkplain IndexedField indexed field} per mapped field. The value of the mapped field at
+   * position {@code i} and the value of the indexed field {@code i} are both stored at position
+   * {@code i}, which allows records to be accessed by name and by index at the same time without
+   * duplicating their values.
+   *
+   * @param names the mapped fields, typically obtained from a file header.
+   * @return a shape containing mapped and indexed fields.
+   */
+  @NonNull
+  public static RecordShape mappedAndIndexed(@NonNull MappedField... names) {
+    int size = names.length;
+    Field[] fields = new Field[size * 2];
+    System.arraycopy(names, 0, fields, 0, size);
+    System.arraycopy(indexedFields(size), 0, fields, size, size);
+    return new RecordShape(fields, size);
+  }
+
+  @NonNull
+  private static Field[] indexedFields(int size) {
+    Field[] fields = new Field[size];
+    for (int i = 0; i < size; i++) {
+      fields[i] = new DefaultIndexedField(i);
+    }
+    return fields;
+  }
+
+  private final Field[] fields;
+  private final int size;
+  private final ImmutableSet<Field> fieldSet;
+  private final ImmutableMap<Field, Integer> valueIndices;
+
+  private RecordShape(Field[] fields, int size) {
+    this.fields = fields;
+    this.size = size;
+    this.fieldSet = ImmutableSet.copyOf(fields);
+    if (fieldSet.size() != fields.length) {
+      throw new IllegalArgumentException("Duplicate fields in " + Arrays.toString(fields));
+    }
+    ImmutableMap.Builder<Field, Integer> builder = ImmutableMap.builder();
+    for (int i = 0; i < fields.length; i++) {
+      builder.put(fields[i], getValueIndex(i));
+    }
+    this.valueIndices = builder.build();
+  }
+
+  /** @return the number of values in records of this shape. */
+  public int size() {
+    return size;
+  }
+
+  /** @return the number of fields in records of this shape; can be greater than {@link #size()}. */
+  public int getFieldCount() {
+    return fields.length;
+  }
+
+  /**
+   * Returns the field at the given position, in iteration order.
+   *
+   * @param fieldIndex the field position, between 0 and {@link #getFieldCount()} (exclusive).
+   * @return the field at the given position.
+   */
+  @NonNull
+  public Field getField(int fieldIndex) {
+    return fields[fieldIndex];
+  }
+
+  /**
+   * Returns the position, in the values array, of the value of the field at the given position.
+   *
+   * @param fieldIndex the field position, between 0 and {@link #getFieldCount()} (exclusive).
+   * @return the position of the field value, between 0 and {@link #size()} (exclusive).
+   */
+  public int getValueIndex(int fieldIndex) {
+    return fieldIndex % size;
+  }
+
+  /**
+   * Returns the position, in the values array, of the value of the given field, or -1 if this shape
+   * does not contain such a field.
+   *
+   * @param field the field to look for.
+   * @return the position of the field value, or -1 if the field does not belong to this shape.
+   */
+  public int getValueIndex(@NonNull Field field) {
+    if (field instanceof IndexedField) {
+      // fast path: indexed fields are always stored at their own index
+      int index = ((IndexedField) field).getFieldIndex();
+      return index < size ? index : -1;
+    }
+    Integer index = valueIndices.get(field);
+    return index == null ? -1 : index;
+  }
+
+  /** @return the fields in this shape, in iteration order. */
+  @NonNull
+  public Set<Field> fields() {
+    return fieldSet;
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this).add("fields", fieldSet).toString();
+  }
+}
@@ -0,0 +1,581 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.dsbulk.connectors.avro;
+
+import com.datastax.oss.driver.api.core.type.DataType;
+import com.datastax.oss.driver.api.core.type.codec.registry.CodecRegistry;
+import com.datastax.oss.driver.api.core.type.reflect.GenericType;
+import com.datastax.oss.dsbulk.codecs.avro.AvroCodecUtils;
+import com.datastax.oss.dsbulk.config.ConfigUtils;
+import com.datastax.oss.dsbulk.connectors.api.ArrayBackedRecord;
+import com.datastax.oss.dsbulk.connectors.api.CommonConnectorFeature;
+import com.datastax.oss.dsbulk.connectors.api.ConnectorFeature;
+import com.datastax.oss.dsbulk.connectors.api.Field;
+import com.datastax.oss.dsbulk.connectors.api.MappedField;
+import com.datastax.oss.dsbulk.connectors.api.Record;
+import com.datastax.oss.dsbulk.connectors.api.RecordMetadata;
+import com.datastax.oss.dsbulk.connectors.api.RecordShape;
+import com.datastax.oss.dsbulk.connectors.commons.AbstractFileBasedConnector;
+import com.datastax.oss.dsbulk.connectors.commons.FieldTypeRegistry;
+import com.datastax.oss.dsbulk.io.IOUtils;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigException;
+import com.typesafe.config.ConfigFactory;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.channels.ClosedChannelException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.file.CodecFactory;
+import org.apache.avro.file.DataFileReader;
+import org.apache.avro.file.DataFileStream;
+import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.file.SeekableFileInput;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.reactivestreams.Publisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.SynchronousSink;
+
+/**
+ * A connector for Avro object container files.
+ *
+ * <p>When reading, Avro values are decoded to typed Java values: values of Avro logical types are
+ * converted to JDK types, e.g. {@link java.time.Instant}s or {@link java.math.BigDecimal}s, and
+ * records, enums and fixed values are converted by the Avro codecs, without going through text
+ * codecs. Local files can be split at block boundaries, and their chunks read in parallel. When
+ * writing, records are written with a schema derived from the CQL types of the unloaded columns.
+ *
+ * <p>This connector is highly configurable; see its {@code dsbulk-reference.conf} file, bundled
+ * within its jar archive, for detailed information.
+ */
+public class AvroConnector extends AbstractFileBasedConnector {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(AvroConnector.class);
+
+  private static final String COMPRESSION_CODEC = "compressionCodec";
+  private static final String SYNC_INTERVAL = "syncInterval";
+
+  /**
+   * Settings of file-based connectors that do not apply to Avro files: Avro files are binary, and
+   * compressed internally.
+   */
+  private static final Config FIXED_SETTINGS =
+      ConfigFactory.parseString(
+          "compression = none, encoding = UTF-8, readMode = BUFFERED, "
+              + "compressionThreads = 1, compressionBlockSize = 1MB");
+
+  private static final List<String> SUPPORTED_CODECS =
+      Arrays.asList("null", "deflate", "snappy", "bzip2", "xz");
+
+  private CodecFactory compressionCodec;
+  private int syncInterval;
+
+  /** Reader schemas, by file schema; records read with the same reader schema share codecs. */
+  private final ConcurrentMap<Schema, Schema> readerSchemas = new ConcurrentHashMap<>();
+
+  /** The Java types of the fields read, and the CQL types of the fields written. */
+  private final FieldTypeRegistry<GenericType<?>> types = new FieldTypeRegistry<>();
+
+  @Override
+  @NonNull
+  public String getConnectorName() {
+    return "avro";
+  }
+
+  @Override
+  public void configure(@NonNull Config settings, boolean read, boolean retainRecordSources) {
+    try {
+      super.configure(FIXED_SETTINGS.withFallback(settings), read, retainRecordSources);
+      String codec = settings.getString(COMPRESSION_CODEC);
+      compressionCodec =
+          SUPPORTED_CODECS.stream()
+              .filter(c -> c.equalsIgnoreCase(codec))
+              .findFirst()
+              .map(CodecFactory::fromString)
+              .orElseThrow(
+                  () ->
+                      new IllegalArgumentException(
+                          String.format(
+                              "Invalid value for connector.avro.%s, valid values: %s, got: '%s'",
+                              COMPRESSION_CODEC, String.join(",", SUPPORTED_CODECS), codec)));
+      long syncInterval = settings.getBytes(SYNC_INTERVAL);
+      if (syncInterval < 32 || syncInterval > 1 << 30) {
+        throw new IllegalArgumentException(
+            String.format(
+                "Invalid value for connector.avro.%s: Expecting a size between 32B and 1GB, got: %s",
+                SYNC_INTERVAL, syncInterval));
+      }
+      this.syncInterval = (int) syncInterval;
+    } catch (ConfigException e) {
+      throw ConfigUtils.convertConfigException(e, "dsbulk.connector.avro");
+    }
+  }
+
+  @Override
+  public void init() throws URISyntaxException, IOException {
+    super.init();
+    if (read && skipRecords == 0 && maxRecords == -1 && splitSize > 0) {
+      additionalChunkCount = estimateAdditionalChunks();
+    }
+  }
+
+  @NonNull
+  @Override
+  public RecordMetadata getRecordMetadata() {
+    if (read) {
+      return (field, cqlType) -> types.getReadType(field);
+    }
+    return (field, cqlType) -> {
+      types.registerWriteType(field, cqlType);
+      return CodecRegistry.DEFAULT.codecFor(cqlType).getJavaType();
+    };
+  }
+
+  @Override
+  public boolean supports(@NonNull ConnectorFeature feature) {
+    if (feature instanceof CommonConnectorFeature) {
+      CommonConnectorFeature commonFeature = (CommonConnectorFeature) feature;
+      switch (commonFeature) {
+        case MAPPED_RECORDS:
+          return true;
+        case INDEXED_RECORDS:
+          return read;
+        case DATA_SIZE_SAMPLING:
+          return isDataSizeSamplingAvailable();
+        case RESUMABLE_READS:
+          return read;
+        case PARTITIONED_WRITES:
+          return !read && !roots.isEmpty();
+      }
+    }
+    return false;
+  }
+
+  @NonNull
+  @Override
+  public Publisher<Publisher<Record>> read() {
+    assert read;
+    return Flux.concat(
+            Flux.fromIterable(roots).flatMap(this::scanRootDirectory), Flux.fromIterable(files))
+        .concatMap(
+            url -> {
+              long lastPosition =
+                  resumePositions.getOrDefault(URI.create(url.toExternalForm()), 0L);
+              Path file = getLocalFile(url);
+              if (file == null || skipRecords > 0 || maxRecords != -1 || splitSize <= 0) {
+                Flux<Record> records = readSingleFile(url).transform(this::applyPerFileLimits);
+                if (lastPosition > 0) {
+                  records = records.filter(record -> record.getPosition() > lastPosition);
+                }
+                return Flux.just(records);
+              }
+              return splitBlocks(url, file, lastPosition);
+            });
+  }
+
+  /**
+   * Returns one stream of records per chunk of the given local file, so that chunks can be read in
+   * parallel. Chunks are made of consecutive blocks, and are approximately {@link #splitSize} bytes
+   * long. Chunks that were entirely processed by a previous operation are skipped without being
+   * read.
+   */
+  @NonNull
+  private Flux<Flux<Record>> splitBlocks(@NonNull URL url, @NonNull Path file, long lastPosition) {
+    return Flux.defer(
+        () -> {
+          List<Flux<Record>> chunks = new ArrayList<>();
+          try {
+            long firstPosition = 1;
+            for (BlockRange chunk : scanBlocks(file, splitSize)) {
+              if (firstPosition + chunk.recordCount - 1 > lastPosition) {
+                Flux<Record> records = readChunk(url, file, chunk, firstPosition);
+                if (firstPosition <= lastPosition) {
+                  records = records.filter(record -> record.getPosition() > lastPosition);
+                }
+                chunks.add(records);
+              }
+              firstPosition += chunk.recordCount;
+            }
+          } catch (IOException | RuntimeException e) {
+            return Flux.error(new IOException(String.format("Error reading from %s", url), e));
+          }
+          LOGGER.debug("Reading {} chunks of {}", chunks.size(), url);
+          return Flux.fromIterable(chunks);
+        });
+  }
+
+  @NonNull
+  private Flux<Record> readChunk(
+      @NonNull URL url, @NonNull Path file, @NonNull BlockRange chunk, long firstPosition) {
+    return Flux.generate(
+        () -> new AvroRecordReader(url, file, chunk, firstPosition),
+        RecordReader::readNext,
+        recordReader -> {
+          try {
+            recordReader.close();
+          } catch (IOException e) {
+            LOGGER.error("Error closing " + url, e);
+          }
+        });
+  }
+
+  /**
+   * Scans the block headers of the given container file, without reading the blocks themselves, and
+   * groups consecutive blocks in ranges of approximately the given size.
+   */
+  @NonNull
+  static List<BlockRange> scanBlocks(@NonNull Path file, long rangeSize) throws IOException {
+    List<BlockRange> ranges = new ArrayList<>();
+    try (DataFileReader<GenericRecord> reader =
+            new DataFileReader<>(new SeekableFileInput(file.toFile()), new GenericDatumReader<>());
+        BlockHeaderScanner scanner = new BlockHeaderScanner(file)) {
+      // right after the file header, the reader is positioned at the start of the first block
+      long offset = reader.previousSync();
+      BlockRange range = null;
+      while (scanner.readBlockHeader(offset)) {
+        if (range == null) {
+          range = new BlockRange(offset);
+        }
+        long next = scanner.getNextBlockOffset();
+        range.recordCount += scanner.getRecordCount();
+        range.length = next - range.offset;
+        if (range.length >= rangeSize) {
+          ranges.add(range);
+          range = null;
+        }
+        offset = next;
+      }
+      if (range != null) {
+        ranges.add(range);
+      }
+    }
+    return ranges;
+  }
+
+  /**
+   * Returns the estimated number of chunks in excess of one per file, in the files to read, so that
+   * read concurrency accounts for chunks read in parallel. Counting stops as soon as the maximum
+   * number of concurrent files is reached.
+   */
+  private int estimateAdditionalChunks() {
+    long count = 0;
+    List<URL> resources = new ArrayList<>(files);
+    for (Path root : roots) {
+      resources.addAll(
+          Objects.requireNonNull(scanRootDirectory(root).take(1000).collectList().block()));
+    }
+    for (URL url : resources) {
+      if (resourceCount + count >= maxConcurrentFiles) {
+        break;
+      }
+      Path file = getLocalFile(url);
+      if (file != null) {
+        try {
+          count += Math.max(0, (Files.size(file) + splitSize - 1) / splitSize - 1);
+        } catch (IOException e) {
+          LOGGER.debug("Could not inspect " + url + ", its chunks will not be counted", e);
+        }
+      }
+    }
+    return (int) Math.min(Integer.MAX_VALUE, count);
+  }
+
+  @Nullable
+  private static Path getLocalFile(@NonNull URL url) {
+    if (!url.getProtocol().equals("file")) {
+      return null;
+    }
+    try {
+      Path file = Paths.get(url.toURI());
+      return Files.isRegularFile(file) ? file : null;
+    } catch (URISyntaxException | RuntimeException e) {
+      return null;
+    }
+  }
+
+  @Override
+  @NonNull
+  protected RecordReader newSingleFileReader(@NonNull URL url) throws IOException {
+    return new AvroRecordReader(url);
+  }
+
+  private class AvroRecordReader implements RecordReader {
+
+    private final URL url;
+    private final URI resource;
+    private final GenericDatumReader<GenericRecord> datumReader;
+    private final DataFileStream<GenericRecord> reader;
+    private final RecordShape shape;
+    private final int fieldCount;
+
+    private long remainingRecords;
+    private long position;
+
+    /** Creates a reader for the whole given URL, read sequentially. */
+    private AvroRecordReader(URL url) throws IOException {
+      this.url = url;
+      resource = URI.create(url.toExternalForm());
+      datumReader = new GenericDatumReader<>(null, null, AvroCodecUtils.DATA_MODEL);
+      remainingRecords = Long.MAX_VALUE;
+      position = 1;
+      InputStream in = IOUtils.newBufferedInputStream(url);
+      try {
+        reader = new DataFileStream<>(in, datumReader);
+        shape = prepare(reader.getSchema());
+        fieldCount = reader.getSchema().getFields().size();
+      } catch (Exception e) {
+        closeQuietly(in);
+        throw new IOException(String.format("Error reading from %s", url), e);
+      }
+    }
+
+    /** Creates a reader for the given range of blocks of the given local file. */
+    private AvroRecordReader(URL url, Path file, BlockRange range, long firstPosition)
+        throws IOException {
+      this.url = url;
+      resource = URI.create(url.toExternalForm());
+      datumReader = new GenericDatumReader<>(null, null, AvroCodecUtils.DATA_MODEL);
+      remainingRecords = range.recordCount;
+      position = firstPosition;
+      SeekableFileInput in = new SeekableFileInput(file.toFile());
+      try {
+        DataFileReader<GenericRecord> reader = new DataFileReader<>(in, datumReader);
+        this.reader = reader;
+        shape = prepare(reader.getSchema());
+        fieldCount = reader.getSchema().getFields().size();
+        reader.seek(range.offset);
+      } catch (Exception e) {
+        closeQuietly(in);
+        throw new IOException(String.format("Error reading from %s", url), e);
+      }
+    }
+
+    @NonNull
+    private RecordShape prepare(@NonNull Schema fileSchema) throws IOException {
+      if (fileSchema.getType() != Schema.Type.RECORD) {
+        throw new IOException(
+            String.format("Expecting records, but file schema is: %s", fileSchema));
+      }
+      Schema readerSchema =
+          readerSchemas.computeIfAbsent(fileSchema, AvroCodecUtils::withJavaStrings);
+      datumReader.setExpected(readerSchema);
+      return types.registerSchema(
+          readerSchema.getFields().stream().map(Schema.Field::name).collect(Collectors.toList()),
+          readerSchema.getFields().stream()
+              .map(field -> AvroCodecUtils.javaType(field.schema()))
+              .collect(Collectors.toList()),
+          url);
+    }
+
+    @NonNull
+    @Override
+    public RecordReader readNext(@NonNull SynchronousSink<Record> sink) {
+      try {
+        if (remainingRecords == 0 || !reader.hasNext()) {
+          LOGGER.debug("Done reading {}", url);
+          sink.complete();
+          return this;
+        }
+        GenericRecord avroRecord = reader.next();
+        remainingRecords--;
+        Object[] values = new Object[fieldCount];
+        for (int i = 0; i < fieldCount; i++) {
+          values[i] = avroRecord.get(i);
+        }
+        Record record =
+            new ArrayBackedRecord(
+                retainRecordSources ? avroRecord : null, resource, position++, shape, values);
+        LOGGER.trace("Emitting record {}", record);
+        sink.next(record);
+      } catch (Exception e) {
+        sink.error(new IOException(String.format("Error reading from %s", url), e));
+      }
+      return this;
+    }
+
+    @Override
+    public void close() throws IOException {
+      reader.close();
+    }
+
+    private void closeQuietly(@NonNull Closeable in) {
+      try {
+        in.close();
+      } catch (IOException e) {
+        LOGGER.debug("Error closing " + url, e);
+      }
+    }
+  }
+
+  @NonNull
+  @Override
+  protected RecordWriter newSingleFileWriter(@NonNull Supplier<URL> destinations) {
+    return new AvroRecordWriter(destinations);
+  }
+
+  private class AvroRecordWriter implements RecordWriter {
+
+    private final Supplier<URL> destinations;
+
+    private URL url;
+    private DataFileWriter<GenericRecord> writer;
+    private Schema schema;
+    private Field[] fields;
+    private DataType[] cqlTypes;
+    private long currentRecord;
+
+    private AvroRecordWriter(Supplier<URL> destinations) {
+      this.destinations = destinations;
+    }
+
+    @Override
+    public void write(@NonNull Record record) throws IOException {
+      try {
+        if (writer == null) {
+          open(record);
+        } else if (shouldRoll()) {
+          close();
+          open(record);
+        }
+        LOGGER.trace("Writing record {}", record);
+        GenericData.Record avroRecord = new GenericData.Record(schema);
+        List<Schema.Field> schemaFields = schema.getFields();
+        for (int i = 0; i < fields.length; i++) {
+          Object value = record.getFieldValue(fields[i]);
+          avroRecord.put(
+              i, AvroCodecUtils.toAvro(value, cqlTypes[i], schemaFields.get(i).schema()));
+        }
+        writer.append(avroRecord);
+        currentRecord++;
+      } catch (ClosedChannelException e) {
+        // OK, happens when the channel was closed due to interruption
+      } catch (RuntimeException e) {
+        throw new IOException(String.format("Error writing to %s", url), e);
+      }
+    }
+
+    private boolean shouldRoll() {
+      return !roots.isEmpty() && currentRecord == maxRecords;
+    }
+
+    private void open(@NonNull Record record) throws IOException {
+      url = destinations.get();
+      try {
+        // the schema is derived from the first record; all records unloaded by the same
+        // operation have the same fields
+        if (schema == null) {
+          fields = record.fields().toArray(new Field[0]);
+          cqlTypes = new DataType[fields.length];
+          SchemaBuilder.FieldAssembler<Schema> assembler = SchemaBuilder.record("dsbulk").fields();
+          for (int i = 0; i < fields.length; i++) {
+            Field field = fields[i];
+            DataType cqlType = types.getWriteType(field);
+            cqlTypes[i] = cqlType;
+            String name =
+                field instanceof MappedField
+                    ? ((MappedField) field).getFieldName()
+                    : field.getFieldDescription();
+            assembler =
+                assembler
+                    .name(AvroCodecUtils.toAvroName(name))
+                    .type(AvroCodecUtils.nullable(AvroCodecUtils.schemaOf(cqlType)))
+                    .withDefault(null);
+          }
+          schema = assembler.endRecord();
+        }
+        writer =
+            new DataFileWriter<>(
+                    new GenericDatumWriter<GenericRecord>(schema, AvroCodecUtils.DATA_MODEL))
+                .setCodec(compressionCodec)
+                .setSyncInterval(syncInterval);
+        writer.create(schema, IOUtils.newBufferedOutputStream(url));
+        currentRecord = 0;
+        LOGGER.debug("Writing " + url);
+      } catch (ClosedChannelException e) {
+        // OK, happens when the channel was closed due to interruption
+      } catch (RuntimeException | IOException e) {
+        throw new IOException(String.format("Error opening %s", url), e);
+      }
+    }
+
+    @Override
+    public void flush() throws IOException {
+      if (writer != null) {
+        try {
+          writer.flush();
+        } catch (ClosedChannelException e) {
+          // OK, happens when the channel was closed due to interruption
+        } catch (RuntimeException | IOException e) {
+          throw new IOException(String.format("Error flushing %s", url), e);
+        }
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (writer != null) {
+        try {
+          writer.close();
+          LOGGER.debug("Done writing {}", url);
+          writer = null;
+        } catch (ClosedChannelException e) {
+          // OK, happens when the channel was closed due to interruption
+        } catch (RuntimeException | IOException e) {
+          throw new IOException(String.format("Error closing %s", url), e);
+        }
+      }
+    }
+  }
+
+  /** A range of consecutive blocks of a container file. */
+  static class BlockRange {
+
+    /** The offset of the first block of the range. */
+    final long offset;
+
+    /** The total size of the blocks of the range, including their headers and sync markers. */
+    long length;
+
+    /** The total number of records in the blocks of the range. */
+    long recordCount;
+
+    BlockRange(long offset) {
+      this.offset = offset;
+    }
+  }
+}
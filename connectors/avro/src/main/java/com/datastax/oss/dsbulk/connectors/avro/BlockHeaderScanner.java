@@ -0,0 +1,108 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.dsbulk.connectors.avro;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads the headers of the blocks of an Avro object container file, without reading the blocks
+ * themselves.
+ *
+ * <p>Each block starts with its record count and its size in bytes, both encoded as zig-zag
+ * variable-length longs; they are followed by the block data, and by a sync marker of 16 bytes.
+ */
+class BlockHeaderScanner implements Closeable {
+
+  /** The maximum size of a block header: two variable-length longs. */
+  private static final int MAX_HEADER_SIZE = 20;
+
+  private static final int SYNC_SIZE = 16;
+
+  private final FileChannel channel;
+  private final long fileSize;
+  private final ByteBuffer buffer = ByteBuffer.allocate(MAX_HEADER_SIZE);
+
+  private long recordCount;
+  private long blockSize;
+  private long dataOffset;
+
+  BlockHeaderScanner(@NonNull Path file) throws IOException {
+    channel = FileChannel.open(file, StandardOpenOption.READ);
+    fileSize = channel.size();
+  }
+
+  /**
+   * Reads the header of the block starting at the given offset.
+   *
+   * @return true if a block was found, false if the offset is the end of the file.
+   * @throws IOException if the block header is invalid, or if the block exceeds the file size.
+   */
+  boolean readBlockHeader(long offset) throws IOException {
+    if (offset >= fileSize) {
+      return false;
+    }
+    buffer.clear();
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, offset + buffer.position()) == -1) {
+        break;
+      }
+    }
+    buffer.flip();
+    recordCount = readLong(offset);
+    blockSize = readLong(offset);
+    dataOffset = offset + buffer.position();
+    if (recordCount < 0 || blockSize < 0 || dataOffset + blockSize + SYNC_SIZE > fileSize) {
+      throw new IOException(String.format("Invalid block header at offset %d", offset));
+    }
+    return true;
+  }
+
+  /** @return the number of records in the last block read. */
+  long getRecordCount() {
+    return recordCount;
+  }
+
+  /** @return the offset of the next block, right after the sync marker of the last block read. */
+  long getNextBlockOffset() {
+    return dataOffset + blockSize + SYNC_SIZE;
+  }
+
+  private long readLong(long offset) throws IOException {
+    long raw = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      if (!buffer.hasRemaining()) {
+        break;
+      }
+      int b = buffer.get() & 0xff;
+      raw |= (long) (b & 0x7f) << shift;
+      if ((b & 0x80) == 0) {
+        return (raw >>> 1) ^ -(raw & 1);
+      }
+    }
+    throw new IOException(String.format("Invalid block header at offset %d", offset));
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+}
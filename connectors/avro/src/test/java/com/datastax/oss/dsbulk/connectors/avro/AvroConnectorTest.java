@@ -0,0 +1,549 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.dsbulk.connectors.avro;
+
+import static com.datastax.oss.dsbulk.tests.utils.FileUtils.deleteDirectory;
+import static com.datastax.oss.dsbulk.tests.utils.StringUtils.quoteJson;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.datastax.oss.driver.api.core.type.DataTypes;
+import com.datastax.oss.driver.api.core.type.UserDefinedType;
+import com.datastax.oss.driver.api.core.type.reflect.GenericType;
+import com.datastax.oss.driver.internal.core.type.UserDefinedTypeBuilder;
+import com.datastax.oss.dsbulk.codecs.avro.AvroCodecUtils;
+import com.datastax.oss.dsbulk.connectors.api.DefaultIndexedField;
+import com.datastax.oss.dsbulk.connectors.api.DefaultMappedField;
+import com.datastax.oss.dsbulk.connectors.api.DefaultRecord;
+import com.datastax.oss.dsbulk.connectors.api.Field;
+import com.datastax.oss.dsbulk.connectors.api.Record;
+import com.datastax.oss.dsbulk.connectors.api.RecordMetadata;
+import com.datastax.oss.dsbulk.connectors.commons.FileBasedConnectorTestBase;
+import com.datastax.oss.dsbulk.tests.utils.TestConfigUtils;
+import com.typesafe.config.Config;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.apache.avro.LogicalTypes;
+import org.apache.avro.Schema;
+import org.apache.avro.file.DataFileReader;
+import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericEnumSymbol;
+import org.apache.avro.generic.GenericFixed;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.util.Utf8;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import reactor.core.publisher.Flux;
+
+class AvroConnectorTest extends FileBasedConnectorTestBase<AvroConnector> {
+
+  private static final Schema ADDRESS_SCHEMA =
+      new Schema.Parser()
+          .parse(
+              "{\"type\":\"record\",\"name\":\"address\",\"fields\":["
+                  + "{\"name\":\"street\",\"type\":\"string\"},"
+                  + "{\"name\":\"zip\",\"type\":[\"null\",\"int\"]}]}");
+
+  private static final Schema PERSON_SCHEMA =
+      new Schema.Parser()
+          .parse(
+              "{\"type\":\"record\",\"name\":\"person\",\"fields\":["
+                  + "{\"name\":\"id\",\"type\":\"int\"},"
+                  + "{\"name\":\"name\",\"type\":[\"null\",\"string\"]},"
+                  + "{\"name\":\"address\",\"type\":[\"null\","
+                  + ADDRESS_SCHEMA
+                  + "]},"
+                  + "{\"name\":\"phones\",\"type\":{\"type\":\"array\",\"items\":[\"null\",\"string\"]}},"
+                  + "{\"name\":\"scores\",\"type\":{\"type\":\"map\",\"values\":\"double\"}},"
+                  + "{\"name\":\"kind\",\"type\":{\"type\":\"enum\",\"name\":\"kind\",\"symbols\":[\"A\",\"B\"]}},"
+                  + "{\"name\":\"hash\",\"type\":[\"null\",{\"type\":\"fixed\",\"name\":\"hash\",\"size\":4}]}"
+                  + "]}");
+
+  private static final Schema LOGICAL_TYPES_SCHEMA =
+      new Schema.Parser()
+          .parse(
+              "{\"type\":\"record\",\"name\":\"events\",\"fields\":["
+                  + "{\"name\":\"id\",\"type\":{\"type\":\"string\",\"logicalType\":\"uuid\"}},"
+                  + "{\"name\":\"amount\",\"type\":{\"type\":\"bytes\",\"logicalType\":\"decimal\",\"precision\":10,\"scale\":2}},"
+                  + "{\"name\":\"price\",\"type\":{\"type\":\"fixed\",\"name\":\"price\",\"size\":8,\"logicalType\":\"decimal\",\"precision\":12,\"scale\":3}},"
+                  + "{\"name\":\"day\",\"type\":{\"type\":\"int\",\"logicalType\":\"date\"}},"
+                  + "{\"name\":\"time_ms\",\"type\":{\"type\":\"int\",\"logicalType\":\"time-millis\"}},"
+                  + "{\"name\":\"ts_us\",\"type\":{\"type\":\"long\",\"logicalType\":\"timestamp-micros\"}},"
+                  + "{\"name\":\"local_ts\",\"type\":{\"type\":\"long\",\"logicalType\":\"local-timestamp-millis\"}},"
+                  + "{\"name\":\"unknown\",\"type\":{\"type\":\"string\",\"logicalType\":\"unknown\"}}"
+                  + "]}");
+
+  @Override
+  protected AvroConnector newConnector() {
+    return new AvroConnector();
+  }
+
+  @Override
+  protected String getFileExtension() {
+    return ".avro";
+  }
+
+  @Override
+  protected Object[] getMultiBlockWriteSettings() {
+    return new Object[] {"compressionCodec", quoteJson("snappy"), "syncInterval", quoteJson("256")};
+  }
+
+  @Override
+  protected Object[] getParallelReadSettings() {
+    return new Object[] {"maxConcurrentFiles", 8, "splitSize", quoteJson("1kB")};
+  }
+
+  @Test
+  void should_read_nulls_and_nested_values() throws Exception {
+    Path dir = Files.createTempDirectory("test");
+    try {
+      GenericRecord address = new GenericData.Record(ADDRESS_SCHEMA);
+      address.put("street", "Main St");
+      address.put("zip", null);
+      Map<String, Double> scores = new LinkedHashMap<>();
+      scores.put("math", 1.5d);
+      scores.put("art", -2d);
+      GenericRecord person1 = new GenericData.Record(PERSON_SCHEMA);
+      person1.put("id", 1);
+      person1.put("name", "Alice");
+      person1.put("address", address);
+      person1.put("phones", Arrays.asList("123", null));
+      person1.put("scores", scores);
+      person1.put("kind", new GenericData.EnumSymbol(PERSON_SCHEMA.getField("kind").schema(), "B"));
+      person1.put(
+          "hash",
+          new GenericData.Fixed(
+              AvroCodecUtils.nonNullBranch(PERSON_SCHEMA.getField("hash").schema()),
+              new byte[] {1, 2, 3, 4}));
+      GenericRecord person2 = new GenericData.Record(PERSON_SCHEMA);
+      person2.put("id", 2);
+      person2.put("phones", Collections.emptyList());
+      person2.put("scores", Collections.emptyMap());
+      person2.put("kind", new GenericData.EnumSymbol(PERSON_SCHEMA.getField("kind").schema(), "A"));
+      Path file = dir.resolve("persons.avro");
+      writeAvroFile(file, PERSON_SCHEMA, person1, person2);
+
+      AvroConnector connector = newReadConnector(file);
+      List<Record> records = Flux.merge(connector.read()).collectList().block();
+      connector.close();
+
+      assertThat(records).hasSize(2);
+      Record actual1 = records.get(0);
+      assertThat(actual1.getSource()).isInstanceOf(GenericRecord.class);
+      assertThat(actual1.getFieldValue(new DefaultMappedField("id"))).isEqualTo(1);
+      // strings are read as Java strings, not as Avro UTF-8 strings
+      assertThat(actual1.getFieldValue(new DefaultMappedField("name"))).isEqualTo("Alice");
+      GenericRecord actualAddress =
+          (GenericRecord) actual1.getFieldValue(new DefaultMappedField("address"));
+      assertThat(actualAddress.get("street")).isEqualTo("Main St");
+      assertThat(actualAddress.get("zip")).isNull();
+      assertThat(actual1.getFieldValue(new DefaultMappedField("phones")))
+          .isEqualTo(Arrays.asList("123", null));
+      assertThat(actual1.getFieldValue(new DefaultMappedField("scores"))).isEqualTo(scores);
+      assertThat(actual1.getFieldValue(new DefaultMappedField("kind")).toString()).isEqualTo("B");
+      assertThat(((GenericFixed) actual1.getFieldValue(new DefaultMappedField("hash"))).bytes())
+          .containsExactly(1, 2, 3, 4);
+      // fields are also accessible by index
+      assertThat(actual1.getFieldValue(new DefaultIndexedField(1))).isEqualTo("Alice");
+      Record actual2 = records.get(1);
+      assertThat(actual2.getFieldValue(new DefaultMappedField("name"))).isNull();
+      assertThat(actual2.getFieldValue(new DefaultMappedField("address"))).isNull();
+      assertThat(actual2.getFieldValue(new DefaultMappedField("hash"))).isNull();
+      assertThat((List<?>) actual2.getFieldValue(new DefaultMappedField("phones"))).isEmpty();
+      assertThat((Map<?, ?>) actual2.getFieldValue(new DefaultMappedField("scores"))).isEmpty();
+
+      RecordMetadata metadata = connector.getRecordMetadata();
+      assertThat(metadata.getFieldType(new DefaultMappedField("name"), DataTypes.TEXT))
+          .isEqualTo(GenericType.STRING);
+      assertThat(metadata.getFieldType(new DefaultMappedField("address"), DataTypes.TEXT))
+          .isEqualTo(GenericType.of(GenericRecord.class));
+      assertThat(metadata.getFieldType(new DefaultMappedField("phones"), DataTypes.TEXT))
+          .isEqualTo(GenericType.listOf(GenericType.STRING));
+      assertThat(metadata.getFieldType(new DefaultMappedField("scores"), DataTypes.TEXT))
+          .isEqualTo(GenericType.mapOf(GenericType.STRING, GenericType.DOUBLE));
+      assertThat(metadata.getFieldType(new DefaultMappedField("kind"), DataTypes.TEXT))
+          .isEqualTo(GenericType.of(GenericEnumSymbol.class));
+      assertThat(metadata.getFieldType(new DefaultMappedField("hash"), DataTypes.BLOB))
+          .isEqualTo(GenericType.of(GenericFixed.class));
+      assertThat(metadata.getFieldType(new DefaultIndexedField(0), DataTypes.INT))
+          .isEqualTo(GenericType.INTEGER);
+      assertThatThrownBy(
+              () -> metadata.getFieldType(new DefaultMappedField("nonexistent"), DataTypes.INT))
+          .isInstanceOf(IllegalArgumentException.class)
+          .hasMessage("Unknown field: nonexistent");
+    } finally {
+      deleteDirectory(dir);
+    }
+  }
+
+  @Test
+  void should_read_logical_types() throws Exception {
+    Path dir = Files.createTempDirectory("test");
+    try {
+      UUID uuid = UUID.randomUUID();
+      Instant timestamp = Instant.parse("2020-01-02T03:04:05.123456Z");
+      GenericRecord event = new GenericData.Record(LOGICAL_TYPES_SCHEMA);
+      event.put("id", uuid);
+      event.put("amount", new BigDecimal("-12.34"));
+      event.put("price", new BigDecimal("123456.789"));
+      event.put("day", LocalDate.of(2020, 1, 2));
+      event.put("time_ms", LocalTime.of(3, 4, 5, 678_000_000));
+      event.put("ts_us", timestamp);
+      event.put("local_ts", LocalDateTime.of(2020, 1, 2, 3, 4, 5, 678_000_000));
+      event.put("unknown", "foo");
+      Path file = dir.resolve("events.avro");
+      writeAvroFile(file, LOGICAL_TYPES_SCHEMA, event);
+
+      AvroConnector connector = newReadConnector(file);
+      List<Record> records = Flux.merge(connector.read()).collectList().block();
+      connector.close();
+
+      assertThat(records).hasSize(1);
+      Record actual = records.get(0);
+      assertThat(actual.getFieldValue(new DefaultMappedField("id"))).isEqualTo(uuid);
+      assertThat(actual.getFieldValue(new DefaultMappedField("amount")))
+          .isEqualTo(new BigDecimal("-12.34"));
+      assertThat(actual.getFieldValue(new DefaultMappedField("price")))
+          .isEqualTo(new BigDecimal("123456.789"));
+      assertThat(actual.getFieldValue(new DefaultMappedField("day")))
+          .isEqualTo(LocalDate.of(2020, 1, 2));
+      assertThat(actual.getFieldValue(new DefaultMappedField("time_ms")))
+          .isEqualTo(LocalTime.of(3, 4, 5, 678_000_000));
+      assertThat(actual.getFieldValue(new DefaultMappedField("ts_us"))).isEqualTo(timestamp);
+      assertThat(actual.getFieldValue(new DefaultMappedField("local_ts")))
+          .isEqualTo(LocalDateTime.of(2020, 1, 2, 3, 4, 5, 678_000_000));
+      // unknown logical types are ignored, values are read with their underlying type
+      assertThat(actual.getFieldValue(new DefaultMappedField("unknown"))).isEqualTo("foo");
+
+      RecordMetadata metadata = connector.getRecordMetadata();
+      assertThat(metadata.getFieldType(new DefaultMappedField("id"), DataTypes.UUID))
+          .isEqualTo(GenericType.UUID);
+      assertThat(metadata.getFieldType(new DefaultMappedField("price"), DataTypes.DECIMAL))
+          .isEqualTo(GenericType.BIG_DECIMAL);
+      assertThat(metadata.getFieldType(new DefaultMappedField("ts_us"), DataTypes.TIMESTAMP))
+          .isEqualTo(GenericType.INSTANT);
+      assertThat(metadata.getFieldType(new DefaultMappedField("local_ts"), DataTypes.TIMESTAMP))
+          .isEqualTo(GenericType.of(LocalDateTime.class));
+      assertThat(metadata.getFieldType(new DefaultMappedField("unknown"), DataTypes.TEXT))
+          .isEqualTo(GenericType.STRING);
+    } finally {
+      deleteDirectory(dir);
+    }
+  }
+
+  @Test
+  void should_reject_files_with_different_field_types() throws Exception {
+    Path dir = Files.createTempDirectory("test");
+    try {
+      Schema schema1 =
+          new Schema.Parser()
+              .parse(
+                  "{\"type\":\"record\",\"name\":\"r\",\"fields\":[{\"name\":\"pk\",\"type\":\"int\"}]}");
+      Schema schema2 =
+          new Schema.Parser()
+              .parse(
+                  "{\"type\":\"record\",\"name\":\"r\",\"fields\":[{\"name\":\"pk\",\"type\":\"string\"}]}");
+      GenericRecord record1 = new GenericData.Record(schema1);
+      record1.put("pk", 1);
+      GenericRecord record2 = new GenericData.Record(schema2);
+      record2.put("pk", "a");
+      Path file1 = dir.resolve("file1.avro");
+      Path file2 = dir.resolve("file2.avro");
+      writeAvroFile(file1, schema1, record1);
+      writeAvroFile(file2, schema2, record2);
+      // files are read one after the other, in no particular order
+      AvroConnector connector = newReadConnector(dir);
+      assertThatThrownBy(() -> Flux.merge(connector.read()).blockLast())
+          .hasRootCauseInstanceOf(IOException.class)
+          .satisfies(
+              error ->
+                  assertThat(error.getCause().getCause().getMessage())
+                      .startsWith("Field pk is of type ")
+                      .endsWith(" in previously read files"));
+      connector.close();
+    } finally {
+      deleteDirectory(dir);
+    }
+  }
+
+  @Test
+  void should_reject_files_with_different_types_at_same_index() throws Exception {
+    Path dir = Files.createTempDirectory("test");
+    try {
+      Schema schema1 =
+          new Schema.Parser()
+              .parse(
+                  "{\"type\":\"record\",\"name\":\"r\",\"fields\":["
+                      + "{\"name\":\"pk\",\"type\":\"int\"},"
+                      + "{\"name\":\"v\",\"type\":\"string\"}]}");
+      Schema schema2 =
+          new Schema.Parser()
+              .parse(
+                  "{\"type\":\"record\",\"name\":\"r\",\"fields\":["
+                      + "{\"name\":\"v\",\"type\":\"string\"},"
+                      + "{\"name\":\"pk\",\"type\":\"int\"}]}");
+      GenericRecord record1 = new GenericData.Record(schema1);
+      record1.put("pk", 1);
+      record1.put("v", "a");
+      GenericRecord record2 = new GenericData.Record(schema2);
+      record2.put("pk", 2);
+      record2.put("v", "b");
+      writeAvroFile(dir.resolve("file1.avro"), schema1, record1);
+      writeAvroFile(dir.resolve("file2.avro"), schema2, record2);
+      // field names agree on their types, but indexed fields do not
+      AvroConnector connector = newReadConnector(dir);
+      assertThatThrownBy(() -> Flux.merge(connector.read()).blockLast())
+          .hasRootCauseInstanceOf(IOException.class)
+          .satisfies(
+              error ->
+                  assertThat(error.getCause().getCause().getMessage())
+                      .matches("Field [01] is of type .* in previously read files"));
+      connector.close();
+    } finally {
+      deleteDirectory(dir);
+    }
+  }
+
+  @Test
+  void should_reject_file_not_containing_records() throws Exception {
+    Path dir = Files.createTempDirectory("test");
+    try {
+      Path file = dir.resolve("ints.avro");
+      writeAvroFile(file, Schema.create(Schema.Type.INT), 1, 2);
+      AvroConnector connector = newReadConnector(file);
+      assertThatThrownBy(() -> Flux.merge(connector.read()).blockLast())
+          .hasStackTraceContaining("Error reading from " + file.toUri().toURL())
+          .hasRootCauseMessage("Expecting records, but file schema is: \"int\"");
+      connector.close();
+    } finally {
+      deleteDirectory(dir);
+    }
+  }
+
+  @Test
+  void should_write_schema_derived_from_cql_types() throws Exception {
+    Path dir = Files.createTempDirectory("test");
+    try {
+      UserDefinedType udt =
+          new UserDefinedTypeBuilder("ks1", "udt1")
+              .withField("f1", DataTypes.INT)
+              .withField("f2", DataTypes.TEXT)
+              .build();
+      AvroConnector connector = newWriteConnector(dir);
+      RecordMetadata metadata = connector.getRecordMetadata();
+      Field pk = new DefaultMappedField("pk");
+      Field quoted = new DefaultMappedField("my col");
+      Field time = new DefaultMappedField("c_time");
+      Field decimal = new DefaultMappedField("c_decimal");
+      Field set = new DefaultMappedField("c_set");
+      Field map = new DefaultMappedField("c_map");
+      Field udtField = new DefaultMappedField("c_udt");
+      assertThat(metadata.getFieldType(pk, DataTypes.INT)).isEqualTo(GenericType.INTEGER);
+      assertThat(metadata.getFieldType(quoted, DataTypes.TEXT)).isEqualTo(GenericType.STRING);
+      assertThat(metadata.getFieldType(time, DataTypes.TIME)).isEqualTo(GenericType.LOCAL_TIME);
+      metadata.getFieldType(decimal, DataTypes.DECIMAL);
+      metadata.getFieldType(set, DataTypes.setOf(DataTypes.BIGINT));
+      metadata.getFieldType(map, DataTypes.mapOf(DataTypes.INT, DataTypes.TEXT));
+      metadata.getFieldType(udtField, udt);
+      DefaultRecord record1 = new DefaultRecord(null, resource, -1);
+      record1.setFieldValue(pk, 1);
+      record1.setFieldValue(quoted, "foo");
+      record1.setFieldValue(time, LocalTime.of(1, 2, 3, 456_789_123));
+      record1.setFieldValue(decimal, new BigDecimal("1.50"));
+      record1.setFieldValue(set, new LinkedHashSet<>(Arrays.asList(2L, 1L)));
+      record1.setFieldValue(map, Collections.singletonMap(42, "bar"));
+      record1.setFieldValue(udtField, udt.newValue(12, null));
+      DefaultRecord record2 = new DefaultRecord(null, resource, -1);
+      record2.setFieldValue(pk, 2);
+      for (Field field : Arrays.asList(quoted, time, decimal, set, map, udtField)) {
+        record2.setFieldValue(field, null);
+      }
+      Flux.<Record>just(record1, record2).transform(connector.write()).blockLast();
+      connector.close();
+
+      // read the file back with the Avro API, without conversions, to check the raw values
+      try (DataFileReader<GenericRecord> reader =
+          new DataFileReader<>(
+              dir.resolve("output-000001.avro").toFile(), new GenericDatumReader<>())) {
+        Schema schema = reader.getSchema();
+        assertThat(schema.getFields())
+            .extracting(Schema.Field::name)
+            .containsExactly("pk", "my_col", "c_time", "c_decimal", "c_set", "c_map", "c_udt");
+        // all fields are nullable
+        assertThat(schema.getField("pk").schema())
+            .isEqualTo(AvroCodecUtils.nullable(Schema.create(Schema.Type.INT)));
+        Schema timeSchema = AvroCodecUtils.nonNullBranch(schema.getField("c_time").schema());
+        assertThat(timeSchema.getLogicalType()).isEqualTo(LogicalTypes.timeMicros());
+        assertThat(AvroCodecUtils.nonNullBranch(schema.getField("c_decimal").schema()).getType())
+            .isEqualTo(Schema.Type.STRING);
+        Schema udtSchema = AvroCodecUtils.nonNullBranch(schema.getField("c_udt").schema());
+        assertThat(udtSchema.getFullName()).isEqualTo("ks1.udt1");
+        assertThat(udtSchema.getFields())
+            .extracting(Schema.Field::name)
+            .containsExactly("f1", "f2");
+
+        GenericRecord actual1 = reader.next();
+        assertThat(actual1.get("pk")).isEqualTo(1);
+        assertThat(actual1.get("my_col")).isEqualTo(new Utf8("foo"));
+        // times are truncated to the microsecond
+        assertThat(actual1.get("c_time"))
+            .isEqualTo(LocalTime.of(1, 2, 3, 456_789_000).toNanoOfDay() / 1000);
+        // decimals are written as strings, with their scale
+        assertThat(actual1.get("c_decimal")).isEqualTo(new Utf8("1.50"));
+        assertThat(actual1.get("c_set")).isEqualTo(Arrays.asList(2L, 1L));
+        // map keys are converted to strings
+        assertThat(actual1.get("c_map"))
+            .isEqualTo(Collections.singletonMap(new Utf8("42"), new Utf8("bar")));
+        GenericRecord actualUdt = (GenericRecord) actual1.get("c_udt");
+        assertThat(actualUdt.get("f1")).isEqualTo(12);
+        assertThat(actualUdt.get("f2")).isNull();
+        GenericRecord actual2 = reader.next();
+        assertThat(actual2.get("pk")).isEqualTo(2);
+        for (String name : Arrays.asList("my_col", "c_time", "c_decimal", "c_set", "c_map")) {
+          assertThat(actual2.get(name)).as(name).isNull();
+        }
+        assertThat(actual2.get("c_udt")).isNull();
+        assertThat(reader.hasNext()).isFalse();
+      }
+    } finally {
+      deleteDirectory(dir);
+    }
+  }
+
+  @Test
+  void should_fail_to_write_field_of_unknown_type() throws Exception {
+    Path dir = Files.createTempDirectory("test");
+    try {
+      AvroConnector connector = newWriteConnector(dir);
+      DefaultRecord record = new DefaultRecord(null, resource, -1);
+      record.setFieldValue(new DefaultMappedField("pk"), 1);
+      assertThatThrownBy(() -> Flux.<Record>just(record).transform(connector.write()).blockLast())
+          .hasRootCauseInstanceOf(IllegalArgumentException.class)
+          .hasRootCauseMessage("Unknown CQL type for field: pk");
+      connector.close();
+    } finally {
+      deleteDirectory(dir);
+    }
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"null", "deflate", "snappy", "bzip2", "xz"})
+  void should_write_and_read_with_compression_codec(String codec) throws Exception {
+    Path dir = Files.createTempDirectory("test");
+    try {
+      writeIntegers(dir, 100, "compressionCodec", quoteJson(codec));
+      Path file = dir.resolve("output-000001.avro");
+      try (DataFileReader<GenericRecord> reader =
+          new DataFileReader<>(file.toFile(), new GenericDatumReader<>())) {
+        assertThat(reader.getMetaString("avro.codec")).isEqualTo(codec);
+      }
+      assertThat(readIntegers(file)).hasSize(100).startsWith(0, 1).endsWith(98, 99);
+    } finally {
+      deleteDirectory(dir);
+    }
+  }
+
+  @Test
+  void should_read_blocks_sequentially_by_default() throws Exception {
+    Path dir = Files.createTempDirectory("test");
+    try {
+      writeIntegers(dir, 1000, getMultiBlockWriteSettings());
+      AvroConnector connector =
+          newReadConnector(dir.resolve("output-000001.avro"), "maxConcurrentFiles", 8);
+      assertThat(connector.readConcurrency()).isOne();
+      assertThat(Flux.from(connector.read()).count().block()).isOne();
+      List<Long> positions =
+          Flux.merge(connector.read()).map(Record::getPosition).collectList().block();
+      connector.close();
+      assertThat(positions).hasSize(1000).isSorted();
+    } finally {
+      deleteDirectory(dir);
+    }
+  }
+
+  @Test
+  void should_read_chunks_in_parallel() throws Exception {
+    Path dir = Files.createTempDirectory("test");
+    try {
+      writeIntegers(dir, 1000, getMultiBlockWriteSettings());
+      Path file = dir.resolve("output-000001.avro");
+      AvroConnector connector = newReadConnector(file, getParallelReadSettings());
+      assertThat(connector.readConcurrency()).isEqualTo(8);
+      assertThat(Flux.from(connector.read()).count().block()).isGreaterThan(1);
+      List<Record> records = Flux.merge(connector.read()).collectList().block();
+      connector.close();
+      assertThat(records).hasSize(1000);
+      records.sort(Comparator.comparingLong(Record::getPosition));
+      for (int i = 0; i < 1000; i++) {
+        assertThat(records.get(i).getPosition()).isEqualTo(i + 1);
+        assertThat(records.get(i).getFieldValue(new DefaultMappedField("pk"))).isEqualTo(i);
+      }
+    } finally {
+      deleteDirectory(dir);
+    }
+  }
+
+  @Test
+  void should_throw_exception_when_compression_codec_is_wrong() {
+    AvroConnector connector = new AvroConnector();
+    Config settings =
+        TestConfigUtils.createTestConfig("dsbulk.connector.avro", "compressionCodec", "LZO");
+    assertThatThrownBy(() -> connector.configure(settings, false, true))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage(
+            "Invalid value for connector.avro.compressionCodec, valid values: null,deflate,snappy,bzip2,xz, got: 'LZO'");
+  }
+
+  @Test
+  void should_throw_exception_when_sync_interval_is_wrong() {
+    AvroConnector connector = new AvroConnector();
+    Config settings = TestConfigUtils.createTestConfig("dsbulk.connector.avro", "syncInterval", 16);
+    assertThatThrownBy(() -> connector.configure(settings, false, true))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage(
+            "Invalid value for connector.avro.syncInterval: Expecting a size between 32B and 1GB, got: 16");
+  }
+
+  /** Writes an Avro file with the Avro API, like a third-party tool would. */
+  @SafeVarargs
+  private static <T> void writeAvroFile(Path file, Schema schema, T... data) throws IOException {
+    try (DataFileWriter<T> writer =
+        new DataFileWriter<>(new GenericDatumWriter<T>(schema, AvroCodecUtils.DATA_MODEL))) {
+      writer.create(schema, file.toFile());
+      for (T datum : data) {
+        writer.append(datum);
+      }
+    }
+  }
+}
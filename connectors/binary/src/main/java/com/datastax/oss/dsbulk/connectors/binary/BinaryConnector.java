@@ -0,0 +1,444 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.dsbulk.connectors.binary;
+
+import com.datastax.oss.driver.api.core.data.ByteUtils;
+import com.datastax.oss.driver.api.core.type.DataType;
+import com.datastax.oss.driver.api.core.type.ListType;
+import com.datastax.oss.driver.api.core.type.MapType;
+import com.datastax.oss.driver.api.core.type.SetType;
+import com.datastax.oss.driver.api.core.type.TupleType;
+import com.datastax.oss.driver.api.core.type.UserDefinedType;
+import com.datastax.oss.dsbulk.config.ConfigUtils;
+import com.datastax.oss.dsbulk.connectors.api.ArrayBackedRecord;
+import com.datastax.oss.dsbulk.connectors.api.CommonConnectorFeature;
+import com.datastax.oss.dsbulk.connectors.api.ConnectorFeature;
+import com.datastax.oss.dsbulk.connectors.api.Field;
+import com.datastax.oss.dsbulk.connectors.api.MappedField;
+import com.datastax.oss.dsbulk.connectors.api.Record;
+import com.datastax.oss.dsbulk.connectors.api.RecordMetadata;
+import com.datastax.oss.dsbulk.connectors.api.RecordShape;
+import com.datastax.oss.dsbulk.connectors.commons.AbstractFileBasedConnector;
+import com.datastax.oss.dsbulk.connectors.commons.FieldTypeRegistry;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigException;
+import com.typesafe.config.ConfigFactory;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.SynchronousSink;
+
+/**
+ * A connector for files of raw CQL values.
+ *
+ * <p>Binary files store values in their native CQL binary encoding: values read from a table are
+ * written as is, and values read from files are bound as is, without being converted by codecs.
+ * These files are therefore the fastest way to copy data between tables whose columns have the same
+ * CQL types; loading a column of a different type is rejected.
+ *
+ * <p>A file starts with a header containing the names and the CQL types of its columns, followed by
+ * its rows. Each row is made of its length in bytes, followed by its values; each value is made of
+ * its length in bytes, or -1 if it is null, followed by its contents.
+ *
+ * <p>This connector is highly configurable; see its {@code dsbulk-reference.conf} file, bundled
+ * within its jar archive, for detailed information.
+ */
+public class BinaryConnector extends AbstractFileBasedConnector {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(BinaryConnector.class);
+
+  /** The magic bytes at the start of every binary file. */
+  private static final byte[] MAGIC = "CQLB".getBytes(StandardCharsets.US_ASCII);
+
+  /** The version of the file format. */
+  private static final int FORMAT_VERSION = 1;
+
+  /**
+   * Settings of file-based connectors that do not apply to binary files: binary files have no
+   * encoding, and are always read sequentially.
+   */
+  private static final Config FIXED_SETTINGS =
+      ConfigFactory.parseString("encoding = UTF-8, splitSize = 0, readMode = BUFFERED");
+
+  /** The CQL type signatures of the columns read, and the CQL types of the columns written. */
+  private final FieldTypeRegistry<String> columnTypes = new FieldTypeRegistry<>();
+
+  @Override
+  @NonNull
+  public String getConnectorName() {
+    return "binary";
+  }
+
+  @Override
+  public void configure(@NonNull Config settings, boolean read, boolean retainRecordSources) {
+    try {
+      super.configure(FIXED_SETTINGS.withFallback(settings), read, retainRecordSources);
+    } catch (ConfigException e) {
+      throw ConfigUtils.convertConfigException(e, "dsbulk.connector.binary");
+    }
+  }
+
+  @NonNull
+  @Override
+  public RecordMetadata getRecordMetadata() {
+    if (read) {
+      return (field, cqlType) -> {
+        String fileType = columnTypes.getReadType(field);
+        String columnType = typeSignature(cqlType);
+        if (!fileType.equals(columnType)) {
+          throw new IllegalArgumentException(
+              String.format(
+                  "Field %s is of type %s in the files read, but the target type is %s; "
+                      + "binary files can only be loaded into columns of the same type",
+                  field.getFieldDescription(), fileType, columnType));
+        }
+        return RecordMetadata.RAW_BYTES;
+      };
+    }
+    return (field, cqlType) -> {
+      columnTypes.registerWriteType(field, cqlType);
+      return RecordMetadata.RAW_BYTES;
+    };
+  }
+
+  @Override
+  public boolean supports(@NonNull ConnectorFeature feature) {
+    if (feature instanceof CommonConnectorFeature) {
+      CommonConnectorFeature commonFeature = (CommonConnectorFeature) feature;
+      switch (commonFeature) {
+        case MAPPED_RECORDS:
+        case INDEXED_RECORDS:
+          return true;
+        case DATA_SIZE_SAMPLING:
+          return isDataSizeSamplingAvailable();
+        case RESUMABLE_READS:
+          return read;
+        case PARTITIONED_WRITES:
+          return !read && !roots.isEmpty();
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns the signature of the given CQL type, as stored in file headers. Signatures ignore
+   * whether types are frozen, and the names of user-defined types, since neither affects how values
+   * are encoded; the names of the fields of user-defined types are kept, so that values are not
+   * loaded into types whose fields are ordered differently.
+   */
+  @NonNull
+  static String typeSignature(@NonNull DataType type) {
+    if (type instanceof ListType) {
+      return "list<" + typeSignature(((ListType) type).getElementType()) + ">";
+    }
+    if (type instanceof SetType) {
+      return "set<" + typeSignature(((SetType) type).getElementType()) + ">";
+    }
+    if (type instanceof MapType) {
+      MapType mapType = (MapType) type;
+      return "map<"
+          + typeSignature(mapType.getKeyType())
+          + ","
+          + typeSignature(mapType.getValueType())
+          + ">";
+    }
+    if (type instanceof TupleType) {
+      return ((TupleType) type)
+          .getComponentTypes().stream()
+              .map(BinaryConnector::typeSignature)
+              .collect(Collectors.joining(",", "tuple<", ">"));
+    }
+    if (type instanceof UserDefinedType) {
+      UserDefinedType udt = (UserDefinedType) type;
+      List<String> fields = new ArrayList<>();
+      for (int i = 0; i < udt.getFieldNames().size(); i++) {
+        fields.add(
+            udt.getFieldNames().get(i).asInternal()
+                + ":"
+                + typeSignature(udt.getFieldTypes().get(i)));
+      }
+      return "udt<" + String.join(",", fields) + ">";
+    }
+    return type.asCql(false, true);
+  }
+
+  @Override
+  @NonNull
+  protected RecordReader newSingleFileReader(@NonNull URL url) throws IOException {
+    return new BinaryRecordReader(url);
+  }
+
+  private class BinaryRecordReader implements RecordReader {
+
+    private final URL url;
+    private final URI resource;
+    private final DataInputStream in;
+    private final RecordShape shape;
+    private final int columnCount;
+
+    private long position = 1;
+
+    private BinaryRecordReader(URL url) throws IOException {
+      this.url = url;
+      resource = URI.create(url.toExternalForm());
+      in = new DataInputStream(newInputStream(url));
+      try {
+        RecordShape shape = null;
+        int columnCount = 0;
+        byte[] magic = new byte[MAGIC.length];
+        int read = in.read(magic);
+        // empty files contain no records
+        if (read != -1) {
+          in.readFully(magic, read, magic.length - read);
+          if (!Arrays.equals(magic, MAGIC)) {
+            throw new IOException("Not a binary file: invalid magic bytes");
+          }
+          int version = in.readUnsignedByte();
+          if (version != FORMAT_VERSION) {
+            throw new IOException(
+                String.format(
+                    "Unsupported binary file version: %d, expecting %d", version, FORMAT_VERSION));
+          }
+          columnCount = in.readInt();
+          List<String> names = new ArrayList<>(columnCount);
+          List<String> types = new ArrayList<>(columnCount);
+          for (int i = 0; i < columnCount; i++) {
+            names.add(in.readUTF());
+            types.add(in.readUTF());
+          }
+          shape = columnTypes.registerSchema(names, types, url);
+        }
+        this.shape = shape;
+        this.columnCount = columnCount;
+      } catch (Exception e) {
+        in.close();
+        throw new IOException(String.format("Error reading from %s", url), e);
+      }
+    }
+
+    @NonNull
+    @Override
+    public RecordReader readNext(@NonNull SynchronousSink<Record> sink) {
+      try {
+        int length = shape == null ? -1 : readRowLength();
+        if (length == -1) {
+          LOGGER.debug("Done reading {}", url);
+          sink.complete();
+          return this;
+        }
+        // each row is read in a new array, since values are slices of it
+        byte[] row = new byte[length];
+        in.readFully(row);
+        Object[] values = new Object[columnCount];
+        ByteBuffer buffer = ByteBuffer.wrap(row);
+        for (int i = 0; i < columnCount; i++) {
+          int size = buffer.getInt();
+          if (size >= 0) {
+            ByteBuffer value = buffer.slice();
+            value.limit(size);
+            values[i] = value;
+            buffer.position(buffer.position() + size);
+          }
+        }
+        Record record =
+            new ArrayBackedRecord(
+                retainRecordSources ? ByteUtils.toHexString(row) : null,
+                resource,
+                position++,
+                shape,
+                values);
+        LOGGER.trace("Emitting record {}", record);
+        sink.next(record);
+      } catch (Exception e) {
+        sink.error(new IOException(String.format("Error reading from %s", url), e));
+      }
+      return this;
+    }
+
+    /** Returns the length of the next row, or -1 if the end of the file was reached. */
+    private int readRowLength() throws IOException {
+      int b = in.read();
+      if (b == -1) {
+        return -1;
+      }
+      int length = (b << 24) | (in.readUnsignedByte() << 16) | in.readUnsignedShort();
+      if (length < 0) {
+        throw new IOException("Invalid row length: " + length);
+      }
+      return length;
+    }
+
+    @Override
+    public void close() throws IOException {
+      in.close();
+    }
+  }
+
+  @NonNull
+  @Override
+  protected RecordWriter newSingleFileWriter(@NonNull Supplier<URL> destinations) {
+    return new BinaryRecordWriter(destinations);
+  }
+
+  private class BinaryRecordWriter implements RecordWriter {
+
+    private final Supplier<URL> destinations;
+
+    private URL url;
+    private DataOutputStream out;
+    private Field[] fields;
+    private String[] types;
+    private ByteBuffer[] values;
+    private long currentRecord;
+
+    private BinaryRecordWriter(Supplier<URL> destinations) {
+      this.destinations = destinations;
+    }
+
+    @Override
+    public void write(@NonNull Record record) throws IOException {
+      try {
+        if (out == null) {
+          open(record);
+        } else if (shouldRoll()) {
+          close();
+          open(record);
+        }
+        LOGGER.trace("Writing record {}", record);
+        int length = 0;
+        for (int i = 0; i < fields.length; i++) {
+          ByteBuffer value = toBytes(record.getFieldValue(fields[i]), fields[i]);
+          values[i] = value;
+          length += 4 + (value == null ? 0 : value.remaining());
+        }
+        out.writeInt(length);
+        for (ByteBuffer value : values) {
+          if (value == null) {
+            out.writeInt(-1);
+          } else {
+            out.writeInt(value.remaining());
+            writeBytes(value);
+          }
+        }
+        currentRecord++;
+      } catch (ClosedChannelException e) {
+        // OK, happens when the channel was closed due to interruption
+      } catch (RuntimeException e) {
+        throw new IOException(String.format("Error writing to %s", url), e);
+      }
+    }
+
+    private ByteBuffer toBytes(Object value, @NonNull Field field) {
+      if (value == null || value instanceof ByteBuffer) {
+        return (ByteBuffer) value;
+      }
+      throw new IllegalArgumentException(
+          String.format(
+              "Expecting serialized value of type java.nio.ByteBuffer for field %s, got %s",
+              field.getFieldDescription(), value.getClass().getName()));
+    }
+
+    private void writeBytes(@NonNull ByteBuffer value) throws IOException {
+      if (value.hasArray()) {
+        out.write(value.array(), value.arrayOffset() + value.position(), value.remaining());
+      } else {
+        byte[] bytes = new byte[value.remaining()];
+        value.duplicate().get(bytes);
+        out.write(bytes);
+      }
+    }
+
+    private boolean shouldRoll() {
+      return !roots.isEmpty() && currentRecord == maxRecords;
+    }
+
+    private void open(@NonNull Record record) throws IOException {
+      url = destinations.get();
+      try {
+        // the header is derived from the first record; all records unloaded by the same
+        // operation have the same fields
+        if (fields == null) {
+          Field[] fields = record.fields().toArray(new Field[0]);
+          types = new String[fields.length];
+          for (int i = 0; i < fields.length; i++) {
+            types[i] = typeSignature(columnTypes.getWriteType(fields[i]));
+          }
+          values = new ByteBuffer[fields.length];
+          this.fields = fields;
+        }
+        out = new DataOutputStream(newOutputStream(url));
+        out.write(MAGIC);
+        out.writeByte(FORMAT_VERSION);
+        out.writeInt(fields.length);
+        for (int i = 0; i < fields.length; i++) {
+          Field field = fields[i];
+          out.writeUTF(
+              field instanceof MappedField
+                  ? ((MappedField) field).getFieldName()
+                  : field.getFieldDescription());
+          out.writeUTF(types[i]);
+        }
+        currentRecord = 0;
+        LOGGER.debug("Writing " + url);
+      } catch (ClosedChannelException e) {
+        // OK, happens when the channel was closed due to interruption
+      } catch (RuntimeException | IOException e) {
+        throw new IOException(String.format("Error opening %s", url), e);
+      }
+    }
+
+    @Override
+    public void flush() throws IOException {
+      if (out != null) {
+        try {
+          out.flush();
+        } catch (ClosedChannelException e) {
+          // OK, happens when the channel was closed due to interruption
+        } catch (RuntimeException | IOException e) {
+          throw new IOException(String.format("Error flushing %s", url), e);
+        }
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (out != null) {
+        try {
+          out.close();
+          LOGGER.debug("Done writing {}", url);
+          out = null;
+        } catch (ClosedChannelException e) {
+          // OK, happens when the channel was closed due to interruption
+        } catch (RuntimeException | IOException e) {
+          throw new IOException(String.format("Error closing %s", url), e);
+        }
+      }
+    }
+  }
+}
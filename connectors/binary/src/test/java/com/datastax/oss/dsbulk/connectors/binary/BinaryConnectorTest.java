@@ -0,0 +1,528 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.dsbulk.connectors.binary;
+
+import static com.datastax.oss.dsbulk.tests.utils.FileUtils.deleteDirectory;
+import static com.datastax.oss.dsbulk.tests.utils.StringUtils.quoteJson;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.params.provider.Arguments.arguments;
+
+import com.datastax.oss.driver.api.core.ProtocolVersion;
+import com.datastax.oss.driver.api.core.data.UdtValue;
+import com.datastax.oss.driver.api.core.type.DataType;
+import com.datastax.oss.driver.api.core.type.DataTypes;
+import com.datastax.oss.driver.api.core.type.UserDefinedType;
+import com.datastax.oss.driver.api.core.type.codec.registry.CodecRegistry;
+import com.datastax.oss.driver.internal.core.type.UserDefinedTypeBuilder;
+import com.datastax.oss.dsbulk.connectors.api.DefaultIndexedField;
+import com.datastax.oss.dsbulk.connectors.api.DefaultMappedField;
+import com.datastax.oss.dsbulk.connectors.api.DefaultRecord;
+import com.datastax.oss.dsbulk.connectors.api.Field;
+import com.datastax.oss.dsbulk.connectors.api.Record;
+import com.datastax.oss.dsbulk.connectors.api.RecordMetadata;
+import com.datastax.oss.dsbulk.connectors.commons.FileBasedConnectorTestBase;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
+import reactor.core.publisher.Flux;
+
+class BinaryConnectorTest extends FileBasedConnectorTestBase<BinaryConnector> {
+
+  @Override
+  protected BinaryConnector newConnector() {
+    return new BinaryConnector();
+  }
+
+  @Override
+  protected String getFileExtension() {
+    return ".bin";
+  }
+
+  @Override
+  protected boolean supportsIndexedWrites() {
+    return true;
+  }
+
+  @Override
+  protected Object encode(Object value, DataType cqlType) {
+    return serialize(value, cqlType);
+  }
+
+  @Override
+  protected Object decode(Object value, DataType cqlType) {
+    return deserialize((ByteBuffer) value, cqlType);
+  }
+
+  @Test
+  void should_write_file_layout() throws Exception {
+    Path dir = Files.createTempDirectory("test");
+    try {
+      BinaryConnector connector = newWriteConnector(dir);
+      RecordMetadata metadata = connector.getRecordMetadata();
+      Field pk = new DefaultMappedField("pk");
+      Field blob = new DefaultMappedField("c_blob");
+      Field text = new DefaultMappedField("c_text");
+      assertThat(RecordMetadata.isRawBytes(metadata.getFieldType(pk, DataTypes.INT))).isTrue();
+      assertThat(RecordMetadata.isRawBytes(metadata.getFieldType(blob, DataTypes.BLOB))).isTrue();
+      assertThat(RecordMetadata.isRawBytes(metadata.getFieldType(text, DataTypes.TEXT))).isTrue();
+      DefaultRecord record = new DefaultRecord(null, resource, -1);
+      record.setFieldValue(pk, serialize(1, DataTypes.INT));
+      record.setFieldValue(blob, ByteBuffer.wrap(new byte[] {(byte) 0xCA, (byte) 0xFE}));
+      record.setFieldValue(text, null);
+      Flux.<Record>just(record).transform(connector.write()).blockLast();
+      connector.close();
+
+      try (DataInputStream in =
+          new DataInputStream(Files.newInputStream(dir.resolve("output-000001.bin")))) {
+        byte[] magic = new byte[4];
+        in.readFully(magic);
+        assertThat(new String(magic, StandardCharsets.US_ASCII)).isEqualTo("CQLB");
+        assertThat(in.readUnsignedByte()).isEqualTo(1);
+        assertThat(in.readInt()).isEqualTo(3);
+        assertThat(in.readUTF()).isEqualTo("pk");
+        assertThat(in.readUTF()).isEqualTo("int");
+        assertThat(in.readUTF()).isEqualTo("c_blob");
+        assertThat(in.readUTF()).isEqualTo("blob");
+        assertThat(in.readUTF()).isEqualTo("c_text");
+        assertThat(in.readUTF()).isEqualTo("text");
+        // row length, then each value's length and contents; nulls have a length of -1
+        assertThat(in.readInt()).isEqualTo(4 + 4 + 4 + 2 + 4);
+        assertThat(in.readInt()).isEqualTo(4);
+        assertThat(in.readInt()).isEqualTo(1);
+        assertThat(in.readInt()).isEqualTo(2);
+        assertThat(in.readUnsignedShort()).isEqualTo(0xCAFE);
+        assertThat(in.readInt()).isEqualTo(-1);
+        assertThat(in.read()).isEqualTo(-1);
+      }
+    } finally {
+      deleteDirectory(dir);
+    }
+  }
+
+  @Test
+  void should_write_values_that_are_views_of_larger_buffers() throws Exception {
+    Path dir = Files.createTempDirectory("test");
+    try {
+      BinaryConnector connector = newWriteConnector(dir);
+      Field heap = new DefaultMappedField("heap");
+      Field direct = new DefaultMappedField("direct");
+      connector.getRecordMetadata().getFieldType(heap, DataTypes.BLOB);
+      connector.getRecordMetadata().getFieldType(direct, DataTypes.BLOB);
+      // values read by the driver are usually slices of the response frame
+      ByteBuffer frame = ByteBuffer.wrap(new byte[] {9, 9, 1, 2, 3, 9});
+      frame.position(2).limit(5);
+      ByteBuffer directValue = ByteBuffer.allocateDirect(3).put(new byte[] {4, 5, 6});
+      directValue.flip();
+      DefaultRecord record = new DefaultRecord(null, resource, -1);
+      record.setFieldValue(heap, frame.slice());
+      record.setFieldValue(direct, directValue);
+      Flux.<Record>just(record).transform(connector.write()).blockLast();
+      connector.close();
+
+      connector = newReadConnector(dir.resolve("output-000001.bin"));
+      List<Record> records = Flux.merge(connector.read()).collectList().block();
+      connector.close();
+      assertThat(records).hasSize(1);
+      assertThat(records.get(0).getFieldValue(heap))
+          .isEqualTo(ByteBuffer.wrap(new byte[] {1, 2, 3}));
+      assertThat(records.get(0).getFieldValue(direct))
+          .isEqualTo(ByteBuffer.wrap(new byte[] {4, 5, 6}));
+    } finally {
+      deleteDirectory(dir);
+    }
+  }
+
+  @Test
+  void should_read_blob_values() throws Exception {
+    Path dir = Files.createTempDirectory("test");
+    try {
+      Path file = dir.resolve("blobs.bin");
+      // the first blob contains bytes that look like a header and a null marker
+      ByteBuffer blob =
+          ByteBuffer.wrap(
+              new byte[] {
+                'C', 'Q', 'L', 'B', 1, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF
+              });
+      writeBinaryFile(
+          file,
+          Arrays.asList("pk", "c_blob"),
+          Arrays.asList("int", "blob"),
+          new ByteBuffer[] {serialize(1, DataTypes.INT), blob},
+          new ByteBuffer[] {serialize(2, DataTypes.INT), ByteBuffer.allocate(0)},
+          new ByteBuffer[] {serialize(3, DataTypes.INT), null});
+      BinaryConnector connector = newReadConnector(file);
+      List<Record> records = Flux.merge(connector.read()).collectList().block();
+      connector.close();
+      assertThat(records).hasSize(3);
+      Field field = new DefaultMappedField("c_blob");
+      assertThat(records.get(0).getFieldValue(field)).isEqualTo(blob);
+      // empty blobs are not read as nulls
+      assertThat(records.get(1).getFieldValue(field)).isEqualTo(ByteBuffer.allocate(0));
+      assertThat(records.get(2).getFieldValue(field)).isNull();
+      assertThat(records)
+          .extracting(
+              record ->
+                  deserialize(
+                      (ByteBuffer) record.getFieldValue(new DefaultIndexedField(0)), DataTypes.INT))
+          .containsExactly(1, 2, 3);
+      assertThat(records).extracting(Record::getPosition).containsExactly(1L, 2L, 3L);
+    } finally {
+      deleteDirectory(dir);
+    }
+  }
+
+  @Test
+  void should_read_raw_values_of_columns_of_the_same_type() throws Exception {
+    Path dir = Files.createTempDirectory("test");
+    try {
+      UserDefinedType udt =
+          new UserDefinedTypeBuilder("ks1", "udt1")
+              .withField("f1", DataTypes.INT)
+              .withField("f2", DataTypes.listOf(DataTypes.TIMESTAMP))
+              .build();
+      DataType list = DataTypes.listOf(DataTypes.TEXT);
+      DataType map = DataTypes.mapOf(DataTypes.TEXT, DataTypes.BIGINT);
+      List<String> texts = Arrays.asList("a", "b");
+      Map<String, Long> longs = Collections.singletonMap("k1", 42L);
+      UdtValue udtValue = udt.newValue(12, Collections.singletonList(Instant.EPOCH));
+      Path file = dir.resolve("nested.bin");
+      writeBinaryFile(
+          file,
+          Arrays.asList("c_list", "c_map", "c_udt"),
+          Arrays.asList(
+              BinaryConnector.typeSignature(list),
+              BinaryConnector.typeSignature(map),
+              BinaryConnector.typeSignature(udt)),
+          new ByteBuffer[] {
+            serialize(texts, list), serialize(longs, map), serialize(udtValue, udt)
+          });
+      BinaryConnector connector = newReadConnector(file);
+      List<Record> records = Flux.merge(connector.read()).collectList().block();
+      connector.close();
+      assertThat(records).hasSize(1);
+      Record record = records.get(0);
+      assertThat(record.getSource()).isInstanceOf(String.class);
+
+      // target columns of the same type, frozen or not, and UDTs with the same fields but a
+      // different name, get raw values, which are bound without being converted
+      RecordMetadata metadata = connector.getRecordMetadata();
+      DataType frozenList = DataTypes.frozenListOf(DataTypes.TEXT);
+      UserDefinedType otherUdt =
+          new UserDefinedTypeBuilder("ks2", "udt2")
+              .withField("f1", DataTypes.INT)
+              .withField("f2", DataTypes.listOf(DataTypes.TIMESTAMP))
+              .frozen()
+              .build();
+      assertThat(
+              RecordMetadata.isRawBytes(
+                  metadata.getFieldType(new DefaultMappedField("c_list"), frozenList)))
+          .isTrue();
+      assertThat(
+              RecordMetadata.isRawBytes(
+                  metadata.getFieldType(new DefaultMappedField("c_udt"), otherUdt)))
+          .isTrue();
+      assertThat(
+              deserialize(
+                  (ByteBuffer) record.getFieldValue(new DefaultMappedField("c_list")), frozenList))
+          .isEqualTo(texts);
+      assertThat(
+              deserialize((ByteBuffer) record.getFieldValue(new DefaultMappedField("c_map")), map))
+          .isEqualTo(longs);
+      UdtValue actualUdt =
+          (UdtValue)
+              deserialize(
+                  (ByteBuffer) record.getFieldValue(new DefaultMappedField("c_udt")), otherUdt);
+      assertThat(actualUdt.getInt("f1")).isEqualTo(12);
+      assertThat(actualUdt.getList("f2", Instant.class)).containsExactly(Instant.EPOCH);
+
+      // UDTs whose fields are ordered differently would be decoded incorrectly
+      UserDefinedType reorderedUdt =
+          new UserDefinedTypeBuilder("ks1", "udt1")
+              .withField("f2", DataTypes.listOf(DataTypes.TIMESTAMP))
+              .withField("f1", DataTypes.INT)
+              .build();
+      assertThatThrownBy(() -> metadata.getFieldType(new DefaultMappedField("c_udt"), reorderedUdt))
+          .isInstanceOf(IllegalArgumentException.class)
+          .hasMessage(
+              "Field c_udt is of type udt<f1:int,f2:list<timestamp>> in the files read, "
+                  + "but the target type is udt<f2:list<timestamp>,f1:int>; "
+                  + "binary files can only be loaded into columns of the same type");
+    } finally {
+      deleteDirectory(dir);
+    }
+  }
+
+  @ParameterizedTest(name = "[{index}] {1}")
+  @MethodSource
+  void should_reject_invalid_files(
+      byte[] contents, Class<? extends Throwable> expectedCause, String expectedMessage)
+      throws Exception {
+    Path dir = Files.createTempDirectory("test");
+    try {
+      Path file = Files.write(dir.resolve("invalid.bin"), contents);
+      BinaryConnector connector = newReadConnector(file);
+      assertThatThrownBy(() -> Flux.merge(connector.read()).blockLast())
+          .hasStackTraceContaining("Error reading from " + file.toUri().toURL())
+          .hasRootCauseInstanceOf(expectedCause)
+          .satisfies(
+              error -> {
+                if (expectedMessage != null) {
+                  assertThat(error).hasRootCauseMessage(expectedMessage);
+                }
+              });
+      connector.close();
+    } finally {
+      deleteDirectory(dir);
+    }
+  }
+
+  @SuppressWarnings("unused")
+  private static Stream<Arguments> should_reject_invalid_files() throws IOException {
+    byte[] header = header(Collections.singletonList("pk"), Collections.singletonList("int"));
+    return Stream.of(
+        arguments(
+            "PAR1".getBytes(StandardCharsets.US_ASCII),
+            IOException.class,
+            "Not a binary file: invalid magic bytes"),
+        // a file shorter than the magic bytes
+        arguments(new byte[] {'C', 'Q'}, EOFException.class, null),
+        arguments(
+            new byte[] {'C', 'Q', 'L', 'B', 2, 0, 0, 0, 0},
+            IOException.class,
+            "Unsupported binary file version: 2, expecting 1"),
+        arguments(
+            concat(header, new byte[] {(byte) 0xFF, 0, 0, 0}),
+            IOException.class,
+            "Invalid row length: " + 0xFF000000),
+        // a row announcing 8 bytes, but containing only 4 of them
+        arguments(concat(header, new byte[] {0, 0, 0, 8, 0, 0, 0, 4}), EOFException.class, null));
+  }
+
+  @Test
+  void should_reject_columns_of_different_types() throws Exception {
+    Path dir = Files.createTempDirectory("test");
+    try {
+      writeIntegers(dir, 1);
+      BinaryConnector connector = newReadConnector(dir.resolve("output-000001.bin"));
+      assertThat(Flux.merge(connector.read()).count().block()).isOne();
+      RecordMetadata metadata = connector.getRecordMetadata();
+      assertThatThrownBy(
+              () -> metadata.getFieldType(new DefaultMappedField("pk"), DataTypes.BIGINT))
+          .isInstanceOf(IllegalArgumentException.class)
+          .hasMessage(
+              "Field pk is of type int in the files read, but the target type is bigint; "
+                  + "binary files can only be loaded into columns of the same type");
+      assertThatThrownBy(
+              () -> metadata.getFieldType(new DefaultMappedField("nonexistent"), DataTypes.INT))
+          .isInstanceOf(IllegalArgumentException.class)
+          .hasMessage("Unknown field: nonexistent");
+      connector.close();
+    } finally {
+      deleteDirectory(dir);
+    }
+  }
+
+  @Test
+  void should_write_and_read_compressed_files() throws Exception {
+    Path dir = Files.createTempDirectory("test");
+    try {
+      writeIntegers(dir, 1000, "compression", quoteJson("gzip"));
+      assertThat(
+              readIntegers(dir.resolve("output-000001.bin.gz"), "compression", quoteJson("gzip")))
+          .hasSize(1000)
+          .startsWith(0, 1, 2)
+          .endsWith(999);
+    } finally {
+      deleteDirectory(dir);
+    }
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"none", "gzip"})
+  void should_resume_inside_file_with_rows_of_variable_length(String compression) throws Exception {
+    Path dir = Files.createTempDirectory("test");
+    try {
+      BinaryConnector connector = newWriteConnector(dir, "compression", quoteJson(compression));
+      Field pk = new DefaultMappedField("pk");
+      Field blob = new DefaultMappedField("c_blob");
+      connector.getRecordMetadata().getFieldType(pk, DataTypes.INT);
+      connector.getRecordMetadata().getFieldType(blob, DataTypes.BLOB);
+      List<Record> records = new ArrayList<>();
+      for (int i = 0; i < 200; i++) {
+        DefaultRecord record = new DefaultRecord(null, resource, -1);
+        record.setFieldValue(pk, serialize(i, DataTypes.INT));
+        record.setFieldValue(blob, variableLengthBlob(i));
+        records.add(record);
+      }
+      Flux.fromIterable(records).transform(connector.write()).blockLast();
+      connector.close();
+
+      Path file = dir.resolve("output-000001.bin" + (compression.equals("gzip") ? ".gz" : ""));
+      connector = newReadConnector(file, "compression", quoteJson(compression));
+      connector.resume(
+          Collections.singletonMap(URI.create(file.toUri().toURL().toExternalForm()), 123L));
+      List<Record> actual = Flux.merge(connector.read()).collectList().block();
+      connector.close();
+      assertThat(actual).hasSize(77);
+      for (int i = 0; i < 77; i++) {
+        Record record = actual.get(i);
+        assertThat(record.getPosition()).isEqualTo(124 + i);
+        assertThat(deserialize((ByteBuffer) record.getFieldValue(pk), DataTypes.INT))
+            .isEqualTo(123 + i);
+        assertThat(record.getFieldValue(blob)).isEqualTo(variableLengthBlob(123 + i));
+      }
+    } finally {
+      deleteDirectory(dir);
+    }
+  }
+
+  @Test
+  void should_read_empty_file() throws Exception {
+    Path dir = Files.createTempDirectory("test");
+    try {
+      Path file = Files.createFile(dir.resolve("empty.bin"));
+      BinaryConnector connector = newReadConnector(file);
+      assertThat(Flux.merge(connector.read()).count().block()).isZero();
+      connector.close();
+    } finally {
+      deleteDirectory(dir);
+    }
+  }
+
+  @Test
+  void should_reject_values_that_are_not_serialized() throws Exception {
+    Path dir = Files.createTempDirectory("test");
+    try {
+      BinaryConnector connector = newWriteConnector(dir);
+      Field pk = new DefaultMappedField("pk");
+      connector.getRecordMetadata().getFieldType(pk, DataTypes.INT);
+      DefaultRecord record = new DefaultRecord(null, resource, -1);
+      record.setFieldValue(pk, 1);
+      assertThatThrownBy(() -> Flux.<Record>just(record).transform(connector.write()).blockLast())
+          .hasRootCauseInstanceOf(IllegalArgumentException.class)
+          .hasRootCauseMessage(
+              "Expecting serialized value of type java.nio.ByteBuffer for field pk, got java.lang.Integer");
+      connector.close();
+    } finally {
+      deleteDirectory(dir);
+    }
+  }
+
+  @Test
+  void should_compute_type_signatures() {
+    assertThat(BinaryConnector.typeSignature(DataTypes.TEXT)).isEqualTo("text");
+    assertThat(BinaryConnector.typeSignature(DataTypes.frozenSetOf(DataTypes.UUID)))
+        .isEqualTo("set<uuid>");
+    assertThat(
+            BinaryConnector.typeSignature(
+                DataTypes.mapOf(DataTypes.INT, DataTypes.tupleOf(DataTypes.TEXT, DataTypes.DATE))))
+        .isEqualTo("map<int,tuple<text,date>>");
+    assertThat(
+            BinaryConnector.typeSignature(
+                new UserDefinedTypeBuilder("ks1", "udt1")
+                    .withField("f1", DataTypes.INT)
+                    .withField("f2", DataTypes.listOf(DataTypes.TEXT))
+                    .frozen()
+                    .build()))
+        .isEqualTo("udt<f1:int,f2:list<text>>");
+    assertThat(BinaryConnector.typeSignature(DataTypes.custom("com.example.MyType")))
+        .isEqualTo("'com.example.MyType'");
+  }
+
+  /** Writes a binary file by hand, following the layout described in the connector's javadoc. */
+  private static void writeBinaryFile(
+      Path file, List<String> names, List<String> types, ByteBuffer[]... rows) throws IOException {
+    try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(file))) {
+      out.write(header(names, types));
+      for (ByteBuffer[] row : rows) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream rowOut = new DataOutputStream(bytes);
+        for (ByteBuffer value : row) {
+          if (value == null) {
+            rowOut.writeInt(-1);
+          } else {
+            byte[] contents = new byte[value.remaining()];
+            value.duplicate().get(contents);
+            rowOut.writeInt(contents.length);
+            rowOut.write(contents);
+          }
+        }
+        out.writeInt(bytes.size());
+        bytes.writeTo(out);
+      }
+    }
+  }
+
+  private static byte[] header(List<String> names, List<String> types) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.write("CQLB".getBytes(StandardCharsets.US_ASCII));
+    out.writeByte(1);
+    out.writeInt(names.size());
+    for (int i = 0; i < names.size(); i++) {
+      out.writeUTF(names.get(i));
+      out.writeUTF(types.get(i));
+    }
+    return bytes.toByteArray();
+  }
+
+  private static byte[] concat(byte[] first, byte[] second) {
+    byte[] result = Arrays.copyOf(first, first.length + second.length);
+    System.arraycopy(second, 0, result, first.length, second.length);
+    return result;
+  }
+
+  /**
+   * Returns a blob whose length varies widely with the row index, from empty to a few kilobytes;
+   * some rows have a null blob.
+   */
+  private static ByteBuffer variableLengthBlob(int i) {
+    if (i % 10 == 3) {
+      return null;
+    }
+    byte[] contents = new byte[(i * 97) % 5000];
+    Arrays.fill(contents, (byte) i);
+    return ByteBuffer.wrap(contents);
+  }
+
+  private static ByteBuffer serialize(Object value, DataType cqlType) {
+    return CodecRegistry.DEFAULT.codecFor(cqlType).encode(value, ProtocolVersion.DEFAULT);
+  }
+
+  private static Object deserialize(ByteBuffer bytes, DataType cqlType) {
+    return CodecRegistry.DEFAULT.codecFor(cqlType).decode(bytes, ProtocolVersion.DEFAULT);
+  }
+}
@@ -22,25 +22,44 @@ import com.datastax.oss.dsbulk.io.CompressedIOUtils;
 import com.datastax.oss.dsbulk.io.IOUtils;
 import com.typesafe.config.Config;
 import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
 import java.io.UncheckedIOException;
 import java.net.MalformedURLException;
+import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.FileSystemNotFoundException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.PathMatcher;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Deque;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Stream;
 import org.reactivestreams.Publisher;
 import org.slf4j.Logger;
@@ -64,6 +83,31 @@ public abstract class AbstractFileBasedConnector implements Connector {
   protected static final String MAX_CONCURRENT_FILES = "maxConcurrentFiles";
   protected static final String RECURSIVE = "recursive";
   protected static final String FILE_NAME_FORMAT = "fileNameFormat";
+  protected static final String SPLIT_SIZE = "splitSize";
+  protected static final String READ_MODE = "readMode";
+  protected static final String COMPRESSION_THREADS = "compressionThreads";
+  protected static final String COMPRESSION_BLOCK_SIZE = "compressionBlockSize";
+
+  /** How local, uncompressed files are read. */
+  protected enum ReadMode {
+    /** Files are read through buffered streams. */
+    BUFFERED,
+    /** Files are decoded directly from memory-mapped regions. */
+    MAPPED
+  }
+
+  /**
+   * The encodings that can be used when splitting files: in these encodings, the characters that
+   * {@link RecordBoundaryScanner}s look for are single bytes that never appear inside multi-byte
+   * sequences.
+   */
+  private static final Set<Charset> SPLITTABLE_ENCODINGS =
+      Collections.unmodifiableSet(
+          new HashSet<>(
+              Arrays.asList(
+                  StandardCharsets.UTF_8, StandardCharsets.US_ASCII, StandardCharsets.ISO_8859_1)));
+
+  private static final int BUFFER_SIZE = 64 * 1024;
 
   protected boolean read;
   protected boolean retainRecordSources;
@@ -79,6 +123,14 @@ public abstract class AbstractFileBasedConnector implements Connector {
   protected long maxRecords;
   protected int resourceCount;
   protected int maxConcurrentFiles;
+  protected long splitSize;
+  protected ReadMode readMode;
+  protected int additionalChunkCount;
+  protected int compressionThreads;
+  protected int compressionBlockSize;
+  protected ExecutorService compressionExecutor;
+  protected Map<URI, Long> resumePositions = Collections.emptyMap();
+  protected boolean resumingWrites;
   protected Deque<RecordWriter> writers;
   protected RecordWriter singleWriter;
   protected AtomicInteger fileCounter;
@@ -89,7 +141,7 @@ public abstract class AbstractFileBasedConnector implements Connector {
   @Override
   public int readConcurrency() {
     assert read;
-    return Math.min(resourceCount, maxConcurrentFiles);
+    return Math.min(resourceCount + additionalChunkCount, maxConcurrentFiles);
   }
 
   @Override
@@ -135,6 +187,26 @@ public abstract class AbstractFileBasedConnector implements Connector {
     }
     skipRecords = settings.getLong(SKIP_RECORDS);
     maxRecords = settings.getLong(MAX_RECORDS);
+    splitSize = settings.getBytes(SPLIT_SIZE);
+    readMode = settings.getEnum(ReadMode.class, READ_MODE);
+    compressionThreads = ConfigUtils.getThreads(settings, COMPRESSION_THREADS);
+    long blockSize = settings.getBytes(COMPRESSION_BLOCK_SIZE);
+    if (blockSize <= 0 || blockSize > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException(
+          String.format(
+              "Invalid value for connector.%s.%s: Expecting a positive size lesser than 2GB, got: %s",
+              getConnectorName(), COMPRESSION_BLOCK_SIZE, blockSize));
+    }
+    compressionBlockSize = (int) blockSize;
+  }
+
+  @Override
+  public void resume(@NonNull Map<URI, Long> positions) {
+    if (read) {
+      resumePositions = positions;
+    } else {
+      resumingWrites = true;
+    }
   }
 
   @Override
@@ -145,6 +217,17 @@ public abstract class AbstractFileBasedConnector implements Connector {
       processURLsForWrite();
       fileCounter = new AtomicInteger(0);
       nextWriterIndex = new AtomicInteger(0);
+      if (compressionThreads > 1 && CompressedIOUtils.isParallelCompressionSupported(compression)) {
+        AtomicInteger threadCounter = new AtomicInteger();
+        compressionExecutor =
+            Executors.newFixedThreadPool(
+                compressionThreads,
+                r -> {
+                  Thread thread = new Thread(r, "compressor-" + threadCounter.getAndIncrement());
+                  thread.setDaemon(true);
+                  return thread;
+                });
+      }
       if (!roots.isEmpty() && maxConcurrentFiles > 1) {
         writers = new ConcurrentLinkedDeque<>();
         for (int i = 0; i < maxConcurrentFiles; i++) {
@@ -162,7 +245,18 @@ public abstract class AbstractFileBasedConnector implements Connector {
     assert read;
     return Flux.concat(
             Flux.fromIterable(roots).flatMap(this::scanRootDirectory), Flux.fromIterable(files))
-        .map(url -> readSingleFile(url).transform(this::applyPerFileLimits));
+        .concatMap(
+            url -> {
+              long lastPosition = resumePositions.getOrDefault(resourceOf(url), 0L);
+              if (lastPosition > 0) {
+                return resumeFile(url, lastPosition);
+              }
+              Path file = getSplittableFile(url);
+              if (file == null) {
+                return Flux.just(readSingleFile(url).transform(this::applyPerFileLimits));
+              }
+              return splitFile(url, file, 0).map(this::readFileChunk);
+            });
   }
 
   @SuppressWarnings("BlockingMethodInNonBlockingContext")
@@ -227,33 +321,89 @@ public abstract class AbstractFileBasedConnector implements Connector {
     }
   }
 
+  @SuppressWarnings("BlockingMethodInNonBlockingContext")
+  @NonNull
+  @Override
+  public Function<Publisher<Record>, Publisher<Record>> write(@NonNull String partition) {
+    assert !read;
+    if (roots.isEmpty()) {
+      throw new UnsupportedOperationException(
+          "Partitioned writes are only supported when writing to a directory");
+    }
+    return records ->
+        Flux.using(
+            () -> newPartitionWriter(partition),
+            writer ->
+                Flux.from(records)
+                    .concatMap(
+                        record -> {
+                          try {
+                            writer.write(record);
+                            return Mono.just(record);
+                          } catch (Exception e) {
+                            return Mono.error(e);
+                          }
+                        },
+                        500)
+                    .concatWith(
+                        Flux.create(
+                            sink -> {
+                              try {
+                                writer.flush();
+                                writer.close();
+                                sink.complete();
+                              } catch (Exception e) {
+                                sink.error(e);
+                              }
+                            })),
+            writer -> {
+              try {
+                // no-op if the writer was closed already
+                writer.close();
+              } catch (IOException e) {
+                LOGGER.debug("Could not close writer for partition " + partition, e);
+              }
+            });
+  }
+
   @Override
   public void close() {
-    if (writers != null) {
-      IOException e = null;
-      for (RecordWriter writer : writers) {
-        try {
-          writer.flush();
-          writer.close();
-        } catch (IOException e1) {
-          if (e == null) {
-            e = e1;
-          } else {
-            e.addSuppressed(e1);
+    try {
+      if (writers != null) {
+        IOException e = null;
+        for (RecordWriter writer : writers) {
+          try {
+            writer.flush();
+            writer.close();
+          } catch (IOException e1) {
+            if (e == null) {
+              e = e1;
+            } else {
+              e.addSuppressed(e1);
+            }
           }
         }
+        if (e != null) {
+          throw new UncheckedIOException(e);
+        }
       }
-      if (e != null) {
-        throw new UncheckedIOException(e);
+      if (singleWriter != null) {
+        try {
+          singleWriter.flush();
+          singleWriter.close();
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
       }
+    } finally {
+      shutdownCompressionExecutor();
     }
-    if (singleWriter != null) {
-      try {
-        singleWriter.flush();
-        singleWriter.close();
-      } catch (IOException e) {
-        throw new UncheckedIOException(e);
-      }
+  }
+
+  private void shutdownCompressionExecutor() {
+    if (compressionExecutor != null) {
+      compressionExecutor.shutdownNow();
+      compressionExecutor = null;
     }
   }
 
@@ -302,6 +452,51 @@ public abstract class AbstractFileBasedConnector implements Connector {
   @NonNull
   protected abstract RecordReader newSingleFileReader(@NonNull URL url) throws IOException;
 
+  /**
+   * Returns a new {@link RecordBoundaryScanner} instance, or null if this connector cannot split
+   * files with its current configuration. Only used when reading. Each invocation of this method is
+   * expected to return a newly-allocated instance.
+   *
+   * <p>Connectors returning a non-null scanner must also override {@link
+   * #newFileChunkReader(FileChunk)}. This implementation returns null.
+   */
+  @Nullable
+  protected RecordBoundaryScanner newRecordBoundaryScanner() {
+    return null;
+  }
+
+  /**
+   * Returns a new {@link RecordReader} instance for the given chunk; cannot be null. Only used when
+   * reading, and only if {@link #newRecordBoundaryScanner()} returns a non-null scanner. Each
+   * invocation of this method is expected to return a newly-allocated instance, that can be used
+   * concurrently with readers of other chunks of the same file. The first record emitted by the
+   * reader must have the position {@link FileChunk#getFirstRecord()}.
+   *
+   * <p>This implementation throws {@link UnsupportedOperationException}.
+   *
+   * @see #newReader(FileChunk)
+   * @see FileChunk#getFileHeader()
+   */
+  @NonNull
+  protected RecordReader newFileChunkReader(@NonNull FileChunk chunk) throws IOException {
+    throw new UnsupportedOperationException(
+        getConnectorName() + " connector does not support reading file chunks");
+  }
+
+  /**
+   * Reads the header of the given file, if files in this connector's format start with one. Only
+   * used when reading, and only if {@link #newRecordBoundaryScanner()} returns a non-null scanner.
+   * This method is invoked once per split file, before the file is split, and the result is made
+   * available to the readers of all its chunks through {@link FileChunk#getFileHeader()}, so that
+   * they do not need to read the header again.
+   *
+   * <p>This implementation returns null.
+   */
+  @Nullable
+  protected Object readFileHeader(@NonNull URL url) throws IOException {
+    return null;
+  }
+
   /**
    * A reader for {@link Record}s. Implementors are not expected to deal with thread-safety issues,
    * these are handled by this class.
@@ -332,12 +527,146 @@ public abstract class AbstractFileBasedConnector implements Connector {
     void close() throws IOException;
   }
 
+  /**
+   * Opens a reader for the given URL, honoring the configured compression and {@linkplain ReadMode
+   * read mode}. Local, uncompressed files are memory-mapped when the read mode is {@link
+   * ReadMode#MAPPED}; all other URLs are read through buffered streams.
+   *
+   * @param url The URL to read.
+   * @return A reader that decodes the URL's contents with the configured encoding.
+   * @throws IOException If the URL cannot be opened.
+   */
+  @NonNull
+  protected Reader newReader(@NonNull URL url) throws IOException {
+    if (readMode == ReadMode.MAPPED
+        && CompressedIOUtils.isNoneCompression(compression)
+        && url.getProtocol().equals("file")) {
+      try {
+        Path file = Paths.get(url.toURI());
+        if (Files.isRegularFile(file)) {
+          return IOUtils.newMappedReader(file, 0, Files.size(file), encoding);
+        }
+      } catch (URISyntaxException | FileSystemNotFoundException e) {
+        LOGGER.debug("Could not map " + url + ", it will be read through a stream", e);
+      }
+    }
+    return CompressedIOUtils.newBufferedReader(url, encoding, compression, compressionThreads > 1);
+  }
+
+  /**
+   * Opens a writer for the given URL, honoring the configured compression. Gzip and zstd contents
+   * are compressed in parallel blocks when more than one {@linkplain #COMPRESSION_THREADS
+   * compression thread} is configured.
+   *
+   * @param url The URL to write.
+   * @return A writer that encodes its contents with the configured encoding.
+   * @throws IOException If the URL cannot be opened.
+   */
+  @NonNull
+  protected BufferedWriter newWriter(@NonNull URL url) throws IOException {
+    return CompressedIOUtils.newBufferedWriter(
+        url, encoding, compression, compressionExecutor, compressionBlockSize, compressionThreads);
+  }
+
+  /**
+   * Opens a binary stream for the given URL, honoring the configured compression. Meant for
+   * connectors reading binary formats; text formats should use {@link #newReader(URL)} instead.
+   *
+   * @param url The URL to read.
+   * @return A buffered stream of the URL's decompressed contents.
+   * @throws IOException If the URL cannot be opened.
+   */
+  @NonNull
+  protected InputStream newInputStream(@NonNull URL url) throws IOException {
+    return CompressedIOUtils.newBufferedInputStream(url, compression, compressionThreads > 1);
+  }
+
+  /**
+   * Opens a binary stream for the given URL, honoring the configured compression. Meant for
+   * connectors writing binary formats; text formats should use {@link #newWriter(URL)} instead.
+   *
+   * @param url The URL to write.
+   * @return A buffered stream that compresses its contents with the configured compression.
+   * @throws IOException If the URL cannot be opened.
+   */
+  @NonNull
+  protected OutputStream newOutputStream(@NonNull URL url) throws IOException {
+    return CompressedIOUtils.newBufferedOutputStream(
+        url, compression, compressionExecutor, compressionBlockSize, compressionThreads);
+  }
+
+  /**
+   * Opens a reader for the given chunk, honoring the configured {@linkplain ReadMode read mode}. In
+   * {@link ReadMode#BUFFERED} mode, the chunk is read with positioned reads on a dedicated file
+   * channel.
+   *
+   * @param chunk The chunk to read.
+   * @return A reader that reads the chunk's bytes only, decoded with the configured encoding.
+   * @throws IOException If the file cannot be opened.
+   */
+  @NonNull
+  protected Reader newReader(@NonNull FileChunk chunk) throws IOException {
+    if (readMode == ReadMode.MAPPED) {
+      return IOUtils.newMappedReader(chunk.getFile(), chunk.getStart(), chunk.getEnd(), encoding);
+    }
+    FileChannel channel = FileChannel.open(chunk.getFile(), StandardOpenOption.READ);
+    InputStream in = new FileChunkInputStream(channel, chunk.getStart(), chunk.getEnd());
+    return new BufferedReader(
+        new InputStreamReader(new BufferedInputStream(in, BUFFER_SIZE), encoding), BUFFER_SIZE);
+  }
+
+  /**
+   * Returns a new {@link RecordWriter} instance that writes to the {@linkplain
+   * #getOrCreateDestinationURL() default destinations}; cannot be null. Only used when writing.
+   * Each invocation of this method is expected to return a newly-allocated instance.
+   */
+  @NonNull
+  protected RecordWriter newSingleFileWriter() {
+    return newSingleFileWriter(this::getOrCreateDestinationURL);
+  }
+
   /**
    * Returns a new {@link RecordWriter} instance; cannot be null. Only used when writing. Each
    * invocation of this method is expected to return a newly-allocated instance.
+   *
+   * @param destinations The supplier of URLs to write to; invoked each time the writer opens a new
+   *     file.
    */
   @NonNull
-  protected abstract RecordWriter newSingleFileWriter();
+  protected abstract RecordWriter newSingleFileWriter(@NonNull Supplier<URL> destinations);
+
+  /**
+   * Returns a new {@link RecordWriter} instance that writes to files dedicated to the given
+   * partition, named after the {@link #FILE_NAME_FORMAT file name format} prefixed with the
+   * partition name. Files previously written for the partition are deleted first.
+   */
+  @NonNull
+  private RecordWriter newPartitionWriter(@NonNull String partition) throws IOException {
+    Path root = roots.get(0); // for UNLOAD always one URL
+    int existing = 0;
+    while (Files.deleteIfExists(root.resolve(partitionFileName(partition, existing + 1)))) {
+      existing++;
+    }
+    if (existing > 0) {
+      LOGGER.debug("Deleted {} file(s) previously written for partition {}", existing, partition);
+    }
+    AtomicInteger counter = new AtomicInteger();
+    return newSingleFileWriter(
+        () -> {
+          String next = partitionFileName(partition, counter.incrementAndGet());
+          try {
+            return root.resolve(next).toUri().toURL();
+          } catch (MalformedURLException e) {
+            throw new UncheckedIOException(
+                String.format("Could not create file URL with format %s", fileNameFormat), e);
+          }
+        });
+  }
+
+  @NonNull
+  private String partitionFileName(@NonNull String partition, int counter) {
+    return partition + '-' + String.format(fileNameFormat, counter);
+  }
 
   /**
    * A writer for {@link Record}s. Implementors are not expected to deal with thread-safety issues,
@@ -431,6 +760,7 @@ public abstract class AbstractFileBasedConnector implements Connector {
    */
   protected void processURLsForRead() throws URISyntaxException, IOException {
     resourceCount = 0;
+    additionalChunkCount = 0;
     for (URL u : urls) {
       try {
         Path root = Paths.get(u.toURI());
@@ -440,8 +770,9 @@ public abstract class AbstractFileBasedConnector implements Connector {
                 String.format("Directory is not readable: %s.", root));
           }
           roots.add(root);
-          int inDirectoryResourceCount =
-              Objects.requireNonNull(scanRootDirectory(root).take(1000).count().block()).intValue();
+          List<URL> inDirectoryResources =
+              Objects.requireNonNull(scanRootDirectory(root).take(1000).collectList().block());
+          int inDirectoryResourceCount = inDirectoryResources.size();
           if (inDirectoryResourceCount == 0) {
             if (IOUtils.countReadableFiles(root, recursive) == 0) {
               LOGGER.warn("Directory {} has no readable files.", root);
@@ -454,8 +785,12 @@ public abstract class AbstractFileBasedConnector implements Connector {
             }
           }
           resourceCount += inDirectoryResourceCount;
+          for (URL resource : inDirectoryResources) {
+            additionalChunkCount += estimateChunkCount(resource) - 1;
+          }
         } else {
           resourceCount += 1;
+          additionalChunkCount += estimateChunkCount(u) - 1;
           files.add(u);
         }
       } catch (FileSystemNotFoundException ignored) {
@@ -487,7 +822,8 @@ public abstract class AbstractFileBasedConnector implements Connector {
         if (!Files.isWritable(root)) {
           throw new IllegalArgumentException(String.format("Directory is not writable: %s.", root));
         }
-        if (IOUtils.isDirectoryNonEmpty(root)) {
+        // when resuming, the directory contains the files written by the resumed operation
+        if (!resumingWrites && IOUtils.isDirectoryNonEmpty(root)) {
           throw new IllegalArgumentException(
               String.format(
                   "Invalid value for connector.%s.url: target directory "
@@ -531,6 +867,173 @@ public abstract class AbstractFileBasedConnector implements Connector {
     }
   }
 
+  /**
+   * Returns the local file to read if the given URL can be split in chunks read in parallel, or
+   * null if it must be read as a whole by a single reader.
+   *
+   * <p>A file can be split if it can be {@linkplain #getScannableFile(URL) scanned} and if it is
+   * larger than the split size.
+   */
+  @Nullable
+  protected Path getSplittableFile(@NonNull URL url) {
+    if (splitSize <= 0) {
+      return null;
+    }
+    Path file = getScannableFile(url);
+    try {
+      return file != null && Files.size(file) > splitSize ? file : null;
+    } catch (IOException e) {
+      LOGGER.debug("Could not inspect " + url + ", it will not be split", e);
+      return null;
+    }
+  }
+
+  /**
+   * Returns the local file to read if record boundaries can be found in the given URL by scanning
+   * its raw bytes, or null otherwise.
+   *
+   * <p>A file can be scanned if it is an uncompressed local file, if its encoding is {@linkplain
+   * #SPLITTABLE_ENCODINGS compatible} with byte-level scanning, if no per-file limits are in place,
+   * and if the connector {@linkplain #newRecordBoundaryScanner() supports} scanning with its
+   * current configuration.
+   */
+  @Nullable
+  protected Path getScannableFile(@NonNull URL url) {
+    if (!CompressedIOUtils.isNoneCompression(compression)
+        || skipRecords > 0
+        || maxRecords != -1
+        || !SPLITTABLE_ENCODINGS.contains(encoding)
+        || !url.getProtocol().equals("file")
+        || newRecordBoundaryScanner() == null) {
+      return null;
+    }
+    try {
+      Path file = Paths.get(url.toURI());
+      return Files.isRegularFile(file) ? file : null;
+    } catch (URISyntaxException | RuntimeException e) {
+      LOGGER.debug("Could not inspect " + url + ", it will not be scanned", e);
+      return null;
+    }
+  }
+
+  /**
+   * Reads the records of the given URL that were not processed by a previous operation.
+   *
+   * <p>If the URL can be {@linkplain #getScannableFile(URL) scanned}, the processed records are
+   * skipped by scanning the file's raw bytes, without parsing them, and the rest of the file is
+   * read in chunks; otherwise, the whole URL is parsed and the processed records are discarded.
+   *
+   * @param url The URL to read.
+   * @param lastPosition The position of the last record processed by the previous operation.
+   */
+  @NonNull
+  private Flux<Flux<Record>> resumeFile(@NonNull URL url, long lastPosition) {
+    // the scanned file may end without a record terminator after the last processed record
+    Function<Flux<Record>, Flux<Record>> skipProcessed =
+        records -> records.filter(record -> record.getPosition() > lastPosition);
+    Path file = getScannableFile(url);
+    if (file == null) {
+      LOGGER.debug("Resuming {} after record {}, parsing skipped records", url, lastPosition);
+      return Flux.just(
+          readSingleFile(url).transform(this::applyPerFileLimits).transform(skipProcessed));
+    }
+    LOGGER.debug("Resuming {} after record {}", url, lastPosition);
+    return splitFile(url, file, lastPosition)
+        .map(chunk -> readFileChunk(chunk).transform(skipProcessed));
+  }
+
+  @NonNull
+  private static URI resourceOf(@NonNull URL url) {
+    return URI.create(url.toExternalForm());
+  }
+
+  /**
+   * Returns the estimated number of chunks that the given URL will be split in; this is 1 if the
+   * URL cannot be split.
+   */
+  private int estimateChunkCount(@NonNull URL url) {
+    Path file = getSplittableFile(url);
+    if (file == null) {
+      return 1;
+    }
+    try {
+      long chunks = (Files.size(file) + splitSize - 1) / splitSize;
+      return (int) Math.min(Integer.MAX_VALUE, chunks);
+    } catch (IOException e) {
+      return 1;
+    }
+  }
+
+  /**
+   * Splits the given file in chunks aligned to record boundaries. Chunks are computed lazily, as
+   * the file is scanned.
+   *
+   * @param url The URL of the file.
+   * @param file The file to split.
+   * @param skippedRecords The number of records to skip at the beginning of the file; the first
+   *     chunk starts right after them.
+   */
+  @NonNull
+  protected Flux<FileChunk> splitFile(@NonNull URL url, @NonNull Path file, long skippedRecords) {
+    return Flux.generate(
+        () -> {
+          Object header = readFileHeader(url);
+          FileSplitter splitter =
+              new FileSplitter(
+                  url,
+                  file,
+                  splitSize > 0 ? splitSize : Long.MAX_VALUE,
+                  newRecordBoundaryScanner(),
+                  header);
+          if (skippedRecords > 0 && !splitter.skipRecords(skippedRecords)) {
+            LOGGER.debug("{} was fully processed, skipping", url);
+          }
+          return splitter;
+        },
+        (splitter, sink) -> {
+          try {
+            FileChunk chunk = splitter.nextChunk();
+            if (chunk == null) {
+              LOGGER.debug("Done splitting {}", url);
+              sink.complete();
+            } else {
+              LOGGER.debug("Reading chunk {}", chunk);
+              sink.next(chunk);
+            }
+          } catch (IOException e) {
+            sink.error(new IOException(String.format("Error splitting %s", url), e));
+          }
+          return splitter;
+        },
+        splitter -> {
+          try {
+            splitter.close();
+          } catch (IOException e) {
+            LOGGER.error("Error closing " + url, e);
+          }
+        });
+  }
+
+  /**
+   * Reads a single chunk of a file, as computed by {@link #splitFile(URL, Path, long)}.
+   *
+   * @param chunk The chunk to read.
+   * @return A stream of {@link Record}s; never null but may be empty.
+   */
+  @NonNull
+  protected Flux<Record> readFileChunk(@NonNull FileChunk chunk) {
+    return Flux.generate(
+        () -> newFileChunkReader(chunk),
+        RecordReader::readNext,
+        recordReader -> {
+          try {
+            recordReader.close();
+          } catch (IOException e) {
+            LOGGER.error("Error closing " + chunk, e);
+          }
+        });
+  }
+
   /**
    * Applies per-file limits to a stream of records coming from {@link
    * #readSingleFile(java.net.URL)}.
@@ -0,0 +1,125 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.dsbulk.connectors.commons;
+
+import com.datastax.oss.driver.api.core.type.DataType;
+import com.datastax.oss.dsbulk.connectors.api.DefaultMappedField;
+import com.datastax.oss.dsbulk.connectors.api.Field;
+import com.datastax.oss.dsbulk.connectors.api.MappedField;
+import com.datastax.oss.dsbulk.connectors.api.RecordShape;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.io.IOException;
+import java.net.URL;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The types of the fields read or written by a connector whose files declare a schema, such as Avro
+ * or Parquet files.
+ *
+ * <p>When reading, the schema of each file is registered before its records are read: files having
+ * the same field names share the same {@linkplain RecordShape record shape}, and each field, mapped
+ * or indexed, must have the same type in all the files read. When writing, the CQL types of the
+ * fields to write are registered as the workflow asks for the connector's record metadata.
+ *
+ * @param <T> the types declared by file schemas.
+ */
+public class FieldTypeRegistry<T> {
+
+  /** Record shapes built from file schemas, shared by all files having the same field names. */
+  private final ConcurrentMap<List<String>, RecordShape> shapes = new ConcurrentHashMap<>();
+
+  /** When reading, the types of the fields found in the files read so far. */
+  private final ConcurrentMap<Field, T> readTypes = new ConcurrentHashMap<>();
+
+  /** When writing, the CQL types of the fields to write. */
+  private final ConcurrentMap<Field, DataType> writeTypes = new ConcurrentHashMap<>();
+
+  /**
+   * Registers the fields of a file schema and their types, and returns the shape of the records
+   * having this schema.
+   *
+   * @param names the field names, in schema order.
+   * @param types the field types, in schema order.
+   * @param url the file, for error reports.
+   * @return the shape of the records of the file, with mapped and indexed fields.
+   * @throws IOException if a field has a type different from the one it had in previously
+   *     registered files.
+   */
+  @NonNull
+  public RecordShape registerSchema(
+      @NonNull List<String> names, @NonNull List<T> types, @NonNull URL url) throws IOException {
+    RecordShape shape =
+        shapes.computeIfAbsent(
+            names,
+            n ->
+                RecordShape.mappedAndIndexed(
+                    n.stream().map(DefaultMappedField::new).toArray(MappedField[]::new)));
+    for (int i = 0; i < names.size(); i++) {
+      T type = types.get(i);
+      registerReadType(shape.getField(i), type, url);
+      // indexed fields are shared by all shapes: files must also agree on the type at each index
+      registerReadType(shape.getField(names.size() + i), type, url);
+    }
+    return shape;
+  }
+
+  private void registerReadType(@NonNull Field field, @NonNull T type, @NonNull URL url)
+      throws IOException {
+    T previous = readTypes.putIfAbsent(field, type);
+    if (previous != null && !previous.equals(type)) {
+      throw new IOException(
+          String.format(
+              "Field %s is of type %s in %s, but of type %s in previously read files",
+              field.getFieldDescription(), type, url, previous));
+    }
+  }
+
+  /**
+   * Returns the type of the given field, as declared by the files read so far.
+   *
+   * @throws IllegalArgumentException if no file read so far declares this field.
+   */
+  @NonNull
+  public T getReadType(@NonNull Field field) {
+    T type = readTypes.get(field);
+    if (type == null) {
+      throw new IllegalArgumentException("Unknown field: " + field.getFieldDescription());
+    }
+    return type;
+  }
+
+  /** Registers the CQL type of a field to write; the first type registered for a field wins. */
+  public void registerWriteType(@NonNull Field field, @NonNull DataType cqlType) {
+    writeTypes.putIfAbsent(field, cqlType);
+  }
+
+  /**
+   * Returns the CQL type of the given field to write.
+   *
+   * @throws IllegalArgumentException if no CQL type was registered for this field.
+   */
+  @NonNull
+  public DataType getWriteType(@NonNull Field field) {
+    DataType cqlType = writeTypes.get(field);
+    if (cqlType == null) {
+      throw new IllegalArgumentException(
+          "Unknown CQL type for field: " + field.getFieldDescription());
+    }
+    return cqlType;
+  }
+}
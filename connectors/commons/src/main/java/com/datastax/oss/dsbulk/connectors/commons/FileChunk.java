@@ -0,0 +1,108 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.dsbulk.connectors.commons;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import java.net.URL;
+import java.nio.file.Path;
+
+/**
+ * A range of bytes inside a local file, aligned to record boundaries, that can be read
+ * independently of the rest of the file.
+ *
+ * @see RecordBoundaryScanner
+ */
+public final class FileChunk {
+
+  private final URL url;
+  private final Path file;
+  private final int index;
+  private final long start;
+  private final long end;
+  private final long firstRecord;
+  @Nullable private final Object fileHeader;
+
+  FileChunk(
+      @NonNull URL url,
+      @NonNull Path file,
+      int index,
+      long start,
+      long end,
+      long firstRecord,
+      @Nullable Object fileHeader) {
+    this.url = url;
+    this.file = file;
+    this.index = index;
+    this.start = start;
+    this.end = end;
+    this.firstRecord = firstRecord;
+    this.fileHeader = fileHeader;
+  }
+
+  /** @return the URL of the file this chunk belongs to. */
+  @NonNull
+  public URL getUrl() {
+    return url;
+  }
+
+  /** @return the file this chunk belongs to. */
+  @NonNull
+  public Path getFile() {
+    return file;
+  }
+
+  /**
+   * @return the zero-based index of this chunk in its file; only the chunk at index zero starts at
+   *     the beginning of the file. When resuming a previous operation, the first chunk read may
+   *     have a non-zero index.
+   */
+  public int getIndex() {
+    return index;
+  }
+
+  /** @return the offset of the first byte of this chunk, inclusive. */
+  public long getStart() {
+    return start;
+  }
+
+  /** @return the offset of the last byte of this chunk, exclusive. */
+  public long getEnd() {
+    return end;
+  }
+
+  /**
+   * @return the position, in the whole file, of the first record in this chunk; this is the
+   *     position that should be assigned to the first record read from this chunk.
+   */
+  public long getFirstRecord() {
+    return firstRecord;
+  }
+
+  /**
+   * @return the header of the file this chunk belongs to, as read once for the whole file by {@link
+   *     AbstractFileBasedConnector#readFileHeader(URL)}; null if the file has no header.
+   */
+  @Nullable
+  public Object getFileHeader() {
+    return fileHeader;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s [%d, %d)", url, start, end);
+  }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.dsbulk.connectors.commons;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Splits a file in {@linkplain FileChunk chunks} of approximately the given size, aligned to the
+ * record boundaries found by a {@link RecordBoundaryScanner}.
+ *
+ * <p>The file is scanned sequentially, and chunks are computed lazily: each chunk is returned as
+ * soon as its end boundary is found, so that it can be parsed while the rest of the file is being
+ * scanned.
+ */
+class FileSplitter implements AutoCloseable {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final URL url;
+  private final Path file;
+  private final long splitSize;
+  private final RecordBoundaryScanner scanner;
+  @Nullable private final Object header;
+  private final FileChannel channel;
+  private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+  private long position;
+  private int index;
+  private boolean done;
+
+  FileSplitter(
+      @NonNull URL url,
+      @NonNull Path file,
+      long splitSize,
+      @NonNull RecordBoundaryScanner scanner,
+      @Nullable Object header)
+      throws IOException {
+    this.url = url;
+    this.file = file;
+    this.splitSize = splitSize;
+    this.scanner = scanner;
+    this.header = header;
+    channel = FileChannel.open(file, StandardOpenOption.READ);
+    buffer.flip();
+  }
+
+  /**
+   * Skips the beginning of the file, up to and including the given record, so that the next chunk
+   * starts right after that record. This must be called before any chunk is computed.
+   *
+   * @param lastRecord the last record to skip.
+   * @return true if the record was found; false if the end of the file was reached before the
+   *     record was terminated, in which case there are no more chunks to read.
+   */
+  boolean skipRecords(long lastRecord) throws IOException {
+    byte[] bytes = buffer.array();
+    while (scanner.getRecordCount() < lastRecord) {
+      if (!buffer.hasRemaining()) {
+        buffer.clear();
+        if (channel.read(buffer, position) == -1) {
+          done = true;
+          return false;
+        }
+        buffer.flip();
+      }
+      int offset = buffer.position();
+      int limit = buffer.limit();
+      long base = position - offset;
+      while (offset < limit) {
+        if (scanner.next(bytes[offset++]) && scanner.getRecordCount() >= lastRecord) {
+          buffer.position(offset);
+          position = base + offset;
+          // the next chunk is not the first one: it does not start with a header
+          index = 1;
+          return true;
+        }
+      }
+      buffer.position(limit);
+      position = base + limit;
+    }
+    return true;
+  }
+
+  /** @return the next chunk, or null if the whole file has been split. */
+  @Nullable
+  FileChunk nextChunk() throws IOException {
+    if (done) {
+      return null;
+    }
+    long start = position;
+    long firstRecord = scanner.getRecordCount() + 1;
+    byte[] bytes = buffer.array();
+    while (true) {
+      if (!buffer.hasRemaining()) {
+        buffer.clear();
+        if (channel.read(buffer, position) == -1) {
+          done = true;
+          return position > start
+              ? new FileChunk(url, file, index++, start, position, firstRecord, header)
+              : null;
+        }
+        buffer.flip();
+      }
+      int offset = buffer.position();
+      int limit = buffer.limit();
+      // the offset, in the file, of the first byte in the buffer
+      long base = position - offset;
+      while (offset < limit) {
+        if (scanner.next(bytes[offset++]) && base + offset - start >= splitSize) {
+          buffer.position(offset);
+          position = base + offset;
+          return new FileChunk(url, file, index++, start, position, firstRecord, header);
+        }
+      }
+      buffer.position(limit);
+      position = base + limit;
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+}
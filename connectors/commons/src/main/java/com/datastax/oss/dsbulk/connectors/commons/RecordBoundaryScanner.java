@@ -0,0 +1,48 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.dsbulk.connectors.commons;
+
+/**
+ * Scans the raw bytes of a text file to find record boundaries, so that the file can be split in
+ * chunks that can be parsed independently of each other.
+ *
+ * <p>Bytes are fed sequentially, starting from the beginning of the file; implementors are thus
+ * expected to track whatever state is required to decide whether a line break actually terminates a
+ * record, e.g. whether it appears inside a quoted field.
+ *
+ * <p>Scanners operate on bytes, not characters; they can only be used with encodings where the
+ * characters they look for are encoded as single bytes that never appear inside multi-byte
+ * sequences, such as UTF-8 or ISO-8859-1.
+ *
+ * <p>Implementors are not expected to deal with thread-safety issues; each file being split gets
+ * its own scanner instance.
+ */
+public interface RecordBoundaryScanner {
+
+  /**
+   * Scans the next byte.
+   *
+   * @param b the next byte in the file.
+   * @return true if this byte terminates a record, that is, if a chunk can start right after it.
+   */
+  boolean next(byte b);
+
+  /**
+   * @return the number of records terminated so far; this should match the number of records that
+   *     the connector emits when reading the bytes scanned so far.
+   */
+  long getRecordCount();
+}
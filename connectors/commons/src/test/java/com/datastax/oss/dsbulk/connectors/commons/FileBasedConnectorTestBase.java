@@ -0,0 +1,234 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.dsbulk.connectors.commons;
+
+import static com.datastax.oss.dsbulk.tests.utils.FileUtils.deleteDirectory;
+import static com.datastax.oss.dsbulk.tests.utils.StringUtils.quoteJson;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.datastax.oss.driver.api.core.type.DataType;
+import com.datastax.oss.driver.api.core.type.DataTypes;
+import com.datastax.oss.dsbulk.connectors.api.CommonConnectorFeature;
+import com.datastax.oss.dsbulk.connectors.api.DefaultMappedField;
+import com.datastax.oss.dsbulk.connectors.api.DefaultRecord;
+import com.datastax.oss.dsbulk.connectors.api.Field;
+import com.datastax.oss.dsbulk.connectors.api.Record;
+import com.datastax.oss.dsbulk.tests.utils.TestConfigUtils;
+import com.datastax.oss.dsbulk.url.BulkLoaderURLStreamHandlerFactory;
+import com.typesafe.config.Config;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+/**
+ * Checks the contract shared by all connectors writing records to files of their own format, and
+ * reading them back: resuming reads, skipping and limiting records, rolling files and reporting
+ * features.
+ *
+ * <p>The records written by this class have an {@code int} field named {@code pk} and a {@code
+ * text} field named {@code value}.
+ */
+public abstract class FileBasedConnectorTestBase<C extends AbstractFileBasedConnector> {
+
+  static {
+    BulkLoaderURLStreamHandlerFactory.install();
+  }
+
+  protected final URI resource = URI.create("cql://ks1/table1");
+
+  /** @return a new, unconfigured instance of the connector under test. */
+  protected abstract C newConnector();
+
+  /** @return the extension of the files written by the connector, e.g. {@code ".avro"}. */
+  protected abstract String getFileExtension();
+
+  /**
+   * @return additional settings making the connector write files made of many small blocks; by
+   *     default, none.
+   */
+  protected Object[] getMultiBlockWriteSettings() {
+    return new Object[0];
+  }
+
+  /**
+   * @return additional settings making the connector read a file in parallel chunks; by default,
+   *     none.
+   */
+  protected Object[] getParallelReadSettings() {
+    return new Object[0];
+  }
+
+  /** @return whether the connector supports indexed records when writing. */
+  protected boolean supportsIndexedWrites() {
+    return false;
+  }
+
+  /** Converts the given value to the form expected by the connector when writing. */
+  protected Object encode(Object value, DataType cqlType) {
+    return value;
+  }
+
+  /** Converts the given value read by the connector back to a Java value. */
+  protected Object decode(Object value, DataType cqlType) {
+    return value;
+  }
+
+  @Test
+  void should_resume_after_last_processed_record() throws Exception {
+    Path dir = Files.createTempDirectory("test");
+    try {
+      writeIntegers(dir, 1000, getMultiBlockWriteSettings());
+      Path file = dir.resolve("output-000001" + getFileExtension());
+      C connector = newReadConnector(file, getParallelReadSettings());
+      connector.resume(
+          Collections.singletonMap(URI.create(file.toUri().toURL().toExternalForm()), 550L));
+      List<Record> records = Flux.merge(connector.read()).collectList().block();
+      connector.close();
+      assertThat(records).hasSize(450);
+      records.sort(Comparator.comparingLong(Record::getPosition));
+      for (int i = 0; i < 450; i++) {
+        assertThat(records.get(i).getPosition()).isEqualTo(551 + i);
+        assertThat(pk(records.get(i))).isEqualTo(550 + i);
+      }
+    } finally {
+      deleteDirectory(dir);
+    }
+  }
+
+  @Test
+  void should_honor_max_records_and_skip_records() throws Exception {
+    Path dir = Files.createTempDirectory("test");
+    try {
+      writeIntegers(dir, 1000, getMultiBlockWriteSettings());
+      C connector =
+          newReadConnector(
+              dir.resolve("output-000001" + getFileExtension()),
+              "skipRecords",
+              10,
+              "maxRecords",
+              5);
+      assertThat(connector.readConcurrency()).isOne();
+      List<Object> values = Flux.merge(connector.read()).map(this::pk).collectList().block();
+      connector.close();
+      assertThat(values).containsExactly(10, 11, 12, 13, 14);
+    } finally {
+      deleteDirectory(dir);
+    }
+  }
+
+  @Test
+  void should_roll_file_when_max_records_reached() throws Exception {
+    Path dir = Files.createTempDirectory("test");
+    try {
+      writeIntegers(dir, 5, "maxRecords", 3);
+      assertThat(readIntegers(dir.resolve("output-000001" + getFileExtension())))
+          .containsExactly(0, 1, 2);
+      assertThat(readIntegers(dir.resolve("output-000002" + getFileExtension())))
+          .containsExactly(3, 4);
+    } finally {
+      deleteDirectory(dir);
+    }
+  }
+
+  @Test
+  void should_report_supported_features() throws Exception {
+    Path dir = Files.createTempDirectory("test");
+    try {
+      C connector = newWriteConnector(dir);
+      assertThat(connector.supports(CommonConnectorFeature.MAPPED_RECORDS)).isTrue();
+      assertThat(connector.supports(CommonConnectorFeature.INDEXED_RECORDS))
+          .isEqualTo(supportsIndexedWrites());
+      assertThat(connector.supports(CommonConnectorFeature.PARTITIONED_WRITES)).isTrue();
+      assertThat(connector.supports(CommonConnectorFeature.RESUMABLE_READS)).isFalse();
+      connector.close();
+      writeIntegers(dir, 1);
+      connector = newReadConnector(dir.resolve("output-000001" + getFileExtension()));
+      assertThat(connector.supports(CommonConnectorFeature.MAPPED_RECORDS)).isTrue();
+      assertThat(connector.supports(CommonConnectorFeature.INDEXED_RECORDS)).isTrue();
+      assertThat(connector.supports(CommonConnectorFeature.PARTITIONED_WRITES)).isFalse();
+      assertThat(connector.supports(CommonConnectorFeature.RESUMABLE_READS)).isTrue();
+      connector.close();
+    } finally {
+      deleteDirectory(dir);
+    }
+  }
+
+  /**
+   * Writes {@code count} records to the given directory, in one or more files depending on the
+   * additional settings.
+   */
+  protected void writeIntegers(Path dir, int count, Object... settings) throws Exception {
+    C connector = newWriteConnector(dir, settings);
+    Field pk = new DefaultMappedField("pk");
+    Field value = new DefaultMappedField("value");
+    connector.getRecordMetadata().getFieldType(pk, DataTypes.INT);
+    connector.getRecordMetadata().getFieldType(value, DataTypes.TEXT);
+    List<Record> records = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      DefaultRecord record = new DefaultRecord(null, resource, -1);
+      record.setFieldValue(pk, encode(i, DataTypes.INT));
+      record.setFieldValue(value, encode("value" + i, DataTypes.TEXT));
+      records.add(record);
+    }
+    Flux.fromIterable(records).transform(connector.write()).blockLast();
+    connector.close();
+  }
+
+  /** Reads the {@code pk} values of the records written by {@link #writeIntegers}, sorted. */
+  protected List<Object> readIntegers(Path file, Object... settings) throws Exception {
+    C connector = newReadConnector(file, settings);
+    List<Object> values = Flux.merge(connector.read()).map(this::pk).collectList().block();
+    connector.close();
+    return values.stream().sorted().collect(Collectors.toList());
+  }
+
+  protected C newWriteConnector(Path dir, Object... settings) throws Exception {
+    C connector = newConnector();
+    connector.configure(
+        createConfig(connector, settings, "url", quoteJson(dir), "maxConcurrentFiles", 1),
+        false,
+        true);
+    connector.init();
+    return connector;
+  }
+
+  protected C newReadConnector(Path file, Object... settings) throws Exception {
+    C connector = newConnector();
+    connector.configure(createConfig(connector, settings, "url", quoteJson(file)), true, true);
+    connector.init();
+    return connector;
+  }
+
+  private Object pk(Record record) {
+    return decode(record.getFieldValue(new DefaultMappedField("pk")), DataTypes.INT);
+  }
+
+  private static Config createConfig(
+      AbstractFileBasedConnector connector, Object[] settings, Object... baseSettings) {
+    List<Object> args = new ArrayList<>(Arrays.asList(baseSettings));
+    args.addAll(Arrays.asList(settings));
+    return TestConfigUtils.createTestConfig(
+        "dsbulk.connector." + connector.getConnectorName(), args.toArray());
+  }
+}
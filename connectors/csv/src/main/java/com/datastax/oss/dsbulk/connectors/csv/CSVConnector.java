@@ -17,18 +17,19 @@ package com.datastax.oss.dsbulk.connectors.csv;
 
 import com.datastax.oss.driver.api.core.type.reflect.GenericType;
 import com.datastax.oss.dsbulk.config.ConfigUtils;
+import com.datastax.oss.dsbulk.connectors.api.ArrayBackedRecord;
 import com.datastax.oss.dsbulk.connectors.api.CommonConnectorFeature;
 import com.datastax.oss.dsbulk.connectors.api.ConnectorFeature;
 import com.datastax.oss.dsbulk.connectors.api.DefaultErrorRecord;
-import com.datastax.oss.dsbulk.connectors.api.DefaultIndexedField;
 import com.datastax.oss.dsbulk.connectors.api.DefaultMappedField;
-import com.datastax.oss.dsbulk.connectors.api.DefaultRecord;
 import com.datastax.oss.dsbulk.connectors.api.Field;
 import com.datastax.oss.dsbulk.connectors.api.MappedField;
 import com.datastax.oss.dsbulk.connectors.api.Record;
 import com.datastax.oss.dsbulk.connectors.api.RecordMetadata;
+import com.datastax.oss.dsbulk.connectors.api.RecordShape;
 import com.datastax.oss.dsbulk.connectors.commons.AbstractFileBasedConnector;
-import com.datastax.oss.dsbulk.io.CompressedIOUtils;
+import com.datastax.oss.dsbulk.connectors.commons.FileChunk;
+import com.datastax.oss.dsbulk.connectors.commons.RecordBoundaryScanner;
 import com.typesafe.config.Config;
 import com.typesafe.config.ConfigException;
 import com.univocity.parsers.common.ParsingContext;
@@ -40,6 +41,7 @@ import com.univocity.parsers.csv.CsvParserSettings;
 import com.univocity.parsers.csv.CsvWriter;
 import com.univocity.parsers.csv.CsvWriterSettings;
 import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
 import java.io.IOException;
 import java.io.Reader;
 import java.net.URI;
@@ -49,6 +51,9 @@ import java.net.URLStreamHandler;
 import java.nio.channels.ClosedChannelException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
 import java.util.regex.Pattern;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -108,6 +113,12 @@ public class CSVConnector extends AbstractFileBasedConnector {
   private CsvParserSettings parserSettings;
   private CsvWriterSettings writerSettings;
 
+  /** Record shapes built from file headers, shared by all files having the same header. */
+  private final ConcurrentMap<List<String>, RecordShape> shapes = new ConcurrentHashMap<>();
+
+  /** Record shapes of headerless rows too wide to be cached by {@link RecordShape#indexed(int)}. */
+  private final ConcurrentMap<Integer, RecordShape> wideShapes = new ConcurrentHashMap<>();
+
   @Override
   @NonNull
   public String getConnectorName() {
@@ -170,6 +181,8 @@ public class CSVConnector extends AbstractFileBasedConnector {
       // we'll use the skip() operator instead.
       // parserSettings.setNumberOfRowsToSkip(skipRecords);
       parserSettings.setHeaderExtractionEnabled(header);
+      // the NUL comment character disables comments; the parser would treat it as a regular one
+      parserSettings.setCommentProcessingEnabled(comment != '\0');
       parserSettings.setMaxCharsPerColumn(maxCharsPerColumn);
       parserSettings.setMaxColumns(maxColumns);
       parserSettings.setNormalizeLineEndingsWithinQuotes(normalizeLineEndingsInQuotes);
@@ -221,6 +234,10 @@ public class CSVConnector extends AbstractFileBasedConnector {
           return true;
         case DATA_SIZE_SAMPLING:
           return isDataSizeSamplingAvailable();
+        case RESUMABLE_READS:
+          return read;
+        case PARTITIONED_WRITES:
+          return !read && !roots.isEmpty();
       }
     }
     return false;
@@ -229,7 +246,91 @@ public class CSVConnector extends AbstractFileBasedConnector {
   @Override
   @NonNull
   protected RecordReader newSingleFileReader(@NonNull URL url) throws IOException {
-    return new CSVRecordReader(url);
+    return new CSVRecordReader(url, null);
+  }
+
+  @Nullable
+  @Override
+  protected RecordBoundaryScanner newRecordBoundaryScanner() {
+    // the scanner operates on single bytes, and only recognizes LF and CRLF line endings
+    boolean lineFeed = AUTO_NEWLINE.equalsIgnoreCase(newline) || newline.endsWith("\n");
+    if (delimiter.length() != 1
+        || !isAscii(delimiter.charAt(0))
+        || !isAscii(quote)
+        || !isAscii(escape)
+        || !isAscii(comment)
+        || !lineFeed) {
+      return null;
+    }
+    return new CSVRecordBoundaryScanner(
+        delimiter.charAt(0),
+        quote,
+        escape,
+        comment,
+        header,
+        ignoreLeadingWhitespaces,
+        ignoreTrailingWhitespaces);
+  }
+
+  @Override
+  @NonNull
+  protected RecordReader newFileChunkReader(@NonNull FileChunk chunk) throws IOException {
+    return new CSVRecordReader(chunk.getUrl(), chunk);
+  }
+
+  /**
+   * Parses the header of the given file once, and shares its shape with the readers of all the
+   * chunks of the file, since only the first chunk contains the header line.
+   */
+  @Nullable
+  @Override
+  protected RecordShape readFileHeader(@NonNull URL url) throws IOException {
+    if (!header) {
+      return null;
+    }
+    CsvParser headerParser = new CsvParser(parserSettings);
+    try {
+      headerParser.beginParsing(newReader(url));
+      return getShape(url, headerParser.getContext());
+    } catch (Exception e) {
+      throw asIOException(url, e, "Error reading header of " + url);
+    } finally {
+      headerParser.stopParsing();
+    }
+  }
+
+  private RecordShape getShape(URL url, ParsingContext context) throws IOException {
+    List<String> fieldNames = new ArrayList<>();
+    String[] parsedHeaders = context.headers();
+    if (parsedHeaders == null) {
+      throw new IOException(
+          String.format("The parsed headers from provided url: %s are null", url));
+    }
+    List<String> errors = new ArrayList<>();
+    for (int i = 0; i < parsedHeaders.length; i++) {
+      String name = parsedHeaders[i];
+      // DAT-427: prevent empty names and duplicated names
+      if (name == null || name.isEmpty() || WHITESPACE.matcher(name).matches()) {
+        errors.add(String.format("found empty field name at index %d", i));
+      } else if (fieldNames.contains(name)) {
+        errors.add(String.format("found duplicate field name at index %d", i));
+      }
+      fieldNames.add(name);
+    }
+    if (errors.isEmpty()) {
+      return shapes.computeIfAbsent(
+          fieldNames,
+          names ->
+              RecordShape.mappedAndIndexed(
+                  names.stream().map(DefaultMappedField::new).toArray(MappedField[]::new)));
+    } else {
+      String msg = url + " has invalid header: " + String.join("; ", errors) + ".";
+      throw new IOException(msg);
+    }
+  }
+
+  private static boolean isAscii(char c) {
+    return c < 128;
   }
 
   private class CSVRecordReader implements RecordReader {
@@ -238,48 +339,43 @@ public class CSVConnector extends AbstractFileBasedConnector {
     private final URI resource;
     private final CsvParser parser;
     private final ParsingContext context;
-    private final MappedField[] fieldNames;
+    private final RecordShape shape;
 
     private long recordNumber = 1;
 
-    private CSVRecordReader(URL url) throws IOException {
+    private CSVRecordReader(URL url, @Nullable FileChunk chunk) throws IOException {
       this.url = url;
       try {
         resource = URI.create(url.toExternalForm());
-        parser = new CsvParser(parserSettings);
-        Reader r = CompressedIOUtils.newBufferedReader(url, encoding, compression);
-        parser.beginParsing(r);
-        context = parser.getContext();
-        fieldNames = header ? getFieldNames(url, context) : null;
+        if (chunk == null || chunk.getIndex() == 0) {
+          parser = new CsvParser(parserSettings);
+          Reader r = chunk == null ? newReader(url) : newReader(chunk);
+          parser.beginParsing(r);
+          context = parser.getContext();
+          shape = header ? getShape(url, context) : null;
+        } else {
+          // only the first chunk contains the header line
+          CsvParserSettings settings = parserSettings.clone();
+          settings.setHeaderExtractionEnabled(false);
+          parser = new CsvParser(settings);
+          parser.beginParsing(newReader(chunk));
+          context = parser.getContext();
+          shape = (RecordShape) chunk.getFileHeader();
+          recordNumber = chunk.getFirstRecord();
+        }
       } catch (Exception e) {
         throw asIOException(url, e, "Error creating CSV parser for " + url);
       }
     }
 
-    private MappedField[] getFieldNames(URL url, ParsingContext context) throws IOException {
-      List<String> fieldNames = new ArrayList<>();
-      String[] parsedHeaders = context.headers();
-      if (parsedHeaders == null) {
-        throw new IOException(
-            String.format("The parsed headers from provided url: %s are null", url));
-      }
-      List<String> errors = new ArrayList<>();
-      for (int i = 0; i < parsedHeaders.length; i++) {
-        String name = parsedHeaders[i];
-        // DAT-427: prevent empty names and duplicated names
-        if (name == null || name.isEmpty() || WHITESPACE.matcher(name).matches()) {
-          errors.add(String.format("found empty field name at index %d", i));
-        } else if (fieldNames.contains(name)) {
-          errors.add(String.format("found duplicate field name at index %d", i));
-        }
-        fieldNames.add(name);
-      }
-      if (errors.isEmpty()) {
-        return fieldNames.stream().map(DefaultMappedField::new).toArray(MappedField[]::new);
-      } else {
-        String msg = url + " has invalid header: " + String.join("; ", errors) + ".";
-        throw new IOException(msg);
-      }
+    /**
+     * Returns the shape of a headerless row; the same instance must be returned for a given width,
+     * since consumers cache per-shape information.
+     */
+    private RecordShape indexedShape(int size) {
+      return size < RecordShape.CACHED_INDEXED_SHAPES
+          ? RecordShape.indexed(size)
+          : wideShapes.computeIfAbsent(size, RecordShape::indexed);
     }
 
     @NonNull
@@ -310,17 +406,9 @@ public class CSVConnector extends AbstractFileBasedConnector {
       Record record;
       try {
         Object[] values = row.getValues();
-        if (header) {
-          record = DefaultRecord.mapped(source, resource, recordNumber++, fieldNames, values);
-          // also emit indexed fields
-          for (int i = 0; i < values.length; i++) {
-            DefaultIndexedField field = new DefaultIndexedField(i);
-            Object value = values[i];
-            ((DefaultRecord) record).setFieldValue(field, value);
-          }
-        } else {
-          record = DefaultRecord.indexed(source, resource, recordNumber++, values);
-        }
+        // when there is a header, the shape emits both mapped and indexed fields
+        RecordShape recordShape = header ? shape : indexedShape(values.length);
+        record = new ArrayBackedRecord(source, resource, recordNumber++, recordShape, values);
       } catch (Exception e) {
         record = new DefaultErrorRecord(source, resource, recordNumber, e);
       }
@@ -337,15 +425,21 @@ public class CSVConnector extends AbstractFileBasedConnector {
 
   @NonNull
   @Override
-  protected RecordWriter newSingleFileWriter() {
-    return new CSVRecordWriter();
+  protected RecordWriter newSingleFileWriter(@NonNull Supplier<URL> destinations) {
+    return new CSVRecordWriter(destinations);
   }
 
   private class CSVRecordWriter implements RecordWriter {
 
+    private final Supplier<URL> destinations;
+
     private URL url;
     private CsvWriter writer;
 
+    private CSVRecordWriter(Supplier<URL> destinations) {
+      this.destinations = destinations;
+    }
+
     @Override
     public void write(@NonNull Record record) throws IOException {
       try {
@@ -376,11 +470,9 @@ public class CSVConnector extends AbstractFileBasedConnector {
     }
 
     private void open() throws IOException {
-      url = getOrCreateDestinationURL();
+      url = destinations.get();
       try {
-        writer =
-            new CsvWriter(
-                CompressedIOUtils.newBufferedWriter(url, encoding, compression), writerSettings);
+        writer = new CsvWriter(newWriter(url), writerSettings);
         LOGGER.debug("Writing {}", url);
       } catch (ClosedChannelException e) {
         // OK, happens when the channel was closed due to interruption
@@ -0,0 +1,146 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.dsbulk.connectors.csv;
+
+import com.datastax.oss.dsbulk.connectors.commons.RecordBoundaryScanner;
+
+/**
+ * A {@link RecordBoundaryScanner} for CSV files.
+ *
+ * <p>Records end with a line feed that does not appear inside a quoted field; this also covers CRLF
+ * line endings. Quotes are only considered when they start a field, and two consecutive quotes
+ * inside a quoted field denote an escaped quote. Empty lines and comment lines are not counted as
+ * records, nor is the header line, if any, since the parser does not emit them. The NUL comment
+ * character disables comments, as it does for the parser.
+ *
+ * <p>Blank lines, made only of whitespace characters (any character up to and including the space
+ * character), are records for the parser, unless it ignores leading or trailing whitespaces. When
+ * ignoring leading whitespaces, the parser skips blank lines like empty lines; when only ignoring
+ * trailing whitespaces, it joins them to the next line, as if their line feed were whitespace.
+ */
+class CSVRecordBoundaryScanner implements RecordBoundaryScanner {
+
+  private static final byte LF = '\n';
+  private static final byte CR = '\r';
+
+  private final byte delimiter;
+  private final byte quote;
+  private final byte escape;
+  private final byte comment;
+  private final boolean commentsEnabled;
+  private final boolean ignoreLeadingWhitespaces;
+  private final boolean ignoreTrailingWhitespaces;
+
+  private boolean headerPending;
+  private long recordCount;
+
+  private boolean inQuotes;
+  private boolean quotePending;
+  private boolean escapePending;
+  private boolean fieldStart = true;
+  private boolean lineEmpty = true;
+  private boolean lineBlank = true;
+  private boolean lineComment;
+
+  CSVRecordBoundaryScanner(
+      char delimiter,
+      char quote,
+      char escape,
+      char comment,
+      boolean header,
+      boolean ignoreLeadingWhitespaces,
+      boolean ignoreTrailingWhitespaces) {
+    this.delimiter = (byte) delimiter;
+    this.quote = (byte) quote;
+    this.escape = (byte) escape;
+    this.comment = (byte) comment;
+    this.commentsEnabled = comment != '\0';
+    this.headerPending = header;
+    this.ignoreLeadingWhitespaces = ignoreLeadingWhitespaces;
+    this.ignoreTrailingWhitespaces = ignoreTrailingWhitespaces;
+  }
+
+  @Override
+  public boolean next(byte b) {
+    if (inQuotes) {
+      if (escapePending) {
+        escapePending = false;
+        return false;
+      }
+      if (quotePending) {
+        quotePending = false;
+        if (b == quote) {
+          // escaped quote
+          return false;
+        }
+        // the previous quote closed the field, process this byte as unquoted
+        inQuotes = false;
+      } else {
+        if (b == quote) {
+          quotePending = true;
+        } else if (b == escape) {
+          escapePending = true;
+        }
+        return false;
+      }
+    }
+    if (b == LF) {
+      if (lineBlank && !lineEmpty && !ignoreLeadingWhitespaces && ignoreTrailingWhitespaces) {
+        // the next line continues this one, past its start: neither comment nor quoted field
+        fieldStart = false;
+        return false;
+      }
+      if (!lineEmpty && !lineComment && !(lineBlank && ignoreLeadingWhitespaces)) {
+        if (headerPending) {
+          headerPending = false;
+        } else {
+          recordCount++;
+        }
+      }
+      fieldStart = true;
+      lineEmpty = true;
+      lineBlank = true;
+      lineComment = false;
+      return true;
+    }
+    if (b == CR) {
+      return false;
+    }
+    if (lineEmpty && commentsEnabled && b == comment) {
+      lineComment = true;
+    }
+    lineEmpty = false;
+    if (b < 0 || b > ' ') {
+      lineBlank = false;
+    }
+    if (!lineComment) {
+      if (b == delimiter) {
+        fieldStart = true;
+      } else if (b == quote && fieldStart) {
+        inQuotes = true;
+        fieldStart = false;
+      } else if (b != ' ' && b != '\t') {
+        fieldStart = false;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public long getRecordCount() {
+    return recordCount;
+  }
+}
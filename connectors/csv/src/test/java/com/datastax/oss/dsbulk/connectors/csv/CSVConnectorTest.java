@@ -20,6 +20,7 @@ import static com.github.tomakehurst.wiremock.client.WireMock.any;
 import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
 import static java.nio.charset.StandardCharsets.ISO_8859_1;
 import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.stream.Collectors.joining;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.assertj.core.util.Throwables.getRootCause;
@@ -29,7 +30,9 @@ import static org.junit.jupiter.params.provider.Arguments.arguments;
 
 import com.datastax.oss.driver.shaded.guava.common.base.Charsets;
 import com.datastax.oss.driver.shaded.guava.common.base.Strings;
+import com.datastax.oss.driver.shaded.guava.common.collect.ImmutableMap;
 import com.datastax.oss.dsbulk.config.ConfigUtils;
+import com.datastax.oss.dsbulk.connectors.api.ArrayBackedRecord;
 import com.datastax.oss.dsbulk.connectors.api.CommonConnectorFeature;
 import com.datastax.oss.dsbulk.connectors.api.DefaultIndexedField;
 import com.datastax.oss.dsbulk.connectors.api.DefaultMappedField;
@@ -37,6 +40,7 @@ import com.datastax.oss.dsbulk.connectors.api.DefaultRecord;
 import com.datastax.oss.dsbulk.connectors.api.ErrorRecord;
 import com.datastax.oss.dsbulk.connectors.api.Field;
 import com.datastax.oss.dsbulk.connectors.api.Record;
+import com.datastax.oss.dsbulk.connectors.api.RecordShape;
 import com.datastax.oss.dsbulk.io.CompressedIOUtils;
 import com.datastax.oss.dsbulk.tests.logging.LogCapture;
 import com.datastax.oss.dsbulk.tests.logging.LogInterceptingExtension;
@@ -67,10 +71,12 @@ import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 import java.util.zip.GZIPInputStream;
 import org.assertj.core.util.Throwables;
@@ -153,6 +159,40 @@ class CSVConnectorTest {
     connector.close();
   }
 
+  @ParameterizedTest(name = "[{index}] read sample.csv memory-mapped (sources: {0})")
+  @ValueSource(booleans = {true, false})
+  void should_read_single_file_memory_mapped(boolean retainRecordSources) throws Exception {
+    CSVConnector connector = new CSVConnector();
+    Config settings =
+        TestConfigUtils.createTestConfig(
+            "dsbulk.connector.csv",
+            "url",
+            url("/sample.csv"),
+            "normalizeLineEndingsInQuotes",
+            true,
+            "escape",
+            "\"\\\"\"",
+            "comment",
+            "\"#\"",
+            "readMode",
+            "MAPPED");
+    connector.configure(settings, true, retainRecordSources);
+    connector.init();
+    List<Record> actual = Flux.merge(connector.read()).collectList().block();
+    assertRecords(actual, retainRecordSources);
+    connector.close();
+  }
+
+  @Test
+  void should_throw_exception_when_read_mode_invalid() {
+    CSVConnector connector = new CSVConnector();
+    Config settings =
+        TestConfigUtils.createTestConfig("dsbulk.connector.csv", "readMode", "\"DIRECT\"");
+    assertThatThrownBy(() -> connector.configure(settings, true, true))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining("dsbulk.connector.csv.readMode");
+  }
+
   @SuppressWarnings("unused")
   private static Stream<Arguments> should_read_single_file() {
     return Stream.of(
@@ -685,6 +725,61 @@ class CSVConnectorTest {
     }
   }
 
+  @ParameterizedTest(name = "[{index}] write and read {0} in parallel")
+  @ValueSource(strings = {"gzip", "zstd"})
+  void should_write_and_read_compressed_file_in_parallel(String compression) throws Exception {
+    Path dir = Files.createTempDirectory("test");
+    try {
+      CSVConnector connector = new CSVConnector();
+      // tiny blocks: the file will be made of many independent gzip members / zstd frames
+      Config settings =
+          TestConfigUtils.createTestConfig(
+              "dsbulk.connector.csv",
+              "url",
+              StringUtils.quoteJson(dir),
+              "escape",
+              "\"\\\"\"",
+              "maxConcurrentFiles",
+              1,
+              "compression",
+              StringUtils.quoteJson(compression),
+              "compressionThreads",
+              4,
+              "compressionBlockSize",
+              "\"64B\"");
+      connector.configure(settings, false, true);
+      connector.init();
+      Flux.fromIterable(createRecords()).transform(connector.write()).blockLast();
+      connector.close();
+      connector = new CSVConnector();
+      settings =
+          TestConfigUtils.createTestConfig(
+              "dsbulk.connector.csv",
+              "url",
+              StringUtils.quoteJson(dir),
+              "escape",
+              "\"\\\"\"",
+              "compression",
+              StringUtils.quoteJson(compression),
+              "compressionThreads",
+              2);
+      connector.configure(settings, true, true);
+      connector.init();
+      List<Record> actual = Flux.merge(connector.read()).collectList().block();
+      connector.close();
+      assertThat(actual)
+          .extracting(record -> record.getFieldValue(new DefaultMappedField("Model")))
+          .containsExactly(
+              "E350",
+              "Venture \"Extended Edition\"",
+              "Grand Cherokee",
+              "Venture \"Extended Edition, Very Large\"",
+              "Venture \"Extended Edition\"");
+    } finally {
+      FileUtils.deleteDirectory(dir);
+    }
+  }
+
   @Test
   void should_write_single_file_compressed_gzip_custom_file_format() throws Exception {
     CSVConnector connector = new CSVConnector();
@@ -779,6 +874,58 @@ class CSVConnectorTest {
     }
   }
 
+  @Test
+  void should_write_partitions_to_dedicated_files() throws Exception {
+    Path out = Files.createTempDirectory("test");
+    try {
+      Config settings =
+          TestConfigUtils.createTestConfig(
+              "dsbulk.connector.csv",
+              "url",
+              StringUtils.quoteJson(out),
+              "header",
+              false,
+              "maxRecords",
+              3);
+      CSVConnector connector = new CSVConnector();
+      connector.configure(settings, false, true);
+      connector.init();
+      assertThat(connector.supports(CommonConnectorFeature.PARTITIONED_WRITES)).isTrue();
+      Flux.just("p1", "p2")
+          .flatMap(
+              partition ->
+                  Flux.fromIterable(createRecords())
+                      .transform(connector.write(partition))
+                      .subscribeOn(Schedulers.parallel()))
+          .blockLast();
+      connector.close();
+      assertThat(listFileNames(out))
+          .containsExactly(
+              "p1-output-000001.csv",
+              "p1-output-000002.csv",
+              "p2-output-000001.csv",
+              "p2-output-000002.csv");
+      // resume the operation and write the first partition again: its files are replaced
+      CSVConnector resumed = new CSVConnector();
+      resumed.configure(settings, false, true);
+      resumed.resume(Collections.emptyMap());
+      resumed.init();
+      Flux.fromIterable(createRecords().subList(0, 1)).transform(resumed.write("p1")).blockLast();
+      resumed.close();
+      assertThat(listFileNames(out))
+          .containsExactly("p1-output-000001.csv", "p2-output-000001.csv", "p2-output-000002.csv");
+      assertThat(Files.readAllLines(out.resolve("p1-output-000001.csv"))).hasSize(1);
+    } finally {
+      FileUtils.deleteDirectory(out);
+    }
+  }
+
+  private static List<String> listFileNames(Path dir) throws IOException {
+    try (Stream<Path> files = Files.list(dir)) {
+      return files.map(file -> file.getFileName().toString()).sorted().collect(Collectors.toList());
+    }
+  }
+
   // Test for DAT-443
   @Test
   void should_generate_file_name() throws Exception {
@@ -1743,6 +1890,62 @@ class CSVConnectorTest {
     connector.close();
   }
 
+  @Test
+  void should_share_shape_of_wide_headerless_rows() throws Exception {
+    Path file = Files.createTempFile("wide", ".csv");
+    try {
+      String row = IntStream.range(0, 300).mapToObj(Integer::toString).collect(joining(","));
+      Files.write(file, Arrays.asList(row, row, row), UTF_8);
+      CSVConnector connector = new CSVConnector();
+      Config settings =
+          TestConfigUtils.createTestConfig(
+              "dsbulk.connector.csv", "url", StringUtils.quoteJson(file), "header", false);
+      connector.configure(settings, true, true);
+      connector.init();
+      List<Record> records = Flux.merge(connector.read()).collectList().block();
+      connector.close();
+      assertThat(records).hasSize(3).allSatisfy(r -> assertThat(r.fields()).hasSize(300));
+      RecordShape shape = ((ArrayBackedRecord) records.get(0)).getShape();
+      assertThat(records)
+          .allSatisfy(r -> assertThat(((ArrayBackedRecord) r).getShape()).isSameAs(shape));
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+
+  @Test
+  void should_read_lines_starting_with_NUL_when_comments_disabled() throws Exception {
+    Path file = Files.createTempFile("nul", ".csv");
+    try {
+      Files.write(file, Arrays.asList("a,b", "\u0000x,1", "#y,2", "z,3"), UTF_8);
+      CSVConnector connector = new CSVConnector();
+      // the default comment character, NUL, disables comments
+      Config settings =
+          TestConfigUtils.createTestConfig(
+              "dsbulk.connector.csv", "url", StringUtils.quoteJson(file));
+      connector.configure(settings, true, true);
+      connector.init();
+      List<Record> records = Flux.merge(connector.read()).collectList().block();
+      connector.close();
+      assertThat(records)
+          .extracting(record -> record.getFieldValue(new DefaultMappedField("a")))
+          .containsExactly("\u0000x", "#y", "z");
+      connector = new CSVConnector();
+      settings =
+          TestConfigUtils.createTestConfig(
+              "dsbulk.connector.csv", "url", StringUtils.quoteJson(file), "comment", "\"#\"");
+      connector.configure(settings, true, true);
+      connector.init();
+      records = Flux.merge(connector.read()).collectList().block();
+      connector.close();
+      assertThat(records)
+          .extracting(record -> record.getFieldValue(new DefaultMappedField("a")))
+          .containsExactly("\u0000x", "z");
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+
   private List<Record> createRecords() {
     ArrayList<Record> records = new ArrayList<>();
     Field[] fields =
@@ -1919,6 +2122,216 @@ class CSVConnectorTest {
     connector.close();
   }
 
+  @Test
+  void should_split_large_file_in_chunks() throws Exception {
+    Path file = createLargeFile();
+    try {
+      List<String> unsplit = readChunks(file, -1, "BUFFERED", 1);
+      assertThat(unsplit).hasSize(1000);
+      assertThat(readChunks(file, 1024, "BUFFERED", 8)).isEqualTo(unsplit);
+      assertThat(readChunks(file, -1, "MAPPED", 1)).isEqualTo(unsplit);
+      assertThat(readChunks(file, 1024, "MAPPED", 8)).isEqualTo(unsplit);
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  void should_split_file_with_lines_starting_with_nul_when_comments_disabled() throws Exception {
+    Path file = Files.createTempFile("test", ".csv");
+    StringBuilder sb = new StringBuilder("pk,value\n");
+    for (int i = 1; i <= 1000; i++) {
+      if (i % 10 == 0) {
+        sb.append('\0');
+      }
+      sb.append(i).append(",value").append(i).append('\n');
+    }
+    Files.write(file, sb.toString().getBytes(UTF_8));
+    try {
+      CSVConnector connector = newChunksConnector(file, -1, "BUFFERED", -1, "\u0000");
+      connector.init();
+      List<String> unsplit = readChunks(connector);
+      assertThat(unsplit).hasSize(1000);
+      connector = newChunksConnector(file, 1024, "BUFFERED", -1, "\u0000");
+      connector.init();
+      assertThat(connector.readConcurrency()).isEqualTo(8);
+      assertThat(readChunks(connector)).isEqualTo(unsplit);
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @ParameterizedTest
+  @ValueSource(booleans = {true, false})
+  void should_split_file_with_blank_lines_when_ignoring_leading_whitespaces(
+      boolean ignoreTrailingWhitespaces) throws Exception {
+    Path file = Files.createTempFile("test", ".csv");
+    // the parser skips blank lines when ignoring leading whitespaces
+    StringBuilder sb = new StringBuilder("pk,value\n");
+    for (int i = 1; i <= 1000; i++) {
+      if (i % 10 == 0) {
+        sb.append(" \t \n");
+      }
+      sb.append(i).append(",value").append(i).append('\n');
+    }
+    Files.write(file, sb.toString().getBytes(UTF_8));
+    try {
+      CSVConnector connector =
+          newChunksConnector(
+              file,
+              -1,
+              "BUFFERED",
+              -1,
+              "#",
+              "ignoreLeadingWhitespaces",
+              true,
+              "ignoreTrailingWhitespaces",
+              ignoreTrailingWhitespaces);
+      connector.init();
+      List<String> unsplit = readChunks(connector);
+      assertThat(unsplit).hasSize(1000);
+      // blank lines are not records
+      assertThat(unsplit.get(999)).startsWith("1000|");
+      connector =
+          newChunksConnector(
+              file,
+              1024,
+              "BUFFERED",
+              -1,
+              "#",
+              "ignoreLeadingWhitespaces",
+              true,
+              "ignoreTrailingWhitespaces",
+              ignoreTrailingWhitespaces);
+      connector.init();
+      assertThat(readChunks(connector)).isEqualTo(unsplit);
+      URI resource = URI.create(file.toUri().toURL().toExternalForm());
+      connector =
+          newChunksConnector(
+              file,
+              1024,
+              "BUFFERED",
+              -1,
+              "#",
+              "ignoreLeadingWhitespaces",
+              true,
+              "ignoreTrailingWhitespaces",
+              ignoreTrailingWhitespaces);
+      connector.resume(ImmutableMap.of(resource, 500L));
+      connector.init();
+      assertThat(readChunks(connector)).isEqualTo(unsplit.subList(500, 1000));
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  void should_resume_reading_after_processed_positions() throws Exception {
+    Path file = createLargeFile();
+    try {
+      List<String> all = readChunks(file, -1, "BUFFERED", 1);
+      URI resource = URI.create(file.toUri().toURL().toExternalForm());
+      List<String> expected = all.subList(500, 1000);
+      // processed records skipped without being parsed
+      assertThat(readChunks(file, -1, -1, resource, 500)).isEqualTo(expected);
+      assertThat(readChunks(file, 1024, -1, resource, 500)).isEqualTo(expected);
+      // maxRecords prevents skipping records: processed records are parsed, then filtered out
+      assertThat(readChunks(file, 1024, 2000, resource, 500)).isEqualTo(expected);
+      // fully processed file
+      assertThat(readChunks(file, 1024, -1, resource, 1000)).isEmpty();
+      assertThat(readChunks(file, 1024, 2000, resource, 1000)).isEmpty();
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  private static Path createLargeFile() throws IOException {
+    Path file = Files.createTempFile("test", ".csv");
+    StringBuilder sb = new StringBuilder("pk,value\n");
+    for (int i = 1; i <= 1000; i++) {
+      if (i % 100 == 0) {
+        sb.append("# comment, with \"quote\n\n");
+      }
+      if (i % 3 == 0) {
+        // quoted field spanning several lines, with escaped quotes
+        sb.append(i).append(",\"line1\nline2 \"\"quoted\"\"\r\n,line3\"\r\n");
+      } else {
+        sb.append(i).append(",value").append(i).append('\n');
+      }
+    }
+    Files.write(file, sb.toString().getBytes(UTF_8));
+    return file;
+  }
+
+  private static List<String> readChunks(
+      Path file, long splitSize, String readMode, int expectedConcurrency) throws Exception {
+    CSVConnector connector = newChunksConnector(file, splitSize, readMode, -1, "#");
+    connector.init();
+    assertThat(connector.readConcurrency()).isEqualTo(expectedConcurrency);
+    return readChunks(connector);
+  }
+
+  private static List<String> readChunks(
+      Path file, long splitSize, long maxRecords, URI resource, long lastPosition)
+      throws Exception {
+    CSVConnector connector = newChunksConnector(file, splitSize, "BUFFERED", maxRecords, "#");
+    assertThat(connector.supports(CommonConnectorFeature.RESUMABLE_READS)).isTrue();
+    connector.resume(ImmutableMap.of(resource, lastPosition));
+    connector.init();
+    return readChunks(connector);
+  }
+
+  private static CSVConnector newChunksConnector(
+      Path file,
+      long splitSize,
+      String readMode,
+      long maxRecords,
+      String comment,
+      Object... additionalSettings)
+      throws Exception {
+    CSVConnector connector = new CSVConnector();
+    List<Object> settings =
+        new ArrayList<>(
+            Arrays.asList(
+                "url",
+                StringUtils.quoteJson(file.toUri().toURL()),
+                "header",
+                true,
+                "comment",
+                StringUtils.quoteJson(comment),
+                "escape",
+                "\"\\\"\"",
+                "maxConcurrentFiles",
+                8,
+                "splitSize",
+                splitSize,
+                "readMode",
+                readMode,
+                "maxRecords",
+                maxRecords));
+    Collections.addAll(settings, additionalSettings);
+    connector.configure(
+        TestConfigUtils.createTestConfig("dsbulk.connector.csv", settings.toArray()), true, true);
+    return connector;
+  }
+
+  private static List<String> readChunks(CSVConnector connector) throws Exception {
+    List<Record> records = Flux.merge(connector.read()).collectList().block();
+    connector.close();
+    assertThat(records).doesNotHaveAnyElementsOfTypes(ErrorRecord.class);
+    return records.stream()
+        .sorted(Comparator.comparingLong(Record::getPosition))
+        .map(
+            record ->
+                String.format(
+                    "%d|%s|%s|%s",
+                    record.getPosition(),
+                    record.getSource(),
+                    record.getFieldValue(new DefaultMappedField("pk")),
+                    record.getFieldValue(new DefaultMappedField("value"))))
+        .collect(Collectors.toList());
+  }
+
   private static String url(String resource) {
     return StringUtils.quoteJson(rawURL(resource));
   }
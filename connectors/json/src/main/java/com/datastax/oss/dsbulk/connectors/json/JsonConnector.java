@@ -15,17 +15,21 @@
  */
 package com.datastax.oss.dsbulk.connectors.json;
 
+import com.datastax.oss.driver.api.core.type.DataType;
 import com.datastax.oss.driver.api.core.type.reflect.GenericType;
 import com.datastax.oss.dsbulk.config.ConfigUtils;
 import com.datastax.oss.dsbulk.connectors.api.CommonConnectorFeature;
 import com.datastax.oss.dsbulk.connectors.api.ConnectorFeature;
 import com.datastax.oss.dsbulk.connectors.api.DefaultMappedField;
 import com.datastax.oss.dsbulk.connectors.api.DefaultRecord;
+import com.datastax.oss.dsbulk.connectors.api.Field;
 import com.datastax.oss.dsbulk.connectors.api.MappedField;
 import com.datastax.oss.dsbulk.connectors.api.Record;
 import com.datastax.oss.dsbulk.connectors.api.RecordMetadata;
 import com.datastax.oss.dsbulk.connectors.commons.AbstractFileBasedConnector;
-import com.datastax.oss.dsbulk.io.CompressedIOUtils;
+import com.datastax.oss.dsbulk.connectors.commons.FileChunk;
+import com.datastax.oss.dsbulk.connectors.commons.RecordBoundaryScanner;
+import com.datastax.oss.protocol.internal.ProtocolConstants;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonGenerator;
@@ -34,17 +38,22 @@ import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.core.io.SerializedString;
 import com.fasterxml.jackson.core.util.DefaultPrettyPrinter;
+import com.fasterxml.jackson.databind.DeserializationConfig;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.MappingIterator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationConfig;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.typesafe.config.Config;
 import com.typesafe.config.ConfigException;
 import edu.umd.cs.findbugs.annotations.NonNull;
-import java.io.BufferedReader;
+import edu.umd.cs.findbugs.annotations.Nullable;
 import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
@@ -53,7 +62,9 @@ import java.nio.channels.ClosedChannelException;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import reactor.core.publisher.SynchronousSink;
@@ -87,6 +98,8 @@ public class JsonConnector extends AbstractFileBasedConnector {
   private static final String SERIALIZATION_STRATEGY = "serializationStrategy";
   private static final String PRETTY_PRINT = "prettyPrint";
 
+  private static final int MAX_CACHED_FIELDS = 1024;
+
   private DocumentMode mode;
   private ObjectMapper objectMapper;
   private Map<JsonParser.Feature, Boolean> parserFeatures;
@@ -96,6 +109,25 @@ public class JsonConnector extends AbstractFileBasedConnector {
   private JsonInclude.Include serializationStrategy;
   private boolean prettyPrint;
 
+  private JsonNodeFactory nodeFactory;
+  private boolean useBigDecimalForFloats;
+  private boolean useBigIntegerForInts;
+  private boolean useLongForInts;
+  private boolean failOnDuplicateKeys;
+
+  private boolean directWrites;
+  private boolean indentOutput;
+  private boolean flushAfterWrite;
+
+  /**
+   * Field names are interned so that records read from documents with the same keys share the same
+   * field instances; the cache is bounded in case documents have an unbounded set of keys.
+   */
+  private final ConcurrentMap<String, MappedField> fields = new ConcurrentHashMap<>();
+
+  /** Field names when writing, quoted and encoded once per field; bounded like {@link #fields}. */
+  private final ConcurrentMap<Field, SerializedString> fieldNames = new ConcurrentHashMap<>();
+
   @Override
   @NonNull
   public String getConnectorName() {
@@ -134,6 +166,12 @@ public class JsonConnector extends AbstractFileBasedConnector {
         objectMapper.configure(
             deserializationFeature, deserializationFeatures.get(deserializationFeature));
       }
+      nodeFactory = objectMapper.getNodeFactory();
+      DeserializationConfig config = objectMapper.getDeserializationConfig();
+      useBigDecimalForFloats = config.isEnabled(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+      useBigIntegerForInts = config.isEnabled(DeserializationFeature.USE_BIG_INTEGER_FOR_INTS);
+      useLongForInts = config.isEnabled(DeserializationFeature.USE_LONG_FOR_INTS);
+      failOnDuplicateKeys = config.isEnabled(DeserializationFeature.FAIL_ON_READING_DUP_TREE_KEY);
     } else {
       for (JsonGenerator.Feature generatorFeature : generatorFeatures.keySet()) {
         objectMapper.configure(generatorFeature, generatorFeatures.get(generatorFeature));
@@ -146,13 +184,50 @@ public class JsonConnector extends AbstractFileBasedConnector {
         objectMapper.setDefaultPrettyPrinter(new DefaultPrettyPrinter(System.lineSeparator()));
       }
       objectMapper.setSerializationInclusion(serializationStrategy);
+      SerializationConfig config = objectMapper.getSerializationConfig();
+      // ordered maps are left to the object mapper; so is USE_DEFAULTS, since whether null map
+      // values are written then depends on the mapper's legacy serialization features
+      directWrites =
+          !config.isEnabled(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+              && serializationStrategy != JsonInclude.Include.USE_DEFAULTS;
+      indentOutput = config.isEnabled(SerializationFeature.INDENT_OUTPUT);
+      flushAfterWrite = config.isEnabled(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
     }
   }
 
   @NonNull
   @Override
   public RecordMetadata getRecordMetadata() {
-    return (field, cqlType) -> JSON_NODE_TYPE_TOKEN;
+    if (read || !directWrites) {
+      return (field, cqlType) -> JSON_NODE_TYPE_TOKEN;
+    }
+    // scalars are written from the values decoded by the driver, without building Json nodes
+    return (field, cqlType) ->
+        isWrittenAsScalar(cqlType) ? RecordMetadata.PLAIN_VALUES : JSON_NODE_TYPE_TOKEN;
+  }
+
+  /**
+   * Whether values of the given CQL type are converted to Json scalars as is by the Json codecs:
+   * the output is then the same when the connector writes the value itself.
+   */
+  private static boolean isWrittenAsScalar(@NonNull DataType cqlType) {
+    switch (cqlType.getProtocolCode()) {
+      case ProtocolConstants.DataType.ASCII:
+      case ProtocolConstants.DataType.VARCHAR:
+      case ProtocolConstants.DataType.BOOLEAN:
+      case ProtocolConstants.DataType.TINYINT:
+      case ProtocolConstants.DataType.SMALLINT:
+      case ProtocolConstants.DataType.INT:
+      case ProtocolConstants.DataType.BIGINT:
+      case ProtocolConstants.DataType.COUNTER:
+      case ProtocolConstants.DataType.VARINT:
+      case ProtocolConstants.DataType.FLOAT:
+      case ProtocolConstants.DataType.DOUBLE:
+      case ProtocolConstants.DataType.DECIMAL:
+        return true;
+      default:
+        return false;
+    }
   }
 
   @Override
@@ -166,6 +241,10 @@ public class JsonConnector extends AbstractFileBasedConnector {
           return false;
         case DATA_SIZE_SAMPLING:
           return isDataSizeSamplingAvailable();
+        case RESUMABLE_READS:
+          return read;
+        case PARTITIONED_WRITES:
+          return !read && !roots.isEmpty();
       }
     }
     return false;
@@ -174,32 +253,116 @@ public class JsonConnector extends AbstractFileBasedConnector {
   @Override
   @NonNull
   protected RecordReader newSingleFileReader(@NonNull URL url) throws IOException {
-    return new JsonRecordReader(url);
+    return new JsonRecordReader(url, null);
+  }
+
+  @Nullable
+  @Override
+  protected RecordBoundaryScanner newRecordBoundaryScanner() {
+    // the scanner does not recognize comments nor single-quoted strings
+    if (mode != DocumentMode.MULTI_DOCUMENT
+        || isEnabled(JsonParser.Feature.ALLOW_COMMENTS)
+        || isEnabled(JsonParser.Feature.ALLOW_YAML_COMMENTS)
+        || isEnabled(JsonParser.Feature.ALLOW_SINGLE_QUOTES)) {
+      return null;
+    }
+    return new JsonRecordBoundaryScanner();
+  }
+
+  @Override
+  @NonNull
+  protected RecordReader newFileChunkReader(@NonNull FileChunk chunk) throws IOException {
+    return new JsonRecordReader(chunk.getUrl(), chunk);
+  }
+
+  private boolean isEnabled(JsonParser.Feature feature) {
+    return parserFeatures.getOrDefault(feature, feature.enabledByDefault());
+  }
+
+  @NonNull
+  private MappedField internField(@NonNull String name) {
+    MappedField field = fields.get(name);
+    if (field == null) {
+      field = new DefaultMappedField(name);
+      if (fields.size() < MAX_CACHED_FIELDS) {
+        MappedField existing = fields.putIfAbsent(name, field);
+        if (existing != null) {
+          field = existing;
+        }
+      }
+    }
+    return field;
   }
 
+  @NonNull
+  private SerializedString fieldName(@NonNull Field field) {
+    SerializedString name = fieldNames.get(field);
+    if (name == null) {
+      // map keys are serialized with their toString() representation
+      name = new SerializedString(field.toString());
+      if (fieldNames.size() < MAX_CACHED_FIELDS) {
+        fieldNames.putIfAbsent(field, name);
+      }
+    }
+    return name;
+  }
+
+  private static boolean hasOnlyWritableValues(@NonNull Record record) {
+    for (Object value : record.values()) {
+      if (value != null && !(value instanceof JsonNode) && !isScalar(value)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Whether the value is one of the plain values of the types {@link #isWrittenAsScalar} accepts.
+   */
+  private static boolean isScalar(@NonNull Object value) {
+    return value instanceof String
+        || value instanceof Boolean
+        || value instanceof Integer
+        || value instanceof Long
+        || value instanceof Short
+        || value instanceof Byte
+        || value instanceof Double
+        || value instanceof Float
+        || value instanceof BigDecimal
+        || value instanceof BigInteger;
+  }
+
+  /**
+   * Reads documents token by token: the values of each document are read directly from the parser,
+   * and a tree is only built for values that are objects or arrays themselves. This avoids
+   * materializing a whole tree per document, then copying its children into the record.
+   */
   private class JsonRecordReader implements RecordReader {
 
     private final URL url;
     private final URI resource;
     private final JsonParser parser;
-    private final MappingIterator<JsonNode> nodesIterator;
 
     private long recordNumber = 1;
 
-    private JsonRecordReader(URL url) throws IOException {
+    private JsonRecordReader(URL url, @Nullable FileChunk chunk) throws IOException {
       this.url = url;
       resource = URI.create(url.toExternalForm());
       try {
         JsonFactory factory = objectMapper.getFactory();
-        BufferedReader r = CompressedIOUtils.newBufferedReader(url, encoding, compression);
+        Reader r;
+        if (chunk == null) {
+          r = newReader(url);
+        } else {
+          r = newReader(chunk);
+          recordNumber = chunk.getFirstRecord();
+        }
         parser = factory.createParser(r);
         if (mode == DocumentMode.SINGLE_DOCUMENT) {
           do {
             parser.nextToken();
           } while (parser.currentToken() != JsonToken.START_ARRAY && parser.currentToken() != null);
-          parser.nextToken();
         }
-        nodesIterator = objectMapper.readValues(parser, JsonNode.class);
       } catch (Exception e) {
         throw new IOException(String.format("Error reading from %s", url), e);
       }
@@ -209,29 +372,22 @@ public class JsonConnector extends AbstractFileBasedConnector {
     @Override
     public RecordReader readNext(@NonNull SynchronousSink<Record> sink) {
       try {
-        if (nodesIterator.hasNext()) {
-          if (parser.currentToken() != JsonToken.START_OBJECT) {
+        JsonToken token = parser.nextToken();
+        if (token == null
+            || (token == JsonToken.END_ARRAY && mode == DocumentMode.SINGLE_DOCUMENT)) {
+          LOGGER.debug("Done reading {}", url);
+          sink.complete();
+        } else {
+          if (token != JsonToken.START_OBJECT) {
             throw new JsonParseException(
                 parser,
                 String.format(
                     "Expecting START_OBJECT, got %s. Did you forget to set connector.json.mode to SINGLE_DOCUMENT?",
-                    parser.currentToken()));
-          }
-          JsonNode source = nodesIterator.next();
-          Map<MappedField, JsonNode> fields = new HashMap<>();
-          Iterator<Entry<String, JsonNode>> children = source.fields();
-          while (children.hasNext()) {
-            Entry<String, JsonNode> child = children.next();
-            fields.put(new DefaultMappedField(child.getKey()), child.getValue());
+                    token));
           }
-          Record record =
-              DefaultRecord.mapped(
-                  retainRecordSources ? source : null, resource, recordNumber++, fields);
+          Record record = readRecord();
           LOGGER.trace("Emitting record {}", record);
           sink.next(record);
-        } else {
-          LOGGER.debug("Done reading {}", url);
-          sink.complete();
         }
       } catch (Exception e) {
         sink.error(new IOException(String.format("Error reading from %s", url), e));
@@ -239,6 +395,78 @@ public class JsonConnector extends AbstractFileBasedConnector {
       return this;
     }
 
+    @NonNull
+    private Record readRecord() throws IOException {
+      ObjectNode source = retainRecordSources ? nodeFactory.objectNode() : null;
+      DefaultRecord record = new DefaultRecord(source, resource, recordNumber++);
+      String name;
+      // the loop ends on END_OBJECT; any other token would have been rejected by the parser
+      while ((name = parser.nextFieldName()) != null) {
+        JsonNode value = readValue(parser.nextToken());
+        if (record.put(internField(name), value) != null && failOnDuplicateKeys) {
+          throw new JsonParseException(
+              parser,
+              String.format(
+                  "Duplicate field '%s': not allowed when FAIL_ON_READING_DUP_TREE_KEY enabled",
+                  name));
+        }
+        if (source != null) {
+          source.set(name, value);
+        }
+      }
+      return record;
+    }
+
+    /**
+     * Reads the value the parser is positioned on. Scalars are converted to nodes following the
+     * same rules as {@link ObjectMapper#readTree(JsonParser)}, including the configured
+     * deserialization features.
+     */
+    @NonNull
+    private JsonNode readValue(JsonToken token) throws IOException {
+      switch (token) {
+        case VALUE_STRING:
+          return nodeFactory.textNode(parser.getText());
+        case VALUE_NUMBER_INT:
+          if (useBigIntegerForInts) {
+            return nodeFactory.numberNode(parser.getBigIntegerValue());
+          }
+          switch (parser.getNumberType()) {
+            case INT:
+              return useLongForInts
+                  ? nodeFactory.numberNode(parser.getLongValue())
+                  : nodeFactory.numberNode(parser.getIntValue());
+            case LONG:
+              return nodeFactory.numberNode(parser.getLongValue());
+            default:
+              return nodeFactory.numberNode(parser.getBigIntegerValue());
+          }
+        case VALUE_NUMBER_FLOAT:
+          JsonParser.NumberType numberType = parser.getNumberType();
+          if (numberType == JsonParser.NumberType.BIG_DECIMAL) {
+            return nodeFactory.numberNode(parser.getDecimalValue());
+          }
+          if (useBigDecimalForFloats) {
+            // NaN and infinities cannot be represented as BigDecimals
+            return parser.isNaN()
+                ? nodeFactory.numberNode(parser.getDoubleValue())
+                : nodeFactory.numberNode(parser.getDecimalValue());
+          }
+          return numberType == JsonParser.NumberType.FLOAT
+              ? nodeFactory.numberNode(parser.getFloatValue())
+              : nodeFactory.numberNode(parser.getDoubleValue());
+        case VALUE_TRUE:
+          return nodeFactory.booleanNode(true);
+        case VALUE_FALSE:
+          return nodeFactory.booleanNode(false);
+        case VALUE_NULL:
+          return nodeFactory.nullNode();
+        default:
+          // objects, arrays and embedded values: collection and UDT codecs need a tree
+          return objectMapper.readTree(parser);
+      }
+    }
+
     @Override
     public void close() throws IOException {
       if (parser != null) {
@@ -249,15 +477,22 @@ public class JsonConnector extends AbstractFileBasedConnector {
 
   @NonNull
   @Override
-  protected RecordWriter newSingleFileWriter() {
-    return new JsonRecordWriter();
+  protected RecordWriter newSingleFileWriter(@NonNull Supplier<URL> destinations) {
+    return new JsonRecordWriter(destinations);
   }
 
   private class JsonRecordWriter implements RecordWriter {
 
+    private final Supplier<URL> destinations;
+
     private URL url;
     private JsonGenerator writer;
     private long currentLine;
+    private boolean customEscapes;
+
+    private JsonRecordWriter(Supplier<URL> destinations) {
+      this.destinations = destinations;
+    }
 
     @Override
     public void write(@NonNull Record record) throws IOException {
@@ -273,7 +508,11 @@ public class JsonConnector extends AbstractFileBasedConnector {
           writer.writeRaw(',');
         }
 
-        writer.writeObject(record);
+        if (directWrites && hasOnlyWritableValues(record)) {
+          writeRecord(record);
+        } else {
+          writer.writeObject(record);
+        }
         currentLine++;
       } catch (ClosedChannelException e) {
         // OK, happens when the channel was closed due to interruption
@@ -286,8 +525,120 @@ public class JsonConnector extends AbstractFileBasedConnector {
       return !roots.isEmpty() && currentLine == maxRecords;
     }
 
+    /**
+     * Writes the record as a Json object, directly with the generator. This produces the same
+     * output as serializing the record (a map) with the object mapper, without looking up
+     * serializers for the record and for each of its values. Values are either Json nodes, or plain
+     * values of the scalar types declared in the record metadata, written as the nodes the Json
+     * codecs would have created for them.
+     */
+    private void writeRecord(@NonNull Record record) throws IOException {
+      writer.writeStartObject();
+      Iterator<Field> fields = record.fields().iterator();
+      Iterator<Object> values = record.values().iterator();
+      while (fields.hasNext()) {
+        Field field = fields.next();
+        Object value = values.next();
+        if (shouldSkip(value)) {
+          continue;
+        }
+        if (customEscapes) {
+          // serialized strings are pre-encoded and would bypass custom escaping
+          writer.writeFieldName(field.toString());
+        } else {
+          writer.writeFieldName(fieldName(field));
+        }
+        writeValue(value);
+      }
+      writer.writeEndObject();
+      if (flushAfterWrite) {
+        writer.flush();
+      }
+    }
+
+    /**
+     * Mimics the filtering applied to map entries by the object mapper; plain values are filtered
+     * like the nodes they stand for.
+     */
+    private boolean shouldSkip(@Nullable Object value) {
+      switch (serializationStrategy) {
+        case ALWAYS:
+        case USE_DEFAULTS:
+          return false;
+        case NON_EMPTY:
+          return value == null
+              || (value instanceof JsonNode
+                  && ((JsonNode) value).isContainerNode()
+                  && ((JsonNode) value).size() == 0);
+        default:
+          return value == null;
+      }
+    }
+
+    private void writeValue(@Nullable Object value) throws IOException {
+      if (value == null) {
+        writer.writeNull();
+      } else if (value instanceof JsonNode) {
+        writeNode((JsonNode) value);
+      } else if (value instanceof String) {
+        writer.writeString((String) value);
+      } else if (value instanceof Boolean) {
+        writer.writeBoolean((Boolean) value);
+      } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+        writer.writeNumber(((Number) value).intValue());
+      } else if (value instanceof Long) {
+        writer.writeNumber((Long) value);
+      } else if (value instanceof Double) {
+        writer.writeNumber((Double) value);
+      } else if (value instanceof Float) {
+        writer.writeNumber((Float) value);
+      } else if (value instanceof BigInteger) {
+        writer.writeNumber((BigInteger) value);
+      } else {
+        writer.writeNumber((BigDecimal) value);
+      }
+    }
+
+    private void writeNode(@NonNull JsonNode value) throws IOException {
+      switch (value.getNodeType()) {
+        case NULL:
+          writer.writeNull();
+          break;
+        case STRING:
+          writer.writeString(value.textValue());
+          break;
+        case BOOLEAN:
+          writer.writeBoolean(value.booleanValue());
+          break;
+        case NUMBER:
+          switch (value.numberType()) {
+            case INT:
+              writer.writeNumber(value.intValue());
+              break;
+            case LONG:
+              writer.writeNumber(value.longValue());
+              break;
+            case BIG_INTEGER:
+              writer.writeNumber(value.bigIntegerValue());
+              break;
+            case FLOAT:
+              writer.writeNumber(value.floatValue());
+              break;
+            case DOUBLE:
+              writer.writeNumber(value.doubleValue());
+              break;
+            default:
+              writer.writeNumber(value.decimalValue());
+          }
+          break;
+        default:
+          // objects, arrays, binary and POJO nodes
+          writer.writeTree(value);
+      }
+    }
+
     private void open() throws IOException {
-      url = getOrCreateDestinationURL();
+      url = destinations.get();
       try {
         writer = newJsonGenerator(url);
         if (mode == DocumentMode.SINGLE_DOCUMENT) {
@@ -297,6 +648,12 @@ public class JsonConnector extends AbstractFileBasedConnector {
           writer.writeRaw('[');
           writer.writeRaw(System.lineSeparator());
         }
+        if (indentOutput && writer.getPrettyPrinter() == null) {
+          // same as what the object mapper does when writing values
+          writer.setPrettyPrinter(
+              objectMapper.getSerializationConfig().constructDefaultPrettyPrinter());
+        }
+        customEscapes = writer.getHighestEscapedChar() != 0 || writer.getCharacterEscapes() != null;
         currentLine = 0;
         LOGGER.debug("Writing " + url);
       } catch (ClosedChannelException e) {
@@ -337,8 +694,7 @@ public class JsonConnector extends AbstractFileBasedConnector {
 
   private JsonGenerator newJsonGenerator(URL url) throws IOException {
     JsonFactory factory = objectMapper.getFactory();
-    JsonGenerator generator =
-        factory.createGenerator(CompressedIOUtils.newBufferedWriter(url, encoding, compression));
+    JsonGenerator generator = factory.createGenerator(newWriter(url));
     generator.setRootValueSeparator(new SerializedString(System.lineSeparator()));
     return generator;
   }
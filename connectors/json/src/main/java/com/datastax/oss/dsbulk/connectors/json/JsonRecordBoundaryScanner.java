@@ -0,0 +1,73 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.dsbulk.connectors.json;
+
+import com.datastax.oss.dsbulk.connectors.commons.RecordBoundaryScanner;
+
+/**
+ * A {@link RecordBoundaryScanner} for Json files in {@link
+ * JsonConnector.DocumentMode#MULTI_DOCUMENT MULTI_DOCUMENT} mode.
+ *
+ * <p>Records end with a line feed that appears between two root-level documents, that is, outside
+ * any string, object or array; documents can thus span multiple lines. Each root-level object or
+ * array counts as one record.
+ */
+class JsonRecordBoundaryScanner implements RecordBoundaryScanner {
+
+  private long recordCount;
+
+  private int depth;
+  private boolean inString;
+  private boolean escapePending;
+
+  @Override
+  public boolean next(byte b) {
+    if (inString) {
+      if (escapePending) {
+        escapePending = false;
+      } else if (b == '\\') {
+        escapePending = true;
+      } else if (b == '"') {
+        inString = false;
+      }
+      return false;
+    }
+    switch (b) {
+      case '"':
+        inString = true;
+        return false;
+      case '{':
+      case '[':
+        depth++;
+        return false;
+      case '}':
+      case ']':
+        if (--depth == 0) {
+          recordCount++;
+        }
+        return false;
+      case '\n':
+        return depth == 0;
+      default:
+        return false;
+    }
+  }
+
+  @Override
+  public long getRecordCount() {
+    return recordCount;
+  }
+}
@@ -29,6 +29,9 @@ import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.params.provider.Arguments.arguments;
 
+import com.datastax.oss.driver.api.core.type.DataType;
+import com.datastax.oss.driver.api.core.type.DataTypes;
+import com.datastax.oss.driver.api.core.type.reflect.GenericType;
 import com.datastax.oss.driver.shaded.guava.common.base.Charsets;
 import com.datastax.oss.dsbulk.config.ConfigUtils;
 import com.datastax.oss.dsbulk.connectors.api.CommonConnectorFeature;
@@ -36,6 +39,7 @@ import com.datastax.oss.dsbulk.connectors.api.DefaultMappedField;
 import com.datastax.oss.dsbulk.connectors.api.DefaultRecord;
 import com.datastax.oss.dsbulk.connectors.api.Field;
 import com.datastax.oss.dsbulk.connectors.api.Record;
+import com.datastax.oss.dsbulk.connectors.api.RecordMetadata;
 import com.datastax.oss.dsbulk.io.CompressedIOUtils;
 import com.datastax.oss.dsbulk.tests.logging.LogCapture;
 import com.datastax.oss.dsbulk.tests.logging.LogInterceptingExtension;
@@ -44,10 +48,15 @@ import com.datastax.oss.dsbulk.tests.utils.FileUtils;
 import com.datastax.oss.dsbulk.tests.utils.ReflectionUtils;
 import com.datastax.oss.dsbulk.tests.utils.TestConfigUtils;
 import com.datastax.oss.dsbulk.url.BulkLoaderURLStreamHandlerFactory;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
 import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.json.JsonWriteFeature;
+import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.github.tomakehurst.wiremock.WireMockServer;
 import com.typesafe.config.Config;
@@ -60,15 +69,19 @@ import java.io.InputStreamReader;
 import java.io.PrintStream;
 import java.io.UncheckedIOException;
 import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
@@ -297,6 +310,83 @@ class JsonConnectorTest {
     }
   }
 
+  @ParameterizedTest
+  @ValueSource(booleans = {true, false})
+  void should_read_nested_values_and_share_fields(boolean retainRecordSources) throws Exception {
+    Path file = Files.createTempFile("test", ".json");
+    try {
+      String doc1 =
+          "{\"pk\":1,\"big\":123456789012345678901234567890,\"f\":1.5,\"b\":true,"
+              + "\"list\":[1,[2,3],{\"a\":null}],\"udt\":{\"x\":\"foo\",\"y\":[]}}";
+      String doc2 = "{\"pk\":3000000000,\"b\":false,\"udt\":null}";
+      Files.write(file, (doc1 + "\n" + doc2 + "\n").getBytes(StandardCharsets.UTF_8));
+      JsonConnector connector = new JsonConnector();
+      Config settings =
+          TestConfigUtils.createTestConfig(
+              "dsbulk.connector.json", "url", quoteJson(file.toString()));
+      connector.configure(settings, true, retainRecordSources);
+      connector.init();
+      List<Record> actual = Flux.merge(connector.read()).collectList().block();
+      assertThat(actual).hasSize(2);
+      ObjectMapper mapper = new ObjectMapper();
+      mapper.enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+      mapper.setNodeFactory(JsonNodeFactory.withExactBigDecimals(true));
+      JsonNode expected1 = mapper.readTree(doc1);
+      JsonNode expected2 = mapper.readTree(doc2);
+      assertThat(actual.get(0).fields()).hasSize(6);
+      expected1
+          .fields()
+          .forEachRemaining(
+              entry ->
+                  assertThat(actual.get(0).getFieldValue(new DefaultMappedField(entry.getKey())))
+                      .isEqualTo(entry.getValue()));
+      assertThat(actual.get(1).fields()).hasSize(3);
+      expected2
+          .fields()
+          .forEachRemaining(
+              entry ->
+                  assertThat(actual.get(1).getFieldValue(new DefaultMappedField(entry.getKey())))
+                      .isEqualTo(entry.getValue()));
+      if (retainRecordSources) {
+        assertThat(actual.get(0).getSource()).isEqualTo(expected1);
+        assertThat(actual.get(1).getSource()).isEqualTo(expected2);
+      } else {
+        assertThat(actual.get(0).getSource()).isNull();
+      }
+      // field instances are shared between records
+      Field pk1 = actual.get(0).fields().iterator().next();
+      Field pk2 = actual.get(1).fields().iterator().next();
+      assertThat(pk1).isEqualTo(new DefaultMappedField("pk")).isSameAs(pk2);
+      connector.close();
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  void should_reject_duplicate_keys_when_configured() throws Exception {
+    Path file = Files.createTempFile("test", ".json");
+    try {
+      Files.write(file, "{\"pk\":1,\"pk\":2}".getBytes(StandardCharsets.UTF_8));
+      JsonConnector connector = new JsonConnector();
+      Config settings =
+          TestConfigUtils.createTestConfig(
+              "dsbulk.connector.json",
+              "url",
+              quoteJson(file.toString()),
+              "deserializationFeatures",
+              "{FAIL_ON_READING_DUP_TREE_KEY : true}");
+      connector.configure(settings, true, true);
+      connector.init();
+      assertThatThrownBy(() -> Flux.merge(connector.read()).collectList().block())
+          .hasRootCauseExactlyInstanceOf(JsonParseException.class)
+          .satisfies(t -> assertThat(getRootCause(t)).hasMessageContaining("Duplicate field 'pk'"));
+      connector.close();
+    } finally {
+      Files.delete(file);
+    }
+  }
+
   @Test
   void should_write_to_stdout_with_special_encoding() throws Exception {
     PrintStream stdout = System.out;
@@ -768,6 +858,287 @@ class JsonConnectorTest {
     }
   }
 
+  @ParameterizedTest(name = "[{index}] strategy {0} escape non ASCII {1}")
+  @MethodSource
+  void should_write_same_output_as_object_mapper(Include strategy, boolean escapeNonAscii)
+      throws Exception {
+    Path dir = Files.createTempDirectory("test");
+    try {
+      JsonConnector connector = new JsonConnector();
+      Config settings =
+          TestConfigUtils.createTestConfig(
+              "dsbulk.connector.json",
+              "url",
+              quoteJson(dir),
+              "serializationStrategy",
+              strategy,
+              "generatorFeatures",
+              String.format("{ESCAPE_NON_ASCII : %s}", escapeNonAscii));
+      connector.configure(settings, false, true);
+      connector.init();
+      ArrayNode array = factory.arrayNode().add(1).add(factory.objectNode().put("a", "b"));
+      DefaultRecord record1 =
+          DefaultRecord.mapped(
+              null,
+              resource,
+              1,
+              new Field[] {
+                new DefaultMappedField("int"),
+                new DefaultMappedField("big"),
+                new DefaultMappedField("decimal"),
+                new DefaultMappedField("float"),
+                new DefaultMappedField("double"),
+                new DefaultMappedField("fóô"),
+                new DefaultMappedField("empty"),
+                new DefaultMappedField("null"),
+                new DefaultMappedField("java null"),
+                new DefaultMappedField("array"),
+                new DefaultMappedField("empty array"),
+                new DefaultMappedField("empty object")
+              },
+              factory.numberNode(42),
+              factory.numberNode(new BigInteger("123456789012345678901234567890")),
+              factory.numberNode(new BigDecimal("1.10")),
+              factory.numberNode(1.5f),
+              factory.numberNode(-2.25d),
+              factory.textNode("bàr\n\"qïx\""),
+              factory.textNode(""),
+              factory.nullNode(),
+              null,
+              array,
+              factory.arrayNode(),
+              factory.objectNode());
+      DefaultRecord record2 =
+          DefaultRecord.mapped(
+              null,
+              resource,
+              2,
+              new Field[] {new DefaultMappedField("bool"), new DefaultMappedField("long")},
+              factory.booleanNode(true),
+              factory.numberNode(Long.MAX_VALUE));
+      Flux.<Record>just(record1, record2).transform(connector.write()).blockLast();
+      connector.close();
+      ObjectMapper mapper =
+          JsonMapper.builder()
+              .serializationInclusion(strategy)
+              .configure(JsonWriteFeature.ESCAPE_NON_ASCII, escapeNonAscii)
+              .build();
+      assertThat(Files.readAllLines(dir.resolve("output-000001.json")))
+          .containsExactly(mapper.writeValueAsString(record1), mapper.writeValueAsString(record2));
+    } finally {
+      deleteDirectory(dir);
+    }
+  }
+
+  @SuppressWarnings("unused")
+  private static Stream<Arguments> should_write_same_output_as_object_mapper() {
+    return Arrays.stream(Include.values())
+        .flatMap(strategy -> Stream.of(arguments(strategy, false), arguments(strategy, true)));
+  }
+
+  @Test
+  void should_declare_plain_values_for_scalars_when_writing_directly() throws Exception {
+    Path dir = Files.createTempDirectory("test");
+    try {
+      JsonConnector connector = new JsonConnector();
+      Config settings =
+          TestConfigUtils.createTestConfig("dsbulk.connector.json", "url", quoteJson(dir));
+      connector.configure(settings, false, true);
+      connector.init();
+      RecordMetadata metadata = connector.getRecordMetadata();
+      Field field = new DefaultMappedField("f");
+      for (DataType cqlType :
+          Arrays.asList(
+              DataTypes.TEXT,
+              DataTypes.ASCII,
+              DataTypes.BOOLEAN,
+              DataTypes.TINYINT,
+              DataTypes.SMALLINT,
+              DataTypes.INT,
+              DataTypes.BIGINT,
+              DataTypes.COUNTER,
+              DataTypes.VARINT,
+              DataTypes.FLOAT,
+              DataTypes.DOUBLE,
+              DataTypes.DECIMAL)) {
+        assertThat(RecordMetadata.isPlainValues(metadata.getFieldType(field, cqlType))).isTrue();
+      }
+      // the Json codecs format these types
+      for (DataType cqlType :
+          Arrays.asList(
+              DataTypes.TIMESTAMP,
+              DataTypes.UUID,
+              DataTypes.BLOB,
+              DataTypes.listOf(DataTypes.INT))) {
+        assertThat(metadata.getFieldType(field, cqlType)).isEqualTo(GenericType.of(JsonNode.class));
+      }
+      connector.close();
+    } finally {
+      deleteDirectory(dir);
+    }
+  }
+
+  @Test
+  void should_not_declare_plain_values_when_not_writing_directly() throws Exception {
+    Path dir = Files.createTempDirectory("test");
+    try {
+      JsonConnector connector = new JsonConnector();
+      Config settings =
+          TestConfigUtils.createTestConfig(
+              "dsbulk.connector.json",
+              "url",
+              quoteJson(dir),
+              "serializationFeatures",
+              "{ORDER_MAP_ENTRIES_BY_KEYS : true}");
+      connector.configure(settings, false, true);
+      connector.init();
+      assertThat(
+              connector
+                  .getRecordMetadata()
+                  .getFieldType(new DefaultMappedField("f"), DataTypes.INT))
+          .isEqualTo(GenericType.of(JsonNode.class));
+      connector.close();
+      connector = new JsonConnector();
+      settings = TestConfigUtils.createTestConfig("dsbulk.connector.json", "url", quoteJson(dir));
+      connector.configure(settings, true, true);
+      connector.init();
+      assertThat(
+              connector
+                  .getRecordMetadata()
+                  .getFieldType(new DefaultMappedField("f"), DataTypes.INT))
+          .isEqualTo(GenericType.of(JsonNode.class));
+      connector.close();
+    } finally {
+      deleteDirectory(dir);
+    }
+  }
+
+  @ParameterizedTest(name = "[{index}] strategy {0} escape non ASCII {1}")
+  @MethodSource("should_write_same_output_as_object_mapper")
+  void should_write_plain_values_as_their_json_nodes(Include strategy, boolean escapeNonAscii)
+      throws Exception {
+    Path dir = Files.createTempDirectory("test");
+    try {
+      JsonConnector connector = new JsonConnector();
+      Config settings =
+          TestConfigUtils.createTestConfig(
+              "dsbulk.connector.json",
+              "url",
+              quoteJson(dir),
+              "serializationStrategy",
+              strategy,
+              "generatorFeatures",
+              String.format("{ESCAPE_NON_ASCII : %s}", escapeNonAscii));
+      connector.configure(settings, false, true);
+      connector.init();
+      Field[] fields = {
+        new DefaultMappedField("text"),
+        new DefaultMappedField("empty"),
+        new DefaultMappedField("bool"),
+        new DefaultMappedField("tinyint"),
+        new DefaultMappedField("smallint"),
+        new DefaultMappedField("int"),
+        new DefaultMappedField("bigint"),
+        new DefaultMappedField("varint"),
+        new DefaultMappedField("float"),
+        new DefaultMappedField("double"),
+        new DefaultMappedField("decimal"),
+        new DefaultMappedField("null"),
+        new DefaultMappedField("list")
+      };
+      // plain values are mixed with the nodes of the types that the Json codecs convert
+      DefaultRecord plain =
+          DefaultRecord.mapped(
+              null,
+              resource,
+              1,
+              fields,
+              "bàr\n\"qïx\"",
+              "",
+              true,
+              (byte) -1,
+              (short) 300,
+              42,
+              Long.MAX_VALUE,
+              new BigInteger("123456789012345678901234567890"),
+              1.5f,
+              -2.25d,
+              new BigDecimal("1.10"),
+              null,
+              factory.arrayNode().add(1));
+      // the nodes that the Json codecs would have created for the same values
+      JsonNodeFactory codecNodes = JsonNodeFactory.withExactBigDecimals(true);
+      DefaultRecord nodes =
+          DefaultRecord.mapped(
+              null,
+              resource,
+              1,
+              fields,
+              codecNodes.textNode("bàr\n\"qïx\""),
+              codecNodes.textNode(""),
+              codecNodes.booleanNode(true),
+              codecNodes.numberNode((byte) -1),
+              codecNodes.numberNode((short) 300),
+              codecNodes.numberNode(42),
+              codecNodes.numberNode(Long.MAX_VALUE),
+              codecNodes.numberNode(new BigInteger("123456789012345678901234567890")),
+              codecNodes.numberNode(1.5f),
+              codecNodes.numberNode(-2.25d),
+              codecNodes.numberNode(new BigDecimal("1.10")),
+              null,
+              codecNodes.arrayNode().add(1));
+      Flux.<Record>just(plain).transform(connector.write()).blockLast();
+      connector.close();
+      ObjectMapper mapper =
+          JsonMapper.builder()
+              .serializationInclusion(strategy)
+              .configure(JsonWriteFeature.ESCAPE_NON_ASCII, escapeNonAscii)
+              .build();
+      assertThat(Files.readAllLines(dir.resolve("output-000001.json")))
+          .containsExactly(mapper.writeValueAsString(nodes));
+    } finally {
+      deleteDirectory(dir);
+    }
+  }
+
+  @Test
+  void should_not_write_null_map_values_when_disabled() throws Exception {
+    Path dir = Files.createTempDirectory("test");
+    try {
+      JsonConnector connector = new JsonConnector();
+      Config settings =
+          TestConfigUtils.createTestConfig(
+              "dsbulk.connector.json",
+              "url",
+              quoteJson(dir),
+              "serializationStrategy",
+              "USE_DEFAULTS",
+              "serializationFeatures",
+              "{WRITE_NULL_MAP_VALUES : false}");
+      connector.configure(settings, false, true);
+      connector.init();
+      DefaultRecord record =
+          DefaultRecord.mapped(
+              null,
+              resource,
+              1,
+              new Field[] {
+                new DefaultMappedField("null"),
+                new DefaultMappedField("java null"),
+                new DefaultMappedField("text")
+              },
+              factory.nullNode(),
+              null,
+              factory.textNode("foo"));
+      Flux.<Record>just(record).transform(connector.write()).blockLast();
+      connector.close();
+      assertThat(Files.readAllLines(dir.resolve("output-000001.json")))
+          .containsExactly("{\"null\":null,\"text\":\"foo\"}");
+    } finally {
+      deleteDirectory(dir);
+    }
+  }
+
   @Test
   void should_write_multiple_files() throws Exception {
     JsonConnector connector = new JsonConnector();
@@ -1453,6 +1824,64 @@ class JsonConnectorTest {
     return records;
   }
 
+  @Test
+  void should_split_large_file_in_chunks() throws Exception {
+    Path file = Files.createTempFile("test", ".json");
+    try {
+      StringBuilder sb = new StringBuilder();
+      for (int i = 1; i <= 1000; i++) {
+        if (i % 3 == 0) {
+          // document spanning several lines, with nested structures and escaped characters
+          sb.append("{\n  \"pk\": ")
+              .append(i)
+              .append(",\n  \"value\": {\"text\": \"}\\n\\\"{\", \"list\": [1, [2]]}\n}\n");
+        } else {
+          sb.append("{\"pk\": ").append(i).append(", \"value\": \"value").append(i).append("\"}\n");
+        }
+      }
+      Files.write(file, sb.toString().getBytes(StandardCharsets.UTF_8));
+      List<String> unsplit = readChunks(file, -1, "BUFFERED", 1);
+      assertThat(unsplit).hasSize(1000);
+      assertThat(readChunks(file, 1024, "BUFFERED", 8)).isEqualTo(unsplit);
+      assertThat(readChunks(file, -1, "MAPPED", 1)).isEqualTo(unsplit);
+      assertThat(readChunks(file, 1024, "MAPPED", 8)).isEqualTo(unsplit);
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  private static List<String> readChunks(
+      Path file, long splitSize, String readMode, int expectedConcurrency) throws Exception {
+    JsonConnector connector = new JsonConnector();
+    Config settings =
+        TestConfigUtils.createTestConfig(
+            "dsbulk.connector.json",
+            "url",
+            quoteJson(file.toUri().toURL()),
+            "maxConcurrentFiles",
+            8,
+            "splitSize",
+            splitSize,
+            "readMode",
+            readMode);
+    connector.configure(settings, true, true);
+    connector.init();
+    assertThat(connector.readConcurrency()).isEqualTo(expectedConcurrency);
+    List<Record> records = Flux.merge(connector.read()).collectList().block();
+    connector.close();
+    return records.stream()
+        .sorted(Comparator.comparingLong(Record::getPosition))
+        .map(
+            record ->
+                String.format(
+                    "%d|%s|%s|%s",
+                    record.getPosition(),
+                    record.getSource(),
+                    record.getFieldValue(new DefaultMappedField("pk")),
+                    record.getFieldValue(new DefaultMappedField("value"))))
+        .collect(Collectors.toList());
+  }
+
   private static String url(String resource) {
     return quoteJson(rawURL(resource));
   }
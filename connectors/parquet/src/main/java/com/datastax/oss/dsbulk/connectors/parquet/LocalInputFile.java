@@ -0,0 +1,68 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.dsbulk.connectors.parquet;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import org.apache.parquet.io.DelegatingSeekableInputStream;
+import org.apache.parquet.io.InputFile;
+import org.apache.parquet.io.SeekableInputStream;
+
+/**
+ * An {@link InputFile} backed by a local file, read through {@link FileChannel}s, that does not
+ * require any Hadoop file system. Each stream has its own channel, so that row groups of the same
+ * file can be read concurrently.
+ */
+class LocalInputFile implements InputFile {
+
+  private final Path file;
+
+  LocalInputFile(@NonNull Path file) {
+    this.file = file;
+  }
+
+  @Override
+  public long getLength() throws IOException {
+    return Files.size(file);
+  }
+
+  @Override
+  public SeekableInputStream newStream() throws IOException {
+    FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+    return new DelegatingSeekableInputStream(Channels.newInputStream(channel)) {
+
+      @Override
+      public long getPos() throws IOException {
+        return channel.position();
+      }
+
+      @Override
+      public void seek(long newPos) throws IOException {
+        channel.position(newPos);
+      }
+    };
+  }
+
+  @Override
+  public String toString() {
+    return file.toString();
+  }
+}
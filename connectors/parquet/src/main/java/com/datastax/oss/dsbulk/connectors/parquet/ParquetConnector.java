@@ -0,0 +1,616 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.dsbulk.connectors.parquet;
+
+import com.datastax.oss.driver.api.core.type.DataType;
+import com.datastax.oss.driver.api.core.type.codec.registry.CodecRegistry;
+import com.datastax.oss.driver.api.core.type.reflect.GenericType;
+import com.datastax.oss.dsbulk.config.ConfigUtils;
+import com.datastax.oss.dsbulk.connectors.api.ArrayBackedRecord;
+import com.datastax.oss.dsbulk.connectors.api.CommonConnectorFeature;
+import com.datastax.oss.dsbulk.connectors.api.ConnectorFeature;
+import com.datastax.oss.dsbulk.connectors.api.Field;
+import com.datastax.oss.dsbulk.connectors.api.MappedField;
+import com.datastax.oss.dsbulk.connectors.api.Record;
+import com.datastax.oss.dsbulk.connectors.api.RecordMetadata;
+import com.datastax.oss.dsbulk.connectors.api.RecordShape;
+import com.datastax.oss.dsbulk.connectors.commons.AbstractFileBasedConnector;
+import com.datastax.oss.dsbulk.connectors.commons.FieldTypeRegistry;
+import com.datastax.oss.dsbulk.connectors.parquet.ParquetTypes.ValueWriter;
+import com.datastax.oss.dsbulk.io.IOUtils;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigException;
+import com.typesafe.config.ConfigFactory;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.channels.ClosedChannelException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.parquet.column.page.PageReadStore;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.api.WriteSupport;
+import org.apache.parquet.hadoop.metadata.BlockMetaData;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.apache.parquet.io.ColumnIOFactory;
+import org.apache.parquet.io.MessageColumnIO;
+import org.apache.parquet.io.OutputFile;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.Type;
+import org.apache.parquet.schema.Type.Repetition;
+import org.reactivestreams.Publisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.SynchronousSink;
+
+/**
+ * A connector for Parquet files.
+ *
+ * <p>When reading, Parquet values are decoded to typed Java values, e.g. {@link java.time.Instant}s
+ * or {@link java.math.BigDecimal}s, that are converted to CQL types without going through text
+ * codecs; local files can be split in chunks of row groups read in parallel. When writing, records
+ * are written as Parquet rows, with a schema derived from the CQL types of the unloaded columns.
+ *
+ * <p>Local files are read directly; other URLs are first copied to a temporary file, since Parquet
+ * files can only be read with random access.
+ *
+ * <p>This connector is highly configurable; see its {@code dsbulk-reference.conf} file, bundled
+ * within its jar archive, for detailed information.
+ */
+public class ParquetConnector extends AbstractFileBasedConnector {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ParquetConnector.class);
+
+  private static final String COMPRESSION_CODEC = "compressionCodec";
+  private static final String ROW_GROUP_SIZE = "rowGroupSize";
+  private static final String PAGE_SIZE = "pageSize";
+
+  /**
+   * Settings of file-based connectors that do not apply to Parquet files: Parquet files are binary
+   * and compressed internally.
+   */
+  private static final Config FIXED_SETTINGS =
+      ConfigFactory.parseString(
+          "compression = none, encoding = UTF-8, readMode = BUFFERED, "
+              + "compressionThreads = 1, compressionBlockSize = 1MB");
+
+  private static final Set<CompressionCodecName> SUPPORTED_CODECS =
+      EnumSet.of(
+          CompressionCodecName.UNCOMPRESSED,
+          CompressionCodecName.SNAPPY,
+          CompressionCodecName.GZIP);
+
+  private CompressionCodecName compressionCodec;
+  private long rowGroupSize;
+  private int pageSize;
+
+  /** The Java types of the columns read, and the CQL types of the columns written. */
+  private final FieldTypeRegistry<GenericType<?>> types = new FieldTypeRegistry<>();
+
+  @Override
+  @NonNull
+  public String getConnectorName() {
+    return "parquet";
+  }
+
+  @Override
+  public void configure(@NonNull Config settings, boolean read, boolean retainRecordSources) {
+    try {
+      super.configure(FIXED_SETTINGS.withFallback(settings), read, retainRecordSources);
+      String codec = settings.getString(COMPRESSION_CODEC);
+      compressionCodec =
+          SUPPORTED_CODECS.stream()
+              .filter(c -> c.name().equalsIgnoreCase(codec))
+              .findFirst()
+              .orElseThrow(
+                  () ->
+                      new IllegalArgumentException(
+                          String.format(
+                              "Invalid value for connector.parquet.%s, valid values: %s, got: '%s'",
+                              COMPRESSION_CODEC,
+                              SUPPORTED_CODECS.stream()
+                                  .map(Enum::name)
+                                  .collect(Collectors.joining(",")),
+                              codec)));
+      rowGroupSize = settings.getBytes(ROW_GROUP_SIZE);
+      if (rowGroupSize <= 0) {
+        throw new IllegalArgumentException(
+            String.format(
+                "Invalid value for connector.parquet.%s: Expecting a positive size, got: %s",
+                ROW_GROUP_SIZE, rowGroupSize));
+      }
+      long pageSize = settings.getBytes(PAGE_SIZE);
+      if (pageSize <= 0 || pageSize > Integer.MAX_VALUE) {
+        throw new IllegalArgumentException(
+            String.format(
+                "Invalid value for connector.parquet.%s: Expecting a positive size lesser than 2GB, got: %s",
+                PAGE_SIZE, pageSize));
+      }
+      this.pageSize = (int) pageSize;
+    } catch (ConfigException e) {
+      throw ConfigUtils.convertConfigException(e, "dsbulk.connector.parquet");
+    }
+  }
+
+  @Override
+  public void init() throws URISyntaxException, IOException {
+    super.init();
+    if (read && skipRecords == 0 && maxRecords == -1 && splitSize > 0) {
+      additionalChunkCount = countAdditionalChunks();
+    }
+  }
+
+  @NonNull
+  @Override
+  public RecordMetadata getRecordMetadata() {
+    if (read) {
+      return (field, cqlType) -> types.getReadType(field);
+    }
+    return (field, cqlType) -> {
+      types.registerWriteType(field, cqlType);
+      return CodecRegistry.DEFAULT.codecFor(cqlType).getJavaType();
+    };
+  }
+
+  @Override
+  public boolean supports(@NonNull ConnectorFeature feature) {
+    if (feature instanceof CommonConnectorFeature) {
+      CommonConnectorFeature commonFeature = (CommonConnectorFeature) feature;
+      switch (commonFeature) {
+        case MAPPED_RECORDS:
+          return true;
+        case INDEXED_RECORDS:
+          return read;
+        case DATA_SIZE_SAMPLING:
+          return isDataSizeSamplingAvailable();
+        case RESUMABLE_READS:
+          return read;
+        case PARTITIONED_WRITES:
+          return !read && !roots.isEmpty();
+      }
+    }
+    return false;
+  }
+
+  @NonNull
+  @Override
+  public Publisher<Publisher<Record>> read() {
+    assert read;
+    return Flux.concat(
+            Flux.fromIterable(roots).flatMap(this::scanRootDirectory), Flux.fromIterable(files))
+        .concatMap(
+            url -> {
+              long lastPosition =
+                  resumePositions.getOrDefault(URI.create(url.toExternalForm()), 0L);
+              Path file = getLocalFile(url);
+              if (file == null || skipRecords > 0 || maxRecords != -1 || splitSize <= 0) {
+                Flux<Record> records = readSingleFile(url).transform(this::applyPerFileLimits);
+                if (lastPosition > 0) {
+                  records = records.filter(record -> record.getPosition() > lastPosition);
+                }
+                return Flux.just(records);
+              }
+              return splitRowGroups(url, file, lastPosition);
+            });
+  }
+
+  /**
+   * Returns one stream of records per chunk of the given local file, so that chunks can be read in
+   * parallel. Chunks are made of consecutive row groups, and are approximately {@link #splitSize}
+   * bytes long. Chunks that were entirely processed by a previous operation are skipped without
+   * being read.
+   */
+  @NonNull
+  private Flux<Flux<Record>> splitRowGroups(
+      @NonNull URL url, @NonNull Path file, long lastPosition) {
+    return Flux.defer(
+        () -> {
+          List<Flux<Record>> chunks = new ArrayList<>();
+          try {
+            long firstPosition = 1;
+            for (RowGroupRange chunk : scanRowGroups(file, splitSize)) {
+              if (firstPosition + chunk.rowCount - 1 > lastPosition) {
+                Flux<Record> records = readChunk(url, file, chunk, firstPosition);
+                if (firstPosition <= lastPosition) {
+                  records = records.filter(record -> record.getPosition() > lastPosition);
+                }
+                chunks.add(records);
+              }
+              firstPosition += chunk.rowCount;
+            }
+          } catch (IOException | RuntimeException e) {
+            return Flux.error(new IOException(String.format("Error reading from %s", url), e));
+          }
+          LOGGER.debug("Reading {} chunks of {}", chunks.size(), url);
+          return Flux.fromIterable(chunks);
+        });
+  }
+
+  @NonNull
+  private Flux<Record> readChunk(
+      @NonNull URL url, @NonNull Path file, @NonNull RowGroupRange chunk, long firstPosition) {
+    return Flux.generate(
+        () -> new ParquetRecordReader(url, file, null, chunk, firstPosition),
+        RecordReader::readNext,
+        recordReader -> {
+          try {
+            recordReader.close();
+          } catch (IOException e) {
+            LOGGER.error("Error closing " + url, e);
+          }
+        });
+  }
+
+  /**
+   * Reads the footer of the given file, and groups consecutive row groups in ranges of
+   * approximately the given size, as stored on disk.
+   */
+  @NonNull
+  static List<RowGroupRange> scanRowGroups(@NonNull Path file, long rangeSize) throws IOException {
+    List<RowGroupRange> ranges = new ArrayList<>();
+    try (ParquetFileReader reader = ParquetFileReader.open(new LocalInputFile(file))) {
+      List<BlockMetaData> blocks = reader.getRowGroups();
+      RowGroupRange range = null;
+      for (int i = 0; i < blocks.size(); i++) {
+        if (range == null) {
+          range = new RowGroupRange(i);
+        }
+        BlockMetaData block = blocks.get(i);
+        range.end = i + 1;
+        range.rowCount += block.getRowCount();
+        range.size += block.getCompressedSize();
+        if (range.size >= rangeSize) {
+          ranges.add(range);
+          range = null;
+        }
+      }
+      if (range != null) {
+        ranges.add(range);
+      }
+    }
+    return ranges;
+  }
+
+  /**
+   * Returns the number of chunks in excess of one per file, in the files to read, so that read
+   * concurrency accounts for chunks read in parallel. Counting stops as soon as the maximum number
+   * of concurrent files is reached.
+   */
+  private int countAdditionalChunks() {
+    int count = 0;
+    List<URL> resources = new ArrayList<>(files);
+    for (Path root : roots) {
+      resources.addAll(
+          Objects.requireNonNull(scanRootDirectory(root).take(1000).collectList().block()));
+    }
+    for (URL url : resources) {
+      if (resourceCount + count >= maxConcurrentFiles) {
+        break;
+      }
+      Path file = getLocalFile(url);
+      if (file != null) {
+        try {
+          count += Math.max(0, scanRowGroups(file, splitSize).size() - 1);
+        } catch (IOException | RuntimeException e) {
+          LOGGER.debug("Could not inspect " + url + ", its chunks will not be counted", e);
+        }
+      }
+    }
+    return count;
+  }
+
+  @Nullable
+  private static Path getLocalFile(@NonNull URL url) {
+    if (!url.getProtocol().equals("file")) {
+      return null;
+    }
+    try {
+      Path file = Paths.get(url.toURI());
+      return Files.isRegularFile(file) ? file : null;
+    } catch (URISyntaxException | RuntimeException e) {
+      return null;
+    }
+  }
+
+  @Override
+  @NonNull
+  protected RecordReader newSingleFileReader(@NonNull URL url) throws IOException {
+    Path file = getLocalFile(url);
+    Path tempFile = null;
+    if (file == null) {
+      tempFile = Files.createTempFile("dsbulk-", ".parquet");
+      try (InputStream in = IOUtils.newBufferedInputStream(url)) {
+        Files.copy(in, tempFile, StandardCopyOption.REPLACE_EXISTING);
+      } catch (IOException | RuntimeException e) {
+        Files.deleteIfExists(tempFile);
+        throw new IOException(String.format("Error reading from %s", url), e);
+      }
+      file = tempFile;
+    }
+    return new ParquetRecordReader(url, file, tempFile, null, 1);
+  }
+
+  private class ParquetRecordReader implements RecordReader {
+
+    private final URL url;
+    private final URI resource;
+    private final Path tempFile;
+    private final ParquetFileReader reader;
+    private final String[] names;
+    private final RecordShape shape;
+    private final RowMaterializer materializer;
+    private final MessageColumnIO columnIO;
+
+    /** The index of the next row group to read, or -1 to read all row groups sequentially. */
+    private int rowGroup;
+
+    /** The index of the row group where to stop reading, exclusive, when reading a chunk. */
+    private final int endRowGroup;
+
+    private org.apache.parquet.io.RecordReader<Object[]> rows;
+    private long remainingRows;
+    private long position;
+
+    private ParquetRecordReader(
+        URL url,
+        Path file,
+        @Nullable Path tempFile,
+        @Nullable RowGroupRange chunk,
+        long firstPosition)
+        throws IOException {
+      this.url = url;
+      this.tempFile = tempFile;
+      rowGroup = chunk == null ? -1 : chunk.first;
+      endRowGroup = chunk == null ? -1 : chunk.end;
+      resource = URI.create(url.toExternalForm());
+      position = firstPosition;
+      try {
+        reader = ParquetFileReader.open(new LocalInputFile(file));
+        MessageType schema = reader.getFooter().getFileMetaData().getSchema();
+        names = schema.getFields().stream().map(Type::getName).toArray(String[]::new);
+        shape =
+            types.registerSchema(
+                Arrays.asList(names),
+                schema.getFields().stream()
+                    .map(ParquetTypes::javaType)
+                    .collect(Collectors.toList()),
+                url);
+        materializer = new RowMaterializer(schema);
+        columnIO = new ColumnIOFactory().getColumnIO(schema);
+      } catch (Exception e) {
+        close();
+        throw new IOException(String.format("Error reading from %s", url), e);
+      }
+    }
+
+    @NonNull
+    @Override
+    public RecordReader readNext(@NonNull SynchronousSink<Record> sink) {
+      try {
+        while (remainingRows == 0) {
+          PageReadStore pages = nextRowGroup();
+          if (pages == null) {
+            LOGGER.debug("Done reading {}", url);
+            sink.complete();
+            return this;
+          }
+          remainingRows = pages.getRowCount();
+          rows = columnIO.getRecordReader(pages, materializer);
+        }
+        Object[] values = rows.read();
+        remainingRows--;
+        Record record =
+            new ArrayBackedRecord(
+                retainRecordSources ? sourceOf(values) : null, resource, position++, shape, values);
+        LOGGER.trace("Emitting record {}", record);
+        sink.next(record);
+      } catch (Exception e) {
+        sink.error(new IOException(String.format("Error reading from %s", url), e));
+      }
+      return this;
+    }
+
+    @Nullable
+    private PageReadStore nextRowGroup() throws IOException {
+      if (rowGroup == -1) {
+        return reader.readNextRowGroup();
+      }
+      if (rowGroup == endRowGroup) {
+        return null;
+      }
+      return reader.readRowGroup(rowGroup++);
+    }
+
+    /** Returns the row as a map of column names to values, for error reports. */
+    @NonNull
+    private Map<String, Object> sourceOf(@NonNull Object[] values) {
+      Map<String, Object> source = new LinkedHashMap<>();
+      for (int i = 0; i < names.length; i++) {
+        source.put(names[i], values[i]);
+      }
+      return source;
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        if (reader != null) {
+          reader.close();
+        }
+      } finally {
+        if (tempFile != null) {
+          Files.deleteIfExists(tempFile);
+        }
+      }
+    }
+  }
+
+  @NonNull
+  @Override
+  protected RecordWriter newSingleFileWriter(@NonNull Supplier<URL> destinations) {
+    return new ParquetRecordWriter(destinations);
+  }
+
+  private class ParquetRecordWriter implements RecordWriter {
+
+    private final Supplier<URL> destinations;
+
+    private URL url;
+    private ParquetWriter<Record> writer;
+    private long currentRecord;
+
+    private ParquetRecordWriter(Supplier<URL> destinations) {
+      this.destinations = destinations;
+    }
+
+    @Override
+    public void write(@NonNull Record record) throws IOException {
+      try {
+        if (writer == null) {
+          open(record);
+        } else if (shouldRoll()) {
+          close();
+          open(record);
+        }
+        LOGGER.trace("Writing record {}", record);
+        writer.write(record);
+        currentRecord++;
+      } catch (ClosedChannelException e) {
+        // OK, happens when the channel was closed due to interruption
+      } catch (RuntimeException e) {
+        throw new IOException(String.format("Error writing to %s", url), e);
+      }
+    }
+
+    private boolean shouldRoll() {
+      return !roots.isEmpty() && currentRecord == maxRecords;
+    }
+
+    private void open(@NonNull Record record) throws IOException {
+      url = destinations.get();
+      try {
+        // the schema is derived from the first record; all records unloaded by the same
+        // operation have the same fields
+        List<Field> fields = new ArrayList<>(record.fields());
+        List<ValueWriter> writers = new ArrayList<>(fields.size());
+        for (Field field : fields) {
+          DataType cqlType = types.getWriteType(field);
+          String name =
+              field instanceof MappedField
+                  ? ((MappedField) field).getFieldName()
+                  : field.getFieldDescription();
+          writers.add(
+              ParquetTypes.valueWriter(name, Repetition.OPTIONAL, cqlType, CodecRegistry.DEFAULT));
+        }
+        writer =
+            new RecordParquetWriterBuilder(
+                    new StreamOutputFile(url), new RecordWriteSupport(fields, writers))
+                .withCompressionCodec(compressionCodec)
+                .withRowGroupSize(rowGroupSize)
+                .withPageSize(pageSize)
+                .build();
+        currentRecord = 0;
+        LOGGER.debug("Writing " + url);
+      } catch (ClosedChannelException e) {
+        // OK, happens when the channel was closed due to interruption
+      } catch (RuntimeException | IOException e) {
+        throw new IOException(String.format("Error opening %s", url), e);
+      }
+    }
+
+    @Override
+    public void flush() {
+      // rows are buffered in memory until their row group is complete; they can only be written
+      // when the file is closed or when the row group reaches its maximum size.
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (writer != null) {
+        try {
+          writer.close();
+          LOGGER.debug("Done writing {}", url);
+          writer = null;
+        } catch (ClosedChannelException e) {
+          // OK, happens when the channel was closed due to interruption
+        } catch (RuntimeException | IOException e) {
+          throw new IOException(String.format("Error closing %s", url), e);
+        }
+      }
+    }
+  }
+
+  private static class RecordParquetWriterBuilder
+      extends ParquetWriter.Builder<Record, RecordParquetWriterBuilder> {
+
+    private final WriteSupport<Record> writeSupport;
+
+    private RecordParquetWriterBuilder(
+        @NonNull OutputFile file, @NonNull WriteSupport<Record> writeSupport) {
+      super(file);
+      this.writeSupport = writeSupport;
+    }
+
+    @Override
+    protected RecordParquetWriterBuilder self() {
+      return this;
+    }
+
+    @Override
+    protected WriteSupport<Record> getWriteSupport(Configuration conf) {
+      return writeSupport;
+    }
+  }
+
+  /** A range of consecutive row groups of a file. */
+  static class RowGroupRange {
+
+    /** The index of the first row group of the range. */
+    final int first;
+
+    /** The index of the row group following the range. */
+    int end;
+
+    /** The total number of rows in the row groups of the range. */
+    long rowCount;
+
+    /** The total size of the row groups of the range, as stored on disk. */
+    long size;
+
+    RowGroupRange(int first) {
+      this.first = first;
+    }
+  }
+}
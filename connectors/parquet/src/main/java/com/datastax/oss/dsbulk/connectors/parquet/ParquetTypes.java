@@ -0,0 +1,555 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.dsbulk.connectors.parquet;
+
+import com.datastax.oss.driver.api.core.data.CqlDuration;
+import com.datastax.oss.driver.api.core.type.DataType;
+import com.datastax.oss.driver.api.core.type.DataTypes;
+import com.datastax.oss.driver.api.core.type.ListType;
+import com.datastax.oss.driver.api.core.type.MapType;
+import com.datastax.oss.driver.api.core.type.SetType;
+import com.datastax.oss.driver.api.core.type.codec.TypeCodec;
+import com.datastax.oss.driver.api.core.type.codec.registry.CodecRegistry;
+import com.datastax.oss.driver.api.core.type.reflect.GenericType;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.LongFunction;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.io.api.RecordConsumer;
+import org.apache.parquet.schema.GroupType;
+import org.apache.parquet.schema.LogicalTypeAnnotation;
+import org.apache.parquet.schema.LogicalTypeAnnotation.DecimalLogicalTypeAnnotation;
+import org.apache.parquet.schema.LogicalTypeAnnotation.IntLogicalTypeAnnotation;
+import org.apache.parquet.schema.LogicalTypeAnnotation.TimeLogicalTypeAnnotation;
+import org.apache.parquet.schema.LogicalTypeAnnotation.TimeUnit;
+import org.apache.parquet.schema.LogicalTypeAnnotation.TimestampLogicalTypeAnnotation;
+import org.apache.parquet.schema.PrimitiveType;
+import org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName;
+import org.apache.parquet.schema.Type;
+import org.apache.parquet.schema.Type.Repetition;
+import org.apache.parquet.schema.Types;
+
+/**
+ * Mappings between Parquet types and the Java types exchanged with the rest of DSBulk.
+ *
+ * <p>When reading, Parquet values are decoded to the Java types that the converting codecs know how
+ * to convert to CQL types, e.g. {@code INT64} timestamps are decoded to {@link Instant}s, and
+ * {@code DECIMAL} values to {@link BigDecimal}s. When writing, CQL types with a natural Parquet
+ * equivalent are written as such; other CQL types, e.g. {@code varint}, {@code inet} or
+ * user-defined types, are written as strings.
+ */
+final class ParquetTypes {
+
+  /** The number of days between the Julian day epoch and the Unix epoch. */
+  private static final long JULIAN_DAY_OF_EPOCH = 2_440_588L;
+
+  private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+  // Reading
+
+  /**
+   * Returns the Java type that values of the given Parquet column are decoded to.
+   *
+   * @throws IllegalArgumentException if the column type is not supported.
+   */
+  @NonNull
+  static GenericType<?> javaType(@NonNull Type type) {
+    if (type.isPrimitive()) {
+      GenericType<?> javaType = primitiveJavaType(type.asPrimitiveType());
+      return type.isRepetition(Repetition.REPEATED) ? GenericType.listOf(javaType) : javaType;
+    }
+    GroupType group = type.asGroupType();
+    if (isList(group)) {
+      return GenericType.listOf(javaType(listElement(group)));
+    }
+    if (isMap(group)) {
+      GroupType keyValue = group.getType(0).asGroupType();
+      return GenericType.mapOf(javaType(keyValue.getType(0)), javaType(keyValue.getType(1)));
+    }
+    throw unsupported(type);
+  }
+
+  static boolean isList(@NonNull GroupType group) {
+    return group.getLogicalTypeAnnotation()
+            instanceof LogicalTypeAnnotation.ListLogicalTypeAnnotation
+        && group.getFieldCount() == 1
+        && group.getType(0).isRepetition(Repetition.REPEATED);
+  }
+
+  static boolean isMap(@NonNull GroupType group) {
+    LogicalTypeAnnotation annotation = group.getLogicalTypeAnnotation();
+    return (annotation instanceof LogicalTypeAnnotation.MapLogicalTypeAnnotation
+            || annotation instanceof LogicalTypeAnnotation.MapKeyValueTypeAnnotation)
+        && group.getFieldCount() == 1
+        && group.getType(0).isRepetition(Repetition.REPEATED)
+        && !group.getType(0).isPrimitive()
+        && group.getType(0).asGroupType().getFieldCount() == 2;
+  }
+
+  /**
+   * Returns the element type of the given list, supporting both the standard 3-level structure and
+   * the legacy 2-level structure where the repeated field is the element itself.
+   */
+  @NonNull
+  static Type listElement(@NonNull GroupType list) {
+    Type repeated = list.getType(0);
+    if (isThreeLevelList(list)) {
+      return repeated.asGroupType().getType(0);
+    }
+    if (repeated.isPrimitive()) {
+      return Types.required(repeated.asPrimitiveType().getPrimitiveTypeName())
+          .as(repeated.getLogicalTypeAnnotation())
+          .length(repeated.asPrimitiveType().getTypeLength())
+          .named(repeated.getName());
+    }
+    throw unsupported(list);
+  }
+
+  static boolean isThreeLevelList(@NonNull GroupType list) {
+    Type repeated = list.getType(0);
+    return !repeated.isPrimitive()
+        && repeated.asGroupType().getFieldCount() == 1
+        && !repeated.getName().equals("array")
+        && !repeated.getName().equals(list.getName() + "_tuple");
+  }
+
+  @NonNull
+  private static GenericType<?> primitiveJavaType(@NonNull PrimitiveType type) {
+    LogicalTypeAnnotation annotation = type.getLogicalTypeAnnotation();
+    switch (type.getPrimitiveTypeName()) {
+      case BOOLEAN:
+        return GenericType.BOOLEAN;
+      case INT32:
+        if (annotation instanceof IntLogicalTypeAnnotation) {
+          IntLogicalTypeAnnotation intType = (IntLogicalTypeAnnotation) annotation;
+          switch (intType.getBitWidth()) {
+            case 8:
+              return intType.isSigned() ? GenericType.BYTE : GenericType.SHORT;
+            case 16:
+              return intType.isSigned() ? GenericType.SHORT : GenericType.INTEGER;
+            default:
+              return intType.isSigned() ? GenericType.INTEGER : GenericType.LONG;
+          }
+        }
+        if (annotation instanceof LogicalTypeAnnotation.DateLogicalTypeAnnotation) {
+          return GenericType.LOCAL_DATE;
+        }
+        if (annotation instanceof DecimalLogicalTypeAnnotation) {
+          return GenericType.BIG_DECIMAL;
+        }
+        if (annotation instanceof TimeLogicalTypeAnnotation) {
+          return GenericType.LOCAL_TIME;
+        }
+        return GenericType.INTEGER;
+      case INT64:
+        if (annotation instanceof IntLogicalTypeAnnotation
+            && !((IntLogicalTypeAnnotation) annotation).isSigned()) {
+          return GenericType.BIG_INTEGER;
+        }
+        if (annotation instanceof TimestampLogicalTypeAnnotation) {
+          return GenericType.INSTANT;
+        }
+        if (annotation instanceof TimeLogicalTypeAnnotation) {
+          return GenericType.LOCAL_TIME;
+        }
+        if (annotation instanceof DecimalLogicalTypeAnnotation) {
+          return GenericType.BIG_DECIMAL;
+        }
+        return GenericType.LONG;
+      case INT96:
+        return GenericType.INSTANT;
+      case FLOAT:
+        return GenericType.FLOAT;
+      case DOUBLE:
+        return GenericType.DOUBLE;
+      case BINARY:
+      case FIXED_LEN_BYTE_ARRAY:
+        if (isString(annotation)) {
+          return GenericType.STRING;
+        }
+        if (annotation instanceof DecimalLogicalTypeAnnotation) {
+          return GenericType.BIG_DECIMAL;
+        }
+        if (annotation instanceof LogicalTypeAnnotation.UUIDLogicalTypeAnnotation) {
+          return GenericType.UUID;
+        }
+        return GenericType.BYTE_BUFFER;
+    }
+    throw unsupported(type);
+  }
+
+  /** Returns a function decoding the given {@code INT32} column. */
+  @NonNull
+  static IntFunction<Object> intDecoder(@NonNull PrimitiveType type) {
+    LogicalTypeAnnotation annotation = type.getLogicalTypeAnnotation();
+    if (annotation instanceof IntLogicalTypeAnnotation) {
+      IntLogicalTypeAnnotation intType = (IntLogicalTypeAnnotation) annotation;
+      switch (intType.getBitWidth()) {
+        case 8:
+          return intType.isSigned() ? v -> (byte) v : v -> (short) (v & 0xFF);
+        case 16:
+          return intType.isSigned() ? v -> (short) v : v -> v & 0xFFFF;
+        default:
+          return intType.isSigned() ? v -> v : v -> v & 0xFFFFFFFFL;
+      }
+    }
+    if (annotation instanceof LogicalTypeAnnotation.DateLogicalTypeAnnotation) {
+      return LocalDate::ofEpochDay;
+    }
+    if (annotation instanceof DecimalLogicalTypeAnnotation) {
+      int scale = ((DecimalLogicalTypeAnnotation) annotation).getScale();
+      return v -> BigDecimal.valueOf(v, scale);
+    }
+    if (annotation instanceof TimeLogicalTypeAnnotation) {
+      return v -> LocalTime.ofNanoOfDay(v * 1_000_000L);
+    }
+    return v -> v;
+  }
+
+  /** Returns a function decoding the given {@code INT64} column. */
+  @NonNull
+  static LongFunction<Object> longDecoder(@NonNull PrimitiveType type) {
+    LogicalTypeAnnotation annotation = type.getLogicalTypeAnnotation();
+    if (annotation instanceof IntLogicalTypeAnnotation
+        && !((IntLogicalTypeAnnotation) annotation).isSigned()) {
+      return v -> new BigInteger(Long.toUnsignedString(v));
+    }
+    if (annotation instanceof TimestampLogicalTypeAnnotation) {
+      long unitsPerSecond = unitsPerSecond(((TimestampLogicalTypeAnnotation) annotation).getUnit());
+      long nanosPerUnit = NANOS_PER_SECOND / unitsPerSecond;
+      return v ->
+          Instant.ofEpochSecond(
+              Math.floorDiv(v, unitsPerSecond), Math.floorMod(v, unitsPerSecond) * nanosPerUnit);
+    }
+    if (annotation instanceof TimeLogicalTypeAnnotation) {
+      long nanosPerUnit =
+          NANOS_PER_SECOND / unitsPerSecond(((TimeLogicalTypeAnnotation) annotation).getUnit());
+      return v -> LocalTime.ofNanoOfDay(v * nanosPerUnit);
+    }
+    if (annotation instanceof DecimalLogicalTypeAnnotation) {
+      int scale = ((DecimalLogicalTypeAnnotation) annotation).getScale();
+      return v -> BigDecimal.valueOf(v, scale);
+    }
+    return v -> v;
+  }
+
+  /**
+   * Returns a function decoding the given {@code BINARY}, {@code FIXED} or {@code INT96} column.
+   */
+  @NonNull
+  static Function<Binary, Object> binaryDecoder(@NonNull PrimitiveType type) {
+    if (type.getPrimitiveTypeName() == PrimitiveTypeName.INT96) {
+      return ParquetTypes::decodeInt96;
+    }
+    LogicalTypeAnnotation annotation = type.getLogicalTypeAnnotation();
+    if (isString(annotation)) {
+      return Binary::toStringUsingUTF8;
+    }
+    if (annotation instanceof DecimalLogicalTypeAnnotation) {
+      int scale = ((DecimalLogicalTypeAnnotation) annotation).getScale();
+      return v -> new BigDecimal(new BigInteger(v.getBytes()), scale);
+    }
+    if (annotation instanceof LogicalTypeAnnotation.UUIDLogicalTypeAnnotation) {
+      return v -> {
+        ByteBuffer bytes = v.toByteBuffer();
+        return new UUID(bytes.getLong(bytes.position()), bytes.getLong(bytes.position() + 8));
+      };
+    }
+    return v -> ByteBuffer.wrap(v.getBytes());
+  }
+
+  /**
+   * Decodes a legacy {@code INT96} timestamp: the nanoseconds of the day, followed by the Julian
+   * day, both little-endian.
+   */
+  @NonNull
+  private static Instant decodeInt96(@NonNull Binary value) {
+    ByteBuffer bytes = value.toByteBuffer().order(ByteOrder.LITTLE_ENDIAN);
+    long nanosOfDay = bytes.getLong(bytes.position());
+    long julianDay = bytes.getInt(bytes.position() + 8);
+    return Instant.ofEpochSecond((julianDay - JULIAN_DAY_OF_EPOCH) * 86_400L, nanosOfDay);
+  }
+
+  private static boolean isString(LogicalTypeAnnotation annotation) {
+    return annotation instanceof LogicalTypeAnnotation.StringLogicalTypeAnnotation
+        || annotation instanceof LogicalTypeAnnotation.EnumLogicalTypeAnnotation
+        || annotation instanceof LogicalTypeAnnotation.JsonLogicalTypeAnnotation;
+  }
+
+  private static long unitsPerSecond(@NonNull TimeUnit unit) {
+    switch (unit) {
+      case MILLIS:
+        return 1_000L;
+      case MICROS:
+        return 1_000_000L;
+      default:
+        return NANOS_PER_SECOND;
+    }
+  }
+
+  @NonNull
+  private static IllegalArgumentException unsupported(@NonNull Type type) {
+    return new IllegalArgumentException(
+        String.format("Unsupported Parquet type for column %s: %s", type.getName(), type));
+  }
+
+  // Writing
+
+  /** A Parquet column, and how to write CQL values to it. */
+  static final class ValueWriter {
+
+    final Type type;
+    final BiConsumer<RecordConsumer, Object> writer;
+
+    private ValueWriter(@NonNull Type type, @NonNull BiConsumer<RecordConsumer, Object> writer) {
+      this.type = type;
+      this.writer = writer;
+    }
+
+    void write(@NonNull RecordConsumer consumer, @NonNull Object value) {
+      writer.accept(consumer, value);
+    }
+  }
+
+  /**
+   * Returns the Parquet column to write values of the given CQL type to, and how to write them.
+   * Values must be of the natural Java type of the CQL type, i.e. the Java type of its codec in the
+   * given registry.
+   *
+   * @param name the column name.
+   * @param repetition the column repetition.
+   * @param cqlType the CQL type of the values to write.
+   * @param codecRegistry the registry to use to format values that are written as strings.
+   */
+  @NonNull
+  static ValueWriter valueWriter(
+      @NonNull String name,
+      @NonNull Repetition repetition,
+      @NonNull DataType cqlType,
+      @NonNull CodecRegistry codecRegistry) {
+    if (cqlType.equals(DataTypes.BOOLEAN)) {
+      return new ValueWriter(
+          Types.primitive(PrimitiveTypeName.BOOLEAN, repetition).named(name),
+          (c, v) -> c.addBoolean((Boolean) v));
+    }
+    if (cqlType.equals(DataTypes.TINYINT)) {
+      return new ValueWriter(
+          Types.primitive(PrimitiveTypeName.INT32, repetition)
+              .as(LogicalTypeAnnotation.intType(8, true))
+              .named(name),
+          (c, v) -> c.addInteger((Byte) v));
+    }
+    if (cqlType.equals(DataTypes.SMALLINT)) {
+      return new ValueWriter(
+          Types.primitive(PrimitiveTypeName.INT32, repetition)
+              .as(LogicalTypeAnnotation.intType(16, true))
+              .named(name),
+          (c, v) -> c.addInteger((Short) v));
+    }
+    if (cqlType.equals(DataTypes.INT)) {
+      return new ValueWriter(
+          Types.primitive(PrimitiveTypeName.INT32, repetition).named(name),
+          (c, v) -> c.addInteger((Integer) v));
+    }
+    if (cqlType.equals(DataTypes.BIGINT) || cqlType.equals(DataTypes.COUNTER)) {
+      return new ValueWriter(
+          Types.primitive(PrimitiveTypeName.INT64, repetition).named(name),
+          (c, v) -> c.addLong((Long) v));
+    }
+    if (cqlType.equals(DataTypes.FLOAT)) {
+      return new ValueWriter(
+          Types.primitive(PrimitiveTypeName.FLOAT, repetition).named(name),
+          (c, v) -> c.addFloat((Float) v));
+    }
+    if (cqlType.equals(DataTypes.DOUBLE)) {
+      return new ValueWriter(
+          Types.primitive(PrimitiveTypeName.DOUBLE, repetition).named(name),
+          (c, v) -> c.addDouble((Double) v));
+    }
+    if (cqlType.equals(DataTypes.TEXT) || cqlType.equals(DataTypes.ASCII)) {
+      return new ValueWriter(
+          Types.primitive(PrimitiveTypeName.BINARY, repetition)
+              .as(LogicalTypeAnnotation.stringType())
+              .named(name),
+          (c, v) -> c.addBinary(Binary.fromString((String) v)));
+    }
+    if (cqlType.equals(DataTypes.BLOB)) {
+      return new ValueWriter(
+          Types.primitive(PrimitiveTypeName.BINARY, repetition).named(name),
+          (c, v) -> c.addBinary(Binary.fromConstantByteBuffer(((ByteBuffer) v).duplicate())));
+    }
+    if (cqlType.equals(DataTypes.UUID) || cqlType.equals(DataTypes.TIMEUUID)) {
+      return new ValueWriter(
+          Types.primitive(PrimitiveTypeName.FIXED_LEN_BYTE_ARRAY, repetition)
+              .length(16)
+              .as(LogicalTypeAnnotation.uuidType())
+              .named(name),
+          (c, v) -> {
+            UUID uuid = (UUID) v;
+            ByteBuffer bytes = ByteBuffer.allocate(16);
+            bytes.putLong(0, uuid.getMostSignificantBits());
+            bytes.putLong(8, uuid.getLeastSignificantBits());
+            c.addBinary(Binary.fromConstantByteBuffer(bytes));
+          });
+    }
+    if (cqlType.equals(DataTypes.TIMESTAMP)) {
+      return new ValueWriter(
+          Types.primitive(PrimitiveTypeName.INT64, repetition)
+              .as(LogicalTypeAnnotation.timestampType(true, TimeUnit.MILLIS))
+              .named(name),
+          (c, v) -> c.addLong(((Instant) v).toEpochMilli()));
+    }
+    if (cqlType.equals(DataTypes.DATE)) {
+      return new ValueWriter(
+          Types.primitive(PrimitiveTypeName.INT32, repetition)
+              .as(LogicalTypeAnnotation.dateType())
+              .named(name),
+          (c, v) -> c.addInteger(Math.toIntExact(((LocalDate) v).toEpochDay())));
+    }
+    if (cqlType.equals(DataTypes.TIME)) {
+      return new ValueWriter(
+          Types.primitive(PrimitiveTypeName.INT64, repetition)
+              .as(LogicalTypeAnnotation.timeType(false, TimeUnit.NANOS))
+              .named(name),
+          (c, v) -> c.addLong(((LocalTime) v).toNanoOfDay()));
+    }
+    if (cqlType instanceof ListType || cqlType instanceof SetType) {
+      DataType elementType =
+          cqlType instanceof ListType
+              ? ((ListType) cqlType).getElementType()
+              : ((SetType) cqlType).getElementType();
+      return listWriter(name, repetition, elementType, codecRegistry);
+    }
+    if (cqlType instanceof MapType) {
+      return mapWriter(name, repetition, (MapType) cqlType, codecRegistry);
+    }
+    return stringWriter(name, repetition, cqlType, codecRegistry);
+  }
+
+  @NonNull
+  private static ValueWriter listWriter(
+      @NonNull String name,
+      @NonNull Repetition repetition,
+      @NonNull DataType elementType,
+      @NonNull CodecRegistry codecRegistry) {
+    ValueWriter element = valueWriter("element", Repetition.OPTIONAL, elementType, codecRegistry);
+    return new ValueWriter(
+        Types.buildGroup(repetition)
+            .as(LogicalTypeAnnotation.listType())
+            .addField(Types.repeatedGroup().addField(element.type).named("list"))
+            .named(name),
+        (c, v) -> {
+          Collection<?> elements = (Collection<?>) v;
+          c.startGroup();
+          if (!elements.isEmpty()) {
+            c.startField("list", 0);
+            for (Object e : elements) {
+              c.startGroup();
+              if (e != null) {
+                c.startField("element", 0);
+                element.write(c, e);
+                c.endField("element", 0);
+              }
+              c.endGroup();
+            }
+            c.endField("list", 0);
+          }
+          c.endGroup();
+        });
+  }
+
+  @NonNull
+  private static ValueWriter mapWriter(
+      @NonNull String name,
+      @NonNull Repetition repetition,
+      @NonNull MapType mapType,
+      @NonNull CodecRegistry codecRegistry) {
+    ValueWriter key = valueWriter("key", Repetition.REQUIRED, mapType.getKeyType(), codecRegistry);
+    ValueWriter value =
+        valueWriter("value", Repetition.OPTIONAL, mapType.getValueType(), codecRegistry);
+    return new ValueWriter(
+        Types.buildGroup(repetition)
+            .as(LogicalTypeAnnotation.mapType())
+            .addField(
+                Types.repeatedGroup().addField(key.type).addField(value.type).named("key_value"))
+            .named(name),
+        (c, v) -> {
+          Map<?, ?> entries = (Map<?, ?>) v;
+          c.startGroup();
+          if (!entries.isEmpty()) {
+            c.startField("key_value", 0);
+            for (Map.Entry<?, ?> entry : entries.entrySet()) {
+              c.startGroup();
+              c.startField("key", 0);
+              key.write(c, entry.getKey());
+              c.endField("key", 0);
+              if (entry.getValue() != null) {
+                c.startField("value", 1);
+                value.write(c, entry.getValue());
+                c.endField("value", 1);
+              }
+              c.endGroup();
+            }
+            c.endField("key_value", 0);
+          }
+          c.endGroup();
+        });
+  }
+
+  /**
+   * Returns a writer for CQL types that have no natural Parquet equivalent: their values are
+   * written as strings that the text codecs can parse back.
+   */
+  @NonNull
+  private static ValueWriter stringWriter(
+      @NonNull String name,
+      @NonNull Repetition repetition,
+      @NonNull DataType cqlType,
+      @NonNull CodecRegistry codecRegistry) {
+    Function<Object, String> formatter;
+    if (cqlType.equals(DataTypes.DECIMAL) || cqlType.equals(DataTypes.VARINT)) {
+      formatter = Object::toString;
+    } else if (cqlType.equals(DataTypes.INET)) {
+      formatter = v -> ((InetAddress) v).getHostAddress();
+    } else if (cqlType.equals(DataTypes.DURATION)) {
+      formatter = v -> ((CqlDuration) v).toString();
+    } else {
+      @SuppressWarnings("unchecked")
+      TypeCodec<Object> codec = (TypeCodec<Object>) codecRegistry.codecFor(cqlType);
+      formatter = codec::format;
+    }
+    return new ValueWriter(
+        Types.primitive(PrimitiveTypeName.BINARY, repetition)
+            .as(LogicalTypeAnnotation.stringType())
+            .named(name),
+        (c, v) -> c.addBinary(Binary.fromString(formatter.apply(v))));
+  }
+
+  private ParquetTypes() {}
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.dsbulk.connectors.parquet;
+
+import com.datastax.oss.dsbulk.connectors.api.Field;
+import com.datastax.oss.dsbulk.connectors.api.Record;
+import com.datastax.oss.dsbulk.connectors.parquet.ParquetTypes.ValueWriter;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.util.Collections;
+import java.util.List;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.parquet.hadoop.api.WriteSupport;
+import org.apache.parquet.io.api.RecordConsumer;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.Type;
+import org.apache.parquet.schema.Types;
+
+/**
+ * Writes {@link Record}s to Parquet files, one top-level column per record field.
+ *
+ * <p>Values are written straight from the records to the column writers, without intermediate row
+ * objects; null values are written as missing optional values.
+ */
+class RecordWriteSupport extends WriteSupport<Record> {
+
+  private final Field[] fields;
+  private final ValueWriter[] writers;
+  private final MessageType schema;
+
+  private RecordConsumer consumer;
+
+  /**
+   * @param fields the fields to write.
+   * @param writers the value writers, one per field; their types must be optional.
+   */
+  RecordWriteSupport(@NonNull List<Field> fields, @NonNull List<ValueWriter> writers) {
+    this.fields = fields.toArray(new Field[0]);
+    this.writers = writers.toArray(new ValueWriter[0]);
+    Types.MessageTypeBuilder builder = Types.buildMessage();
+    for (ValueWriter writer : writers) {
+      builder.addField(writer.type);
+    }
+    schema = builder.named("dsbulk");
+  }
+
+  @Override
+  public WriteContext init(Configuration configuration) {
+    return new WriteContext(schema, Collections.emptyMap());
+  }
+
+  @Override
+  public void prepareForWrite(RecordConsumer recordConsumer) {
+    consumer = recordConsumer;
+  }
+
+  @Override
+  public void write(Record record) {
+    consumer.startMessage();
+    for (int i = 0; i < fields.length; i++) {
+      Object value = record.getFieldValue(fields[i]);
+      if (value != null) {
+        Type type = writers[i].type;
+        consumer.startField(type.getName(), i);
+        writers[i].write(consumer, value);
+        consumer.endField(type.getName(), i);
+      }
+    }
+    consumer.endMessage();
+  }
+}
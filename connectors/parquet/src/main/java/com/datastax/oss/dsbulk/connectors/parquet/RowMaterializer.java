@@ -0,0 +1,316 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.dsbulk.connectors.parquet;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.LongFunction;
+import org.apache.parquet.column.Dictionary;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.io.api.Converter;
+import org.apache.parquet.io.api.GroupConverter;
+import org.apache.parquet.io.api.PrimitiveConverter;
+import org.apache.parquet.io.api.RecordMaterializer;
+import org.apache.parquet.schema.GroupType;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.PrimitiveType;
+import org.apache.parquet.schema.Type;
+import org.apache.parquet.schema.Type.Repetition;
+
+/**
+ * Assembles Parquet rows into arrays of typed values, one element per top-level column, decoded as
+ * specified by {@link ParquetTypes}.
+ *
+ * <p>Values are decoded straight from the column readers, without intermediate row objects;
+ * dictionary-encoded columns are decoded once per dictionary entry, rather than once per value.
+ */
+class RowMaterializer extends RecordMaterializer<Object[]> {
+
+  private final RowConverter root;
+
+  /** @throws IllegalArgumentException if the schema contains unsupported types. */
+  RowMaterializer(@NonNull MessageType schema) {
+    root = new RowConverter(schema);
+  }
+
+  @Override
+  public Object[] getCurrentRecord() {
+    return root.values;
+  }
+
+  @Override
+  public GroupConverter getRootConverter() {
+    return root;
+  }
+
+  @NonNull
+  private static Converter newConverter(@NonNull Type type, @NonNull Consumer<Object> sink) {
+    if (type.isPrimitive()) {
+      return new ValueConverter(type.asPrimitiveType(), sink);
+    }
+    GroupType group = type.asGroupType();
+    if (ParquetTypes.isList(group)) {
+      return new ListConverter(group, sink);
+    }
+    if (ParquetTypes.isMap(group)) {
+      return new MapConverter(group, sink);
+    }
+    throw new IllegalArgumentException(
+        String.format("Unsupported Parquet type for column %s: %s", type.getName(), type));
+  }
+
+  private static class RowConverter extends GroupConverter {
+
+    private final Converter[] converters;
+
+    private Object[] values;
+
+    private RowConverter(MessageType schema) {
+      converters = new Converter[schema.getFieldCount()];
+      for (int i = 0; i < converters.length; i++) {
+        Type type = schema.getType(i);
+        int index = i;
+        if (type.isRepetition(Repetition.REPEATED)) {
+          // legacy repeated field without a LIST annotation
+          converters[i] =
+              newConverter(
+                  type,
+                  v -> {
+                    @SuppressWarnings("unchecked")
+                    List<Object> list = (List<Object>) values[index];
+                    if (list == null) {
+                      values[index] = list = new ArrayList<>();
+                    }
+                    list.add(v);
+                  });
+        } else {
+          converters[i] = newConverter(type, v -> values[index] = v);
+        }
+      }
+    }
+
+    @Override
+    public Converter getConverter(int fieldIndex) {
+      return converters[fieldIndex];
+    }
+
+    @Override
+    public void start() {
+      values = new Object[converters.length];
+    }
+
+    @Override
+    public void end() {}
+  }
+
+  private static class ListConverter extends GroupConverter {
+
+    private final Consumer<Object> sink;
+    private final Converter converter;
+
+    private List<Object> elements;
+    private Object element;
+
+    private ListConverter(GroupType list, Consumer<Object> sink) {
+      this.sink = sink;
+      Type element = ParquetTypes.listElement(list);
+      if (ParquetTypes.isThreeLevelList(list)) {
+        Converter elementConverter = newConverter(element, v -> this.element = v);
+        converter =
+            new GroupConverter() {
+
+              @Override
+              public Converter getConverter(int fieldIndex) {
+                return elementConverter;
+              }
+
+              @Override
+              public void start() {
+                ListConverter.this.element = null;
+              }
+
+              @Override
+              public void end() {
+                elements.add(ListConverter.this.element);
+              }
+            };
+      } else {
+        converter = newConverter(element, v -> elements.add(v));
+      }
+    }
+
+    @Override
+    public Converter getConverter(int fieldIndex) {
+      return converter;
+    }
+
+    @Override
+    public void start() {
+      elements = new ArrayList<>();
+    }
+
+    @Override
+    public void end() {
+      sink.accept(elements);
+    }
+  }
+
+  private static class MapConverter extends GroupConverter {
+
+    private final Consumer<Object> sink;
+    private final Converter converter;
+
+    private Map<Object, Object> entries;
+    private Object key;
+    private Object value;
+
+    private MapConverter(GroupType map, Consumer<Object> sink) {
+      this.sink = sink;
+      GroupType keyValue = map.getType(0).asGroupType();
+      Converter keyConverter = newConverter(keyValue.getType(0), v -> key = v);
+      Converter valueConverter = newConverter(keyValue.getType(1), v -> value = v);
+      converter =
+          new GroupConverter() {
+
+            @Override
+            public Converter getConverter(int fieldIndex) {
+              return fieldIndex == 0 ? keyConverter : valueConverter;
+            }
+
+            @Override
+            public void start() {
+              key = null;
+              value = null;
+            }
+
+            @Override
+            public void end() {
+              entries.put(key, value);
+            }
+          };
+    }
+
+    @Override
+    public Converter getConverter(int fieldIndex) {
+      return converter;
+    }
+
+    @Override
+    public void start() {
+      entries = new LinkedHashMap<>();
+    }
+
+    @Override
+    public void end() {
+      sink.accept(entries);
+    }
+  }
+
+  private static class ValueConverter extends PrimitiveConverter {
+
+    private final PrimitiveType type;
+    private final Consumer<Object> sink;
+    private final IntFunction<Object> ints;
+    private final LongFunction<Object> longs;
+    private final Function<Binary, Object> binaries;
+
+    private Object[] dictionary;
+
+    private ValueConverter(PrimitiveType type, Consumer<Object> sink) {
+      this.type = type;
+      this.sink = sink;
+      ints = ParquetTypes.intDecoder(type);
+      longs = ParquetTypes.longDecoder(type);
+      binaries = ParquetTypes.binaryDecoder(type);
+    }
+
+    @Override
+    public boolean hasDictionarySupport() {
+      return true;
+    }
+
+    @Override
+    public void setDictionary(Dictionary dictionary) {
+      Object[] values = new Object[dictionary.getMaxId() + 1];
+      for (int id = 0; id < values.length; id++) {
+        switch (type.getPrimitiveTypeName()) {
+          case INT32:
+            values[id] = ints.apply(dictionary.decodeToInt(id));
+            break;
+          case INT64:
+            values[id] = longs.apply(dictionary.decodeToLong(id));
+            break;
+          case FLOAT:
+            values[id] = dictionary.decodeToFloat(id);
+            break;
+          case DOUBLE:
+            values[id] = dictionary.decodeToDouble(id);
+            break;
+          case BOOLEAN:
+            values[id] = dictionary.decodeToBoolean(id);
+            break;
+          default:
+            values[id] = binaries.apply(dictionary.decodeToBinary(id));
+        }
+      }
+      this.dictionary = values;
+    }
+
+    @Override
+    public void addValueFromDictionary(int dictionaryId) {
+      Object value = dictionary[dictionaryId];
+      // byte buffers are the only mutable values, do not share them between records
+      sink.accept(value instanceof ByteBuffer ? ((ByteBuffer) value).duplicate() : value);
+    }
+
+    @Override
+    public void addBinary(Binary value) {
+      sink.accept(binaries.apply(value));
+    }
+
+    @Override
+    public void addBoolean(boolean value) {
+      sink.accept(value);
+    }
+
+    @Override
+    public void addDouble(double value) {
+      sink.accept(value);
+    }
+
+    @Override
+    public void addFloat(float value) {
+      sink.accept(value);
+    }
+
+    @Override
+    public void addInt(int value) {
+      sink.accept(ints.apply(value));
+    }
+
+    @Override
+    public void addLong(long value) {
+      sink.accept(longs.apply(value));
+    }
+  }
+}
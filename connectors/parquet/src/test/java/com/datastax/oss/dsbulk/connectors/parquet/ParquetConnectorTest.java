@@ -0,0 +1,247 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.dsbulk.connectors.parquet;
+
+import static com.datastax.oss.dsbulk.tests.utils.FileUtils.deleteDirectory;
+import static com.datastax.oss.dsbulk.tests.utils.StringUtils.quoteJson;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.datastax.oss.driver.api.core.type.DataType;
+import com.datastax.oss.driver.api.core.type.DataTypes;
+import com.datastax.oss.driver.api.core.type.reflect.GenericType;
+import com.datastax.oss.dsbulk.connectors.api.DefaultIndexedField;
+import com.datastax.oss.dsbulk.connectors.api.DefaultMappedField;
+import com.datastax.oss.dsbulk.connectors.api.DefaultRecord;
+import com.datastax.oss.dsbulk.connectors.api.Field;
+import com.datastax.oss.dsbulk.connectors.api.Record;
+import com.datastax.oss.dsbulk.connectors.api.RecordMetadata;
+import com.datastax.oss.dsbulk.connectors.commons.FileBasedConnectorTestBase;
+import com.datastax.oss.dsbulk.tests.utils.TestConfigUtils;
+import com.typesafe.config.Config;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+class ParquetConnectorTest extends FileBasedConnectorTestBase<ParquetConnector> {
+
+  @Override
+  protected ParquetConnector newConnector() {
+    return new ParquetConnector();
+  }
+
+  @Override
+  protected String getFileExtension() {
+    return ".parquet";
+  }
+
+  @Override
+  protected Object[] getMultiBlockWriteSettings() {
+    return new Object[] {"rowGroupSize", quoteJson("1kB"), "pageSize", quoteJson("1kB")};
+  }
+
+  @Override
+  protected Object[] getParallelReadSettings() {
+    return new Object[] {"maxConcurrentFiles", 8, "splitSize", quoteJson("1kB")};
+  }
+
+  @Test
+  void should_write_and_read_typed_values() throws Exception {
+    Path dir = Files.createTempDirectory("test");
+    try {
+      Map<String, DataType> cqlTypes = new LinkedHashMap<>();
+      cqlTypes.put("pk", DataTypes.INT);
+      cqlTypes.put("c_boolean", DataTypes.BOOLEAN);
+      cqlTypes.put("c_tinyint", DataTypes.TINYINT);
+      cqlTypes.put("c_smallint", DataTypes.SMALLINT);
+      cqlTypes.put("c_bigint", DataTypes.BIGINT);
+      cqlTypes.put("c_float", DataTypes.FLOAT);
+      cqlTypes.put("c_double", DataTypes.DOUBLE);
+      cqlTypes.put("c_text", DataTypes.TEXT);
+      cqlTypes.put("c_blob", DataTypes.BLOB);
+      cqlTypes.put("c_uuid", DataTypes.UUID);
+      cqlTypes.put("c_timestamp", DataTypes.TIMESTAMP);
+      cqlTypes.put("c_date", DataTypes.DATE);
+      cqlTypes.put("c_time", DataTypes.TIME);
+      cqlTypes.put("c_decimal", DataTypes.DECIMAL);
+      cqlTypes.put("c_varint", DataTypes.VARINT);
+      cqlTypes.put("c_inet", DataTypes.INET);
+      cqlTypes.put("c_list", DataTypes.listOf(DataTypes.TEXT));
+      cqlTypes.put("c_set", DataTypes.setOf(DataTypes.BIGINT));
+      cqlTypes.put("c_map", DataTypes.mapOf(DataTypes.TEXT, DataTypes.DATE));
+      UUID uuid = UUID.randomUUID();
+      Map<String, Object> values = new LinkedHashMap<>();
+      values.put("pk", 1);
+      values.put("c_boolean", true);
+      values.put("c_tinyint", (byte) -12);
+      values.put("c_smallint", (short) 1234);
+      values.put("c_bigint", Long.MIN_VALUE);
+      values.put("c_float", 1.5f);
+      values.put("c_double", -2.25d);
+      values.put("c_text", "foo");
+      values.put("c_blob", ByteBuffer.wrap(new byte[] {1, 2, 3}));
+      values.put("c_uuid", uuid);
+      values.put("c_timestamp", Instant.parse("2020-01-02T03:04:05.678Z"));
+      values.put("c_date", LocalDate.of(2020, 1, 2));
+      values.put("c_time", LocalTime.of(3, 4, 5, 678_901_234));
+      values.put("c_decimal", new BigDecimal("123.456"));
+      values.put("c_varint", new BigInteger("123456789012345678901234567890"));
+      values.put("c_inet", InetAddress.getByName("127.0.0.1"));
+      values.put("c_list", Arrays.asList("a", null, "c"));
+      values.put("c_set", new LinkedHashSet<>(Arrays.asList(1L, 2L)));
+      Map<String, LocalDate> map = new LinkedHashMap<>();
+      map.put("k1", LocalDate.of(2021, 3, 4));
+      map.put("k2", null);
+      values.put("c_map", map);
+      ParquetConnector connector = newWriteConnector(dir);
+      RecordMetadata metadata = connector.getRecordMetadata();
+      DefaultRecord record1 = new DefaultRecord(null, resource, -1);
+      DefaultRecord record2 = new DefaultRecord(null, resource, -1);
+      for (Map.Entry<String, DataType> entry : cqlTypes.entrySet()) {
+        Field field = new DefaultMappedField(entry.getKey());
+        metadata.getFieldType(field, entry.getValue());
+        record1.setFieldValue(field, values.get(entry.getKey()));
+        record2.setFieldValue(field, entry.getKey().equals("pk") ? 2 : null);
+      }
+      Flux.<Record>just(record1, record2).transform(connector.write()).blockLast();
+      connector.close();
+
+      connector = newReadConnector(dir.resolve("output-000001.parquet"));
+      List<Record> records = Flux.merge(connector.read()).collectList().block();
+      connector.close();
+      assertThat(records).hasSize(2);
+      Record actual1 = records.get(0);
+      Record actual2 = records.get(1);
+      assertThat(actual1.getPosition()).isEqualTo(1);
+      assertThat(actual2.getPosition()).isEqualTo(2);
+      assertThat(actual1.fields()).contains(new DefaultIndexedField(0));
+      for (Map.Entry<String, Object> entry : values.entrySet()) {
+        Field field = new DefaultMappedField(entry.getKey());
+        Object expected = entry.getValue();
+        if (expected instanceof BigDecimal
+            || expected instanceof BigInteger
+            || expected instanceof InetAddress) {
+          // written as strings
+          expected =
+              expected instanceof InetAddress
+                  ? ((InetAddress) expected).getHostAddress()
+                  : expected.toString();
+        } else if (expected instanceof LinkedHashSet) {
+          expected = new ArrayList<>((LinkedHashSet<?>) expected);
+        }
+        assertThat(actual1.getFieldValue(field)).as(entry.getKey()).isEqualTo(expected);
+        if (!entry.getKey().equals("pk")) {
+          assertThat(actual2.getFieldValue(field)).as(entry.getKey()).isNull();
+        }
+      }
+      assertThat(actual2.getFieldValue(new DefaultMappedField("pk"))).isEqualTo(2);
+      RecordMetadata readMetadata = connector.getRecordMetadata();
+      assertThat(readMetadata.getFieldType(new DefaultMappedField("c_tinyint"), DataTypes.TINYINT))
+          .isEqualTo(GenericType.BYTE);
+      assertThat(
+              readMetadata.getFieldType(new DefaultMappedField("c_timestamp"), DataTypes.TIMESTAMP))
+          .isEqualTo(GenericType.INSTANT);
+      assertThat(readMetadata.getFieldType(new DefaultIndexedField(12), DataTypes.TIME))
+          .isEqualTo(GenericType.LOCAL_TIME);
+      assertThat(readMetadata.getFieldType(new DefaultMappedField("c_decimal"), DataTypes.DECIMAL))
+          .isEqualTo(GenericType.STRING);
+      assertThat(
+              readMetadata.getFieldType(
+                  new DefaultMappedField("c_map"), DataTypes.mapOf(DataTypes.TEXT, DataTypes.DATE)))
+          .isEqualTo(GenericType.mapOf(GenericType.STRING, GenericType.LOCAL_DATE));
+    } finally {
+      deleteDirectory(dir);
+    }
+  }
+
+  @Test
+  void should_read_row_groups_sequentially_by_default() throws Exception {
+    Path dir = Files.createTempDirectory("test");
+    try {
+      writeIntegers(dir, 1000, getMultiBlockWriteSettings());
+      Path file = dir.resolve("output-000001.parquet");
+      ParquetConnector connector = newReadConnector(file, "maxConcurrentFiles", 8);
+      assertThat(connector.readConcurrency()).isOne();
+      assertThat(Flux.from(connector.read()).count().block()).isOne();
+      List<Long> positions =
+          Flux.merge(connector.read()).map(Record::getPosition).collectList().block();
+      connector.close();
+      assertThat(positions).hasSize(1000).isSorted();
+    } finally {
+      deleteDirectory(dir);
+    }
+  }
+
+  @Test
+  void should_read_chunks_in_parallel() throws Exception {
+    Path dir = Files.createTempDirectory("test");
+    try {
+      writeIntegers(dir, 1000, getMultiBlockWriteSettings());
+      Path file = dir.resolve("output-000001.parquet");
+      ParquetConnector connector = newReadConnector(file, getParallelReadSettings());
+      assertThat(connector.readConcurrency()).isEqualTo(8);
+      assertThat(Flux.from(connector.read()).count().block()).isGreaterThan(1);
+      List<Record> records = Flux.merge(connector.read()).collectList().block();
+      connector.close();
+      assertThat(records).hasSize(1000);
+      records.sort(Comparator.comparingLong(Record::getPosition));
+      for (int i = 0; i < 1000; i++) {
+        assertThat(records.get(i).getPosition()).isEqualTo(i + 1);
+        assertThat(records.get(i).getFieldValue(new DefaultMappedField("pk"))).isEqualTo(i);
+      }
+    } finally {
+      deleteDirectory(dir);
+    }
+  }
+
+  @Test
+  void should_throw_exception_when_compression_codec_is_wrong() {
+    ParquetConnector connector = new ParquetConnector();
+    Config settings =
+        TestConfigUtils.createTestConfig("dsbulk.connector.parquet", "compressionCodec", "LZO");
+    assertThatThrownBy(() -> connector.configure(settings, false, true))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage(
+            "Invalid value for connector.parquet.compressionCodec, valid values: UNCOMPRESSED,SNAPPY,GZIP, got: 'LZO'");
+  }
+
+  @Test
+  void should_throw_exception_when_row_group_size_is_wrong() {
+    ParquetConnector connector = new ParquetConnector();
+    Config settings =
+        TestConfigUtils.createTestConfig("dsbulk.connector.parquet", "rowGroupSize", 0);
+    assertThatThrownBy(() -> connector.configure(settings, false, true))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage(
+            "Invalid value for connector.parquet.rowGroupSize: Expecting a positive size, got: 0");
+  }
+}
@@ -16,12 +16,14 @@
 package com.datastax.oss.dsbulk.executor.api;
 
 import com.datastax.oss.driver.api.core.CqlSession;
-import com.datastax.oss.driver.shaded.guava.common.util.concurrent.RateLimiter;
+import com.datastax.oss.dsbulk.executor.api.listener.CompositeExecutionListener;
 import com.datastax.oss.dsbulk.executor.api.listener.ExecutionListener;
+import com.datastax.oss.dsbulk.executor.api.throttling.AdaptiveConcurrencyLimiter;
+import com.datastax.oss.dsbulk.executor.api.throttling.AsyncRateLimiter;
+import com.datastax.oss.dsbulk.executor.api.throttling.AsyncSemaphore;
 import edu.umd.cs.findbugs.annotations.NonNull;
 import edu.umd.cs.findbugs.annotations.Nullable;
 import java.util.Objects;
-import java.util.concurrent.Semaphore;
 
 /** Base class for implementations of {@link BulkExecutor}. */
 public abstract class AbstractBulkExecutor implements BulkExecutor, AutoCloseable {
@@ -36,14 +38,15 @@ public abstract class AbstractBulkExecutor implements BulkExecutor, AutoCloseabl
 
   protected final boolean failFast;
 
-  protected final @Nullable Semaphore maxConcurrentRequests;
+  protected final @Nullable AsyncSemaphore maxConcurrentRequests;
 
-  protected final @Nullable RateLimiter rateLimiter;
+  protected final @Nullable AsyncRateLimiter rateLimiter;
 
   protected final @Nullable ExecutionListener listener;
 
   protected AbstractBulkExecutor(CqlSession session) {
-    this(session, true, DEFAULT_MAX_IN_FLIGHT_REQUESTS, DEFAULT_MAX_REQUESTS_PER_SECOND, null);
+    this(
+        session, true, DEFAULT_MAX_IN_FLIGHT_REQUESTS, DEFAULT_MAX_REQUESTS_PER_SECOND, null, null);
   }
 
   protected AbstractBulkExecutor(AbstractBulkExecutorBuilder<?> builder) {
@@ -52,7 +55,8 @@ public abstract class AbstractBulkExecutor implements BulkExecutor, AutoCloseabl
         builder.failFast,
         builder.maxInFlightRequests,
         builder.maxRequestsPerSecond,
-        builder.listener);
+        builder.listener,
+        builder.concurrencyLimiter);
   }
 
   private AbstractBulkExecutor(
@@ -60,14 +64,25 @@ public abstract class AbstractBulkExecutor implements BulkExecutor, AutoCloseabl
       boolean failFast,
       int maxInFlightRequests,
       int maxRequestsPerSecond,
-      @Nullable ExecutionListener listener) {
+      @Nullable ExecutionListener listener,
+      @Nullable AdaptiveConcurrencyLimiter concurrencyLimiter) {
     Objects.requireNonNull(session, "session cannot be null");
     this.session = session;
     this.failFast = failFast;
-    this.maxConcurrentRequests =
-        maxInFlightRequests <= 0 ? null : new Semaphore(maxInFlightRequests);
-    this.rateLimiter = maxRequestsPerSecond <= 0 ? null : RateLimiter.create(maxRequestsPerSecond);
-    this.listener = listener;
+    this.rateLimiter =
+        maxRequestsPerSecond <= 0 ? null : AsyncRateLimiter.create(maxRequestsPerSecond);
+    if (concurrencyLimiter == null) {
+      this.maxConcurrentRequests =
+          maxInFlightRequests <= 0 ? null : new AsyncSemaphore(maxInFlightRequests);
+      this.listener = listener;
+    } else {
+      // the limiter needs to be notified of each request-response cycle
+      this.maxConcurrentRequests = concurrencyLimiter;
+      this.listener =
+          listener == null
+              ? concurrencyLimiter
+              : new CompositeExecutionListener(concurrencyLimiter, listener);
+    }
   }
 
   @Override
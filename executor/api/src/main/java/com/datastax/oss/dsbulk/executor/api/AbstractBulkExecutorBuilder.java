@@ -17,6 +17,7 @@ package com.datastax.oss.dsbulk.executor.api;
 
 import com.datastax.oss.driver.api.core.CqlSession;
 import com.datastax.oss.dsbulk.executor.api.listener.ExecutionListener;
+import com.datastax.oss.dsbulk.executor.api.throttling.AdaptiveConcurrencyLimiter;
 
 @SuppressWarnings("WeakerAccess")
 public abstract class AbstractBulkExecutorBuilder<T extends BulkExecutor>
@@ -32,6 +33,8 @@ public abstract class AbstractBulkExecutorBuilder<T extends BulkExecutor>
 
   protected ExecutionListener listener;
 
+  protected AdaptiveConcurrencyLimiter concurrencyLimiter;
+
   protected AbstractBulkExecutorBuilder(CqlSession session) {
     this.session = session;
   }
@@ -57,6 +60,14 @@ public abstract class AbstractBulkExecutorBuilder<T extends BulkExecutor>
     return this;
   }
 
+  @Override
+  @SuppressWarnings("UnusedReturnValue")
+  public AbstractBulkExecutorBuilder<T> withAdaptiveConcurrency(
+      AdaptiveConcurrencyLimiter concurrencyLimiter) {
+    this.concurrencyLimiter = concurrencyLimiter;
+    return this;
+  }
+
   @Override
   @SuppressWarnings("UnusedReturnValue")
   public AbstractBulkExecutorBuilder<T> withExecutionListener(ExecutionListener listener) {
@@ -21,6 +21,7 @@ import com.datastax.oss.dsbulk.executor.api.listener.ExecutionListener;
 import com.datastax.oss.dsbulk.executor.api.result.ReadResult;
 import com.datastax.oss.dsbulk.executor.api.result.Result;
 import com.datastax.oss.dsbulk.executor.api.result.WriteResult;
+import com.datastax.oss.dsbulk.executor.api.throttling.AdaptiveConcurrencyLimiter;
 
 /** A builder for {@link BulkExecutor} instances. */
 public interface BulkExecutorBuilder<T extends BulkExecutor> {
@@ -54,8 +55,8 @@ public interface BulkExecutorBuilder<T extends BulkExecutor> {
   /**
    * Sets the maximum number of in-flight requests. In other words, sets the maximum number of
    * concurrent uncompleted requests waiting for a response from the server. If that limit is
-   * reached, the executor will block until the number of in-flight requests drops below the
-   * threshold. <em>This feature should not be used in a fully non-blocking application</em>.
+   * reached, new requests are delayed until the number of in-flight requests drops below the
+   * threshold; the executor does not block any thread while doing so.
    *
    * <p>This acts as a safeguard against workflows that generate more requests than they can handle.
    * The default is {@link AbstractBulkExecutor#DEFAULT_MAX_IN_FLIGHT_REQUESTS}. Setting this option
@@ -68,9 +69,9 @@ public interface BulkExecutorBuilder<T extends BulkExecutor> {
   BulkExecutorBuilder<T> withMaxInFlightRequests(int maxInFlightRequests);
 
   /**
-   * Sets the maximum number of concurrent requests per second. If that limit is reached, the
-   * executor will block until the number of requests per second drops below the threshold. <em>This
-   * feature should not be used in a fully non-blocking application</em>.
+   * Sets the maximum number of concurrent requests per second. If that limit is reached, new
+   * requests are delayed until the number of requests per second drops below the threshold; the
+   * executor does not block any thread while doing so.
    *
    * <p>This acts as a safeguard against workflows that could overwhelm the cluster with more
    * requests than it can handle. The default is {@link
@@ -83,6 +84,21 @@ public interface BulkExecutorBuilder<T extends BulkExecutor> {
   @SuppressWarnings("UnusedReturnValue")
   BulkExecutorBuilder<T> withMaxRequestsPerSecond(int maxRequestsPerSecond);
 
+  /**
+   * Sets an optional {@link AdaptiveConcurrencyLimiter} to regulate the number of in-flight
+   * requests.
+   *
+   * <p>When set, the limiter replaces the fixed limit set with {@link
+   * #withMaxInFlightRequests(int)}, and is automatically notified of request executions, in
+   * addition to the {@linkplain #withExecutionListener(ExecutionListener) execution listener}, if
+   * any.
+   *
+   * @param concurrencyLimiter the {@link AdaptiveConcurrencyLimiter} to use.
+   * @return this builder (for method chaining).
+   */
+  @SuppressWarnings("UnusedReturnValue")
+  BulkExecutorBuilder<T> withAdaptiveConcurrency(AdaptiveConcurrencyLimiter concurrencyLimiter);
+
   /**
    * Sets an optional {@link ExecutionListener}.
    *
@@ -17,15 +17,15 @@ package com.datastax.oss.dsbulk.executor.api.publisher;
 
 import com.datastax.oss.driver.api.core.CqlSession;
 import com.datastax.oss.driver.api.core.cql.Statement;
-import com.datastax.oss.driver.shaded.guava.common.util.concurrent.RateLimiter;
 import com.datastax.oss.dsbulk.executor.api.AbstractBulkExecutor;
 import com.datastax.oss.dsbulk.executor.api.listener.ExecutionListener;
 import com.datastax.oss.dsbulk.executor.api.result.ReadResult;
 import com.datastax.oss.dsbulk.executor.api.subscription.ReadResultSubscription;
+import com.datastax.oss.dsbulk.executor.api.throttling.AsyncRateLimiter;
+import com.datastax.oss.dsbulk.executor.api.throttling.AsyncSemaphore;
 import edu.umd.cs.findbugs.annotations.NonNull;
 import edu.umd.cs.findbugs.annotations.Nullable;
 import java.util.Objects;
-import java.util.concurrent.Semaphore;
 import org.reactivestreams.Publisher;
 import org.reactivestreams.Subscriber;
 
@@ -40,8 +40,8 @@ public class ReadResultPublisher implements Publisher<ReadResult> {
   private final Statement<?> statement;
   private final CqlSession session;
   private final @Nullable ExecutionListener listener;
-  private final @Nullable Semaphore maxConcurrentRequests;
-  private final @Nullable RateLimiter rateLimiter;
+  private final @Nullable AsyncSemaphore maxConcurrentRequests;
+  private final @Nullable AsyncRateLimiter rateLimiter;
   private final boolean failFast;
 
   /**
@@ -64,17 +64,17 @@ public class ReadResultPublisher implements Publisher<ReadResult> {
    * @param session The {@link CqlSession} to use.
    * @param failFast whether to fail-fast in case of error.
    * @param listener The {@link ExecutionListener} to use.
-   * @param maxConcurrentRequests The {@link Semaphore} to use to regulate the amount of in-flight
-   *     requests.
-   * @param rateLimiter The {@link RateLimiter} to use to regulate throughput.
+   * @param maxConcurrentRequests The {@link AsyncSemaphore} to use to regulate the amount of
+   *     in-flight requests.
+   * @param rateLimiter The {@link AsyncRateLimiter} to use to regulate throughput.
    */
   public ReadResultPublisher(
       @NonNull Statement<?> statement,
       @NonNull CqlSession session,
       boolean failFast,
       @Nullable ExecutionListener listener,
-      @Nullable Semaphore maxConcurrentRequests,
-      @Nullable RateLimiter rateLimiter) {
+      @Nullable AsyncSemaphore maxConcurrentRequests,
+      @Nullable AsyncRateLimiter rateLimiter) {
     this.statement = statement;
     this.session = session;
     this.listener = listener;
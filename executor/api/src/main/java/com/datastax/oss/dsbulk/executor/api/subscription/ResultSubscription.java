@@ -20,7 +20,6 @@ import com.datastax.oss.driver.api.core.CqlSession;
 import com.datastax.oss.driver.api.core.cql.BatchStatement;
 import com.datastax.oss.driver.api.core.cql.Row;
 import com.datastax.oss.driver.api.core.cql.Statement;
-import com.datastax.oss.driver.shaded.guava.common.util.concurrent.RateLimiter;
 import com.datastax.oss.dsbulk.executor.api.exception.BulkExecutionException;
 import com.datastax.oss.dsbulk.executor.api.listener.DefaultExecutionContext;
 import com.datastax.oss.dsbulk.executor.api.listener.ExecutionContext;
@@ -28,6 +27,8 @@ import com.datastax.oss.dsbulk.executor.api.listener.ExecutionListener;
 import com.datastax.oss.dsbulk.executor.api.result.ReadResult;
 import com.datastax.oss.dsbulk.executor.api.result.Result;
 import com.datastax.oss.dsbulk.executor.api.result.WriteResult;
+import com.datastax.oss.dsbulk.executor.api.throttling.AsyncRateLimiter;
+import com.datastax.oss.dsbulk.executor.api.throttling.AsyncSemaphore;
 import edu.umd.cs.findbugs.annotations.NonNull;
 import edu.umd.cs.findbugs.annotations.Nullable;
 import java.util.Collections;
@@ -37,7 +38,6 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.CompletionStage;
-import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import org.jctools.queues.SpscArrayQueue;
@@ -76,8 +76,8 @@ public abstract class ResultSubscription<R extends Result, P extends AsyncPaging
    */
 
   final @Nullable ExecutionListener listener;
-  private final @Nullable Semaphore maxConcurrentRequests;
-  final @Nullable RateLimiter rateLimiter;
+  private final @Nullable AsyncSemaphore maxConcurrentRequests;
+  final @Nullable AsyncRateLimiter rateLimiter;
   private final boolean failFast;
 
   /** The number of writes in the batch. 1 for other types of statement. */
@@ -145,8 +145,8 @@ public abstract class ResultSubscription<R extends Result, P extends AsyncPaging
       @NonNull Subscriber<? super R> subscriber,
       @NonNull Statement<?> statement,
       @Nullable ExecutionListener listener,
-      @Nullable Semaphore maxConcurrentRequests,
-      @Nullable RateLimiter rateLimiter,
+      @Nullable AsyncSemaphore maxConcurrentRequests,
+      @Nullable AsyncRateLimiter rateLimiter,
       boolean failFast) {
     this.statement = statement;
     this.subscriber = subscriber;
@@ -335,13 +335,46 @@ public abstract class ResultSubscription<R extends Result, P extends AsyncPaging
    * on the thread that completes the pair of futures [nextPage, fullyConsumed] and enqueues. This
    * can be a driver IO thread or a subscriber thread; in both cases, cannot run concurrently due to
    * the fact that one can only fetch the next page when the current one is arrived and enqueued.
+   *
+   * <p>The request is only sent once the permits required by {@link #onBeforeRequestStarted()} are
+   * granted; if they are not readily available, this method returns immediately and the request is
+   * sent later by the thread that grants them. Callers are never blocked.
+   *
+   * <p>If the permits cannot be acquired, or if the request cannot be sent, e.g. because a listener
+   * failed, the error is emitted as the next page, which terminates the subscription.
    */
   private void fetchNextPage(Page current) {
+    onBeforeRequestStarted()
+        .thenRun(() -> doFetchNextPage(current))
+        .handle((v, t) -> t)
+        .thenCompose(
+            t -> {
+              if (t == null) {
+                return CompletableFuture.completedFuture(null);
+              }
+              Throwable cause = t instanceof CompletionException ? t.getCause() : t;
+              // wait until there is free space in the queue, as for regular pages
+              return current.fullyConsumed.thenRun(
+                  () -> {
+                    enqueue(toErrorPage(cause));
+                    drain();
+                  });
+            });
+  }
+
+  private void doFetchNextPage(Page current) {
     // A local execution context to record metrics for this specific request-response cycle.
     DefaultExecutionContext local = new DefaultExecutionContext();
-    onBeforeRequestStarted();
     local.start();
-    onRequestStarted(local);
+    try {
+      onRequestStarted(local);
+    } catch (RuntimeException e) {
+      // the request will not be sent, give back its permit
+      if (maxConcurrentRequests != null) {
+        maxConcurrentRequests.release(1);
+      }
+      throw e;
+    }
     current
         .nextPage()
         // as soon as the response arrives, notify our listener and
@@ -349,7 +382,7 @@ public abstract class ResultSubscription<R extends Result, P extends AsyncPaging
         .whenComplete(
             (rs, t) -> {
               if (maxConcurrentRequests != null) {
-                maxConcurrentRequests.release();
+                maxConcurrentRequests.release(1);
               }
               local.stop();
               if (t == null) {
@@ -373,6 +406,8 @@ public abstract class ResultSubscription<R extends Result, P extends AsyncPaging
               }
               return page;
             })
+        // wait until the page can be emitted
+        .thenCompose(page -> onBeforePageEnqueued(page).thenApply(v -> page))
         // wait until there is free space in the queue
         // before enqueueing the new page
         .thenCombine(current.fullyConsumed, (rs, v) -> rs)
@@ -388,10 +423,25 @@ public abstract class ResultSubscription<R extends Result, P extends AsyncPaging
             });
   }
 
-  void onBeforeRequestStarted() {
+  /**
+   * Invoked before each request is sent.
+   *
+   * @return a stage that completes when the request can be sent.
+   */
+  CompletionStage<Void> onBeforeRequestStarted() {
     if (maxConcurrentRequests != null) {
-      maxConcurrentRequests.acquireUninterruptibly();
+      return maxConcurrentRequests.acquire(1);
     }
+    return CompletableFuture.completedFuture(null);
+  }
+
+  /**
+   * Invoked when a page is received, before it is enqueued and its results emitted.
+   *
+   * @return a stage that completes when the page can be enqueued.
+   */
+  CompletionStage<Void> onBeforePageEnqueued(Page page) {
+    return CompletableFuture.completedFuture(null);
   }
 
   /*
@@ -446,7 +496,6 @@ public abstract class ResultSubscription<R extends Result, P extends AsyncPaging
 
   private void doOnNext(R result) {
     try {
-      onBeforeResultEmitted(result);
       subscriber.onNext(result);
     } catch (Throwable t) {
       LOG.error(
@@ -457,10 +506,6 @@ public abstract class ResultSubscription<R extends Result, P extends AsyncPaging
     }
   }
 
-  void onBeforeResultEmitted(R result) {
-    // nothing to do by default
-  }
-
   private void stop(@Nullable BulkExecutionException error) {
     global.stop();
     if (listener != null) {
@@ -532,7 +577,7 @@ public abstract class ResultSubscription<R extends Result, P extends AsyncPaging
   /** Converts the given error into a {@link Page}, containing the error as its only element. */
   private Page toErrorPage(Throwable t) {
     BulkExecutionException error = new BulkExecutionException(t, statement);
-    return new Page(Collections.singleton(toErrorResult(error)).iterator(), null);
+    return new Page(Collections.singleton(toErrorResult(error)).iterator(), 0, null);
   }
 
   /**
@@ -547,12 +592,13 @@ public abstract class ResultSubscription<R extends Result, P extends AsyncPaging
    * Abstracts away the concrete page type, allowing this base class to handle different ones
    * (typically continuous and non-continuous result sets).
    *
-   * <p>It contains simply an iterator over the page's results, and a future pointing to the next
-   * page, or {@code null} if it's the last page.
+   * <p>It contains simply an iterator over the page's results, the number of rows in the page, and
+   * a future pointing to the next page, or {@code null} if it's the last page.
    */
   class Page {
 
     final Iterator<R> rows;
+    final int size;
     final Callable<CompletionStage<? extends P>> nextPage;
     final CompletableFuture<Void> fullyConsumed;
 
@@ -560,12 +606,14 @@ public abstract class ResultSubscription<R extends Result, P extends AsyncPaging
     private Page(Callable<CompletionStage<? extends P>> nextPage) {
       this.nextPage = nextPage;
       this.rows = Collections.emptyIterator();
+      this.size = 0;
       fullyConsumed = initial;
     }
 
-    Page(Iterator<R> rows, Callable<CompletionStage<? extends P>> nextPage) {
+    Page(Iterator<R> rows, int size, Callable<CompletionStage<? extends P>> nextPage) {
       this.nextPage = nextPage;
       this.rows = rows;
+      this.size = size;
       fullyConsumed = new CompletableFuture<>();
     }
 
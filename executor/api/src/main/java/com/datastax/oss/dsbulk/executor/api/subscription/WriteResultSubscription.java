@@ -17,17 +17,18 @@ package com.datastax.oss.dsbulk.executor.api.subscription;
 
 import com.datastax.oss.driver.api.core.cql.AsyncResultSet;
 import com.datastax.oss.driver.api.core.cql.Statement;
-import com.datastax.oss.driver.shaded.guava.common.util.concurrent.RateLimiter;
 import com.datastax.oss.dsbulk.executor.api.exception.BulkExecutionException;
 import com.datastax.oss.dsbulk.executor.api.listener.ExecutionContext;
 import com.datastax.oss.dsbulk.executor.api.listener.ExecutionListener;
 import com.datastax.oss.dsbulk.executor.api.result.DefaultWriteResult;
 import com.datastax.oss.dsbulk.executor.api.result.WriteResult;
+import com.datastax.oss.dsbulk.executor.api.throttling.AsyncRateLimiter;
+import com.datastax.oss.dsbulk.executor.api.throttling.AsyncSemaphore;
 import edu.umd.cs.findbugs.annotations.NonNull;
 import edu.umd.cs.findbugs.annotations.Nullable;
 import java.util.Collections;
 import java.util.Iterator;
-import java.util.concurrent.Semaphore;
+import java.util.concurrent.CompletionStage;
 import org.reactivestreams.Subscriber;
 
 public class WriteResultSubscription extends ResultSubscription<WriteResult, AsyncResultSet> {
@@ -36,8 +37,8 @@ public class WriteResultSubscription extends ResultSubscription<WriteResult, Asy
       @NonNull Subscriber<? super WriteResult> subscriber,
       @NonNull Statement<?> statement,
       @Nullable ExecutionListener listener,
-      @Nullable Semaphore maxConcurrentRequests,
-      @Nullable RateLimiter rateLimiter,
+      @Nullable AsyncSemaphore maxConcurrentRequests,
+      @Nullable AsyncRateLimiter rateLimiter,
       boolean failFast) {
     super(subscriber, statement, listener, maxConcurrentRequests, rateLimiter, failFast);
   }
@@ -46,7 +47,7 @@ public class WriteResultSubscription extends ResultSubscription<WriteResult, Asy
   Page toPage(AsyncResultSet rs, ExecutionContext local) {
     Iterator<WriteResult> iterator =
         Collections.<WriteResult>singleton(new DefaultWriteResult(statement, rs)).iterator();
-    return new Page(iterator, null);
+    return new Page(iterator, 1, null);
   }
 
   @Override
@@ -55,11 +56,11 @@ public class WriteResultSubscription extends ResultSubscription<WriteResult, Asy
   }
 
   @Override
-  void onBeforeRequestStarted() {
+  CompletionStage<Void> onBeforeRequestStarted() {
     if (rateLimiter != null) {
-      rateLimiter.acquire(batchSize);
+      return rateLimiter.acquire(batchSize).thenCompose(v -> super.onBeforeRequestStarted());
     }
-    super.onBeforeRequestStarted();
+    return super.onBeforeRequestStarted();
   }
 
   @Override
@@ -0,0 +1,222 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.dsbulk.executor.api.throttling;
+
+import com.datastax.oss.driver.api.core.AllNodesFailedException;
+import com.datastax.oss.driver.api.core.DriverTimeoutException;
+import com.datastax.oss.driver.api.core.RequestThrottlingException;
+import com.datastax.oss.driver.api.core.connection.BusyConnectionException;
+import com.datastax.oss.driver.api.core.cql.Statement;
+import com.datastax.oss.driver.api.core.servererrors.OverloadedException;
+import com.datastax.oss.driver.api.core.servererrors.ReadTimeoutException;
+import com.datastax.oss.driver.api.core.servererrors.WriteTimeoutException;
+import com.datastax.oss.driver.shaded.guava.common.base.Preconditions;
+import com.datastax.oss.dsbulk.executor.api.listener.ExecutionContext;
+import com.datastax.oss.dsbulk.executor.api.listener.ExecutionListener;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An {@link AsyncSemaphore} whose maximum number of permits, i.e. the maximum number of in-flight
+ * requests, adapts to the observed request latencies.
+ *
+ * <p>This limiter must be registered as an {@link ExecutionListener} of the executor that uses it,
+ * so that it gets notified of each request-response cycle. Samples are grouped in windows of at
+ * least {@code max(50, limit)} requests; at the end of each window, the limit is adjusted following
+ * an AIMD (additive increase, multiplicative decrease) policy:
+ *
+ * <ol>
+ *   <li>if any request in the window failed with an error indicating that the cluster is overloaded
+ *       (client or server timeouts, overloaded or throttled requests), the limit is decreased by
+ *       10%;
+ *   <li>otherwise, if the window's 99th percentile latency exceeds the baseline latency multiplied
+ *       by the latency tolerance, the limit is decreased by 10%;
+ *   <li>otherwise, if the limit was actually reached during the window, the limit is increased:
+ *       doubled until the first decrease ("slow start"), then incremented by one.
+ * </ol>
+ *
+ * <p>The baseline latency is the lowest 99th percentile latency observed so far; it slowly drifts
+ * upwards when latencies increase for a long time, so that the limiter can adapt to lasting changes
+ * in the cluster's capacity.
+ */
+public class AdaptiveConcurrencyLimiter extends AsyncSemaphore implements ExecutionListener {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(AdaptiveConcurrencyLimiter.class);
+
+  private static final int MIN_WINDOW_SIZE = 50;
+
+  private static final double BACKOFF_RATIO = 0.9;
+
+  private static final double BASELINE_DRIFT = 0.05;
+
+  private final int minLimit;
+  private final int maxLimit;
+  private final double latencyTolerance;
+
+  private final Recorder recorder = new Recorder(3);
+  private final AtomicInteger samples = new AtomicInteger();
+  private final AtomicInteger maxInFlight = new AtomicInteger();
+  private final AtomicBoolean overloaded = new AtomicBoolean();
+
+  private final Object windowLock = new Object();
+
+  private volatile int limit;
+
+  // the fields below are guarded by windowLock
+  private Histogram interval;
+  private boolean slowStart = true;
+  private long baselineNanos;
+
+  /**
+   * Creates a new limiter.
+   *
+   * @param minLimit the minimum number of in-flight requests; this is also the initial limit.
+   * @param maxLimit the maximum number of in-flight requests.
+   * @param latencyTolerance the ratio of the baseline latency above which latencies are considered
+   *     to be degraded; must be greater than 1.
+   */
+  public AdaptiveConcurrencyLimiter(int minLimit, int maxLimit, double latencyTolerance) {
+    super(minLimit);
+    Preconditions.checkArgument(
+        maxLimit >= minLimit, "maxLimit must be greater than or equal to minLimit");
+    Preconditions.checkArgument(latencyTolerance > 1, "latencyTolerance must be greater than 1");
+    this.minLimit = minLimit;
+    this.maxLimit = maxLimit;
+    this.latencyTolerance = latencyTolerance;
+    this.limit = minLimit;
+  }
+
+  /** @return the current maximum number of in-flight requests. */
+  public int getLimit() {
+    return limit;
+  }
+
+  @Override
+  public void onWriteRequestSuccessful(Statement<?> statement, ExecutionContext context) {
+    onSample(context.elapsedTimeNanos(), null);
+  }
+
+  @Override
+  public void onWriteRequestFailed(
+      Statement<?> statement, Throwable error, ExecutionContext context) {
+    onSample(context.elapsedTimeNanos(), error);
+  }
+
+  @Override
+  public void onReadRequestSuccessful(Statement<?> statement, ExecutionContext context) {
+    onSample(context.elapsedTimeNanos(), null);
+  }
+
+  @Override
+  public void onReadRequestFailed(
+      Statement<?> statement, Throwable error, ExecutionContext context) {
+    onSample(context.elapsedTimeNanos(), error);
+  }
+
+  private void onSample(long latencyNanos, @Nullable Throwable error) {
+    // the permit of the request being reported has already been released, hence the + 1
+    maxInFlight.accumulateAndGet(limit - availablePermits() + 1, Math::max);
+    if (error != null) {
+      if (isOverloaded(error)) {
+        overloaded.set(true);
+      }
+    } else if (latencyNanos > 0) {
+      recorder.recordValue(latencyNanos);
+    }
+    if (samples.incrementAndGet() >= windowSize()) {
+      endWindow();
+    }
+  }
+
+  private int windowSize() {
+    return Math.max(MIN_WINDOW_SIZE, limit);
+  }
+
+  private void endWindow() {
+    synchronized (windowLock) {
+      if (samples.get() < windowSize()) {
+        // another thread ended the window already
+        return;
+      }
+      samples.set(0);
+      boolean saturated = maxInFlight.getAndSet(0) >= limit;
+      interval = recorder.getIntervalHistogram(interval);
+      int newLimit = limit;
+      if (overloaded.getAndSet(false)) {
+        newLimit = decrease();
+      } else if (interval.getTotalCount() > 0) {
+        long p99 = interval.getValueAtPercentile(99);
+        if (baselineNanos == 0 || p99 < baselineNanos) {
+          baselineNanos = p99;
+        } else {
+          baselineNanos += (long) ((p99 - baselineNanos) * BASELINE_DRIFT);
+        }
+        if (p99 > baselineNanos * latencyTolerance) {
+          newLimit = decrease();
+        } else if (saturated) {
+          newLimit = slowStart ? limit * 2 : limit + 1;
+        }
+      }
+      newLimit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+      if (newLimit != limit) {
+        LOGGER.debug(
+            "Adjusting maximum in-flight requests from {} to {} (baseline p99 latency: {} ms)",
+            limit,
+            newLimit,
+            String.format("%.3f", baselineNanos / 1_000_000d));
+        limit = newLimit;
+        setMaxPermits(newLimit);
+      }
+    }
+  }
+
+  private int decrease() {
+    slowStart = false;
+    return (int) (limit * BACKOFF_RATIO);
+  }
+
+  private static boolean isOverloaded(@NonNull Throwable error) {
+    if (error instanceof CompletionException || error instanceof ExecutionException) {
+      return error.getCause() != null && isOverloaded(error.getCause());
+    }
+    if (error instanceof AllNodesFailedException) {
+      for (List<Throwable> errors : ((AllNodesFailedException) error).getAllErrors().values()) {
+        for (Throwable e : errors) {
+          if (isOverloaded(e)) {
+            return true;
+          }
+        }
+      }
+      return false;
+    }
+    // read and write failures are not overload signals: replicas failed, but did respond in time
+    return error instanceof DriverTimeoutException
+        || error instanceof ReadTimeoutException
+        || error instanceof WriteTimeoutException
+        || error instanceof OverloadedException
+        || error instanceof RequestThrottlingException
+        || error instanceof BusyConnectionException;
+  }
+}
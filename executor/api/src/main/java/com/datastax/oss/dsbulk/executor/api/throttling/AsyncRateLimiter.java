@@ -0,0 +1,137 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.dsbulk.executor.api.throttling;
+
+import com.datastax.oss.driver.shaded.guava.common.base.Preconditions;
+import com.datastax.oss.driver.shaded.guava.common.math.LongMath;
+import com.datastax.oss.driver.shaded.guava.common.util.concurrent.ThreadFactoryBuilder;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * A token-bucket rate limiter that never blocks the calling thread.
+ *
+ * <p>This limiter has the same semantics as Guava's bursty {@code RateLimiter}: permits are issued
+ * at a fixed rate, and up to one second worth of unused permits can be stored and consumed in a
+ * burst. Acquisitions are reservations: an acquisition never waits for other ones, but the cost of
+ * each acquisition is paid by the next one.
+ *
+ * <p>Instead of sleeping until the reservation is due, {@link #acquire(int)} returns a {@link
+ * CompletionStage} that is completed by a shared timer thread at the reserved time.
+ */
+public class AsyncRateLimiter {
+
+  private static final ScheduledExecutorService DEFAULT_TIMER =
+      Executors.newSingleThreadScheduledExecutor(
+          new ThreadFactoryBuilder().setNameFormat("rate-limiter-%d").setDaemon(true).build());
+
+  /**
+   * Creates a new rate limiter.
+   *
+   * @param permitsPerSecond the rate of the returned limiter, in permits per second.
+   * @return a new rate limiter.
+   */
+  @NonNull
+  public static AsyncRateLimiter create(double permitsPerSecond) {
+    return new AsyncRateLimiter(permitsPerSecond, DEFAULT_TIMER, System::nanoTime);
+  }
+
+  private final double permitsPerSecond;
+  private final double stableIntervalMicros;
+  private final double maxStoredPermits;
+  private final ScheduledExecutorService timer;
+  private final LongSupplier nanoTime;
+  private final long startNanos;
+
+  /** The number of unused permits, accumulated while the limiter was idle. */
+  private double storedPermits;
+
+  /** The time, relative to startNanos, when the next reservation can be granted. */
+  private long nextFreeMicros;
+
+  AsyncRateLimiter(
+      double permitsPerSecond, @NonNull ScheduledExecutorService timer, LongSupplier nanoTime) {
+    Preconditions.checkArgument(
+        permitsPerSecond > 0 && !Double.isNaN(permitsPerSecond),
+        "permitsPerSecond must be strictly positive");
+    this.permitsPerSecond = permitsPerSecond;
+    this.stableIntervalMicros = TimeUnit.SECONDS.toMicros(1L) / permitsPerSecond;
+    this.maxStoredPermits = permitsPerSecond;
+    this.timer = timer;
+    this.nanoTime = nanoTime;
+    this.startNanos = nanoTime.getAsLong();
+  }
+
+  /** @return the rate of this limiter, in permits per second. */
+  public double getRate() {
+    return permitsPerSecond;
+  }
+
+  /**
+   * Acquires the given number of permits.
+   *
+   * @param permits the number of permits to acquire.
+   * @return a stage that completes when the permits can be used; if they can be used immediately,
+   *     the returned stage is already completed; if the timer cannot schedule the completion, the
+   *     returned stage fails.
+   */
+  @NonNull
+  // the scheduled task cannot fail, its outcome is conveyed by the returned stage
+  @SuppressWarnings("FutureReturnValueIgnored")
+  public CompletionStage<Void> acquire(int permits) {
+    Preconditions.checkArgument(permits > 0, "permits must be strictly positive");
+    long waitMicros = reserve(permits);
+    if (waitMicros <= 0) {
+      return AsyncSemaphore.ACQUIRED;
+    }
+    CompletableFuture<Void> future = new CompletableFuture<>();
+    Runnable task = () -> future.complete(null);
+    try {
+      timer.schedule(task, waitMicros, TimeUnit.MICROSECONDS);
+    } catch (RejectedExecutionException e) {
+      future.completeExceptionally(e);
+    }
+    return future;
+  }
+
+  /**
+   * Reserves the given number of permits.
+   *
+   * @return the time to wait, in microseconds, before the permits can be used.
+   */
+  synchronized long reserve(int permits) {
+    long nowMicros = TimeUnit.NANOSECONDS.toMicros(nanoTime.getAsLong() - startNanos);
+    if (nowMicros > nextFreeMicros) {
+      // the limiter has been idle, accumulate unused permits
+      double newPermits = (nowMicros - nextFreeMicros) / stableIntervalMicros;
+      storedPermits = Math.min(maxStoredPermits, storedPermits + newPermits);
+      nextFreeMicros = nowMicros;
+    }
+    long waitMicros = nextFreeMicros - nowMicros;
+    double storedPermitsToSpend = Math.min(permits, storedPermits);
+    double freshPermits = permits - storedPermitsToSpend;
+    long costMicros = (long) (freshPermits * stableIntervalMicros);
+    nextFreeMicros = LongMath.saturatedAdd(nextFreeMicros, costMicros);
+    storedPermits -= storedPermitsToSpend;
+    return waitMicros;
+  }
+}
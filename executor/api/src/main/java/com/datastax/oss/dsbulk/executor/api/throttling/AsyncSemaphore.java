@@ -0,0 +1,184 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.dsbulk.executor.api.throttling;
+
+import com.datastax.oss.driver.shaded.guava.common.base.Preconditions;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * A counting semaphore that never blocks the calling thread.
+ *
+ * <p>Instead of parking the caller until enough permits are available, {@link #acquire(int)}
+ * returns a {@link CompletionStage} that completes once the permits have been granted. Waiters are
+ * served in FIFO order; dependent actions of a pending acquisition are executed by the thread that
+ * releases the permits. If these actions release permits in turn, e.g. because a request failed
+ * synchronously, the acquisitions that become ready are completed by the same thread once the
+ * actions return, in a loop, instead of recursively.
+ */
+public class AsyncSemaphore {
+
+  static final CompletableFuture<Void> ACQUIRED = CompletableFuture.completedFuture(null);
+
+  /** The waiters left to complete by the current thread, if it is already completing waiters. */
+  private static final ThreadLocal<Deque<Waiter>> COMPLETING = new ThreadLocal<>();
+
+  private int maxPermits;
+
+  private final Queue<Waiter> waiters = new ArrayDeque<>();
+
+  private int permits;
+
+  /**
+   * Creates a new semaphore.
+   *
+   * @param permits the initial maximum number of permits.
+   */
+  public AsyncSemaphore(int permits) {
+    Preconditions.checkArgument(permits > 0, "permits must be strictly positive");
+    this.maxPermits = permits;
+    this.permits = permits;
+  }
+
+  /**
+   * Acquires the given number of permits.
+   *
+   * @param permits the number of permits to acquire; must be lesser than or equal to the maximum
+   *     number of permits.
+   * @return a stage that completes when the permits have been acquired; if enough permits are
+   *     readily available, the returned stage is already completed.
+   */
+  @NonNull
+  public CompletionStage<Void> acquire(int permits) {
+    synchronized (this) {
+      Preconditions.checkArgument(
+          permits > 0 && permits <= maxPermits,
+          "permits must be between 1 and %s, got: %s",
+          maxPermits,
+          permits);
+      if (waiters.isEmpty() && this.permits >= permits) {
+        this.permits -= permits;
+        return ACQUIRED;
+      }
+      Waiter waiter = new Waiter(permits);
+      waiters.add(waiter);
+      return waiter.future;
+    }
+  }
+
+  /**
+   * Releases the given number of permits, possibly completing pending acquisitions.
+   *
+   * @param permits the number of permits to release.
+   */
+  public void release(int permits) {
+    List<Waiter> ready;
+    synchronized (this) {
+      this.permits = Math.min(maxPermits, this.permits + permits);
+      ready = pollReadyWaiters();
+    }
+    complete(ready);
+  }
+
+  /**
+   * Changes the maximum number of permits.
+   *
+   * <p>When the maximum number of permits is decreased, in-flight permits are not revoked, but the
+   * number of available permits may become negative, in which case acquisitions will be delayed
+   * until enough permits are released. When it is increased, pending acquisitions may be completed
+   * immediately.
+   *
+   * @param maxPermits the new maximum number of permits.
+   */
+  public void setMaxPermits(int maxPermits) {
+    Preconditions.checkArgument(maxPermits > 0, "maxPermits must be strictly positive");
+    List<Waiter> ready;
+    synchronized (this) {
+      this.permits += maxPermits - this.maxPermits;
+      this.maxPermits = maxPermits;
+      ready = pollReadyWaiters();
+    }
+    complete(ready);
+  }
+
+  /** @return the current maximum number of permits. */
+  public synchronized int getMaxPermits() {
+    return maxPermits;
+  }
+
+  private List<Waiter> pollReadyWaiters() {
+    List<Waiter> ready = null;
+    Waiter head;
+    while ((head = waiters.peek()) != null && permits >= head.permits) {
+      permits -= head.permits;
+      waiters.poll();
+      if (ready == null) {
+        ready = new ArrayList<>(1);
+      }
+      ready.add(head);
+    }
+    return ready;
+  }
+
+  private static void complete(List<Waiter> ready) {
+    // complete outside the lock, since completion runs dependent actions in this thread
+    if (ready == null) {
+      return;
+    }
+    Deque<Waiter> pending = COMPLETING.get();
+    if (pending != null) {
+      // called from a dependent action: the enclosing call completes these waiters when it returns
+      pending.addAll(ready);
+      return;
+    }
+    pending = new ArrayDeque<>(ready);
+    COMPLETING.set(pending);
+    try {
+      Waiter waiter;
+      while ((waiter = pending.poll()) != null) {
+        waiter.future.complete(null);
+      }
+    } finally {
+      COMPLETING.remove();
+    }
+  }
+
+  /** @return the number of permits currently available; can be negative. */
+  public synchronized int availablePermits() {
+    return permits;
+  }
+
+  /** @return the number of pending acquisitions. */
+  public synchronized int getQueueLength() {
+    return waiters.size();
+  }
+
+  private static class Waiter {
+
+    private final int permits;
+    private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+    private Waiter(int permits) {
+      this.permits = permits;
+    }
+  }
+}
@@ -15,6 +15,7 @@
  */
 package com.datastax.oss.dsbulk.executor.api.publisher;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -24,10 +25,16 @@ import com.datastax.oss.driver.api.core.cql.AsyncResultSet;
 import com.datastax.oss.driver.api.core.cql.ExecutionInfo;
 import com.datastax.oss.driver.api.core.cql.SimpleStatement;
 import com.datastax.oss.driver.api.core.cql.Statement;
+import com.datastax.oss.dsbulk.executor.api.listener.ExecutionContext;
+import com.datastax.oss.dsbulk.executor.api.listener.ExecutionListener;
 import com.datastax.oss.dsbulk.executor.api.result.WriteResult;
 import com.datastax.oss.dsbulk.tests.driver.MockAsyncResultSet;
+import java.time.Duration;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import org.reactivestreams.Publisher;
+import org.testng.annotations.Test;
+import reactor.core.publisher.Flux;
 
 public class WriteResultPublisherTest extends ResultPublisherTestBase<WriteResult> {
 
@@ -50,6 +57,25 @@ public class WriteResultPublisherTest extends ResultPublisherTestBase<WriteResul
     return new WriteResultPublisher(statement, session, true, FAILED_LISTENER, null, null);
   }
 
+  @Test
+  public void should_emit_error_when_request_cannot_be_started() {
+    Statement<?> statement = SimpleStatement.newInstance("irrelevant");
+    ExecutionListener listener =
+        new ExecutionListener() {
+          @Override
+          public void onWriteRequestStarted(Statement<?> statement, ExecutionContext context) {
+            throw new IllegalStateException("boom");
+          }
+        };
+    Publisher<WriteResult> publisher =
+        new WriteResultPublisher(statement, setUpSession(), false, listener, null, null);
+    List<WriteResult> results = Flux.from(publisher).collectList().block(Duration.ofSeconds(10));
+    assertThat(results).hasSize(1);
+    assertThat(results.get(0).isSuccess()).isFalse();
+    assertThat(results.get(0).getError())
+        .hasValueSatisfying(e -> assertThat(e).hasRootCauseInstanceOf(IllegalStateException.class));
+  }
+
   private static CqlSession setUpSession() {
     CqlSession session = mock(CqlSession.class);
     CompletableFuture<AsyncResultSet> future = new CompletableFuture<>();
@@ -0,0 +1,172 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.dsbulk.executor.api.throttling;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.datastax.oss.driver.api.core.ConsistencyLevel;
+import com.datastax.oss.driver.api.core.DriverTimeoutException;
+import com.datastax.oss.driver.api.core.cql.SimpleStatement;
+import com.datastax.oss.driver.api.core.cql.Statement;
+import com.datastax.oss.driver.api.core.servererrors.DefaultWriteType;
+import com.datastax.oss.driver.api.core.servererrors.ReadFailureException;
+import com.datastax.oss.driver.api.core.servererrors.ReadTimeoutException;
+import com.datastax.oss.driver.api.core.servererrors.WriteFailureException;
+import com.datastax.oss.driver.api.core.servererrors.WriteTimeoutException;
+import com.datastax.oss.dsbulk.executor.api.listener.ExecutionContext;
+import java.util.Collections;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class AdaptiveConcurrencyLimiterTest {
+
+  private static final Statement<?> STATEMENT = SimpleStatement.newInstance("irrelevant");
+
+  @Test
+  void should_double_limit_during_slow_start_when_saturated() {
+    AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(4, 100, 2.0);
+    assertThat(limiter.getLimit()).isEqualTo(4);
+    saturate(limiter);
+    window(limiter, 1);
+    assertThat(limiter.getLimit()).isEqualTo(8);
+    assertThat(limiter.getMaxPermits()).isEqualTo(8);
+    saturate(limiter);
+    window(limiter, 1);
+    assertThat(limiter.getLimit()).isEqualTo(16);
+  }
+
+  @Test
+  void should_not_increase_limit_when_not_saturated() {
+    AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(4, 100, 2.0);
+    window(limiter, 1);
+    assertThat(limiter.getLimit()).isEqualTo(4);
+  }
+
+  @Test
+  void should_decrease_limit_when_overloaded_then_increase_additively() {
+    AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 100, 2.0);
+    saturate(limiter);
+    window(limiter, 1);
+    assertThat(limiter.getLimit()).isEqualTo(20);
+    limiter.onWriteRequestFailed(
+        STATEMENT,
+        new CompletionException(new DriverTimeoutException("timeout")),
+        context(TimeUnit.SECONDS.toNanos(2)));
+    window(limiter, 1);
+    assertThat(limiter.getLimit()).isEqualTo(18);
+    // slow start is over
+    saturate(limiter);
+    window(limiter, 1);
+    assertThat(limiter.getLimit()).isEqualTo(19);
+  }
+
+  @Test
+  void should_not_decrease_limit_on_non_overload_errors() {
+    AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 100, 2.0);
+    limiter.onWriteRequestFailed(STATEMENT, new IllegalArgumentException(), context(1000));
+    window(limiter, 1);
+    assertThat(limiter.getLimit()).isEqualTo(10);
+  }
+
+  @Test
+  void should_decrease_limit_on_server_timeouts() {
+    AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 100, 2.0);
+    saturate(limiter);
+    window(limiter, 1);
+    assertThat(limiter.getLimit()).isEqualTo(20);
+    limiter.onWriteRequestFailed(
+        STATEMENT,
+        new WriteTimeoutException(null, ConsistencyLevel.ONE, 0, 1, DefaultWriteType.SIMPLE),
+        context(1000));
+    window(limiter, 1);
+    assertThat(limiter.getLimit()).isEqualTo(18);
+    limiter.onReadRequestFailed(
+        STATEMENT,
+        new ReadTimeoutException(null, ConsistencyLevel.ONE, 0, 1, false),
+        context(1000));
+    window(limiter, 1);
+    assertThat(limiter.getLimit()).isEqualTo(16);
+  }
+
+  @Test
+  void should_not_decrease_limit_on_read_and_write_failures() {
+    AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 100, 2.0);
+    saturate(limiter);
+    window(limiter, 1);
+    assertThat(limiter.getLimit()).isEqualTo(20);
+    limiter.onWriteRequestFailed(
+        STATEMENT,
+        new WriteFailureException(
+            null, ConsistencyLevel.ONE, 0, 1, DefaultWriteType.SIMPLE, 1, Collections.emptyMap()),
+        context(1000));
+    limiter.onReadRequestFailed(
+        STATEMENT,
+        new CompletionException(
+            new ReadFailureException(
+                null, ConsistencyLevel.ONE, 0, 1, 1, false, Collections.emptyMap())),
+        context(1000));
+    window(limiter, 1);
+    assertThat(limiter.getLimit()).isEqualTo(20);
+  }
+
+  @Test
+  void should_decrease_limit_when_latency_degrades() {
+    AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 100, 2.0);
+    saturate(limiter);
+    window(limiter, 1);
+    assertThat(limiter.getLimit()).isEqualTo(20);
+    saturate(limiter);
+    window(limiter, 10);
+    assertThat(limiter.getLimit()).isEqualTo(18);
+  }
+
+  @Test
+  void should_stay_within_bounds() {
+    AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 15, 2.0);
+    saturate(limiter);
+    window(limiter, 1);
+    assertThat(limiter.getLimit()).isEqualTo(15);
+    for (int i = 0; i < 10; i++) {
+      window(limiter, 100);
+    }
+    assertThat(limiter.getLimit()).isEqualTo(10);
+  }
+
+  /** Acquires all available permits, so that the limit is considered reached. */
+  private static void saturate(AdaptiveConcurrencyLimiter limiter) {
+    while (limiter.availablePermits() > 0) {
+      limiter.acquire(1);
+    }
+  }
+
+  /** Reports a full window of successful requests with the given latency. */
+  private static void window(AdaptiveConcurrencyLimiter limiter, long latencyMillis) {
+    int windowSize = Math.max(50, limiter.getLimit());
+    for (int i = 0; i < windowSize; i++) {
+      limiter.onWriteRequestSuccessful(
+          STATEMENT, context(TimeUnit.MILLISECONDS.toNanos(latencyMillis)));
+    }
+  }
+
+  private static ExecutionContext context(long elapsedNanos) {
+    ExecutionContext context = mock(ExecutionContext.class);
+    when(context.elapsedTimeNanos()).thenReturn(elapsedNanos);
+    return context;
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.dsbulk.executor.api.throttling;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+class AsyncRateLimiterTest {
+
+  private final AtomicLong nanos = new AtomicLong(123_456_789L);
+
+  private final ScheduledExecutorService timer = mock(ScheduledExecutorService.class);
+
+  @Test
+  void should_reserve_permits_at_a_fixed_rate() {
+    // one permit every 200 ms
+    AsyncRateLimiter limiter = new AsyncRateLimiter(5, timer, nanos::get);
+    assertThat(limiter.getRate()).isEqualTo(5);
+    assertThat(limiter.reserve(1)).isZero();
+    assertThat(limiter.reserve(1)).isEqualTo(200_000);
+    assertThat(limiter.reserve(2)).isEqualTo(400_000);
+    // the cost of the previous acquisition is paid by the next one
+    assertThat(limiter.reserve(1)).isEqualTo(800_000);
+    advance(1000);
+    assertThat(limiter.reserve(1)).isZero();
+  }
+
+  @Test
+  void should_store_unused_permits_up_to_one_second() {
+    AsyncRateLimiter limiter = new AsyncRateLimiter(5, timer, nanos::get);
+    advance(10_000);
+    // 5 stored permits, the 6th one must wait
+    for (int i = 0; i < 5; i++) {
+      assertThat(limiter.reserve(1)).isZero();
+    }
+    assertThat(limiter.reserve(1)).isZero();
+    assertThat(limiter.reserve(1)).isEqualTo(200_000);
+  }
+
+  @Test
+  void should_return_completed_stage_when_no_wait_needed() {
+    AsyncRateLimiter limiter = new AsyncRateLimiter(5, timer, nanos::get);
+    assertThat(limiter.acquire(1).toCompletableFuture()).isDone();
+    verify(timer, never()).schedule(any(Runnable.class), anyLong(), any(TimeUnit.class));
+  }
+
+  @Test
+  void should_schedule_completion_when_wait_needed() {
+    AsyncRateLimiter limiter = new AsyncRateLimiter(5, timer, nanos::get);
+    limiter.acquire(1);
+    CompletableFuture<Void> future = limiter.acquire(1).toCompletableFuture();
+    assertThat(future).isNotDone();
+    ArgumentCaptor<Runnable> task = ArgumentCaptor.forClass(Runnable.class);
+    verify(timer).schedule(task.capture(), eq(200_000L), eq(TimeUnit.MICROSECONDS));
+    task.getValue().run();
+    assertThat(future).isDone();
+  }
+
+  @Test
+  void should_fail_when_timer_rejects_completion() {
+    AsyncRateLimiter limiter = new AsyncRateLimiter(5, timer, nanos::get);
+    when(timer.schedule(any(Runnable.class), anyLong(), any(TimeUnit.class)))
+        .thenThrow(new RejectedExecutionException("timer shut down"));
+    limiter.acquire(1);
+    CompletableFuture<Void> future = limiter.acquire(1).toCompletableFuture();
+    assertThat(future).isCompletedExceptionally();
+  }
+
+  private void advance(long millis) {
+    nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+  }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.dsbulk.executor.api.throttling;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.Test;
+
+class AsyncSemaphoreTest {
+
+  @Test
+  void should_acquire_immediately_when_permits_available() {
+    AsyncSemaphore semaphore = new AsyncSemaphore(2);
+    assertThat(semaphore.acquire(1).toCompletableFuture()).isDone();
+    assertThat(semaphore.acquire(1).toCompletableFuture()).isDone();
+    assertThat(semaphore.availablePermits()).isZero();
+    assertThat(semaphore.getQueueLength()).isZero();
+  }
+
+  @Test
+  void should_complete_pending_acquisitions_in_order_when_permits_released() {
+    AsyncSemaphore semaphore = new AsyncSemaphore(2);
+    semaphore.acquire(2);
+    CompletableFuture<Void> first = semaphore.acquire(1).toCompletableFuture();
+    CompletableFuture<Void> second = semaphore.acquire(2).toCompletableFuture();
+    CompletableFuture<Void> third = semaphore.acquire(1).toCompletableFuture();
+    assertThat(first).isNotDone();
+    assertThat(second).isNotDone();
+    assertThat(third).isNotDone();
+    assertThat(semaphore.getQueueLength()).isEqualTo(3);
+    semaphore.release(1);
+    assertThat(first).isDone();
+    assertThat(second).isNotDone();
+    // third must wait for second, even if one permit would be enough
+    semaphore.release(1);
+    assertThat(second).isNotDone();
+    assertThat(third).isNotDone();
+    semaphore.release(1);
+    assertThat(second).isDone();
+    assertThat(third).isNotDone();
+    semaphore.release(2);
+    assertThat(third).isDone();
+    assertThat(semaphore.availablePermits()).isEqualTo(1);
+    assertThat(semaphore.getQueueLength()).isZero();
+  }
+
+  @Test
+  void should_complete_acquisitions_released_by_dependent_actions_without_recursion() {
+    AsyncSemaphore semaphore = new AsyncSemaphore(1);
+    semaphore.acquire(1);
+    int count = 100_000;
+    int[] depth = new int[1];
+    int[] maxDepth = new int[1];
+    List<CompletableFuture<Void>> acquisitions = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      CompletableFuture<Void> acquisition = semaphore.acquire(1).toCompletableFuture();
+      // each dependent action releases its permit immediately, like a request failing synchronously
+      acquisition.thenRun(
+          () -> {
+            maxDepth[0] = Math.max(maxDepth[0], ++depth[0]);
+            semaphore.release(1);
+            depth[0]--;
+          });
+      acquisitions.add(acquisition);
+    }
+    semaphore.release(1);
+    assertThat(acquisitions).allMatch(CompletableFuture::isDone);
+    assertThat(maxDepth[0]).isOne();
+    assertThat(semaphore.availablePermits()).isOne();
+    assertThat(semaphore.getQueueLength()).isZero();
+  }
+
+  @Test
+  void should_not_exceed_max_permits_when_released() {
+    AsyncSemaphore semaphore = new AsyncSemaphore(2);
+    semaphore.release(10);
+    assertThat(semaphore.availablePermits()).isEqualTo(2);
+  }
+
+  @Test
+  void should_adjust_available_permits_when_max_permits_changed() {
+    AsyncSemaphore semaphore = new AsyncSemaphore(4);
+    semaphore.acquire(3);
+    semaphore.setMaxPermits(2);
+    assertThat(semaphore.getMaxPermits()).isEqualTo(2);
+    assertThat(semaphore.availablePermits()).isEqualTo(-1);
+    CompletableFuture<Void> pending = semaphore.acquire(1).toCompletableFuture();
+    assertThat(pending).isNotDone();
+    semaphore.release(2);
+    assertThat(pending).isDone();
+    assertThat(semaphore.availablePermits()).isZero();
+    CompletableFuture<Void> second = semaphore.acquire(2).toCompletableFuture();
+    assertThat(second).isNotDone();
+    semaphore.setMaxPermits(5);
+    assertThat(second).isDone();
+    assertThat(semaphore.availablePermits()).isEqualTo(1);
+  }
+
+  @Test
+  void should_reject_invalid_permits() {
+    AsyncSemaphore semaphore = new AsyncSemaphore(2);
+    assertThatThrownBy(() -> semaphore.acquire(0)).isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> semaphore.acquire(3))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("permits must be between 1 and 2, got: 3");
+    assertThatThrownBy(() -> new AsyncSemaphore(0)).isInstanceOf(IllegalArgumentException.class);
+  }
+}
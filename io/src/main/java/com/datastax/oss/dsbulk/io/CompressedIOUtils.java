@@ -16,6 +16,9 @@
 package com.datastax.oss.dsbulk.io;
 
 import com.datastax.oss.driver.shaded.guava.common.collect.ImmutableMap;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.IOException;
@@ -27,15 +30,18 @@ import java.net.URL;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executor;
 import org.apache.commons.compress.compressors.CompressorException;
-import org.apache.commons.compress.compressors.CompressorInputStream;
-import org.apache.commons.compress.compressors.CompressorOutputStream;
 import org.apache.commons.compress.compressors.CompressorStreamFactory;
 
 public final class CompressedIOUtils {
 
   private static final int BUFFER_SIZE = 8192 * 2;
 
+  private static final int READ_AHEAD_BLOCK_SIZE = 256 * 1024;
+
+  private static final int READ_AHEAD_MAX_BLOCKS = 4;
+
   public static final String NONE_COMPRESSION = "none";
   public static final String XZ_COMPRESSION = "xz";
   public static final String GZIP_COMPRESSION = "gzip";
@@ -89,48 +95,177 @@ public final class CompressedIOUtils {
           .put(DEFLATE_COMPRESSION, ".deflate")
           .build();
 
+  private static final ImmutableMap<String, ParallelCompressorOutputStream.BlockCompressor>
+      BLOCK_COMPRESSORS =
+          ImmutableMap.of(
+              GZIP_COMPRESSION,
+              ParallelCompressorOutputStream.GZIP,
+              ZSTD_COMPRESSION,
+              ParallelCompressorOutputStream.ZSTD);
+
   public static BufferedReader newBufferedReader(
       final URL url, final Charset charset, final String compression) throws IOException {
-    final BufferedReader reader;
+    return newBufferedReader(url, charset, compression, false);
+  }
+
+  /**
+   * Opens a reader for the given URL, decompressing its contents with the given compression.
+   *
+   * @param url The URL to read.
+   * @param charset The charset to decode the URL's contents with.
+   * @param compression The compression format, or {@code null} or {@value #NONE_COMPRESSION} if the
+   *     contents are not compressed.
+   * @param readAhead Whether to decompress the contents ahead of the reader, on a dedicated thread;
+   *     ignored if the contents are not compressed.
+   * @return A new reader.
+   * @throws IOException If the URL cannot be opened, or the compression format is not supported.
+   */
+  public static BufferedReader newBufferedReader(
+      final URL url, final Charset charset, final String compression, boolean readAhead)
+      throws IOException {
     if (compression == null || isNoneCompression(compression)) {
-      reader = IOUtils.newBufferedReader(url, charset);
-    } else {
-      String compressor = INPUT_COMPRESSORS.get(compression.toLowerCase());
-      if (compressor == null) {
-        throw new IOException("Unsupported compression format: " + compression);
-      }
-      InputStream in = IOUtils.newBufferedInputStream(url);
-      try {
-        CompressorInputStream cin =
-            new CompressorStreamFactory().createCompressorInputStream(compressor, in);
-        reader = new BufferedReader(new InputStreamReader(cin, charset), BUFFER_SIZE);
-      } catch (CompressorException ex) {
-        throw new IOException("Can't instantiate class for compression: " + compression, ex);
+      return IOUtils.newBufferedReader(url, charset);
+    }
+    InputStream cin = newDecompressingInputStream(url, compression, readAhead);
+    return new BufferedReader(new InputStreamReader(cin, charset), BUFFER_SIZE);
+  }
+
+  /**
+   * Opens a buffered input stream for the given URL, decompressing its contents with the given
+   * compression.
+   *
+   * @param url The URL to read.
+   * @param compression The compression format, or {@code null} or {@value #NONE_COMPRESSION} if the
+   *     contents are not compressed.
+   * @param readAhead Whether to decompress the contents ahead of the reader, on a dedicated thread;
+   *     ignored if the contents are not compressed.
+   * @return A new input stream.
+   * @throws IOException If the URL cannot be opened, or the compression format is not supported.
+   */
+  public static InputStream newBufferedInputStream(
+      final URL url, final String compression, boolean readAhead) throws IOException {
+    if (compression == null || isNoneCompression(compression)) {
+      return IOUtils.newBufferedInputStream(url);
+    }
+    return new BufferedInputStream(
+        newDecompressingInputStream(url, compression, readAhead), BUFFER_SIZE);
+  }
+
+  private static InputStream newDecompressingInputStream(
+      final URL url, final String compression, boolean readAhead) throws IOException {
+    String compressor = INPUT_COMPRESSORS.get(compression.toLowerCase());
+    if (compressor == null) {
+      throw new IOException("Unsupported compression format: " + compression);
+    }
+    InputStream in = IOUtils.newBufferedInputStream(url);
+    try {
+      // decompress until EOF: files written in parallel are made of several gzip members
+      InputStream cin =
+          new CompressorStreamFactory(true).createCompressorInputStream(compressor, in);
+      if (readAhead) {
+        cin = new ReadAheadInputStream(cin, READ_AHEAD_BLOCK_SIZE, READ_AHEAD_MAX_BLOCKS);
       }
+      return cin;
+    } catch (CompressorException ex) {
+      throw new IOException("Can't instantiate class for compression: " + compression, ex);
     }
-    return reader;
   }
 
   public static BufferedWriter newBufferedWriter(
       final URL url, final Charset charset, final String compression) throws IOException {
-    final BufferedWriter writer;
-    if (compression == null || compression.equalsIgnoreCase(NONE_COMPRESSION))
-      writer = IOUtils.newBufferedWriter(url, charset);
-    else {
-      String compressor = OUTPUT_COMPRESSORS.get(compression.toLowerCase());
-      if (compressor == null) {
-        throw new IOException("Unsupported compression format: " + compression);
-      }
-      OutputStream os = IOUtils.newBufferedOutputStream(url);
-      try {
-        CompressorOutputStream cos =
-            new CompressorStreamFactory().createCompressorOutputStream(compressor, os);
-        writer = new BufferedWriter(new OutputStreamWriter(cos, charset), BUFFER_SIZE);
-      } catch (CompressorException ex) {
-        throw new IOException("Can't instantiate class for compression: " + compression, ex);
-      }
+    return newBufferedWriter(url, charset, compression, null, 0, 0);
+  }
+
+  /**
+   * Opens a writer for the given URL, compressing its contents with the given compression.
+   *
+   * <p>If an executor is provided and the compression format {@linkplain
+   * #isParallelCompressionSupported(String) supports it}, the contents are split in blocks of the
+   * given size that are compressed independently by the executor; otherwise the contents are
+   * compressed by the writing thread.
+   *
+   * @param url The URL to write.
+   * @param charset The charset to encode the contents with.
+   * @param compression The compression format, or {@code null} or {@value #NONE_COMPRESSION} if the
+   *     contents should not be compressed.
+   * @param compressionExecutor The executor that compresses blocks, or {@code null} to compress in
+   *     the writing thread.
+   * @param blockSize The size of uncompressed blocks, in bytes; ignored if no executor is provided.
+   * @param parallelism The number of threads of the executor; up to twice as many blocks may be
+   *     held in memory while they are compressed. Ignored if no executor is provided.
+   * @return A new writer.
+   * @throws IOException If the URL cannot be opened, or the compression format is not supported.
+   */
+  public static BufferedWriter newBufferedWriter(
+      final URL url,
+      final Charset charset,
+      final String compression,
+      @Nullable final Executor compressionExecutor,
+      int blockSize,
+      int parallelism)
+      throws IOException {
+    if (compression == null || isNoneCompression(compression)) {
+      return IOUtils.newBufferedWriter(url, charset);
+    }
+    OutputStream cos =
+        newCompressingOutputStream(url, compression, compressionExecutor, blockSize, parallelism);
+    return new BufferedWriter(new OutputStreamWriter(cos, charset), BUFFER_SIZE);
+  }
+
+  /**
+   * Opens a buffered output stream for the given URL, compressing its contents with the given
+   * compression. Contents are compressed in parallel under the same conditions as {@link
+   * #newBufferedWriter(URL, Charset, String, Executor, int, int)}.
+   *
+   * @param url The URL to write.
+   * @param compression The compression format, or {@code null} or {@value #NONE_COMPRESSION} if the
+   *     contents should not be compressed.
+   * @param compressionExecutor The executor that compresses blocks, or {@code null} to compress in
+   *     the writing thread.
+   * @param blockSize The size of uncompressed blocks, in bytes; ignored if no executor is provided.
+   * @param parallelism The number of threads of the executor; ignored if no executor is provided.
+   * @return A new output stream.
+   * @throws IOException If the URL cannot be opened, or the compression format is not supported.
+   */
+  public static OutputStream newBufferedOutputStream(
+      final URL url,
+      final String compression,
+      @Nullable final Executor compressionExecutor,
+      int blockSize,
+      int parallelism)
+      throws IOException {
+    if (compression == null || isNoneCompression(compression)) {
+      return IOUtils.newBufferedOutputStream(url);
+    }
+    return new BufferedOutputStream(
+        newCompressingOutputStream(url, compression, compressionExecutor, blockSize, parallelism),
+        BUFFER_SIZE);
+  }
+
+  private static OutputStream newCompressingOutputStream(
+      final URL url,
+      final String compression,
+      @Nullable final Executor compressionExecutor,
+      int blockSize,
+      int parallelism)
+      throws IOException {
+    String compressor = OUTPUT_COMPRESSORS.get(compression.toLowerCase());
+    if (compressor == null) {
+      throw new IOException("Unsupported compression format: " + compression);
+    }
+    OutputStream os = IOUtils.newBufferedOutputStream(url);
+    ParallelCompressorOutputStream.BlockCompressor blockCompressor =
+        BLOCK_COMPRESSORS.get(compression.toLowerCase());
+    if (compressionExecutor != null && blockCompressor != null) {
+      // keep the pool busy, but bound the amount of uncompressed data held in memory
+      return new ParallelCompressorOutputStream(
+          os, blockCompressor, compressionExecutor, blockSize, 2 * parallelism);
+    }
+    try {
+      return new CompressorStreamFactory().createCompressorOutputStream(compressor, os);
+    } catch (CompressorException ex) {
+      throw new IOException("Can't instantiate class for compression: " + compression, ex);
     }
-    return writer;
   }
 
   public static String getCompressionSuffix(final String compression) {
@@ -152,6 +287,14 @@ public final class CompressedIOUtils {
         || compression.equalsIgnoreCase(NONE_COMPRESSION);
   }
 
+  /**
+   * @return true if the given compression format can be compressed in parallel by {@link
+   *     #newBufferedWriter(URL, Charset, String, Executor, int, int)}.
+   */
+  public static boolean isParallelCompressionSupported(final String compression) {
+    return compression != null && BLOCK_COMPRESSORS.containsKey(compression.toLowerCase());
+  }
+
   public static boolean isNoneCompression(final String compression) {
     return NONE_COMPRESSION.equalsIgnoreCase(compression);
   }
@@ -27,6 +27,7 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.io.Reader;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLConnection;
@@ -86,6 +87,22 @@ public final class IOUtils {
         new InputStreamReader(newBufferedInputStream(url), charset), BUFFER_SIZE);
   }
 
+  /**
+   * Returns a {@link Reader} that decodes the given range of a local file from memory-mapped
+   * regions of that file, thus avoiding the copies incurred by stream-based readers.
+   *
+   * @param file The file to read.
+   * @param start The offset of the first byte to read, inclusive.
+   * @param end The offset of the last byte to read, exclusive.
+   * @param charset The charset to use.
+   * @return A new reader; the reader does not need additional buffering.
+   * @throws IOException If the file cannot be opened or mapped.
+   */
+  public static Reader newMappedReader(
+      @NonNull Path file, long start, long end, @NonNull Charset charset) throws IOException {
+    return new MappedFileReader(file, start, end, charset);
+  }
+
   public static BufferedWriter newBufferedWriter(URL url, Charset charset) throws IOException {
     return new BufferedWriter(
         new OutputStreamWriter(newBufferedOutputStream(url), charset), BUFFER_SIZE);
@@ -0,0 +1,204 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.dsbulk.io;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+/**
+ * A {@link Reader} that decodes a range of a file directly from memory-mapped regions of that file.
+ *
+ * <p>Bytes are decoded straight into the caller's character buffer, without any intermediate copy.
+ * Since a single mapping cannot exceed 2 GB, the file is mapped in successive windows; characters
+ * spanning two windows are handled by starting each window at the first byte that the decoder did
+ * not consume. Malformed input is replaced, as {@link java.io.InputStreamReader} does.
+ *
+ * <p>Each window is unmapped as soon as the next one is mapped, and the last one when the reader is
+ * closed, so that the file is not held mapped until the buffers are garbage-collected; this matters
+ * on Windows, where a mapped file cannot be deleted or renamed. If the JVM does not allow unmapping
+ * buffers explicitly, windows are only unmapped when garbage-collected.
+ */
+class MappedFileReader extends Reader {
+
+  static final long DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+
+  private static final Consumer<ByteBuffer> UNMAPPER = newUnmapper();
+
+  private final FileChannel channel;
+  private final long end;
+  private final long windowSize;
+  private final CharsetDecoder decoder;
+
+  /** The offset, in the file, of the current window. */
+  private long windowStart;
+
+  private MappedByteBuffer window;
+  private boolean eof;
+
+  /** The low surrogate of a pair that did not fit in the caller's buffer. */
+  private char pending;
+
+  private boolean hasPending;
+
+  MappedFileReader(@NonNull Path file, long start, long end, @NonNull Charset charset)
+      throws IOException {
+    this(file, start, end, charset, DEFAULT_WINDOW_SIZE);
+  }
+
+  MappedFileReader(
+      @NonNull Path file, long start, long end, @NonNull Charset charset, long windowSize)
+      throws IOException {
+    this.channel = FileChannel.open(file, StandardOpenOption.READ);
+    this.end = end;
+    this.windowSize = windowSize;
+    this.decoder =
+        charset
+            .newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    windowStart = start;
+    eof = start >= end;
+    if (!eof) {
+      map();
+    }
+  }
+
+  @Override
+  public int read(@NonNull char[] cbuf, int off, int len) throws IOException {
+    if (!channel.isOpen()) {
+      throw new IOException("Stream closed");
+    }
+    if (len == 0) {
+      return 0;
+    }
+    if (hasPending) {
+      cbuf[off] = pending;
+      hasPending = false;
+      return 1;
+    }
+    if (len == 1) {
+      // the next character could be a surrogate pair
+      char[] pair = new char[2];
+      int read = read(pair, 0, 2);
+      if (read == -1) {
+        return -1;
+      }
+      cbuf[off] = pair[0];
+      if (read == 2) {
+        pending = pair[1];
+        hasPending = true;
+      }
+      return 1;
+    }
+    if (eof) {
+      return -1;
+    }
+    CharBuffer out = CharBuffer.wrap(cbuf, off, len);
+    while (true) {
+      boolean last = windowStart + window.limit() >= end;
+      CoderResult result = decoder.decode(window, out, last);
+      if (result.isOverflow()) {
+        break;
+      }
+      // underflow: the window has been consumed, except maybe for an incomplete character
+      if (last) {
+        decoder.flush(out);
+        eof = true;
+        break;
+      }
+      windowStart += window.position();
+      map();
+    }
+    int read = out.position() - off;
+    return read == 0 && eof ? -1 : read;
+  }
+
+  private void map() throws IOException {
+    long size = Math.min(windowSize, end - windowStart);
+    MappedByteBuffer previous = window;
+    window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, size);
+    if (previous != null) {
+      UNMAPPER.accept(previous);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    MappedByteBuffer last = window;
+    window = null;
+    if (last != null) {
+      UNMAPPER.accept(last);
+    }
+    channel.close();
+  }
+
+  /**
+   * Returns a function unmapping buffers with the cleaner of the running JVM, or doing nothing if
+   * there is no accessible cleaner. The buffer must not be accessed anymore once unmapped.
+   */
+  @NonNull
+  private static Consumer<ByteBuffer> newUnmapper() {
+    try {
+      // Java 9+
+      Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+      Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+      theUnsafe.setAccessible(true);
+      Object unsafe = theUnsafe.get(null);
+      Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+      return buffer -> invokeQuietly(invokeCleaner, unsafe, buffer);
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      try {
+        // Java 8
+        Method cleaner = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+        Method clean = Class.forName("sun.misc.Cleaner").getMethod("clean");
+        cleaner.setAccessible(true);
+        clean.setAccessible(true);
+        return buffer -> invokeQuietly(clean, invokeQuietly(cleaner, buffer));
+      } catch (ReflectiveOperationException | RuntimeException e2) {
+        return buffer -> {};
+      }
+    }
+  }
+
+  @Nullable
+  private static Object invokeQuietly(
+      @NonNull Method method, @Nullable Object target, Object... args) {
+    if (target == null) {
+      return null;
+    }
+    try {
+      return method.invoke(target, args);
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      // leave the buffer to the garbage collector
+      return null;
+    }
+  }
+}
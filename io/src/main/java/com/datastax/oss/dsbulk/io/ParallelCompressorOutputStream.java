@@ -0,0 +1,222 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.dsbulk.io;
+
+import com.github.luben.zstd.Zstd;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * An {@link OutputStream} that compresses its contents in independent blocks, on a pool of worker
+ * threads.
+ *
+ * <p>Each block is compressed as a self-contained unit: a gzip member or a zstd frame. Both formats
+ * define a stream of concatenated units as equivalent to the concatenation of their contents, so
+ * the resulting file can be read by any standard decompressor. Compressed blocks are written to the
+ * underlying stream in submission order, by the thread writing to this stream; the number of blocks
+ * in flight is bounded, so a slow pool eventually blocks the writer instead of accumulating
+ * uncompressed data in memory.
+ */
+class ParallelCompressorOutputStream extends OutputStream {
+
+  /** Compresses one block of data into a self-contained unit. */
+  @FunctionalInterface
+  interface BlockCompressor {
+
+    @NonNull
+    byte[] compress(@NonNull byte[] block, int length) throws IOException;
+  }
+
+  static final BlockCompressor GZIP =
+      (block, length) -> {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(length / 2 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(baos, 8192)) {
+          gzip.write(block, 0, length);
+        }
+        return baos.toByteArray();
+      };
+
+  static final BlockCompressor ZSTD =
+      (block, length) -> {
+        byte[] dst = new byte[(int) Zstd.compressBound(length)];
+        // same level as the single-threaded zstd output stream
+        long size = Zstd.compressByteArray(dst, 0, dst.length, block, 0, length, 3);
+        if (Zstd.isError(size)) {
+          throw new IOException("Zstd compression failed: " + Zstd.getErrorName(size));
+        }
+        return Arrays.copyOf(dst, (int) size);
+      };
+
+  private final OutputStream out;
+  private final BlockCompressor compressor;
+  private final Executor executor;
+  private final int blockSize;
+  private final int maxPendingBlocks;
+
+  private final Deque<CompletableFuture<byte[]>> pending = new ArrayDeque<>();
+
+  private byte[] buffer;
+  private int count;
+  private boolean closed;
+
+  /**
+   * Creates a new stream.
+   *
+   * @param out the stream to write compressed blocks to.
+   * @param compressor the compressor to use.
+   * @param executor the executor that compresses blocks.
+   * @param blockSize the size of uncompressed blocks, in bytes.
+   * @param maxPendingBlocks the maximum number of blocks being compressed at any given time.
+   */
+  ParallelCompressorOutputStream(
+      @NonNull OutputStream out,
+      @NonNull BlockCompressor compressor,
+      @NonNull Executor executor,
+      int blockSize,
+      int maxPendingBlocks) {
+    if (blockSize <= 0) {
+      throw new IllegalArgumentException("blockSize must be strictly positive");
+    }
+    if (maxPendingBlocks <= 0) {
+      throw new IllegalArgumentException("maxPendingBlocks must be strictly positive");
+    }
+    this.out = out;
+    this.compressor = compressor;
+    this.executor = executor;
+    this.blockSize = blockSize;
+    this.maxPendingBlocks = maxPendingBlocks;
+    this.buffer = new byte[blockSize];
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    ensureOpen();
+    buffer[count++] = (byte) b;
+    if (count == blockSize) {
+      submitBlock();
+    }
+  }
+
+  @Override
+  public void write(@NonNull byte[] b, int off, int len) throws IOException {
+    ensureOpen();
+    while (len > 0) {
+      int n = Math.min(len, blockSize - count);
+      System.arraycopy(b, off, buffer, count, n);
+      count += n;
+      off += n;
+      len -= n;
+      if (count == blockSize) {
+        submitBlock();
+      }
+    }
+  }
+
+  /**
+   * Writes the blocks that are already compressed, then flushes the underlying stream.
+   *
+   * <p>Buffered data is not compressed, and blocks still being compressed are not waited for:
+   * blocks are only cut when they are full, or when this stream is closed. Callers flushing after
+   * every record would otherwise produce one tiny block per record, compressed one at a time. As a
+   * consequence, data written to this stream is only guaranteed to reach the underlying stream when
+   * this stream is closed.
+   */
+  @Override
+  public void flush() throws IOException {
+    ensureOpen();
+    writeCompressedBlocks();
+    out.flush();
+  }
+
+  /** Compresses the buffered data, waits until all pending blocks are written, then closes. */
+  @Override
+  public void close() throws IOException {
+    if (!closed) {
+      try {
+        if (count > 0) {
+          submitBlock();
+        }
+        while (!pending.isEmpty()) {
+          writeNextBlock();
+        }
+        out.flush();
+      } finally {
+        closed = true;
+        buffer = null;
+        pending.clear();
+        out.close();
+      }
+    }
+  }
+
+  private void submitBlock() throws IOException {
+    byte[] block = buffer;
+    int length = count;
+    pending.add(
+        CompletableFuture.supplyAsync(
+            () -> {
+              try {
+                return compressor.compress(block, length);
+              } catch (IOException e) {
+                throw new UncheckedIOException(e);
+              }
+            },
+            executor));
+    buffer = new byte[blockSize];
+    count = 0;
+    while (pending.size() > maxPendingBlocks) {
+      writeNextBlock();
+    }
+    writeCompressedBlocks();
+  }
+
+  /** Writes the blocks at the head of the queue that are already compressed, without waiting. */
+  private void writeCompressedBlocks() throws IOException {
+    while (!pending.isEmpty() && pending.peek().isDone()) {
+      writeNextBlock();
+    }
+  }
+
+  private void writeNextBlock() throws IOException {
+    byte[] compressed;
+    try {
+      compressed = pending.remove().join();
+    } catch (CompletionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof UncheckedIOException) {
+        throw ((UncheckedIOException) cause).getCause();
+      }
+      throw new IOException("Block compression failed", cause);
+    }
+    out.write(compressed);
+  }
+
+  private void ensureOpen() throws IOException {
+    if (closed) {
+      throw new IOException("Stream closed");
+    }
+  }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.dsbulk.io;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An {@link InputStream} that reads its source ahead of its consumer, on a dedicated thread.
+ *
+ * <p>When the source is a decompressing stream, this moves decompression off the consumer's thread:
+ * the consumer parses a block while the next ones are being decompressed. The source is owned by
+ * the background thread, which reads it in blocks and hands them over through a bounded queue; it
+ * is closed by that thread once the end of the stream is reached, an error occurs, or this stream
+ * is closed.
+ */
+class ReadAheadInputStream extends InputStream {
+
+  private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+  private static final byte[] EOF = new byte[0];
+
+  private final BlockingQueue<Object> queue;
+  private final Thread producer;
+
+  private byte[] current;
+  private int position;
+  private volatile boolean closed;
+
+  /**
+   * Creates a new stream and starts reading the source.
+   *
+   * @param in the source to read ahead.
+   * @param blockSize the size of the blocks read from the source, in bytes.
+   * @param maxBlocks the maximum number of blocks read ahead.
+   */
+  ReadAheadInputStream(@NonNull InputStream in, int blockSize, int maxBlocks) {
+    if (blockSize <= 0) {
+      throw new IllegalArgumentException("blockSize must be strictly positive");
+    }
+    if (maxBlocks <= 0) {
+      throw new IllegalArgumentException("maxBlocks must be strictly positive");
+    }
+    queue = new ArrayBlockingQueue<>(maxBlocks);
+    producer =
+        new Thread(() -> produce(in, blockSize), "read-ahead-" + THREAD_COUNTER.getAndIncrement());
+    producer.setDaemon(true);
+    producer.start();
+  }
+
+  @Override
+  public int read() throws IOException {
+    if (!nextBlock()) {
+      return -1;
+    }
+    return current[position++] & 0xFF;
+  }
+
+  @Override
+  public int read(@NonNull byte[] b, int off, int len) throws IOException {
+    if (len == 0) {
+      return 0;
+    }
+    if (!nextBlock()) {
+      return -1;
+    }
+    int n = Math.min(len, current.length - position);
+    System.arraycopy(current, position, b, off, n);
+    position += n;
+    return n;
+  }
+
+  @Override
+  public int available() throws IOException {
+    ensureOpen();
+    return current == null || current == EOF ? 0 : current.length - position;
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (!closed) {
+      closed = true;
+      producer.interrupt();
+      queue.clear();
+      try {
+        producer.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /** @return true if the current block has remaining bytes, false if the end was reached. */
+  private boolean nextBlock() throws IOException {
+    ensureOpen();
+    while (current != EOF && (current == null || position == current.length)) {
+      Object next;
+      try {
+        next = queue.take();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException();
+      }
+      if (next instanceof Throwable) {
+        current = EOF;
+        if (next instanceof RuntimeException) {
+          throw (RuntimeException) next;
+        }
+        if (next instanceof Error) {
+          throw (Error) next;
+        }
+        throw new IOException("Read-ahead failed", (Throwable) next);
+      }
+      current = (byte[]) next;
+      position = 0;
+    }
+    return current != EOF;
+  }
+
+  private void produce(InputStream in, int blockSize) {
+    try (InputStream source = in) {
+      while (!closed) {
+        byte[] block = new byte[blockSize];
+        int length = 0;
+        int n;
+        while (length < blockSize && (n = source.read(block, length, blockSize - length)) != -1) {
+          length += n;
+        }
+        if (length > 0) {
+          queue.put(length == blockSize ? block : Arrays.copyOf(block, length));
+        }
+        if (length < blockSize) {
+          queue.put(EOF);
+          return;
+        }
+      }
+    } catch (InterruptedException e) {
+      // this stream was closed
+    } catch (Throwable t) {
+      // errors too must reach the consumer, which would otherwise wait forever
+      if (!closed) {
+        try {
+          queue.put(t);
+        } catch (InterruptedException ignored) {
+          // this stream was closed
+        }
+      }
+    }
+  }
+
+  private void ensureOpen() throws IOException {
+    if (closed) {
+      throw new IOException("Stream closed");
+    }
+  }
+}
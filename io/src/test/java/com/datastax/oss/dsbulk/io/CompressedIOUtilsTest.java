@@ -21,19 +21,26 @@ import static org.junit.jupiter.params.provider.Arguments.arguments;
 
 import com.datastax.oss.driver.shaded.guava.common.base.Charsets;
 import java.io.BufferedWriter;
+import java.io.DataInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.LineNumberReader;
+import java.io.OutputStream;
 import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
 
 class CompressedIOUtilsTest {
 
@@ -136,6 +143,45 @@ class CompressedIOUtilsTest {
         arguments("test.zstd", CompressedIOUtils.ZSTD_COMPRESSION));
   }
 
+  @ParameterizedTest(name = "[{index}] Should read file {0} with compression {1} ahead")
+  @MethodSource("should_read_compressed_file")
+  @DisplayName("Should read compressed file ahead")
+  void should_read_compressed_file_ahead(String filename, String compression) throws IOException {
+    URL url = getClass().getResource("/compression/" + filename);
+    try (LineNumberReader reader =
+        new LineNumberReader(
+            CompressedIOUtils.newBufferedReader(url, Charsets.UTF_8, compression, true))) {
+      assertThat(reader.lines()).containsExactly("this is", "a", "test file");
+    }
+  }
+
+  @Test
+  void should_propagate_read_ahead_error() {
+    InputStream failing =
+        new InputStream() {
+          @Override
+          public int read() throws IOException {
+            throw new IOException("boom");
+          }
+
+          @Override
+          public int read(byte[] b, int off, int len) throws IOException {
+            throw new IOException("boom");
+          }
+        };
+    Throwable error =
+        catchThrowable(
+            () -> {
+              try (InputStream in = new ReadAheadInputStream(failing, 16, 2)) {
+                in.read();
+              }
+            });
+    assertThat(error)
+        .isInstanceOf(IOException.class)
+        .hasMessage("Read-ahead failed")
+        .hasRootCauseMessage("boom");
+  }
+
   @ParameterizedTest(
       name = "[{index}] Should throw exception when reading {0} with compression {1}")
   @MethodSource
@@ -176,6 +222,81 @@ class CompressedIOUtilsTest {
         arguments("deflate"));
   }
 
+  @ParameterizedTest(name = "[{index}] Should write file with compression {0} in parallel")
+  @ValueSource(strings = {"gzip", "zstd"})
+  void should_write_compressed_file_in_parallel(String compression) throws Exception {
+    Path path =
+        Files.createTempFile(
+            "dsbulk-", "-compress" + CompressedIOUtils.getCompressionSuffix(compression));
+    Files.delete(path);
+    URL url = path.toUri().toURL();
+    List<String> expected =
+        IntStream.range(0, 10_000).mapToObj(i -> "line " + i).collect(Collectors.toList());
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      assertThat(CompressedIOUtils.isParallelCompressionSupported(compression)).isTrue();
+      // small blocks: the file will be made of many independent gzip members / zstd frames
+      try (BufferedWriter writer =
+          CompressedIOUtils.newBufferedWriter(
+              url, Charsets.UTF_8, compression, executor, 4096, 4)) {
+        for (String line : expected) {
+          writer.write(line);
+          writer.newLine();
+        }
+      }
+      for (boolean readAhead : new boolean[] {false, true}) {
+        try (LineNumberReader reader =
+            new LineNumberReader(
+                CompressedIOUtils.newBufferedReader(url, Charsets.UTF_8, compression, readAhead))) {
+          assertThat(reader.lines()).containsExactlyElementsOf(expected);
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+      Files.deleteIfExists(path);
+    }
+  }
+
+  @ParameterizedTest(name = "[{index}] Should write and read binary stream with compression {0}")
+  @ValueSource(strings = {"none", "gzip", "zstd", "lz4"})
+  void should_write_and_read_binary_stream(String compression) throws Exception {
+    Path path =
+        Files.createTempFile(
+            "dsbulk-", "-compress" + CompressedIOUtils.getCompressionSuffix(compression));
+    Files.delete(path);
+    URL url = path.toUri().toURL();
+    byte[] expected = new byte[100_000];
+    for (int i = 0; i < expected.length; i++) {
+      expected[i] = (byte) (i % 251);
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      try (OutputStream out =
+          CompressedIOUtils.newBufferedOutputStream(url, compression, executor, 4096, 2)) {
+        out.write(expected);
+      }
+      for (boolean readAhead : new boolean[] {false, true}) {
+        try (InputStream in =
+            CompressedIOUtils.newBufferedInputStream(url, compression, readAhead)) {
+          byte[] actual = new byte[expected.length];
+          new DataInputStream(in).readFully(actual);
+          assertThat(actual).isEqualTo(expected);
+          assertThat(in.read()).isEqualTo(-1);
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+      Files.deleteIfExists(path);
+    }
+  }
+
+  @Test
+  void should_not_support_parallel_compression() {
+    assertThat(CompressedIOUtils.isParallelCompressionSupported("xz")).isFalse();
+    assertThat(CompressedIOUtils.isParallelCompressionSupported("none")).isFalse();
+    assertThat(CompressedIOUtils.isParallelCompressionSupported(null)).isFalse();
+  }
+
   @ParameterizedTest(
       name = "[{index}] Should throw exception when writing {0} with compression {1}")
   @MethodSource
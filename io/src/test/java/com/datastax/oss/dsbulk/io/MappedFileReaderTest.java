@@ -0,0 +1,132 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.dsbulk.io;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class MappedFileReaderTest {
+
+  private static final String CONTENTS;
+
+  static {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 1000; i++) {
+      // 1, 2, 3 and 4-byte characters in UTF-8
+      sb.append("a,\u00e9;\u20ac\ud83d\ude00\n");
+    }
+    CONTENTS = sb.toString();
+  }
+
+  private Path file;
+
+  @BeforeEach
+  void createFile() throws IOException {
+    file = Files.createTempFile("test", ".csv");
+    Files.write(file, CONTENTS.getBytes(UTF_8));
+  }
+
+  @AfterEach
+  void deleteFile() throws IOException {
+    Files.delete(file);
+  }
+
+  @ParameterizedTest
+  @ValueSource(longs = {7, 64, 1000, MappedFileReader.DEFAULT_WINDOW_SIZE})
+  void should_decode_characters_spanning_windows(long windowSize) throws IOException {
+    long size = Files.size(file);
+    try (Reader reader = new MappedFileReader(file, 0, size, UTF_8, windowSize)) {
+      assertThat(readFully(reader, 5)).isEqualTo(CONTENTS);
+    }
+    try (Reader reader = new MappedFileReader(file, 0, size, UTF_8, windowSize)) {
+      assertThat(readFully(reader, 8192)).isEqualTo(CONTENTS);
+    }
+    try (Reader reader = new MappedFileReader(file, 0, size, UTF_8, windowSize)) {
+      assertThat(readFully(reader, 1)).isEqualTo(CONTENTS);
+    }
+  }
+
+  @ParameterizedTest
+  @ValueSource(longs = {7, MappedFileReader.DEFAULT_WINDOW_SIZE})
+  void should_read_range(long windowSize) throws IOException {
+    int lineLength = "a,\u00e9;\u20ac\ud83d\ude00\n".getBytes(UTF_8).length;
+    try (Reader reader =
+        new MappedFileReader(file, lineLength, 3L * lineLength, UTF_8, windowSize)) {
+      assertThat(readFully(reader, 3))
+          .isEqualTo("a,\u00e9;\u20ac\ud83d\ude00\na,\u00e9;\u20ac\ud83d\ude00\n");
+    }
+    try (Reader reader = new MappedFileReader(file, lineLength, lineLength, UTF_8, windowSize)) {
+      assertThat(reader.read()).isEqualTo(-1);
+    }
+  }
+
+  @ParameterizedTest
+  @ValueSource(longs = {7, MappedFileReader.DEFAULT_WINDOW_SIZE})
+  void should_replace_truncated_character(long windowSize) throws IOException {
+    // the range ends in the middle of the 4-byte character
+    int end = "a,\u00e9;\u20ac".getBytes(UTF_8).length + 2;
+    // should behave like InputStreamReader
+    String expected = new String(CONTENTS.getBytes(UTF_8), 0, end, UTF_8);
+    assertThat(expected).endsWith("\ufffd");
+    try (Reader reader = new MappedFileReader(file, 0, end, UTF_8, windowSize)) {
+      assertThat(readFully(reader, 4)).isEqualTo(expected);
+    }
+  }
+
+  @ParameterizedTest
+  @ValueSource(longs = {7, MappedFileReader.DEFAULT_WINDOW_SIZE})
+  void should_fail_when_closed(long windowSize) throws IOException {
+    Reader reader = new MappedFileReader(file, 0, Files.size(file), UTF_8, windowSize);
+    reader.close();
+    assertThatThrownBy(reader::read).isInstanceOf(IOException.class).hasMessage("Stream closed");
+  }
+
+  @ParameterizedTest
+  @ValueSource(longs = {7, MappedFileReader.DEFAULT_WINDOW_SIZE})
+  void should_unmap_windows(long windowSize) throws IOException {
+    Path maps = Paths.get("/proc/self/maps");
+    assumeTrue(Files.isReadable(maps), "requires /proc/self/maps");
+    String path = file.toRealPath().toString();
+    Reader reader = new MappedFileReader(file, 0, Files.size(file), UTF_8, windowSize);
+    assertThat(readFully(reader, 5)).isEqualTo(CONTENTS);
+    // only the current window is still mapped
+    assertThat(Files.readAllLines(maps)).filteredOn(line -> line.endsWith(path)).hasSize(1);
+    reader.close();
+    assertThat(Files.readAllLines(maps)).noneMatch(line -> line.endsWith(path));
+  }
+
+  private static String readFully(Reader reader, int bufferSize) throws IOException {
+    StringBuilder sb = new StringBuilder();
+    char[] buffer = new char[bufferSize];
+    int read;
+    while ((read = reader.read(buffer)) != -1) {
+      sb.append(buffer, 0, read);
+    }
+    return sb.toString();
+  }
+}
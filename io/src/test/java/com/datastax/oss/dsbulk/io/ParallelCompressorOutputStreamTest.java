@@ -0,0 +1,87 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.dsbulk.io;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ParallelCompressorOutputStreamTest {
+
+  private ExecutorService executor;
+
+  @BeforeEach
+  void createExecutor() {
+    executor = Executors.newFixedThreadPool(4);
+  }
+
+  @AfterEach
+  void shutdownExecutor() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  void should_only_cut_full_blocks_when_flushed() throws Exception {
+    List<Integer> blockLengths = new CopyOnWriteArrayList<>();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ParallelCompressorOutputStream stream =
+        new ParallelCompressorOutputStream(
+            out,
+            (block, length) -> {
+              blockLengths.add(length);
+              return Arrays.copyOf(block, length);
+            },
+            executor,
+            100,
+            4);
+    StringBuilder expected = new StringBuilder();
+    for (int i = 0; i < 1000; i++) {
+      String line = "line " + i + "\n";
+      expected.append(line);
+      stream.write(line.getBytes(UTF_8));
+      // as done by connectors after each record
+      stream.flush();
+    }
+    stream.close();
+    int total = expected.length();
+    assertThat(blockLengths).hasSize((total + 99) / 100);
+    assertThat(blockLengths.subList(0, blockLengths.size() - 1)).containsOnly(100);
+    assertThat(new String(out.toByteArray(), UTF_8)).isEqualTo(expected.toString());
+  }
+
+  @Test
+  void should_write_compressed_blocks_when_flushed() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ParallelCompressorOutputStream stream =
+        new ParallelCompressorOutputStream(
+            out, (block, length) -> Arrays.copyOf(block, length), Runnable::run, 10, 4);
+    stream.write(new byte[25]);
+    stream.flush();
+    // the two full blocks were compressed synchronously; the last 5 bytes are still buffered
+    assertThat(out.size()).isEqualTo(20);
+    stream.close();
+    assertThat(out.size()).isEqualTo(25);
+  }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.dsbulk.io;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+
+class ReadAheadInputStreamTest {
+
+  @Test
+  void should_read_source_ahead() throws IOException {
+    byte[] expected = new byte[10_000];
+    for (int i = 0; i < expected.length; i++) {
+      expected[i] = (byte) i;
+    }
+    try (InputStream in = new ReadAheadInputStream(new ByteArrayInputStream(expected), 64, 2)) {
+      byte[] actual = new byte[expected.length];
+      new DataInputStream(in).readFully(actual);
+      assertThat(actual).isEqualTo(expected);
+      assertThat(in.read()).isEqualTo(-1);
+    }
+  }
+
+  @Test
+  void should_report_source_IOException() {
+    assertTimeoutPreemptively(
+        Duration.ofSeconds(10),
+        () -> {
+          IOException error = new IOException("boom");
+          try (InputStream in = new ReadAheadInputStream(new FailingInputStream(error), 64, 2)) {
+            assertThatThrownBy(in::read)
+                .isInstanceOf(IOException.class)
+                .hasMessage("Read-ahead failed")
+                .hasCause(error);
+          }
+        });
+  }
+
+  @Test
+  void should_report_source_Error() {
+    assertTimeoutPreemptively(
+        Duration.ofSeconds(10),
+        () -> {
+          Error error = new StackOverflowError("boom");
+          try (InputStream in = new ReadAheadInputStream(new FailingInputStream(error), 64, 2)) {
+            assertThatThrownBy(in::read).isSameAs(error);
+          }
+        });
+  }
+
+  private static class FailingInputStream extends InputStream {
+
+    private final Throwable error;
+
+    private FailingInputStream(Throwable error) {
+      this.error = error;
+    }
+
+    @Override
+    public int read() throws IOException {
+      return read(new byte[1], 0, 1);
+    }
+
+    @Override
+    public int read(@NonNull byte[] b, int off, int len) throws IOException {
+      if (error instanceof IOException) {
+        throw (IOException) error;
+      }
+      throw (Error) error;
+    }
+  }
+}
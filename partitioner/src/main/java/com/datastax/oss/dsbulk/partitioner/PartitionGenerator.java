@@ -22,8 +22,12 @@ import com.datastax.oss.driver.api.core.metadata.TokenMap;
 import com.datastax.oss.driver.api.core.metadata.token.TokenRange;
 import edu.umd.cs.findbugs.annotations.NonNull;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.ToDoubleFunction;
 import java.util.stream.Collectors;
 
 public class PartitionGenerator {
@@ -46,14 +50,51 @@ public class PartitionGenerator {
    */
   @NonNull
   public List<BulkTokenRange> partition(int splitCount) {
+    return partition(splitCount, BulkTokenRange::fraction);
+  }
+
+  /**
+   * Partitions the entire ring into approximately {@code splitCount} splits containing
+   * approximately the same amount of data, according to the given size estimates.
+   *
+   * <p>Ranges holding more data than others are split into more, smaller splits, so that they do
+   * not dominate the duration of an operation reading the splits in parallel. Splits are returned
+   * from the largest to the smallest, so that the largest ones can be read first. If no size
+   * estimates are available, this method behaves like {@link #partition(int)}.
+   *
+   * @param splitCount The desired number of splits.
+   * @param sizeEstimates The estimated sizes of (possibly different) token ranges, in bytes, e.g.
+   *     as reported by {@link SizeEstimates#read}.
+   */
+  @NonNull
+  public List<BulkTokenRange> partition(
+      int splitCount, @NonNull Map<? extends TokenRange, Long> sizeEstimates) {
+    TokenRangeSizeEstimator estimator = new TokenRangeSizeEstimator(tokenFactory, sizeEstimates);
+    double totalSize = estimator.totalSize();
+    if (splitCount == 1 || totalSize <= 0) {
+      return partition(splitCount);
+    }
+    List<BulkTokenRange> groups =
+        partition(splitCount, range -> estimator.estimate(range) / totalSize);
+    Map<BulkTokenRange, Double> sizes = new IdentityHashMap<>();
+    for (BulkTokenRange group : groups) {
+      sizes.put(group, estimator.estimate(group));
+    }
+    groups.sort(Comparator.comparingDouble((BulkTokenRange group) -> sizes.get(group)).reversed());
+    return groups;
+  }
+
+  @NonNull
+  private List<BulkTokenRange> partition(
+      int splitCount, @NonNull ToDoubleFunction<? super BulkTokenRange> weigher) {
     List<BulkTokenRange> tokenRanges = describeRing(splitCount);
     int endpointCount = (int) tokenRanges.stream().map(BulkTokenRange::replicas).distinct().count();
     int maxGroupSize = tokenRanges.size() / endpointCount;
     TokenRangeSplitter splitter = tokenFactory.splitter();
-    List<BulkTokenRange> splits = splitter.split(tokenRanges, splitCount);
+    List<BulkTokenRange> splits = splitter.split(tokenRanges, splitCount, weigher);
     checkRing(splits);
     TokenRangeClusterer clusterer = tokenFactory.clusterer();
-    List<BulkTokenRange> groups = clusterer.group(splits, splitCount, maxGroupSize);
+    List<BulkTokenRange> groups = clusterer.group(splits, splitCount, maxGroupSize, weigher);
     checkRing(groups);
     return groups;
   }
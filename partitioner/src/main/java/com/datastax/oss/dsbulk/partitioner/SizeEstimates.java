@@ -0,0 +1,92 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.dsbulk.partitioner;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.datastax.oss.driver.api.core.cql.SimpleStatement;
+import com.datastax.oss.driver.api.core.metadata.Node;
+import com.datastax.oss.driver.api.core.metadata.NodeState;
+import com.datastax.oss.driver.api.core.metadata.TokenMap;
+import com.datastax.oss.driver.api.core.metadata.schema.RelationMetadata;
+import com.datastax.oss.driver.api.core.metadata.token.Token;
+import com.datastax.oss.driver.api.core.metadata.token.TokenRange;
+import com.datastax.oss.driver.shaded.guava.common.collect.ImmutableMap;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** Reads the table size estimates that each node maintains in {@code system.size_estimates}. */
+public class SizeEstimates {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(SizeEstimates.class);
+
+  private static final String QUERY =
+      "SELECT range_start, range_end, partitions_count, mean_partition_size "
+          + "FROM system.size_estimates WHERE keyspace_name = ? AND table_name = ?";
+
+  /**
+   * Reads the size estimates of the given table from all the nodes that are up.
+   *
+   * <p>Each node only reports the ranges it owns; when several replicas report the same range, the
+   * highest estimate is retained. Nodes that cannot be queried are ignored. Note that estimates are
+   * periodically refreshed by each node, and can be stale or missing for recently written tables.
+   *
+   * @param session the session to use.
+   * @param table the table whose size estimates should be read.
+   * @return the estimated size of each range, in bytes; empty if no estimates could be read.
+   */
+  @NonNull
+  public static Map<TokenRange, Long> read(
+      @NonNull CqlSession session, @NonNull RelationMetadata table) {
+    Optional<TokenMap> maybeTokenMap = session.getMetadata().getTokenMap();
+    if (!maybeTokenMap.isPresent()) {
+      return ImmutableMap.of();
+    }
+    TokenMap tokenMap = maybeTokenMap.get();
+    Map<TokenRange, Long> estimates = new HashMap<>();
+    for (Node node : session.getMetadata().getNodes().values()) {
+      if (node.getState() != NodeState.UP) {
+        continue;
+      }
+      SimpleStatement statement =
+          SimpleStatement.newInstance(
+                  QUERY, table.getKeyspace().asInternal(), table.getName().asInternal())
+              .setNode(node);
+      try {
+        for (Row row : session.execute(statement)) {
+          Token start = tokenMap.parse(row.getString("range_start"));
+          Token end = tokenMap.parse(row.getString("range_end"));
+          long size = row.getLong("partitions_count") * row.getLong("mean_partition_size");
+          estimates.merge(tokenMap.newTokenRange(start, end), size, Math::max);
+        }
+      } catch (RuntimeException e) {
+        LOGGER.debug(String.format("Could not read size estimates from %s", node), e);
+      }
+    }
+    LOGGER.debug(
+        "Read {} size estimates for {}.{}",
+        estimates.size(),
+        table.getKeyspace().asCql(true),
+        table.getName().asCql(true));
+    return ImmutableMap.copyOf(estimates);
+  }
+
+  private SizeEstimates() {}
+}
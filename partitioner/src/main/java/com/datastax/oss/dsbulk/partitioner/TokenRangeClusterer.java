@@ -23,6 +23,7 @@ import edu.umd.cs.findbugs.annotations.NonNull;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.function.ToDoubleFunction;
 
 /**
  * Groups small, contiguous token ranges sharing the same replicas in order to reduce the total
@@ -49,6 +50,26 @@ public class TokenRangeClusterer {
    */
   @NonNull
   public List<BulkTokenRange> group(List<BulkTokenRange> ranges, int groupCount, int maxGroupSize) {
+    return group(ranges, groupCount, maxGroupSize, BulkTokenRange::fraction);
+  }
+
+  /**
+   * Groups contiguous ranges together as long as they are contiguous, share the same replicas, and
+   * the weight of the resulting group does not exceed the weight of one group.
+   *
+   * @param ranges The ranges to group.
+   * @param groupCount The desired number of groups.
+   * @param maxGroupSize The maximum number of ranges in a group.
+   * @param weigher The function returning the weight of a range, as a fraction of the total weight
+   *     of the ring.
+   * @see #group(List, int, int)
+   */
+  @NonNull
+  public List<BulkTokenRange> group(
+      List<BulkTokenRange> ranges,
+      int groupCount,
+      int maxGroupSize,
+      @NonNull ToDoubleFunction<? super BulkTokenRange> weigher) {
     double ringFractionPerGroup = 1.0d / groupCount;
     LinkedList<BulkTokenRange> sorted = Lists.newLinkedList(ranges);
     sorted.sort(
@@ -67,13 +88,13 @@ public class TokenRangeClusterer {
       double ringFractionLimit =
           Math.max(
               ringFractionPerGroup,
-              head.fraction()); // make sure first element will be always included
+              weigher.applyAsDouble(head)); // make sure first element will be always included
       double cumulativeRingFraction = 0;
       Token end = head.getStart();
       for (int i = 0; i < Math.max(1, maxGroupSize) && !sorted.isEmpty(); i++) {
         BulkTokenRange current = sorted.peek();
         assert current != null;
-        cumulativeRingFraction += current.fraction();
+        cumulativeRingFraction += weigher.applyAsDouble(current);
         // keep grouping ranges as long as they share the same replicas and the resulting
         // range is contiguous.
         if (cumulativeRingFraction > ringFractionLimit
@@ -27,7 +27,9 @@ import com.datastax.oss.driver.api.core.metadata.token.TokenRange;
 import com.datastax.oss.driver.internal.core.metadata.token.DefaultTokenMap;
 import edu.umd.cs.findbugs.annotations.NonNull;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -95,12 +97,36 @@ public class TokenRangeReadStatementGenerator {
   @NonNull
   public List<Statement<?>> generate(
       int splitCount, @NonNull Function<TokenRange, Statement<?>> statementFactory) {
+    return generate(splitCount, statementFactory, Collections.emptyMap());
+  }
+
+  /**
+   * Generates SELECT statements to read the entire table, with a minimum of {@code splitCount}
+   * statements, using the given factory to generate statements, and splitting the ring according to
+   * the given size estimates.
+   *
+   * <p>When size estimates are available, token ranges holding more data are split into more
+   * statements, and statements are returned from the one reading the largest range to the one
+   * reading the smallest; see {@link PartitionGenerator#partition(int, Map)}.
+   *
+   * @param splitCount The minimum desired number of statements to generate (on a best-effort
+   *     basis).
+   * @param statementFactory The factory to use to generate statements for each split.
+   * @param sizeEstimates The estimated sizes of token ranges, in bytes, e.g. as reported by {@link
+   *     SizeEstimates#read}; can be empty.
+   * @return A list of SELECT statements to read the entire table.
+   */
+  @NonNull
+  public List<Statement<?>> generate(
+      int splitCount,
+      @NonNull Function<TokenRange, Statement<?>> statementFactory,
+      @NonNull Map<? extends TokenRange, Long> sizeEstimates) {
     BulkTokenFactory tokenFactory =
         BulkTokenFactory.forPartitioner(
             ((DefaultTokenMap) tokenMap).getTokenFactory().getPartitionerName());
     PartitionGenerator generator =
         new PartitionGenerator(table.getKeyspace(), tokenMap, tokenFactory);
-    List<BulkTokenRange> partitions = generator.partition(splitCount);
+    List<BulkTokenRange> partitions = generator.partition(splitCount, sizeEstimates);
     List<Statement<?>> statements = new ArrayList<>();
     for (TokenRange range : partitions) {
       Statement<?> stmt = statementFactory.apply(range);
@@ -0,0 +1,172 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.dsbulk.partitioner;
+
+import com.datastax.oss.driver.api.core.metadata.token.Token;
+import com.datastax.oss.driver.api.core.metadata.token.TokenRange;
+import com.datastax.oss.driver.shaded.guava.common.collect.ImmutableList;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Estimates the amount of data contained in arbitrary token ranges, from the estimated sizes of a
+ * set of (possibly different) token ranges.
+ *
+ * <p>Data is assumed to be evenly distributed inside each estimated range. Token ranges are mapped
+ * to intervals of ring fractions, so that overlaps can be computed with simple arithmetic; parts of
+ * the ring that are not covered by any estimate are assumed to have the average data density of the
+ * covered parts.
+ */
+class TokenRangeSizeEstimator {
+
+  private final BulkTokenFactory tokenFactory;
+  private final Token minToken;
+
+  // disjoint segments of the ring, sorted by position
+  private final double[] starts;
+  private final double[] ends;
+  private final double[] densities;
+
+  private final double defaultDensity;
+
+  /**
+   * @param tokenFactory the token factory to use.
+   * @param sizeEstimates the estimated sizes of token ranges, in bytes.
+   */
+  TokenRangeSizeEstimator(
+      @NonNull BulkTokenFactory tokenFactory,
+      @NonNull Map<? extends TokenRange, Long> sizeEstimates) {
+    this.tokenFactory = tokenFactory;
+    this.minToken = tokenFactory.minToken();
+    List<double[]> segments = new ArrayList<>();
+    for (Map.Entry<? extends TokenRange, Long> entry : sizeEstimates.entrySet()) {
+      List<double[]> intervals = intervals(entry.getKey());
+      double length = 0;
+      for (double[] interval : intervals) {
+        length += interval[1] - interval[0];
+      }
+      if (length > 0 && entry.getValue() >= 0) {
+        double density = entry.getValue() / length;
+        for (double[] interval : intervals) {
+          segments.add(new double[] {interval[0], interval[1], density});
+        }
+      }
+    }
+    segments.sort(Comparator.comparingDouble(segment -> segment[0]));
+    List<double[]> disjoint = new ArrayList<>(segments.size());
+    double coveredLength = 0;
+    double coveredSize = 0;
+    double previousEnd = 0;
+    for (double[] segment : segments) {
+      // estimates of overlapping ranges can only come from a topology change: keep the first one
+      double start = Math.max(segment[0], previousEnd);
+      if (start < segment[1]) {
+        disjoint.add(new double[] {start, segment[1], segment[2]});
+        coveredLength += segment[1] - start;
+        coveredSize += (segment[1] - start) * segment[2];
+        previousEnd = segment[1];
+      }
+    }
+    int size = disjoint.size();
+    starts = new double[size];
+    ends = new double[size];
+    densities = new double[size];
+    for (int i = 0; i < size; i++) {
+      starts[i] = disjoint.get(i)[0];
+      ends[i] = disjoint.get(i)[1];
+      densities[i] = disjoint.get(i)[2];
+    }
+    defaultDensity = coveredLength == 0 ? 0 : coveredSize / coveredLength;
+  }
+
+  /** @return the estimated size of the entire ring, in bytes. */
+  double totalSize() {
+    return estimate(tokenFactory.range(minToken, minToken, Collections.emptySet()));
+  }
+
+  /** @return the estimated size of the given range, in bytes. */
+  double estimate(@NonNull TokenRange range) {
+    double size = 0;
+    for (double[] interval : intervals(range)) {
+      double start = interval[0];
+      double end = interval[1];
+      double uncovered = end - start;
+      // the first segment that ends after the interval start
+      int i = firstSegmentEndingAfter(start);
+      for (; i < starts.length && starts[i] < end; i++) {
+        double overlap = Math.min(end, ends[i]) - Math.max(start, starts[i]);
+        if (overlap > 0) {
+          size += overlap * densities[i];
+          uncovered -= overlap;
+        }
+      }
+      size += Math.max(0, uncovered) * defaultDensity;
+    }
+    return size;
+  }
+
+  private int firstSegmentEndingAfter(double position) {
+    int low = 0;
+    int high = ends.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (ends[mid] <= position) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Maps the given range to one or two intervals {@code (start, end]} of ring fractions between 0
+   * and 1.
+   */
+  private List<double[]> intervals(TokenRange range) {
+    if (range.isEmpty()) {
+      return ImmutableList.of();
+    }
+    if (range.isFullRing()) {
+      return ImmutableList.of(new double[] {0, 1});
+    }
+    ImmutableList.Builder<double[]> intervals = ImmutableList.builderWithExpectedSize(2);
+    for (TokenRange r : range.unwrap()) {
+      double start = startPosition(r.getStart());
+      double end = endPosition(r.getEnd());
+      if (start < end) {
+        intervals.add(new double[] {start, end});
+      }
+    }
+    return intervals.build();
+  }
+
+  private double startPosition(Token token) {
+    return token.equals(minToken) ? 0 : position(token);
+  }
+
+  private double endPosition(Token token) {
+    return token.equals(minToken) ? 1 : position(token);
+  }
+
+  private double position(Token token) {
+    return tokenFactory.range(minToken, token, Collections.emptySet()).fraction();
+  }
+}
@@ -25,6 +25,7 @@ import com.datastax.oss.dsbulk.partitioner.TokenRangeClusterer;
 import com.datastax.oss.dsbulk.partitioner.TokenRangeSplitter;
 import edu.umd.cs.findbugs.annotations.NonNull;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.util.Set;
 
 /** A {@link BulkTokenFactory} for the Murmur3 Partitioner. */
@@ -33,6 +34,205 @@ public class Murmur3BulkTokenFactory extends Murmur3TokenFactory implements Bulk
   public static final BigInteger TOTAL_TOKEN_COUNT =
       BigInteger.valueOf(Long.MAX_VALUE).subtract(BigInteger.valueOf(Long.MIN_VALUE));
 
+  private static final ThreadLocal<ByteBuffer> SCRATCH =
+      ThreadLocal.withInitial(() -> ByteBuffer.allocate(256));
+
+  /**
+   * Computes the Murmur3 token of the given partition key, as a primitive long.
+   *
+   * <p>This is equivalent to {@code hash(partitionKey)}, but does not allocate any object. The
+   * buffer's position is not modified.
+   *
+   * @param partitionKey The serialized partition key; for composite partition keys, the composed
+   *     routing key.
+   * @return The token value.
+   */
+  public static long murmur3(@NonNull ByteBuffer partitionKey) {
+    long hash = murmur3(partitionKey, partitionKey.position(), partitionKey.remaining());
+    return hash == Long.MIN_VALUE ? Long.MAX_VALUE : hash;
+  }
+
+  /**
+   * Computes the Murmur3 token of the partition key made of the given components, as a primitive
+   * long.
+   *
+   * <p>This is equivalent to {@code TokenMap.newToken(components)}. Composite keys are composed in
+   * a buffer that is reused by the calling thread, so that no allocation occurs in the steady
+   * state. The buffers' positions are not modified.
+   *
+   * @param components The serialized partition key components.
+   * @return The token value.
+   */
+  public static long murmur3(@NonNull ByteBuffer... components) {
+    if (components.length == 1) {
+      return murmur3(components[0]);
+    }
+    int length = 0;
+    for (ByteBuffer component : components) {
+      length += 2 + component.remaining() + 1;
+    }
+    ByteBuffer composite = SCRATCH.get();
+    if (composite.capacity() < length) {
+      composite = ByteBuffer.allocate(Math.max(length, composite.capacity() * 2));
+      SCRATCH.set(composite);
+    }
+    composite.clear();
+    for (ByteBuffer component : components) {
+      int size = component.remaining();
+      composite.put((byte) ((size >> 8) & 0xFF));
+      composite.put((byte) (size & 0xFF));
+      for (int i = component.position(); i < component.limit(); i++) {
+        composite.put(component.get(i));
+      }
+      composite.put((byte) 0);
+    }
+    composite.flip();
+    return murmur3(composite);
+  }
+
+  // This is an adapted version of the MurmurHash.hash3_x64_128 from Cassandra used
+  // for M3P. Compared to that methods, there's a few inlining of arguments and we
+  // only return the first 64-bits of the result since that's all M3P uses.
+  private static long murmur3(ByteBuffer data, int offset, int length) {
+    int nblocks = length >> 4; // Process as 128-bit blocks.
+
+    long h1 = 0;
+    long h2 = 0;
+
+    long c1 = 0x87c37b91114253d5L;
+    long c2 = 0x4cf5ad432745937fL;
+
+    // ----------
+    // body
+
+    for (int i = 0; i < nblocks; i++) {
+      long k1 = getBlock(data, offset, i * 2);
+      long k2 = getBlock(data, offset, i * 2 + 1);
+
+      k1 *= c1;
+      k1 = Long.rotateLeft(k1, 31);
+      k1 *= c2;
+      h1 ^= k1;
+      h1 = Long.rotateLeft(h1, 27);
+      h1 += h2;
+      h1 = h1 * 5 + 0x52dce729;
+      k2 *= c2;
+      k2 = Long.rotateLeft(k2, 33);
+      k2 *= c1;
+      h2 ^= k2;
+      h2 = Long.rotateLeft(h2, 31);
+      h2 += h1;
+      h2 = h2 * 5 + 0x38495ab5;
+    }
+
+    // ----------
+    // tail
+
+    // Advance offset to the unprocessed tail of the data.
+    offset += nblocks * 16;
+
+    long k1 = 0;
+    long k2 = 0;
+
+    // note: the sign extension of the tail bytes is intentional, and required to produce the same
+    // tokens as Cassandra.
+    switch (length & 15) {
+      case 15:
+        k2 ^= ((long) data.get(offset + 14)) << 48;
+        // fall through
+      case 14:
+        k2 ^= ((long) data.get(offset + 13)) << 40;
+        // fall through
+      case 13:
+        k2 ^= ((long) data.get(offset + 12)) << 32;
+        // fall through
+      case 12:
+        k2 ^= ((long) data.get(offset + 11)) << 24;
+        // fall through
+      case 11:
+        k2 ^= ((long) data.get(offset + 10)) << 16;
+        // fall through
+      case 10:
+        k2 ^= ((long) data.get(offset + 9)) << 8;
+        // fall through
+      case 9:
+        k2 ^= ((long) data.get(offset + 8));
+        k2 *= c2;
+        k2 = Long.rotateLeft(k2, 33);
+        k2 *= c1;
+        h2 ^= k2;
+        // fall through
+      case 8:
+        k1 ^= ((long) data.get(offset + 7)) << 56;
+        // fall through
+      case 7:
+        k1 ^= ((long) data.get(offset + 6)) << 48;
+        // fall through
+      case 6:
+        k1 ^= ((long) data.get(offset + 5)) << 40;
+        // fall through
+      case 5:
+        k1 ^= ((long) data.get(offset + 4)) << 32;
+        // fall through
+      case 4:
+        k1 ^= ((long) data.get(offset + 3)) << 24;
+        // fall through
+      case 3:
+        k1 ^= ((long) data.get(offset + 2)) << 16;
+        // fall through
+      case 2:
+        k1 ^= ((long) data.get(offset + 1)) << 8;
+        // fall through
+      case 1:
+        k1 ^= ((long) data.get(offset));
+        k1 *= c1;
+        k1 = Long.rotateLeft(k1, 31);
+        k1 *= c2;
+        h1 ^= k1;
+        break;
+      default:
+        break;
+    }
+
+    // ----------
+    // finalization
+
+    h1 ^= length;
+    h2 ^= length;
+
+    h1 += h2;
+    h2 += h1;
+
+    h1 = fmix(h1);
+    h2 = fmix(h2);
+
+    h1 += h2;
+
+    return h1;
+  }
+
+  private static long getBlock(ByteBuffer key, int offset, int index) {
+    int i8 = index << 3;
+    int blockOffset = offset + i8;
+    return ((long) key.get(blockOffset) & 0xff)
+        + (((long) key.get(blockOffset + 1) & 0xff) << 8)
+        + (((long) key.get(blockOffset + 2) & 0xff) << 16)
+        + (((long) key.get(blockOffset + 3) & 0xff) << 24)
+        + (((long) key.get(blockOffset + 4) & 0xff) << 32)
+        + (((long) key.get(blockOffset + 5) & 0xff) << 40)
+        + (((long) key.get(blockOffset + 6) & 0xff) << 48)
+        + (((long) key.get(blockOffset + 7) & 0xff) << 56);
+  }
+
+  private static long fmix(long k) {
+    k ^= k >>> 33;
+    k *= 0xff51afd7ed558ccdL;
+    k ^= k >>> 33;
+    k *= 0xc4ceb9fe1a85ec53L;
+    k ^= k >>> 33;
+    return k;
+  }
+
   @NonNull
   @Override
   public BigInteger totalTokenCount() {
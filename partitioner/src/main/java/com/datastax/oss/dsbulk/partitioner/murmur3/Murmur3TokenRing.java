@@ -0,0 +1,157 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.dsbulk.partitioner.murmur3;
+
+import com.datastax.oss.driver.api.core.CqlIdentifier;
+import com.datastax.oss.driver.api.core.metadata.Node;
+import com.datastax.oss.driver.api.core.metadata.TokenMap;
+import com.datastax.oss.driver.api.core.metadata.token.TokenRange;
+import com.datastax.oss.driver.internal.core.metadata.token.Murmur3Token;
+import com.datastax.oss.driver.internal.core.metadata.token.Murmur3TokenFactory;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A snapshot of a Murmur3 token ring, optimized for client-side token routing.
+ *
+ * <p>The ranges of the ring are indexed from 0 to {@link #size()} - 1, in increasing token order;
+ * the distinct replica sets of the ranges, for a given keyspace, are identified by ids from 0 to
+ * {@link #replicaSetCount()} - 1. Locating the range or the replica set of a token is a binary
+ * search in a primitive array, and, combined with {@link Murmur3BulkTokenFactory#murmur3}, does not
+ * allocate any object; range indices and replica set ids can then be used to index arrays.
+ *
+ * <p>Instances of this class are immutable and thread-safe, but do not reflect topology changes
+ * that happen after their creation.
+ */
+public class Murmur3TokenRing {
+
+  /** @return true if the given token map uses the Murmur3 partitioner. */
+  public static boolean isMurmur3(@NonNull TokenMap tokenMap) {
+    return Murmur3TokenFactory.PARTITIONER_NAME.equals(tokenMap.getPartitionerName());
+  }
+
+  /** The end tokens of all ranges, in increasing order. */
+  private final long[] ends;
+
+  private final TokenRange[] ranges;
+  private final int[] replicaSetIds;
+  private final List<Set<Node>> replicaSets;
+
+  /**
+   * Creates a snapshot of the given token map.
+   *
+   * @param tokenMap the token map; must use the Murmur3 partitioner.
+   * @param keyspace the keyspace to compute replica sets for.
+   * @throws IllegalArgumentException if the token map does not use the Murmur3 partitioner.
+   */
+  public Murmur3TokenRing(@NonNull TokenMap tokenMap, @NonNull CqlIdentifier keyspace) {
+    if (!isMurmur3(tokenMap)) {
+      throw new IllegalArgumentException(
+          "Expecting Murmur3 partitioner, got: " + tokenMap.getPartitionerName());
+    }
+    List<TokenRange> sorted = new ArrayList<>(tokenMap.getTokenRanges());
+    sorted.sort(Comparator.comparing(TokenRange::getEnd));
+    int size = sorted.size();
+    ends = new long[size];
+    ranges = new TokenRange[size];
+    replicaSetIds = new int[size];
+    replicaSets = new ArrayList<>();
+    Map<Set<Node>, Integer> ids = new HashMap<>();
+    for (int i = 0; i < size; i++) {
+      TokenRange range = sorted.get(i);
+      ends[i] = ((Murmur3Token) range.getEnd()).getValue();
+      ranges[i] = range;
+      Set<Node> replicas = tokenMap.getReplicas(keyspace, range);
+      Integer id = ids.get(replicas);
+      if (id == null) {
+        id = replicaSets.size();
+        ids.put(replicas, id);
+        replicaSets.add(replicas);
+      }
+      replicaSetIds[i] = id;
+    }
+  }
+
+  /** @return the number of ranges in the ring. */
+  public int size() {
+    return ranges.length;
+  }
+
+  /** @return the number of distinct replica sets in the ring. */
+  public int replicaSetCount() {
+    return replicaSets.size();
+  }
+
+  /**
+   * Locates the range containing the given token.
+   *
+   * @param token the token value.
+   * @return the index of the range containing the token.
+   */
+  public int rangeIndex(long token) {
+    // ranges are start-exclusive and end-inclusive: look for the first range ending at or after
+    // the token; tokens greater than the last end token belong to the wrapping range.
+    int i = Arrays.binarySearch(ends, token);
+    if (i < 0) {
+      i = -i - 1;
+      if (i >= ends.length) {
+        i = 0;
+      }
+    }
+    return i;
+  }
+
+  /**
+   * Locates the range containing the token of the given partition key.
+   *
+   * @param partitionKey the serialized partition key; for composite partition keys, the composed
+   *     routing key.
+   * @return the index of the range containing the partition key's token.
+   */
+  public int rangeIndex(@NonNull ByteBuffer partitionKey) {
+    return rangeIndex(Murmur3BulkTokenFactory.murmur3(partitionKey));
+  }
+
+  /** @return the range at the given index. */
+  @NonNull
+  public TokenRange getRange(int rangeIndex) {
+    return ranges[rangeIndex];
+  }
+
+  /** @return the id of the replica set of the range at the given index. */
+  public int replicaSetId(int rangeIndex) {
+    return replicaSetIds[rangeIndex];
+  }
+
+  /** @return the replicas of the range at the given index. */
+  @NonNull
+  public Set<Node> getReplicas(int rangeIndex) {
+    return replicaSets.get(replicaSetIds[rangeIndex]);
+  }
+
+  /** @return the replica set with the given id. */
+  @NonNull
+  public Set<Node> getReplicaSet(int replicaSetId) {
+    return replicaSets.get(replicaSetId);
+  }
+}
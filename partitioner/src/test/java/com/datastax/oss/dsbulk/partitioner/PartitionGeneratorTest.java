@@ -31,8 +31,11 @@ import com.datastax.oss.driver.api.core.metadata.TokenMap;
 import com.datastax.oss.driver.api.core.metadata.schema.KeyspaceMetadata;
 import com.datastax.oss.driver.api.core.metadata.token.TokenRange;
 import com.datastax.oss.driver.internal.core.metadata.DefaultEndPoint;
+import com.datastax.oss.driver.shaded.guava.common.collect.ImmutableMap;
 import com.datastax.oss.dsbulk.partitioner.murmur3.Murmur3BulkTokenFactory;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -281,6 +284,58 @@ class PartitionGeneratorTest {
         .isEqualTo(1d, offset(.000000001));
   }
 
+  @Test
+  void should_split_single_dc_by_size_estimates() {
+
+    given(tokenMap.getTokenRanges()).willReturn(singleDCRanges);
+
+    PartitionGenerator generator =
+        new PartitionGenerator(keyspace.getName(), tokenMap, tokenFactory);
+    Map<TokenRange, Long> sizeEstimates =
+        ImmutableMap.of(rangeS1, 600L, rangeS2, 200L, rangeS3, 100L);
+    List<BulkTokenRange> splits = generator.partition(3, sizeEstimates);
+
+    assertThat(splits.size()).isEqualTo(4);
+
+    // range S1 -> 2 splits of 300 bytes, largest first
+    assertThat(splits.get(0))
+        .startsWith(-9223372036854775808L)
+        .hasReplicas(host1)
+        .hasFraction(0.16666666666666666d, offset(.000000001d));
+    assertThat(splits.get(1))
+        .endsWith(-3074457345618258603L)
+        .hasReplicas(host1)
+        .hasFraction(0.16666666666666666d, offset(.000000001d));
+    // range S2 -> 1 split of 200 bytes
+    assertThat(splits.get(2))
+        .startsWith(-3074457345618258603L)
+        .endsWith(3074457345618258602L)
+        .hasReplicas(host2);
+    // range S3 -> 1 split of 100 bytes
+    assertThat(splits.get(3))
+        .startsWith(3074457345618258602L)
+        .endsWith(-9223372036854775808L)
+        .hasReplicas(host3);
+
+    assertThat(splits.stream().map(BulkTokenRange::fraction).reduce(0d, Double::sum))
+        .isEqualTo(1d, offset(.000000001));
+  }
+
+  @Test
+  void should_split_by_ring_fraction_when_size_estimates_are_missing_or_uniform() {
+
+    given(tokenMap.getTokenRanges()).willReturn(singleDCRanges);
+
+    PartitionGenerator generator =
+        new PartitionGenerator(keyspace.getName(), tokenMap, tokenFactory);
+    List<BulkTokenRange> expected = generator.partition(9);
+
+    assertThat(generator.partition(9, Collections.emptyMap())).isEqualTo(expected);
+    // uncovered ranges are assumed to have the same density as covered ones
+    assertThat(generator.partition(9, ImmutableMap.of(rangeS1, 600L)))
+        .containsExactlyInAnyOrderElementsOf(expected);
+  }
+
   private TokenRange range(long start, long end) {
     return newTokenRange(newToken(start), newToken(end));
   }
@@ -0,0 +1,142 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.dsbulk.partitioner;
+
+import static com.datastax.oss.dsbulk.tests.driver.DriverUtils.newToken;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import com.datastax.oss.driver.api.core.metadata.token.TokenRange;
+import com.datastax.oss.dsbulk.partitioner.murmur3.Murmur3BulkTokenFactory;
+import com.datastax.oss.dsbulk.partitioner.murmur3.Murmur3BulkTokenRange;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.assertj.core.data.Offset;
+import org.junit.jupiter.api.Test;
+
+class TokenRangeSizeEstimatorTest {
+
+  private static final long MIN = Long.MIN_VALUE;
+
+  // an eighth of the ring
+  private static final long EIGHTH = 1L << 61;
+
+  private static final Offset<Double> PRECISION = within(0.001);
+
+  private final Murmur3BulkTokenFactory tokenFactory = new Murmur3BulkTokenFactory();
+
+  @Test
+  void should_estimate_zero_when_size_estimates_missing() {
+    // given
+    TokenRangeSizeEstimator estimator =
+        new TokenRangeSizeEstimator(tokenFactory, Collections.emptyMap());
+    // then
+    assertThat(estimator.totalSize()).isZero();
+    assertThat(estimator.estimate(range(0, EIGHTH))).isZero();
+    assertThat(estimator.estimate(range(EIGHTH, -EIGHTH))).isZero();
+  }
+
+  @Test
+  void should_ignore_empty_and_negative_size_estimates() {
+    // given
+    Map<TokenRange, Long> sizeEstimates = new LinkedHashMap<>();
+    sizeEstimates.put(range(0, 0), 1000L);
+    sizeEstimates.put(range(0, EIGHTH), -1L);
+    TokenRangeSizeEstimator estimator = new TokenRangeSizeEstimator(tokenFactory, sizeEstimates);
+    // then
+    assertThat(estimator.totalSize()).isZero();
+    assertThat(estimator.estimate(range(0, EIGHTH))).isZero();
+  }
+
+  @Test
+  void should_estimate_ranges_matching_size_estimates() {
+    // given
+    TokenRangeSizeEstimator estimator = new TokenRangeSizeEstimator(tokenFactory, quarters());
+    // then
+    assertThat(estimator.totalSize()).isCloseTo(1000, PRECISION);
+    assertThat(estimator.estimate(range(MIN, -2 * EIGHTH))).isCloseTo(100, PRECISION);
+    assertThat(estimator.estimate(range(-2 * EIGHTH, 0))).isCloseTo(200, PRECISION);
+    assertThat(estimator.estimate(range(0, 2 * EIGHTH))).isCloseTo(300, PRECISION);
+    assertThat(estimator.estimate(range(2 * EIGHTH, MIN))).isCloseTo(400, PRECISION);
+  }
+
+  @Test
+  void should_estimate_range_wrapping_around_ring() {
+    // given
+    TokenRangeSizeEstimator estimator = new TokenRangeSizeEstimator(tokenFactory, quarters());
+    // then: last and first quarters
+    assertThat(estimator.estimate(range(2 * EIGHTH, -2 * EIGHTH))).isCloseTo(500, PRECISION);
+    // second half of the last quarter, first half of the first quarter
+    assertThat(estimator.estimate(range(3 * EIGHTH, -3 * EIGHTH))).isCloseTo(250, PRECISION);
+  }
+
+  @Test
+  void should_estimate_ranges_from_size_estimate_wrapping_around_ring() {
+    // given
+    Map<TokenRange, Long> sizeEstimates =
+        Collections.singletonMap(range(2 * EIGHTH, -2 * EIGHTH), 1000L);
+    TokenRangeSizeEstimator estimator = new TokenRangeSizeEstimator(tokenFactory, sizeEstimates);
+    // then
+    assertThat(estimator.estimate(range(2 * EIGHTH, MIN))).isCloseTo(500, PRECISION);
+    assertThat(estimator.estimate(range(MIN, -2 * EIGHTH))).isCloseTo(500, PRECISION);
+    assertThat(estimator.estimate(range(3 * EIGHTH, -3 * EIGHTH))).isCloseTo(500, PRECISION);
+    // the uncovered half of the ring has the average density of the covered half
+    assertThat(estimator.estimate(range(-2 * EIGHTH, 2 * EIGHTH))).isCloseTo(1000, PRECISION);
+    assertThat(estimator.totalSize()).isCloseTo(2000, PRECISION);
+  }
+
+  @Test
+  void should_estimate_range_partially_overlapping_size_estimates() {
+    // given
+    Map<TokenRange, Long> sizeEstimates = new LinkedHashMap<>();
+    sizeEstimates.put(range(0, EIGHTH), 100L);
+    sizeEstimates.put(range(EIGHTH, 2 * EIGHTH), 1000L);
+    TokenRangeSizeEstimator estimator = new TokenRangeSizeEstimator(tokenFactory, sizeEstimates);
+    // then: half of each estimated range
+    assertThat(estimator.estimate(range(EIGHTH / 2, EIGHTH + EIGHTH / 2)))
+        .isCloseTo(550, PRECISION);
+    // half of the second estimated range, and an eighth of the ring not covered by any estimate,
+    // which has the average density of the covered parts: 1100 per quarter
+    assertThat(estimator.estimate(range(EIGHTH + EIGHTH / 2, 3 * EIGHTH)))
+        .isCloseTo(500 + 550, PRECISION);
+  }
+
+  @Test
+  void should_keep_first_of_overlapping_size_estimates() {
+    // given
+    Map<TokenRange, Long> sizeEstimates = new LinkedHashMap<>();
+    sizeEstimates.put(range(0, 2 * EIGHTH), 200L);
+    sizeEstimates.put(range(EIGHTH, 3 * EIGHTH), 2000L);
+    TokenRangeSizeEstimator estimator = new TokenRangeSizeEstimator(tokenFactory, sizeEstimates);
+    // then
+    assertThat(estimator.estimate(range(0, 2 * EIGHTH))).isCloseTo(200, PRECISION);
+    assertThat(estimator.estimate(range(2 * EIGHTH, 3 * EIGHTH))).isCloseTo(1000, PRECISION);
+  }
+
+  private static Map<TokenRange, Long> quarters() {
+    Map<TokenRange, Long> sizeEstimates = new LinkedHashMap<>();
+    sizeEstimates.put(range(MIN, -2 * EIGHTH), 100L);
+    sizeEstimates.put(range(-2 * EIGHTH, 0), 200L);
+    sizeEstimates.put(range(0, 2 * EIGHTH), 300L);
+    sizeEstimates.put(range(2 * EIGHTH, MIN), 400L);
+    return sizeEstimates;
+  }
+
+  private static Murmur3BulkTokenRange range(long start, long end) {
+    return new Murmur3BulkTokenRange(newToken(start), newToken(end), Collections.emptySet());
+  }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.dsbulk.partitioner.murmur3;
+
+import static com.datastax.oss.dsbulk.tests.driver.DriverUtils.newToken;
+import static com.datastax.oss.dsbulk.tests.driver.DriverUtils.newTokenRange;
+import static java.util.Collections.singleton;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.datastax.oss.driver.api.core.CqlIdentifier;
+import com.datastax.oss.driver.api.core.metadata.Node;
+import com.datastax.oss.driver.api.core.metadata.TokenMap;
+import com.datastax.oss.driver.api.core.metadata.token.TokenRange;
+import com.datastax.oss.driver.internal.core.metadata.token.Murmur3Token;
+import com.datastax.oss.driver.internal.core.metadata.token.Murmur3TokenFactory;
+import com.datastax.oss.driver.internal.core.util.RoutingKey;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.Set;
+import org.assertj.core.util.Sets;
+import org.junit.jupiter.api.Test;
+
+class Murmur3TokenRingTest {
+
+  private final CqlIdentifier ks = CqlIdentifier.fromInternal("ks");
+
+  private final TokenRange range1 = range(-9223372036854775808L, -3074457345618258603L);
+  private final TokenRange range2 = range(-3074457345618258603L, 3074457345618258602L);
+  private final TokenRange range3 = range(3074457345618258602L, -9223372036854775808L);
+
+  @Test
+  void should_compute_same_tokens_as_driver() {
+    Murmur3TokenFactory factory = new Murmur3TokenFactory();
+    Random random = new Random(42);
+    // cover all tail lengths, and keys spanning several blocks
+    for (int length = 0; length < 100; length++) {
+      byte[] bytes = new byte[length];
+      random.nextBytes(bytes);
+      ByteBuffer key = ByteBuffer.wrap(bytes);
+      long expected = ((Murmur3Token) factory.hash(key)).getValue();
+      assertThat(Murmur3BulkTokenFactory.murmur3(key)).isEqualTo(expected);
+      assertThat(key.position()).isZero();
+    }
+  }
+
+  @Test
+  void should_compute_same_tokens_as_driver_for_composite_keys() {
+    Murmur3TokenFactory factory = new Murmur3TokenFactory();
+    Random random = new Random(42);
+    for (int i = 0; i < 100; i++) {
+      byte[] bytes1 = new byte[random.nextInt(20)];
+      byte[] bytes2 = new byte[random.nextInt(300)];
+      random.nextBytes(bytes1);
+      random.nextBytes(bytes2);
+      ByteBuffer component1 = ByteBuffer.wrap(bytes1);
+      ByteBuffer component2 = ByteBuffer.wrap(bytes2);
+      long expected =
+          ((Murmur3Token) factory.hash(RoutingKey.compose(component1, component2))).getValue();
+      assertThat(Murmur3BulkTokenFactory.murmur3(component1, component2)).isEqualTo(expected);
+    }
+  }
+
+  @Test
+  void should_locate_ranges_and_replica_sets() {
+    Node node1 = mock(Node.class);
+    Node node2 = mock(Node.class);
+    TokenMap tokenMap = mock(TokenMap.class);
+    when(tokenMap.getPartitionerName()).thenReturn(Murmur3TokenFactory.PARTITIONER_NAME);
+    when(tokenMap.getTokenRanges()).thenReturn(Sets.newLinkedHashSet(range2, range3, range1));
+    when(tokenMap.getReplicas(ks, range1)).thenReturn(singleton(node1));
+    when(tokenMap.getReplicas(ks, range2)).thenReturn(singleton(node2));
+    when(tokenMap.getReplicas(ks, range3)).thenReturn(singleton(node1));
+
+    Murmur3TokenRing ring = new Murmur3TokenRing(tokenMap, ks);
+
+    assertThat(ring.size()).isEqualTo(3);
+    assertThat(ring.replicaSetCount()).isEqualTo(2);
+    assertThat(ring.getRange(ring.rangeIndex(-9223372036854775807L))).isEqualTo(range1);
+    assertThat(ring.getRange(ring.rangeIndex(-3074457345618258603L))).isEqualTo(range1);
+    assertThat(ring.getRange(ring.rangeIndex(-3074457345618258602L))).isEqualTo(range2);
+    assertThat(ring.getRange(ring.rangeIndex(3074457345618258602L))).isEqualTo(range2);
+    assertThat(ring.getRange(ring.rangeIndex(3074457345618258603L))).isEqualTo(range3);
+    assertThat(ring.getRange(ring.rangeIndex(Long.MAX_VALUE))).isEqualTo(range3);
+    int id1 = ring.replicaSetId(ring.rangeIndex(0L));
+    int id2 = ring.replicaSetId(ring.rangeIndex(Long.MAX_VALUE));
+    int id3 = ring.replicaSetId(ring.rangeIndex(Long.MIN_VALUE + 1));
+    assertThat(id1).isNotEqualTo(id2);
+    assertThat(id2).isEqualTo(id3);
+    Set<Node> replicas = ring.getReplicaSet(id2);
+    assertThat(replicas).containsOnly(node1);
+    assertThat(ring.getReplicas(ring.rangeIndex(0L))).containsOnly(node2);
+  }
+
+  @Test
+  void should_reject_other_partitioners() {
+    TokenMap tokenMap = mock(TokenMap.class);
+    when(tokenMap.getPartitionerName()).thenReturn("org.apache.cassandra.dht.RandomPartitioner");
+    assertThat(Murmur3TokenRing.isMurmur3(tokenMap)).isFalse();
+    assertThatThrownBy(() -> new Murmur3TokenRing(tokenMap, ks))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining("Expecting Murmur3 partitioner");
+  }
+
+  private static TokenRange range(long start, long end) {
+    return newTokenRange(newToken(start), newToken(end));
+  }
+}
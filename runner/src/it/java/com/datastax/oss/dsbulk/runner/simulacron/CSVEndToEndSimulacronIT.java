@@ -54,6 +54,7 @@ import com.datastax.oss.driver.api.core.data.ByteUtils;
 import com.datastax.oss.driver.shaded.guava.common.collect.ImmutableMap;
 import com.datastax.oss.driver.shaded.guava.common.collect.Lists;
 import com.datastax.oss.dsbulk.config.ConfigUtils;
+import com.datastax.oss.dsbulk.connectors.api.DefaultErrorRecord;
 import com.datastax.oss.dsbulk.connectors.api.Record;
 import com.datastax.oss.dsbulk.connectors.csv.CSVConnector;
 import com.datastax.oss.dsbulk.runner.DataStaxBulkLoader;
@@ -73,6 +74,7 @@ import com.datastax.oss.dsbulk.tests.utils.StringUtils;
 import com.datastax.oss.simulacron.common.cluster.RequestPrime;
 import com.datastax.oss.simulacron.common.codec.ConsistencyLevel;
 import com.datastax.oss.simulacron.common.codec.WriteType;
+import com.datastax.oss.simulacron.common.request.Query;
 import com.datastax.oss.simulacron.common.result.FunctionFailureResult;
 import com.datastax.oss.simulacron.common.result.ReadTimeoutResult;
 import com.datastax.oss.simulacron.common.result.SuccessResult;
@@ -92,11 +94,13 @@ import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
@@ -907,6 +911,139 @@ class CSVEndToEndSimulacronIT extends EndToEndSimulacronITBase {
         .containsPattern("output-00000[1-4].csv");
   }
 
+  @Test
+  void unload_checkpointed_ranges_resume() throws Exception {
+
+    AtomicInteger writtenRanges = new AtomicInteger();
+    MockConnector.setDelegate(
+        new CSVConnector() {
+
+          @Override
+          public void configure(
+              @NonNull Config settings, boolean read, boolean retainRecordSources) {
+            settings =
+                ConfigFactory.parseString("url = " + quoteJson(unloadDir) + ", header = false")
+                    .withFallback(
+                        ConfigUtils.createReferenceConfig().getConfig("dsbulk.connector.csv"));
+            super.configure(settings, read, retainRecordSources);
+          }
+
+          @NonNull
+          @Override
+          public Function<Publisher<Record>, Publisher<Record>> write(@NonNull String range) {
+            Function<Publisher<Record>, Publisher<Record>> writer = super.write(range);
+            switch (writtenRanges.incrementAndGet()) {
+              case 2:
+                // half of the records of the second range cannot be written
+                return records ->
+                    Flux.from(writer.apply(records))
+                        .index(
+                            (i, record) ->
+                                i < 12
+                                    ? record
+                                    : new DefaultErrorRecord(
+                                        record,
+                                        record.getResource(),
+                                        record.getPosition(),
+                                        new IOException("Simulated write error")));
+              case 5:
+                // the operation is killed while writing the fifth range
+                return records ->
+                    Flux.from(writer.apply(Flux.from(records).take(10)))
+                        .concatWith(Flux.error(new IOException("Simulated crash")));
+              default:
+                return writer;
+            }
+          }
+        });
+
+    primeIpByCountryTable(simulacron);
+    RequestPrime select = createQueryWithResultSet(SELECT_FROM_IP_BY_COUNTRY, 24);
+    // declare the token range variables, so that the query is split into token ranges
+    Map<String, String> paramTypes = new LinkedHashMap<>();
+    paramTypes.put("start", "bigint");
+    paramTypes.put("end", "bigint");
+    Query when =
+        new Query(SELECT_FROM_IP_BY_COUNTRY, Collections.emptyList(), emptyMap(), paramTypes);
+    simulacron.prime(new Prime(new RequestPrime(when, select.then)));
+
+    String[] args = {
+      "unload",
+      "--connector.name",
+      "mock",
+      "--engine.executionId",
+      "UNLOAD_KILLED",
+      "--engine.maxConcurrentQueries",
+      "1",
+      "--log.checkpointRanges",
+      "true",
+      "--schema.splits",
+      "8",
+      "--schema.keyspace",
+      "ks1",
+      "--schema.query",
+      SELECT_FROM_IP_BY_COUNTRY,
+      "--schema.mapping",
+      IP_BY_COUNTRY_MAPPING_INDEXED
+    };
+
+    ExitStatus status = new DataStaxBulkLoader(addCommonSettings(args)).run();
+    assertStatus(status, STATUS_ABORTED_FATAL_ERROR);
+    // ranges are read one at a time: the first, third and fourth ranges were unloaded, the
+    // second one failed, and the fifth one was interrupted
+    Path killedOperation = logDir.resolve("UNLOAD_KILLED");
+    List<String> completedRanges = Files.readAllLines(killedOperation.resolve("ranges.txt"));
+    assertThat(completedRanges).hasSize(3).doesNotHaveDuplicates();
+    List<String> writtenFiles = listFileNames(unloadDir);
+    assertThat(writtenFiles).hasSize(5);
+    for (String range : completedRanges) {
+      assertThat(writtenFiles).contains(range + "-output-000001.csv");
+    }
+
+    simulacron.clearLogs();
+
+    args =
+        new String[] {
+          "unload",
+          "-header",
+          "false",
+          "--connector.csv.url",
+          quoteJson(unloadDir),
+          "--engine.executionId",
+          "UNLOAD_RESUMED",
+          "--log.resume",
+          quoteJson(killedOperation),
+          "--log.checkpointRanges",
+          "true",
+          "--schema.splits",
+          "8",
+          "--schema.keyspace",
+          "ks1",
+          "--schema.query",
+          SELECT_FROM_IP_BY_COUNTRY,
+          "--schema.mapping",
+          IP_BY_COUNTRY_MAPPING_INDEXED
+        };
+
+    status = new DataStaxBulkLoader(addCommonSettings(args)).run();
+    assertStatus(status, STATUS_OK);
+    // only the ranges that were not completed are read again
+    List<String> allRanges =
+        Files.readAllLines(logDir.resolve("UNLOAD_RESUMED").resolve("ranges.txt"));
+    assertThat(allRanges).hasSize(8).doesNotHaveDuplicates().containsAll(completedRanges);
+    validateQueryCount(simulacron, 5, SELECT_FROM_IP_BY_COUNTRY, LOCAL_ONE);
+    // each range was unloaded exactly once, replacing the files of failed and interrupted ranges
+    assertThat(listFileNames(unloadDir))
+        .containsExactlyInAnyOrderElementsOf(
+            allRanges.stream()
+                .map(range -> range + "-output-000001.csv")
+                .collect(Collectors.toList()));
+    for (String range : allRanges) {
+      assertThat(Files.readAllLines(unloadDir.resolve(range + "-output-000001.csv"))).hasSize(24);
+    }
+    validateOutputFiles(8 * 24, unloadDir);
+  }
+
   @Test
   void validate_stdout() {
 
@@ -978,4 +1115,10 @@ class CSVEndToEndSimulacronIT extends EndToEndSimulacronITBase {
     String contents = readAllLinesInDirectoryAsStream(unloadDir).collect(Collectors.joining("\n"));
     assertThat(StringUtils.countOccurrences(delimiter, contents)).isEqualTo(expected);
   }
+
+  private static List<String> listFileNames(Path dir) throws IOException {
+    try (Stream<Path> files = Files.list(dir)) {
+      return files.map(file -> file.getFileName().toString()).collect(Collectors.toList());
+    }
+  }
 }
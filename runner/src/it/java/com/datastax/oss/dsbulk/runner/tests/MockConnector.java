@@ -23,8 +23,10 @@ import com.datastax.oss.dsbulk.connectors.api.Record;
 import com.datastax.oss.dsbulk.connectors.api.RecordMetadata;
 import com.typesafe.config.Config;
 import edu.umd.cs.findbugs.annotations.NonNull;
+import java.net.URI;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import org.reactivestreams.Publisher;
@@ -212,12 +214,23 @@ public final class MockConnector implements Connector {
     return delegate.write();
   }
 
+  @NonNull
+  @Override
+  public Function<Publisher<Record>, Publisher<Record>> write(@NonNull String partition) {
+    return delegate.write(partition);
+  }
+
   @Override
   public void configure(@NonNull Config settings, boolean read, boolean retainRecordSources)
       throws IllegalArgumentException {
     delegate.configure(settings, read, retainRecordSources);
   }
 
+  @Override
+  public void resume(@NonNull Map<URI, Long> positions) {
+    delegate.resume(positions);
+  }
+
   @Override
   public void init() throws Exception {
     delegate.init();
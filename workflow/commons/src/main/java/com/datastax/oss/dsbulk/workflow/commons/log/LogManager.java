@@ -67,8 +67,10 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.PathMatcher;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.LongAdder;
@@ -97,6 +99,8 @@ public class LogManager implements AutoCloseable {
   private static final String CAS_BAD_FILE = "paxos.bad";
 
   private static final String POSITIONS_FILE = "positions.txt";
+  private static final String CHECKPOINT_FILE = "checkpoint.txt";
+  private static final String RANGES_FILE = "ranges.txt";
 
   private final CqlSession session;
   private final Path operationDirectory;
@@ -106,9 +110,11 @@ public class LogManager implements AutoCloseable {
   private final StatementFormatter statementFormatter;
   private final StatementFormatVerbosity statementFormatVerbosity;
   private final RowFormatter rowFormatter;
+  @Nullable private final PositionsTracker resumedPositions;
 
   private final AtomicInteger errors = new AtomicInteger(0);
   private final LongAdder totalItems = new LongAdder();
+  private final Set<String> failedRanges = ConcurrentHashMap.newKeySet();
 
   private final AtomicInteger queryWarnings = new AtomicInteger(0);
   private final AtomicBoolean queryWarningsEnabled = new AtomicBoolean(true);
@@ -124,6 +130,7 @@ public class LogManager implements AutoCloseable {
 
   private PositionsTracker positionsTracker;
   private PrintWriter positionsPrinter;
+  private PrintWriter rangesPrinter;
 
   private FluxSink<ErrorRecord> failedRecordSink;
   private FluxSink<ErrorRecord> unmappableRecordSink;
@@ -131,7 +138,6 @@ public class LogManager implements AutoCloseable {
   private FluxSink<WriteResult> failedWriteSink;
   private FluxSink<WriteResult> failedCASWriteSink;
   private FluxSink<ReadResult> failedReadSink;
-  private FluxSink<Record> positionsSink;
 
   private UnicastProcessor<Void> uncaughtExceptionProcessor;
   private FluxSink<Void> uncaughtExceptionSink;
@@ -147,6 +153,28 @@ public class LogManager implements AutoCloseable {
       StatementFormatter statementFormatter,
       StatementFormatVerbosity statementFormatVerbosity,
       RowFormatter rowFormatter) {
+    this(
+        session,
+        operationDirectory,
+        errorThreshold,
+        queryWarningsThreshold,
+        trackPositions,
+        statementFormatter,
+        statementFormatVerbosity,
+        rowFormatter,
+        null);
+  }
+
+  public LogManager(
+      CqlSession session,
+      Path operationDirectory,
+      ErrorThreshold errorThreshold,
+      ErrorThreshold queryWarningsThreshold,
+      boolean trackPositions,
+      StatementFormatter statementFormatter,
+      StatementFormatVerbosity statementFormatVerbosity,
+      RowFormatter rowFormatter,
+      @Nullable PositionsTracker resumedPositions) {
     this.session = session;
     this.operationDirectory = operationDirectory;
     this.errorThreshold = errorThreshold;
@@ -155,6 +183,7 @@ public class LogManager implements AutoCloseable {
     this.statementFormatter = statementFormatter;
     this.statementFormatVerbosity = statementFormatVerbosity;
     this.rowFormatter = rowFormatter;
+    this.resumedPositions = resumedPositions;
   }
 
   public void init() {
@@ -163,14 +192,16 @@ public class LogManager implements AutoCloseable {
     stackTracePrinter = new StackTracePrinter();
     stackTracePrinter.setOptionList(LogSettings.STACK_TRACE_PRINTER_OPTIONS);
     stackTracePrinter.start();
-    positionsTracker = new PositionsTracker();
+    // when resuming, carry over the positions processed by previous operations, so that the
+    // files written by this operation can in turn be used to resume it.
+    positionsTracker =
+        resumedPositions == null ? new PositionsTracker() : new PositionsTracker(resumedPositions);
     failedRecordSink = newFailedRecordSink();
     unmappableRecordSink = newUnmappableRecordSink();
     unmappableStatementSink = newUnmappableStatementSink();
     failedWriteSink = newFailedWriteResultSink();
     failedCASWriteSink = newFailedCASWriteSink();
     failedReadSink = newFailedReadResultSink();
-    positionsSink = newPositionsSink();
     uncaughtExceptionProcessor = UnicastProcessor.create();
     uncaughtExceptionSink = uncaughtExceptionProcessor.sink();
     invalidMappingWarningDone = new AtomicBoolean(false);
@@ -212,18 +243,179 @@ public class LogManager implements AutoCloseable {
               pw.flush();
               pw.close();
             });
-    positionsSink.complete();
+    synchronized (this) {
+      if (rangesPrinter != null) {
+        rangesPrinter.close();
+      }
+    }
     if (trackPositions && !positionsTracker.isEmpty()) {
       positionsPrinter =
           new PrintWriter(
               Files.newBufferedWriter(
                   operationDirectory.resolve(POSITIONS_FILE), UTF_8, CREATE_NEW, WRITE));
       // sort positions by URI
-      new TreeMap<>(positionsTracker.getPositions())
-          .forEach((resource, ranges) -> appendToPositionsFile(resource, ranges, positionsPrinter));
+      Map<URI, List<Range>> positions = new TreeMap<>(positionsTracker.getPositions());
+      positions.forEach(
+          (resource, ranges) -> appendToPositionsFile(resource, ranges, positionsPrinter));
       positionsPrinter.flush();
       positionsPrinter.close();
+      try (PrintWriter checkpointPrinter =
+          new PrintWriter(
+              Files.newBufferedWriter(
+                  operationDirectory.resolve(CHECKPOINT_FILE), UTF_8, CREATE_NEW, WRITE))) {
+        positions.forEach(
+            (resource, ranges) -> appendToCheckpointFile(resource, ranges, checkpointPrinter));
+      }
+    }
+  }
+
+  /**
+   * Reads the positions processed by a previous operation.
+   *
+   * <p>All the processed ranges are read from the checkpoint file, if present; otherwise, the last
+   * processed positions are read from the positions file, and all positions up to them are
+   * considered processed.
+   *
+   * @param operationDirectory The operation directory of the previous operation.
+   * @return The processed positions, or null if the operation directory contains no position file.
+   * @throws IOException If the files cannot be read.
+   * @throws IllegalArgumentException If the files are malformed.
+   */
+  @Nullable
+  public static PositionsTracker readProcessedPositions(@NonNull Path operationDirectory)
+      throws IOException {
+    Path checkpointFile = operationDirectory.resolve(CHECKPOINT_FILE);
+    Path positionsFile = operationDirectory.resolve(POSITIONS_FILE);
+    boolean checkpoint = Files.exists(checkpointFile);
+    if (!checkpoint && !Files.exists(positionsFile)) {
+      return null;
+    }
+    Path file = checkpoint ? checkpointFile : positionsFile;
+    PositionsTracker tracker = new PositionsTracker();
+    for (String line : Files.readAllLines(file, UTF_8)) {
+      if (line.isEmpty()) {
+        continue;
+      }
+      try {
+        // resources are URIs and may contain colons, but positions don't
+        int colon = line.lastIndexOf(':');
+        if (colon == -1) {
+          throw new IllegalArgumentException("missing positions");
+        }
+        URI resource = URI.create(line.substring(0, colon));
+        int start = colon + 1;
+        while (true) {
+          int comma = line.indexOf(',', start);
+          int end = comma == -1 ? line.length() : comma;
+          updatePositions(tracker, resource, line.substring(start, end));
+          if (comma == -1) {
+            break;
+          }
+          start = comma + 1;
+        }
+      } catch (RuntimeException e) {
+        throw new IllegalArgumentException(
+            String.format("Invalid line in %s: '%s': %s", file, line, e.getMessage()), e);
+      }
     }
+    return tracker;
+  }
+
+  /**
+   * Records the given range of processed positions, either a single position {@code n}, which
+   * stands for all positions from 1 to {@code n}, as written by previous versions, or a range
+   * {@code n-m}.
+   */
+  private static void updatePositions(
+      @NonNull PositionsTracker tracker, @NonNull URI resource, @NonNull String range) {
+    int dash = range.indexOf('-');
+    long first = dash == -1 ? 1 : parsePosition(range.substring(0, dash));
+    long last = parsePosition(range.substring(dash + 1));
+    if (first > last) {
+      throw new IllegalArgumentException(String.format("invalid range of positions '%s'", range));
+    }
+    tracker.update(resource, first, last);
+  }
+
+  private static long parsePosition(@NonNull String position) {
+    long value;
+    try {
+      value = Long.parseLong(position);
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException(String.format("invalid position '%s'", position), e);
+    }
+    if (value < 1) {
+      throw new IllegalArgumentException(String.format("invalid position '%s'", position));
+    }
+    return value;
+  }
+
+  /**
+   * Records that all the rows of the given token range were read and written.
+   *
+   * <p>Used only in the unload workflow, when token ranges are checkpointed. Ranges are appended to
+   * the ranges file as soon as they complete, so that the file is accurate even if the operation is
+   * killed.
+   *
+   * <p>Ranges marked as failed by a {@linkplain #newFailedRangeMonitor(String) failed range
+   * monitor} are not recorded, so that they are read again when resuming.
+   *
+   * @param range The token range identifier.
+   */
+  public synchronized void recordCompletedRange(@NonNull String range) throws IOException {
+    if (failedRanges.contains(range)) {
+      return;
+    }
+    if (rangesPrinter == null) {
+      rangesPrinter =
+          new PrintWriter(
+              Files.newBufferedWriter(
+                  operationDirectory.resolve(RANGES_FILE), UTF_8, CREATE_NEW, WRITE));
+    }
+    rangesPrinter.println(range);
+    rangesPrinter.flush();
+  }
+
+  /**
+   * Monitor that marks the given token range as failed when one of its items failed: an
+   * unsuccessful read result, an unmappable record, or a record that could not be written.
+   *
+   * <p>Used only in the unload workflow, when token ranges are checkpointed. The monitor must be
+   * applied before each failure handler, since failure handlers filter out failed items.
+   *
+   * @param range The token range identifier.
+   * @return a monitor for the items of the given token range.
+   */
+  @NonNull
+  public <T> Function<Flux<T>, Flux<T>> newFailedRangeMonitor(@NonNull String range) {
+    return upstream ->
+        upstream.doOnNext(
+            item -> {
+              if (item instanceof ErrorRecord
+                  || (item instanceof Result && !((Result) item).isSuccess())) {
+                failedRanges.add(range);
+              }
+            });
+  }
+
+  /**
+   * Reads the token ranges completed by a previous unload operation.
+   *
+   * @param operationDirectory The operation directory of the previous operation.
+   * @return The identifiers of the completed token ranges, or null if the operation directory
+   *     contains no ranges file.
+   * @throws IOException If the ranges file cannot be read.
+   */
+  @Nullable
+  public static Set<String> readCompletedRanges(@NonNull Path operationDirectory)
+      throws IOException {
+    Path rangesFile = operationDirectory.resolve(RANGES_FILE);
+    if (!Files.exists(rangesFile)) {
+      return null;
+    }
+    return Files.readAllLines(rangesFile, UTF_8).stream()
+        .filter(line -> !line.isEmpty())
+        .collect(Collectors.toSet());
   }
 
   public void reportLastLocations() {
@@ -248,6 +440,9 @@ public class LogManager implements AutoCloseable {
     if (positionsTracker != null) {
       LOGGER.info("Last processed positions can be found in {}", POSITIONS_FILE);
     }
+    if (rangesPrinter != null) {
+      LOGGER.info("Completed token ranges can be found in {}", RANGES_FILE);
+    }
   }
 
   /**
@@ -373,7 +568,7 @@ public class LogManager implements AutoCloseable {
   /**
    * Handler for unsuccessful {@link WriteResult}s.
    *
-   * <p>Used only by the load workflow.
+   * <p>Used by the load and copy workflows.
    *
    * <p>Increments the number of errors and forwards unsuccessful write results to the write result
    * processor for further processing.
@@ -408,7 +603,7 @@ public class LogManager implements AutoCloseable {
   /**
    * Handler for unsuccessful {@link ReadResult}s.
    *
-   * <p>Used only by the unload workflow.
+   * <p>Used by the unload and copy workflows.
    *
    * <p>Increments the number of errors and forwards unsuccessful read results to the read result
    * processor for further processing.
@@ -470,7 +665,7 @@ public class LogManager implements AutoCloseable {
         upstream
             .map(Result::getStatement)
             .transform(newStatementToRecordMapper())
-            .doOnNext(record -> positionsSink.next(record))
+            .doOnNext(this::updatePosition)
             .then()
             .flux();
   }
@@ -522,7 +717,7 @@ public class LogManager implements AutoCloseable {
     Flux<ErrorRecord> flux = processor.doOnNext(this::appendFailedRecordToDebugFile);
     if (trackPositions) {
       flux.doOnNext(record -> appendToBadFile(record, CONNECTOR_BAD_FILE))
-          .doOnNext(record -> positionsSink.next(record))
+          .doOnNext(this::updatePosition)
           .subscribe();
     } else {
       flux.subscribe();
@@ -564,7 +759,7 @@ public class LogManager implements AutoCloseable {
         .doOnNext(this::appendUnmappableStatementToDebugFile)
         .transform(newStatementToRecordMapper())
         .doOnNext(record -> appendToBadFile(record, MAPPING_BAD_FILE))
-        .doOnNext(record -> positionsSink.next(record))
+        .doOnNext(this::updatePosition)
         .subscribe();
     return processor.sink();
   }
@@ -588,7 +783,7 @@ public class LogManager implements AutoCloseable {
         .map(Result::getStatement)
         .transform(newStatementToRecordMapper())
         .doOnNext(record -> appendToBadFile(record, LOAD_BAD_FILE))
-        .doOnNext(record -> positionsSink.next(record))
+        .doOnNext(this::updatePosition)
         .subscribe();
     return processor.sink();
   }
@@ -612,7 +807,7 @@ public class LogManager implements AutoCloseable {
         .map(Result::getStatement)
         .transform(newStatementToRecordMapper())
         .doOnNext(record -> appendToBadFile(record, CAS_BAD_FILE))
-        .doOnNext(record -> positionsSink.next(record))
+        .doOnNext(this::updatePosition)
         .subscribe();
     return processor.sink();
   }
@@ -634,23 +829,13 @@ public class LogManager implements AutoCloseable {
   }
 
   /**
-   * A processor for record positions.
+   * Updates the position tracker with the given record.
    *
-   * <p>Used only in the load workflow.
-   *
-   * <p>Updates the position tracker for every record received.
-   *
-   * @return A processor for record positions.
+   * <p>Used only in the load workflow. The tracker can be updated concurrently, so this is done
+   * directly on the calling thread.
    */
-  @NonNull
-  private FluxSink<Record> newPositionsSink() {
-    UnicastProcessor<Record> processor = UnicastProcessor.create();
-    processor
-        // do not need to be published on the dedicated log scheduler, the computation is fairly
-        // cheap
-        .doOnNext(record -> positionsTracker.update(record.getResource(), record.getPosition()))
-        .subscribe();
-    return processor.sink();
+  private void updatePosition(@NonNull Record record) {
+    positionsTracker.update(record.getResource(), record.getPosition());
   }
 
   // Bad file management
@@ -778,6 +963,17 @@ public class LogManager implements AutoCloseable {
     positionsPrinter.println();
   }
 
+  private static void appendToCheckpointFile(
+      URI resource, List<Range> positions, PrintWriter checkpointPrinter) {
+    checkpointPrinter.print(resource);
+    checkpointPrinter.print(':');
+    checkpointPrinter.print(
+        positions.stream()
+            .map(range -> range.getLower() + "-" + range.getUpper())
+            .collect(Collectors.joining(",")));
+    checkpointPrinter.println();
+  }
+
   private <T> Flux<T> maybeTriggerOnError(@Nullable Throwable error, int currentErrorCount) {
     if (error != null && isUnrecoverable(error)) {
       return Flux.error(error);
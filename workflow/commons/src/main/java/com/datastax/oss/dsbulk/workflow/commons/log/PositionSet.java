@@ -0,0 +1,149 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.dsbulk.workflow.commons.log;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The processed positions of a single resource, that can be updated concurrently.
+ *
+ * <p>Positions are stored in two parts:
+ *
+ * <ol>
+ *   <li>A contiguous prefix {@code [1, n]}, advanced with a single compare-and-set when positions
+ *       are processed in order, which is by far the most common case.
+ *   <li>A set of disjoint ranges located after that prefix, keyed by their lower bound, in which
+ *       positions processed out of order are stored. Updating these ranges takes O(log n) time,
+ *       under a lock that is private to the resource. When the prefix catches up with the first
+ *       range, the range is absorbed into the prefix.
+ * </ol>
+ */
+final class PositionSet {
+
+  /** All positions between 1 and this value, inclusive, have been processed. */
+  private final AtomicLong contiguous = new AtomicLong();
+
+  /** Ranges located after the contiguous prefix; guarded by this. */
+  private final TreeMap<Long, Range> ranges = new TreeMap<>();
+
+  /** Whether the ranges map is non-empty; allows the in-order fast path to avoid locking. */
+  private volatile boolean hasRanges;
+
+  /** Marks the given position as processed. */
+  void add(long position) {
+    if (!hasRanges) {
+      long current = contiguous.get();
+      if (position <= current) {
+        return;
+      }
+      if (position == current + 1 && contiguous.compareAndSet(current, position)) {
+        return;
+      }
+    }
+    add(position, position);
+  }
+
+  /** Marks the given positions as processed. */
+  synchronized void add(long lower, long upper) {
+    long current = contiguous.get();
+    if (upper <= current) {
+      return;
+    }
+    if (lower <= current + 1) {
+      // the fast path only moves the prefix by one position, and only when there are no ranges;
+      // here, moving it further is safe since all the positions in between are processed.
+      contiguous.accumulateAndGet(upper, Math::max);
+      absorbRanges();
+      return;
+    }
+    Map.Entry<Long, Range> floor = ranges.floorEntry(lower);
+    Range range;
+    if (floor != null && floor.getValue().getUpper() + 1 >= lower) {
+      range = floor.getValue();
+      if (range.getUpper() >= upper) {
+        return;
+      }
+      range.setUpper(upper);
+    } else {
+      range = new Range(lower, upper);
+      ranges.put(lower, range);
+    }
+    // merge the following ranges that now overlap or are adjacent
+    Map.Entry<Long, Range> next;
+    while ((next = ranges.higherEntry(range.getLower())) != null
+        && next.getKey() <= range.getUpper() + 1) {
+      range.setUpper(Math.max(range.getUpper(), next.getValue().getUpper()));
+      ranges.remove(next.getKey());
+    }
+    hasRanges = true;
+  }
+
+  /** @return true if the given position has been processed. */
+  boolean contains(long position) {
+    if (position <= 0) {
+      return false;
+    }
+    if (position <= contiguous.get()) {
+      return true;
+    }
+    synchronized (this) {
+      Map.Entry<Long, Range> floor = ranges.floorEntry(position);
+      return floor != null && floor.getValue().getUpper() >= position;
+    }
+  }
+
+  /**
+   * @return the last position such that all the positions before it have been processed, or zero if
+   *     the first position hasn't been processed.
+   */
+  synchronized long getLastContiguousPosition() {
+    absorbRanges();
+    return contiguous.get();
+  }
+
+  /** @return a snapshot of the processed ranges, in increasing order. */
+  @NonNull
+  synchronized List<Range> getRanges() {
+    absorbRanges();
+    List<Range> snapshot = new ArrayList<>(ranges.size() + 1);
+    long current = contiguous.get();
+    if (current > 0) {
+      snapshot.add(new Range(1, current));
+    }
+    for (Range range : ranges.values()) {
+      snapshot.add(new Range(range.getLower(), range.getUpper()));
+    }
+    return snapshot;
+  }
+
+  /**
+   * Absorbs into the contiguous prefix the ranges that overlap with it or are adjacent to it. Such
+   * ranges can exist when the fast path advanced the prefix while a range was being added.
+   */
+  private void absorbRanges() {
+    Map.Entry<Long, Range> first;
+    while ((first = ranges.firstEntry()) != null && first.getKey() <= contiguous.get() + 1) {
+      contiguous.accumulateAndGet(first.getValue().getUpper(), Math::max);
+      ranges.remove(first.getKey());
+    }
+    hasRanges = !ranges.isEmpty();
+  }
+}
@@ -17,18 +17,73 @@ package com.datastax.oss.dsbulk.workflow.commons.log;
 
 import edu.umd.cs.findbugs.annotations.NonNull;
 import java.net.URI;
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
-import java.util.ListIterator;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Tracks the processed positions of each resource.
+ *
+ * <p>This class is thread-safe: positions can be updated concurrently from any thread, without
+ * external synchronization. Updates of different resources never contend with each other, and
+ * positions processed in order are recorded without locking.
+ */
 public class PositionsTracker {
 
-  private final Map<URI, List<Range>> positions = new HashMap<>();
+  private final Map<URI, PositionSet> positions = new ConcurrentHashMap<>();
+
+  public PositionsTracker() {}
 
+  /** Creates a deep copy of the given tracker. */
+  public PositionsTracker(@NonNull PositionsTracker other) {
+    other.positions.forEach(
+        (resource, set) -> {
+          PositionSet copy = new PositionSet();
+          for (Range range : set.getRanges()) {
+            copy.add(range.getLower(), range.getUpper());
+          }
+          positions.put(resource, copy);
+        });
+  }
+
+  /** @return a snapshot of the processed ranges of each resource, in increasing order. */
+  @NonNull
   public Map<URI, List<Range>> getPositions() {
-    return positions;
+    Map<URI, List<Range>> snapshot = new HashMap<>();
+    positions.forEach((resource, set) -> snapshot.put(resource, set.getRanges()));
+    return snapshot;
+  }
+
+  /**
+   * Returns, for each resource whose first processed range starts at the first position, the upper
+   * bound of that range, that is, the position of the last record such that all previous records
+   * were processed too.
+   */
+  @NonNull
+  public Map<URI, Long> getLastContiguousPositions() {
+    Map<URI, Long> lastPositions = new HashMap<>();
+    positions.forEach(
+        (resource, set) -> {
+          long lastPosition = set.getLastContiguousPosition();
+          if (lastPosition > 0) {
+            lastPositions.put(resource, lastPosition);
+          }
+        });
+    return lastPositions;
+  }
+
+  /** @return true if the given position has been processed for the given resource. */
+  public boolean contains(@NonNull URI resource, long position) {
+    PositionSet set = positions.get(resource);
+    return set != null && set.contains(position);
+  }
+
+  /** Marks a whole range of positions as processed. */
+  public void update(URI resource, long lower, long upper) {
+    if (lower > 0 && upper >= lower) {
+      positionsOf(resource).add(lower, upper);
+    }
   }
 
   public boolean isEmpty() {
@@ -37,48 +92,17 @@ public class PositionsTracker {
 
   public void update(URI resource, long position) {
     if (position > 0) {
-      positions.compute(
-          resource,
-          (res, positions) -> {
-            if (positions == null) {
-              positions = new ArrayList<>(100);
-              positions.add(new Range(position));
-              return positions;
-            } else {
-              return addPosition(positions, position);
-            }
-          });
+      positionsOf(resource).add(position);
     }
   }
 
   @NonNull
-  private static List<Range> addPosition(@NonNull List<Range> positions, long position) {
-    ListIterator<Range> iterator = positions.listIterator();
-    while (iterator.hasNext()) {
-      Range range = iterator.next();
-      if (range.contains(position)) {
-        return positions;
-      } else if (range.getUpper() + 1L == position) {
-        range.setUpper(position);
-        if (iterator.hasNext()) {
-          Range next = iterator.next();
-          if (range.getUpper() == next.getLower() - 1L) {
-            iterator.remove();
-            range = iterator.previous();
-            range.setUpper(next.getUpper());
-          }
-        }
-        return positions;
-      } else if (range.getLower() - 1L == position) {
-        range.setLower(position);
-        return positions;
-      } else if (position < range.getLower()) {
-        iterator.previous();
-        iterator.add(new Range(position));
-        return positions;
-      }
+  private PositionSet positionsOf(URI resource) {
+    // avoid computeIfAbsent for existing resources, since it locks the bin in Java 8
+    PositionSet set = positions.get(resource);
+    if (set == null) {
+      set = positions.computeIfAbsent(resource, res -> new PositionSet());
     }
-    iterator.add(new Range(position));
-    return positions;
+    return set;
   }
 }
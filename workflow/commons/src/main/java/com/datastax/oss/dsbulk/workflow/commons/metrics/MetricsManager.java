@@ -37,6 +37,7 @@ import com.datastax.oss.dsbulk.executor.api.listener.MetricsCollectingExecutionL
 import com.datastax.oss.dsbulk.executor.api.listener.ReadsReportingExecutionListener;
 import com.datastax.oss.dsbulk.executor.api.listener.WritesReportingExecutionListener;
 import com.datastax.oss.dsbulk.executor.api.result.Result;
+import com.datastax.oss.dsbulk.executor.api.throttling.AdaptiveConcurrencyLimiter;
 import com.datastax.oss.dsbulk.workflow.commons.settings.LogSettings.Verbosity;
 import com.datastax.oss.dsbulk.workflow.commons.settings.RowType;
 import com.datastax.oss.dsbulk.workflow.commons.statement.UnmappableStatement;
@@ -50,6 +51,7 @@ import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Function;
+import java.util.function.ToLongFunction;
 import javax.management.MalformedObjectNameException;
 import javax.management.ObjectName;
 import org.slf4j.Logger;
@@ -470,6 +472,18 @@ public class MetricsManager implements AutoCloseable {
     return upstream -> upstream.doOnNext(item -> totalItems.inc());
   }
 
+  /**
+   * Creates a monitor that increments the total items count by the weight of each item, instead of
+   * by one. This is used when each item stands for many records, e.g. when rows are counted
+   * server-side and each item is the count of a whole token range.
+   *
+   * @param weigher the function returning the number of records that an item stands for.
+   * @return a monitor for the total items count.
+   */
+  public <T> Function<Flux<T>, Flux<T>> newTotalItemsMonitor(ToLongFunction<? super T> weigher) {
+    return upstream -> upstream.doOnNext(item -> totalItems.inc(weigher.applyAsLong(item)));
+  }
+
   public <T> Function<Flux<T>, Flux<T>> newFailedItemsMonitor() {
     return upstream ->
         upstream.doOnNext(
@@ -497,4 +511,14 @@ public class MetricsManager implements AutoCloseable {
   public MetricsCollectingExecutionListener getExecutionListener() {
     return listener;
   }
+
+  /**
+   * Registers a gauge exposing the current maximum number of in-flight requests of the given
+   * limiter.
+   *
+   * @param limiter the limiter to monitor.
+   */
+  public void registerConcurrencyLimiter(AdaptiveConcurrencyLimiter limiter) {
+    registry.gauge("executor/in-flight-limit", () -> limiter::getLimit);
+  }
 }
@@ -30,12 +30,18 @@ import com.datastax.oss.driver.api.core.metadata.token.Token;
 import com.datastax.oss.driver.api.core.metadata.token.TokenRange;
 import com.datastax.oss.driver.api.core.type.DataType;
 import com.datastax.oss.driver.api.core.type.codec.TypeCodec;
+import com.datastax.oss.driver.internal.core.metadata.token.Murmur3Token;
 import com.datastax.oss.driver.shaded.guava.common.annotations.VisibleForTesting;
 import com.datastax.oss.dsbulk.codecs.api.ConvertingCodecFactory;
 import com.datastax.oss.dsbulk.executor.api.result.ReadResult;
+import com.datastax.oss.dsbulk.partitioner.murmur3.Murmur3BulkTokenFactory;
+import com.datastax.oss.dsbulk.partitioner.murmur3.Murmur3TokenRing;
 import com.datastax.oss.dsbulk.partitioner.utils.TokenUtils;
+import com.datastax.oss.dsbulk.sampler.DataSizes;
 import com.datastax.oss.dsbulk.workflow.commons.settings.StatsSettings.StatisticsMode;
+import com.datastax.oss.dsbulk.workflow.commons.utils.HyperLogLog;
 import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
 import java.io.PrintStream;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
@@ -44,16 +50,22 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.Set;
 import java.util.TreeSet;
-import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.function.BiFunction;
+import java.util.concurrent.ConcurrentHashMap;
+import org.HdrHistogram.Histogram;
 
 public class DefaultReadResultCounter implements ReadResultCounter {
 
-  private static final BiFunction<Long, Long, Long> SUM = Long::sum;
+  /** The precision of the sketches estimating distinct partitions: 16 KiB, 0.8% error. */
+  private static final int HLL_PRECISION = 14;
+
+  /** The number of significant digits of the distribution histograms. */
+  private static final int HISTOGRAM_DIGITS = 2;
 
   private final int numPartitions;
   private final ProtocolVersion protocolVersion;
@@ -63,20 +75,32 @@ public class DefaultReadResultCounter implements ReadResultCounter {
   private final Set<TokenRange> allTokenRanges;
   private final Set<EndPoint> allAddresses;
   private final Token[] ring;
+  private final Murmur3TokenRing murmur3Ring;
   private final ReplicaSet[] replicaSets;
+  private final EndPoint[] nodes;
+
+  /** The counting units not closed yet. */
+  private final Set<DefaultCountingUnit> units = ConcurrentHashMap.newKeySet();
 
-  private final CopyOnWriteArrayList<DefaultCountingUnit> units = new CopyOnWriteArrayList<>();
+  /** The counts of all the closed counting units, merged. */
+  private final DefaultCountingUnit closedUnits;
 
   private final boolean countGlobal;
   private final boolean countNodes;
   private final boolean countRanges;
   private final boolean countPartitions;
+  private final boolean countDistribution;
+  private final int[] partitionKeyIndices;
   private final boolean multiCount;
+  private final boolean serverSideCount;
 
   @VisibleForTesting long totalRows;
   @VisibleForTesting Map<TokenRange, Long> totalsByRange;
   @VisibleForTesting Map<EndPoint, Long> totalsByNode;
   @VisibleForTesting List<PartitionKeyCount> totalsByPartitionKey;
+  @VisibleForTesting HyperLogLog distinctPartitions;
+  @VisibleForTesting Histogram rowsPerPartition;
+  @VisibleForTesting Histogram bytesPerRow;
 
   public DefaultReadResultCounter(
       CqlIdentifier keyspace,
@@ -85,6 +109,28 @@ public class DefaultReadResultCounter implements ReadResultCounter {
       int numPartitions,
       ProtocolVersion protocolVersion,
       ConvertingCodecFactory codecFactory) {
+    this(keyspace, metadata, modes, numPartitions, protocolVersion, codecFactory, false, null);
+  }
+
+  /**
+   * @param serverSideCount whether rows are counted server-side; if true, each read result is
+   *     expected to contain one single row with the number of rows in the token range read by its
+   *     statement, and each statement is expected to have a routing token equal to the end of that
+   *     range. Only {@link StatisticsMode#global} and {@link StatisticsMode#ranges} are supported
+   *     in this case.
+   * @param partitionKeyIndices the indices of the partition key columns in each row, in partition
+   *     key order, when counting partitions or their distribution; null if rows only contain the
+   *     partition key.
+   */
+  public DefaultReadResultCounter(
+      CqlIdentifier keyspace,
+      Metadata metadata,
+      EnumSet<StatisticsMode> modes,
+      int numPartitions,
+      ProtocolVersion protocolVersion,
+      ConvertingCodecFactory codecFactory,
+      boolean serverSideCount,
+      @Nullable int[] partitionKeyIndices) {
     this.tokenMap =
         metadata
             .getTokenMap()
@@ -96,8 +142,27 @@ public class DefaultReadResultCounter implements ReadResultCounter {
     countNodes = modes.contains(StatisticsMode.hosts);
     countRanges = modes.contains(StatisticsMode.ranges);
     countPartitions = modes.contains(StatisticsMode.partitions);
+    countDistribution = modes.contains(StatisticsMode.distribution);
+    this.partitionKeyIndices = partitionKeyIndices;
     multiCount = modes.size() > 1;
-    if (countNodes || countRanges) {
+    this.serverSideCount = serverSideCount;
+    if ((countNodes || countRanges) && Murmur3TokenRing.isMurmur3(tokenMap)) {
+      // Fast path for the Murmur3 partitioner: tokens are computed and located as primitive
+      // longs; 'replicaSets' is indexed by range index in the ring.
+      murmur3Ring = new Murmur3TokenRing(tokenMap, keyspace);
+      ring = null;
+      replicaSets = new ReplicaSet[murmur3Ring.size()];
+      Map<EndPoint, Integer> nodeIndices = nodeIndices(metadata);
+      for (int i = 0; i < replicaSets.length; i++) {
+        replicaSets[i] =
+            new ReplicaSet(murmur3Ring.getRange(i), murmur3Ring.getReplicas(i), nodeIndices);
+      }
+      nodes = nodeIndices.keySet().toArray(new EndPoint[0]);
+      Set<TokenRange> ranges = tokenMap.getTokenRanges();
+      allTokenRanges = countRanges ? new TreeSet<>(ranges) : null;
+      allAddresses = countNodes ? allAddresses(metadata) : null;
+    } else if (countNodes || countRanges) {
+      murmur3Ring = null;
       // Store required metadata in two data structures that will speed up lookups by token:
       // 1) 'ring' stores the range start tokens of all ranges, contents are identical to
       // metadata.tokenMap.ring and are designed to allow binary searches by token.
@@ -112,12 +177,14 @@ public class DefaultReadResultCounter implements ReadResultCounter {
       int i = 0;
       Map<Token, TokenRange> rangesByEndingToken =
           ranges.stream().collect(toMap(TokenRange::getEnd, identity()));
+      Map<EndPoint, Integer> nodeIndices = nodeIndices(metadata);
       for (TokenRange r1 : ranges) {
         ring[i] = r1.getStart();
         TokenRange r2 = rangesByEndingToken.get(r1.getStart());
-        replicaSets[i] = new ReplicaSet(r2, tokenMap.getReplicas(keyspace, r2));
+        replicaSets[i] = new ReplicaSet(r2, tokenMap.getReplicas(keyspace, r2), nodeIndices);
         i++;
       }
+      nodes = nodeIndices.keySet().toArray(new EndPoint[0]);
       // 'allTokenRanges' and 'allAddresses' are sorted structures that will only serve when
       // printing final totals.
       if (countRanges) {
@@ -126,17 +193,37 @@ public class DefaultReadResultCounter implements ReadResultCounter {
         allTokenRanges = null;
       }
       if (countNodes) {
-        allAddresses = new TreeSet<>(Comparator.comparing(EndPoint::toString));
-        metadata.getNodes().values().stream().map(Node::getEndPoint).forEach(allAddresses::add);
+        allAddresses = allAddresses(metadata);
       } else {
         allAddresses = null;
       }
     } else {
+      murmur3Ring = null;
       ring = null;
       replicaSets = null;
+      nodes = null;
       allTokenRanges = null;
       allAddresses = null;
     }
+    closedUnits = new DefaultCountingUnit();
+  }
+
+  /**
+   * Assigns a fixed index to each node of the cluster; nodes only known as replicas, if any, are
+   * assigned an index when the replica sets are created.
+   */
+  private static Map<EndPoint, Integer> nodeIndices(Metadata metadata) {
+    Map<EndPoint, Integer> nodeIndices = new LinkedHashMap<>();
+    for (Node node : metadata.getNodes().values()) {
+      nodeIndices.putIfAbsent(node.getEndPoint(), nodeIndices.size());
+    }
+    return nodeIndices;
+  }
+
+  private static Set<EndPoint> allAddresses(Metadata metadata) {
+    Set<EndPoint> allAddresses = new TreeSet<>(Comparator.comparing(EndPoint::toString));
+    metadata.getNodes().values().stream().map(Node::getEndPoint).forEach(allAddresses::add);
+    return allAddresses;
   }
 
   @Override
@@ -151,29 +238,68 @@ public class DefaultReadResultCounter implements ReadResultCounter {
     consolidateUnitCounts();
   }
 
+  /**
+   * Computes the totals from the counts of the closed counting units, merged so far, and from the
+   * counts of the units not closed yet.
+   */
   @VisibleForTesting
-  void consolidateUnitCounts() {
-    totalRows = 0;
+  synchronized void consolidateUnitCounts() {
+    DefaultCountingUnit totals = new DefaultCountingUnit();
+    closedUnits.mergeInto(totals);
+    for (DefaultCountingUnit unit : units) {
+      unit.rotatePk();
+      unit.mergeInto(totals);
+    }
+    totalRows = totals.total;
     totalsByRange = new HashMap<>();
+    for (int i = 0; i < totals.totalsByRange.length; i++) {
+      if (totals.totalsByRange[i] > 0) {
+        totalsByRange.put(replicaSets[i].range, totals.totalsByRange[i]);
+      }
+    }
     totalsByNode = new HashMap<>();
-    totalsByPartitionKey = new ArrayList<>();
-    for (DefaultCountingUnit unit : units) {
-      unit.close();
-      totalRows += unit.total;
-      unit.totalsByNode.forEach((key, value) -> totalsByNode.merge(key, value, SUM));
-      unit.totalsByRange.forEach((key, value) -> totalsByRange.merge(key, value, SUM));
-      totalsByPartitionKey.addAll(unit.totalsByPartitionKey);
+    for (int i = 0; i < totals.totalsByNode.length; i++) {
+      if (totals.totalsByNode[i] > 0) {
+        totalsByNode.put(nodes[i], totals.totalsByNode[i]);
+      }
     }
+    totalsByPartitionKey = new ArrayList<>(totals.totalsByPartitionKey);
     totalsByPartitionKey.sort(Collections.reverseOrder());
-    totalsByPartitionKey =
-        totalsByPartitionKey.size() > numPartitions
-            ? totalsByPartitionKey.subList(0, numPartitions)
-            : totalsByPartitionKey;
+    if (countDistribution) {
+      distinctPartitions = totals.partitionsSketch;
+      rowsPerPartition = totals.rowsPerPartition;
+      bytesPerRow = totals.bytesPerRow;
+    }
+  }
+
+  /**
+   * Offers the given count to the given min-heap of the biggest partitions, evicting the smallest
+   * one if the heap grows past {@link #numPartitions} elements.
+   */
+  private void offer(PriorityQueue<PartitionKeyCount> topPartitions, PartitionKeyCount pkc) {
+    // Include the count if
+    // 1) it's bigger than the lowest count in the heap, or
+    // 2) if the heap is not full yet.
+    if (topPartitions.size() < numPartitions || pkc.count > topPartitions.peek().count) {
+      topPartitions.add(pkc);
+      if (topPartitions.size() > numPartitions) {
+        topPartitions.poll();
+      }
+    }
+  }
+
+  /** @return the index in each row of the i-th partition key column. */
+  private int columnIndex(int i) {
+    return partitionKeyIndices == null ? i : partitionKeyIndices[i];
   }
 
   @Override
   public void reportTotals() {
-    PrintStream out = System.out;
+    reportTotals(System.out);
+  }
+
+  @Override
+  public void reportTotals(@NonNull PrintStream out) {
     if (countGlobal) {
       if (multiCount) {
         out.println("Total rows:");
@@ -217,6 +343,27 @@ public class DefaultReadResultCounter implements ReadResultCounter {
             out.printf("%s %d %.2f%n", count.pk, count.count, percentage);
           });
     }
+    if (countDistribution) {
+      if (multiCount) {
+        out.println("Partition distribution:");
+      }
+      out.printf("partitions %d%n", distinctPartitions.estimate());
+      printDistribution(out, "rows_per_partition", rowsPerPartition);
+      printDistribution(out, "bytes_per_row", bytesPerRow);
+    }
+  }
+
+  private static void printDistribution(PrintStream out, String name, Histogram histogram) {
+    out.printf(
+        "%s %d %.2f %d %d %d %d %d%n",
+        name,
+        histogram.getTotalCount() == 0 ? 0 : histogram.getMinValue(),
+        histogram.getTotalCount() == 0 ? 0 : histogram.getMean(),
+        histogram.getValueAtPercentile(50),
+        histogram.getValueAtPercentile(90),
+        histogram.getValueAtPercentile(99),
+        histogram.getValueAtPercentile(99.9),
+        histogram.getMaxValue());
   }
 
   /**
@@ -225,60 +372,99 @@ public class DefaultReadResultCounter implements ReadResultCounter {
    * <p>Each counting unit is meant to be accessed by one single thread at a time, and thus its
    * internals do not require synchronization or concurrent structures.
    *
-   * <p>Each thread/counting unit counts its own portion of the result set, then at the end, their
-   * results are consolidated.
+   * <p>Each thread/counting unit counts its own portion of the result set. When closed, its counts
+   * are merged into the counts of the closed units, and it is released, so that only the units in
+   * use hold sketches and histograms.
    */
   @VisibleForTesting
   class DefaultCountingUnit implements CountingUnit {
 
     long total = 0;
-    final Map<TokenRange, Long> totalsByRange = new HashMap<>();
-    final Map<EndPoint, Long> totalsByNode = new HashMap<>();
-    final List<PartitionKeyCount> totalsByPartitionKey = new ArrayList<>(numPartitions + 1);
+
+    /** Counts by range, indexed like {@link #replicaSets}. */
+    final long[] totalsByRange = new long[countRanges ? replicaSets.length : 0];
+
+    /** Counts by node, indexed like {@link #nodes}. */
+    final long[] totalsByNode = new long[countNodes ? nodes.length : 0];
+
+    /** A min-heap of the biggest partitions counted so far. */
+    final PriorityQueue<PartitionKeyCount> totalsByPartitionKey =
+        new PriorityQueue<>(numPartitions + 1);
+
+    /** Sketches and histograms of the partitions counted so far, when counting distribution. */
+    final HyperLogLog partitionsSketch = countDistribution ? new HyperLogLog(HLL_PRECISION) : null;
+
+    final Histogram rowsPerPartition = countDistribution ? new Histogram(HISTOGRAM_DIGITS) : null;
+    final Histogram bytesPerRow = countDistribution ? new Histogram(HISTOGRAM_DIGITS) : null;
+
     long currentPkCount = 0;
     PartitionKey currentPk;
+    long pkSequence = 0;
 
     @Override
     public void update(ReadResult result) {
       Row row = result.getRow().orElseThrow(IllegalStateException::new);
+      if (serverSideCount) {
+        updateServerSideCount(result, row);
+        return;
+      }
       // First compute the partition key and the token for this row.
+      // With the Murmur3 partitioner, only the index of the token's range is computed.
       Token token = null;
+      int rangeIndex = -1;
       PartitionKey pk = null;
-      if (countPartitions) {
+      if (countPartitions || countDistribution) {
         // When counting partitions, the result set is expected to contain
-        // the row's partition key, in proper order
-        int size = row.getColumnDefinitions().size();
+        // the row's partition key, in proper order, unless the indices of its columns are known
+        int size =
+            partitionKeyIndices != null
+                ? partitionKeyIndices.length
+                : row.getColumnDefinitions().size();
         ByteBuffer[] bbs = new ByteBuffer[size];
         for (int i = 0; i < size; i++) {
-          bbs[i] = row.getBytesUnsafe(i);
+          bbs[i] = row.getBytesUnsafe(columnIndex(i));
         }
         if (countRanges || countNodes) {
           // compute the token client-side from the partition keys
-          token = tokenMap.newToken(bbs);
+          if (murmur3Ring != null) {
+            rangeIndex = murmur3Ring.rangeIndex(Murmur3BulkTokenFactory.murmur3(bbs));
+          } else {
+            token = tokenMap.newToken(bbs);
+          }
         }
         pk = new PartitionKey(row.getColumnDefinitions(), bbs);
       } else if (countRanges || countNodes) {
         // When counting hosts or ranges, without counting partitions,
         // the result set is expected to contain one single column containing
         // the partition key's token
-        token = row.getToken(0);
+        if (murmur3Ring != null) {
+          // Murmur3 tokens are bigints
+          rangeIndex = murmur3Ring.rangeIndex(row.getLong(0));
+        } else {
+          token = row.getToken(0);
+        }
       }
       // Then increment required counters.
       // Note: we need to always increment the global counter because it's used to compute
       // percentages for other stats.
       total++;
       if (countRanges || countNodes) {
-        ReplicaSet replicaSet = getReplicaSet(token);
+        if (murmur3Ring == null) {
+          rangeIndex = getRangeIndex(token);
+        }
         if (countRanges) {
-          totalsByRange.merge(replicaSet.range, 1L, SUM);
+          totalsByRange[rangeIndex]++;
         }
         if (countNodes) {
-          for (EndPoint address : replicaSet.addresses) {
-            totalsByNode.merge(address, 1L, SUM);
+          for (int nodeIndex : replicaSets[rangeIndex].nodeIndices) {
+            totalsByNode[nodeIndex]++;
           }
         }
       }
-      if (countPartitions) {
+      if (countDistribution) {
+        bytesPerRow.recordValue(DataSizes.getDataSize(row));
+      }
+      if (countPartitions || countDistribution) {
         if (currentPk == null) {
           currentPk = pk;
         }
@@ -298,16 +484,60 @@ public class DefaultReadResultCounter implements ReadResultCounter {
 
     @Override
     public void close() {
-      rotatePk();
+      synchronized (DefaultReadResultCounter.this) {
+        if (units.remove(this)) {
+          rotatePk();
+          mergeInto(closedUnits);
+        }
+      }
+    }
+
+    /** Adds the counts of this unit to the given unit. */
+    void mergeInto(DefaultCountingUnit target) {
+      target.total += total;
+      for (int i = 0; i < totalsByRange.length; i++) {
+        target.totalsByRange[i] += totalsByRange[i];
+      }
+      for (int i = 0; i < totalsByNode.length; i++) {
+        target.totalsByNode[i] += totalsByNode[i];
+      }
+      for (PartitionKeyCount pkc : totalsByPartitionKey) {
+        offer(target.totalsByPartitionKey, pkc);
+      }
+      if (countDistribution) {
+        target.partitionsSketch.merge(partitionsSketch);
+        target.rowsPerPartition.add(rowsPerPartition);
+        target.bytesPerRow.add(bytesPerRow);
+      }
+    }
+
+    /**
+     * Adds the count computed server-side for the token range read by the result's statement. The
+     * range is located by the statement's routing token, which is the range's end token.
+     */
+    private void updateServerSideCount(ReadResult result, Row row) {
+      long count = row.getLong(0);
+      total += count;
+      if (countRanges) {
+        Token end = result.getStatement().getRoutingToken();
+        if (end == null) {
+          throw new IllegalStateException("Cannot count ranges: statement has no routing token");
+        }
+        int rangeIndex =
+            murmur3Ring != null
+                ? murmur3Ring.rangeIndex(((Murmur3Token) end).getValue())
+                : getRangeIndex(end);
+        totalsByRange[rangeIndex] += count;
+      }
     }
 
     /**
-     * Locate the end token of the range containing the given token then use it to lookup the entire
-     * range and its replicas. This search is identical to the search performed by
+     * Locate the end token of the range containing the given token then return its index in
+     * 'replicaSets'. This search is identical to the search performed by
      * Metadata.TokenMap.getReplicas(String keyspace, Token token). Only used when counting ranges
      * or nodes.
      */
-    private ReplicaSet getReplicaSet(Token token) {
+    private int getRangeIndex(Token token) {
       assert ring != null;
       assert replicaSets != null;
       int i = Arrays.binarySearch(ring, token);
@@ -317,34 +547,35 @@ public class DefaultReadResultCounter implements ReadResultCounter {
           i = 0;
         }
       }
-      return replicaSets[i];
+      return i;
     }
 
     /**
      * Computes the total for the current partition key, stores it in 'totalsByPartitionKey' if the
-     * count is big enough to be included, otherwise discards it.
+     * count is big enough to be included, otherwise discards it; also records the partition in the
+     * distribution sketches, if required.
      */
     void rotatePk() {
       if (currentPk != null) {
-        long lowestPkCount = totalsByPartitionKey.isEmpty() ? 0 : totalsByPartitionKey.get(0).count;
-        // Include the count if
-        // 1) it's count is bigger than the lowest count in the list, or
-        // 2) if the list is not full yet.
-        if (currentPkCount > lowestPkCount || totalsByPartitionKey.size() < numPartitions) {
-          PartitionKeyCount pkc = new PartitionKeyCount(currentPk, currentPkCount);
-          int pos = Collections.binarySearch(totalsByPartitionKey, pkc);
-          if (pos < 0) {
-            pos = -pos - 1;
-          }
-          totalsByPartitionKey.add(pos, pkc);
-          // If this addition caused the list to grow past the max, remove the lowest element.
-          if (totalsByPartitionKey.size() > numPartitions) {
-            totalsByPartitionKey.remove(0);
-          }
+        if (countPartitions) {
+          offer(
+              totalsByPartitionKey, new PartitionKeyCount(currentPk, currentPkCount, pkSequence++));
+        }
+        if (countDistribution) {
+          partitionsSketch.add(Murmur3BulkTokenFactory.murmur3(currentPk.components));
+          rowsPerPartition.recordValue(currentPkCount);
         }
         currentPk = null;
       }
     }
+
+    /** @return the biggest partitions counted so far, in ascending order. */
+    @VisibleForTesting
+    List<PartitionKeyCount> sortedTotalsByPartitionKey() {
+      List<PartitionKeyCount> sorted = new ArrayList<>(totalsByPartitionKey);
+      Collections.sort(sorted);
+      return sorted;
+    }
   }
 
   @VisibleForTesting
@@ -359,7 +590,7 @@ public class DefaultReadResultCounter implements ReadResultCounter {
       hashCode = Arrays.hashCode(components);
       types = new DataType[components.length];
       for (int i = 0; i < components.length; i++) {
-        types[i] = definitions.get(i).getType();
+        types[i] = definitions.get(columnIndex(i)).getType();
       }
     }
 
@@ -405,25 +636,37 @@ public class DefaultReadResultCounter implements ReadResultCounter {
     final PartitionKey pk;
     final long count;
 
-    PartitionKeyCount(PartitionKey pk, long currentCount) {
+    /**
+     * The order in which the count was computed by its counting unit; among equal counts, the most
+     * recent ones are considered the lowest, and are evicted first.
+     */
+    final long sequence;
+
+    PartitionKeyCount(PartitionKey pk, long currentCount, long sequence) {
       this.pk = pk;
       count = currentCount;
+      this.sequence = sequence;
     }
 
     @Override
     public int compareTo(@NonNull DefaultReadResultCounter.PartitionKeyCount that) {
-      return Long.compare(this.count, that.count);
+      int cmp = Long.compare(this.count, that.count);
+      return cmp != 0 ? cmp : Long.compare(that.sequence, this.sequence);
     }
   }
 
   private static class ReplicaSet {
 
     final TokenRange range;
-    final EndPoint[] addresses;
+    final int[] nodeIndices;
 
-    ReplicaSet(TokenRange range, Set<Node> addresses) {
+    ReplicaSet(TokenRange range, Set<Node> replicas, Map<EndPoint, Integer> nodeIndices) {
       this.range = range;
-      this.addresses = addresses.stream().map(Node::getEndPoint).toArray(EndPoint[]::new);
+      this.nodeIndices =
+          replicas.stream()
+              .map(Node::getEndPoint)
+              .mapToInt(address -> nodeIndices.computeIfAbsent(address, k -> nodeIndices.size()))
+              .toArray();
     }
   }
 }
@@ -66,8 +66,17 @@ public class DefaultReadResultMapper implements ReadResultMapper {
           GenericType<?> fieldType = null;
           try {
             fieldType = recordMetadata.getFieldType(field, cqlType);
-            TypeCodec<?> codec = mapping.codec(variable, cqlType, fieldType);
-            Object value = row.get(name, codec);
+            Object value;
+            if (RecordMetadata.isRawBytes(fieldType)) {
+              // the connector stores serialized values as is
+              value = row.getBytesUnsafe(name);
+            } else if (RecordMetadata.isPlainValues(fieldType)) {
+              // the connector converts values decoded by the driver itself
+              value = row.getObject(name);
+            } else {
+              TypeCodec<?> codec = mapping.codec(variable, cqlType, fieldType);
+              value = row.get(name, codec);
+            }
             record.setFieldValue(field, value);
           } catch (Exception e) {
             String msg =
@@ -33,9 +33,12 @@ import com.datastax.oss.driver.api.core.type.reflect.GenericType;
 import com.datastax.oss.driver.shaded.guava.common.annotations.VisibleForTesting;
 import com.datastax.oss.driver.shaded.guava.common.collect.ImmutableMap;
 import com.datastax.oss.driver.shaded.guava.common.collect.ImmutableSet;
+import com.datastax.oss.driver.shaded.guava.common.primitives.Ints;
+import com.datastax.oss.dsbulk.connectors.api.ArrayBackedRecord;
 import com.datastax.oss.dsbulk.connectors.api.Field;
 import com.datastax.oss.dsbulk.connectors.api.Record;
 import com.datastax.oss.dsbulk.connectors.api.RecordMetadata;
+import com.datastax.oss.dsbulk.connectors.api.RecordShape;
 import com.datastax.oss.dsbulk.mapping.CQLWord;
 import com.datastax.oss.dsbulk.mapping.InvalidMappingException;
 import com.datastax.oss.dsbulk.mapping.Mapping;
@@ -46,10 +49,12 @@ import edu.umd.cs.findbugs.annotations.Nullable;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.function.Function;
 
 public class DefaultRecordMapper implements RecordMapper {
@@ -64,7 +69,11 @@ public class DefaultRecordMapper implements RecordMapper {
   private final boolean allowExtraFields;
   private final boolean allowMissingFields;
   private final Function<PreparedStatement, BoundStatementBuilder> boundStatementBuilderFactory;
-  private final ImmutableMap<CQLWord, List<Integer>> variablesToIndices;
+  private final ImmutableMap<CQLWord, int[]> variablesToIndices;
+  private final ConcurrentMap<RecordShape, BindingPlan> bindingPlans = new ConcurrentHashMap<>();
+
+  /** The plan of the last shape seen, to avoid a map lookup when all records share a shape. */
+  private volatile BindingPlan lastPlan;
 
   public DefaultRecordMapper(
       PreparedStatement insertStatement,
@@ -118,25 +127,11 @@ public class DefaultRecordMapper implements RecordMapper {
   @Override
   public BatchableStatement<?> map(@NonNull Record record) {
     try {
-      if (!allowMissingFields) {
-        ensureAllFieldsPresent(record.fields());
-      }
-      BoundStatementBuilder builder = boundStatementBuilderFactory.apply(insertStatement);
-      ColumnDefinitions variableDefinitions = insertStatement.getVariableDefinitions();
-      for (Field field : record.fields()) {
-        Set<CQLWord> variables = mapping.fieldToVariables(field);
-        if (!variables.isEmpty()) {
-          for (CQLWord variable : variables) {
-            CqlIdentifier name = variable.asIdentifier();
-            DataType cqlType = variableDefinitions.get(name).getType();
-            GenericType<?> fieldType = recordMetadata.getFieldType(field, cqlType);
-            Object raw = record.getFieldValue(field);
-            builder = bindColumn(builder, variable, raw, cqlType, fieldType);
-          }
-        } else if (!allowExtraFields) {
-          // the field wasn't mapped to any known variable
-          throw InvalidMappingException.extraneousField(field);
-        }
+      BoundStatementBuilder builder;
+      if (record instanceof ArrayBackedRecord) {
+        builder = bindArrayBackedRecord((ArrayBackedRecord) record);
+      } else {
+        builder = bindRecord(record);
       }
       ensurePrimaryKeySet(builder);
       if (protocolVersion.getCode() < DefaultProtocolVersion.V4.getCode()) {
@@ -150,56 +145,151 @@ public class DefaultRecordMapper implements RecordMapper {
     }
   }
 
+  /**
+   * Binds a record of any kind. All field-to-variable bindings are resolved for each record; this
+   * is required for records that do not share a common structure, e.g. JSON records.
+   */
+  private BoundStatementBuilder bindRecord(Record record) {
+    if (!allowMissingFields) {
+      ensureAllFieldsPresent(record.fields());
+    }
+    BoundStatementBuilder builder = boundStatementBuilderFactory.apply(insertStatement);
+    ColumnDefinitions variableDefinitions = insertStatement.getVariableDefinitions();
+    for (Field field : record.fields()) {
+      Set<CQLWord> variables = mapping.fieldToVariables(field);
+      if (!variables.isEmpty()) {
+        for (CQLWord variable : variables) {
+          CqlIdentifier name = variable.asIdentifier();
+          DataType cqlType = variableDefinitions.get(name).getType();
+          GenericType<?> fieldType = recordMetadata.getFieldType(field, cqlType);
+          Object raw = record.getFieldValue(field);
+          builder = bindColumn(builder, variable, raw, cqlType, fieldType);
+        }
+      } else if (!allowExtraFields) {
+        // the field wasn't mapped to any known variable
+        throw InvalidMappingException.extraneousField(field);
+      }
+    }
+    return builder;
+  }
+
+  /**
+   * Binds a record whose fields are described by a shared {@link RecordShape}, using a binding plan
+   * compiled once per shape.
+   */
+  private BoundStatementBuilder bindArrayBackedRecord(ArrayBackedRecord record) {
+    RecordShape shape = record.getShape();
+    BindingPlan plan = lastPlan;
+    if (plan == null || plan.shape != shape) {
+      plan = bindingPlans.computeIfAbsent(shape, BindingPlan::new);
+      lastPlan = plan;
+    }
+    if (plan.missingFields) {
+      // will throw
+      ensureAllFieldsPresent(shape.fields());
+    }
+    BoundStatementBuilder builder = boundStatementBuilderFactory.apply(insertStatement);
+    ProtocolVersion version = builder.protocolVersion();
+    for (int i = 0; i < plan.size; i++) {
+      Object value = record.getFieldValue(plan.valueIndices[i]);
+      TypeCodec<Object> codec = plan.codecs[i];
+      ByteBuffer bb = codec == null ? rawBytes(value) : codec.encode(value, version);
+      builder =
+          bindBytes(
+              builder,
+              plan.variables[i],
+              bb,
+              plan.emptyIsNull[i],
+              plan.partitionKey[i],
+              plan.clusteringColumn[i],
+              plan.indices[i]);
+    }
+    if (plan.extraneousField != null) {
+      throw InvalidMappingException.extraneousField(plan.extraneousField);
+    }
+    return builder;
+  }
+
   private <T> BoundStatementBuilder bindColumn(
       BoundStatementBuilder builder,
       CQLWord variable,
       @Nullable T raw,
       DataType cqlType,
       GenericType<? extends T> javaType) {
-    TypeCodec<T> codec = mapping.codec(variable, cqlType, javaType);
-    ByteBuffer bb = codec.encode(raw, builder.protocolVersion());
-    boolean isNull = isNull(bb, cqlType);
-    if (isNull || isEmpty(bb)) {
-      if (partitionKeyVariables.contains(variable)) {
+    ByteBuffer bb;
+    if (RecordMetadata.isRawBytes(javaType)) {
+      bb = rawBytes(raw);
+    } else {
+      TypeCodec<T> codec = mapping.codec(variable, cqlType, javaType);
+      bb = codec.encode(raw, builder.protocolVersion());
+    }
+    return bindBytes(
+        builder,
+        variable,
+        bb,
+        emptyIsNull(cqlType),
+        partitionKeyVariables.contains(variable),
+        clusteringColumnVariables.contains(variable),
+        variablesToIndices.get(variable));
+  }
+
+  /** Returns the given value, that is expected to be already serialized, as is. */
+  @Nullable
+  private static ByteBuffer rawBytes(@Nullable Object value) {
+    if (value == null || value instanceof ByteBuffer) {
+      return (ByteBuffer) value;
+    }
+    throw new IllegalArgumentException(
+        String.format(
+            "Expecting serialized value of type %s, got %s",
+            ByteBuffer.class.getName(), value.getClass().getName()));
+  }
+
+  private BoundStatementBuilder bindBytes(
+      BoundStatementBuilder builder,
+      CQLWord variable,
+      @Nullable ByteBuffer bb,
+      boolean emptyIsNull,
+      boolean partitionKey,
+      boolean clusteringColumn,
+      int[] indices) {
+    boolean isNull = bb == null || (emptyIsNull && !bb.hasRemaining());
+    if (isNull || !bb.hasRemaining()) {
+      if (partitionKey) {
         throw isNull
             ? InvalidMappingException.nullPrimaryKey(variable)
             : InvalidMappingException.emptyPrimaryKey(variable);
       }
     }
     if (isNull) {
-      if (clusteringColumnVariables.contains(variable)) {
+      if (clusteringColumn) {
         throw InvalidMappingException.nullPrimaryKey(variable);
       }
       if (nullToUnset) {
         return builder;
       }
     }
-    for (int index : variablesToIndices.get(variable)) {
+    for (int index : indices) {
       builder = builder.setBytesUnsafe(index, bb);
     }
     return builder;
   }
 
-  private boolean isNull(ByteBuffer bb, DataType cqlType) {
-    if (bb == null) {
-      return true;
-    }
+  /**
+   * Whether zero-length buffers should be considered as nulls for the given CQL type; this is not
+   * the case for CQL types that accept empty values.
+   */
+  private static boolean emptyIsNull(DataType cqlType) {
     switch (cqlType.getProtocolCode()) {
       case VARCHAR:
       case ASCII:
       case BLOB:
-        // zero-length buffers should not be considered as nulls for
-        // these CQL types.
         return false;
       default:
-        return !bb.hasRemaining();
+        return true;
     }
   }
 
-  private boolean isEmpty(ByteBuffer bb) {
-    return bb == null || !bb.hasRemaining();
-  }
-
   private void ensureAllFieldsPresent(Set<Field> recordFields) {
     ColumnDefinitions variables = insertStatement.getVariableDefinitions();
     for (int i = 0; i < variables.size(); i++) {
@@ -240,14 +330,106 @@ public class DefaultRecordMapper implements RecordMapper {
     }
   }
 
-  private ImmutableMap<CQLWord, List<Integer>> buildVariablesToIndices() {
-    Map<CQLWord, List<Integer>> variablesToIndices = new HashMap<>();
+  private ImmutableMap<CQLWord, int[]> buildVariablesToIndices() {
+    Map<CQLWord, List<Integer>> variablesToIndices = new LinkedHashMap<>();
     ColumnDefinitions variables = insertStatement.getVariableDefinitions();
     for (int i = 0; i < variables.size(); i++) {
       CQLWord name = CQLWord.fromCqlIdentifier(variables.get(i).getName());
       List<Integer> indices = variablesToIndices.computeIfAbsent(name, k -> new ArrayList<>());
       indices.add(i);
     }
-    return ImmutableMap.copyOf(variablesToIndices);
+    ImmutableMap.Builder<CQLWord, int[]> builder = ImmutableMap.builder();
+    variablesToIndices.forEach((name, indices) -> builder.put(name, Ints.toArray(indices)));
+    return builder.build();
+  }
+
+  /**
+   * A binding plan for records of a given {@link RecordShape}.
+   *
+   * <p>The plan contains one entry per (field, variable) pair, in field order. Everything that does
+   * not depend on actual record values is resolved once when the plan is compiled: the position of
+   * the field value, the codec to use, the indices to bind and whether the variable is part of the
+   * primary key. Binding a record then boils down to encoding each value and setting the resulting
+   * bytes. Fields containing {@linkplain RecordMetadata#RAW_BYTES raw bytes} have no codec, their
+   * values are bound as is.
+   */
+  private class BindingPlan {
+
+    private final RecordShape shape;
+    private final int size;
+    private final int[] valueIndices;
+    private final CQLWord[] variables;
+    /** The codec of each entry, or null if the field contains raw bytes. */
+    private final TypeCodec<Object>[] codecs;
+
+    private final boolean[] emptyIsNull;
+    private final boolean[] partitionKey;
+    private final boolean[] clusteringColumn;
+    private final int[][] indices;
+
+    /**
+     * The first field not mapped to any variable, if extra fields are not allowed. Fields that come
+     * before it are still bound, so that errors are reported in the same order as for other
+     * records.
+     */
+    @Nullable private final Field extraneousField;
+
+    /** Whether records of this shape lack a field required by the mapping. */
+    private final boolean missingFields;
+
+    @SuppressWarnings("unchecked")
+    private BindingPlan(RecordShape shape) {
+      this.shape = shape;
+      ColumnDefinitions variableDefinitions = insertStatement.getVariableDefinitions();
+      List<Integer> valueIndices = new ArrayList<>();
+      List<CQLWord> variables = new ArrayList<>();
+      List<TypeCodec<Object>> codecs = new ArrayList<>();
+      Field extraneousField = null;
+      for (int i = 0; i < shape.getFieldCount(); i++) {
+        Field field = shape.getField(i);
+        Set<CQLWord> fieldVariables = mapping.fieldToVariables(field);
+        if (fieldVariables.isEmpty() && !allowExtraFields) {
+          extraneousField = field;
+          break;
+        }
+        for (CQLWord variable : fieldVariables) {
+          DataType cqlType = variableDefinitions.get(variable.asIdentifier()).getType();
+          GenericType<?> fieldType = recordMetadata.getFieldType(field, cqlType);
+          valueIndices.add(shape.getValueIndex(i));
+          variables.add(variable);
+          // raw values are bound as is, without codec
+          codecs.add(
+              RecordMetadata.isRawBytes(fieldType)
+                  ? null
+                  : mapping.codec(variable, cqlType, (GenericType<Object>) fieldType));
+        }
+      }
+      this.extraneousField = extraneousField;
+      size = variables.size();
+      this.valueIndices = Ints.toArray(valueIndices);
+      this.variables = variables.toArray(new CQLWord[0]);
+      this.codecs = codecs.toArray(new TypeCodec[0]);
+      emptyIsNull = new boolean[size];
+      partitionKey = new boolean[size];
+      clusteringColumn = new boolean[size];
+      indices = new int[size][];
+      for (int i = 0; i < size; i++) {
+        CQLWord variable = this.variables[i];
+        emptyIsNull[i] = emptyIsNull(variableDefinitions.get(variable.asIdentifier()).getType());
+        partitionKey[i] = partitionKeyVariables.contains(variable);
+        clusteringColumn[i] = clusteringColumnVariables.contains(variable);
+        indices[i] = variablesToIndices.get(variable);
+      }
+      missingFields = !allowMissingFields && !allFieldsPresent(shape.fields());
+    }
+
+    private boolean allFieldsPresent(Set<Field> recordFields) {
+      try {
+        ensureAllFieldsPresent(recordFields);
+        return true;
+      } catch (InvalidMappingException e) {
+        return false;
+      }
+    }
   }
 }
@@ -16,16 +16,32 @@
 package com.datastax.oss.dsbulk.workflow.commons.schema;
 
 import com.datastax.oss.dsbulk.executor.api.result.ReadResult;
+import edu.umd.cs.findbugs.annotations.NonNull;
 import java.io.IOException;
+import java.io.PrintStream;
 
 public interface ReadResultCounter extends AutoCloseable {
 
   CountingUnit newCountingUnit();
 
-  void reportTotals() throws IOException;
+  /** Prints the totals to the standard output. */
+  default void reportTotals() throws IOException {
+    reportTotals(System.out);
+  }
+
+  /** Prints the totals to the given stream. */
+  void reportTotals(@NonNull PrintStream out) throws IOException;
 
   interface CountingUnit extends AutoCloseable {
 
     void update(ReadResult result);
+
+    /**
+     * Merges the counts of this unit into the totals, and releases it. Units should be closed as
+     * soon as the results they count are all read; units not closed are merged when the counter is
+     * closed.
+     */
+    @Override
+    void close();
   }
 }
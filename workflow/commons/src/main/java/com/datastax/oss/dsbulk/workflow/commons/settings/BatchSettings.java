@@ -21,8 +21,12 @@ import com.datastax.oss.dsbulk.batcher.api.BatchMode;
 import com.datastax.oss.dsbulk.batcher.api.ReactiveStatementBatcher;
 import com.datastax.oss.dsbulk.batcher.api.ReactiveStatementBatcherFactory;
 import com.datastax.oss.dsbulk.config.ConfigUtils;
+import com.datastax.oss.dsbulk.workflow.commons.sort.StatementSorter;
 import com.typesafe.config.Config;
 import com.typesafe.config.ConfigException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ServiceLoader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -59,6 +63,9 @@ public class BatchSettings {
   private static final String MAX_SIZE_IN_BYTES = "maxSizeInBytes";
   private static final String MAX_BATCH_STATEMENTS = "maxBatchStatements";
   private static final String BUFFER_SIZE = "bufferSize";
+  private static final String PRESORT = "presort";
+  private static final String PRESORT_MAX_MEMORY = "presortMaxMemory";
+  private static final String PRESORT_DIRECTORY = "presortDirectory";
 
   private final Config config;
 
@@ -66,6 +73,9 @@ public class BatchSettings {
   private long maxSizeInBytes;
   private int maxBatchStatements;
   private int bufferSize;
+  private boolean presort;
+  private long presortMaxMemory;
+  private Path presortDirectory;
 
   public BatchSettings(Config config) {
     this.config = config;
@@ -121,6 +131,33 @@ public class BatchSettings {
                     + "See settings.md for more information.",
                 bufferSize, maxBatchStatements));
       }
+
+      presort = config.getBoolean(PRESORT);
+      if (presort) {
+        if (mode == WorkloadBatchMode.DISABLED) {
+          LOGGER.warn("Batching is disabled, setting batch.presort will be ignored.");
+          presort = false;
+        } else {
+          presortMaxMemory = config.getBytes(PRESORT_MAX_MEMORY);
+          if (presortMaxMemory <= 0) {
+            throw new IllegalArgumentException(
+                String.format(
+                    "Value for batch.presortMaxMemory must be positive, got: %d.",
+                    presortMaxMemory));
+          }
+          if (ConfigUtils.isPathPresentAndNotEmpty(config, PRESORT_DIRECTORY)) {
+            presortDirectory = ConfigUtils.getPath(config, PRESORT_DIRECTORY);
+          } else {
+            presortDirectory = Paths.get(System.getProperty("java.io.tmpdir"));
+          }
+          if (!Files.isDirectory(presortDirectory) || !Files.isWritable(presortDirectory)) {
+            throw new IllegalArgumentException(
+                String.format(
+                    "Value for batch.presortDirectory is not a writable directory: %s.",
+                    presortDirectory));
+          }
+        }
+      }
     } catch (ConfigException e) {
       throw ConfigUtils.convertConfigException(e, "dsbulk.batch");
     }
@@ -134,6 +171,18 @@ public class BatchSettings {
     return bufferSize;
   }
 
+  /** @return whether statements should be sorted by partition before being batched. */
+  public boolean isPresortEnabled() {
+    return presort;
+  }
+
+  public StatementSorter newStatementSorter() {
+    if (!presort) {
+      throw new IllegalStateException("Pre-sorting is disabled");
+    }
+    return new StatementSorter(presortMaxMemory, presortDirectory);
+  }
+
   public ReactiveStatementBatcher newStatementBatcher(CqlSession session) {
     ServiceLoader<ReactiveStatementBatcherFactory> loader =
         ServiceLoader.load(ReactiveStatementBatcherFactory.class);
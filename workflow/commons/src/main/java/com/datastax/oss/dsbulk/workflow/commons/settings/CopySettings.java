@@ -0,0 +1,141 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.dsbulk.workflow.commons.settings;
+
+import com.datastax.oss.driver.api.core.CqlIdentifier;
+import com.datastax.oss.driver.shaded.guava.common.annotations.VisibleForTesting;
+import com.datastax.oss.dsbulk.config.ConfigUtils;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigException;
+import com.typesafe.config.ConfigFactory;
+import com.typesafe.config.ConfigValueFactory;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Settings of the copy workflow, which designate the table to write to. The source table is
+ * designated by the {@linkplain SchemaSettings schema settings}, and its cluster by the {@linkplain
+ * DriverSettings driver settings}.
+ */
+public class CopySettings {
+
+  private static final String KEYSPACE = "keyspace";
+  private static final String TABLE = "table";
+  private static final String DRIVER_CONFIG = "driverConfig";
+
+  private static final String DRIVER_SECTION = "datastax-java-driver";
+
+  private final Config config;
+  private final Config schemaConfig;
+  private final Config deprecatedDriverConfig;
+  private final Config deprecatedContinuousPagingConfig;
+  private final Config driverConfig;
+
+  private String keyspace;
+  private String table;
+  private Path driverConfigFile;
+
+  public CopySettings(
+      Config config,
+      Config schemaConfig,
+      Config deprecatedDriverConfig,
+      Config deprecatedContinuousPagingConfig,
+      Config driverConfig) {
+    this.config = config;
+    this.schemaConfig = schemaConfig;
+    this.deprecatedDriverConfig = deprecatedDriverConfig;
+    this.deprecatedContinuousPagingConfig = deprecatedContinuousPagingConfig;
+    this.driverConfig = driverConfig;
+  }
+
+  public void init() {
+    try {
+      keyspace = config.hasPath(KEYSPACE) ? config.getString(KEYSPACE) : null;
+      table = config.hasPath(TABLE) ? config.getString(TABLE) : null;
+      driverConfigFile =
+          config.hasPath(DRIVER_CONFIG) ? ConfigUtils.getPath(config, DRIVER_CONFIG) : null;
+    } catch (ConfigException e) {
+      throw ConfigUtils.convertConfigException(e, "dsbulk.copy");
+    }
+    if (driverConfigFile != null && !Files.isReadable(driverConfigFile)) {
+      throw new IllegalArgumentException(
+          String.format(
+              "Invalid value for dsbulk.copy.%s: file %s does not exist or is not readable",
+              DRIVER_CONFIG, driverConfigFile));
+    }
+  }
+
+  /**
+   * Whether the target table is on the source cluster, i.e. whether no driver configuration was
+   * provided for the target cluster.
+   */
+  public boolean isSameCluster() {
+    return driverConfigFile == null;
+  }
+
+  /**
+   * Creates the driver settings of the target cluster: the settings found in the target driver
+   * configuration file, if any, complemented by the driver settings of the source cluster.
+   */
+  @NonNull
+  public DriverSettings newTargetDriverSettings() {
+    Config targetConfig = driverConfig;
+    if (driverConfigFile != null) {
+      Config fileConfig = ConfigFactory.parseFile(driverConfigFile.toFile());
+      if (fileConfig.hasPath(DRIVER_SECTION)) {
+        targetConfig = fileConfig.getConfig(DRIVER_SECTION).withFallback(targetConfig);
+      }
+    }
+    return new DriverSettings(
+        deprecatedDriverConfig, deprecatedContinuousPagingConfig, targetConfig);
+  }
+
+  /**
+   * Creates the schema settings of the target table. The target table has the configured keyspace
+   * and name, or the ones of the source table; all other schema settings, such as the mapping, are
+   * the same as the source's, except the query, which is generated.
+   *
+   * @param sourceKeyspace The keyspace of the source table.
+   * @param sourceTable The name of the source table.
+   */
+  @NonNull
+  public SchemaSettings newTargetSchemaSettings(
+      @NonNull CqlIdentifier sourceKeyspace, @NonNull CqlIdentifier sourceTable) {
+    return new SchemaSettings(createTargetSchemaConfig(sourceKeyspace, sourceTable));
+  }
+
+  @NonNull
+  @VisibleForTesting
+  Config createTargetSchemaConfig(
+      @NonNull CqlIdentifier sourceKeyspace, @NonNull CqlIdentifier sourceTable) {
+    return schemaConfig
+        .withoutPath("query")
+        .withoutPath("graph")
+        .withoutPath("vertex")
+        .withoutPath("edge")
+        .withoutPath("from")
+        .withoutPath("to")
+        .withValue(KEYSPACE, ConfigValueFactory.fromAnyRef(orDefault(keyspace, sourceKeyspace)))
+        .withValue(TABLE, ConfigValueFactory.fromAnyRef(orDefault(table, sourceTable)));
+  }
+
+  @NonNull
+  private static String orDefault(@Nullable String name, @NonNull CqlIdentifier defaultName) {
+    return name == null ? defaultName.asInternal() : name;
+  }
+}
@@ -26,6 +26,7 @@ public class EngineSettings {
   private static final String DRY_RUN = "dryRun";
   private static final String EXECUTION_ID = "executionId";
   private static final String MAX_CONCURRENT_QUERIES = "maxConcurrentQueries";
+  private static final String MAX_CONCURRENT_QUERIES_PER_NODE = "maxConcurrentQueriesPerNode";
   private static final String DATA_SIZE_SAMPLING_ENABLED = "dataSizeSamplingEnabled";
 
   private final Config config;
@@ -33,6 +34,7 @@ public class EngineSettings {
   private boolean dryRun;
   private String executionId;
   private int maxConcurrentQueries;
+  private int maxConcurrentQueriesPerNode;
   private boolean dataSizeSamplingEnabled;
 
   EngineSettings(Config config) {
@@ -47,6 +49,10 @@ public class EngineSettings {
           config.getString(MAX_CONCURRENT_QUERIES).equalsIgnoreCase("AUTO")
               ? -1
               : ConfigUtils.getThreads(config, MAX_CONCURRENT_QUERIES);
+      maxConcurrentQueriesPerNode =
+          config.getString(MAX_CONCURRENT_QUERIES_PER_NODE).equalsIgnoreCase("AUTO")
+              ? -1
+              : ConfigUtils.getThreads(config, MAX_CONCURRENT_QUERIES_PER_NODE);
       dataSizeSamplingEnabled = config.getBoolean(DATA_SIZE_SAMPLING_ENABLED);
     } catch (ConfigException e) {
       throw ConfigUtils.convertConfigException(e, "dsbulk.engine");
@@ -65,6 +71,12 @@ public class EngineSettings {
     return maxConcurrentQueries == -1 ? OptionalInt.empty() : OptionalInt.of(maxConcurrentQueries);
   }
 
+  public OptionalInt getMaxConcurrentQueriesPerNode() {
+    return maxConcurrentQueriesPerNode == -1
+        ? OptionalInt.empty()
+        : OptionalInt.of(maxConcurrentQueriesPerNode);
+  }
+
   public boolean isDataSizeSamplingEnabled() {
     return dataSizeSamplingEnabled;
   }
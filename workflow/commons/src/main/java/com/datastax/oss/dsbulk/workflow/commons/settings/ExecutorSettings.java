@@ -29,10 +29,12 @@ import com.datastax.oss.dsbulk.executor.api.BulkExecutorBuilderFactory;
 import com.datastax.oss.dsbulk.executor.api.listener.ExecutionListener;
 import com.datastax.oss.dsbulk.executor.api.listener.MetricsCollectingExecutionListener;
 import com.datastax.oss.dsbulk.executor.api.reader.BulkReader;
+import com.datastax.oss.dsbulk.executor.api.throttling.AdaptiveConcurrencyLimiter;
 import com.datastax.oss.dsbulk.executor.api.writer.BulkWriter;
 import com.typesafe.config.Config;
 import com.typesafe.config.ConfigException;
 import edu.umd.cs.findbugs.annotations.NonNull;
+import java.util.Optional;
 import java.util.ServiceLoader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -46,6 +48,11 @@ public class ExecutorSettings {
   private int maxPerSecond;
   private int maxInFlight;
   private boolean continuousPagingEnabled;
+  private boolean adaptiveConcurrencyEnabled;
+  private int adaptiveMinInFlight;
+  private int adaptiveMaxInFlight;
+  private double adaptiveLatencyTolerance;
+  private AdaptiveConcurrencyLimiter concurrencyLimiter;
 
   ExecutorSettings(Config config) {
     this.config = config;
@@ -58,6 +65,44 @@ public class ExecutorSettings {
     } catch (ConfigException e) {
       throw ConfigUtils.convertConfigException(e, "dsbulk.executor");
     }
+    Config adaptiveConcurrencyConfig = config.getConfig("adaptiveConcurrency");
+    try {
+      adaptiveConcurrencyEnabled = adaptiveConcurrencyConfig.getBoolean("enabled");
+      if (adaptiveConcurrencyEnabled) {
+        adaptiveMinInFlight = adaptiveConcurrencyConfig.getInt("minInFlight");
+        adaptiveMaxInFlight = adaptiveConcurrencyConfig.getInt("maxInFlight");
+        adaptiveLatencyTolerance = adaptiveConcurrencyConfig.getDouble("latencyTolerance");
+        if (adaptiveMinInFlight < 1) {
+          throw new IllegalArgumentException(
+              String.format(
+                  "Value for executor.adaptiveConcurrency.minInFlight must be strictly positive, got: %d.",
+                  adaptiveMinInFlight));
+        }
+        if (adaptiveMaxInFlight < adaptiveMinInFlight) {
+          throw new IllegalArgumentException(
+              String.format(
+                  "Value for executor.adaptiveConcurrency.maxInFlight must be greater than or equal to executor.adaptiveConcurrency.minInFlight, got: %d.",
+                  adaptiveMaxInFlight));
+        }
+        if (adaptiveLatencyTolerance <= 1) {
+          throw new IllegalArgumentException(
+              String.format(
+                  "Value for executor.adaptiveConcurrency.latencyTolerance must be greater than 1, got: %s.",
+                  adaptiveLatencyTolerance));
+        }
+        if (ConfigUtils.hasUserOverride(config, "maxInFlight")) {
+          LOGGER.warn(
+              "Adaptive concurrency is enabled, setting executor.maxInFlight will be ignored.");
+        }
+        concurrencyLimiter =
+            new AdaptiveConcurrencyLimiter(
+                adaptiveMinInFlight, adaptiveMaxInFlight, adaptiveLatencyTolerance);
+      } else {
+        concurrencyLimiter = null;
+      }
+    } catch (ConfigException e) {
+      throw ConfigUtils.convertConfigException(e, "dsbulk.executor.adaptiveConcurrency");
+    }
     Config continuousPagingConfig = config.getConfig("continuousPaging");
     try {
       continuousPagingEnabled = continuousPagingConfig.getBoolean("enabled");
@@ -82,6 +127,40 @@ public class ExecutorSettings {
     return newBulkExecutor(session, executionListener, false, false);
   }
 
+  /**
+   * Whether adaptive concurrency is enabled for write executors.
+   *
+   * @return true if adaptive concurrency is enabled, false otherwise.
+   */
+  public boolean isAdaptiveConcurrencyEnabled() {
+    return adaptiveConcurrencyEnabled;
+  }
+
+  /**
+   * The maximum number of in-flight requests when adaptive concurrency is enabled.
+   *
+   * @return the maximum number of in-flight requests.
+   * @throws IllegalStateException if adaptive concurrency is disabled.
+   */
+  public int getAdaptiveMaxInFlight() {
+    if (!adaptiveConcurrencyEnabled) {
+      throw new IllegalStateException("Adaptive concurrency is disabled");
+    }
+    return adaptiveMaxInFlight;
+  }
+
+  /**
+   * The {@link AdaptiveConcurrencyLimiter} used by write executors created by {@link
+   * #newWriteExecutor(CqlSession, ExecutionListener)}, if adaptive concurrency is enabled. The
+   * limiter is created once by {@link #init()}, and shared by all write executors.
+   *
+   * @return the limiter, or empty if adaptive concurrency is disabled.
+   */
+  @NonNull
+  public Optional<AdaptiveConcurrencyLimiter> getConcurrencyLimiter() {
+    return Optional.ofNullable(concurrencyLimiter);
+  }
+
   @NonNull
   public BulkReader newReadExecutor(
       @NonNull CqlSession session,
@@ -106,6 +185,9 @@ public class ExecutorSettings {
         .withMaxInFlightRequests(maxInFlight)
         .withMaxRequestsPerSecond(maxPerSecond)
         .failSafe();
+    if (!read && concurrencyLimiter != null) {
+      builder.withAdaptiveConcurrency(concurrencyLimiter);
+    }
     return builder.build();
   }
 
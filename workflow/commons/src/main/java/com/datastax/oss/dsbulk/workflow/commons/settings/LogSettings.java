@@ -39,12 +39,15 @@ import com.datastax.oss.dsbulk.workflow.api.log.OperationDirectoryResolver;
 import com.datastax.oss.dsbulk.workflow.api.utils.WorkflowUtils;
 import com.datastax.oss.dsbulk.workflow.commons.format.statement.MappedBoundStatementPrinter;
 import com.datastax.oss.dsbulk.workflow.commons.log.LogManager;
+import com.datastax.oss.dsbulk.workflow.commons.log.PositionsTracker;
 import com.typesafe.config.Config;
 import com.typesafe.config.ConfigException;
 import com.typesafe.config.ConfigRenderOptions;
 import com.typesafe.config.ConfigValue;
+import edu.umd.cs.findbugs.annotations.Nullable;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Comparator;
 import java.util.List;
@@ -124,6 +127,9 @@ public class LogSettings {
   private static final String MAX_QUERY_WARNINGS = "maxQueryWarnings";
   private static final String VERBOSITY = "verbosity";
   private static final String SOURCES = "sources";
+  private static final String RESUME = "resume";
+  private static final String CHECKPOINT_RANGES = "checkpointRanges";
+  private static final String WIDE_PARTITIONS = "widePartitions";
 
   private final Config config;
   private final String executionId;
@@ -140,6 +146,10 @@ public class LogSettings {
   @VisibleForTesting ErrorThreshold queryWarningsThreshold;
   private Verbosity verbosity;
   private boolean sources;
+  private boolean checkpointRanges;
+  private int widePartitions;
+  private PositionsTracker resumedPositions;
+  private Set<String> resumedRanges;
 
   public LogSettings(Config config, String executionId) {
     this.config = config;
@@ -195,6 +205,31 @@ public class LogSettings {
       }
       this.verbosity = Verbosity.values()[verbosity];
       sources = config.getBoolean(SOURCES);
+      checkpointRanges = config.getBoolean(CHECKPOINT_RANGES);
+      widePartitions = config.getInt(WIDE_PARTITIONS);
+      if (widePartitions < 0) {
+        throw new IllegalArgumentException(
+            String.format(
+                "Value for log.widePartitions must be positive or zero, got: %d.", widePartitions));
+      }
+      if (ConfigUtils.isPathPresentAndNotEmpty(config, RESUME)) {
+        Path resumedDirectory = ConfigUtils.getPath(config, RESUME);
+        if (!Files.isDirectory(resumedDirectory)) {
+          throw new IllegalArgumentException(
+              String.format(
+                  "Invalid value for dsbulk.log.resume: %s is not a directory", resumedDirectory));
+        }
+        resumedPositions = LogManager.readProcessedPositions(resumedDirectory);
+        resumedRanges = LogManager.readCompletedRanges(resumedDirectory);
+        if (resumedPositions == null && resumedRanges == null) {
+          LOGGER.warn(
+              "No processed positions or completed ranges found in {}, "
+                  + "the operation will start from the beginning",
+              resumedDirectory);
+        } else {
+          LOGGER.info("Resuming operation from {}", resumedDirectory);
+        }
+      }
     } catch (ConfigException e) {
       throw ConfigUtils.convertConfigException(e, "dsbulk.log");
     }
@@ -248,7 +283,42 @@ public class LogSettings {
         trackPositions,
         statementFormatter,
         level,
-        rowFormatter);
+        rowFormatter,
+        resumedPositions);
+  }
+
+  /**
+   * The positions processed by the operation to resume, or null if this operation does not resume a
+   * previous one. Only applicable when loading.
+   */
+  @Nullable
+  public PositionsTracker getResumedPositions() {
+    return resumedPositions;
+  }
+
+  /**
+   * The token ranges completed by the operation to resume, or null if this operation does not
+   * resume a previous one. Only applicable when unloading.
+   */
+  @Nullable
+  public Set<String> getResumedRanges() {
+    return resumedRanges;
+  }
+
+  /**
+   * Whether unload operations should write the rows of each token range to dedicated files, and
+   * record the completed ranges, so that they can be resumed.
+   */
+  public boolean isCheckpointRanges() {
+    return checkpointRanges;
+  }
+
+  /**
+   * The number of widest partitions that unload operations should report in the operation
+   * directory; 0 if disabled.
+   */
+  public int getWidePartitions() {
+    return widePartitions;
   }
 
   public Verbosity getVerbosity() {
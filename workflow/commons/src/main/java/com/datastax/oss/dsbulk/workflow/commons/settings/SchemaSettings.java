@@ -37,17 +37,24 @@ import com.datastax.oss.driver.api.core.CqlIdentifier;
 import com.datastax.oss.driver.api.core.CqlSession;
 import com.datastax.oss.driver.api.core.DefaultProtocolVersion;
 import com.datastax.oss.driver.api.core.ProtocolVersion;
+import com.datastax.oss.driver.api.core.cql.BoundStatement;
 import com.datastax.oss.driver.api.core.cql.ColumnDefinitions;
 import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import com.datastax.oss.driver.api.core.cql.Row;
 import com.datastax.oss.driver.api.core.cql.Statement;
 import com.datastax.oss.driver.api.core.metadata.Metadata;
+import com.datastax.oss.driver.api.core.metadata.TokenMap;
 import com.datastax.oss.driver.api.core.metadata.schema.ColumnMetadata;
 import com.datastax.oss.driver.api.core.metadata.schema.IndexMetadata;
 import com.datastax.oss.driver.api.core.metadata.schema.KeyspaceMetadata;
 import com.datastax.oss.driver.api.core.metadata.schema.RelationMetadata;
 import com.datastax.oss.driver.api.core.metadata.schema.TableMetadata;
 import com.datastax.oss.driver.api.core.metadata.schema.ViewMetadata;
+import com.datastax.oss.driver.api.core.metadata.token.Token;
+import com.datastax.oss.driver.api.core.metadata.token.TokenRange;
 import com.datastax.oss.driver.api.core.type.DataTypes;
+import com.datastax.oss.driver.internal.core.metadata.token.Murmur3Token;
+import com.datastax.oss.driver.internal.core.util.RoutingKey;
 import com.datastax.oss.driver.shaded.guava.common.annotations.VisibleForTesting;
 import com.datastax.oss.driver.shaded.guava.common.base.Preconditions;
 import com.datastax.oss.driver.shaded.guava.common.collect.ImmutableMultimap;
@@ -70,7 +77,12 @@ import com.datastax.oss.dsbulk.mapping.Mapping;
 import com.datastax.oss.dsbulk.mapping.MappingField;
 import com.datastax.oss.dsbulk.mapping.MappingInspector;
 import com.datastax.oss.dsbulk.mapping.MappingPreference;
+import com.datastax.oss.dsbulk.partitioner.BulkTokenFactory;
+import com.datastax.oss.dsbulk.partitioner.BulkTokenRange;
+import com.datastax.oss.dsbulk.partitioner.SizeEstimates;
 import com.datastax.oss.dsbulk.partitioner.TokenRangeReadStatementGenerator;
+import com.datastax.oss.dsbulk.partitioner.murmur3.Murmur3BulkTokenFactory;
+import com.datastax.oss.dsbulk.partitioner.utils.TokenUtils;
 import com.datastax.oss.dsbulk.workflow.commons.schema.DefaultReadResultCounter;
 import com.datastax.oss.dsbulk.workflow.commons.schema.DefaultReadResultMapper;
 import com.datastax.oss.dsbulk.workflow.commons.schema.DefaultRecordMapper;
@@ -80,14 +92,21 @@ import com.datastax.oss.dsbulk.workflow.commons.schema.ReadResultMapper;
 import com.datastax.oss.dsbulk.workflow.commons.schema.RecordMapper;
 import com.datastax.oss.dsbulk.workflow.commons.settings.StatsSettings.StatisticsMode;
 import com.datastax.oss.dsbulk.workflow.commons.utils.GraphUtils;
+import com.datastax.oss.protocol.internal.util.Bytes;
 import com.typesafe.config.Config;
 import com.typesafe.config.ConfigException;
 import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
 import java.net.URI;
+import java.nio.ByteBuffer;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -98,7 +117,9 @@ import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 import org.slf4j.Logger;
@@ -124,6 +145,9 @@ public class SchemaSettings {
   private static final String QUERY_TIMESTAMP = "queryTimestamp";
   private static final String CORE = "Core";
   private static final String SPLITS = "splits";
+  private static final String USE_SIZE_ESTIMATES = "useSizeEstimates";
+  private static final String RESPLIT_AFTER_ROWS = "resplitAfterRows";
+  private static final String RESPLIT_AFTER_TIME = "resplitAfterTime";
 
   private final Config config;
 
@@ -131,6 +155,12 @@ public class SchemaSettings {
   private boolean allowExtraFields;
   private boolean allowMissingFields;
   private int splits;
+  private boolean useSizeEstimates;
+  private long resplitAfterRows;
+  private Duration resplitAfterTime;
+  private boolean serverSideCount;
+  private boolean splitAtRingBoundaries;
+  private BulkTokenFactory tokenFactory;
   private MappingInspector mapping;
   private int ttlSeconds;
   private long timestampMicros;
@@ -392,6 +422,9 @@ public class SchemaSettings {
       allowExtraFields = config.getBoolean(ALLOW_EXTRA_FIELDS);
       allowMissingFields = config.getBoolean(ALLOW_MISSING_FIELDS);
       splits = ConfigUtils.getThreads(config, SPLITS);
+      useSizeEstimates = config.getBoolean(USE_SIZE_ESTIMATES);
+      resplitAfterRows = config.getLong(RESPLIT_AFTER_ROWS);
+      resplitAfterTime = config.getDuration(RESPLIT_AFTER_TIME);
 
       // Final checks related to graph operations
 
@@ -498,6 +531,26 @@ public class SchemaSettings {
       ConvertingCodecFactory codecFactory,
       EnumSet<StatsSettings.StatisticsMode> modes,
       int numPartitions) {
+    return createReadResultCounter(session, codecFactory, modes, numPartitions, false);
+  }
+
+  /**
+   * Creates a counter for the count workflow.
+   *
+   * <p>When {@code serverSideCount} is true, the generated statements are {@code SELECT count(*)}
+   * queries, and the counter expects each statement to return one single row containing the number
+   * of rows in the token range it reads; when counting ranges, statements are also split at the
+   * boundaries of the ring's token ranges, so that each count can be attributed to exactly one
+   * range.
+   */
+  public ReadResultCounter createReadResultCounter(
+      CqlSession session,
+      ConvertingCodecFactory codecFactory,
+      EnumSet<StatsSettings.StatisticsMode> modes,
+      int numPartitions,
+      boolean serverSideCount) {
+    this.serverSideCount = serverSideCount;
+    splitAtRingBoundaries = serverSideCount && modes.contains(StatisticsMode.ranges);
     prepareStatementAndCreateMapping(session, null, SchemaGenerationType.READ_AND_COUNT, modes);
     ProtocolVersion protocolVersion = session.getContext().getProtocolVersion();
     Metadata metadata = session.getMetadata();
@@ -508,7 +561,94 @@ public class SchemaSettings {
               tableName.render(VARIABLE)));
     }
     return new DefaultReadResultCounter(
-        keyspace.getName(), metadata, modes, numPartitions, protocolVersion, codecFactory);
+        keyspace.getName(),
+        metadata,
+        modes,
+        numPartitions,
+        protocolVersion,
+        codecFactory,
+        serverSideCount,
+        IntStream.range(0, table.getPartitionKey().size()).toArray());
+  }
+
+  /**
+   * Creates a counter for the widest partitions read by the unload workflow, in number of rows.
+   * Must be called after {@link #createReadResultMapper}.
+   *
+   * <p>The counter only retains the {@code numPartitions} widest partitions of each counting unit;
+   * this is exact as long as each unit reads whole partitions, which is the case when each unit
+   * reads its own token ranges.
+   *
+   * @throws IllegalArgumentException if the unload query does not select all the partition key
+   *     columns.
+   */
+  public ReadResultCounter createWidePartitionsCounter(
+      CqlSession session, ConvertingCodecFactory codecFactory, int numPartitions) {
+    int[] partitionKeyIndices = getPartitionKeyIndices("Cannot report wide partitions");
+    return new DefaultReadResultCounter(
+        keyspace.getName(),
+        session.getMetadata(),
+        EnumSet.of(StatisticsMode.partitions),
+        numPartitions,
+        session.getContext().getProtocolVersion(),
+        codecFactory,
+        false,
+        partitionKeyIndices);
+  }
+
+  /**
+   * Creates a function returning the token of the partition that each row read by the unload
+   * workflow belongs to, e.g. to cut token range reads at partition boundaries. Must be called
+   * after {@link #createReadStatements(CqlSession)}.
+   *
+   * @return the function, or null if the read statements do not read token ranges, in which case
+   *     they cannot be split.
+   * @throws IllegalArgumentException if the unload query does not select all the partition key
+   *     columns.
+   */
+  @Nullable
+  public Function<Row, Token> createRowTokenFunction() {
+    if (tokenFactory == null) {
+      return null;
+    }
+    int[] partitionKeyIndices = getPartitionKeyIndices("Cannot re-split long reads");
+    if (tokenFactory instanceof Murmur3BulkTokenFactory) {
+      return row ->
+          new Murmur3Token(Murmur3BulkTokenFactory.murmur3(partitionKey(row, partitionKeyIndices)));
+    }
+    return row -> {
+      ByteBuffer[] components = partitionKey(row, partitionKeyIndices);
+      return tokenFactory.hash(
+          components.length == 1 ? components[0] : RoutingKey.compose(components));
+    };
+  }
+
+  @NonNull
+  private int[] getPartitionKeyIndices(@NonNull String errorPrefix) {
+    ColumnDefinitions definitions = preparedStatement.getResultSetDefinitions();
+    List<ColumnMetadata> partitionKey = table.getPartitionKey();
+    int[] partitionKeyIndices = new int[partitionKey.size()];
+    for (int i = 0; i < partitionKeyIndices.length; i++) {
+      partitionKeyIndices[i] = definitions.firstIndexOf(partitionKey.get(i).getName());
+      if (partitionKeyIndices[i] == -1) {
+        throw new IllegalArgumentException(
+            String.format(
+                "%s for table %s: the query does not select partition key column %s.",
+                errorPrefix,
+                tableName.render(VARIABLE),
+                partitionKey.get(i).getName().asCql(true)));
+      }
+    }
+    return partitionKeyIndices;
+  }
+
+  @NonNull
+  private static ByteBuffer[] partitionKey(@NonNull Row row, @NonNull int[] partitionKeyIndices) {
+    ByteBuffer[] components = new ByteBuffer[partitionKeyIndices.length];
+    for (int i = 0; i < components.length; i++) {
+      components[i] = row.getBytesUnsafe(partitionKeyIndices[i]);
+    }
+    return components;
   }
 
   public List<Statement<?>> createReadStatements(CqlSession session) {
@@ -540,25 +680,202 @@ public class SchemaSettings {
     Metadata metadata = session.getMetadata();
     TokenRangeReadStatementGenerator generator =
         new TokenRangeReadStatementGenerator(table, metadata);
-    List<Statement<?>> statements =
-        generator.generate(
-            splits,
-            range ->
-                preparedStatement
-                    .bind()
-                    .setToken(
-                        queryInspector.getTokenRangeRestrictionStartVariableIndex(),
-                        range.getStart())
-                    .setToken(
-                        queryInspector.getTokenRangeRestrictionEndVariableIndex(), range.getEnd()));
+    if (serverSideCount || isResplitLongReads()) {
+      // required to split statements, see splitReadStatement()
+      tokenFactory =
+          metadata
+              .getTokenMap()
+              .map(TokenMap::getPartitionerName)
+              .map(BulkTokenFactory::forPartitioner)
+              .orElse(null);
+    }
+    Map<TokenRange, Long> sizeEstimates =
+        useSizeEstimates ? SizeEstimates.read(session, table) : Collections.emptyMap();
+    if (useSizeEstimates && sizeEstimates.isEmpty()) {
+      LOGGER.warn(
+          "No size estimates found for table {}, splitting the token ring evenly",
+          tableName.render(VARIABLE));
+    }
+    List<Statement<?>> statements = generator.generate(splits, this::bindTokenRange, sizeEstimates);
+    if (splitAtRingBoundaries) {
+      statements = splitAtRingBoundaries(statements, metadata);
+    }
 
     LOGGER.debug("Generated {} bound statements", statements.size());
-    // Shuffle the statements to avoid hitting the same replicas sequentially when
-    // the statements will be executed.
-    Collections.shuffle(statements);
+    if (sizeEstimates.isEmpty()) {
+      // Shuffle the statements to avoid hitting the same replicas sequentially when
+      // the statements will be executed.
+      Collections.shuffle(statements);
+    }
+    // Otherwise, keep the largest ranges first, so that they don't end up dominating the tail of
+    // the operation.
     return statements;
   }
 
+  /**
+   * Splits the token range read by the given statement into smaller ranges, e.g. to count a range
+   * whose count query timed out.
+   *
+   * @param statement a statement created by {@link #createReadStatements(CqlSession)}, or by this
+   *     method.
+   * @param splitCount the desired number of splits.
+   * @return statements reading the splits; empty if the statement does not read a token range, or
+   *     if its range cannot be split any further.
+   */
+  @NonNull
+  public List<Statement<?>> splitReadStatement(@NonNull Statement<?> statement, int splitCount) {
+    BulkTokenRange range = getTokenRange(statement);
+    if (range == null) {
+      return Collections.emptyList();
+    }
+    List<BulkTokenRange> splits = tokenFactory.splitter().split(range, splitCount);
+    if (splits.size() < 2) {
+      return Collections.emptyList();
+    }
+    return splits.stream().map(this::bindTokenRange).collect(Collectors.toList());
+  }
+
+  /**
+   * Splits the part of the token range read by the given statement that follows the given token,
+   * e.g. to read the remainder of a range whose read was cut after the partition with that token.
+   *
+   * @param statement a statement created by {@link #createReadStatements(CqlSession)}, or by this
+   *     method or {@link #splitReadStatement(Statement, int)}.
+   * @param token the token after which to split the range; it must belong to the range.
+   * @param splitCount the desired number of splits.
+   * @return statements reading the splits; empty if the statement does not read a token range, or
+   *     if no token of its range follows the given token.
+   */
+  @NonNull
+  public List<Statement<?>> splitReadStatementAfter(
+      @NonNull Statement<?> statement, @NonNull Token token, int splitCount) {
+    BulkTokenRange range = getTokenRange(statement);
+    // (t, t] would be the whole ring
+    if (range == null || range.getEnd().equals(token)) {
+      return Collections.emptyList();
+    }
+    BulkTokenRange remainder = tokenFactory.range(token, range.getEnd(), Collections.emptySet());
+    return tokenFactory.splitter().split(remainder, splitCount).stream()
+        .map(this::bindTokenRange)
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Returns an identifier of the token range read by the given statement, e.g. {@code
+   * range_-9223372036854775808_-6148914691236517206}. The identifier is stable across operations,
+   * as long as the token ring and the number of splits do not change, and can be used in file
+   * names.
+   *
+   * @param statement a statement created by {@link #createReadStatements(CqlSession)}.
+   * @return the token range identifier, or null if the statement does not read a token range.
+   */
+  @Nullable
+  public String getTokenRangeId(@NonNull Statement<?> statement) {
+    int start = queryInspector.getTokenRangeRestrictionStartVariableIndex();
+    int end = queryInspector.getTokenRangeRestrictionEndVariableIndex();
+    if (!(statement instanceof BoundStatement) || start == -1 || end == -1) {
+      return null;
+    }
+    BoundStatement bs = (BoundStatement) statement;
+    if (preparedStatement.getVariableDefinitions().size() == 0
+        || bs.getToken(start) == null
+        || bs.getToken(end) == null) {
+      return null;
+    }
+    return "range_" + formatToken(bs.getToken(start)) + '_' + formatToken(bs.getToken(end));
+  }
+
+  @NonNull
+  private Statement<?> bindTokenRange(@NonNull TokenRange range) {
+    return preparedStatement
+        .bind()
+        .setToken(queryInspector.getTokenRangeRestrictionStartVariableIndex(), range.getStart())
+        .setToken(queryInspector.getTokenRangeRestrictionEndVariableIndex(), range.getEnd())
+        .setRoutingKeyspace(table.getKeyspace())
+        .setRoutingToken(range.getEnd());
+  }
+
+  @Nullable
+  private BulkTokenRange getTokenRange(@NonNull Statement<?> statement) {
+    int start = queryInspector.getTokenRangeRestrictionStartVariableIndex();
+    int end = queryInspector.getTokenRangeRestrictionEndVariableIndex();
+    if (tokenFactory == null
+        || !(statement instanceof BoundStatement)
+        || start == -1
+        || end == -1) {
+      return null;
+    }
+    BoundStatement bs = (BoundStatement) statement;
+    if (bs.getToken(start) == null || bs.getToken(end) == null) {
+      return null;
+    }
+    return tokenFactory.range(bs.getToken(start), bs.getToken(end), Collections.emptySet());
+  }
+
+  /**
+   * Splits the token ranges read by the given statements at the boundaries of the ring's token
+   * ranges, so that each statement reads a portion of exactly one range of the ring.
+   *
+   * <p>The ring's ranges are sorted by end token once; for each statement, the first intersecting
+   * range is located by binary search, then the following ranges are visited until one does not
+   * intersect the statement's range anymore.
+   */
+  @NonNull
+  private List<Statement<?>> splitAtRingBoundaries(
+      @NonNull List<Statement<?>> statements, @NonNull Metadata metadata) {
+    TokenRange[] ring =
+        metadata
+            .getTokenMap()
+            .map(TokenMap::getTokenRanges)
+            .orElse(Collections.emptySet())
+            .toArray(new TokenRange[0]);
+    Arrays.sort(ring, Comparator.comparing(TokenRange::getEnd));
+    List<Statement<?>> result = new ArrayList<>(statements.size());
+    for (Statement<?> statement : statements) {
+      TokenRange range = getTokenRange(statement);
+      if (range == null) {
+        result.add(statement);
+        continue;
+      }
+      int first = firstRingRangeEndingAfter(ring, range.getStart());
+      for (int i = 0; i < ring.length; i++) {
+        TokenRange ringRange = ring[(first + i) % ring.length];
+        if (!range.intersects(ringRange)) {
+          break;
+        }
+        for (TokenRange intersection : range.intersectWith(ringRange)) {
+          result.add(bindTokenRange(intersection));
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns the index of the first range in the given ring, sorted by end token, whose end is
+   * strictly greater than the given token; that range contains the tokens that immediately follow
+   * the given token. Returns 0, i.e. the range wrapping around the ring, if there is no such range.
+   */
+  private static int firstRingRangeEndingAfter(@NonNull TokenRange[] ring, @NonNull Token token) {
+    int low = 0;
+    int high = ring.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (ring[mid].getEnd().compareTo(token) <= 0) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low == ring.length ? 0 : low;
+  }
+
+  @NonNull
+  private static String formatToken(@NonNull Token token) {
+    Object value = TokenUtils.getTokenValue(token);
+    return value instanceof ByteBuffer ? Bytes.toHexString((ByteBuffer) value) : value.toString();
+  }
+
   @NonNull
   public RowType getRowType() {
     boolean isTable = table instanceof DseTableMetadata;
@@ -590,6 +907,29 @@ public class SchemaSettings {
         "cql://" + keyspace.getName().asInternal() + '/' + table.getName().asInternal());
   }
 
+  public boolean isUseSizeEstimates() {
+    return useSizeEstimates;
+  }
+
+  /**
+   * @return whether token range reads that run for too long should be cut at the next partition
+   *     boundary, and the remainder of their range read as new splits.
+   */
+  public boolean isResplitLongReads() {
+    return resplitAfterRows > 0 || resplitAfterTime.toNanos() > 0;
+  }
+
+  /** @return the number of rows after which to cut a read, or zero or less to never cut reads. */
+  public long getResplitAfterRows() {
+    return resplitAfterRows;
+  }
+
+  /** @return the time after which to cut a read, or zero or less to never cut reads. */
+  @NonNull
+  public Duration getResplitAfterTime() {
+    return resplitAfterTime;
+  }
+
   public boolean isAllowExtraFields() {
     return allowExtraFields;
   }
@@ -657,16 +997,17 @@ public class SchemaSettings {
       if (schemaGenerationType == SchemaGenerationType.READ_AND_COUNT) {
         if (modes.contains(StatisticsMode.partitions)
             || modes.contains(StatisticsMode.ranges)
-            || modes.contains(StatisticsMode.hosts)) {
+            || modes.contains(StatisticsMode.hosts)
+            || modes.contains(StatisticsMode.distribution)) {
           throw new IllegalArgumentException(
               String.format(
                   "Cannot count with stats.modes = %s when schema.query is provided; "
                       + "only stats.modes = [global] is allowed",
                   modes));
         }
-        // reduce row size by only selecting one column
+        // reduce row size by only selecting one column, or count rows server-side
         StringBuilder sb = new StringBuilder("SELECT ");
-        sb.append(getGlobalCountSelector());
+        sb.append(serverSideCount ? "count(*)" : getGlobalCountSelector());
         query =
             sb.append(' ')
                 .append(query.substring(queryInspector.getFromClauseStartIndex()))
@@ -1188,7 +1529,20 @@ public class SchemaSettings {
   private String inferCountQuery(EnumSet<StatisticsMode> modes) {
     StringBuilder sb = new StringBuilder("SELECT ");
     List<ColumnMetadata> partitionKey = table.getPartitionKey();
-    if (modes.contains(StatisticsMode.ranges)
+    if (serverSideCount) {
+      // only global and ranges modes are allowed: count rows server-side, split by split
+      sb.append("count(*)");
+    } else if (modes.contains(StatisticsMode.distribution)) {
+      // we need the entire partition key first, then all the other columns to compute row sizes
+      Stream.concat(
+              partitionKey.stream(),
+              table.getColumns().values().stream()
+                  .filter(col -> !partitionKey.contains(col))
+                  .filter(col -> !isDSESearchPseudoColumn(col)))
+          .map(col -> col.getName().asCql(true))
+          .forEach(name -> sb.append(name).append(", "));
+      sb.setLength(sb.length() - 2);
+    } else if (modes.contains(StatisticsMode.ranges)
         || modes.contains(StatisticsMode.hosts)
         || modes.contains(StatisticsMode.partitions)) {
       if (modes.contains(StatisticsMode.partitions)) {
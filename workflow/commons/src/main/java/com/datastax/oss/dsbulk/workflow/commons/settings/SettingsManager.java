@@ -34,6 +34,7 @@ public class SettingsManager {
   private MonitoringSettings monitoringSettings;
   private EngineSettings engineSettings;
   private StatsSettings statsSettings;
+  private CopySettings copySettings;
 
   public SettingsManager(Config config) {
     this.config = config;
@@ -62,6 +63,13 @@ public class SettingsManager {
     monitoringSettings =
         new MonitoringSettings(config.getConfig("dsbulk.monitoring"), this.executionId);
     statsSettings = new StatsSettings(config.getConfig("dsbulk.stats"));
+    copySettings =
+        new CopySettings(
+            config.getConfig("dsbulk.copy"),
+            config.getConfig("dsbulk.schema"),
+            config.getConfig("dsbulk.driver"),
+            config.getConfig("dsbulk.executor.continuousPaging"),
+            config.getConfig("datastax-java-driver"));
   }
 
   public String getExecutionId() {
@@ -108,6 +116,10 @@ public class SettingsManager {
     return statsSettings;
   }
 
+  public CopySettings getCopySettings() {
+    return copySettings;
+  }
+
   public Config getEffectiveBulkLoaderConfig() {
     // must be called after connector settings initialized
     Config dsbulkConfig =
@@ -27,16 +27,19 @@ public class StatsSettings {
     global,
     ranges,
     hosts,
-    partitions
+    partitions,
+    distribution
   }
 
   private static final String MODES = "modes";
   private static final String NUM_PARTITIONS = "numPartitions";
+  private static final String SERVER_SIDE_COUNT = "serverSideCount";
 
   private final Config config;
 
   private List<StatisticsMode> statisticsModes;
   private int numPartitions;
+  private boolean serverSideCount;
 
   public StatsSettings(Config config) {
     this.config = config;
@@ -46,9 +49,20 @@ public class StatsSettings {
     try {
       statisticsModes = config.getEnumList(StatisticsMode.class, MODES);
       numPartitions = config.getInt(NUM_PARTITIONS);
+      serverSideCount = config.getBoolean(SERVER_SIDE_COUNT);
     } catch (ConfigException e) {
       throw ConfigUtils.convertConfigException(e, "dsbulk.stats");
     }
+    if (serverSideCount
+        && (statisticsModes.contains(StatisticsMode.hosts)
+            || statisticsModes.contains(StatisticsMode.partitions)
+            || statisticsModes.contains(StatisticsMode.distribution))) {
+      throw new IllegalArgumentException(
+          String.format(
+              "Cannot count with stats.modes = %s when stats.serverSideCount is true; "
+                  + "only stats.modes = [global] and [ranges] are allowed",
+              statisticsModes));
+    }
   }
 
   public EnumSet<StatisticsMode> getStatisticsModes() {
@@ -58,4 +72,8 @@ public class StatsSettings {
   public int getNumPartitions() {
     return numPartitions;
   }
+
+  public boolean isServerSideCount() {
+    return serverSideCount;
+  }
 }
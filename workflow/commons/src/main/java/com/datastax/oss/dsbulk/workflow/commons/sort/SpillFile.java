@@ -0,0 +1,290 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.dsbulk.workflow.commons.sort;
+
+import com.datastax.oss.driver.api.core.CqlIdentifier;
+import com.datastax.oss.driver.api.core.config.DriverExecutionProfile;
+import com.datastax.oss.driver.api.core.cql.BoundStatementBuilder;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import com.datastax.oss.dsbulk.connectors.api.DefaultRecord;
+import com.datastax.oss.dsbulk.connectors.api.Record;
+import com.datastax.oss.dsbulk.workflow.commons.statement.MappedBoundStatement;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A file containing a sorted run of statements spilled to disk by {@link StatementSorter}.
+ *
+ * <p>For each statement, the file contains its routing key, its record resource, position and
+ * source, its bound values and its execution attributes: consistency levels, query timestamp,
+ * idempotence, timeout, etc. Objects that cannot be serialized, such as prepared statements,
+ * resources or execution profiles, are not written to the file; instead, their index in an {@link
+ * ObjectTable} owned by the file is written. The table is released when the file is closed, once
+ * its run has been merged.
+ *
+ * <p>Once read back, statements are rebuilt from their prepared statement with the same values and
+ * attributes, and their records are replaced with empty records carrying the same resource,
+ * position and source (as a string); this is enough since records are cleared after mapping anyway.
+ */
+class SpillFile implements AutoCloseable {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private static final int NULL = -1;
+  private static final int UNSET = -2;
+
+  private final Path path;
+  private final ObjectTable objects = new ObjectTable();
+
+  private DataOutputStream out;
+  private DataInputStream in;
+
+  private ByteBuffer currentKey;
+  private MappedBoundStatement current;
+
+  SpillFile(@NonNull Path directory) throws IOException {
+    path = Files.createTempFile(directory, "dsbulk-presort-", ".bin");
+    out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), BUFFER_SIZE));
+  }
+
+  void write(@NonNull ByteBuffer routingKey, @NonNull MappedBoundStatement statement)
+      throws IOException {
+    writeBytes(routingKey);
+    out.writeInt(objects.indexOf(statement.getPreparedStatement()));
+    Record record = statement.getRecord();
+    out.writeInt(objects.indexOf(record.getResource()));
+    out.writeLong(record.getPosition());
+    Object source = record.getSource();
+    writeString(source == null ? null : source.toString());
+    int size = statement.size();
+    out.writeInt(size);
+    for (int i = 0; i < size; i++) {
+      if (statement.isSet(i)) {
+        writeBytes(statement.getBytesUnsafe(i));
+      } else {
+        out.writeInt(UNSET);
+      }
+    }
+    writeString(statement.getExecutionProfileName());
+    out.writeInt(objects.indexOf(statement.getExecutionProfile()));
+    CqlIdentifier routingKeyspace = statement.getRoutingKeyspace();
+    writeString(routingKeyspace == null ? null : routingKeyspace.asInternal());
+    out.writeInt(objects.indexOf(statement.getRoutingToken()));
+    Map<String, ByteBuffer> customPayload = statement.getCustomPayload();
+    out.writeInt(customPayload.size());
+    for (Map.Entry<String, ByteBuffer> entry : customPayload.entrySet()) {
+      writeString(entry.getKey());
+      writeBytes(entry.getValue());
+    }
+    Boolean idempotent = statement.isIdempotent();
+    out.writeByte(idempotent == null ? NULL : idempotent ? 1 : 0);
+    out.writeBoolean(statement.isTracing());
+    out.writeLong(statement.getQueryTimestamp());
+    writeBytes(statement.getPagingState());
+    out.writeInt(statement.getPageSize());
+    out.writeInt(objects.indexOf(statement.getConsistencyLevel()));
+    out.writeInt(objects.indexOf(statement.getSerialConsistencyLevel()));
+    out.writeInt(objects.indexOf(statement.getTimeout()));
+    out.writeInt(objects.indexOf(statement.getNode()));
+  }
+
+  /**
+   * Finishes writing and prepares this file for reading. The file is only opened for reading when
+   * the first statement is read, so that runs waiting to be merged do not hold open files.
+   */
+  void flip() throws IOException {
+    out.close();
+    out = null;
+  }
+
+  /**
+   * Reads the next statement. The file is closed when its end is reached.
+   *
+   * @return true if a statement was read, false if the end of the file was reached.
+   */
+  boolean advance() throws IOException {
+    if (in == null) {
+      in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), BUFFER_SIZE));
+    }
+    int keyLength;
+    try {
+      keyLength = in.readInt();
+    } catch (EOFException e) {
+      currentKey = null;
+      current = null;
+      in.close();
+      return false;
+    }
+    currentKey = readBytes(keyLength);
+    PreparedStatement ps = objects.get(in.readInt());
+    URI resource = objects.get(in.readInt());
+    long position = in.readLong();
+    String source = readString();
+    int size = in.readInt();
+    BoundStatementBuilder builder = ps.boundStatementBuilder();
+    for (int i = 0; i < size; i++) {
+      int length = in.readInt();
+      if (length != UNSET) {
+        builder = builder.setBytesUnsafe(i, readBytes(length));
+      }
+    }
+    String profileName = readString();
+    DriverExecutionProfile profile = objects.get(in.readInt());
+    String routingKeyspace = readString();
+    builder =
+        builder
+            .setRoutingKey(currentKey)
+            .setExecutionProfileName(profileName)
+            .setExecutionProfile(profile)
+            .setRoutingKeyspace(
+                routingKeyspace == null ? null : CqlIdentifier.fromInternal(routingKeyspace))
+            .setRoutingToken(objects.get(in.readInt()))
+            .clearCustomPayload();
+    int customPayloadSize = in.readInt();
+    for (int i = 0; i < customPayloadSize; i++) {
+      builder = builder.addCustomPayload(readString(), readBytes(in.readInt()));
+    }
+    byte idempotent = in.readByte();
+    builder =
+        builder
+            .setIdempotence(idempotent == NULL ? null : idempotent == 1)
+            .setTracing(in.readBoolean())
+            .setQueryTimestamp(in.readLong())
+            .setPagingState(readBytes(in.readInt()))
+            .setPageSize(in.readInt())
+            .setConsistencyLevel(objects.get(in.readInt()))
+            .setSerialConsistencyLevel(objects.get(in.readInt()))
+            .setTimeout(objects.get(in.readInt()))
+            .setNode(objects.get(in.readInt()));
+    current =
+        new MappedBoundStatement(new DefaultRecord(source, resource, position), builder.build());
+    return true;
+  }
+
+  /** @return the routing key of the last statement read. */
+  ByteBuffer getCurrentKey() {
+    return currentKey;
+  }
+
+  /** @return the last statement read. */
+  MappedBoundStatement getCurrent() {
+    return current;
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      if (out != null) {
+        out.close();
+      }
+      if (in != null) {
+        in.close();
+      }
+    } finally {
+      Files.deleteIfExists(path);
+    }
+  }
+
+  private void writeBytes(@Nullable ByteBuffer bb) throws IOException {
+    if (bb == null) {
+      out.writeInt(NULL);
+    } else {
+      int length = bb.remaining();
+      out.writeInt(length);
+      if (bb.hasArray()) {
+        out.write(bb.array(), bb.arrayOffset() + bb.position(), length);
+      } else {
+        byte[] bytes = new byte[length];
+        bb.duplicate().get(bytes);
+        out.write(bytes);
+      }
+    }
+  }
+
+  private void writeString(@Nullable String s) throws IOException {
+    if (s == null) {
+      out.writeInt(NULL);
+    } else {
+      byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+      out.writeInt(bytes.length);
+      out.write(bytes);
+    }
+  }
+
+  @Nullable
+  private String readString() throws IOException {
+    int length = in.readInt();
+    if (length == NULL) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  @Nullable
+  private ByteBuffer readBytes(int length) throws IOException {
+    if (length == NULL) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return ByteBuffer.wrap(bytes);
+  }
+
+  /**
+   * A table of objects that cannot be written to a spill file, such as prepared statements or
+   * resources; the file contains their index in this table instead.
+   */
+  private static class ObjectTable {
+
+    private final List<Object> objects = new ArrayList<>();
+    private final Map<Object, Integer> indices = new HashMap<>();
+
+    int indexOf(@Nullable Object object) {
+      if (object == null) {
+        return NULL;
+      }
+      return indices.computeIfAbsent(
+          object,
+          k -> {
+            objects.add(k);
+            return objects.size() - 1;
+          });
+    }
+
+    @Nullable
+    @SuppressWarnings("unchecked")
+    <T> T get(int index) {
+      return index == NULL ? null : (T) objects.get(index);
+    }
+  }
+}
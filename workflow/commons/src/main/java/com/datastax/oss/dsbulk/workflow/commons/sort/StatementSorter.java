@@ -0,0 +1,337 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.dsbulk.workflow.commons.sort;
+
+import com.datastax.oss.driver.api.core.cql.BatchableStatement;
+import com.datastax.oss.driver.shaded.guava.common.annotations.VisibleForTesting;
+import com.datastax.oss.driver.shaded.guava.common.collect.Iterables;
+import com.datastax.oss.driver.shaded.guava.common.collect.Iterators;
+import com.datastax.oss.dsbulk.workflow.commons.statement.MappedBoundStatement;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+
+/**
+ * Sorts a flow of statements by partition, so that statements sharing the same partition key tend
+ * to be emitted contiguously, regardless of the order in which they appear in the original flow.
+ *
+ * <p>Statements are grouped in memory in buckets, one per routing key. When the estimated size of
+ * the buffered statements exceeds the configured memory budget, the fullest buckets are emitted
+ * downstream right away, until half of the budget is available again, so that writes can start
+ * while the flow is still being read; if this is not enough, the remaining buckets, too sparse to
+ * be worth emitting yet, are written to a temporary file as a sorted run. Once the whole flow has
+ * been consumed, the remaining in-memory buckets and the spilled runs are merged, and statements
+ * are emitted in routing key order. At most {@value #DEFAULT_MAX_MERGE_FAN_IN} runs are read at
+ * once; when there are more, they are first merged into larger runs, in as many passes as
+ * necessary.
+ *
+ * <p>Statements of a partition emitted early may thus be followed by other statements of the same
+ * partition later on. Statements that are not routable {@linkplain MappedBoundStatement mapped
+ * bound statements} are not sorted and are emitted immediately.
+ */
+public class StatementSorter {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(StatementSorter.class);
+
+  /** Rough estimate of the memory occupied by a statement, its builder and its record. */
+  private static final int STATEMENT_OVERHEAD = 256;
+
+  /** Rough estimate of the memory occupied by a bound value, excluding its contents. */
+  private static final int VALUE_OVERHEAD = 48;
+
+  /**
+   * The minimum size of a bucket emitted before the flow completes; smaller buckets gain nothing
+   * from being emitted early, since they would be written in a batch of their own.
+   */
+  private static final int MIN_EMITTED_BUCKET_SIZE = 2;
+
+  /**
+   * The maximum number of runs merged at once; each run being merged holds an open file and a read
+   * buffer.
+   */
+  private static final int DEFAULT_MAX_MERGE_FAN_IN = 64;
+
+  private final long maxMemory;
+  private final Path spillDirectory;
+  private final int maxMergeFanIn;
+
+  /**
+   * Creates a new sorter.
+   *
+   * @param maxMemory the maximum amount of memory, in bytes, that buffered statements may occupy
+   *     before being emitted or spilled to disk.
+   * @param spillDirectory the directory where to create temporary files.
+   */
+  public StatementSorter(long maxMemory, @NonNull Path spillDirectory) {
+    this(maxMemory, spillDirectory, DEFAULT_MAX_MERGE_FAN_IN);
+  }
+
+  @VisibleForTesting
+  StatementSorter(long maxMemory, @NonNull Path spillDirectory, int maxMergeFanIn) {
+    this.maxMemory = maxMemory;
+    this.spillDirectory = spillDirectory;
+    this.maxMergeFanIn = maxMergeFanIn;
+  }
+
+  /**
+   * Sorts the given statements by partition.
+   *
+   * @param statements the statements to sort.
+   * @return the sorted statements.
+   */
+  @NonNull
+  public Flux<BatchableStatement<?>> sort(@NonNull Flux<BatchableStatement<?>> statements) {
+    return Flux.using(
+        SortBuffer::new,
+        buffer ->
+            statements
+                .concatMapIterable(buffer::add)
+                .concatWith(Flux.defer(() -> Flux.fromIterable(buffer.drain()))),
+        SortBuffer::close);
+  }
+
+  private static class Bucket {
+
+    private final List<BatchableStatement<?>> statements = new ArrayList<>();
+    private long memory;
+  }
+
+  private class SortBuffer {
+
+    private final Map<ByteBuffer, Bucket> buckets = new HashMap<>();
+    private final List<SpillFile> runs = new ArrayList<>();
+
+    private long memory;
+    private long spilledStatements;
+
+    /**
+     * Adds the given statement to this buffer.
+     *
+     * @return the statements to emit right away: the statement itself if it cannot be sorted, the
+     *     statements of the fullest buckets if the memory budget was exceeded, or nothing.
+     */
+    private List<BatchableStatement<?>> add(BatchableStatement<?> statement) {
+      if (!(statement instanceof MappedBoundStatement)) {
+        return Collections.singletonList(statement);
+      }
+      MappedBoundStatement bs = (MappedBoundStatement) statement;
+      ByteBuffer routingKey = bs.getRoutingKey();
+      if (routingKey == null) {
+        return Collections.singletonList(statement);
+      }
+      Bucket bucket = buckets.computeIfAbsent(routingKey, k -> new Bucket());
+      long size = estimateSize(bs, routingKey);
+      bucket.statements.add(bs);
+      bucket.memory += size;
+      memory += size;
+      return memory > maxMemory ? relieve() : Collections.emptyList();
+    }
+
+    /** @return an iterable over all the buffered statements, sorted by routing key. */
+    private Iterable<BatchableStatement<?>> drain() {
+      if (runs.isEmpty()) {
+        List<ByteBuffer> keys = new ArrayList<>(buckets.keySet());
+        keys.sort(Comparator.naturalOrder());
+        return Iterables.concat(Iterables.transform(keys, key -> buckets.get(key).statements));
+      }
+      if (!buckets.isEmpty()) {
+        spill();
+      }
+      LOGGER.debug(
+          "Merging {} statements from {} runs spilled to disk", spilledStatements, runs.size());
+      while (runs.size() > maxMergeFanIn) {
+        mergeRuns();
+      }
+      // create the iterator eagerly: Flux.fromIterable may call iterator() more than once, and
+      // each MergingIterator instance consumes the spilled runs.
+      Iterator<BatchableStatement<?>> iterator =
+          Iterators.unmodifiableIterator(new MergingIterator(new ArrayList<>(runs)));
+      return () -> iterator;
+    }
+
+    /**
+     * Merges the oldest runs into a new run. The first pass merges just enough runs for the
+     * following passes to merge {@link #maxMergeFanIn} runs each, so that as few statements as
+     * possible are written more than once.
+     */
+    private void mergeRuns() {
+      int excess = (runs.size() - 1) % (maxMergeFanIn - 1);
+      int count = excess == 0 ? maxMergeFanIn : excess + 1;
+      List<SpillFile> merged = new ArrayList<>(runs.subList(0, count));
+      try {
+        SpillFile run = new SpillFile(spillDirectory);
+        runs.add(run);
+        MergingIterator iterator = new MergingIterator(merged);
+        while (iterator.hasNext()) {
+          MappedBoundStatement statement = iterator.next();
+          run.write(statement.getRoutingKey(), statement);
+        }
+        run.flip();
+      } catch (IOException e) {
+        throw new UncheckedIOException("Could not merge sorted statements on disk", e);
+      }
+      runs.subList(0, count).clear();
+      closeRuns(merged);
+      LOGGER.debug("Merged {} runs spilled to disk, {} remaining", count, runs.size());
+    }
+
+    /**
+     * Brings the buffered statements back under half of the memory budget, by removing the fullest
+     * buckets first, then by spilling the remaining ones to disk if necessary.
+     *
+     * @return the statements of the removed buckets.
+     */
+    private List<BatchableStatement<?>> relieve() {
+      long target = maxMemory / 2;
+      List<Map.Entry<ByteBuffer, Bucket>> entries = new ArrayList<>(buckets.entrySet());
+      entries.sort(
+          Comparator.comparingInt(
+                  (Map.Entry<ByteBuffer, Bucket> entry) -> entry.getValue().statements.size())
+              .reversed());
+      List<BatchableStatement<?>> emitted = new ArrayList<>();
+      for (Map.Entry<ByteBuffer, Bucket> entry : entries) {
+        Bucket bucket = entry.getValue();
+        if (memory <= target || bucket.statements.size() < MIN_EMITTED_BUCKET_SIZE) {
+          break;
+        }
+        buckets.remove(entry.getKey());
+        emitted.addAll(bucket.statements);
+        memory -= bucket.memory;
+      }
+      if (!emitted.isEmpty()) {
+        LOGGER.debug("Emitting {} statements before the end of the flow", emitted.size());
+      }
+      if (memory > target) {
+        spill();
+      }
+      return emitted;
+    }
+
+    private void spill() {
+      List<ByteBuffer> keys = new ArrayList<>(buckets.keySet());
+      keys.sort(Comparator.naturalOrder());
+      SpillFile run = null;
+      try {
+        run = new SpillFile(spillDirectory);
+        runs.add(run);
+        long count = 0;
+        for (ByteBuffer key : keys) {
+          for (BatchableStatement<?> statement : buckets.get(key).statements) {
+            run.write(key, (MappedBoundStatement) statement);
+            count++;
+          }
+        }
+        run.flip();
+        spilledStatements += count;
+        LOGGER.debug("Spilled {} statements ({} bytes estimated) to disk", count, memory);
+      } catch (IOException e) {
+        throw new UncheckedIOException("Could not spill sorted statements to disk", e);
+      }
+      buckets.clear();
+      memory = 0;
+    }
+
+    private void close() {
+      buckets.clear();
+      closeRuns(runs);
+      runs.clear();
+    }
+
+    private void closeRuns(List<SpillFile> runs) {
+      IOException error = null;
+      for (SpillFile run : runs) {
+        try {
+          run.close();
+        } catch (IOException e) {
+          if (error == null) {
+            error = e;
+          } else {
+            error.addSuppressed(e);
+          }
+        }
+      }
+      if (error != null) {
+        LOGGER.warn("Could not delete presort temporary files", error);
+      }
+    }
+
+    /** Merges the given spilled runs, emitting statements in routing key order. */
+    private class MergingIterator implements Iterator<MappedBoundStatement> {
+
+      private final PriorityQueue<SpillFile> queue =
+          new PriorityQueue<>(Comparator.comparing(SpillFile::getCurrentKey));
+
+      private MergingIterator(List<SpillFile> runs) {
+        for (SpillFile run : runs) {
+          advance(run);
+        }
+      }
+
+      @Override
+      public boolean hasNext() {
+        return !queue.isEmpty();
+      }
+
+      @Override
+      public MappedBoundStatement next() {
+        SpillFile run = queue.poll();
+        if (run == null) {
+          throw new NoSuchElementException();
+        }
+        MappedBoundStatement statement = run.getCurrent();
+        advance(run);
+        return statement;
+      }
+
+      private void advance(SpillFile run) {
+        try {
+          if (run.advance()) {
+            queue.add(run);
+          }
+        } catch (IOException e) {
+          throw new UncheckedIOException("Could not read sorted statements from disk", e);
+        }
+      }
+    }
+  }
+
+  private static long estimateSize(MappedBoundStatement statement, ByteBuffer routingKey) {
+    long size = STATEMENT_OVERHEAD + (long) routingKey.remaining();
+    for (int i = 0; i < statement.size(); i++) {
+      ByteBuffer bb = statement.getBytesUnsafe(i);
+      size += VALUE_OVERHEAD + (bb == null ? 0L : (long) bb.remaining());
+    }
+    Object source = statement.getRecord().getSource();
+    if (source instanceof CharSequence) {
+      size += 2L * ((CharSequence) source).length();
+    }
+    return size;
+  }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.dsbulk.workflow.commons.utils;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+/**
+ * A HyperLogLog sketch, estimating the number of distinct elements in a stream, in fixed memory.
+ *
+ * <p>Elements are added as 64-bit hashes, which must be evenly distributed, e.g. Murmur3 hashes.
+ * With a precision of {@code p}, the sketch uses {@code 2^p} bytes, and the standard error of its
+ * estimates is about {@code 1.04 / sqrt(2^p)}, e.g. 0.8% for a precision of 14. Sketches of the
+ * same precision can be merged, the result being the sketch of the union of their elements.
+ *
+ * <p>This class is not thread-safe.
+ */
+public class HyperLogLog {
+
+  private final int precision;
+  private final byte[] registers;
+
+  /** @param precision the number of bits used to index registers, between 4 and 18. */
+  public HyperLogLog(int precision) {
+    if (precision < 4 || precision > 18) {
+      throw new IllegalArgumentException(
+          "Precision must be between 4 and 18 (inclusive), got: " + precision);
+    }
+    this.precision = precision;
+    registers = new byte[1 << precision];
+  }
+
+  /** Adds the element with the given hash. */
+  public void add(long hash) {
+    int index = (int) (hash >>> (64 - precision));
+    // the position of the leftmost 1-bit in the remaining bits; the sentinel bit caps the rank
+    long remaining = (hash << precision) | (1L << (precision - 1));
+    byte rank = (byte) (Long.numberOfLeadingZeros(remaining) + 1);
+    if (rank > registers[index]) {
+      registers[index] = rank;
+    }
+  }
+
+  /**
+   * Merges the given sketch into this one.
+   *
+   * @throws IllegalArgumentException if the sketches do not have the same precision.
+   */
+  public void merge(@NonNull HyperLogLog other) {
+    if (other.precision != precision) {
+      throw new IllegalArgumentException(
+          String.format(
+              "Cannot merge sketches of different precisions: %d and %d",
+              precision, other.precision));
+    }
+    for (int i = 0; i < registers.length; i++) {
+      if (other.registers[i] > registers[i]) {
+        registers[i] = other.registers[i];
+      }
+    }
+  }
+
+  /** @return the estimated number of distinct elements added to this sketch. */
+  public long estimate() {
+    int m = registers.length;
+    double sum = 0;
+    int zeros = 0;
+    for (byte register : registers) {
+      sum += 1.0 / (1L << register);
+      if (register == 0) {
+        zeros++;
+      }
+    }
+    double alpha = 0.7213 / (1 + 1.079 / m);
+    double estimate = alpha * m * m / sum;
+    if (estimate <= 2.5 * m && zeros > 0) {
+      // small range correction: linear counting is more accurate
+      estimate = m * Math.log((double) m / zeros);
+    }
+    return Math.round(estimate);
+  }
+}
@@ -0,0 +1,327 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.dsbulk.workflow.commons.utils;
+
+import com.datastax.oss.driver.api.core.CqlIdentifier;
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.Statement;
+import com.datastax.oss.driver.api.core.metadata.Node;
+import com.datastax.oss.driver.api.core.metadata.TokenMap;
+import com.datastax.oss.driver.api.core.metadata.token.Token;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+
+/**
+ * Dispatches items, typically token range reads, to a {@link Flux#flatMap(Function, int, int)
+ * flatMap} stage in an order that spreads the load evenly across the replicas owning them.
+ *
+ * <p>Items are grouped by replica set. Each time the flatMap stage requests a new item, the
+ * dispatcher picks the first pending item of the group whose replicas currently have the fewest
+ * in-flight items, and moves that group to the end of the rotation, so that groups with equal load
+ * are served in a round-robin fashion. An in-flight item counts towards the load of all its
+ * replicas, since it is not known in advance which replica will coordinate it; an item can only be
+ * dispatched if at least one of its replicas has fewer in-flight items than the per-node limit.
+ * When all pending items are owned by saturated nodes, the item is dispatched as soon as one of
+ * their in-flight items completes. Items without known replicas are never delayed.
+ *
+ * <p>Items can also be {@linkplain #add(Object) added} while the resulting flux runs, e.g. to
+ * dispatch the remainder of an item that was cut short; the flux completes once no item is pending
+ * nor in flight anymore.
+ *
+ * <p>This class is not reusable: {@link #flatMap(Function, int, int)} must be invoked only once,
+ * and the resulting flux subscribed to only once.
+ *
+ * @param <T> the type of items to dispatch.
+ * @param <N> the type of replicas.
+ */
+public class ReplicaAwareDispatcher<T, N> {
+
+  /**
+   * Creates a dispatcher for items that can be mapped to a statement, by locating the replicas of
+   * each statement's routing token in the session's token map.
+   *
+   * @param session the session to use.
+   * @param items the items to dispatch, in their preferred order.
+   * @param statementOf the function returning the statement of each item.
+   * @param maxConcurrencyPerNode the maximum number of in-flight items per node, or zero or a
+   *     negative value to compute one from the concurrency and the number of nodes.
+   * @return a new dispatcher.
+   */
+  @NonNull
+  public static <T> ReplicaAwareDispatcher<T, Node> forStatements(
+      @NonNull CqlSession session,
+      @NonNull Collection<T> items,
+      @NonNull Function<? super T, ? extends Statement<?>> statementOf,
+      int maxConcurrencyPerNode) {
+    Optional<TokenMap> tokenMap = session.getMetadata().getTokenMap();
+    return new ReplicaAwareDispatcher<>(
+        items,
+        item ->
+            tokenMap
+                .map(map -> replicasOf(map, statementOf.apply(item)))
+                .orElse(Collections.emptySet()),
+        maxConcurrencyPerNode);
+  }
+
+  @NonNull
+  private static Set<Node> replicasOf(@NonNull TokenMap tokenMap, @NonNull Statement<?> statement) {
+    CqlIdentifier keyspace =
+        statement.getKeyspace() != null ? statement.getKeyspace() : statement.getRoutingKeyspace();
+    Token token = statement.getRoutingToken();
+    if (keyspace != null && token != null) {
+      return tokenMap.getReplicas(keyspace, token);
+    }
+    return Collections.emptySet();
+  }
+
+  private final Map<Set<N>, Deque<T>> pending = new LinkedHashMap<>();
+  private final Map<N, Integer> loads = new HashMap<>();
+  private final Function<? super T, ? extends Set<N>> replicasOf;
+  private final int numNodes;
+  private final int maxReplicas;
+
+  private final AtomicInteger wip = new AtomicInteger();
+  private final AtomicBoolean subscribed = new AtomicBoolean();
+
+  private int maxConcurrencyPerNode;
+
+  // the fields below are guarded by this
+  private FluxSink<Dispatched<T, N>> sink;
+  private int remaining;
+  private int inFlight;
+
+  /**
+   * Creates a new dispatcher.
+   *
+   * @param items the items to dispatch, in their preferred order.
+   * @param replicasOf the function returning the replicas of each item; it is invoked once per
+   *     item, when the dispatcher is created or when the item is added.
+   * @param maxConcurrencyPerNode the maximum number of in-flight items per node, or zero or a
+   *     negative value to compute one from the concurrency and the number of nodes.
+   */
+  public ReplicaAwareDispatcher(
+      @NonNull Collection<T> items,
+      @NonNull Function<? super T, ? extends Set<N>> replicasOf,
+      int maxConcurrencyPerNode) {
+    Set<N> nodes = new HashSet<>();
+    int maxReplicas = 0;
+    for (T item : items) {
+      Set<N> replicas = replicasOf.apply(item);
+      pending.computeIfAbsent(replicas, k -> new ArrayDeque<>()).add(item);
+      nodes.addAll(replicas);
+      maxReplicas = Math.max(maxReplicas, replicas.size());
+    }
+    this.replicasOf = replicasOf;
+    this.numNodes = nodes.size();
+    this.maxReplicas = maxReplicas;
+    this.remaining = items.size();
+    this.maxConcurrencyPerNode = maxConcurrencyPerNode;
+  }
+
+  /**
+   * Adds an item to dispatch after the ones already pending. This must be invoked while another
+   * item is in flight, i.e. before its publisher terminates, otherwise the flux may have completed
+   * already.
+   *
+   * @param item the item to add.
+   */
+  public void add(@NonNull T item) {
+    Set<N> replicas = replicasOf.apply(item);
+    synchronized (this) {
+      if (remaining == 0 && inFlight == 0) {
+        throw new IllegalStateException("This dispatcher has completed already");
+      }
+      pending.computeIfAbsent(replicas, k -> new ArrayDeque<>()).add(item);
+      remaining++;
+    }
+    drain();
+  }
+
+  /**
+   * Maps the items to publishers, and merges them, with the given maximum concurrency.
+   *
+   * @param mapper the function to apply to each item.
+   * @param concurrency the maximum number of items mapped in parallel.
+   * @param prefetch the number of elements to prefetch from each inner publisher.
+   * @return the merged flux.
+   */
+  @NonNull
+  public <R> Flux<R> flatMap(
+      @NonNull Function<? super T, ? extends Publisher<? extends R>> mapper,
+      int concurrency,
+      int prefetch) {
+    if (!subscribed.compareAndSet(false, true)) {
+      throw new IllegalStateException("This dispatcher can only be used once");
+    }
+    if (maxConcurrencyPerNode <= 0) {
+      maxConcurrencyPerNode = defaultMaxConcurrencyPerNode(concurrency);
+    }
+    return Flux.<Dispatched<T, N>>create(this::subscribe)
+        .flatMap(
+            dispatched ->
+                Flux.<R>from(mapper.apply(dispatched.item))
+                    // release before the flatMap stage requests the next item
+                    .doOnTerminate(dispatched::release)
+                    .doOnCancel(dispatched::release),
+            concurrency,
+            prefetch);
+  }
+
+  /**
+   * @return the maximum number of in-flight items per node that still allows the given concurrency
+   *     to be reached when the items are evenly spread across nodes.
+   */
+  int defaultMaxConcurrencyPerNode(int concurrency) {
+    if (numNodes == 0) {
+      return Math.max(1, concurrency);
+    }
+    long total = (long) concurrency * maxReplicas;
+    return (int) Math.max(1, (total + numNodes - 1) / numNodes);
+  }
+
+  private void subscribe(FluxSink<Dispatched<T, N>> sink) {
+    synchronized (this) {
+      this.sink = sink;
+    }
+    sink.onRequest(n -> drain());
+    drain();
+  }
+
+  private void drain() {
+    if (wip.getAndIncrement() != 0) {
+      return;
+    }
+    int missed = 1;
+    do {
+      FluxSink<Dispatched<T, N>> sink;
+      while (true) {
+        Dispatched<T, N> next;
+        synchronized (this) {
+          sink = this.sink;
+          // only this loop emits items, so the demand cannot decrease concurrently
+          if (sink == null
+              || sink.isCancelled()
+              || sink.requestedFromDownstream() == 0
+              || remaining == 0) {
+            break;
+          }
+          next = poll();
+          if (next == null) {
+            break;
+          }
+          remaining--;
+        }
+        // emit outside the lock, since the flatMap stage may release items synchronously
+        sink.next(next);
+      }
+      boolean done;
+      synchronized (this) {
+        done = sink != null && remaining == 0 && inFlight == 0;
+      }
+      if (done) {
+        sink.complete();
+      }
+      missed = wip.addAndGet(-missed);
+    } while (missed != 0);
+  }
+
+  /** Must be called while holding the lock. */
+  private Dispatched<T, N> poll() {
+    Set<N> best = null;
+    int bestMin = Integer.MAX_VALUE;
+    int bestSum = Integer.MAX_VALUE;
+    for (Iterator<Map.Entry<Set<N>, Deque<T>>> it = pending.entrySet().iterator(); it.hasNext(); ) {
+      Map.Entry<Set<N>, Deque<T>> entry = it.next();
+      if (entry.getValue().isEmpty()) {
+        it.remove();
+        continue;
+      }
+      Set<N> replicas = entry.getKey();
+      int min = replicas.isEmpty() ? 0 : Integer.MAX_VALUE;
+      int sum = 0;
+      for (N replica : replicas) {
+        int load = loads.getOrDefault(replica, 0);
+        min = Math.min(min, load);
+        sum += load;
+      }
+      if (min < maxConcurrencyPerNode && (min < bestMin || (min == bestMin && sum < bestSum))) {
+        best = replicas;
+        bestMin = min;
+        bestSum = sum;
+      }
+    }
+    if (best == null) {
+      return null;
+    }
+    // move the group to the end of the rotation
+    Deque<T> items = pending.remove(best);
+    T item = items.poll();
+    if (!items.isEmpty()) {
+      pending.put(best, items);
+    }
+    for (N replica : best) {
+      loads.merge(replica, 1, Integer::sum);
+    }
+    inFlight++;
+    return new Dispatched<>(this, item, best);
+  }
+
+  private void release(Set<N> replicas) {
+    synchronized (this) {
+      for (N replica : replicas) {
+        loads.computeIfPresent(replica, (k, load) -> load == 1 ? null : load - 1);
+      }
+      inFlight--;
+    }
+    drain();
+  }
+
+  private static class Dispatched<T, N> {
+
+    private final ReplicaAwareDispatcher<T, N> parent;
+    private final T item;
+    private final Set<N> replicas;
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    private Dispatched(ReplicaAwareDispatcher<T, N> parent, T item, Set<N> replicas) {
+      this.parent = parent;
+      this.item = item;
+      this.replicas = replicas;
+    }
+
+    private void release() {
+      if (released.compareAndSet(false, true)) {
+        parent.release(replicas);
+      }
+    }
+  }
+}
@@ -21,6 +21,8 @@ import static com.datastax.oss.dsbulk.tests.driver.DriverUtils.mockBoundStatemen
 import static com.datastax.oss.dsbulk.tests.driver.DriverUtils.mockRow;
 import static com.datastax.oss.dsbulk.tests.driver.DriverUtils.mockSession;
 import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.entry;
 import static org.assertj.core.api.Fail.fail;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -60,16 +62,21 @@ import com.datastax.oss.dsbulk.workflow.api.error.TooManyErrorsException;
 import com.datastax.oss.dsbulk.workflow.commons.format.statement.MappedBoundStatementPrinter;
 import com.datastax.oss.dsbulk.workflow.commons.statement.MappedBoundStatement;
 import com.datastax.oss.dsbulk.workflow.commons.statement.UnmappableStatement;
+import java.io.IOException;
 import java.net.URI;
 import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import org.assertj.core.api.Assertions;
 import org.assertj.core.util.Lists;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 import reactor.core.publisher.Flux;
 
 @ExtendWith(LogInterceptingExtension.class)
@@ -220,11 +227,12 @@ class LogManagerTest {
     Path bad = logManager.getOperationDirectory().resolve("mapping.bad");
     Path errors = logManager.getOperationDirectory().resolve("mapping-errors.log");
     Path positions = logManager.getOperationDirectory().resolve("positions.txt");
+    Path checkpoint = logManager.getOperationDirectory().resolve("checkpoint.txt");
     assertThat(bad.toFile()).exists();
     assertThat(errors.toFile()).exists();
     assertThat(positions.toFile()).exists();
     assertThat(FileUtils.listAllFilesInDirectory(logManager.getOperationDirectory()))
-        .containsOnly(bad, errors, positions);
+        .containsOnly(bad, errors, positions, checkpoint);
     List<String> badLines = Files.readAllLines(bad, UTF_8);
     assertThat(badLines).hasSize(3);
     assertThat(badLines.get(0)).isEqualTo(source1.trim());
@@ -275,11 +283,12 @@ class LogManagerTest {
     Path bad = logManager.getOperationDirectory().resolve("mapping.bad");
     Path errors = logManager.getOperationDirectory().resolve("mapping-errors.log");
     Path positions = logManager.getOperationDirectory().resolve("positions.txt");
+    Path checkpoint = logManager.getOperationDirectory().resolve("checkpoint.txt");
     assertThat(bad.toFile()).exists();
     assertThat(errors.toFile()).exists();
     assertThat(positions.toFile()).exists();
     assertThat(FileUtils.listAllFilesInDirectory(logManager.getOperationDirectory()))
-        .containsOnly(bad, errors, positions);
+        .containsOnly(bad, errors, positions, checkpoint);
     List<String> badLines = Files.readAllLines(bad, UTF_8);
     assertThat(badLines).hasSize(1);
     assertThat(badLines.get(0)).isEqualTo(source1.trim());
@@ -314,11 +323,12 @@ class LogManagerTest {
     Path bad = logManager.getOperationDirectory().resolve("mapping.bad");
     Path errors = logManager.getOperationDirectory().resolve("mapping-errors.log");
     Path positions = logManager.getOperationDirectory().resolve("positions.txt");
+    Path checkpoint = logManager.getOperationDirectory().resolve("checkpoint.txt");
     assertThat(bad.toFile()).exists();
     assertThat(errors.toFile()).exists();
     assertThat(positions.toFile()).exists();
     assertThat(FileUtils.listAllFilesInDirectory(logManager.getOperationDirectory()))
-        .containsOnly(bad, errors, positions);
+        .containsOnly(bad, errors, positions, checkpoint);
     List<String> badLines = Files.readAllLines(bad, UTF_8);
     assertThat(badLines).hasSize(3);
     assertThat(badLines.get(0)).isEqualTo(source1.trim());
@@ -364,11 +374,12 @@ class LogManagerTest {
     Path bad = logManager.getOperationDirectory().resolve("connector.bad");
     Path errors = logManager.getOperationDirectory().resolve("connector-errors.log");
     Path positions = logManager.getOperationDirectory().resolve("positions.txt");
+    Path checkpoint = logManager.getOperationDirectory().resolve("checkpoint.txt");
     assertThat(bad.toFile()).exists();
     assertThat(errors.toFile()).exists();
     assertThat(positions.toFile()).exists();
     assertThat(FileUtils.listAllFilesInDirectory(logManager.getOperationDirectory()))
-        .containsOnly(bad, errors, positions);
+        .containsOnly(bad, errors, positions, checkpoint);
     List<String> lines = Files.readAllLines(errors, UTF_8);
     String content = String.join("\n", lines);
     assertThat(content)
@@ -412,6 +423,7 @@ class LogManagerTest {
     Path bad = logManager.getOperationDirectory().resolve("load.bad");
     Path errors = logManager.getOperationDirectory().resolve("load-errors.log");
     Path positions = logManager.getOperationDirectory().resolve("positions.txt");
+    Path checkpoint = logManager.getOperationDirectory().resolve("checkpoint.txt");
     assertThat(bad.toFile()).exists();
     assertThat(errors.toFile()).exists();
     assertThat(positions.toFile()).exists();
@@ -421,7 +433,7 @@ class LogManagerTest {
     assertThat(badLines.get(1)).isEqualTo(source2.trim());
     assertThat(badLines.get(2)).isEqualTo(source3.trim());
     assertThat(FileUtils.listAllFilesInDirectory(logManager.getOperationDirectory()))
-        .containsOnly(bad, errors, positions);
+        .containsOnly(bad, errors, positions, checkpoint);
     List<String> lines = Files.readAllLines(errors, UTF_8);
     String content = String.join("\n", lines);
     assertThat(content)
@@ -470,6 +482,7 @@ class LogManagerTest {
     Path bad = logManager.getOperationDirectory().resolve("load.bad");
     Path errors = logManager.getOperationDirectory().resolve("load-errors.log");
     Path positions = logManager.getOperationDirectory().resolve("positions.txt");
+    Path checkpoint = logManager.getOperationDirectory().resolve("checkpoint.txt");
     assertThat(bad.toFile()).exists();
     assertThat(errors.toFile()).exists();
     assertThat(positions.toFile()).exists();
@@ -479,7 +492,7 @@ class LogManagerTest {
     assertThat(badLines.get(1)).isEqualTo(source2.trim());
     assertThat(badLines.get(2)).isEqualTo(source3.trim());
     assertThat(FileUtils.listAllFilesInDirectory(logManager.getOperationDirectory()))
-        .containsOnly(bad, errors, positions);
+        .containsOnly(bad, errors, positions, checkpoint);
     List<String> lines = Files.readAllLines(errors, UTF_8);
     String content = String.join("\n", lines);
     assertThat(content)
@@ -531,6 +544,7 @@ class LogManagerTest {
     Path bad = logManager.getOperationDirectory().resolve("load.bad");
     Path errors = logManager.getOperationDirectory().resolve("load-errors.log");
     Path positions = logManager.getOperationDirectory().resolve("positions.txt");
+    Path checkpoint = logManager.getOperationDirectory().resolve("checkpoint.txt");
     assertThat(bad.toFile()).exists();
     assertThat(errors.toFile()).exists();
     assertThat(positions.toFile()).exists();
@@ -540,7 +554,7 @@ class LogManagerTest {
     assertThat(badLines.get(1)).isEqualTo(source2.trim());
     assertThat(badLines.get(2)).isEqualTo(source3.trim());
     assertThat(FileUtils.listAllFilesInDirectory(logManager.getOperationDirectory()))
-        .containsOnly(bad, errors, positions);
+        .containsOnly(bad, errors, positions, checkpoint);
     List<String> lines = Files.readAllLines(errors, UTF_8);
     String content = String.join("\n", lines);
     assertThat(content)
@@ -794,6 +808,7 @@ class LogManagerTest {
     Path bad = logManager.getOperationDirectory().resolve("load.bad");
     Path errors = logManager.getOperationDirectory().resolve("load-errors.log");
     Path positions = logManager.getOperationDirectory().resolve("positions.txt");
+    Path checkpoint = logManager.getOperationDirectory().resolve("checkpoint.txt");
     assertThat(bad.toFile()).exists();
     assertThat(errors.toFile()).exists();
     assertThat(positions.toFile()).exists();
@@ -801,7 +816,7 @@ class LogManagerTest {
     assertThat(badLines).hasSize(1);
     assertThat(badLines.get(0)).isEqualTo(source1.trim());
     assertThat(FileUtils.listAllFilesInDirectory(logManager.getOperationDirectory()))
-        .containsOnly(bad, errors, positions);
+        .containsOnly(bad, errors, positions, checkpoint);
     List<String> lines = Files.readAllLines(errors, UTF_8);
     String content = String.join("\n", lines);
     assertThat(content)
@@ -900,6 +915,7 @@ class LogManagerTest {
     Path bad = logManager.getOperationDirectory().resolve("paxos.bad");
     Path errors = logManager.getOperationDirectory().resolve("paxos-errors.log");
     Path positions = logManager.getOperationDirectory().resolve("positions.txt");
+    Path checkpoint = logManager.getOperationDirectory().resolve("checkpoint.txt");
     assertThat(bad.toFile()).exists();
     assertThat(errors.toFile()).exists();
     assertThat(positions.toFile()).exists();
@@ -909,7 +925,7 @@ class LogManagerTest {
     assertThat(badLines.get(1)).isEqualTo(source2.trim());
     assertThat(badLines.get(2)).isEqualTo(source3.trim());
     assertThat(FileUtils.listAllFilesInDirectory(logManager.getOperationDirectory()))
-        .containsOnly(bad, errors, positions);
+        .containsOnly(bad, errors, positions, checkpoint);
     List<String> lines = Files.readAllLines(errors, UTF_8);
     String content = String.join("\n", lines);
     assertThat(content)
@@ -1014,10 +1030,11 @@ class LogManagerTest {
     logManager.close();
     Path errors = logManager.getOperationDirectory().resolve("connector-errors.log");
     Path positions = logManager.getOperationDirectory().resolve("positions.txt");
+    Path checkpoint = logManager.getOperationDirectory().resolve("checkpoint.txt");
     assertThat(errors.toFile()).exists();
     assertThat(positions.toFile()).exists();
     assertThat(FileUtils.listAllFilesInDirectory(logManager.getOperationDirectory()))
-        .containsOnly(errors, positions);
+        .containsOnly(errors, positions, checkpoint);
     List<String> lines = Files.readAllLines(errors, UTF_8);
     String content = String.join("\n", lines);
     assertThat(content)
@@ -1028,6 +1045,138 @@ class LogManagerTest {
     assertThat(positionLines).containsOnly("file:///file1.csv:1");
   }
 
+  @Test
+  void should_resume_processed_positions() throws Exception {
+    Path outputDir = Files.createTempDirectory("test");
+    LogManager logManager =
+        new LogManager(
+            session,
+            outputDir,
+            ErrorThreshold.forAbsoluteValue(10),
+            ErrorThreshold.forAbsoluteValue(0),
+            true,
+            statementFormatter,
+            EXTENDED,
+            rowFormatter);
+    logManager.init();
+    Flux.just(csvRecord1, csvRecord2, csvRecord3)
+        .transform(logManager.newFailedRecordsHandler())
+        .blockLast();
+    logManager.close();
+    PositionsTracker resumed = LogManager.readProcessedPositions(outputDir);
+    assertThat(resumed).isNotNull();
+    assertThat(resumed.getPositions()).isEqualTo(positionsOf(csvRecord1, csvRecord2, csvRecord3));
+    // a resumed operation carries over the positions processed so far
+    Path outputDir2 = Files.createTempDirectory("test");
+    LogManager logManager2 =
+        new LogManager(
+            session,
+            outputDir2,
+            ErrorThreshold.forAbsoluteValue(10),
+            ErrorThreshold.forAbsoluteValue(0),
+            true,
+            statementFormatter,
+            EXTENDED,
+            rowFormatter,
+            resumed);
+    logManager2.init();
+    logManager2.close();
+    assertThat(LogManager.readProcessedPositions(outputDir2).getPositions())
+        .isEqualTo(resumed.getPositions());
+    // positions files from previous versions are supported
+    Path outputDir3 = Files.createTempDirectory("test");
+    Files.write(
+        outputDir3.resolve("positions.txt"),
+        Files.readAllLines(outputDir.resolve("positions.txt")));
+    PositionsTracker legacy = LogManager.readProcessedPositions(outputDir3);
+    assertThat(legacy).isNotNull();
+    assertThat(legacy.getLastContiguousPositions())
+        .containsOnly(entry(resource1, 1L), entry(resource2, 2L), entry(resource3, 3L));
+    assertThat(LogManager.readProcessedPositions(Files.createTempDirectory("test"))).isNull();
+  }
+
+  @ParameterizedTest
+  @ValueSource(
+      strings = {
+        "file:///data.csv",
+        "file:///data.csv:",
+        "file:///data.csv:1-3,",
+        "file:///data.csv:1-3,,5-6",
+        "file:///data.csv:3-1",
+        "file:///data.csv:0-1",
+        "file:///data.csv:1-x"
+      })
+  void should_reject_malformed_positions(String line) throws Exception {
+    Path outputDir = Files.createTempDirectory("test");
+    Files.write(outputDir.resolve("positions.txt"), Collections.singletonList(line));
+    assertThatThrownBy(() -> LogManager.readProcessedPositions(outputDir))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageStartingWith("Invalid line in")
+        .hasMessageContaining(line);
+  }
+
+  @Test
+  void should_record_completed_ranges() throws Exception {
+    Path outputDir = Files.createTempDirectory("test");
+    LogManager logManager =
+        new LogManager(
+            session,
+            outputDir,
+            ErrorThreshold.forAbsoluteValue(10),
+            ErrorThreshold.forAbsoluteValue(0),
+            false,
+            statementFormatter,
+            EXTENDED,
+            rowFormatter);
+    logManager.init();
+    assertThat(LogManager.readCompletedRanges(outputDir)).isNull();
+    logManager.recordCompletedRange("range_1_2");
+    // ranges are readable before the operation completes
+    assertThat(LogManager.readCompletedRanges(outputDir)).containsOnly("range_1_2");
+    logManager.recordCompletedRange("range_2_3");
+    logManager.close();
+    assertThat(LogManager.readCompletedRanges(outputDir)).containsOnly("range_1_2", "range_2_3");
+  }
+
+  @Test
+  void should_not_record_ranges_with_failed_writes() throws Exception {
+    Path outputDir = Files.createTempDirectory("test");
+    LogManager logManager =
+        new LogManager(
+            session,
+            outputDir,
+            ErrorThreshold.forAbsoluteValue(10),
+            ErrorThreshold.forAbsoluteValue(0),
+            false,
+            statementFormatter,
+            EXTENDED,
+            rowFormatter);
+    logManager.init();
+    Record written = DefaultRecord.indexed(null, resource1, 1, "foo");
+    // the connector emits an error record when a record could not be written
+    Record notWritten = new DefaultErrorRecord(null, resource1, 2, new IOException("cannot write"));
+    Flux.just(written, notWritten)
+        .transform(logManager.newFailedRangeMonitor("range_1_2"))
+        .transform(logManager.newFailedRecordsHandler())
+        .blockLast();
+    Flux.just(written)
+        .transform(logManager.newFailedRangeMonitor("range_2_3"))
+        .transform(logManager.newFailedRecordsHandler())
+        .blockLast();
+    logManager.recordCompletedRange("range_1_2");
+    logManager.recordCompletedRange("range_2_3");
+    logManager.close();
+    assertThat(LogManager.readCompletedRanges(outputDir)).containsOnly("range_2_3");
+  }
+
+  private static Map<URI, List<Range>> positionsOf(Record... records) {
+    PositionsTracker tracker = new PositionsTracker();
+    for (Record record : records) {
+      tracker.update(record.getResource(), record.getPosition());
+    }
+    return tracker.getPositions();
+  }
+
   @Test
   void should_handle_unmappable_statements_without_source() throws Exception {
     Path outputDir = Files.createTempDirectory("test");
@@ -1049,10 +1198,11 @@ class LogManagerTest {
     logManager.close();
     Path errors = logManager.getOperationDirectory().resolve("mapping-errors.log");
     Path positions = logManager.getOperationDirectory().resolve("positions.txt");
+    Path checkpoint = logManager.getOperationDirectory().resolve("checkpoint.txt");
     assertThat(errors.toFile()).exists();
     assertThat(positions.toFile()).exists();
     assertThat(FileUtils.listAllFilesInDirectory(logManager.getOperationDirectory()))
-        .containsOnly(errors, positions);
+        .containsOnly(errors, positions, checkpoint);
     List<String> lines = Files.readAllLines(errors, UTF_8);
     String content = String.join("\n", lines);
     assertThat(content)
@@ -21,7 +21,11 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.params.provider.Arguments.arguments;
 
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.assertj.core.util.Lists;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
@@ -53,6 +57,111 @@ class PositionsTrackerTest {
     assertThat(tracker.getPositions().get(RESOURCE)).containsExactly(new Range(1L, 6L));
   }
 
+  @Test
+  void should_update_ranges() {
+    PositionsTracker tracker = new PositionsTracker();
+    tracker.update(RESOURCE, 1, 3);
+    tracker.update(RESOURCE, 4, 5);
+    tracker.update(RESOURCE, 8, 10);
+    assertThat(tracker.getPositions().get(RESOURCE))
+        .containsExactly(new Range(1L, 5L), new Range(8L, 10L));
+    // positions can be updated afterwards
+    tracker.update(RESOURCE, 6);
+    tracker.update(RESOURCE, 7);
+    assertThat(tracker.getPositions().get(RESOURCE)).containsExactly(new Range(1L, 10L));
+  }
+
+  @Test
+  void should_merge_ranges_out_of_order() {
+    PositionsTracker tracker = new PositionsTracker();
+    tracker.update(RESOURCE, 10, 12);
+    tracker.update(RESOURCE, 20, 22);
+    tracker.update(RESOURCE, 5, 6);
+    assertThat(tracker.getPositions().get(RESOURCE))
+        .containsExactly(new Range(5L, 6L), new Range(10L, 12L), new Range(20L, 22L));
+    // spans several ranges
+    tracker.update(RESOURCE, 7, 19);
+    assertThat(tracker.getPositions().get(RESOURCE)).containsExactly(new Range(5L, 22L));
+    // joins the first range
+    tracker.update(RESOURCE, 1, 4);
+    assertThat(tracker.getPositions().get(RESOURCE)).containsExactly(new Range(1L, 22L));
+    assertThat(tracker.getLastContiguousPositions()).containsEntry(RESOURCE, 22L);
+  }
+
+  @Test
+  void should_update_positions_concurrently() throws Exception {
+    int threads = 8;
+    int positionsPerThread = 10_000;
+    URI other = URI.create("file://other.csv");
+    PositionsTracker tracker = new PositionsTracker();
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < threads; i++) {
+        int thread = i;
+        futures.add(
+            executor.submit(
+                () -> {
+                  // interleaved positions, so that threads race on the contiguous prefix,
+                  // and some descending positions, so that ranges are created and merged
+                  for (int j = 0; j < positionsPerThread; j++) {
+                    long position = (long) j * threads + thread + 1;
+                    tracker.update(RESOURCE, position);
+                    tracker.update(other, (long) threads * positionsPerThread - position + 1);
+                  }
+                }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    long total = (long) threads * positionsPerThread;
+    assertThat(tracker.getPositions().get(RESOURCE)).containsExactly(new Range(1L, total));
+    assertThat(tracker.getPositions().get(other)).containsExactly(new Range(1L, total));
+    assertThat(tracker.contains(RESOURCE, total)).isTrue();
+    assertThat(tracker.contains(RESOURCE, total + 1)).isFalse();
+  }
+
+  @Test
+  void should_check_processed_positions() {
+    PositionsTracker tracker = new PositionsTracker();
+    tracker.update(RESOURCE, 1, 3);
+    tracker.update(RESOURCE, 6, 7);
+    tracker.update(RESOURCE, 10, 10);
+    assertThat(tracker.contains(RESOURCE, 0)).isFalse();
+    assertThat(tracker.contains(RESOURCE, 1)).isTrue();
+    assertThat(tracker.contains(RESOURCE, 3)).isTrue();
+    assertThat(tracker.contains(RESOURCE, 4)).isFalse();
+    assertThat(tracker.contains(RESOURCE, 7)).isTrue();
+    assertThat(tracker.contains(RESOURCE, 9)).isFalse();
+    assertThat(tracker.contains(RESOURCE, 10)).isTrue();
+    assertThat(tracker.contains(RESOURCE, 11)).isFalse();
+    assertThat(tracker.contains(URI.create("file://other.csv"), 1)).isFalse();
+  }
+
+  @Test
+  void should_report_last_contiguous_positions() {
+    URI other = URI.create("file://other.csv");
+    PositionsTracker tracker = new PositionsTracker();
+    tracker.update(RESOURCE, 1, 3);
+    tracker.update(RESOURCE, 6, 7);
+    // does not start at the first position
+    tracker.update(other, 2, 5);
+    assertThat(tracker.getLastContiguousPositions()).hasSize(1).containsEntry(RESOURCE, 3L);
+  }
+
+  @Test
+  void should_copy_tracker() {
+    PositionsTracker tracker = new PositionsTracker();
+    tracker.update(RESOURCE, 1, 3);
+    PositionsTracker copy = new PositionsTracker(tracker);
+    copy.update(RESOURCE, 4);
+    assertThat(tracker.getPositions().get(RESOURCE)).containsExactly(new Range(1L, 3L));
+    assertThat(copy.getPositions().get(RESOURCE)).containsExactly(new Range(1L, 4L));
+  }
+
   @SuppressWarnings("unused")
   static List<Arguments> should_update_positions() {
     return Lists.newArrayList(
@@ -136,6 +136,41 @@ class MetricsManagerTest {
     }
   }
 
+  @Test
+  void should_increment_records_by_weight() {
+    try (MetricsManager manager =
+        new MetricsManager(
+            new MetricRegistry(),
+            false,
+            "test",
+            Executors.newSingleThreadScheduledExecutor(),
+            SECONDS,
+            MILLISECONDS,
+            -1,
+            -1,
+            true,
+            false,
+            false,
+            true,
+            null,
+            LogSettings.Verbosity.quiet,
+            Duration.ofSeconds(5),
+            false,
+            protocolVersion,
+            codecRegistry,
+            RowType.REGULAR)) {
+      manager.init();
+      manager.start();
+      Flux.just(1000L, 250L, 1L)
+          .transform(manager.newTotalItemsMonitor(Long::longValue))
+          .blockLast();
+      manager.stop();
+      MetricRegistry registry =
+          (MetricRegistry) ReflectionUtils.getInternalState(manager, "registry");
+      assertThat(registry.counter("records/total").getCount()).isEqualTo(1251);
+    }
+  }
+
   @Test
   void should_increment_batches(
       @LogCapture(value = MetricsManager.class, level = INFO) LogInterceptor logs,
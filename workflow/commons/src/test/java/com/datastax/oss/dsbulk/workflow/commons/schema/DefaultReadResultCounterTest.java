@@ -20,6 +20,7 @@ import static com.datastax.oss.driver.api.core.type.DataTypes.INT;
 import static com.datastax.oss.dsbulk.partitioner.utils.TokenUtils.getTokenValue;
 import static com.datastax.oss.dsbulk.tests.driver.DriverUtils.newToken;
 import static com.datastax.oss.dsbulk.tests.driver.DriverUtils.newTokenRange;
+import static com.datastax.oss.dsbulk.workflow.commons.settings.StatsSettings.StatisticsMode.distribution;
 import static com.datastax.oss.dsbulk.workflow.commons.settings.StatsSettings.StatisticsMode.global;
 import static com.datastax.oss.dsbulk.workflow.commons.settings.StatsSettings.StatisticsMode.hosts;
 import static com.datastax.oss.dsbulk.workflow.commons.settings.StatsSettings.StatisticsMode.partitions;
@@ -27,11 +28,13 @@ import static com.datastax.oss.dsbulk.workflow.commons.settings.StatsSettings.St
 import static java.net.InetSocketAddress.createUnresolved;
 import static java.util.Collections.singleton;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 import com.datastax.oss.driver.api.core.CqlIdentifier;
 import com.datastax.oss.driver.api.core.cql.ColumnDefinitions;
 import com.datastax.oss.driver.api.core.cql.Row;
+import com.datastax.oss.driver.api.core.cql.Statement;
 import com.datastax.oss.driver.api.core.metadata.EndPoint;
 import com.datastax.oss.driver.api.core.metadata.Metadata;
 import com.datastax.oss.driver.api.core.metadata.Node;
@@ -46,9 +49,12 @@ import com.datastax.oss.dsbulk.executor.api.result.ReadResult;
 import com.datastax.oss.dsbulk.tests.driver.DriverUtils;
 import com.datastax.oss.dsbulk.tests.logging.StreamInterceptingExtension;
 import com.datastax.oss.dsbulk.tests.logging.StreamInterceptor;
+import com.datastax.oss.dsbulk.tests.utils.ReflectionUtils;
 import com.datastax.oss.dsbulk.tests.utils.TestConfigUtils;
 import com.datastax.oss.dsbulk.workflow.commons.settings.CodecSettings;
 import com.typesafe.config.Config;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
 import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.EnumSet;
@@ -312,6 +318,138 @@ class DefaultReadResultCounterTest {
                 "%s %s 0 0.00", getTokenValue(range3.getStart()), getTokenValue(range3.getEnd())));
   }
 
+  @Test
+  void should_count_ranges_server_side(StreamInterceptor stdout) {
+    DefaultReadResultCounter counter =
+        new DefaultReadResultCounter(
+            ks, metadata, EnumSet.of(global, ranges), 10, V4, codecFactory, true, null);
+
+    ReadResultCounter.CountingUnit unit = counter.newCountingUnit();
+
+    // each result carries the count of the split read by its statement, routed by its end token
+    Statement<?> statement1 = mock(Statement.class);
+    Statement<?> statement2 = mock(Statement.class);
+    when(statement1.getRoutingToken()).thenReturn(token2);
+    when(statement2.getRoutingToken()).thenReturn(token3);
+    when(result1.getStatement()).thenAnswer(invocation -> statement1);
+    when(result2.getStatement()).thenAnswer(invocation -> statement2);
+    when(result3.getStatement()).thenAnswer(invocation -> statement2);
+    when(row1.getLong(0)).thenReturn(10L);
+    when(row2.getLong(0)).thenReturn(15L);
+    when(row3.getLong(0)).thenReturn(15L);
+
+    unit.update(result1);
+    unit.update(result2);
+    unit.update(result3);
+    counter.consolidateUnitCounts();
+
+    assertThat(counter.totalRows).isEqualTo(40);
+    assertThat(counter.totalsByRange)
+        .containsEntry(range1, 10L)
+        .containsEntry(range2, 30L)
+        .doesNotContainKey(range3);
+
+    counter.reportTotals();
+    assertThat(stdout.getStreamLines())
+        .contains(
+            "40",
+            String.format(
+                "%s %s 10 25.00", getTokenValue(range1.getStart()), getTokenValue(range1.getEnd())),
+            String.format(
+                "%s %s 30 75.00",
+                getTokenValue(range2.getStart()), getTokenValue(range2.getEnd())));
+  }
+
+  @Test
+  void should_count_partitions_with_partition_key_after_other_columns() {
+    DefaultReadResultCounter counter =
+        new DefaultReadResultCounter(
+            ks, metadata, EnumSet.of(partitions), 10, V4, codecFactory, false, new int[] {1});
+
+    ReadResultCounter.CountingUnit unit = counter.newCountingUnit();
+
+    // the partition key is the second column: pk=1 has 2 rows, pk=2 has 1 row
+    unit.update(mockResult(DriverUtils.mockRow("a", 1)));
+    unit.update(mockResult(DriverUtils.mockRow("b", 1)));
+    unit.update(mockResult(DriverUtils.mockRow("c", 2)));
+
+    counter.close();
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    counter.reportTotals(new PrintStream(baos, true));
+    assertThat(baos.toString().split(System.lineSeparator()))
+        .containsExactly("1 2 66.67", "2 1 33.33");
+  }
+
+  @Test
+  void should_merge_and_release_closed_units() {
+    DefaultReadResultCounter counter =
+        new DefaultReadResultCounter(
+            ks, metadata, EnumSet.of(distribution), 10, V4, codecFactory, false, new int[] {0});
+    @SuppressWarnings("unchecked")
+    Set<Object> units = (Set<Object>) ReflectionUtils.getInternalState(counter, "units");
+
+    DefaultReadResultCounter.DefaultCountingUnit unit1 = counter.newCountingUnit();
+    unit1.update(result1);
+    unit1.update(result2);
+    unit1.close();
+    DefaultReadResultCounter.DefaultCountingUnit unit2 = counter.newCountingUnit();
+    unit2.update(result3);
+    unit2.update(result3);
+    assertThat(units).containsOnly(unit2);
+
+    // units not closed yet are counted too
+    counter.consolidateUnitCounts();
+    assertThat(counter.totalRows).isEqualTo(4);
+    assertThat(counter.distinctPartitions.estimate()).isEqualTo(3);
+
+    unit2.close();
+    // closing twice does not count twice
+    unit2.close();
+    assertThat(units).isEmpty();
+    counter.close();
+
+    assertThat(counter.totalRows).isEqualTo(4);
+    assertThat(counter.distinctPartitions.estimate()).isEqualTo(3);
+    assertThat(counter.rowsPerPartition.getTotalCount()).isEqualTo(3);
+    assertThat(counter.rowsPerPartition.getMaxValue()).isEqualTo(2);
+  }
+
+  @Test
+  void should_count_partition_distribution(StreamInterceptor stdout) {
+    DefaultReadResultCounter counter =
+        new DefaultReadResultCounter(
+            ks, metadata, EnumSet.of(distribution), 10, V4, codecFactory, false, new int[] {0});
+
+    DefaultReadResultCounter.DefaultCountingUnit unit1 = counter.newCountingUnit();
+    DefaultReadResultCounter.DefaultCountingUnit unit2 = counter.newCountingUnit();
+
+    // pk1=1, pk2=2 in unit1; pk3=3 and pk2=1 (counted twice) in unit2
+    unit1.update(result1);
+    unit1.update(result2);
+    unit1.update(result2);
+    unit2.update(result3);
+    unit2.update(result3);
+    unit2.update(result3);
+    unit2.update(result2);
+    counter.close();
+
+    assertThat(counter.totalRows).isEqualTo(7);
+    assertThat(counter.distinctPartitions.estimate()).isEqualTo(3);
+    assertThat(counter.rowsPerPartition.getTotalCount()).isEqualTo(4);
+    assertThat(counter.rowsPerPartition.getMinValue()).isEqualTo(1);
+    assertThat(counter.rowsPerPartition.getMaxValue()).isEqualTo(3);
+    // each row is 4 bytes
+    assertThat(counter.bytesPerRow.getTotalCount()).isEqualTo(7);
+    assertThat(counter.bytesPerRow.getMaxValue()).isEqualTo(4);
+
+    counter.reportTotals();
+    assertThat(stdout.getStreamLines())
+        .contains(
+            "partitions 3",
+            "rows_per_partition 1 1.75 1 3 3 3 3",
+            "bytes_per_row 4 4.00 4 4 4 4 4");
+  }
+
   @Test
   void should_count_biggest_partitions(StreamInterceptor stdout) {
     DefaultReadResultCounter counter =
@@ -336,9 +474,9 @@ class DefaultReadResultCounterTest {
     assertThat(unit.currentPk.components).containsOnly(bb2);
     assertThat(unit.currentPk.hashCode).isEqualTo(Arrays.hashCode(new ByteBuffer[] {bb2}));
     assertThat(unit.totalsByPartitionKey.size()).isOne();
-    assertThat(unit.totalsByPartitionKey.get(0).count).isOne();
-    assertThat(unit.totalsByPartitionKey.get(0).pk.components).containsOnly(bb1);
-    assertThat(unit.totalsByPartitionKey.get(0).pk.hashCode)
+    assertThat(unit.sortedTotalsByPartitionKey().get(0).count).isOne();
+    assertThat(unit.sortedTotalsByPartitionKey().get(0).pk.components).containsOnly(bb1);
+    assertThat(unit.sortedTotalsByPartitionKey().get(0).pk.hashCode)
         .isEqualTo(Arrays.hashCode(new ByteBuffer[] {bb1}));
 
     unit.update(result2);
@@ -348,9 +486,9 @@ class DefaultReadResultCounterTest {
     assertThat(unit.currentPk.components).containsOnly(bb2);
     assertThat(unit.currentPk.hashCode).isEqualTo(Arrays.hashCode(new ByteBuffer[] {bb2}));
     assertThat(unit.totalsByPartitionKey.size()).isOne();
-    assertThat(unit.totalsByPartitionKey.get(0).count).isOne();
-    assertThat(unit.totalsByPartitionKey.get(0).pk.components).containsOnly(bb1);
-    assertThat(unit.totalsByPartitionKey.get(0).pk.hashCode)
+    assertThat(unit.sortedTotalsByPartitionKey().get(0).count).isOne();
+    assertThat(unit.sortedTotalsByPartitionKey().get(0).pk.components).containsOnly(bb1);
+    assertThat(unit.sortedTotalsByPartitionKey().get(0).pk.hashCode)
         .isEqualTo(Arrays.hashCode(new ByteBuffer[] {bb1}));
 
     unit.update(result3);
@@ -362,13 +500,13 @@ class DefaultReadResultCounterTest {
     assertThat(unit.currentPk.components).containsOnly(bb3);
     assertThat(unit.currentPk.hashCode).isEqualTo(Arrays.hashCode(new ByteBuffer[] {bb3}));
     assertThat(unit.totalsByPartitionKey.size()).isEqualTo(2);
-    assertThat(unit.totalsByPartitionKey.get(0).count).isOne();
-    assertThat(unit.totalsByPartitionKey.get(0).pk.components).containsOnly(bb1);
-    assertThat(unit.totalsByPartitionKey.get(0).pk.hashCode)
+    assertThat(unit.sortedTotalsByPartitionKey().get(0).count).isOne();
+    assertThat(unit.sortedTotalsByPartitionKey().get(0).pk.components).containsOnly(bb1);
+    assertThat(unit.sortedTotalsByPartitionKey().get(0).pk.hashCode)
         .isEqualTo(Arrays.hashCode(new ByteBuffer[] {bb1}));
-    assertThat(unit.totalsByPartitionKey.get(1).count).isEqualTo(2);
-    assertThat(unit.totalsByPartitionKey.get(1).pk.components).containsOnly(bb2);
-    assertThat(unit.totalsByPartitionKey.get(1).pk.hashCode)
+    assertThat(unit.sortedTotalsByPartitionKey().get(1).count).isEqualTo(2);
+    assertThat(unit.sortedTotalsByPartitionKey().get(1).pk.components).containsOnly(bb2);
+    assertThat(unit.sortedTotalsByPartitionKey().get(1).pk.hashCode)
         .isEqualTo(Arrays.hashCode(new ByteBuffer[] {bb2}));
 
     unit.update(result4);
@@ -380,11 +518,11 @@ class DefaultReadResultCounterTest {
     assertThat(unit.currentPk.components).containsOnly(bb4);
     assertThat(unit.currentPk.hashCode).isEqualTo(Arrays.hashCode(new ByteBuffer[] {bb4}));
     assertThat(unit.totalsByPartitionKey.size()).isEqualTo(3);
-    assertThat(unit.totalsByPartitionKey.get(0).count).isEqualTo(1);
-    assertThat(unit.totalsByPartitionKey.get(1).count).isEqualTo(1);
-    assertThat(unit.totalsByPartitionKey.get(2).count).isEqualTo(2);
-    assertThat(unit.totalsByPartitionKey.get(2).pk.components).containsOnly(bb2);
-    assertThat(unit.totalsByPartitionKey.get(2).pk.hashCode)
+    assertThat(unit.sortedTotalsByPartitionKey().get(0).count).isEqualTo(1);
+    assertThat(unit.sortedTotalsByPartitionKey().get(1).count).isEqualTo(1);
+    assertThat(unit.sortedTotalsByPartitionKey().get(2).count).isEqualTo(2);
+    assertThat(unit.sortedTotalsByPartitionKey().get(2).pk.components).containsOnly(bb2);
+    assertThat(unit.sortedTotalsByPartitionKey().get(2).pk.hashCode)
         .isEqualTo(Arrays.hashCode(new ByteBuffer[] {bb2}));
 
     unit.update(result5);
@@ -395,11 +533,11 @@ class DefaultReadResultCounterTest {
     assertThat(unit.currentPk.components).containsOnly(bb5);
     assertThat(unit.currentPk.hashCode).isEqualTo(Arrays.hashCode(new ByteBuffer[] {bb5}));
     assertThat(unit.totalsByPartitionKey.size()).isEqualTo(3);
-    assertThat(unit.totalsByPartitionKey.get(0).count).isEqualTo(1);
-    assertThat(unit.totalsByPartitionKey.get(1).count).isEqualTo(1);
-    assertThat(unit.totalsByPartitionKey.get(2).count).isEqualTo(2);
-    assertThat(unit.totalsByPartitionKey.get(2).pk.components).containsOnly(bb2);
-    assertThat(unit.totalsByPartitionKey.get(2).pk.hashCode)
+    assertThat(unit.sortedTotalsByPartitionKey().get(0).count).isEqualTo(1);
+    assertThat(unit.sortedTotalsByPartitionKey().get(1).count).isEqualTo(1);
+    assertThat(unit.sortedTotalsByPartitionKey().get(2).count).isEqualTo(2);
+    assertThat(unit.sortedTotalsByPartitionKey().get(2).pk.components).containsOnly(bb2);
+    assertThat(unit.sortedTotalsByPartitionKey().get(2).pk.hashCode)
         .isEqualTo(Arrays.hashCode(new ByteBuffer[] {bb2}));
 
     unit.update(result5);
@@ -409,11 +547,11 @@ class DefaultReadResultCounterTest {
     assertThat(unit.currentPk.components).containsOnly(bb5);
     assertThat(unit.currentPk.hashCode).isEqualTo(Arrays.hashCode(new ByteBuffer[] {bb5}));
     assertThat(unit.totalsByPartitionKey.size()).isEqualTo(3);
-    assertThat(unit.totalsByPartitionKey.get(0).count).isEqualTo(1);
-    assertThat(unit.totalsByPartitionKey.get(1).count).isEqualTo(1);
-    assertThat(unit.totalsByPartitionKey.get(2).count).isEqualTo(2);
-    assertThat(unit.totalsByPartitionKey.get(2).pk.components).containsOnly(bb2);
-    assertThat(unit.totalsByPartitionKey.get(2).pk.hashCode)
+    assertThat(unit.sortedTotalsByPartitionKey().get(0).count).isEqualTo(1);
+    assertThat(unit.sortedTotalsByPartitionKey().get(1).count).isEqualTo(1);
+    assertThat(unit.sortedTotalsByPartitionKey().get(2).count).isEqualTo(2);
+    assertThat(unit.sortedTotalsByPartitionKey().get(2).pk.components).containsOnly(bb2);
+    assertThat(unit.sortedTotalsByPartitionKey().get(2).pk.hashCode)
         .isEqualTo(Arrays.hashCode(new ByteBuffer[] {bb2}));
 
     unit.update(result6);
@@ -424,14 +562,14 @@ class DefaultReadResultCounterTest {
     assertThat(unit.currentPk.components).containsOnly(bb6);
     assertThat(unit.currentPk.hashCode).isEqualTo(Arrays.hashCode(new ByteBuffer[] {bb6}));
     assertThat(unit.totalsByPartitionKey.size()).isEqualTo(3);
-    assertThat(unit.totalsByPartitionKey.get(0).count).isEqualTo(1);
-    assertThat(unit.totalsByPartitionKey.get(1).count).isEqualTo(2);
-    assertThat(unit.totalsByPartitionKey.get(1).pk.components).containsOnly(bb5);
-    assertThat(unit.totalsByPartitionKey.get(1).pk.hashCode)
+    assertThat(unit.sortedTotalsByPartitionKey().get(0).count).isEqualTo(1);
+    assertThat(unit.sortedTotalsByPartitionKey().get(1).count).isEqualTo(2);
+    assertThat(unit.sortedTotalsByPartitionKey().get(1).pk.components).containsOnly(bb5);
+    assertThat(unit.sortedTotalsByPartitionKey().get(1).pk.hashCode)
         .isEqualTo(Arrays.hashCode(new ByteBuffer[] {bb5}));
-    assertThat(unit.totalsByPartitionKey.get(2).count).isEqualTo(2);
-    assertThat(unit.totalsByPartitionKey.get(2).pk.components).containsOnly(bb2);
-    assertThat(unit.totalsByPartitionKey.get(2).pk.hashCode)
+    assertThat(unit.sortedTotalsByPartitionKey().get(2).count).isEqualTo(2);
+    assertThat(unit.sortedTotalsByPartitionKey().get(2).pk.components).containsOnly(bb2);
+    assertThat(unit.sortedTotalsByPartitionKey().get(2).pk.hashCode)
         .isEqualTo(Arrays.hashCode(new ByteBuffer[] {bb2}));
 
     unit.update(result6);
@@ -447,17 +585,17 @@ class DefaultReadResultCounterTest {
     assertThat(unit.currentPk.components).containsOnly(bb7);
     assertThat(unit.currentPk.hashCode).isEqualTo(Arrays.hashCode(new ByteBuffer[] {bb7}));
     assertThat(unit.totalsByPartitionKey.size()).isEqualTo(3);
-    assertThat(unit.totalsByPartitionKey.get(0).count).isEqualTo(2);
-    assertThat(unit.totalsByPartitionKey.get(0).pk.components).containsOnly(bb5);
-    assertThat(unit.totalsByPartitionKey.get(0).pk.hashCode)
+    assertThat(unit.sortedTotalsByPartitionKey().get(0).count).isEqualTo(2);
+    assertThat(unit.sortedTotalsByPartitionKey().get(0).pk.components).containsOnly(bb5);
+    assertThat(unit.sortedTotalsByPartitionKey().get(0).pk.hashCode)
         .isEqualTo(Arrays.hashCode(new ByteBuffer[] {bb5}));
-    assertThat(unit.totalsByPartitionKey.get(1).count).isEqualTo(2);
-    assertThat(unit.totalsByPartitionKey.get(1).pk.components).containsOnly(bb2);
-    assertThat(unit.totalsByPartitionKey.get(1).pk.hashCode)
+    assertThat(unit.sortedTotalsByPartitionKey().get(1).count).isEqualTo(2);
+    assertThat(unit.sortedTotalsByPartitionKey().get(1).pk.components).containsOnly(bb2);
+    assertThat(unit.sortedTotalsByPartitionKey().get(1).pk.hashCode)
         .isEqualTo(Arrays.hashCode(new ByteBuffer[] {bb2}));
-    assertThat(unit.totalsByPartitionKey.get(2).count).isEqualTo(3);
-    assertThat(unit.totalsByPartitionKey.get(2).pk.components).containsOnly(bb6);
-    assertThat(unit.totalsByPartitionKey.get(2).pk.hashCode)
+    assertThat(unit.sortedTotalsByPartitionKey().get(2).count).isEqualTo(3);
+    assertThat(unit.sortedTotalsByPartitionKey().get(2).pk.components).containsOnly(bb6);
+    assertThat(unit.sortedTotalsByPartitionKey().get(2).pk.hashCode)
         .isEqualTo(Arrays.hashCode(new ByteBuffer[] {bb6}));
 
     unit.update(result7);
@@ -473,17 +611,17 @@ class DefaultReadResultCounterTest {
     assertThat(unit.currentPk.components).containsOnly(bb8);
     assertThat(unit.currentPk.hashCode).isEqualTo(Arrays.hashCode(new ByteBuffer[] {bb8}));
     assertThat(unit.totalsByPartitionKey.size()).isEqualTo(3);
-    assertThat(unit.totalsByPartitionKey.get(0).count).isEqualTo(2);
-    assertThat(unit.totalsByPartitionKey.get(0).pk.components).containsOnly(bb2);
-    assertThat(unit.totalsByPartitionKey.get(0).pk.hashCode)
+    assertThat(unit.sortedTotalsByPartitionKey().get(0).count).isEqualTo(2);
+    assertThat(unit.sortedTotalsByPartitionKey().get(0).pk.components).containsOnly(bb2);
+    assertThat(unit.sortedTotalsByPartitionKey().get(0).pk.hashCode)
         .isEqualTo(Arrays.hashCode(new ByteBuffer[] {bb2}));
-    assertThat(unit.totalsByPartitionKey.get(1).count).isEqualTo(3);
-    assertThat(unit.totalsByPartitionKey.get(1).pk.components).containsOnly(bb7);
-    assertThat(unit.totalsByPartitionKey.get(1).pk.hashCode)
+    assertThat(unit.sortedTotalsByPartitionKey().get(1).count).isEqualTo(3);
+    assertThat(unit.sortedTotalsByPartitionKey().get(1).pk.components).containsOnly(bb7);
+    assertThat(unit.sortedTotalsByPartitionKey().get(1).pk.hashCode)
         .isEqualTo(Arrays.hashCode(new ByteBuffer[] {bb7}));
-    assertThat(unit.totalsByPartitionKey.get(2).count).isEqualTo(3);
-    assertThat(unit.totalsByPartitionKey.get(2).pk.components).containsOnly(bb6);
-    assertThat(unit.totalsByPartitionKey.get(2).pk.hashCode)
+    assertThat(unit.sortedTotalsByPartitionKey().get(2).count).isEqualTo(3);
+    assertThat(unit.sortedTotalsByPartitionKey().get(2).pk.components).containsOnly(bb6);
+    assertThat(unit.sortedTotalsByPartitionKey().get(2).pk.hashCode)
         .isEqualTo(Arrays.hashCode(new ByteBuffer[] {bb6}));
 
     unit.update(result8);
@@ -513,17 +651,17 @@ class DefaultReadResultCounterTest {
 
     // [pk10=4,pk8=4,pk9=5]
     assertThat(unit.totalsByPartitionKey.size()).isEqualTo(3);
-    assertThat(unit.totalsByPartitionKey.get(0).count).isEqualTo(4);
-    assertThat(unit.totalsByPartitionKey.get(0).pk.components).containsOnly(bb10);
-    assertThat(unit.totalsByPartitionKey.get(0).pk.hashCode)
+    assertThat(unit.sortedTotalsByPartitionKey().get(0).count).isEqualTo(4);
+    assertThat(unit.sortedTotalsByPartitionKey().get(0).pk.components).containsOnly(bb10);
+    assertThat(unit.sortedTotalsByPartitionKey().get(0).pk.hashCode)
         .isEqualTo(Arrays.hashCode(new ByteBuffer[] {bb10}));
-    assertThat(unit.totalsByPartitionKey.get(1).count).isEqualTo(4);
-    assertThat(unit.totalsByPartitionKey.get(1).pk.components).containsOnly(bb8);
-    assertThat(unit.totalsByPartitionKey.get(1).pk.hashCode)
+    assertThat(unit.sortedTotalsByPartitionKey().get(1).count).isEqualTo(4);
+    assertThat(unit.sortedTotalsByPartitionKey().get(1).pk.components).containsOnly(bb8);
+    assertThat(unit.sortedTotalsByPartitionKey().get(1).pk.hashCode)
         .isEqualTo(Arrays.hashCode(new ByteBuffer[] {bb8}));
-    assertThat(unit.totalsByPartitionKey.get(2).count).isEqualTo(5);
-    assertThat(unit.totalsByPartitionKey.get(2).pk.components).containsOnly(bb9);
-    assertThat(unit.totalsByPartitionKey.get(2).pk.hashCode)
+    assertThat(unit.sortedTotalsByPartitionKey().get(2).count).isEqualTo(5);
+    assertThat(unit.sortedTotalsByPartitionKey().get(2).pk.components).containsOnly(bb9);
+    assertThat(unit.sortedTotalsByPartitionKey().get(2).pk.hashCode)
         .isEqualTo(Arrays.hashCode(new ByteBuffer[] {bb9}));
 
     List<DefaultReadResultCounter.PartitionKeyCount> totals = counter.totalsByPartitionKey;
@@ -614,29 +752,29 @@ class DefaultReadResultCounterTest {
     counter.close();
 
     assertThat(unit1.totalsByPartitionKey.size()).isEqualTo(3);
-    assertThat(unit1.totalsByPartitionKey.get(0).count).isEqualTo(8);
-    assertThat(unit1.totalsByPartitionKey.get(0).pk.components).containsOnly(bb3);
-    assertThat(unit1.totalsByPartitionKey.get(1).count).isEqualTo(9);
-    assertThat(unit1.totalsByPartitionKey.get(1).pk.components).containsOnly(bb2);
-    assertThat(unit1.totalsByPartitionKey.get(2).count).isEqualTo(10);
-    assertThat(unit1.totalsByPartitionKey.get(2).pk.components).containsOnly(bb1);
+    assertThat(unit1.sortedTotalsByPartitionKey().get(0).count).isEqualTo(8);
+    assertThat(unit1.sortedTotalsByPartitionKey().get(0).pk.components).containsOnly(bb3);
+    assertThat(unit1.sortedTotalsByPartitionKey().get(1).count).isEqualTo(9);
+    assertThat(unit1.sortedTotalsByPartitionKey().get(1).pk.components).containsOnly(bb2);
+    assertThat(unit1.sortedTotalsByPartitionKey().get(2).count).isEqualTo(10);
+    assertThat(unit1.sortedTotalsByPartitionKey().get(2).pk.components).containsOnly(bb1);
 
     assertThat(unit2.totalsByPartitionKey.size()).isEqualTo(3);
-    assertThat(unit2.totalsByPartitionKey.get(0).count).isEqualTo(8);
-    assertThat(unit2.totalsByPartitionKey.get(0).pk.components).containsOnly(bb4);
-    assertThat(unit2.totalsByPartitionKey.get(1).count).isEqualTo(9);
-    assertThat(unit2.totalsByPartitionKey.get(1).pk.components).containsOnly(bb5);
-    assertThat(unit2.totalsByPartitionKey.get(2).count).isEqualTo(10);
-    assertThat(unit2.totalsByPartitionKey.get(2).pk.components).containsOnly(bb6);
+    assertThat(unit2.sortedTotalsByPartitionKey().get(0).count).isEqualTo(8);
+    assertThat(unit2.sortedTotalsByPartitionKey().get(0).pk.components).containsOnly(bb4);
+    assertThat(unit2.sortedTotalsByPartitionKey().get(1).count).isEqualTo(9);
+    assertThat(unit2.sortedTotalsByPartitionKey().get(1).pk.components).containsOnly(bb5);
+    assertThat(unit2.sortedTotalsByPartitionKey().get(2).count).isEqualTo(10);
+    assertThat(unit2.sortedTotalsByPartitionKey().get(2).pk.components).containsOnly(bb6);
 
     assertThat(unit3.totalsByPartitionKey.size()).isEqualTo(3);
-    assertThat(unit3.totalsByPartitionKey.get(0).count).isEqualTo(5);
-    assertThat(unit3.totalsByPartitionKey.get(1).count).isEqualTo(5);
-    assertThat(unit3.totalsByPartitionKey.get(2).count).isEqualTo(5);
+    assertThat(unit3.sortedTotalsByPartitionKey().get(0).count).isEqualTo(5);
+    assertThat(unit3.sortedTotalsByPartitionKey().get(1).count).isEqualTo(5);
+    assertThat(unit3.sortedTotalsByPartitionKey().get(2).count).isEqualTo(5);
 
     assertThat(unit4.totalsByPartitionKey.size()).isEqualTo(1);
-    assertThat(unit4.totalsByPartitionKey.get(0).count).isEqualTo(10);
-    assertThat(unit4.totalsByPartitionKey.get(0).pk.components).containsOnly(bb10);
+    assertThat(unit4.sortedTotalsByPartitionKey().get(0).count).isEqualTo(10);
+    assertThat(unit4.sortedTotalsByPartitionKey().get(0).pk.components).containsOnly(bb10);
 
     List<DefaultReadResultCounter.PartitionKeyCount> totals = counter.totalsByPartitionKey;
 
@@ -650,4 +788,10 @@ class DefaultReadResultCounterTest {
     // total rows is 79, so 10 rows is 100*10/79 = 12.66%
     assertThat(stdout.getStreamLines()).contains("1 10 12.66", "6 10 12.66", "10 10 12.66");
   }
+
+  private static ReadResult mockResult(Row row) {
+    ReadResult result = mock(ReadResult.class);
+    when(result.getRow()).thenReturn(Optional.of(row));
+    return result;
+  }
 }
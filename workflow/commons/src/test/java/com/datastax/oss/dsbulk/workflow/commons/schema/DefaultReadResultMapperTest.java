@@ -20,10 +20,14 @@ import static com.datastax.oss.dsbulk.tests.driver.DriverUtils.mockColumnDefinit
 import static java.util.Collections.singleton;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.util.Sets.newLinkedHashSet;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.datastax.oss.driver.api.core.CqlIdentifier;
+import com.datastax.oss.driver.api.core.ProtocolVersion;
 import com.datastax.oss.driver.api.core.cql.BoundStatement;
 import com.datastax.oss.driver.api.core.cql.ColumnDefinition;
 import com.datastax.oss.driver.api.core.cql.ColumnDefinitions;
@@ -47,6 +51,7 @@ import java.nio.ByteBuffer;
 import java.util.Optional;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 
@@ -189,4 +194,37 @@ class DefaultReadResultMapperTest {
     }
     assertThat(record.getResource()).isEqualTo(URI.create("cql://ks1/table1"));
   }
+
+  @Test
+  void should_map_result_to_raw_bytes() {
+    recordMetadata = (field, cqlType) -> RecordMetadata.RAW_BYTES;
+    ByteBuffer bb1 = TypeCodecs.INT.encode(42, ProtocolVersion.DEFAULT);
+    ByteBuffer bb2 = TypeCodecs.TEXT.encode("foo", ProtocolVersion.DEFAULT);
+    when(row.getBytesUnsafe(C1.asIdentifier())).thenReturn(bb1);
+    when(row.getBytesUnsafe(C2.asIdentifier())).thenReturn(bb2);
+    when(row.getBytesUnsafe(C3.asIdentifier())).thenReturn(null);
+    DefaultReadResultMapper mapper =
+        new DefaultReadResultMapper(mapping, recordMetadata, RESOURCE, false);
+    Record record = mapper.map(result);
+    assertThat(record.getFieldValue(F0)).isSameAs(bb1);
+    assertThat(record.getFieldValue(F1)).isSameAs(bb2);
+    assertThat(record.getFieldValue(F2)).isNull();
+    verify(mapping, never()).codec(any(), any(), any());
+  }
+
+  @Test
+  void should_map_result_to_plain_values() {
+    recordMetadata = (field, cqlType) -> RecordMetadata.PLAIN_VALUES;
+    when(row.getObject(C1.asIdentifier())).thenReturn(42);
+    when(row.getObject(C2.asIdentifier())).thenReturn("foo");
+    when(row.getObject(C3.asIdentifier())).thenReturn(null);
+    DefaultReadResultMapper mapper =
+        new DefaultReadResultMapper(mapping, recordMetadata, RESOURCE, false);
+    Record record = mapper.map(result);
+    // values are the ones decoded by the driver: no codec converts them
+    assertThat(record.getFieldValue(F0)).isEqualTo(42);
+    assertThat(record.getFieldValue(F1)).isEqualTo("foo");
+    assertThat(record.getFieldValue(F2)).isNull();
+    verify(mapping, never()).codec(any(), any(), any());
+  }
 }
@@ -31,6 +31,7 @@ import static java.util.concurrent.TimeUnit.MINUTES;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -56,10 +57,14 @@ import com.datastax.oss.dsbulk.codecs.api.util.ZonedTemporalFormat;
 import com.datastax.oss.dsbulk.codecs.text.string.StringToIntegerCodec;
 import com.datastax.oss.dsbulk.codecs.text.string.StringToLongCodec;
 import com.datastax.oss.dsbulk.codecs.text.string.StringToStringCodec;
+import com.datastax.oss.dsbulk.connectors.api.ArrayBackedRecord;
+import com.datastax.oss.dsbulk.connectors.api.DefaultIndexedField;
 import com.datastax.oss.dsbulk.connectors.api.DefaultMappedField;
 import com.datastax.oss.dsbulk.connectors.api.Field;
+import com.datastax.oss.dsbulk.connectors.api.MappedField;
 import com.datastax.oss.dsbulk.connectors.api.Record;
 import com.datastax.oss.dsbulk.connectors.api.RecordMetadata;
+import com.datastax.oss.dsbulk.connectors.api.RecordShape;
 import com.datastax.oss.dsbulk.mapping.CQLWord;
 import com.datastax.oss.dsbulk.mapping.InvalidMappingException;
 import com.datastax.oss.dsbulk.mapping.Mapping;
@@ -67,6 +72,7 @@ import com.datastax.oss.dsbulk.tests.utils.ReflectionUtils;
 import com.datastax.oss.dsbulk.workflow.commons.statement.MappedBoundStatement;
 import com.datastax.oss.dsbulk.workflow.commons.statement.UnmappableStatement;
 import io.netty.util.concurrent.FastThreadLocal;
+import java.net.URI;
 import java.nio.ByteBuffer;
 import java.text.NumberFormat;
 import java.time.Instant;
@@ -92,6 +98,8 @@ class DefaultRecordMapperTest {
   private static final Field F2 = new DefaultMappedField("field2");
   private static final Field F3 = new DefaultMappedField("field3");
 
+  private static final URI RESOURCE = URI.create("file://file1.csv");
+
   private static final CQLWord C1 = CQLWord.fromInternal("col1");
   private static final CQLWord C2 = CQLWord.fromInternal("col2");
   private static final CQLWord C3 = CQLWord.fromInternal("My Fancy Column Name");
@@ -722,6 +730,232 @@ class DefaultRecordMapperTest {
     assertParameter(2, 2, ByteBuffer.allocate(0));
   }
 
+  @Test
+  void should_map_array_backed_record() {
+    RecordShape shape =
+        RecordShape.mappedAndIndexed((MappedField) F1, (MappedField) F2, (MappedField) F3);
+    Record record =
+        new ArrayBackedRecord("source", RESOURCE, 1, shape, new Object[] {"42", "4242", "foo"});
+    RecordMapper mapper =
+        new DefaultRecordMapper(
+            insertStatement,
+            set(C1),
+            set(C2, C3),
+            V4,
+            mapping,
+            recordMetadata,
+            true,
+            true,
+            false,
+            statement -> boundStatementBuilder);
+    Statement<?> result = mapper.map(record);
+    assertThat(result).isInstanceOf(MappedBoundStatement.class);
+    assertThat(ReflectionUtils.getInternalState(result, "delegate")).isSameAs(boundStatement);
+    verify(boundStatementBuilder, times(3))
+        .setBytesUnsafe(variableCaptor.capture(), valueCaptor.capture());
+    assertParameter(0, 0, TypeCodecs.INT.encode(42, V4));
+    assertParameter(1, 1, TypeCodecs.BIGINT.encode(4242L, V4));
+    assertParameter(2, 2, TypeCodecs.TEXT.encode("foo", V4));
+  }
+
+  @Test
+  void should_map_array_backed_record_by_index() {
+    Field i0 = new DefaultIndexedField(0);
+    Field i1 = new DefaultIndexedField(1);
+    Field i2 = new DefaultIndexedField(2);
+    when(mapping.fieldToVariables(i0)).thenReturn(singleton(C1));
+    when(mapping.fieldToVariables(i1)).thenReturn(singleton(C2));
+    when(mapping.fieldToVariables(i2)).thenReturn(singleton(C3));
+    when(mapping.variableToFields(C1)).thenReturn(singleton(i0));
+    when(mapping.variableToFields(C2)).thenReturn(singleton(i1));
+    when(mapping.variableToFields(C3)).thenReturn(singleton(i2));
+    recordMetadata = (field, cqlType) -> GenericType.STRING;
+    RecordMapper mapper =
+        new DefaultRecordMapper(
+            insertStatement,
+            set(C1),
+            set(C2, C3),
+            V4,
+            mapping,
+            recordMetadata,
+            true,
+            false,
+            false,
+            statement -> boundStatementBuilder);
+    RecordShape shape = RecordShape.indexed(3);
+    Statement<?> result1 =
+        mapper.map(
+            new ArrayBackedRecord("source", RESOURCE, 1, shape, new Object[] {"1", "2", "a"}));
+    Statement<?> result2 =
+        mapper.map(
+            new ArrayBackedRecord("source", RESOURCE, 2, shape, new Object[] {"3", "4", "b"}));
+    assertThat(result1).isInstanceOf(MappedBoundStatement.class);
+    assertThat(result2).isInstanceOf(MappedBoundStatement.class);
+    verify(boundStatementBuilder, times(6))
+        .setBytesUnsafe(variableCaptor.capture(), valueCaptor.capture());
+    assertParameter(0, 0, TypeCodecs.INT.encode(1, V4));
+    assertParameter(1, 1, TypeCodecs.BIGINT.encode(2L, V4));
+    assertParameter(2, 2, TypeCodecs.TEXT.encode("a", V4));
+    assertParameter(3, 0, TypeCodecs.INT.encode(3, V4));
+    assertParameter(4, 1, TypeCodecs.BIGINT.encode(4L, V4));
+    assertParameter(5, 2, TypeCodecs.TEXT.encode("b", V4));
+    // field-to-variable bindings and codecs are resolved once per shape
+    verify(mapping, times(1)).fieldToVariables(i0);
+    verify(mapping, times(1)).fieldToVariables(i1);
+    verify(mapping, times(1)).fieldToVariables(i2);
+    verify(mapping, times(1)).codec(C1, DataTypes.INT, GenericType.STRING);
+    verify(mapping, times(1)).codec(C2, DataTypes.BIGINT, GenericType.STRING);
+    verify(mapping, times(1)).codec(C3, DataTypes.TEXT, GenericType.STRING);
+  }
+
+  @Test
+  void should_return_unmappable_statement_when_array_backed_record_has_null_pk() {
+    RecordShape shape =
+        RecordShape.mappedAndIndexed((MappedField) F1, (MappedField) F2, (MappedField) F3);
+    RecordMapper mapper =
+        new DefaultRecordMapper(
+            insertStatement,
+            set(C1),
+            set(C2, C3),
+            V4,
+            mapping,
+            recordMetadata,
+            true,
+            true,
+            false,
+            statement -> boundStatementBuilder);
+    Statement<?> result1 =
+        mapper.map(
+            new ArrayBackedRecord(
+                "source", RESOURCE, 1, shape, new Object[] {null, "4242", "foo"}));
+    Statement<?> result2 =
+        mapper.map(
+            new ArrayBackedRecord("source", RESOURCE, 2, shape, new Object[] {"42", null, "foo"}));
+    assertThat(result1).isInstanceOf(UnmappableStatement.class);
+    assertThat(((UnmappableStatement) result1).getError())
+        .isInstanceOf(InvalidMappingException.class)
+        .hasMessageContaining("Primary key column col1 cannot be set to null");
+    assertThat(result2).isInstanceOf(UnmappableStatement.class);
+    assertThat(((UnmappableStatement) result2).getError())
+        .isInstanceOf(InvalidMappingException.class)
+        .hasMessageContaining("Primary key column col2 cannot be set to null");
+  }
+
+  @Test
+  void should_return_unmappable_statement_when_array_backed_record_has_extra_field() {
+    RecordShape shape =
+        RecordShape.mappedAndIndexed((MappedField) F1, (MappedField) F2, (MappedField) F3);
+    Record record =
+        new ArrayBackedRecord("source", RESOURCE, 1, shape, new Object[] {"42", "4242", "foo"});
+    RecordMapper mapper =
+        new DefaultRecordMapper(
+            insertStatement,
+            set(C1),
+            set(C2, C3),
+            V4,
+            mapping,
+            recordMetadata,
+            false,
+            false,
+            false,
+            statement -> boundStatementBuilder);
+    Statement<?> result = mapper.map(record);
+    assertThat(result).isInstanceOf(UnmappableStatement.class);
+    UnmappableStatement unmappableStatement = (UnmappableStatement) result;
+    // indexed fields are not mapped
+    assertThat(unmappableStatement.getError())
+        .isInstanceOf(InvalidMappingException.class)
+        .hasMessageContaining("Extraneous field 0 was found in record.");
+  }
+
+  @Test
+  void should_return_unmappable_statement_when_array_backed_record_has_missing_field() {
+    RecordShape shape = RecordShape.mappedAndIndexed((MappedField) F1, (MappedField) F2);
+    Record record =
+        new ArrayBackedRecord("source", RESOURCE, 1, shape, new Object[] {"42", "4242"});
+    RecordMapper mapper =
+        new DefaultRecordMapper(
+            insertStatement,
+            set(C1),
+            set(C2, C3),
+            V4,
+            mapping,
+            recordMetadata,
+            false,
+            true,
+            false,
+            statement -> boundStatementBuilder);
+    Statement<?> result = mapper.map(record);
+    assertThat(result).isInstanceOf(UnmappableStatement.class);
+    UnmappableStatement unmappableStatement = (UnmappableStatement) result;
+    assertThat(unmappableStatement.getError())
+        .isInstanceOf(InvalidMappingException.class)
+        .hasMessageContaining(
+            "Required field field3 (mapped to column \"My Fancy Column Name\") was missing from record.");
+  }
+
+  @Test
+  void should_bind_raw_bytes_without_codecs() {
+    recordMetadata = (field, cqlType) -> RecordMetadata.RAW_BYTES;
+    ByteBuffer v1 = TypeCodecs.INT.encode(42, V4);
+    ByteBuffer v2 = TypeCodecs.BIGINT.encode(4242L, V4);
+    ByteBuffer v3 = TypeCodecs.TEXT.encode("foo", V4);
+    RecordShape shape =
+        RecordShape.mappedAndIndexed((MappedField) F1, (MappedField) F2, (MappedField) F3);
+    when(record.fields()).thenReturn(set(F1, F2, F3));
+    when(record.getFieldValue(F1)).thenReturn(v1);
+    when(record.getFieldValue(F2)).thenReturn(v2);
+    when(record.getFieldValue(F3)).thenReturn(v3);
+    RecordMapper mapper =
+        new DefaultRecordMapper(
+            insertStatement,
+            set(C1),
+            set(C2, C3),
+            V4,
+            mapping,
+            recordMetadata,
+            true,
+            true,
+            false,
+            statement -> boundStatementBuilder);
+    Statement<?> result1 =
+        mapper.map(new ArrayBackedRecord("source", RESOURCE, 1, shape, new Object[] {v1, v2, v3}));
+    Statement<?> result2 = mapper.map(record);
+    assertThat(result1).isInstanceOf(MappedBoundStatement.class);
+    assertThat(result2).isInstanceOf(MappedBoundStatement.class);
+    verify(boundStatementBuilder, times(6))
+        .setBytesUnsafe(variableCaptor.capture(), valueCaptor.capture());
+    for (int i = 0; i < 6; i += 3) {
+      assertParameter(i, 0, v1);
+      assertParameter(i + 1, 1, v2);
+      assertParameter(i + 2, 2, v3);
+    }
+    verify(mapping, never()).codec(any(), any(), any());
+  }
+
+  @Test
+  void should_return_unmappable_statement_when_raw_bytes_have_wrong_type() {
+    recordMetadata = (field, cqlType) -> RecordMetadata.RAW_BYTES;
+    when(record.fields()).thenReturn(set(F1));
+    RecordMapper mapper =
+        new DefaultRecordMapper(
+            insertStatement,
+            set(C1),
+            set(C2, C3),
+            V4,
+            mapping,
+            recordMetadata,
+            true,
+            true,
+            true,
+            statement -> boundStatementBuilder);
+    Statement<?> result = mapper.map(record);
+    assertThat(result).isInstanceOf(UnmappableStatement.class);
+    assertThat(((UnmappableStatement) result).getError())
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("Expecting serialized value of type java.nio.ByteBuffer, got java.lang.String");
+  }
+
   private void assertParameter(
       int invocationIndex, int expectedVariableIndex, ByteBuffer expectedVariableValue) {
     assertThat(variableCaptor.getAllValues().get(invocationIndex)).isEqualTo(expectedVariableIndex);
@@ -25,8 +25,13 @@ import com.datastax.oss.dsbulk.batcher.api.ReactiveStatementBatcher;
 import com.datastax.oss.dsbulk.batcher.reactor.ReactorStatementBatcher;
 import com.datastax.oss.dsbulk.tests.driver.DriverUtils;
 import com.datastax.oss.dsbulk.tests.utils.ReflectionUtils;
+import com.datastax.oss.dsbulk.tests.utils.StringUtils;
 import com.datastax.oss.dsbulk.tests.utils.TestConfigUtils;
+import com.datastax.oss.dsbulk.workflow.commons.sort.StatementSorter;
 import com.typesafe.config.Config;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -341,4 +346,63 @@ class BatchSettingsTest {
     assertThat(ReflectionUtils.getInternalState(batcher, "maxSizeInBytes")).isEqualTo(1L);
     assertThat(ReflectionUtils.getInternalState(batcher, "maxBatchStatements")).isEqualTo(10);
   }
+
+  @Test
+  void should_not_presort_by_default() {
+    Config config = TestConfigUtils.createTestConfig("dsbulk.batch");
+    BatchSettings settings = new BatchSettings(config);
+    settings.init();
+    assertThat(settings.isPresortEnabled()).isFalse();
+    assertThatThrownBy(settings::newStatementSorter).isInstanceOf(IllegalStateException.class);
+  }
+
+  @Test
+  void should_create_statement_sorter_when_presort_enabled() throws IOException {
+    Path tempDir = Files.createTempDirectory("test");
+    Config config =
+        TestConfigUtils.createTestConfig(
+            "dsbulk.batch",
+            "presort",
+            true,
+            "presortMaxMemory",
+            "16MB",
+            "presortDirectory",
+            StringUtils.quoteJson(tempDir));
+    BatchSettings settings = new BatchSettings(config);
+    settings.init();
+    assertThat(settings.isPresortEnabled()).isTrue();
+    StatementSorter sorter = settings.newStatementSorter();
+    assertThat(ReflectionUtils.getInternalState(sorter, "maxMemory")).isEqualTo(16_000_000L);
+    assertThat(ReflectionUtils.getInternalState(sorter, "spillDirectory")).isEqualTo(tempDir);
+  }
+
+  @Test
+  void should_ignore_presort_when_batching_disabled() {
+    Config config =
+        TestConfigUtils.createTestConfig("dsbulk.batch", "mode", "DISABLED", "presort", true);
+    BatchSettings settings = new BatchSettings(config);
+    settings.init();
+    assertThat(settings.isPresortEnabled()).isFalse();
+  }
+
+  @Test
+  void should_throw_exception_when_presort_max_memory_not_positive() {
+    Config config =
+        TestConfigUtils.createTestConfig("dsbulk.batch", "presort", true, "presortMaxMemory", 0);
+    BatchSettings settings = new BatchSettings(config);
+    assertThatThrownBy(settings::init)
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining("Value for batch.presortMaxMemory must be positive, got: 0.");
+  }
+
+  @Test
+  void should_throw_exception_when_presort_max_memory_invalid() {
+    Config config =
+        TestConfigUtils.createTestConfig(
+            "dsbulk.batch", "presort", true, "presortMaxMemory", "NotASize");
+    BatchSettings settings = new BatchSettings(config);
+    assertThatThrownBy(settings::init)
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining("Invalid value for dsbulk.batch.presortMaxMemory");
+  }
 }
@@ -0,0 +1,118 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.dsbulk.workflow.commons.settings;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.datastax.oss.driver.api.core.CqlIdentifier;
+import com.datastax.oss.dsbulk.tests.utils.StringUtils;
+import com.datastax.oss.dsbulk.tests.utils.TestConfigUtils;
+import com.typesafe.config.Config;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+
+class CopySettingsTest {
+
+  private static final CqlIdentifier KS = CqlIdentifier.fromInternal("ks1");
+  private static final CqlIdentifier TABLE = CqlIdentifier.fromInternal("table1");
+
+  @Test
+  void should_default_to_source_table() {
+    CopySettings settings = newCopySettings(TestConfigUtils.createTestConfig("dsbulk.copy"));
+    settings.init();
+    Config schemaConfig = settings.createTargetSchemaConfig(KS, TABLE);
+    assertThat(schemaConfig.getString("keyspace")).isEqualTo("ks1");
+    assertThat(schemaConfig.getString("table")).isEqualTo("table1");
+    assertThat(schemaConfig.hasPath("query")).isFalse();
+    assertThat(schemaConfig.getString("mapping")).isEqualTo("a = b");
+    assertThat(settings.isSameCluster()).isTrue();
+  }
+
+  @Test
+  void should_override_keyspace_and_table() {
+    CopySettings settings =
+        newCopySettings(
+            TestConfigUtils.createTestConfig(
+                "dsbulk.copy", "keyspace", "MyKs", "table", "MyTable"));
+    settings.init();
+    Config schemaConfig = settings.createTargetSchemaConfig(KS, TABLE);
+    assertThat(schemaConfig.getString("keyspace")).isEqualTo("MyKs");
+    assertThat(schemaConfig.getString("table")).isEqualTo("MyTable");
+  }
+
+  @Test
+  void should_read_target_driver_config() throws Exception {
+    Path file = Files.createTempFile("target", ".conf");
+    try {
+      Files.write(
+          file,
+          "datastax-java-driver.basic.contact-points = [\"10.0.0.1:9042\"]"
+              .getBytes(StandardCharsets.UTF_8));
+      CopySettings settings =
+          newCopySettings(
+              TestConfigUtils.createTestConfig(
+                  "dsbulk.copy", "driverConfig", StringUtils.quoteJson(file)));
+      settings.init();
+      assertThat(settings.isSameCluster()).isFalse();
+      DriverSettings driverSettings = settings.newTargetDriverSettings();
+      driverSettings.init(true);
+      assertThat(driverSettings.getDriverConfig().getStringList("basic.contact-points"))
+          .containsExactly("10.0.0.1:9042");
+      // settings not in the file are the source cluster's
+      assertThat(driverSettings.getDriverConfig().getInt("basic.default-port")).isEqualTo(9043);
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  void should_reject_missing_driver_config_file() {
+    CopySettings settings =
+        newCopySettings(
+            TestConfigUtils.createTestConfig(
+                "dsbulk.copy", "driverConfig", "\"/nonexistent/target.conf\""));
+    assertThatThrownBy(settings::init)
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining("Invalid value for dsbulk.copy.driverConfig")
+        .hasMessageContaining("does not exist or is not readable");
+  }
+
+  private static CopySettings newCopySettings(Config copyConfig) {
+    return new CopySettings(
+        copyConfig,
+        TestConfigUtils.createTestConfig(
+            "dsbulk.schema",
+            "keyspace",
+            "ks2",
+            "table",
+            "table2",
+            "query",
+            "\"SELECT * FROM ks2.table2\"",
+            "mapping",
+            "\"a = b\""),
+        TestConfigUtils.createTestConfig("dsbulk.driver"),
+        TestConfigUtils.createTestConfig("dsbulk.executor.continuousPaging"),
+        TestConfigUtils.createTestConfig(
+            "datastax-java-driver",
+            "basic.contact-points",
+            "[\"127.0.0.1:9043\"]",
+            "basic.default-port",
+            9043));
+  }
+}
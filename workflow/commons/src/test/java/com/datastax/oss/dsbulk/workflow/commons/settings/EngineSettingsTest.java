@@ -76,6 +76,24 @@ class EngineSettingsTest {
     assertThat(settings.getMaxConcurrentQueries()).isEmpty();
   }
 
+  @Test
+  void should_report_max_concurrent_queries_per_node() {
+    Config config =
+        TestConfigUtils.createTestConfig("dsbulk.engine", "maxConcurrentQueriesPerNode", "4");
+    EngineSettings settings = new EngineSettings(config);
+    settings.init();
+    assertThat(settings.getMaxConcurrentQueriesPerNode()).hasValue(4);
+  }
+
+  @Test
+  void should_report_empty_max_concurrent_queries_per_node_when_AUTO() {
+    Config config =
+        TestConfigUtils.createTestConfig("dsbulk.engine", "maxConcurrentQueriesPerNode", "AUTO");
+    EngineSettings settings = new EngineSettings(config);
+    settings.init();
+    assertThat(settings.getMaxConcurrentQueriesPerNode()).isEmpty();
+  }
+
   @Test
   void should_create_data_size_sampling_enabled() {
     Config config =
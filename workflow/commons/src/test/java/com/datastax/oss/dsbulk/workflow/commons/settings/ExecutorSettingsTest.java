@@ -28,8 +28,10 @@ import com.datastax.oss.driver.api.core.config.DefaultDriverOption;
 import com.datastax.oss.driver.api.core.config.DriverExecutionProfile;
 import com.datastax.oss.driver.api.core.metadata.Node;
 import com.datastax.oss.driver.shaded.guava.common.collect.ImmutableMap;
-import com.datastax.oss.driver.shaded.guava.common.util.concurrent.RateLimiter;
 import com.datastax.oss.dsbulk.executor.api.reader.ReactiveBulkReader;
+import com.datastax.oss.dsbulk.executor.api.throttling.AdaptiveConcurrencyLimiter;
+import com.datastax.oss.dsbulk.executor.api.throttling.AsyncRateLimiter;
+import com.datastax.oss.dsbulk.executor.api.throttling.AsyncSemaphore;
 import com.datastax.oss.dsbulk.executor.api.writer.ReactiveBulkWriter;
 import com.datastax.oss.dsbulk.executor.reactor.ContinuousReactorBulkExecutor;
 import com.datastax.oss.dsbulk.executor.reactor.DefaultReactorBulkExecutor;
@@ -41,7 +43,6 @@ import com.datastax.oss.dsbulk.tests.utils.TestConfigUtils;
 import com.typesafe.config.Config;
 import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.Semaphore;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -145,7 +146,8 @@ class ExecutorSettingsTest {
     when(profile.getString(DefaultDriverOption.REQUEST_CONSISTENCY)).thenReturn("ONE");
     settings.init();
     ReactiveBulkReader executor = settings.newReadExecutor(session, null, false);
-    assertThat(((RateLimiter) getInternalState(executor, "rateLimiter")).getRate()).isEqualTo(100);
+    assertThat(((AsyncRateLimiter) getInternalState(executor, "rateLimiter")).getRate())
+        .isEqualTo(100);
   }
 
   @Test
@@ -178,11 +180,101 @@ class ExecutorSettingsTest {
     when(profile.getString(DefaultDriverOption.REQUEST_CONSISTENCY)).thenReturn("ONE");
     settings.init();
     ReactiveBulkReader executor = settings.newReadExecutor(session, null, false);
-    Semaphore maxConcurrentRequests =
-        (Semaphore) getInternalState(executor, "maxConcurrentRequests");
+    AsyncSemaphore maxConcurrentRequests =
+        (AsyncSemaphore) getInternalState(executor, "maxConcurrentRequests");
     assertThat(maxConcurrentRequests.availablePermits()).isEqualTo(100);
   }
 
+  @Test
+  void should_enable_adaptive_concurrency_for_writes() {
+    Config config =
+        TestConfigUtils.createTestConfig(
+            "dsbulk.executor",
+            "adaptiveConcurrency.enabled",
+            true,
+            "adaptiveConcurrency.minInFlight",
+            8,
+            "adaptiveConcurrency.maxInFlight",
+            64);
+    ExecutorSettings settings = new ExecutorSettings(config);
+    settings.init();
+    assertThat(settings.isAdaptiveConcurrencyEnabled()).isTrue();
+    assertThat(settings.getAdaptiveMaxInFlight()).isEqualTo(64);
+    // the limiter does not depend on the executors created so far
+    AdaptiveConcurrencyLimiter limiter = settings.getConcurrencyLimiter().orElse(null);
+    assertThat(limiter).isNotNull();
+    settings.newReadExecutor(session, null, false);
+    assertThat(settings.getConcurrencyLimiter()).containsSame(limiter);
+    ReactiveBulkWriter executor = settings.newWriteExecutor(session, null);
+    Object maxConcurrentRequests = getInternalState(executor, "maxConcurrentRequests");
+    assertThat(maxConcurrentRequests).isSameAs(limiter);
+    assertThat(settings.getConcurrencyLimiter()).containsSame(limiter);
+    assertThat(((AdaptiveConcurrencyLimiter) maxConcurrentRequests).getLimit()).isEqualTo(8);
+    assertThat(getInternalState(executor, "listener")).isSameAs(maxConcurrentRequests);
+  }
+
+  @Test
+  void should_not_enable_adaptive_concurrency_for_reads() {
+    Config config =
+        TestConfigUtils.createTestConfig(
+            "dsbulk.executor", "adaptiveConcurrency.enabled", true, "maxInFlight", 100);
+    DriverExecutionProfile profile = session.getContext().getConfig().getDefaultProfile();
+    when(profile.getString(DefaultDriverOption.REQUEST_CONSISTENCY)).thenReturn("ONE");
+    ExecutorSettings settings = new ExecutorSettings(config);
+    settings.init();
+    ReactiveBulkReader executor = settings.newReadExecutor(session, null, false);
+    assertThat(getInternalState(executor, "maxConcurrentRequests"))
+        .isNotInstanceOf(AdaptiveConcurrencyLimiter.class);
+  }
+
+  @Test
+  void should_not_create_concurrency_limiter_when_adaptive_concurrency_disabled() {
+    Config config = TestConfigUtils.createTestConfig("dsbulk.executor");
+    ExecutorSettings settings = new ExecutorSettings(config);
+    settings.init();
+    assertThat(settings.getConcurrencyLimiter()).isEmpty();
+    ReactiveBulkWriter executor = settings.newWriteExecutor(session, null);
+    assertThat(
+            getInternalState(executor, "maxConcurrentRequests")
+                instanceof AdaptiveConcurrencyLimiter)
+        .isFalse();
+    assertThat(settings.getConcurrencyLimiter()).isEmpty();
+  }
+
+  @Test
+  void should_throw_exception_when_adaptive_max_in_flight_lesser_than_min() {
+    Config config =
+        TestConfigUtils.createTestConfig(
+            "dsbulk.executor",
+            "adaptiveConcurrency.enabled",
+            true,
+            "adaptiveConcurrency.minInFlight",
+            8,
+            "adaptiveConcurrency.maxInFlight",
+            4);
+    ExecutorSettings settings = new ExecutorSettings(config);
+    assertThatThrownBy(settings::init)
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage(
+            "Value for executor.adaptiveConcurrency.maxInFlight must be greater than or equal to executor.adaptiveConcurrency.minInFlight, got: 4.");
+  }
+
+  @Test
+  void should_throw_exception_when_adaptive_latency_tolerance_invalid() {
+    Config config =
+        TestConfigUtils.createTestConfig(
+            "dsbulk.executor",
+            "adaptiveConcurrency.enabled",
+            true,
+            "adaptiveConcurrency.latencyTolerance",
+            0.5);
+    ExecutorSettings settings = new ExecutorSettings(config);
+    assertThatThrownBy(settings::init)
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage(
+            "Value for executor.adaptiveConcurrency.latencyTolerance must be greater than 1, got: 0.5.");
+  }
+
   @Test
   void should_disable_maxInFlight() {
     Config config = TestConfigUtils.createTestConfig("dsbulk.executor", "maxInFlight", 0);
@@ -191,8 +283,8 @@ class ExecutorSettingsTest {
     when(profile.getString(DefaultDriverOption.REQUEST_CONSISTENCY)).thenReturn("ONE");
     settings.init();
     ReactiveBulkReader executor = settings.newReadExecutor(session, null, false);
-    Semaphore maxConcurrentRequests =
-        (Semaphore) getInternalState(executor, "maxConcurrentRequests");
+    AsyncSemaphore maxConcurrentRequests =
+        (AsyncSemaphore) getInternalState(executor, "maxConcurrentRequests");
     assertThat(maxConcurrentRequests).isNull();
   }
 
@@ -283,6 +283,15 @@ class LogSettingsTest {
             "Invalid value for dsbulk.log.stmt.maxQueryStringLength, expecting NUMBER, got STRING");
   }
 
+  @Test
+  void should_throw_exception_when_widePartitions_negative() {
+    Config config = TestConfigUtils.createTestConfig("dsbulk.log", "widePartitions", -1);
+    LogSettings settings = new LogSettings(config, executionId);
+    assertThatThrownBy(settings::init)
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("Value for log.widePartitions must be positive or zero, got: -1.");
+  }
+
   @Test
   void should_throw_exception_when_maxBoundValueLength_not_a_number() {
     Config config =
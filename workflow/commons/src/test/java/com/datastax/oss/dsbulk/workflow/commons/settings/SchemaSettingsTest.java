@@ -33,6 +33,7 @@ import static com.datastax.oss.dsbulk.tests.utils.ReflectionUtils.getInternalSta
 import static com.datastax.oss.dsbulk.tests.utils.StringUtils.quoteJson;
 import static com.datastax.oss.dsbulk.workflow.commons.schema.QueryInspector.INTERNAL_TIMESTAMP_VARNAME;
 import static com.datastax.oss.dsbulk.workflow.commons.schema.QueryInspector.INTERNAL_TTL_VARNAME;
+import static com.datastax.oss.dsbulk.workflow.commons.settings.StatsSettings.StatisticsMode.distribution;
 import static com.datastax.oss.dsbulk.workflow.commons.settings.StatsSettings.StatisticsMode.global;
 import static com.datastax.oss.dsbulk.workflow.commons.settings.StatsSettings.StatisticsMode.hosts;
 import static com.datastax.oss.dsbulk.workflow.commons.settings.StatsSettings.StatisticsMode.partitions;
@@ -42,6 +43,7 @@ import static java.util.Collections.singletonList;
 import static java.util.concurrent.TimeUnit.MICROSECONDS;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
@@ -63,9 +65,11 @@ import com.datastax.oss.driver.api.core.context.DriverContext;
 import com.datastax.oss.driver.api.core.cql.BoundStatement;
 import com.datastax.oss.driver.api.core.cql.ColumnDefinitions;
 import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import com.datastax.oss.driver.api.core.cql.Row;
 import com.datastax.oss.driver.api.core.cql.Statement;
 import com.datastax.oss.driver.api.core.metadata.Metadata;
 import com.datastax.oss.driver.api.core.metadata.Node;
+import com.datastax.oss.driver.api.core.metadata.TokenMap;
 import com.datastax.oss.driver.api.core.metadata.schema.ClusteringOrder;
 import com.datastax.oss.driver.api.core.metadata.schema.ColumnMetadata;
 import com.datastax.oss.driver.api.core.metadata.schema.IndexMetadata;
@@ -90,6 +94,7 @@ import com.datastax.oss.dsbulk.connectors.api.Field;
 import com.datastax.oss.dsbulk.connectors.api.RecordMetadata;
 import com.datastax.oss.dsbulk.mapping.CQLWord;
 import com.datastax.oss.dsbulk.mapping.DefaultMapping;
+import com.datastax.oss.dsbulk.partitioner.murmur3.Murmur3BulkTokenFactory;
 import com.datastax.oss.dsbulk.tests.logging.LogCapture;
 import com.datastax.oss.dsbulk.tests.logging.LogInterceptingExtension;
 import com.datastax.oss.dsbulk.tests.logging.LogInterceptor;
@@ -100,6 +105,7 @@ import com.datastax.oss.dsbulk.workflow.commons.schema.RecordMapper;
 import com.typesafe.config.Config;
 import java.net.URI;
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.util.Arrays;
 import java.util.Collections;
@@ -109,6 +115,7 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
 import java.util.stream.Stream;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -1167,6 +1174,7 @@ class SchemaSettingsTest {
     List<?> statements = schemaSettings.createReadStatements(session);
     assertThat(statements).hasSize(1);
     assertThat(statements.get(0)).isEqualTo(bs);
+    assertThat(schemaSettings.getTokenRangeId(bs)).isNull();
   }
 
   @Test
@@ -1199,6 +1207,10 @@ class SchemaSettingsTest {
     schemaSettings.createReadResultMapper(session, recordMetadata, codecFactory, true);
     List<Statement<?>> statements = schemaSettings.createReadStatements(session);
     assertThat(statements).hasSize(3).contains(bs1, bs2, bs3);
+    when(bs1.getToken(0)).thenReturn(token1);
+    when(bs1.getToken(1)).thenReturn(token2);
+    assertThat(schemaSettings.getTokenRangeId(bs1))
+        .isEqualTo("range_-9223372036854775808_-3074457345618258603");
   }
 
   @Test
@@ -1399,6 +1411,182 @@ class SchemaSettingsTest {
         .isEqualTo("SELECT c1 FROM ks.t1 WHERE token(c1) > :start AND token(c1) <= :end");
   }
 
+  @ParameterizedTest
+  @MethodSource("allProtocolVersions")
+  void should_create_server_side_row_counter_for_global_and_ranges_stats(ProtocolVersion version) {
+    when(context.getProtocolVersion()).thenReturn(version);
+    Config config =
+        TestConfigUtils.createTestConfig("dsbulk.schema", "keyspace", "ks", "table", "t1");
+    SchemaSettings schemaSettings = new SchemaSettings(config);
+    schemaSettings.init(SchemaGenerationType.READ_AND_COUNT, session, false, true);
+    ReadResultCounter counter =
+        schemaSettings.createReadResultCounter(
+            session, codecFactory, EnumSet.of(global, ranges), 10, true);
+    assertThat(counter).isNotNull();
+    ArgumentCaptor<String> argument = ArgumentCaptor.forClass(String.class);
+    verify(session).prepare(argument.capture());
+    assertThat(argument.getValue())
+        .isEqualTo("SELECT count(*) FROM ks.t1 WHERE token(c1) > :start AND token(c1) <= :end");
+  }
+
+  @Test
+  void should_split_read_statements_at_ring_boundaries_when_counting_ranges_server_side() {
+    ColumnDefinitions definitions =
+        mockColumnDefinitions(
+            mockColumnDefinition("start", BIGINT), mockColumnDefinition("end", BIGINT));
+    when(ps.getVariableDefinitions()).thenReturn(definitions);
+    TokenMap tokenMap = metadata.getTokenMap().orElseThrow(IllegalStateException::new);
+    when(tokenMap.getPartitionerName()).thenReturn(Murmur3TokenFactory.PARTITIONER_NAME);
+    when(ps.bind()).thenAnswer(invocation -> mockTokenRangeStatement());
+    Config config =
+        TestConfigUtils.createTestConfig(
+            "dsbulk.schema", "keyspace", "ks", "table", "t1", "splits", 1);
+    SchemaSettings schemaSettings = new SchemaSettings(config);
+    schemaSettings.init(SchemaGenerationType.READ_AND_COUNT, session, false, true);
+    schemaSettings.createReadResultCounter(
+        session, codecFactory, EnumSet.of(global, ranges), 10, true);
+    List<Statement<?>> statements = schemaSettings.createReadStatements(session);
+    // the single split spans the whole ring and is cut in one piece per ring range
+    assertThat(statements).hasSize(3);
+    for (Statement<?> statement : statements) {
+      BoundStatement bs = (BoundStatement) statement;
+      Token start = bs.getToken(0);
+      Token end = bs.getToken(1);
+      assertThat(tokenRanges)
+          .filteredOn(
+              ring -> ring.contains(end) && (ring.getStart().equals(start) || ring.contains(start)))
+          .hasSize(1);
+    }
+  }
+
+  @Test
+  void should_split_read_statement_after_token_when_resplitting_long_reads() {
+    ColumnDefinitions definitions =
+        mockColumnDefinitions(
+            mockColumnDefinition("start", BIGINT), mockColumnDefinition("end", BIGINT));
+    when(ps.getVariableDefinitions()).thenReturn(definitions);
+    TokenMap tokenMap = metadata.getTokenMap().orElseThrow(IllegalStateException::new);
+    when(tokenMap.getPartitionerName()).thenReturn(Murmur3TokenFactory.PARTITIONER_NAME);
+    when(ps.bind()).thenAnswer(invocation -> mockTokenRangeStatement());
+    Config config =
+        TestConfigUtils.createTestConfig(
+            "dsbulk.schema", "keyspace", "ks", "table", "t1", "resplitAfterRows", 1000);
+    SchemaSettings schemaSettings = new SchemaSettings(config);
+    schemaSettings.init(SchemaGenerationType.READ_AND_MAP, session, false, true);
+    assertThat(schemaSettings.isResplitLongReads()).isTrue();
+    schemaSettings.createReadResultMapper(session, recordMetadata, codecFactory, true);
+    BoundStatement statement = (BoundStatement) schemaSettings.createReadStatements(session).get(0);
+    Token token = newToken(((Murmur3Token) statement.getToken(0)).getValue() + 100);
+    Token end = statement.getToken(1);
+    List<Statement<?>> splits = schemaSettings.splitReadStatementAfter(statement, token, 4);
+    assertThat(splits).hasSize(4);
+    assertThat(((BoundStatement) splits.get(0)).getToken(0)).isEqualTo(token);
+    assertThat(((BoundStatement) splits.get(3)).getToken(1)).isEqualTo(end);
+    // nothing follows the end of the range
+    assertThat(schemaSettings.splitReadStatementAfter(statement, end, 4)).isEmpty();
+  }
+
+  @Test
+  void should_create_row_token_function() {
+    ColumnDefinitions definitions =
+        mockColumnDefinitions(
+            mockColumnDefinition("start", BIGINT), mockColumnDefinition("end", BIGINT));
+    when(ps.getVariableDefinitions()).thenReturn(definitions);
+    TokenMap tokenMap = metadata.getTokenMap().orElseThrow(IllegalStateException::new);
+    when(tokenMap.getPartitionerName()).thenReturn(Murmur3TokenFactory.PARTITIONER_NAME);
+    when(ps.bind()).thenAnswer(invocation -> mockTokenRangeStatement());
+    Config config =
+        TestConfigUtils.createTestConfig(
+            "dsbulk.schema", "keyspace", "ks", "table", "t1", "resplitAfterTime", "10 minutes");
+    SchemaSettings schemaSettings = new SchemaSettings(config);
+    schemaSettings.init(SchemaGenerationType.READ_AND_MAP, session, false, true);
+    schemaSettings.createReadResultMapper(session, recordMetadata, codecFactory, true);
+    schemaSettings.createReadStatements(session);
+    Function<Row, Token> rowToken = schemaSettings.createRowTokenFunction();
+    assertThat(rowToken).isNotNull();
+    ByteBuffer key = ByteBuffer.wrap("foo".getBytes(StandardCharsets.UTF_8));
+    Row row = mock(Row.class);
+    when(row.getBytesUnsafe(0)).thenReturn(key);
+    assertThat(rowToken.apply(row)).isEqualTo(newToken(Murmur3BulkTokenFactory.murmur3(key)));
+  }
+
+  @Test
+  void should_not_create_row_token_function_when_partition_key_not_selected() {
+    ColumnDefinitions definitions = mockColumnDefinitions(mockColumnDefinition(C3, TEXT));
+    when(ps.getResultSetDefinitions()).thenReturn(definitions);
+    ColumnDefinitions variables =
+        mockColumnDefinitions(
+            mockColumnDefinition("start", BIGINT), mockColumnDefinition("end", BIGINT));
+    when(ps.getVariableDefinitions()).thenReturn(variables);
+    TokenMap tokenMap = metadata.getTokenMap().orElseThrow(IllegalStateException::new);
+    when(tokenMap.getPartitionerName()).thenReturn(Murmur3TokenFactory.PARTITIONER_NAME);
+    when(ps.bind()).thenAnswer(invocation -> mockTokenRangeStatement());
+    Config config =
+        TestConfigUtils.createTestConfig(
+            "dsbulk.schema",
+            "query",
+            "\"SELECT c3 FROM ks.t1 WHERE token(c1) > :start AND token(c1) <= :end\"",
+            "resplitAfterRows",
+            1000);
+    SchemaSettings schemaSettings = new SchemaSettings(config);
+    schemaSettings.init(SchemaGenerationType.READ_AND_MAP, session, false, true);
+    schemaSettings.createReadResultMapper(session, recordMetadata, codecFactory, true);
+    schemaSettings.createReadStatements(session);
+    assertThatThrownBy(schemaSettings::createRowTokenFunction)
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage(
+            "Cannot re-split long reads for table t1: "
+                + "the query does not select partition key column c1.");
+  }
+
+  @ParameterizedTest
+  @MethodSource("allProtocolVersions")
+  void should_create_row_counter_for_distribution_stats(ProtocolVersion version) {
+    when(context.getProtocolVersion()).thenReturn(version);
+    Config config =
+        TestConfigUtils.createTestConfig("dsbulk.schema", "keyspace", "ks", "table", "t1");
+    SchemaSettings schemaSettings = new SchemaSettings(config);
+    schemaSettings.init(SchemaGenerationType.READ_AND_COUNT, session, false, true);
+    ReadResultCounter counter =
+        schemaSettings.createReadResultCounter(session, codecFactory, EnumSet.of(distribution), 10);
+    assertThat(counter).isNotNull();
+    ArgumentCaptor<String> argument = ArgumentCaptor.forClass(String.class);
+    verify(session).prepare(argument.capture());
+    assertThat(argument.getValue())
+        .isEqualTo(
+            "SELECT c1, "
+                + C2.asCql(true)
+                + ", c3 FROM ks.t1 WHERE token(c1) > :start AND token(c1) <= :end");
+  }
+
+  @Test
+  void should_create_wide_partitions_counter() {
+    Config config =
+        TestConfigUtils.createTestConfig("dsbulk.schema", "keyspace", "ks", "table", "t1");
+    SchemaSettings schemaSettings = new SchemaSettings(config);
+    schemaSettings.init(SchemaGenerationType.READ_AND_MAP, session, false, true);
+    schemaSettings.createReadResultMapper(session, recordMetadata, codecFactory, true);
+    ReadResultCounter counter =
+        schemaSettings.createWidePartitionsCounter(session, codecFactory, 10);
+    assertThat(counter).isNotNull();
+  }
+
+  @Test
+  void should_not_create_wide_partitions_counter_when_partition_key_not_selected() {
+    ColumnDefinitions definitions = mockColumnDefinitions(mockColumnDefinition(C3, TEXT));
+    when(ps.getResultSetDefinitions()).thenReturn(definitions);
+    Config config =
+        TestConfigUtils.createTestConfig("dsbulk.schema", "query", "\"SELECT c3 FROM ks.t1\"");
+    SchemaSettings schemaSettings = new SchemaSettings(config);
+    schemaSettings.init(SchemaGenerationType.READ_AND_MAP, session, false, true);
+    schemaSettings.createReadResultMapper(session, recordMetadata, codecFactory, true);
+    assertThatThrownBy(() -> schemaSettings.createWidePartitionsCounter(session, codecFactory, 10))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage(
+            "Cannot report wide partitions for table t1: "
+                + "the query does not select partition key column c1.");
+  }
+
   @Test
   void should_use_custom_query_when_mode_is_global() {
     when(table.getClusteringColumns()).thenReturn(ImmutableMap.of(col2, ClusteringOrder.ASC));
@@ -2513,4 +2701,20 @@ class SchemaSettingsTest {
         (SetMultimap<Field, CQLWord>) getInternalState(mapping, "fieldsToVariables");
     assertThat(fieldsToVariables).isEqualTo(expected.build());
   }
+
+  private static BoundStatement mockTokenRangeStatement() {
+    BoundStatement bs = mock(BoundStatement.class);
+    Token[] tokens = new Token[2];
+    when(bs.setToken(anyInt(), any(Token.class)))
+        .thenAnswer(
+            invocation -> {
+              tokens[invocation.<Integer>getArgument(0)] = invocation.getArgument(1);
+              return bs;
+            });
+    when(bs.getToken(anyInt()))
+        .thenAnswer(invocation -> tokens[invocation.<Integer>getArgument(0)]);
+    when(bs.setRoutingKeyspace(any(CqlIdentifier.class))).thenReturn(bs);
+    when(bs.setRoutingToken(any(Token.class))).thenReturn(bs);
+    return bs;
+  }
 }
@@ -20,6 +20,7 @@ import static com.datastax.oss.dsbulk.workflow.commons.settings.StatsSettings.St
 import static com.datastax.oss.dsbulk.workflow.commons.settings.StatsSettings.StatisticsMode.partitions;
 import static com.datastax.oss.dsbulk.workflow.commons.settings.StatsSettings.StatisticsMode.ranges;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 import com.datastax.oss.dsbulk.tests.utils.TestConfigUtils;
 import com.typesafe.config.Config;
@@ -44,4 +45,25 @@ class StatsSettingsTest {
     settings.init();
     assertThat(settings.getNumPartitions()).isEqualTo(20);
   }
+
+  @Test
+  void should_report_server_side_count() {
+    Config config =
+        TestConfigUtils.createTestConfig(
+            "dsbulk.stats", "modes", "[global,ranges]", "serverSideCount", true);
+    StatsSettings settings = new StatsSettings(config);
+    settings.init();
+    assertThat(settings.isServerSideCount()).isTrue();
+  }
+
+  @Test
+  void should_reject_server_side_count_when_counting_hosts() {
+    Config config =
+        TestConfigUtils.createTestConfig(
+            "dsbulk.stats", "modes", "[global,hosts]", "serverSideCount", true);
+    StatsSettings settings = new StatsSettings(config);
+    assertThatThrownBy(settings::init)
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining("when stats.serverSideCount is true");
+  }
 }
@@ -0,0 +1,314 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.dsbulk.workflow.commons.sort;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+import com.datastax.oss.driver.api.core.CqlIdentifier;
+import com.datastax.oss.driver.api.core.DefaultConsistencyLevel;
+import com.datastax.oss.driver.api.core.DefaultProtocolVersion;
+import com.datastax.oss.driver.api.core.cql.BatchableStatement;
+import com.datastax.oss.driver.api.core.cql.BoundStatement;
+import com.datastax.oss.driver.api.core.cql.ColumnDefinition;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import com.datastax.oss.driver.api.core.cql.SimpleStatement;
+import com.datastax.oss.driver.api.core.detach.AttachmentPoint;
+import com.datastax.oss.driver.api.core.type.codec.TypeCodecs;
+import com.datastax.oss.driver.api.core.type.codec.registry.CodecRegistry;
+import com.datastax.oss.driver.internal.core.cql.DefaultColumnDefinition;
+import com.datastax.oss.driver.internal.core.cql.DefaultColumnDefinitions;
+import com.datastax.oss.driver.internal.core.cql.DefaultPreparedStatement;
+import com.datastax.oss.dsbulk.connectors.api.DefaultRecord;
+import com.datastax.oss.dsbulk.connectors.api.Record;
+import com.datastax.oss.dsbulk.workflow.commons.statement.MappedBoundStatement;
+import com.datastax.oss.protocol.internal.ProtocolConstants;
+import com.datastax.oss.protocol.internal.response.result.ColumnSpec;
+import com.datastax.oss.protocol.internal.response.result.RawType;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+class StatementSorterTest {
+
+  private static final URI RESOURCE1 = URI.create("file://file1.csv");
+  private static final URI RESOURCE2 = URI.create("file://file2.csv");
+
+  private final PreparedStatement ps = preparedStatement();
+
+  private Path tempDir;
+
+  @BeforeEach
+  void createTempDir() throws IOException {
+    tempDir = Files.createTempDirectory("test");
+  }
+
+  @AfterEach
+  void deleteTempDir() throws IOException {
+    try (Stream<Path> files = Files.list(tempDir)) {
+      assertThat(files).as("temporary files should have been deleted").isEmpty();
+    }
+    Files.delete(tempDir);
+  }
+
+  @Test
+  void should_sort_statements_in_memory() {
+    List<BatchableStatement<?>> statements = unorderedStatements();
+    StatementSorter sorter = new StatementSorter(Long.MAX_VALUE, tempDir);
+    List<BatchableStatement<?>> sorted =
+        sorter.sort(Flux.fromIterable(statements)).collectList().block();
+    assertThat(sorted).hasSameSizeAs(statements).containsExactlyInAnyOrderElementsOf(statements);
+    assertContiguousPartitions(sorted);
+  }
+
+  @Test
+  void should_sort_statements_with_spill_to_disk() {
+    List<BatchableStatement<?>> statements = unorderedStatements();
+    // will spill every few statements
+    StatementSorter sorter = new StatementSorter(2000, tempDir);
+    List<BatchableStatement<?>> sorted =
+        sorter.sort(Flux.fromIterable(statements)).collectList().block();
+    assertThat(sorted).hasSameSizeAs(statements);
+    assertContiguousPartitions(sorted);
+    // statements read back from disk must be equivalent to the original ones
+    assertThat(sorted.stream().map(this::describe).collect(Collectors.toList()))
+        .containsExactlyInAnyOrderElementsOf(
+            statements.stream().map(this::describe).collect(Collectors.toList()));
+  }
+
+  @Test
+  void should_merge_spilled_runs_in_several_passes() {
+    List<BatchableStatement<?>> statements = unorderedStatements();
+    // will spill every statement, and merge at most 3 runs at once
+    StatementSorter sorter = new StatementSorter(1, tempDir, 3);
+    List<BatchableStatement<?>> sorted =
+        sorter.sort(Flux.fromIterable(statements)).collectList().block();
+    assertThat(sorted).hasSameSizeAs(statements);
+    assertThat(sorted)
+        .extracting(BatchableStatement::getRoutingKey)
+        .isSortedAccordingTo(Comparator.naturalOrder());
+    assertThat(sorted.stream().map(this::describe).collect(Collectors.toList()))
+        .containsExactlyInAnyOrderElementsOf(
+            statements.stream().map(this::describe).collect(Collectors.toList()));
+  }
+
+  @Test
+  void should_preserve_nulls_unset_values_and_sources_when_spilling() {
+    BoundStatement bs = ps.boundStatementBuilder().setInt(0, 1).setToNull(1).build();
+    BoundStatement bs2 = ps.boundStatementBuilder().setInt(0, 1).build();
+    List<BatchableStatement<?>> statements =
+        Arrays.asList(
+            new MappedBoundStatement(new DefaultRecord("source1", RESOURCE1, 1), bs),
+            new MappedBoundStatement(new DefaultRecord(null, RESOURCE2, 2), bs2));
+    StatementSorter sorter = new StatementSorter(1, tempDir);
+    List<BatchableStatement<?>> sorted =
+        sorter.sort(Flux.fromIterable(statements)).collectList().block();
+    assertThat(sorted).hasSize(2);
+    MappedBoundStatement first = (MappedBoundStatement) sorted.get(0);
+    MappedBoundStatement second = (MappedBoundStatement) sorted.get(1);
+    assertThat(first.getRecord().getSource()).isEqualTo("source1");
+    assertThat(first.getRecord().getResource()).isEqualTo(RESOURCE1);
+    assertThat(first.getRecord().getPosition()).isEqualTo(1);
+    assertThat(first.getInt(0)).isEqualTo(1);
+    assertThat(first.isSet(1)).isTrue();
+    assertThat(first.isNull(1)).isTrue();
+    assertThat(second.getRecord().getSource()).isNull();
+    assertThat(second.getRecord().getResource()).isEqualTo(RESOURCE2);
+    assertThat(second.getRecord().getPosition()).isEqualTo(2);
+    assertThat(second.isSet(1)).isFalse();
+    assertThat(second.getRoutingKey())
+        .isEqualTo(TypeCodecs.INT.encode(1, DefaultProtocolVersion.V4));
+  }
+
+  @Test
+  void should_preserve_statement_attributes_when_spilling() {
+    BoundStatement bs =
+        ps.boundStatementBuilder()
+            .setInt(0, 1)
+            .setString(1, "value1")
+            .setExecutionProfileName("profile1")
+            .setRoutingKeyspace("ks2")
+            .addCustomPayload("key1", ByteBuffer.wrap(new byte[] {1, 2}))
+            .setIdempotence(true)
+            .setTracing(true)
+            .setQueryTimestamp(1234L)
+            .setPageSize(42)
+            .setConsistencyLevel(DefaultConsistencyLevel.QUORUM)
+            .setSerialConsistencyLevel(DefaultConsistencyLevel.SERIAL)
+            .setTimeout(Duration.ofSeconds(7))
+            .build();
+    MappedBoundStatement statement =
+        new MappedBoundStatement(new DefaultRecord("source1", RESOURCE1, 1), bs);
+    StatementSorter sorter = new StatementSorter(1, tempDir);
+    List<BatchableStatement<?>> sorted = sorter.sort(Flux.just(statement)).collectList().block();
+    assertThat(sorted).hasSize(1);
+    MappedBoundStatement actual = (MappedBoundStatement) sorted.get(0);
+    assertThat(actual).isNotSameAs(statement);
+    assertThat(actual.getPreparedStatement()).isSameAs(ps);
+    assertThat(actual.getString(1)).isEqualTo("value1");
+    assertThat(actual.getRoutingKey()).isEqualTo(statement.getRoutingKey());
+    assertThat(actual.getExecutionProfileName()).isEqualTo("profile1");
+    assertThat(actual.getRoutingKeyspace()).isEqualTo(CqlIdentifier.fromInternal("ks2"));
+    assertThat(actual.getCustomPayload())
+        .containsOnly(entry("key1", ByteBuffer.wrap(new byte[] {1, 2})));
+    assertThat(actual.isIdempotent()).isTrue();
+    assertThat(actual.isTracing()).isTrue();
+    assertThat(actual.getQueryTimestamp()).isEqualTo(1234L);
+    assertThat(actual.getPageSize()).isEqualTo(42);
+    assertThat(actual.getConsistencyLevel()).isEqualTo(DefaultConsistencyLevel.QUORUM);
+    assertThat(actual.getSerialConsistencyLevel()).isEqualTo(DefaultConsistencyLevel.SERIAL);
+    assertThat(actual.getTimeout()).isEqualTo(Duration.ofSeconds(7));
+  }
+
+  @Test
+  void should_emit_fullest_buckets_before_the_end_of_the_flow() {
+    List<BatchableStatement<?>> statements = new ArrayList<>();
+    for (int i = 1; i <= 10; i++) {
+      statements.add(statement(0, i));
+      statements.add(statement(i, i));
+    }
+    // will hit the memory budget every few statements
+    StatementSorter sorter = new StatementSorter(3000, tempDir);
+    // the flow never completes: statements can only be emitted when the budget is hit
+    List<BatchableStatement<?>> emitted =
+        sorter
+            .sort(Flux.fromIterable(statements).concatWith(Flux.never()))
+            .take(2)
+            .collectList()
+            .block(Duration.ofSeconds(10));
+    assertThat(emitted)
+        .extracting(statement -> ((MappedBoundStatement) statement).getInt(0))
+        .containsExactly(0, 0);
+    // when the flow completes, all statements are eventually emitted
+    List<BatchableStatement<?>> sorted =
+        sorter.sort(Flux.fromIterable(statements)).collectList().block();
+    assertThat(sorted.stream().map(this::describe).collect(Collectors.toList()))
+        .containsExactlyInAnyOrderElementsOf(
+            statements.stream().map(this::describe).collect(Collectors.toList()));
+  }
+
+  @Test
+  void should_emit_unsortable_statements_immediately() {
+    BatchableStatement<?> simple = SimpleStatement.newInstance("INSERT INTO ks.t1 (pk) VALUES (0)");
+    List<BatchableStatement<?>> statements = new ArrayList<>(unorderedStatements());
+    statements.add(simple);
+    StatementSorter sorter = new StatementSorter(Long.MAX_VALUE, tempDir);
+    List<BatchableStatement<?>> sorted =
+        sorter.sort(Flux.fromIterable(statements)).collectList().block();
+    assertThat(sorted).hasSameSizeAs(statements).first().isSameAs(simple);
+  }
+
+  private MappedBoundStatement statement(int pk, int position) {
+    BoundStatement bs =
+        ps.boundStatementBuilder().setInt(0, pk).setString(1, "value" + position).build();
+    return new MappedBoundStatement(new DefaultRecord("line" + position, RESOURCE1, position), bs);
+  }
+
+  private List<BatchableStatement<?>> unorderedStatements() {
+    List<BatchableStatement<?>> statements = new ArrayList<>();
+    int position = 1;
+    for (int round = 0; round < 10; round++) {
+      for (int pk = 0; pk < 20; pk++) {
+        BoundStatement bs =
+            ps.boundStatementBuilder()
+                .setInt(0, (pk * 7) % 20)
+                .setString(1, "value" + position)
+                .build();
+        URI resource = position % 2 == 0 ? RESOURCE1 : RESOURCE2;
+        Record record = new DefaultRecord("line" + position, resource, position);
+        statements.add(new MappedBoundStatement(record, bs));
+        position++;
+      }
+    }
+    return statements;
+  }
+
+  private static void assertContiguousPartitions(List<BatchableStatement<?>> statements) {
+    List<ByteBuffer> seen = new ArrayList<>();
+    ByteBuffer current = null;
+    for (BatchableStatement<?> statement : statements) {
+      ByteBuffer key = statement.getRoutingKey();
+      if (!key.equals(current)) {
+        assertThat(seen).as("partition %s is not contiguous", key).doesNotContain(key);
+        seen.add(key);
+        current = key;
+      }
+    }
+  }
+
+  private String describe(BatchableStatement<?> statement) {
+    MappedBoundStatement bs = (MappedBoundStatement) statement;
+    Record record = bs.getRecord();
+    return String.format(
+        "%s|%s|%d|%d|%s",
+        record.getSource(),
+        record.getResource(),
+        record.getPosition(),
+        bs.getInt(0),
+        bs.getString(1));
+  }
+
+  private static PreparedStatement preparedStatement() {
+    List<ColumnDefinition> definitions =
+        Arrays.asList(
+            new DefaultColumnDefinition(
+                new ColumnSpec(
+                    "ks", "t1", "pk", 0, RawType.PRIMITIVES.get(ProtocolConstants.DataType.INT)),
+                AttachmentPoint.NONE),
+            new DefaultColumnDefinition(
+                new ColumnSpec(
+                    "ks", "t1", "v", 1, RawType.PRIMITIVES.get(ProtocolConstants.DataType.VARCHAR)),
+                AttachmentPoint.NONE));
+    return new DefaultPreparedStatement(
+        ByteBuffer.wrap(new byte[] {1, 2, 3, 4}),
+        "INSERT INTO ks.t1 (pk, v) VALUES (:pk, :v)",
+        DefaultColumnDefinitions.valueOf(definitions),
+        Collections.singletonList(0),
+        null,
+        DefaultColumnDefinitions.valueOf(Collections.emptyList()),
+        CqlIdentifier.fromInternal("ks"),
+        Collections.emptyMap(),
+        null,
+        null,
+        CqlIdentifier.fromInternal("ks"),
+        null,
+        null,
+        Collections.emptyMap(),
+        null,
+        null,
+        null,
+        5000,
+        DefaultConsistencyLevel.LOCAL_ONE,
+        DefaultConsistencyLevel.LOCAL_SERIAL,
+        false,
+        CodecRegistry.DEFAULT,
+        DefaultProtocolVersion.V4);
+  }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.dsbulk.workflow.commons.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+import com.datastax.oss.dsbulk.partitioner.murmur3.Murmur3BulkTokenFactory;
+import java.nio.ByteBuffer;
+import org.junit.jupiter.api.Test;
+
+class HyperLogLogTest {
+
+  @Test
+  void should_estimate_small_cardinalities() {
+    HyperLogLog hll = new HyperLogLog(14);
+    assertThat(hll.estimate()).isZero();
+    for (int i = 0; i < 100; i++) {
+      hll.add(hash(i));
+      // duplicates do not change the estimate
+      hll.add(hash(i));
+    }
+    assertThat((double) hll.estimate()).isCloseTo(100, within(2d));
+  }
+
+  @Test
+  void should_estimate_large_cardinalities() {
+    HyperLogLog hll = new HyperLogLog(14);
+    for (int i = 0; i < 1_000_000; i++) {
+      hll.add(hash(i));
+    }
+    assertThat((double) hll.estimate()).isCloseTo(1_000_000, within(30_000d));
+  }
+
+  @Test
+  void should_merge_sketches() {
+    HyperLogLog hll1 = new HyperLogLog(14);
+    HyperLogLog hll2 = new HyperLogLog(14);
+    for (int i = 0; i < 200_000; i++) {
+      hll1.add(hash(i));
+    }
+    for (int i = 100_000; i < 300_000; i++) {
+      hll2.add(hash(i));
+    }
+    hll1.merge(hll2);
+    assertThat((double) hll1.estimate()).isCloseTo(300_000, within(9_000d));
+  }
+
+  @Test
+  void should_reject_sketches_of_different_precisions() {
+    assertThatThrownBy(() -> new HyperLogLog(12).merge(new HyperLogLog(14)))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("Cannot merge sketches of different precisions: 12 and 14");
+  }
+
+  private static long hash(int i) {
+    return Murmur3BulkTokenFactory.murmur3(ByteBuffer.allocate(4).putInt(0, i));
+  }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.dsbulk.workflow.commons.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.datastax.oss.driver.shaded.guava.common.collect.ImmutableSet;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+class ReplicaAwareDispatcherTest {
+
+  @Test
+  void should_interleave_items_across_replica_sets() {
+    List<String> items = Arrays.asList("a1", "a2", "a3", "b1", "b2", "c1");
+    ReplicaAwareDispatcher<String, String> dispatcher =
+        new ReplicaAwareDispatcher<>(
+            items, item -> Collections.singleton("n" + item.charAt(0)), -1);
+    List<String> dispatched = dispatcher.flatMap(Flux::just, 1, 1).collectList().block();
+    assertThat(dispatched).containsExactly("a1", "b1", "c1", "a2", "b2", "a3");
+  }
+
+  @Test
+  void should_prefer_least_loaded_replicas() {
+    // a1 and a2 never complete, so n1 stays busy: all b items must be dispatched before a2
+    List<String> items = Arrays.asList("a1", "a2", "b1", "b2", "b3");
+    ReplicaAwareDispatcher<String, String> dispatcher =
+        new ReplicaAwareDispatcher<>(
+            items, item -> Collections.singleton(item.startsWith("a") ? "n1" : "n2"), 10);
+    List<String> dispatched = new CopyOnWriteArrayList<>();
+    dispatcher
+        .flatMap(
+            item -> {
+              dispatched.add(item);
+              return item.startsWith("a") ? Mono.never() : Mono.just(item);
+            },
+            2,
+            1)
+        .take(3)
+        .blockLast();
+    assertThat(dispatched).containsExactly("a1", "b1", "b2", "b3");
+  }
+
+  @Test
+  void should_cap_concurrency_per_node() {
+    List<Integer> items = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      items.add(i);
+    }
+    // each item has 2 replicas among 4 nodes
+    ReplicaAwareDispatcher<Integer, Integer> dispatcher =
+        new ReplicaAwareDispatcher<>(items, item -> ImmutableSet.of(item % 4, (item + 1) % 4), 2);
+    Map<Integer, AtomicInteger> loads = new ConcurrentHashMap<>();
+    AtomicInteger maxMinLoad = new AtomicInteger();
+    List<Integer> dispatched =
+        dispatcher
+            .flatMap(
+                item -> {
+                  Set<Integer> replicas = ImmutableSet.of(item % 4, (item + 1) % 4);
+                  return Mono.delay(Duration.ofMillis(1))
+                      .doOnSubscribe(
+                          s -> {
+                            int min = Integer.MAX_VALUE;
+                            for (Integer replica : replicas) {
+                              int load =
+                                  loads
+                                      .computeIfAbsent(replica, k -> new AtomicInteger())
+                                      .incrementAndGet();
+                              min = Math.min(min, load);
+                            }
+                            maxMinLoad.accumulateAndGet(min, Math::max);
+                          })
+                      .doOnTerminate(
+                          () -> replicas.forEach(replica -> loads.get(replica).decrementAndGet()))
+                      .thenReturn(item);
+                },
+                8,
+                1)
+            .collectList()
+            .block();
+    assertThat(dispatched).containsExactlyInAnyOrderElementsOf(items);
+    // an item is only dispatched if one of its replicas is below the limit
+    assertThat(maxMinLoad.get()).isLessThanOrEqualTo(2);
+  }
+
+  @Test
+  void should_dispatch_items_without_replicas() {
+    List<String> items = Arrays.asList("a", "b", "c");
+    ReplicaAwareDispatcher<String, String> dispatcher =
+        new ReplicaAwareDispatcher<>(items, item -> Collections.emptySet(), 1);
+    List<String> dispatched = dispatcher.flatMap(Flux::just, 4, 1).collectList().block();
+    assertThat(dispatched).containsExactlyInAnyOrder("a", "b", "c");
+  }
+
+  @Test
+  void should_dispatch_items_added_while_running() {
+    // each item of length > 1 adds its two halves before completing
+    List<String> items = Arrays.asList("abcd", "ef");
+    ReplicaAwareDispatcher<String, String> dispatcher =
+        new ReplicaAwareDispatcher<>(items, item -> Collections.singleton("n1"), -1);
+    List<String> dispatched =
+        dispatcher
+            .flatMap(
+                item ->
+                    Mono.delay(Duration.ofMillis(1))
+                        .doOnNext(
+                            tick -> {
+                              if (item.length() > 1) {
+                                dispatcher.add(item.substring(0, item.length() / 2));
+                                dispatcher.add(item.substring(item.length() / 2));
+                              }
+                            })
+                        .thenReturn(item),
+                2,
+                1)
+            .collectList()
+            .block();
+    assertThat(dispatched)
+        .containsExactlyInAnyOrder("abcd", "ef", "ab", "cd", "e", "f", "a", "b", "c", "d");
+  }
+
+  @Test
+  void should_compute_default_max_concurrency_per_node() {
+    List<Integer> items = Arrays.asList(0, 1, 2, 3, 4, 5);
+    ReplicaAwareDispatcher<Integer, Integer> dispatcher =
+        new ReplicaAwareDispatcher<>(
+            items, item -> ImmutableSet.of(item, (item + 1) % 6, (item + 2) % 6), -1);
+    // 8 concurrent reads on 3 replicas each, spread over 6 nodes: 4 reads per node
+    assertThat(dispatcher.defaultMaxConcurrencyPerNode(8)).isEqualTo(4);
+  }
+}
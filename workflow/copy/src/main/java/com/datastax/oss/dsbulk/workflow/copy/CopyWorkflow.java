@@ -0,0 +1,469 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.dsbulk.workflow.copy;
+
+import com.codahale.metrics.MetricRegistry;
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.BatchableStatement;
+import com.datastax.oss.driver.api.core.cql.Statement;
+import com.datastax.oss.driver.api.core.metadata.schema.RelationMetadata;
+import com.datastax.oss.driver.api.core.metrics.Metrics;
+import com.datastax.oss.driver.api.core.type.DataType;
+import com.datastax.oss.driver.api.core.type.ListType;
+import com.datastax.oss.driver.api.core.type.MapType;
+import com.datastax.oss.driver.api.core.type.SetType;
+import com.datastax.oss.driver.api.core.type.TupleType;
+import com.datastax.oss.driver.api.core.type.UserDefinedType;
+import com.datastax.oss.driver.shaded.guava.common.annotations.VisibleForTesting;
+import com.datastax.oss.driver.shaded.guava.common.base.Stopwatch;
+import com.datastax.oss.dsbulk.codecs.api.ConvertingCodecFactory;
+import com.datastax.oss.dsbulk.connectors.api.Field;
+import com.datastax.oss.dsbulk.connectors.api.Record;
+import com.datastax.oss.dsbulk.connectors.api.RecordMetadata;
+import com.datastax.oss.dsbulk.executor.api.reader.BulkReader;
+import com.datastax.oss.dsbulk.executor.api.result.EmptyWriteResult;
+import com.datastax.oss.dsbulk.executor.api.result.ReadResult;
+import com.datastax.oss.dsbulk.executor.api.result.WriteResult;
+import com.datastax.oss.dsbulk.executor.api.writer.BulkWriter;
+import com.datastax.oss.dsbulk.workflow.api.Workflow;
+import com.datastax.oss.dsbulk.workflow.api.utils.DurationUtils;
+import com.datastax.oss.dsbulk.workflow.commons.log.LogManager;
+import com.datastax.oss.dsbulk.workflow.commons.metrics.MetricsManager;
+import com.datastax.oss.dsbulk.workflow.commons.schema.ReadResultMapper;
+import com.datastax.oss.dsbulk.workflow.commons.schema.RecordMapper;
+import com.datastax.oss.dsbulk.workflow.commons.settings.BatchSettings;
+import com.datastax.oss.dsbulk.workflow.commons.settings.CodecSettings;
+import com.datastax.oss.dsbulk.workflow.commons.settings.CopySettings;
+import com.datastax.oss.dsbulk.workflow.commons.settings.DriverSettings;
+import com.datastax.oss.dsbulk.workflow.commons.settings.EngineSettings;
+import com.datastax.oss.dsbulk.workflow.commons.settings.ExecutorSettings;
+import com.datastax.oss.dsbulk.workflow.commons.settings.LogSettings;
+import com.datastax.oss.dsbulk.workflow.commons.settings.MonitoringSettings;
+import com.datastax.oss.dsbulk.workflow.commons.settings.SchemaGenerationType;
+import com.datastax.oss.dsbulk.workflow.commons.settings.SchemaSettings;
+import com.datastax.oss.dsbulk.workflow.commons.settings.SettingsManager;
+import com.datastax.oss.dsbulk.workflow.commons.utils.CloseableUtils;
+import com.datastax.oss.dsbulk.workflow.commons.utils.ClusterInformationUtils;
+import com.datastax.oss.dsbulk.workflow.commons.utils.ReplicaAwareDispatcher;
+import com.typesafe.config.Config;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import org.reactivestreams.Publisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * The main class for copy workflows.
+ *
+ * <p>Rows are read from the source table by token ranges, as when unloading, and written to the
+ * target table, as when loading, without intermediate files. Column values are transferred in their
+ * serialized form: they are neither deserialized when read, nor serialized again when written.
+ */
+public class CopyWorkflow implements Workflow {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(CopyWorkflow.class);
+
+  private final SettingsManager settingsManager;
+  private final AtomicBoolean closed = new AtomicBoolean(false);
+
+  private String executionId;
+  private Scheduler scheduler;
+  private ReadResultMapper readResultMapper;
+  private RecordMapper recordMapper;
+  private MetricsManager metricsManager;
+  private LogManager logManager;
+  private CqlSession sourceSession;
+  private CqlSession targetSession;
+  private BulkReader reader;
+  private BulkWriter writer;
+  private List<Statement<?>> readStatements;
+  private boolean batchingEnabled;
+  private boolean dryRun;
+  private int batchBufferSize;
+  private Function<Publisher<BatchableStatement<?>>, Publisher<Statement<?>>> batcher;
+  private Function<Flux<ReadResult>, Flux<ReadResult>> totalItemsMonitor;
+  private Function<Flux<ReadResult>, Flux<ReadResult>> failedReadResultsMonitor;
+  private Function<Flux<Record>, Flux<Record>> failedRecordsMonitor;
+  private Function<Flux<BatchableStatement<?>>, Flux<BatchableStatement<?>>>
+      failedStatementsMonitor;
+  private Function<Flux<Statement<?>>, Flux<Statement<?>>> batcherMonitor;
+  private Function<Flux<ReadResult>, Flux<ReadResult>> totalItemsCounter;
+  private Function<Flux<ReadResult>, Flux<ReadResult>> failedReadsHandler;
+  private Function<Flux<ReadResult>, Flux<ReadResult>> readWarningsHandler;
+  private Function<Flux<Record>, Flux<Record>> unmappableRecordsHandler;
+  private Function<Flux<BatchableStatement<?>>, Flux<BatchableStatement<?>>>
+      unmappableStatementsHandler;
+  private Function<Flux<WriteResult>, Flux<WriteResult>> writeWarningsHandler;
+  private Function<Flux<WriteResult>, Flux<WriteResult>> failedWritesHandler;
+  private Function<Flux<Void>, Flux<Void>> terminationHandler;
+  private int readConcurrency;
+  private int writeConcurrency;
+  private int maxConcurrentQueriesPerNode;
+  private int numCores;
+
+  CopyWorkflow(Config config) {
+    settingsManager = new SettingsManager(config);
+  }
+
+  @Override
+  public void init() throws Exception {
+    settingsManager.init("COPY", false);
+    executionId = settingsManager.getExecutionId();
+    LogSettings logSettings = settingsManager.getLogSettings();
+    DriverSettings driverSettings = settingsManager.getDriverSettings();
+    CopySettings copySettings = settingsManager.getCopySettings();
+    SchemaSettings schemaSettings = settingsManager.getSchemaSettings();
+    BatchSettings batchSettings = settingsManager.getBatchSettings();
+    ExecutorSettings executorSettings = settingsManager.getExecutorSettings();
+    CodecSettings codecSettings = settingsManager.getCodecSettings();
+    MonitoringSettings monitoringSettings = settingsManager.getMonitoringSettings();
+    EngineSettings engineSettings = settingsManager.getEngineSettings();
+    // No logs should be produced until the following statement returns
+    logSettings.init();
+    driverSettings.init(false);
+    logSettings.logEffectiveSettings(
+        settingsManager.getEffectiveBulkLoaderConfig(), driverSettings.getDriverConfig());
+    copySettings.init();
+    codecSettings.init();
+    monitoringSettings.init();
+    batchSettings.init();
+    executorSettings.init();
+    engineSettings.init();
+    sourceSession = driverSettings.newSession(executionId);
+    ClusterInformationUtils.printDebugInfoAboutCluster(sourceSession);
+    schemaSettings.init(SchemaGenerationType.READ_AND_MAP, sourceSession, false, true);
+    RelationMetadata sourceTable = schemaSettings.getTargetTable();
+    // the target session is dedicated to writes, even if the target table is on the source cluster
+    DriverSettings targetDriverSettings = copySettings.newTargetDriverSettings();
+    targetDriverSettings.init(true);
+    targetSession = targetDriverSettings.newSession(executionId);
+    if (!copySettings.isSameCluster()) {
+      ClusterInformationUtils.printDebugInfoAboutCluster(targetSession);
+    }
+    SchemaSettings targetSchemaSettings =
+        copySettings.newTargetSchemaSettings(sourceTable.getKeyspace(), sourceTable.getName());
+    targetSchemaSettings.init(SchemaGenerationType.MAP_AND_WRITE, targetSession, false, true);
+    checkNotCopyingToItself(
+        sourceTable, targetSchemaSettings.getTargetTable(), copySettings.isSameCluster());
+    batchingEnabled = batchSettings.isBatchingEnabled();
+    batchBufferSize = batchSettings.getBufferSize();
+    // failed reads are formatted with the source cluster's codecs; copied values have the same
+    // encoding on both clusters, so failed writes can be formatted with them too
+    logManager = logSettings.newLogManager(sourceSession, false);
+    logManager.init();
+    metricsManager =
+        monitoringSettings.newMetricsManager(
+            true,
+            batchingEnabled,
+            logManager.getOperationDirectory(),
+            logSettings.getVerbosity(),
+            targetSession.getMetrics().map(Metrics::getRegistry).orElse(new MetricRegistry()),
+            targetSession.getContext().getProtocolVersion(),
+            targetSession.getContext().getCodecRegistry(),
+            targetSchemaSettings.getRowType());
+    metricsManager.init();
+    ConvertingCodecFactory codecFactory =
+        codecSettings.createCodecFactory(
+            schemaSettings.isAllowExtraFields(), schemaSettings.isAllowMissingFields());
+    ConcurrentMap<Field, DataType> sourceTypes = new ConcurrentHashMap<>();
+    readResultMapper =
+        schemaSettings.createReadResultMapper(
+            sourceSession, newSourceMetadata(sourceTypes), codecFactory, logSettings.isSources());
+    recordMapper =
+        targetSchemaSettings.createRecordMapper(
+            targetSession, newTargetMetadata(sourceTypes), codecFactory);
+    readStatements = schemaSettings.createReadStatements(sourceSession);
+    reader =
+        executorSettings.newReadExecutor(
+            sourceSession, metricsManager.getExecutionListener(), schemaSettings.isSearchQuery());
+    writer =
+        executorSettings.newWriteExecutor(targetSession, metricsManager.getExecutionListener());
+    executorSettings.getConcurrencyLimiter().ifPresent(metricsManager::registerConcurrencyLimiter);
+    if (batchingEnabled) {
+      batcher = batchSettings.newStatementBatcher(targetSession)::batchByGroupingKey;
+    }
+    dryRun = engineSettings.isDryRun();
+    if (dryRun) {
+      LOGGER.info("Dry-run mode enabled.");
+    }
+    closed.set(false);
+    totalItemsMonitor = metricsManager.newTotalItemsMonitor();
+    failedReadResultsMonitor = metricsManager.newFailedItemsMonitor();
+    failedRecordsMonitor = metricsManager.newFailedItemsMonitor();
+    failedStatementsMonitor = metricsManager.newFailedItemsMonitor();
+    batcherMonitor = metricsManager.newBatcherMonitor();
+    totalItemsCounter = logManager.newTotalItemsCounter();
+    failedReadsHandler = logManager.newFailedReadsHandler();
+    readWarningsHandler = logManager.newQueryWarningsHandler();
+    unmappableRecordsHandler = logManager.newUnmappableRecordsHandler();
+    unmappableStatementsHandler = logManager.newUnmappableStatementsHandler();
+    writeWarningsHandler = logManager.newQueryWarningsHandler();
+    failedWritesHandler = logManager.newFailedWritesHandler();
+    terminationHandler = logManager.newTerminationHandler();
+    numCores = Runtime.getRuntime().availableProcessors();
+    readConcurrency = Math.min(readStatements.size(), numCores);
+    LOGGER.debug("Using read concurrency: {}", readConcurrency);
+    if (executorSettings.isAdaptiveConcurrencyEnabled()) {
+      // let the adaptive limiter be the only limiting factor
+      writeConcurrency =
+          engineSettings
+              .getMaxConcurrentQueries()
+              .orElseGet(executorSettings::getAdaptiveMaxInFlight);
+    } else {
+      writeConcurrency =
+          engineSettings.getMaxConcurrentQueries().orElseGet(this::determineWriteConcurrency);
+    }
+    LOGGER.debug(
+        "Using write concurrency: {} (user-supplied: {})",
+        writeConcurrency,
+        engineSettings.getMaxConcurrentQueries().isPresent());
+    maxConcurrentQueriesPerNode = engineSettings.getMaxConcurrentQueriesPerNode().orElse(-1);
+  }
+
+  @Override
+  public boolean execute() {
+    LOGGER.debug("{} started.", this);
+    metricsManager.start();
+    int numThreads = Math.min(numCores * 2, Math.max(1, readConcurrency));
+    scheduler =
+        numThreads == 1
+            ? Schedulers.immediate()
+            : Schedulers.newParallel(numThreads, new DefaultThreadFactory("workflow"));
+    Stopwatch timer = Stopwatch.createStarted();
+    ReplicaAwareDispatcher.forStatements(
+            sourceSession, readStatements, statement -> statement, maxConcurrentQueriesPerNode)
+        .flatMap(
+            statement ->
+                Flux.from(reader.readReactive(statement))
+                    .publishOn(scheduler, 500)
+                    .transform(readWarningsHandler)
+                    .transform(totalItemsMonitor)
+                    .transform(totalItemsCounter)
+                    .transform(failedReadResultsMonitor)
+                    .transform(failedReadsHandler)
+                    .map(readResultMapper::map)
+                    .transform(failedRecordsMonitor)
+                    .transform(unmappableRecordsHandler)
+                    .map(recordMapper::map)
+                    .transform(failedStatementsMonitor)
+                    .transform(unmappableStatementsHandler)
+                    .transform(this::bufferAndBatch),
+            Math.max(1, readConcurrency),
+            500)
+        .transform(this::executeStatements)
+        .transform(writeWarningsHandler)
+        .transform(failedWritesHandler)
+        .then()
+        .flux()
+        .transform(terminationHandler)
+        .blockLast();
+    timer.stop();
+    metricsManager.stop();
+    Duration elapsed = DurationUtils.round(timer.elapsed(), TimeUnit.SECONDS);
+    String elapsedStr =
+        elapsed.isZero() ? "less than one second" : DurationUtils.formatDuration(elapsed);
+    int totalErrors = logManager.getTotalErrors();
+    if (totalErrors == 0) {
+      LOGGER.info("{} completed successfully in {}.", this, elapsedStr);
+    } else {
+      LOGGER.warn("{} completed with {} errors in {}.", this, totalErrors, elapsedStr);
+    }
+    return totalErrors == 0;
+  }
+
+  /**
+   * Batches the given statement flow, if batching is enabled; otherwise do nothing.
+   *
+   * <p>Each read statement covers one token range, so statements of the same partition are close to
+   * each other, and can be batched without presorting them.
+   */
+  private Flux<? extends Statement<?>> bufferAndBatch(Flux<BatchableStatement<?>> stmts) {
+    return batchingEnabled
+        ? stmts.window(batchBufferSize).flatMap(batcher).transform(batcherMonitor)
+        : stmts;
+  }
+
+  /** Executes the given statement flow, unless dry-run is enabled. */
+  private Flux<WriteResult> executeStatements(Flux<? extends Statement<?>> stmts) {
+    return dryRun
+        ? stmts.map(EmptyWriteResult::new)
+        : stmts.flatMap(writer::writeReactive, writeConcurrency);
+  }
+
+  /**
+   * Copied rows are usually small, and read by many concurrent token range reads, so the write
+   * concurrency is the one that the load workflow would use for 1 KB rows and many readers.
+   */
+  private int determineWriteConcurrency() {
+    if (dryRun) {
+      return numCores;
+    }
+    int writeConcurrency = numCores * 32;
+    if (!batchingEnabled) {
+      writeConcurrency *= 4;
+    }
+    return writeConcurrency;
+  }
+
+  /**
+   * Checks that the target table is not the source table itself.
+   *
+   * @throws IllegalArgumentException if both tables are the same table of the same cluster.
+   */
+  @VisibleForTesting
+  static void checkNotCopyingToItself(
+      @NonNull RelationMetadata sourceTable,
+      @NonNull RelationMetadata targetTable,
+      boolean sameCluster) {
+    if (sameCluster
+        && sourceTable.getKeyspace().equals(targetTable.getKeyspace())
+        && sourceTable.getName().equals(targetTable.getName())) {
+      throw new IllegalArgumentException(
+          String.format(
+              "Cannot copy table %s.%s to itself; "
+                  + "set dsbulk.copy.keyspace, dsbulk.copy.table or dsbulk.copy.driverConfig "
+                  + "to copy it to another table",
+              sourceTable.getKeyspace().asCql(true), sourceTable.getName().asCql(true)));
+    }
+  }
+
+  /**
+   * Creates the metadata of the records read from the source table: all fields contain raw bytes.
+   * The CQL type of each field is recorded, to check that the target column has the same encoding.
+   */
+  @NonNull
+  @VisibleForTesting
+  static RecordMetadata newSourceMetadata(ConcurrentMap<Field, DataType> sourceTypes) {
+    return (field, cqlType) -> {
+      sourceTypes.putIfAbsent(field, cqlType);
+      return RecordMetadata.RAW_BYTES;
+    };
+  }
+
+  /**
+   * Creates the metadata of the records written to the target table: all fields contain raw bytes,
+   * which can only be written to columns whose type has the same encoding as the source column.
+   */
+  @NonNull
+  @VisibleForTesting
+  static RecordMetadata newTargetMetadata(ConcurrentMap<Field, DataType> sourceTypes) {
+    return (field, cqlType) -> {
+      DataType sourceType = sourceTypes.get(field);
+      if (sourceType == null) {
+        throw new IllegalArgumentException("Unknown field: " + field);
+      }
+      if (!haveSameEncoding(sourceType, cqlType)) {
+        throw new IllegalArgumentException(
+            String.format(
+                "Field %s is of type %s in the source table, but %s in the target table; "
+                    + "only columns of the same type can be copied",
+                field.getFieldDescription(),
+                sourceType.asCql(false, true),
+                cqlType.asCql(false, true)));
+      }
+      return RecordMetadata.RAW_BYTES;
+    };
+  }
+
+  /**
+   * Whether values of the given types are serialized the same way. This is the case of equal types,
+   * but also of types that only differ by their frozenness, or by the names of their user-defined
+   * types, e.g. when copying to another keyspace.
+   */
+  @VisibleForTesting
+  static boolean haveSameEncoding(DataType type1, DataType type2) {
+    if (type1.equals(type2)) {
+      return true;
+    }
+    if (type1 instanceof ListType && type2 instanceof ListType) {
+      return haveSameEncoding(
+          ((ListType) type1).getElementType(), ((ListType) type2).getElementType());
+    }
+    if (type1 instanceof SetType && type2 instanceof SetType) {
+      return haveSameEncoding(
+          ((SetType) type1).getElementType(), ((SetType) type2).getElementType());
+    }
+    if (type1 instanceof MapType && type2 instanceof MapType) {
+      MapType map1 = (MapType) type1;
+      MapType map2 = (MapType) type2;
+      return haveSameEncoding(map1.getKeyType(), map2.getKeyType())
+          && haveSameEncoding(map1.getValueType(), map2.getValueType());
+    }
+    if (type1 instanceof UserDefinedType && type2 instanceof UserDefinedType) {
+      UserDefinedType udt1 = (UserDefinedType) type1;
+      UserDefinedType udt2 = (UserDefinedType) type2;
+      return udt1.getFieldNames().equals(udt2.getFieldNames())
+          && haveSameEncoding(udt1.getFieldTypes(), udt2.getFieldTypes());
+    }
+    if (type1 instanceof TupleType && type2 instanceof TupleType) {
+      return haveSameEncoding(
+          ((TupleType) type1).getComponentTypes(), ((TupleType) type2).getComponentTypes());
+    }
+    return false;
+  }
+
+  private static boolean haveSameEncoding(List<DataType> types1, List<DataType> types2) {
+    if (types1.size() != types2.size()) {
+      return false;
+    }
+    for (int i = 0; i < types1.size(); i++) {
+      if (!haveSameEncoding(types1.get(i), types2.get(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public void close() throws Exception {
+    if (closed.compareAndSet(false, true)) {
+      LOGGER.debug("{} closing.", this);
+      Exception e = CloseableUtils.closeQuietly(metricsManager, null);
+      e = CloseableUtils.closeQuietly(logManager, e);
+      e = CloseableUtils.closeQuietly(scheduler, e);
+      e = CloseableUtils.closeQuietly(reader, e);
+      e = CloseableUtils.closeQuietly(writer, e);
+      e = CloseableUtils.closeQuietly(sourceSession, e);
+      e = CloseableUtils.closeQuietly(targetSession, e);
+      if (metricsManager != null) {
+        metricsManager.reportFinalMetrics();
+      }
+      LOGGER.debug("{} closed.", this);
+      if (e != null) {
+        throw e;
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    if (executionId == null) {
+      return "Operation";
+    } else {
+      return "Operation " + executionId;
+    }
+  }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.dsbulk.workflow.copy;
+
+import static com.datastax.oss.driver.api.core.type.DataTypes.BIGINT;
+import static com.datastax.oss.driver.api.core.type.DataTypes.INT;
+import static com.datastax.oss.driver.api.core.type.DataTypes.TEXT;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.params.provider.Arguments.arguments;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.datastax.oss.driver.api.core.CqlIdentifier;
+import com.datastax.oss.driver.api.core.metadata.schema.RelationMetadata;
+import com.datastax.oss.driver.api.core.type.DataType;
+import com.datastax.oss.driver.api.core.type.DataTypes;
+import com.datastax.oss.driver.api.core.type.UserDefinedType;
+import com.datastax.oss.driver.internal.core.type.UserDefinedTypeBuilder;
+import com.datastax.oss.dsbulk.connectors.api.DefaultMappedField;
+import com.datastax.oss.dsbulk.connectors.api.Field;
+import com.datastax.oss.dsbulk.connectors.api.RecordMetadata;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+class CopyWorkflowTest {
+
+  private static final UserDefinedType UDT1 =
+      new UserDefinedTypeBuilder("ks1", "udt1").withField("f1", INT).withField("f2", TEXT).build();
+
+  private static final UserDefinedType UDT1_OTHER_KEYSPACE =
+      new UserDefinedTypeBuilder("ks2", "udt2").withField("f1", INT).withField("f2", TEXT).build();
+
+  private static final UserDefinedType UDT1_FROZEN = UDT1_OTHER_KEYSPACE.copy(true);
+
+  private static final UserDefinedType UDT1_FIELDS_RENAMED =
+      new UserDefinedTypeBuilder("ks1", "udt1").withField("f1", INT).withField("f3", TEXT).build();
+
+  private static final UserDefinedType UDT1_FIELDS_RETYPED =
+      new UserDefinedTypeBuilder("ks1", "udt1")
+          .withField("f1", BIGINT)
+          .withField("f2", TEXT)
+          .build();
+
+  private static final UserDefinedType UDT1_EXTRA_FIELD =
+      new UserDefinedTypeBuilder("ks1", "udt1")
+          .withField("f1", INT)
+          .withField("f2", TEXT)
+          .withField("f3", TEXT)
+          .build();
+
+  private static final Field FIELD1 = new DefaultMappedField("c1");
+  private static final Field FIELD2 = new DefaultMappedField("c2");
+
+  @ParameterizedTest
+  @MethodSource
+  void should_detect_same_encoding(DataType type1, DataType type2) {
+    assertThat(CopyWorkflow.haveSameEncoding(type1, type2)).isTrue();
+    assertThat(CopyWorkflow.haveSameEncoding(type2, type1)).isTrue();
+  }
+
+  @SuppressWarnings("unused")
+  private static Stream<Arguments> should_detect_same_encoding() {
+    return Stream.of(
+        arguments(INT, INT),
+        arguments(DataTypes.listOf(INT), DataTypes.frozenListOf(INT)),
+        arguments(DataTypes.setOf(TEXT), DataTypes.frozenSetOf(TEXT)),
+        arguments(DataTypes.mapOf(INT, TEXT), DataTypes.frozenMapOf(INT, TEXT)),
+        arguments(UDT1, UDT1_OTHER_KEYSPACE),
+        arguments(UDT1, UDT1_FROZEN),
+        arguments(DataTypes.tupleOf(INT, UDT1), DataTypes.tupleOf(INT, UDT1_OTHER_KEYSPACE)),
+        arguments(
+            DataTypes.mapOf(TEXT, DataTypes.frozenListOf(UDT1)),
+            DataTypes.mapOf(TEXT, DataTypes.listOf(UDT1_FROZEN))),
+        arguments(
+            DataTypes.listOf(DataTypes.tupleOf(DataTypes.mapOf(INT, UDT1))),
+            DataTypes.frozenListOf(
+                DataTypes.tupleOf(DataTypes.frozenMapOf(INT, UDT1_OTHER_KEYSPACE)))));
+  }
+
+  @ParameterizedTest
+  @MethodSource
+  void should_detect_different_encoding(DataType type1, DataType type2) {
+    assertThat(CopyWorkflow.haveSameEncoding(type1, type2)).isFalse();
+    assertThat(CopyWorkflow.haveSameEncoding(type2, type1)).isFalse();
+  }
+
+  @SuppressWarnings("unused")
+  private static Stream<Arguments> should_detect_different_encoding() {
+    return Stream.of(
+        arguments(INT, BIGINT),
+        arguments(DataTypes.listOf(INT), DataTypes.setOf(INT)),
+        arguments(DataTypes.listOf(INT), DataTypes.listOf(BIGINT)),
+        arguments(DataTypes.mapOf(INT, TEXT), DataTypes.mapOf(TEXT, TEXT)),
+        arguments(DataTypes.mapOf(INT, TEXT), DataTypes.mapOf(INT, INT)),
+        arguments(UDT1, UDT1_FIELDS_RENAMED),
+        arguments(UDT1, UDT1_FIELDS_RETYPED),
+        arguments(UDT1, UDT1_EXTRA_FIELD),
+        arguments(UDT1, DataTypes.tupleOf(INT, TEXT)),
+        arguments(DataTypes.tupleOf(INT, TEXT), DataTypes.tupleOf(INT, TEXT, TEXT)),
+        arguments(DataTypes.tupleOf(INT, UDT1), DataTypes.tupleOf(INT, UDT1_FIELDS_RETYPED)),
+        arguments(
+            DataTypes.mapOf(TEXT, DataTypes.frozenListOf(UDT1)),
+            DataTypes.mapOf(TEXT, DataTypes.listOf(UDT1_EXTRA_FIELD))));
+  }
+
+  @Test
+  void should_record_source_types_and_check_target_types() {
+    ConcurrentMap<Field, DataType> sourceTypes = new ConcurrentHashMap<>();
+    RecordMetadata sourceMetadata = CopyWorkflow.newSourceMetadata(sourceTypes);
+    RecordMetadata targetMetadata = CopyWorkflow.newTargetMetadata(sourceTypes);
+    assertThat(RecordMetadata.isRawBytes(sourceMetadata.getFieldType(FIELD1, UDT1))).isTrue();
+    assertThat(RecordMetadata.isRawBytes(sourceMetadata.getFieldType(FIELD2, INT))).isTrue();
+    // the first type recorded for a field wins
+    assertThat(RecordMetadata.isRawBytes(sourceMetadata.getFieldType(FIELD2, TEXT))).isTrue();
+    assertThat(sourceTypes).containsEntry(FIELD1, UDT1).containsEntry(FIELD2, INT);
+    assertThat(RecordMetadata.isRawBytes(targetMetadata.getFieldType(FIELD1, UDT1_FROZEN)))
+        .isTrue();
+    assertThat(RecordMetadata.isRawBytes(targetMetadata.getFieldType(FIELD2, INT))).isTrue();
+  }
+
+  @Test
+  void should_reject_target_type_with_different_encoding() {
+    ConcurrentMap<Field, DataType> sourceTypes = new ConcurrentHashMap<>();
+    CopyWorkflow.newSourceMetadata(sourceTypes).getFieldType(FIELD1, INT);
+    RecordMetadata targetMetadata = CopyWorkflow.newTargetMetadata(sourceTypes);
+    assertThatThrownBy(() -> targetMetadata.getFieldType(FIELD1, BIGINT))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage(
+            "Field c1 is of type int in the source table, but bigint in the target table; "
+                + "only columns of the same type can be copied");
+  }
+
+  @Test
+  void should_reject_target_field_unknown_to_source() {
+    ConcurrentMap<Field, DataType> sourceTypes = new ConcurrentHashMap<>();
+    CopyWorkflow.newSourceMetadata(sourceTypes).getFieldType(FIELD1, INT);
+    RecordMetadata targetMetadata = CopyWorkflow.newTargetMetadata(sourceTypes);
+    assertThatThrownBy(() -> targetMetadata.getFieldType(FIELD2, INT))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("Unknown field: c2");
+  }
+
+  @Test
+  void should_reject_copy_to_itself() {
+    RelationMetadata source = mockTable("ks1", "table1");
+    RelationMetadata target = mockTable("ks1", "table1");
+    assertThatThrownBy(() -> CopyWorkflow.checkNotCopyingToItself(source, target, true))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage(
+            "Cannot copy table ks1.table1 to itself; "
+                + "set dsbulk.copy.keyspace, dsbulk.copy.table or dsbulk.copy.driverConfig "
+                + "to copy it to another table");
+  }
+
+  @Test
+  void should_accept_copy_to_another_table() {
+    RelationMetadata source = mockTable("ks1", "table1");
+    assertThatCode(
+            () -> CopyWorkflow.checkNotCopyingToItself(source, mockTable("ks2", "table1"), true))
+        .doesNotThrowAnyException();
+    assertThatCode(
+            () -> CopyWorkflow.checkNotCopyingToItself(source, mockTable("ks1", "table2"), true))
+        .doesNotThrowAnyException();
+    assertThatCode(
+            () -> CopyWorkflow.checkNotCopyingToItself(source, mockTable("ks1", "table1"), false))
+        .doesNotThrowAnyException();
+  }
+
+  private static RelationMetadata mockTable(String keyspace, String table) {
+    RelationMetadata metadata = mock(RelationMetadata.class);
+    when(metadata.getKeyspace()).thenReturn(CqlIdentifier.fromInternal(keyspace));
+    when(metadata.getName()).thenReturn(CqlIdentifier.fromInternal(table));
+    return metadata;
+  }
+}
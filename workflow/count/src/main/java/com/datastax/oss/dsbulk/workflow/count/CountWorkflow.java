@@ -17,8 +17,11 @@ package com.datastax.oss.dsbulk.workflow.count;
 
 import com.codahale.metrics.MetricRegistry;
 import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.DriverTimeoutException;
 import com.datastax.oss.driver.api.core.cql.Statement;
 import com.datastax.oss.driver.api.core.metrics.Metrics;
+import com.datastax.oss.driver.api.core.servererrors.ReadTimeoutException;
+import com.datastax.oss.driver.shaded.guava.common.annotations.VisibleForTesting;
 import com.datastax.oss.driver.shaded.guava.common.base.Stopwatch;
 import com.datastax.oss.dsbulk.codecs.api.ConvertingCodecFactory;
 import com.datastax.oss.dsbulk.executor.api.reader.BulkReader;
@@ -40,6 +43,7 @@ import com.datastax.oss.dsbulk.workflow.commons.settings.SettingsManager;
 import com.datastax.oss.dsbulk.workflow.commons.settings.StatsSettings;
 import com.datastax.oss.dsbulk.workflow.commons.utils.CloseableUtils;
 import com.datastax.oss.dsbulk.workflow.commons.utils.ClusterInformationUtils;
+import com.datastax.oss.dsbulk.workflow.commons.utils.ReplicaAwareDispatcher;
 import com.typesafe.config.Config;
 import io.netty.util.concurrent.DefaultThreadFactory;
 import java.time.Duration;
@@ -53,16 +57,24 @@ import org.slf4j.LoggerFactory;
 import reactor.core.publisher.Flux;
 import reactor.core.scheduler.Scheduler;
 import reactor.core.scheduler.Schedulers;
+import reactor.util.concurrent.Queues;
 
 /** The main class for count workflows. */
 public class CountWorkflow implements Workflow {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(CountWorkflow.class);
 
+  /** The number of splits to count separately when counting a token range server-side times out. */
+  private static final int TIMEOUT_SPLIT_COUNT = 4;
+
+  /** The maximum number of times a token range can be split after server-side count timeouts. */
+  private static final int MAX_TIMEOUT_SPLIT_DEPTH = 6;
+
   private final SettingsManager settingsManager;
   private final AtomicBoolean closed = new AtomicBoolean(false);
 
   private String executionId;
+  private SchemaSettings schemaSettings;
   private Scheduler scheduler;
   private ReadResultCounter readResultCounter;
   private MetricsManager metricsManager;
@@ -78,6 +90,9 @@ public class CountWorkflow implements Workflow {
   private Function<Flux<ReadResult>, Flux<ReadResult>> queryWarningsHandler;
   private Function<Flux<Void>, Flux<Void>> terminationHandler;
   private int readConcurrency;
+  private int maxConcurrentQueries;
+  private int maxConcurrentQueriesPerNode;
+  private boolean serverSideCount;
 
   CountWorkflow(Config config) {
     settingsManager = new SettingsManager(config);
@@ -89,7 +104,7 @@ public class CountWorkflow implements Workflow {
     executionId = settingsManager.getExecutionId();
     LogSettings logSettings = settingsManager.getLogSettings();
     DriverSettings driverSettings = settingsManager.getDriverSettings();
-    SchemaSettings schemaSettings = settingsManager.getSchemaSettings();
+    schemaSettings = settingsManager.getSchemaSettings();
     ExecutorSettings executorSettings = settingsManager.getExecutorSettings();
     CodecSettings codecSettings = settingsManager.getCodecSettings();
     MonitoringSettings monitoringSettings = settingsManager.getMonitoringSettings();
@@ -131,24 +146,32 @@ public class CountWorkflow implements Workflow {
             schemaSettings.isAllowExtraFields(), schemaSettings.isAllowMissingFields());
     EnumSet<StatsSettings.StatisticsMode> modes = statsSettings.getStatisticsModes();
     int numPartitions = statsSettings.getNumPartitions();
+    serverSideCount = statsSettings.isServerSideCount();
     readResultCounter =
-        schemaSettings.createReadResultCounter(session, codecFactory, modes, numPartitions);
+        schemaSettings.createReadResultCounter(
+            session, codecFactory, modes, numPartitions, serverSideCount);
     readStatements = schemaSettings.createReadStatements(session);
     closed.set(false);
     success = false;
-    totalItemsMonitor = metricsManager.newTotalItemsMonitor();
+    // when counting server-side, each read result is the count of a whole token range, so the
+    // total items metric must be incremented by that count rather than by one.
+    totalItemsMonitor =
+        serverSideCount
+            ? metricsManager.newTotalItemsMonitor(CountWorkflow::countedRows)
+            : metricsManager.newTotalItemsMonitor();
     failedItemsMonitor = metricsManager.newFailedItemsMonitor();
     totalItemsCounter = logManager.newTotalItemsCounter();
     failedReadsHandler = logManager.newFailedReadsHandler();
     queryWarningsHandler = logManager.newQueryWarningsHandler();
     terminationHandler = logManager.newTerminationHandler();
     int numCores = Runtime.getRuntime().availableProcessors();
-    readConcurrency =
-        Math.min(readStatements.size(), engineSettings.getMaxConcurrentQueries().orElse(numCores));
+    maxConcurrentQueries = engineSettings.getMaxConcurrentQueries().orElse(numCores);
+    readConcurrency = Math.min(readStatements.size(), maxConcurrentQueries);
     LOGGER.debug(
         "Using read concurrency: {} (user-supplied: {})",
         readConcurrency,
         engineSettings.getMaxConcurrentQueries().isPresent());
+    maxConcurrentQueriesPerNode = engineSettings.getMaxConcurrentQueriesPerNode().orElse(-1);
     int numThreads = Math.min(readConcurrency, numCores);
     scheduler = Schedulers.newParallel(numThreads, new DefaultThreadFactory("workflow"));
   }
@@ -158,25 +181,32 @@ public class CountWorkflow implements Workflow {
     LOGGER.debug("{} started.", this);
     metricsManager.start();
     Stopwatch timer = Stopwatch.createStarted();
-    Flux.fromIterable(readStatements)
+    ReplicaAwareDispatcher.forStatements(
+            session, readStatements, statement -> statement, maxConcurrentQueriesPerNode)
         .flatMap(
-            statement ->
-                Flux.from(executor.readReactive(statement))
-                    .transform(queryWarningsHandler)
-                    .transform(totalItemsMonitor)
-                    .transform(totalItemsCounter)
-                    .transform(failedItemsMonitor)
-                    .transform(failedReadsHandler)
-                    // Important:
-                    // 1) there must be one counting unit per inner flow: this is guaranteed by
-                    // instantiating a new counting unit below for each inner flow.
-                    // 2) When counting partitions or ranges, a partition cannot be split in two
-                    // inner flows; this is guaranteed since statements are split by token range
-                    // (users cannot supply a custom query for these counting modes).
-                    .doOnNext(readResultCounter.newCountingUnit()::update)
-                    .then()
-                    .subscribeOn(scheduler),
-            readConcurrency)
+            statement -> {
+              // Important:
+              // 1) there must be one counting unit per inner flow: this is guaranteed by
+              // instantiating a new counting unit below for each inner flow.
+              // 2) When counting partitions or ranges, a partition cannot be split in two
+              // inner flows; this is guaranteed since statements are split by token range
+              // (users cannot supply a custom query for these counting modes).
+              // 3) The unit is closed when its inner flow completes, which merges its counts
+              // into the totals and releases it.
+              ReadResultCounter.CountingUnit unit = readResultCounter.newCountingUnit();
+              return read(statement)
+                  .transform(queryWarningsHandler)
+                  .transform(totalItemsMonitor)
+                  .transform(totalItemsCounter)
+                  .transform(failedItemsMonitor)
+                  .transform(failedReadsHandler)
+                  .doOnNext(unit::update)
+                  .doOnComplete(unit::close)
+                  .then()
+                  .subscribeOn(scheduler);
+            },
+            readConcurrency,
+            Queues.XS_BUFFER_SIZE)
         .transform(terminationHandler)
         .blockLast();
     timer.stop();
@@ -194,6 +224,83 @@ public class CountWorkflow implements Workflow {
     return totalErrors == 0;
   }
 
+  /**
+   * Reads the given statement. When counting server-side, token ranges whose count query times out
+   * are split, and each split is counted separately, instead of reporting an error.
+   */
+  private Flux<ReadResult> read(Statement<?> statement) {
+    if (!serverSideCount) {
+      return Flux.from(executor.readReactive(statement));
+    }
+    return readSplittingOnTimeout(
+        statement,
+        s -> Flux.from(executor.readReactive(s)),
+        this::splitOnTimeout,
+        maxConcurrentQueries,
+        0);
+  }
+
+  private List<Statement<?>> splitOnTimeout(Statement<?> statement) {
+    List<Statement<?>> splits = schemaSettings.splitReadStatement(statement, TIMEOUT_SPLIT_COUNT);
+    if (!splits.isEmpty()) {
+      LOGGER.debug(
+          "Count query timed out, counting {} splits instead: {}",
+          splits.size(),
+          schemaSettings.getTokenRangeId(statement));
+    }
+    return splits;
+  }
+
+  /**
+   * Reads the given statement; if the read times out, the statement is split, and the splits are
+   * read instead, concurrently, and split again if they time out too, up to {@link
+   * #MAX_TIMEOUT_SPLIT_DEPTH} times.
+   *
+   * @param statement the statement to read.
+   * @param reader the function reading a statement.
+   * @param splitter the function splitting a statement that timed out; returns an empty list if the
+   *     statement cannot be split.
+   * @param maxConcurrency the maximum number of splits of a statement read concurrently.
+   * @param splitDepth the number of times the statement was split already.
+   */
+  @VisibleForTesting
+  static Flux<ReadResult> readSplittingOnTimeout(
+      Statement<?> statement,
+      Function<Statement<?>, Flux<ReadResult>> reader,
+      Function<Statement<?>, List<Statement<?>>> splitter,
+      int maxConcurrency,
+      int splitDepth) {
+    Flux<ReadResult> results = reader.apply(statement);
+    if (splitDepth >= MAX_TIMEOUT_SPLIT_DEPTH) {
+      return results;
+    }
+    return results.concatMap(
+        result -> {
+          if (isTimeout(result)) {
+            List<Statement<?>> splits = splitter.apply(statement);
+            if (!splits.isEmpty()) {
+              return Flux.fromIterable(splits)
+                  .flatMap(
+                      split ->
+                          readSplittingOnTimeout(
+                              split, reader, splitter, maxConcurrency, splitDepth + 1),
+                      maxConcurrency);
+            }
+          }
+          return Flux.just(result);
+        });
+  }
+
+  private static long countedRows(ReadResult result) {
+    // failed results have no row, and count as one (failed) item
+    return result.getRow().map(row -> row.getLong(0)).orElse(1L);
+  }
+
+  private static boolean isTimeout(ReadResult result) {
+    Throwable cause = result.getError().map(Throwable::getCause).orElse(null);
+    return cause instanceof ReadTimeoutException || cause instanceof DriverTimeoutException;
+  }
+
   @Override
   public void close() throws Exception {
     if (closed.compareAndSet(false, true)) {
@@ -0,0 +1,142 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.dsbulk.workflow.count;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.datastax.oss.driver.api.core.ConsistencyLevel;
+import com.datastax.oss.driver.api.core.DriverTimeoutException;
+import com.datastax.oss.driver.api.core.cql.ExecutionInfo;
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.datastax.oss.driver.api.core.cql.SimpleStatement;
+import com.datastax.oss.driver.api.core.cql.Statement;
+import com.datastax.oss.driver.api.core.servererrors.ReadTimeoutException;
+import com.datastax.oss.dsbulk.executor.api.exception.BulkExecutionException;
+import com.datastax.oss.dsbulk.executor.api.result.DefaultReadResult;
+import com.datastax.oss.dsbulk.executor.api.result.ReadResult;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+class CountWorkflowTest {
+
+  private final Statement<?> range = SimpleStatement.newInstance("range");
+  private final Statement<?> split1 = SimpleStatement.newInstance("split1");
+  private final Statement<?> split2 = SimpleStatement.newInstance("split2");
+  private final Statement<?> split3 = SimpleStatement.newInstance("split3");
+  private final Statement<?> split4 = SimpleStatement.newInstance("split4");
+  private final Statement<?> split21 = SimpleStatement.newInstance("split21");
+  private final Statement<?> split22 = SimpleStatement.newInstance("split22");
+
+  /** The rows in each range; reading the ranges not listed here times out. */
+  private final Map<Statement<?>, Long> counts = new HashMap<>();
+
+  private final Map<Statement<?>, List<Statement<?>>> splits = new HashMap<>();
+
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final AtomicInteger maxInFlight = new AtomicInteger();
+
+  CountWorkflowTest() {
+    counts.put(split1, 10L);
+    counts.put(split3, 30L);
+    counts.put(split4, 40L);
+    counts.put(split21, 5L);
+    counts.put(split22, 15L);
+    splits.put(range, Arrays.asList(split1, split2, split3, split4));
+    splits.put(split2, Arrays.asList(split21, split22));
+  }
+
+  @Test
+  void should_count_timed_out_range_splits_concurrently() {
+    List<ReadResult> results =
+        CountWorkflow.readSplittingOnTimeout(range, this::read, this::split, 4, 0)
+            .collectList()
+            .block();
+    assertThat(results).isNotNull().allMatch(result -> !result.getError().isPresent());
+    assertThat(results.stream().mapToLong(this::countedRows).sum()).isEqualTo(100L);
+    assertThat(results)
+        .extracting(ReadResult::getStatement)
+        .containsExactlyInAnyOrder(split1, split21, split22, split3, split4);
+    assertThat(maxInFlight).hasValueGreaterThan(1);
+  }
+
+  @Test
+  void should_not_read_more_splits_concurrently_than_max_concurrency() {
+    List<ReadResult> results =
+        CountWorkflow.readSplittingOnTimeout(range, this::read, this::split, 1, 0)
+            .collectList()
+            .block();
+    assertThat(results).isNotNull();
+    assertThat(results.stream().mapToLong(this::countedRows).sum()).isEqualTo(100L);
+    assertThat(maxInFlight).hasValue(1);
+  }
+
+  @Test
+  void should_report_timeout_when_range_cannot_be_split() {
+    List<ReadResult> results =
+        CountWorkflow.readSplittingOnTimeout(
+                range, this::read, statement -> Collections.emptyList(), 4, 0)
+            .collectList()
+            .block();
+    assertThat(results).isNotNull().hasSize(1);
+    assertThat(results.get(0).getError())
+        .hasValueSatisfying(
+            error -> assertThat(error).hasCauseInstanceOf(DriverTimeoutException.class));
+  }
+
+  private Flux<ReadResult> read(Statement<?> statement) {
+    return Flux.defer(
+        () -> {
+          maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+          return Mono.delay(Duration.ofMillis(20))
+              // the read ends before its result is emitted
+              .doOnNext(tick -> inFlight.decrementAndGet())
+              .map(tick -> result(statement))
+              .flux();
+        });
+  }
+
+  private ReadResult result(Statement<?> statement) {
+    Long count = counts.get(statement);
+    if (count == null) {
+      Throwable cause =
+          statement == range
+              ? new DriverTimeoutException("Query timed out")
+              : new ReadTimeoutException(null, ConsistencyLevel.ONE, 0, 1, false);
+      return new DefaultReadResult(new BulkExecutionException(cause, statement));
+    }
+    Row row = mock(Row.class);
+    when(row.getLong(0)).thenReturn(count);
+    return new DefaultReadResult(statement, mock(ExecutionInfo.class), row);
+  }
+
+  private List<Statement<?>> split(Statement<?> statement) {
+    return splits.getOrDefault(statement, Collections.emptyList());
+  }
+
+  private long countedRows(ReadResult result) {
+    return result.getRow().map(row -> row.getLong(0)).orElse(0L);
+  }
+}
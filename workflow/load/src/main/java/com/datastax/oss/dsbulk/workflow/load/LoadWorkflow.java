@@ -36,6 +36,7 @@ import com.datastax.oss.dsbulk.workflow.api.Workflow;
 import com.datastax.oss.dsbulk.workflow.api.utils.DurationUtils;
 import com.datastax.oss.dsbulk.workflow.api.utils.ThrowableUtils;
 import com.datastax.oss.dsbulk.workflow.commons.log.LogManager;
+import com.datastax.oss.dsbulk.workflow.commons.log.PositionsTracker;
 import com.datastax.oss.dsbulk.workflow.commons.metrics.MetricsManager;
 import com.datastax.oss.dsbulk.workflow.commons.schema.RecordMapper;
 import com.datastax.oss.dsbulk.workflow.commons.settings.BatchSettings;
@@ -49,6 +50,7 @@ import com.datastax.oss.dsbulk.workflow.commons.settings.MonitoringSettings;
 import com.datastax.oss.dsbulk.workflow.commons.settings.SchemaGenerationType;
 import com.datastax.oss.dsbulk.workflow.commons.settings.SchemaSettings;
 import com.datastax.oss.dsbulk.workflow.commons.settings.SettingsManager;
+import com.datastax.oss.dsbulk.workflow.commons.sort.StatementSorter;
 import com.datastax.oss.dsbulk.workflow.commons.utils.CloseableUtils;
 import com.datastax.oss.dsbulk.workflow.commons.utils.ClusterInformationUtils;
 import com.typesafe.config.Config;
@@ -91,6 +93,7 @@ public class LoadWorkflow implements Workflow {
   private int readConcurrency;
   private int writeConcurrency;
   private boolean hasManyReaders;
+  private StatementSorter statementSorter;
 
   private Function<Record, BatchableStatement<?>> mapper;
   private Function<Publisher<BatchableStatement<?>>, Publisher<Statement<?>>> batcher;
@@ -106,6 +109,7 @@ public class LoadWorkflow implements Workflow {
   private Function<Flux<Void>, Flux<Void>> terminationHandler;
   private Function<Flux<WriteResult>, Flux<WriteResult>> failedWritesHandler;
   private Function<Flux<WriteResult>, Flux<Void>> resultPositionsHndler;
+  private PositionsTracker resumedPositions;
   private Function<Flux<WriteResult>, Flux<WriteResult>> queryWarningsHandler;
 
   LoadWorkflow(Config config) {
@@ -121,6 +125,14 @@ public class LoadWorkflow implements Workflow {
     ConnectorSettings connectorSettings = settingsManager.getConnectorSettings();
     connectorSettings.init(logSettings.isSources());
     connector = connectorSettings.getConnector();
+    resumedPositions = logSettings.getResumedPositions();
+    if (resumedPositions != null) {
+      if (!connector.supports(CommonConnectorFeature.RESUMABLE_READS)) {
+        throw new IllegalArgumentException(
+            "Invalid value for dsbulk.log.resume: the connector does not support resuming operations");
+      }
+      connector.resume(resumedPositions.getLastContiguousPositions());
+    }
     connector.init();
     DriverSettings driverSettings = settingsManager.getDriverSettings();
     SchemaSettings schemaSettings = settingsManager.getSchemaSettings();
@@ -160,6 +172,7 @@ public class LoadWorkflow implements Workflow {
             schemaSettings.getRowType());
     metricsManager.init();
     executor = executorSettings.newWriteExecutor(session, metricsManager.getExecutionListener());
+    executorSettings.getConcurrencyLimiter().ifPresent(metricsManager::registerConcurrencyLimiter);
     ConvertingCodecFactory codecFactory =
         codecSettings.createCodecFactory(
             schemaSettings.isAllowExtraFields(), schemaSettings.isAllowMissingFields());
@@ -168,6 +181,9 @@ public class LoadWorkflow implements Workflow {
     mapper = recordMapper::map;
     if (batchingEnabled) {
       batcher = batchSettings.newStatementBatcher(session)::batchByGroupingKey;
+      if (batchSettings.isPresortEnabled()) {
+        statementSorter = batchSettings.newStatementSorter();
+      }
     }
     dryRun = engineSettings.isDryRun();
     if (dryRun) {
@@ -192,8 +208,16 @@ public class LoadWorkflow implements Workflow {
     readConcurrency = connector.readConcurrency();
     hasManyReaders = readConcurrency >= Math.max(4, numCores / 4);
     LOGGER.debug("Using read concurrency: {}", readConcurrency);
-    writeConcurrency =
-        engineSettings.getMaxConcurrentQueries().orElseGet(this::determineWriteConcurrency);
+    if (executorSettings.isAdaptiveConcurrencyEnabled()) {
+      // let the adaptive limiter be the only limiting factor
+      writeConcurrency =
+          engineSettings
+              .getMaxConcurrentQueries()
+              .orElseGet(executorSettings::getAdaptiveMaxInFlight);
+    } else {
+      writeConcurrency =
+          engineSettings.getMaxConcurrentQueries().orElseGet(this::determineWriteConcurrency);
+    }
     LOGGER.debug(
         "Using write concurrency: {} (user-supplied: {})",
         writeConcurrency,
@@ -206,7 +230,9 @@ public class LoadWorkflow implements Workflow {
     metricsManager.start();
     Stopwatch timer = Stopwatch.createStarted();
     Flux<Statement<?>> statements;
-    if (hasManyReaders) {
+    if (statementSorter != null) {
+      statements = presorted();
+    } else if (hasManyReaders) {
       statements = manyReaders();
     } else {
       statements = fewReaders();
@@ -232,6 +258,27 @@ public class LoadWorkflow implements Workflow {
     return totalErrors == 0;
   }
 
+  /**
+   * Reads all records from the connector. When resuming a previous operation, the connector skips
+   * the records that precede the last contiguous processed position of each resource; this method
+   * discards the other processed records, if any, e.g. records from file chunks that were processed
+   * in parallel.
+   */
+  private Publisher<Publisher<Record>> readRecords() {
+    Publisher<Publisher<Record>> resources = connector.read();
+    if (resumedPositions == null) {
+      return resources;
+    }
+    return Flux.from(resources)
+        .<Publisher<Record>>map(
+            records ->
+                Flux.from(records)
+                    .filter(
+                        record ->
+                            !resumedPositions.contains(
+                                record.getResource(), record.getPosition())));
+  }
+
   /**
    * Reads the resources in parallel with {@code readConcurrency} parallelism.
    *
@@ -241,7 +288,7 @@ public class LoadWorkflow implements Workflow {
   private Flux<Statement<?>> manyReaders() {
     int numThreads = Math.min(readConcurrency, numCores);
     scheduler = Schedulers.newParallel(numThreads, new DefaultThreadFactory("workflow"));
-    return Flux.defer(() -> connector.read())
+    return Flux.defer(this::readRecords)
         .flatMap(
             records ->
                 Flux.from(records)
@@ -267,7 +314,7 @@ public class LoadWorkflow implements Workflow {
    */
   private Flux<Statement<?>> fewReaders() {
     scheduler = Schedulers.newParallel(numCores, new DefaultThreadFactory("workflow"));
-    return Flux.defer(() -> connector.read())
+    return Flux.defer(this::readRecords)
         .flatMap(
             records ->
                 Flux.from(records)
@@ -288,6 +335,37 @@ public class LoadWorkflow implements Workflow {
             numCores);
   }
 
+  /**
+   * Reads the resources like {@link #fewReaders()}, but sorts the mapped statements by partition
+   * before batching them, so that statements belonging to the same partition end up in the same
+   * batches, even if they were scattered across the input.
+   *
+   * <p>The sorter emits the fullest partitions whenever its memory budget is exceeded, so writes
+   * start while the resources are still being read; sparser partitions are emitted once all the
+   * resources have been read.
+   */
+  private Flux<Statement<?>> presorted() {
+    scheduler = Schedulers.newParallel(numCores, new DefaultThreadFactory("workflow"));
+    Flux<BatchableStatement<?>> statements =
+        Flux.defer(this::readRecords)
+            .flatMap(
+                records -> Flux.from(records).window(Queues.SMALL_BUFFER_SIZE), readConcurrency)
+            .flatMap(
+                records ->
+                    records
+                        .transform(totalItemsMonitor)
+                        .transform(totalItemsCounter)
+                        .transform(failedRecordsMonitor)
+                        .transform(failedRecordsHandler)
+                        .map(mapper)
+                        .transform(failedStatementsMonitor)
+                        .transform(unmappableStatementsHandler)
+                        .subscribeOn(scheduler),
+                numCores)
+            .transform(statementSorter::sort);
+    return Flux.from(bufferAndBatch(statements));
+  }
+
   /**
    * Batches the given statement flow, if batching is enabled; otherwise do nothing.
    *
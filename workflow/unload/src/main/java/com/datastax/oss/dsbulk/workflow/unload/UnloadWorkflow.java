@@ -17,8 +17,12 @@ package com.datastax.oss.dsbulk.workflow.unload;
 
 import com.codahale.metrics.MetricRegistry;
 import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.Row;
 import com.datastax.oss.driver.api.core.cql.Statement;
+import com.datastax.oss.driver.api.core.metadata.Node;
+import com.datastax.oss.driver.api.core.metadata.token.Token;
 import com.datastax.oss.driver.api.core.metrics.Metrics;
+import com.datastax.oss.driver.shaded.guava.common.annotations.VisibleForTesting;
 import com.datastax.oss.driver.shaded.guava.common.base.Stopwatch;
 import com.datastax.oss.dsbulk.codecs.api.ConvertingCodecFactory;
 import com.datastax.oss.dsbulk.connectors.api.CommonConnectorFeature;
@@ -31,6 +35,7 @@ import com.datastax.oss.dsbulk.workflow.api.Workflow;
 import com.datastax.oss.dsbulk.workflow.api.utils.DurationUtils;
 import com.datastax.oss.dsbulk.workflow.commons.log.LogManager;
 import com.datastax.oss.dsbulk.workflow.commons.metrics.MetricsManager;
+import com.datastax.oss.dsbulk.workflow.commons.schema.ReadResultCounter;
 import com.datastax.oss.dsbulk.workflow.commons.schema.ReadResultMapper;
 import com.datastax.oss.dsbulk.workflow.commons.settings.CodecSettings;
 import com.datastax.oss.dsbulk.workflow.commons.settings.ConnectorSettings;
@@ -44,19 +49,37 @@ import com.datastax.oss.dsbulk.workflow.commons.settings.SchemaSettings;
 import com.datastax.oss.dsbulk.workflow.commons.settings.SettingsManager;
 import com.datastax.oss.dsbulk.workflow.commons.utils.CloseableUtils;
 import com.datastax.oss.dsbulk.workflow.commons.utils.ClusterInformationUtils;
+import com.datastax.oss.dsbulk.workflow.commons.utils.ReplicaAwareDispatcher;
 import com.typesafe.config.Config;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
 import io.netty.util.concurrent.DefaultThreadFactory;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.Predicate;
 import org.reactivestreams.Publisher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Scheduler;
 import reactor.core.scheduler.Schedulers;
 
@@ -65,18 +88,29 @@ public class UnloadWorkflow implements Workflow {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(UnloadWorkflow.class);
 
+  private static final String WIDE_PARTITIONS_FILE = "wide-partitions.txt";
+
+  /** The number of splits in which to divide the remainder of a read that was cut. */
+  private static final int RESPLIT_COUNT = 4;
+
   private final SettingsManager settingsManager;
   private final AtomicBoolean closed = new AtomicBoolean(false);
 
   private String executionId;
   private Connector connector;
   private Set<Scheduler> schedulers;
+  private SchemaSettings schemaSettings;
   private ReadResultMapper readResultMapper;
+  private ReadResultCounter widePartitionsCounter;
   private MetricsManager metricsManager;
   private LogManager logManager;
   private CqlSession session;
   private BulkReader executor;
   private List<Statement<?>> readStatements;
+  private Map<String, Statement<?>> rangeStatements;
+  private Function<Row, Token> rowToken;
+  private long resplitAfterRows;
+  private long resplitAfterNanos;
   private Function<Publisher<Record>, Publisher<Record>> writer;
   private Function<Flux<ReadResult>, Flux<ReadResult>> totalItemsMonitor;
   private Function<Flux<Record>, Flux<Record>> failedRecordsMonitor;
@@ -85,9 +119,11 @@ public class UnloadWorkflow implements Workflow {
   private Function<Flux<ReadResult>, Flux<ReadResult>> totalItemsCounter;
   private Function<Flux<ReadResult>, Flux<ReadResult>> failedReadsHandler;
   private Function<Flux<ReadResult>, Flux<ReadResult>> queryWarningsHandler;
+  private Function<Flux<ReadResult>, Flux<ReadResult>> widePartitionsHandler;
   private Function<Flux<Record>, Flux<Record>> unmappableRecordsHandler;
   private Function<Flux<Void>, Flux<Void>> terminationHandler;
   private int readConcurrency;
+  private int maxConcurrentQueriesPerNode;
   private int numCores;
   private int writeConcurrency;
 
@@ -102,7 +138,7 @@ public class UnloadWorkflow implements Workflow {
     LogSettings logSettings = settingsManager.getLogSettings();
     DriverSettings driverSettings = settingsManager.getDriverSettings();
     ConnectorSettings connectorSettings = settingsManager.getConnectorSettings();
-    SchemaSettings schemaSettings = settingsManager.getSchemaSettings();
+    schemaSettings = settingsManager.getSchemaSettings();
     ExecutorSettings executorSettings = settingsManager.getExecutorSettings();
     CodecSettings codecSettings = settingsManager.getCodecSettings();
     MonitoringSettings monitoringSettings = settingsManager.getMonitoringSettings();
@@ -116,7 +152,21 @@ public class UnloadWorkflow implements Workflow {
     logSettings.init();
     connectorSettings.init(false);
     connector = connectorSettings.getConnector();
+    boolean checkpointRanges = logSettings.isCheckpointRanges();
+    Set<String> resumedRanges = logSettings.getResumedRanges();
+    if (resumedRanges != null) {
+      if (!checkpointRanges) {
+        throw new IllegalArgumentException(
+            "Resuming unload operations requires dsbulk.log.checkpointRanges to be enabled");
+      }
+      connector.resume(Collections.emptyMap());
+    }
     connector.init();
+    if (checkpointRanges && !connector.supports(CommonConnectorFeature.PARTITIONED_WRITES)) {
+      throw new IllegalArgumentException(
+          "dsbulk.log.checkpointRanges is enabled, but the connector cannot write token ranges "
+              + "to dedicated files; make sure that the connector writes to a directory");
+    }
     driverSettings.init(false);
     logSettings.logEffectiveSettings(
         settingsManager.getEffectiveBulkLoaderConfig(), driverSettings.getDriverConfig());
@@ -130,6 +180,18 @@ public class UnloadWorkflow implements Workflow {
         session,
         connector.supports(CommonConnectorFeature.INDEXED_RECORDS),
         connector.supports(CommonConnectorFeature.MAPPED_RECORDS));
+    if (checkpointRanges && schemaSettings.isUseSizeEstimates()) {
+      throw new IllegalArgumentException(
+          "dsbulk.schema.useSizeEstimates cannot be enabled together with "
+              + "dsbulk.log.checkpointRanges, since the token ranges to read would change "
+              + "between operations");
+    }
+    if (checkpointRanges && schemaSettings.isResplitLongReads()) {
+      throw new IllegalArgumentException(
+          "dsbulk.schema.resplitAfterRows and dsbulk.schema.resplitAfterTime cannot be enabled "
+              + "together with dsbulk.log.checkpointRanges, since the token ranges read would "
+              + "not match the checkpointed ones");
+    }
     logManager = logSettings.newLogManager(session, false);
     logManager.init();
     metricsManager =
@@ -150,7 +212,24 @@ public class UnloadWorkflow implements Workflow {
     readResultMapper =
         schemaSettings.createReadResultMapper(
             session, recordMetadata, codecFactory, logSettings.isSources());
+    if (logSettings.getWidePartitions() > 0) {
+      widePartitionsCounter =
+          schemaSettings.createWidePartitionsCounter(
+              session, codecFactory, logSettings.getWidePartitions());
+    }
     readStatements = schemaSettings.createReadStatements(session);
+    if (checkpointRanges) {
+      rangeStatements = createRangeStatements(schemaSettings, resumedRanges);
+      readStatements = new ArrayList<>(rangeStatements.values());
+    } else if (schemaSettings.isResplitLongReads()) {
+      rowToken = schemaSettings.createRowTokenFunction();
+      if (rowToken == null) {
+        LOGGER.warn(
+            "The query does not read the table by token ranges, long reads will not be re-split");
+      }
+      resplitAfterRows = schemaSettings.getResplitAfterRows();
+      resplitAfterNanos = schemaSettings.getResplitAfterTime().toNanos();
+    }
     executor =
         executorSettings.newReadExecutor(
             session, metricsManager.getExecutionListener(), schemaSettings.isSearchQuery());
@@ -163,6 +242,7 @@ public class UnloadWorkflow implements Workflow {
     totalItemsCounter = logManager.newTotalItemsCounter();
     failedReadsHandler = logManager.newFailedReadsHandler();
     queryWarningsHandler = logManager.newQueryWarningsHandler();
+    widePartitionsHandler = newWidePartitionsHandler();
     unmappableRecordsHandler = logManager.newUnmappableRecordsHandler();
     terminationHandler = logManager.newTerminationHandler();
     numCores = Runtime.getRuntime().availableProcessors();
@@ -173,7 +253,8 @@ public class UnloadWorkflow implements Workflow {
     LOGGER.debug("Using write concurrency: {}", writeConcurrency);
     readConcurrency =
         Math.min(
-            readStatements.size(),
+            // re-split reads can use more concurrency than there are statements
+            rowToken == null ? readStatements.size() : Integer.MAX_VALUE,
             // Most connectors have a default of numCores/2 for writeConcurrency;
             // a good readConcurrency is then numCores.
             engineSettings.getMaxConcurrentQueries().orElse(numCores));
@@ -181,15 +262,52 @@ public class UnloadWorkflow implements Workflow {
         "Using read concurrency: {} (user-supplied: {})",
         readConcurrency,
         engineSettings.getMaxConcurrentQueries().isPresent());
+    maxConcurrentQueriesPerNode = engineSettings.getMaxConcurrentQueriesPerNode().orElse(-1);
     schedulers = new HashSet<>();
   }
 
+  @NonNull
+  private Map<String, Statement<?>> createRangeStatements(
+      @NonNull SchemaSettings schemaSettings, @Nullable Set<String> resumedRanges)
+      throws IOException {
+    Map<String, Statement<?>> rangeStatements = new LinkedHashMap<>();
+    for (Statement<?> statement : readStatements) {
+      String range = schemaSettings.getTokenRangeId(statement);
+      if (range == null) {
+        throw new IllegalArgumentException(
+            "dsbulk.log.checkpointRanges is enabled, but the query does not read the table "
+                + "by token ranges");
+      }
+      rangeStatements.put(range, statement);
+    }
+    if (resumedRanges != null) {
+      if (!rangeStatements.keySet().containsAll(resumedRanges)) {
+        throw new IllegalArgumentException(
+            "Cannot resume operation: the token ranges to read do not match the ranges "
+                + "completed by the resumed operation; make sure that the cluster topology "
+                + "and the schema.splits setting did not change");
+      }
+      // carry over the completed ranges, so that this operation can in turn be resumed
+      for (String range : new TreeSet<>(resumedRanges)) {
+        rangeStatements.remove(range);
+        logManager.recordCompletedRange(range);
+      }
+      LOGGER.info(
+          "Skipping {} token ranges unloaded by the resumed operation, {} remaining",
+          resumedRanges.size(),
+          rangeStatements.size());
+    }
+    return rangeStatements;
+  }
+
   @Override
   public boolean execute() {
     LOGGER.debug("{} started.", this);
     metricsManager.start();
     Flux<Record> flux;
-    if (writeConcurrency == 1) {
+    if (rangeStatements != null) {
+      flux = perRangeWriters();
+    } else if (writeConcurrency == 1) {
       flux = oneWriter();
     } else if (writeConcurrency < numCores / 2 || readConcurrency < numCores / 2) {
       flux = fewWriters();
@@ -200,6 +318,9 @@ public class UnloadWorkflow implements Workflow {
     flux.then().flux().transform(terminationHandler).blockLast();
     timer.stop();
     metricsManager.stop();
+    if (widePartitionsCounter != null) {
+      reportWidePartitions();
+    }
     Duration elapsed = DurationUtils.round(timer.elapsed(), TimeUnit.SECONDS);
     String elapsedStr =
         elapsed.isZero() ? "less than one second" : DurationUtils.formatDuration(elapsed);
@@ -219,16 +340,19 @@ public class UnloadWorkflow implements Workflow {
             ? Schedulers.immediate()
             : Schedulers.newParallel(numThreads, new DefaultThreadFactory("workflow"));
     schedulers.add(scheduler);
-    return Flux.fromIterable(readStatements)
+    ReplicaAwareDispatcher<Statement<?>, Node> dispatcher =
+        newDispatcher(readStatements, statement -> statement);
+    return dispatcher
         .flatMap(
-            results ->
-                Flux.from(executor.readReactive(results))
+            statement ->
+                read(statement, dispatcher)
                     .publishOn(scheduler, 500)
                     .transform(queryWarningsHandler)
                     .transform(totalItemsMonitor)
                     .transform(totalItemsCounter)
                     .transform(failedReadResultsMonitor)
                     .transform(failedReadsHandler)
+                    .transform(widePartitionsHandler)
                     .map(readResultMapper::map)
                     .transform(failedRecordsMonitor)
                     .transform(unmappableRecordsHandler),
@@ -251,16 +375,19 @@ public class UnloadWorkflow implements Workflow {
         Schedulers.newParallel(numThreadsForWrites, new DefaultThreadFactory("workflow-write"));
     schedulers.add(schedulerForReads);
     schedulers.add(schedulerForWrites);
-    return Flux.fromIterable(readStatements)
+    ReplicaAwareDispatcher<Statement<?>, Node> dispatcher =
+        newDispatcher(readStatements, statement -> statement);
+    return dispatcher
         .flatMap(
-            results ->
-                Flux.from(executor.readReactive(results))
+            statement ->
+                read(statement, dispatcher)
                     .publishOn(schedulerForReads, 500)
                     .transform(queryWarningsHandler)
                     .transform(totalItemsMonitor)
                     .transform(totalItemsCounter)
                     .transform(failedReadResultsMonitor)
                     .transform(failedReadsHandler)
+                    .transform(widePartitionsHandler)
                     .map(readResultMapper::map)
                     .transform(failedRecordsMonitor)
                     .transform(unmappableRecordsHandler),
@@ -285,37 +412,252 @@ public class UnloadWorkflow implements Workflow {
     int numThreads = Math.min(numCores * 2, actualConcurrency);
     Scheduler scheduler = Schedulers.newParallel(numThreads, new DefaultThreadFactory("workflow"));
     schedulers.add(scheduler);
-    return Flux.fromIterable(readStatements)
+    ReplicaAwareDispatcher<Statement<?>, Node> dispatcher =
+        newDispatcher(readStatements, statement -> statement);
+    return dispatcher.flatMap(
+        statement -> {
+          Flux<Record> records =
+              read(statement, dispatcher)
+                  .publishOn(scheduler, 500)
+                  .transform(queryWarningsHandler)
+                  .transform(totalItemsMonitor)
+                  .transform(totalItemsCounter)
+                  .transform(failedReadResultsMonitor)
+                  .transform(failedReadsHandler)
+                  .transform(widePartitionsHandler)
+                  .map(readResultMapper::map)
+                  .transform(failedRecordsMonitor)
+                  .transform(unmappableRecordsHandler);
+          if (actualConcurrency == writeConcurrency) {
+            records = records.transform(writer);
+          } else {
+            // If the actual concurrency is lesser than the connector's desired write
+            // concurrency, we need to give the connector a chance to switch writers
+            // frequently so that it can really redirect records to all the final destinations
+            // (to that many files on disk for example). If the connector is correctly
+            // implemented, each window will be redirected to a different destination
+            // in a round-robin fashion.
+            records = records.window(500).flatMap(window -> window.transform(writer), 1, 500);
+          }
+          return records.transform(failedRecordsMonitor).transform(failedRecordsHandler);
+        },
+        actualConcurrency,
+        500);
+  }
+
+  private Flux<Record> perRangeWriters() {
+    // each token range is written by its own writer, to its own files
+    int concurrency = Math.max(1, readConcurrency);
+    int numThreads = Math.min(numCores * 2, concurrency);
+    Scheduler scheduler =
+        numThreads == 1
+            ? Schedulers.immediate()
+            : Schedulers.newParallel(numThreads, new DefaultThreadFactory("workflow"));
+    schedulers.add(scheduler);
+    return newDispatcher(rangeStatements.entrySet(), Map.Entry::getValue)
         .flatMap(
-            results -> {
-              Flux<Record> records =
-                  Flux.from(executor.readReactive(results))
-                      .publishOn(scheduler, 500)
-                      .transform(queryWarningsHandler)
-                      .transform(totalItemsMonitor)
-                      .transform(totalItemsCounter)
-                      .transform(failedReadResultsMonitor)
-                      .transform(failedReadsHandler)
-                      .map(readResultMapper::map)
-                      .transform(failedRecordsMonitor)
-                      .transform(unmappableRecordsHandler);
-              if (actualConcurrency == writeConcurrency) {
-                records = records.transform(writer);
-              } else {
-                // If the actual concurrency is lesser than the connector's desired write
-                // concurrency, we need to give the connector a chance to switch writers
-                // frequently so that it can really redirect records to all the final destinations
-                // (to that many files on disk for example). If the connector is correctly
-                // implemented, each window will be redirected to a different destination
-                // in a round-robin fashion.
-                records = records.window(500).flatMap(window -> window.transform(writer), 1, 500);
-              }
-              return records.transform(failedRecordsMonitor).transform(failedRecordsHandler);
+            entry -> {
+              String range = entry.getKey();
+              // a range whose read, mapping or write failed must be read again when resuming;
+              // failed items are filtered out by failure handlers, so monitor them before
+              return Flux.from(executor.readReactive(entry.getValue()))
+                  .publishOn(scheduler, 500)
+                  .transform(queryWarningsHandler)
+                  .transform(totalItemsMonitor)
+                  .transform(totalItemsCounter)
+                  .transform(logManager.newFailedRangeMonitor(range))
+                  .transform(failedReadResultsMonitor)
+                  .transform(failedReadsHandler)
+                  .transform(widePartitionsHandler)
+                  .map(readResultMapper::map)
+                  .transform(failedRecordsMonitor)
+                  .transform(logManager.newFailedRangeMonitor(range))
+                  .transform(unmappableRecordsHandler)
+                  .transform(connector.write(range))
+                  .transform(failedRecordsMonitor)
+                  .transform(logManager.newFailedRangeMonitor(range))
+                  .transform(failedRecordsHandler)
+                  .concatWith(
+                      Mono.fromCallable(
+                          () -> {
+                            logManager.recordCompletedRange(range);
+                            return null;
+                          }));
             },
-            actualConcurrency,
+            concurrency,
             500);
   }
 
+  /**
+   * Reads the given statement. When re-splitting long reads, a read that passes the row or time
+   * threshold is cut at the next partition boundary, and the remainder of its token range is
+   * dispatched as new splits.
+   */
+  private Flux<ReadResult> read(
+      Statement<?> statement, ReplicaAwareDispatcher<Statement<?>, Node> dispatcher) {
+    if (rowToken == null) {
+      return Flux.from(executor.readReactive(statement));
+    }
+    return readResplittingLongReads(
+        statement,
+        s -> Flux.from(executor.readReactive(s)),
+        rowToken,
+        this::splitAfter,
+        dispatcher::add,
+        resplitAfterRows,
+        resplitAfterNanos);
+  }
+
+  private List<Statement<?>> splitAfter(Statement<?> statement, Token token) {
+    List<Statement<?>> splits =
+        schemaSettings.splitReadStatementAfter(statement, token, RESPLIT_COUNT);
+    if (!splits.isEmpty()) {
+      LOGGER.debug(
+          "Read of {} is taking too long, reading the rest of its range as {} splits",
+          schemaSettings.getTokenRangeId(statement),
+          splits.size());
+    }
+    return splits;
+  }
+
+  /**
+   * Reads the given statement; once the read passes the given number of rows or the given time, it
+   * is cut after the partition being read, and the rest of the statement's token range is split and
+   * handed to the given dispatcher, so that it can be read concurrently. Rows of a token range are
+   * returned in token order, and the read resumes after the token of the last partition read, so
+   * that each partition is read exactly once, and entirely by a single read.
+   *
+   * @param statement the statement to read.
+   * @param reader the function reading a statement.
+   * @param rowToken the function returning the token of the partition that a row belongs to.
+   * @param splitter the function splitting the part of a statement's range that follows a token;
+   *     returns an empty list if the statement cannot be split.
+   * @param dispatcher the consumer of the splits to read.
+   * @param maxRows the number of rows after which to cut the read, or zero or less to not cut reads
+   *     after a number of rows.
+   * @param maxNanos the time after which to cut the read, or zero or less to not cut reads after
+   *     some time.
+   */
+  @VisibleForTesting
+  static Flux<ReadResult> readResplittingLongReads(
+      Statement<?> statement,
+      Function<Statement<?>, Flux<ReadResult>> reader,
+      Function<Row, Token> rowToken,
+      BiFunction<Statement<?>, Token, List<Statement<?>>> splitter,
+      Consumer<Statement<?>> dispatcher,
+      long maxRows,
+      long maxNanos) {
+    return Flux.defer(
+        () ->
+            reader
+                .apply(statement)
+                .takeWhile(
+                    new PartitionBoundaryCutter(
+                        statement, rowToken, splitter, dispatcher, maxRows, maxNanos)));
+  }
+
+  /**
+   * A predicate that accepts the rows of a read until the read passes its thresholds and the first
+   * row of a new partition is seen; that row is rejected, and the rest of the range dispatched.
+   */
+  private static class PartitionBoundaryCutter implements Predicate<ReadResult> {
+
+    private final Statement<?> statement;
+    private final Function<Row, Token> rowToken;
+    private final BiFunction<Statement<?>, Token, List<Statement<?>>> splitter;
+    private final Consumer<Statement<?>> dispatcher;
+    private final long maxRows;
+    private final long maxNanos;
+    private final long start = System.nanoTime();
+
+    private long rows;
+    private Token lastToken;
+
+    private PartitionBoundaryCutter(
+        Statement<?> statement,
+        Function<Row, Token> rowToken,
+        BiFunction<Statement<?>, Token, List<Statement<?>>> splitter,
+        Consumer<Statement<?>> dispatcher,
+        long maxRows,
+        long maxNanos) {
+      this.statement = statement;
+      this.rowToken = rowToken;
+      this.splitter = splitter;
+      this.dispatcher = dispatcher;
+      this.maxRows = maxRows;
+      this.maxNanos = maxNanos;
+    }
+
+    @Override
+    public boolean test(ReadResult result) {
+      Row row = result.getRow().orElse(null);
+      if (row == null) {
+        // failed reads have no row
+        return true;
+      }
+      if (lastToken == null) {
+        rows++;
+        if ((maxRows > 0 && rows >= maxRows)
+            || (maxNanos > 0 && System.nanoTime() - start >= maxNanos)) {
+          // read the rest of this partition, then cut
+          lastToken = rowToken.apply(row);
+        }
+        return true;
+      }
+      if (rowToken.apply(row).equals(lastToken)) {
+        return true;
+      }
+      List<Statement<?>> splits = splitter.apply(statement, lastToken);
+      if (splits.isEmpty()) {
+        lastToken = null;
+        return true;
+      }
+      splits.forEach(dispatcher);
+      return false;
+    }
+  }
+
+  /**
+   * Creates a handler that counts the rows of each partition read, with one counting unit per read
+   * statement; statements read distinct token ranges, so each unit sees whole partitions, and only
+   * needs to retain its widest ones.
+   */
+  private Function<Flux<ReadResult>, Flux<ReadResult>> newWidePartitionsHandler() {
+    if (widePartitionsCounter == null) {
+      return Function.identity();
+    }
+    return upstream ->
+        Flux.defer(
+            () -> {
+              ReadResultCounter.CountingUnit unit = widePartitionsCounter.newCountingUnit();
+              return upstream.doOnNext(unit::update).doOnComplete(unit::close);
+            });
+  }
+
+  private void reportWidePartitions() {
+    Path file = logManager.getOperationDirectory().resolve(WIDE_PARTITIONS_FILE);
+    try {
+      widePartitionsCounter.close();
+      try (PrintStream out =
+          new PrintStream(Files.newOutputStream(file), false, StandardCharsets.UTF_8.name())) {
+        widePartitionsCounter.reportTotals(out);
+      }
+      LOGGER.info("Widest partitions written to {}.", file);
+    } catch (Exception e) {
+      LOGGER.warn("Could not write widest partitions to " + file, e);
+    }
+  }
+
+  /**
+   * Creates a dispatcher that interleaves the given reads across their replicas, so that concurrent
+   * reads are spread evenly across the cluster.
+   */
+  private <T> ReplicaAwareDispatcher<T, Node> newDispatcher(
+      Collection<T> reads, Function<? super T, ? extends Statement<?>> statementOf) {
+    return ReplicaAwareDispatcher.forStatements(
+        session, reads, statementOf, maxConcurrentQueriesPerNode);
+  }
+
   @Override
   public void close() throws Exception {
     if (closed.compareAndSet(false, true)) {
@@ -0,0 +1,172 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.dsbulk.workflow.unload;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.datastax.oss.driver.api.core.cql.ExecutionInfo;
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.datastax.oss.driver.api.core.cql.SimpleStatement;
+import com.datastax.oss.driver.api.core.cql.Statement;
+import com.datastax.oss.driver.api.core.metadata.token.Token;
+import com.datastax.oss.driver.internal.core.metadata.token.Murmur3Token;
+import com.datastax.oss.dsbulk.executor.api.result.DefaultReadResult;
+import com.datastax.oss.dsbulk.executor.api.result.ReadResult;
+import com.datastax.oss.dsbulk.workflow.commons.utils.ReplicaAwareDispatcher;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+class UnloadWorkflowTest {
+
+  /** The fake table has one partition per token in (0, 20], with 3 rows each. */
+  private static final long MAX_TOKEN = 20;
+
+  private static final int ROWS_PER_PARTITION = 3;
+
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final AtomicInteger maxInFlight = new AtomicInteger();
+
+  @Test
+  void should_cut_long_reads_after_max_rows_and_read_the_rest_of_their_range() {
+    List<ReadResult> results = readAll(10, 0);
+    assertReadOnce(results);
+    // the first read is cut in the middle of its 4th partition, after 10 rows
+    assertThat(results.get(0).getStatement()).isEqualTo(range(0, MAX_TOKEN));
+    assertThat(rowsOf(results, range(0, MAX_TOKEN))).hasSize(12);
+    assertThat(maxInFlight).hasValueGreaterThan(1);
+  }
+
+  @Test
+  void should_cut_long_reads_after_max_time_and_read_the_rest_of_their_range() {
+    // every read is cut after its first partition
+    List<ReadResult> results = readAll(0, 1);
+    assertReadOnce(results);
+    assertThat(rowsOf(results, range(0, MAX_TOKEN))).hasSize(ROWS_PER_PARTITION);
+    assertThat(maxInFlight).hasValueGreaterThan(1);
+  }
+
+  @Test
+  void should_not_cut_reads_below_thresholds() {
+    List<ReadResult> results = readAll(1000, Duration.ofMinutes(1).toNanos());
+    assertReadOnce(results);
+    assertThat(rowsOf(results, range(0, MAX_TOKEN))).hasSize(results.size());
+    assertThat(maxInFlight).hasValue(1);
+  }
+
+  private List<ReadResult> readAll(long maxRows, long maxNanos) {
+    ReplicaAwareDispatcher<Statement<?>, String> dispatcher =
+        new ReplicaAwareDispatcher<>(
+            Collections.singletonList(range(0, MAX_TOKEN)),
+            statement -> Collections.emptySet(),
+            -1);
+    return dispatcher
+        .flatMap(
+            statement ->
+                UnloadWorkflow.readResplittingLongReads(
+                    statement,
+                    this::read,
+                    this::tokenOf,
+                    this::splitAfter,
+                    dispatcher::add,
+                    maxRows,
+                    maxNanos),
+            4,
+            1)
+        .collectList()
+        .block();
+  }
+
+  private static void assertReadOnce(List<ReadResult> results) {
+    assertThat(results).isNotNull().allMatch(result -> !result.getError().isPresent());
+    List<String> rows =
+        results.stream()
+            .map(result -> result.getRow().orElseThrow(IllegalStateException::new))
+            .map(row -> row.getLong(0) + ":" + row.getInt(1))
+            .collect(Collectors.toList());
+    assertThat(rows).doesNotHaveDuplicates().hasSize((int) MAX_TOKEN * ROWS_PER_PARTITION);
+    // each partition is read entirely by a single read
+    Map<Long, Set<Statement<?>>> readsByPartition = new ConcurrentHashMap<>();
+    for (ReadResult result : results) {
+      readsByPartition
+          .computeIfAbsent(tokenValue(result), k -> ConcurrentHashMap.newKeySet())
+          .add(result.getStatement());
+    }
+    assertThat(readsByPartition.values()).allMatch(reads -> reads.size() == 1);
+  }
+
+  private static List<ReadResult> rowsOf(List<ReadResult> results, Statement<?> statement) {
+    return results.stream()
+        .filter(result -> result.getStatement().equals(statement))
+        .collect(Collectors.toList());
+  }
+
+  private static Statement<?> range(long start, long end) {
+    return SimpleStatement.newInstance("range", start, end);
+  }
+
+  private Flux<ReadResult> read(Statement<?> statement) {
+    List<Object> bounds = ((SimpleStatement) statement).getPositionalValues();
+    long start = (Long) bounds.get(0);
+    long end = (Long) bounds.get(1);
+    List<ReadResult> results = new ArrayList<>();
+    for (long token = start + 1; token <= end; token++) {
+      for (int i = 0; i < ROWS_PER_PARTITION; i++) {
+        Row row = mock(Row.class);
+        when(row.getLong(0)).thenReturn(token);
+        when(row.getInt(1)).thenReturn(i);
+        results.add(new DefaultReadResult(statement, mock(ExecutionInfo.class), row));
+      }
+    }
+    return Flux.fromIterable(results)
+        .delayElements(Duration.ofMillis(1))
+        .doOnSubscribe(s -> maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max))
+        .doFinally(signal -> inFlight.decrementAndGet());
+  }
+
+  private Token tokenOf(Row row) {
+    return new Murmur3Token(row.getLong(0));
+  }
+
+  private static long tokenValue(ReadResult result) {
+    return result.getRow().map(row -> row.getLong(0)).orElseThrow(IllegalStateException::new);
+  }
+
+  /** Splits the part of the statement's range that follows the token in two halves. */
+  private List<Statement<?>> splitAfter(Statement<?> statement, Token token) {
+    long start = ((Murmur3Token) token).getValue();
+    long end = (Long) ((SimpleStatement) statement).getPositionalValues().get(1);
+    if (start == end) {
+      return Collections.emptyList();
+    }
+    if (end - start < 2) {
+      return Collections.singletonList(range(start, end));
+    }
+    long middle = start + (end - start) / 2;
+    return Arrays.asList(range(start, middle), range(middle, end));
+  }
+}